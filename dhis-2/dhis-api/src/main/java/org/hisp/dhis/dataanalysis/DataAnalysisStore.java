@@ -61,7 +61,68 @@ public interface DataAnalysisStore
         Collection<String> parentPaths, Date from );
 
     /**
-     * Generates a collection of data value violations of min-max predefined values.
+     * Calculates the average and standard deviation measures of the DataValues
+     * registered for the given data elements, set of category option combos,
+     * and organisation unit parents in a single query.
+     *
+     * @param dataElements         the data elements.
+     * @param categoryOptionCombos the category option combos.
+     * @param parentPaths          the parent OrganisationUnits' paths.
+     * @param from                 the from date for which to include data values.
+     * @return a list of measures for each data element, organisation unit and
+     *         category option combo with a non-zero standard deviation.
+     */
+    List<DataAnalysisMeasures> getDataAnalysisMeasures( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos,
+        Collection<String> parentPaths, Date from );
+
+    /**
+     * Generates a collection of data values which deviate from the average of
+     * the data of their data element, organisation unit and category option
+     * combo by more than the given number of standard deviations. The measures
+     * and the outliers are computed in a single query. Outliers are ordered by
+     * severity, the most severe first.
+     *
+     * @param dataElements         the data elements.
+     * @param categoryOptionCombos the category option combos.
+     * @param periods              the periods.
+     * @param parentPaths          the parent OrganisationUnits' paths.
+     * @param from                 the from date for which to include data values
+     *                             in the measures.
+     * @param stdDevFactor         the number of standard deviations.
+     * @param limit                the max limit of outliers to return.
+     * @return a list of outliers.
+     */
+    List<DeflatedDataValue> getStdDevOutliers( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<Period> periods,
+        Collection<String> parentPaths, Date from, double stdDevFactor, int limit );
+
+    /**
+     * Generates a collection of data values which are outliers of the data of
+     * their data element, organisation unit and category option combo by the
+     * given robust method. The percentiles and the outliers are computed in a
+     * single query. Outliers are ordered by severity, the most severe first.
+     * Returns an empty list if the DBMS does not support percentile
+     * aggregates.
+     *
+     * @param dataElements         the data elements.
+     * @param categoryOptionCombos the category option combos.
+     * @param periods              the periods.
+     * @param parentPaths          the parent OrganisationUnits' paths.
+     * @param from                 the from date for which to include data values
+     *                             in the percentiles.
+     * @param method               the robust outlier method.
+     * @param factor               the factor of the deviation of the method.
+     * @param limit                the max limit of outliers to return.
+     * @return a list of outliers.
+     */
+    List<DeflatedDataValue> getRobustOutliers( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<Period> periods,
+        Collection<String> parentPaths, Date from, RobustOutlierMethod method, double factor, int limit );
+
+    /**
+     * Generates a collection of data value violations of min-max predefined values,
+     * ordered by severity, the most severe first.
      *
      * @param dataElements         the data elements.
      * @param categoryOptionCombos the category option combos.
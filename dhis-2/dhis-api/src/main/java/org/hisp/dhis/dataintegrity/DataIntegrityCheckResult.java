@@ -0,0 +1,106 @@
+package org.hisp.dhis.dataintegrity;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The flattened result of a single data integrity check, along with when and
+ * for how long the check ran. The version identifies the state of the tables
+ * the check reads from at the time it ran, and is used to decide whether the
+ * result can be reused.
+ */
+public class DataIntegrityCheckResult
+{
+    private final String name;
+
+    private final Object result;
+
+    private final String version;
+
+    private final Date startTime;
+
+    private final long duration;
+
+    public DataIntegrityCheckResult( String name, Object result, String version, Date startTime, long duration )
+    {
+        this.name = name;
+        this.result = result;
+        this.version = version;
+        this.startTime = startTime;
+        this.duration = duration;
+    }
+
+    /**
+     * Indicates whether this result can be reused for the given table version.
+     * Results without a version are never reused.
+     *
+     * @param version the current version of the tables of the check.
+     */
+    public boolean isCurrent( String version )
+    {
+        return this.version != null && this.version.equals( version );
+    }
+
+    @JsonProperty
+    public String getName()
+    {
+        return name;
+    }
+
+    @JsonIgnore
+    public Object getResult()
+    {
+        return result;
+    }
+
+    @JsonIgnore
+    public String getVersion()
+    {
+        return version;
+    }
+
+    @JsonProperty
+    public Date getStartTime()
+    {
+        return startTime;
+    }
+
+    /**
+     * Returns the run time of the check in milliseconds.
+     */
+    @JsonProperty
+    public long getDuration()
+    {
+        return duration;
+    }
+}
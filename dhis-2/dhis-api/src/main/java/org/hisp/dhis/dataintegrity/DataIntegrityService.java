@@ -205,10 +205,18 @@ public interface DataIntegrityService
     DataIntegrityReport getDataIntegrityReport();
 
     /**
-     * Returns a FlattenedDataIntegrityReport.
+     * Returns a FlattenedDataIntegrityReport. Checks run concurrently, and the
+     * result of a previous run of a check is reused when none of the tables
+     * the check reads from have changed since.
      */
     FlattenedDataIntegrityReport getFlattenedDataIntegrityReport();
 
+    /**
+     * Returns the latest results of the checks of the FlattenedDataIntegrityReport,
+     * including when and for how long each check ran.
+     */
+    List<DataIntegrityCheckResult> getDataIntegrityCheckResults();
+
     /**
      * Get all ProgramIndicators with no expression.
      */
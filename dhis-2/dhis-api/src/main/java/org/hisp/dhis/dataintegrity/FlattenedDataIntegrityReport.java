@@ -28,7 +28,8 @@ package org.hisp.dhis.dataintegrity;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonCreator;
 import org.apache.commons.lang3.StringUtils;
 import org.hisp.dhis.common.IdentifiableObject;
 
@@ -36,6 +37,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
@@ -49,179 +51,103 @@ import java.util.TreeMap;
  */
 public class FlattenedDataIntegrityReport
 {
-    @JsonProperty
-    private List<String> dataElementsWithoutDataSet;
-
-    @JsonProperty
-    private List<String> dataElementsWithoutGroups;
-
-    @JsonProperty
-    private Map<String, Collection<String>> dataElementsAssignedToDataSetsWithDifferentPeriodTypes;
-
-    @JsonProperty
-    private SortedMap<String, Collection<String>> dataElementsViolatingExclusiveGroupSets;
-
-    @JsonProperty
-    private SortedMap<String, Collection<String>> dataElementsInDataSetNotInForm;
-
-    @JsonProperty
-    private List<String> invalidCategoryCombos;
-
-    @JsonProperty
-    private List<String> dataSetsNotAssignedToOrganisationUnits;
-
-    @JsonProperty
-    private Collection<Collection<String>> indicatorsWithIdenticalFormulas;
-
-    @JsonProperty
-    private List<String> indicatorsWithoutGroups;
-
-    @JsonProperty
-    private Map<String, String> invalidIndicatorNumerators;
-
-    @JsonProperty
-    private Map<String, String> invalidIndicatorDenominators;
-
-    @JsonProperty
-    private SortedMap<String, Collection<String>> indicatorsViolatingExclusiveGroupSets;
-
-    @JsonProperty
-    private List<String> duplicatePeriods;
-
-    @JsonProperty
-    private List<String> organisationUnitsWithCyclicReferences;
-
-    @JsonProperty
-    private List<String> orphanedOrganisationUnits;
-
-    @JsonProperty
-    private List<String> organisationUnitsWithoutGroups;
-
-    @JsonProperty
-    private SortedMap<String, Collection<String>> organisationUnitsViolatingExclusiveGroupSets;
-
-    @JsonProperty
-    private List<String> organisationUnitGroupsWithoutGroupSets;
-
-    @JsonProperty
-    private List<String> validationRulesWithoutGroups;
-
-    @JsonProperty
-    private Map<String, String> invalidValidationRuleLeftSideExpressions;
-
-    @JsonProperty
-    private Map<String, String> invalidValidationRuleRightSideExpressions;
-
-    @JsonProperty
-    private Map<String, String> invalidProgramIndicatorExpressions;
-
-    @JsonProperty
-    private List<String> programIndicatorsWithNoExpression;
-
-    @JsonProperty
-    private Map<String, String> invalidProgramIndicatorFilters;
-
-    @JsonProperty
-    private Map<String, Collection<String>> programRulesWithNoCondition;
-
-    @JsonProperty
-    private Map<String, Collection<String>> programRulesWithNoPriority;
-
-    @JsonProperty
-    private Map<String, Collection<String>> programRulesWithNoAction;
-
-    @JsonProperty
-    private Map<String, Collection<String>> programRuleVariablesWithNoDataElement;
-
-    @JsonProperty
-    private Map<String, Collection<String>> programRuleVariablesWithNoAttribute;
-
-    @JsonProperty
-    private Map<String, Collection<String>> programRuleActionsWithNoDataObject;
-
-    @JsonProperty
-    private Map<String, Collection<String>> programRuleActionsWithNoNotification;
-
-    @JsonProperty
-    private Map<String, Collection<String>> programRuleActionsWithNoSectionId;
-
-    @JsonProperty
-    private Map<String, Collection<String>> programRuleActionsWithNoStageId;
+    /**
+     * Flattened check results by check name, serialized as properties of the
+     * report.
+     */
+    private final Map<String, Object> results = new LinkedHashMap<>();
 
     public FlattenedDataIntegrityReport( org.hisp.dhis.dataintegrity.DataIntegrityReport report )
     {
-        dataElementsWithoutDataSet = transformCollection( report.getDataElementsWithoutDataSet() );
+        results.put( "dataElementsWithoutDataSet", transformCollection( report.getDataElementsWithoutDataSet() ) );
 
-        dataElementsWithoutGroups = transformCollection( report.getDataElementsWithoutGroups() );
+        results.put( "dataElementsWithoutGroups", transformCollection( report.getDataElementsWithoutGroups() ) );
 
-        dataElementsAssignedToDataSetsWithDifferentPeriodTypes = transformMapOfCollections( report.getDataElementsAssignedToDataSetsWithDifferentPeriodTypes() );
+        results.put( "dataElementsAssignedToDataSetsWithDifferentPeriodTypes", transformMapOfCollections( report.getDataElementsAssignedToDataSetsWithDifferentPeriodTypes() ) );
 
-        dataElementsViolatingExclusiveGroupSets = transformSortedMap( report.getDataElementsViolatingExclusiveGroupSets() );
+        results.put( "dataElementsViolatingExclusiveGroupSets", transformSortedMap( report.getDataElementsViolatingExclusiveGroupSets() ) );
 
-        dataElementsInDataSetNotInForm = transformSortedMap( report.getDataElementsInDataSetNotInForm() );
+        results.put( "dataElementsInDataSetNotInForm", transformSortedMap( report.getDataElementsInDataSetNotInForm() ) );
 
-        invalidCategoryCombos = transformCollection( report.getInvalidCategoryCombos() );
+        results.put( "invalidCategoryCombos", transformCollection( report.getInvalidCategoryCombos() ) );
 
-        dataSetsNotAssignedToOrganisationUnits = transformCollection( report.getDataSetsNotAssignedToOrganisationUnits() );
+        results.put( "dataSetsNotAssignedToOrganisationUnits", transformCollection( report.getDataSetsNotAssignedToOrganisationUnits() ) );
 
-        indicatorsWithIdenticalFormulas = transformCollectionOfCollections( report.getIndicatorsWithIdenticalFormulas() );
+        results.put( "indicatorsWithIdenticalFormulas", transformCollectionOfCollections( report.getIndicatorsWithIdenticalFormulas() ) );
 
-        indicatorsWithoutGroups = transformCollection( report.getIndicatorsWithoutGroups() );
+        results.put( "indicatorsWithoutGroups", transformCollection( report.getIndicatorsWithoutGroups() ) );
 
-        invalidIndicatorNumerators = transformMapOfStrings( report.getInvalidIndicatorNumerators() );
+        results.put( "invalidIndicatorNumerators", transformMapOfStrings( report.getInvalidIndicatorNumerators() ) );
 
-        invalidIndicatorDenominators = transformMapOfStrings( report.getInvalidIndicatorDenominators() );
+        results.put( "invalidIndicatorDenominators", transformMapOfStrings( report.getInvalidIndicatorDenominators() ) );
 
-        indicatorsViolatingExclusiveGroupSets = transformSortedMap( report.getIndicatorsViolatingExclusiveGroupSets() );
+        results.put( "indicatorsViolatingExclusiveGroupSets", transformSortedMap( report.getIndicatorsViolatingExclusiveGroupSets() ) );
 
-        duplicatePeriods = transformCollection( report.getDuplicatePeriods() );
+        results.put( "duplicatePeriods", transformCollection( report.getDuplicatePeriods() ) );
 
-        organisationUnitsWithCyclicReferences = transformCollection( report.getOrganisationUnitsWithCyclicReferences() );
+        results.put( "organisationUnitsWithCyclicReferences", transformCollection( report.getOrganisationUnitsWithCyclicReferences() ) );
 
-        orphanedOrganisationUnits = transformCollection( report.getOrphanedOrganisationUnits() );
+        results.put( "orphanedOrganisationUnits", transformCollection( report.getOrphanedOrganisationUnits() ) );
 
-        organisationUnitsWithoutGroups = transformCollection( report.getOrganisationUnitsWithoutGroups() );
+        results.put( "organisationUnitsWithoutGroups", transformCollection( report.getOrganisationUnitsWithoutGroups() ) );
 
-        organisationUnitsViolatingExclusiveGroupSets = transformSortedMap( report.getOrganisationUnitsViolatingExclusiveGroupSets() );
+        results.put( "organisationUnitsViolatingExclusiveGroupSets", transformSortedMap( report.getOrganisationUnitsViolatingExclusiveGroupSets() ) );
 
-        organisationUnitGroupsWithoutGroupSets = transformCollection( report.getOrganisationUnitGroupsWithoutGroupSets() );
+        results.put( "organisationUnitGroupsWithoutGroupSets", transformCollection( report.getOrganisationUnitGroupsWithoutGroupSets() ) );
 
-        validationRulesWithoutGroups = transformCollection( report.getValidationRulesWithoutGroups() );
+        results.put( "validationRulesWithoutGroups", transformCollection( report.getValidationRulesWithoutGroups() ) );
 
-        invalidValidationRuleLeftSideExpressions = transformMapOfStrings( report.getInvalidValidationRuleLeftSideExpressions() );
+        results.put( "invalidValidationRuleLeftSideExpressions", transformMapOfStrings( report.getInvalidValidationRuleLeftSideExpressions() ) );
 
-        invalidValidationRuleRightSideExpressions = transformMapOfStrings( report.getInvalidValidationRuleRightSideExpressions() );
+        results.put( "invalidValidationRuleRightSideExpressions", transformMapOfStrings( report.getInvalidValidationRuleRightSideExpressions() ) );
 
-        programIndicatorsWithNoExpression = transformCollection( report.getGetProgramIndicatorWithNoExpression() );
+        results.put( "programIndicatorsWithNoExpression", transformCollection( report.getGetProgramIndicatorWithNoExpression() ) );
 
-        invalidProgramIndicatorExpressions = transformMapOfStrings( report.getInvalidProgramIndicatorExpressions() );
+        results.put( "invalidProgramIndicatorExpressions", transformMapOfStrings( report.getInvalidProgramIndicatorExpressions() ) );
 
-        invalidProgramIndicatorFilters = transformMapOfStrings( report.getInvalidProgramIndicatorFilters() );
+        results.put( "invalidProgramIndicatorFilters", transformMapOfStrings( report.getInvalidProgramIndicatorFilters() ) );
 
-        programRulesWithNoCondition = transformMapOfCollections( report.getProgramRulesWithoutCondition() );
+        results.put( "programRulesWithNoCondition", transformMapOfCollections( report.getProgramRulesWithoutCondition() ) );
 
-        programRulesWithNoPriority = transformMapOfCollections( report.getProgramRulesWithNoPriority() );
+        results.put( "programRulesWithNoPriority", transformMapOfCollections( report.getProgramRulesWithNoPriority() ) );
 
-        programRulesWithNoAction = transformMapOfCollections( report.getProgramRulesWithNoAction() );
+        results.put( "programRulesWithNoAction", transformMapOfCollections( report.getProgramRulesWithNoAction() ) );
 
-        programRuleVariablesWithNoDataElement = transformMapOfCollections( report.getProgramRuleVariablesWithNoDataElement() );
+        results.put( "programRuleVariablesWithNoDataElement", transformMapOfCollections( report.getProgramRuleVariablesWithNoDataElement() ) );
 
-        programRuleVariablesWithNoAttribute = transformMapOfCollections( report.getProgramRuleVariablesWithNoAttribute() );
+        results.put( "programRuleVariablesWithNoAttribute", transformMapOfCollections( report.getProgramRuleVariablesWithNoAttribute() ) );
 
-        programRuleActionsWithNoDataObject = transformMapOfCollections( report.getProgramRuleActionsWithNoDataObject() );
+        results.put( "programRuleActionsWithNoDataObject", transformMapOfCollections( report.getProgramRuleActionsWithNoDataObject() ) );
 
-        programRuleActionsWithNoNotification = transformMapOfCollections( report.getProgramRuleActionsWithNoNotification() );
+        results.put( "programRuleActionsWithNoNotification", transformMapOfCollections( report.getProgramRuleActionsWithNoNotification() ) );
 
-        programRuleActionsWithNoSectionId = transformMapOfCollections( report.getProgramRuleActionsWithNoSectionId() );
+        results.put( "programRuleActionsWithNoSectionId", transformMapOfCollections( report.getProgramRuleActionsWithNoSectionId() ) );
+
+        results.put( "programRuleActionsWithNoStageId", transformMapOfCollections( report.getProgramRuleActionsWithNoStageId() ) );
+    }
 
-        programRuleActionsWithNoStageId = transformMapOfCollections( report.getProgramRuleActionsWithNoStageId() );
+    /**
+     * Creates a report from the flattened results of individual checks.
+     *
+     * @param results the flattened check results by check name.
+     */
+    @JsonCreator( mode = JsonCreator.Mode.DELEGATING )
+    public FlattenedDataIntegrityReport( Map<String, Object> results )
+    {
+        this.results.putAll( results );
+    }
+
+    @JsonAnyGetter
+    public Map<String, Object> getResults()
+    {
+        return results;
     }
 
     // -------------------------------------------------------------------------
     // Supportive methods
     // -------------------------------------------------------------------------
 
-    private Collection<Collection<String>> transformCollectionOfCollections( Collection<? extends Collection<? extends IdentifiableObject>> collection )
+    public static Collection<Collection<String>> transformCollectionOfCollections( Collection<? extends Collection<? extends IdentifiableObject>> collection )
     {
         Collection<Collection<String>> newCollection = new HashSet<>();
 
@@ -233,7 +159,7 @@ public class FlattenedDataIntegrityReport
         return newCollection;
     }
 
-    private Map<String, String> transformMapOfStrings( Map<? extends IdentifiableObject, String> map )
+    public static Map<String, String> transformMapOfStrings( Map<? extends IdentifiableObject, String> map )
     {
         HashMap<String, String> newMap = new HashMap<>( map.size() );
 
@@ -245,7 +171,7 @@ public class FlattenedDataIntegrityReport
         return newMap;
     }
 
-    private Map<String, Collection<String>> transformMapOfCollections( Map<? extends IdentifiableObject, ? extends Collection<? extends IdentifiableObject>> map )
+    public static Map<String, Collection<String>> transformMapOfCollections( Map<? extends IdentifiableObject, ? extends Collection<? extends IdentifiableObject>> map )
     {
         HashMap<String, Collection<String>> newMap = new HashMap<>();
 
@@ -260,7 +186,7 @@ public class FlattenedDataIntegrityReport
         return newMap;
     }
 
-    private List<String> transformCollection( Collection<? extends IdentifiableObject> collection )
+    public static List<String> transformCollection( Collection<? extends IdentifiableObject> collection )
     {
         List<String> newCollection = new ArrayList<>( collection.size() );
 
@@ -272,7 +198,7 @@ public class FlattenedDataIntegrityReport
         return newCollection;
     }
 
-    private SortedMap<String, Collection<String>> transformSortedMap( SortedMap<? extends IdentifiableObject, ? extends Collection<? extends IdentifiableObject>> map )
+    public static SortedMap<String, Collection<String>> transformSortedMap( SortedMap<? extends IdentifiableObject, ? extends Collection<? extends IdentifiableObject>> map )
     {
         SortedMap<String, Collection<String>> newMap = new TreeMap<>();
 
@@ -284,7 +210,7 @@ public class FlattenedDataIntegrityReport
         return newMap;
     }
 
-    private String defaultIfNull( IdentifiableObject object )
+    private static String defaultIfNull( IdentifiableObject object )
     {
         if ( object.getDisplayName() == null )
         {
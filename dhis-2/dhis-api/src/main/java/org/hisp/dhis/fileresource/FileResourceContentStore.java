@@ -108,4 +108,13 @@ public interface FileResourceContentStore
      * @param output the output stream to copy the stream into
      */
     void copyContent( String key, OutputStream output ) throws IOException, NoSuchElementException;
+
+    /**
+     * Copies a range of the content of the resource stored under key to the output stream.
+     * @param key the key used to store a resource
+     * @param output the output stream to copy the range into
+     * @param offset the offset of the first byte of the range
+     * @param length the max number of bytes to copy
+     */
+    void copyContent( String key, OutputStream output, long offset, long length ) throws IOException, NoSuchElementException;
 }
@@ -68,6 +68,18 @@ public interface FileResourceService
     void copyFileResourceContent( FileResource fileResource, OutputStream outputStream )
         throws IOException, NoSuchElementException;
 
+    /**
+     * Copy a range of fileResource content to outputStream.
+     * @param fileResource the file resource
+     * @param outputStream the output stream
+     * @param offset the offset of the first byte of the range
+     * @param length the max number of bytes to copy
+     * @throws IOException
+     * @throws NoSuchElementException
+     */
+    void copyFileResourceContent( FileResource fileResource, OutputStream outputStream, long offset, long length )
+        throws IOException, NoSuchElementException;
+
     boolean fileResourceExists( String uid );
 
     void updateFileResource( FileResource fileResource );
@@ -60,6 +60,12 @@ public interface IndicatorService
 
     List<Indicator> getIndicatorsWithDataSets();
 
+    /**
+     * Returns all indicators which have the same numerator and denominator as
+     * at least one other indicator.
+     */
+    List<Indicator> getIndicatorsWithIdenticalFormulas();
+
     // -------------------------------------------------------------------------
     // IndicatorType
     // -------------------------------------------------------------------------
@@ -0,0 +1,349 @@
+package org.hisp.dhis.keyjsonvalue;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.common.IllegalQueryException;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Query for many {@link KeyJsonValue} entries of a namespace. Entries are
+ * returned in key order, one page at a time, starting after the key given by
+ * {@link #getAfter()}. The value of each entry can be projected to a set of
+ * JSON property paths, and entries can be filtered on JSON properties.
+ * <p>
+ * Property paths are dot separated property names, such as
+ * {@code person.name}. The path {@code .} refers to the full value.
+ */
+public class KeyJsonValueQuery
+{
+    public static final String ROOT_PATH = ".";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final Pattern PATH_PATTERN = Pattern.compile( "^[\\w-]+(\\.[\\w-]+)*$" );
+
+    private static final String FILTER_SEP = ":";
+
+    private String namespace;
+
+    /**
+     * Property paths to project the value to, empty for the full value.
+     */
+    private List<String> fields = new ArrayList<>();
+
+    private List<Filter> filters = new ArrayList<>();
+
+    /**
+     * Key after which to return entries, null for the first page.
+     */
+    private String after;
+
+    private Date lastUpdated;
+
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    public KeyJsonValueQuery()
+    {
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Indicates whether the value should be projected to a set of paths, as
+     * opposed to returning the full value.
+     */
+    public boolean hasFieldProjection()
+    {
+        return !fields.isEmpty();
+    }
+
+    /**
+     * Returns the property names of the given path.
+     *
+     * @param path the dot separated property path.
+     * @return an array of property names.
+     */
+    public static String[] getPathElements( String path )
+    {
+        return path.split( Pattern.quote( "." ) );
+    }
+
+    /**
+     * Parses a comma separated list of property paths, where {@code .} refers
+     * to the full value.
+     *
+     * @param fields the comma separated property paths.
+     * @return a list of property paths, empty if the full value is requested.
+     * @throws IllegalQueryException if a path is invalid.
+     */
+    public static List<String> parseFields( String fields )
+    {
+        List<String> paths = new ArrayList<>();
+
+        for ( String field : StringUtils.split( StringUtils.trimToEmpty( fields ), ',' ) )
+        {
+            String path = field.trim();
+
+            if ( ROOT_PATH.equals( path ) )
+            {
+                return new ArrayList<>();
+            }
+
+            validatePath( path );
+            paths.add( path );
+        }
+
+        return paths;
+    }
+
+    /**
+     * Parses a filter on the format {@code path:operator[:value]}.
+     *
+     * @param filter the filter.
+     * @return a {@link Filter}.
+     * @throws IllegalQueryException if the filter is invalid.
+     */
+    public static Filter parseFilter( String filter )
+    {
+        String[] parts = StringUtils.trimToEmpty( filter ).split( FILTER_SEP, 3 );
+
+        if ( parts.length < 2 )
+        {
+            throw new IllegalQueryException( "Filter must be on format 'path:operator:value': " + filter );
+        }
+
+        validatePath( parts[0] );
+
+        Operator operator = Operator.fromString( parts[1] );
+
+        if ( operator.isUnary() != ( parts.length == 2 ) )
+        {
+            throw new IllegalQueryException( operator.isUnary() ?
+                "Filter operator does not take a value: " + filter : "Filter operator requires a value: " + filter );
+        }
+
+        return new Filter( parts[0], operator, operator.isUnary() ? null : parts[2] );
+    }
+
+    private static void validatePath( String path )
+    {
+        if ( path == null || !PATH_PATTERN.matcher( path ).matches() )
+        {
+            throw new IllegalQueryException( "Property path is invalid: " + path );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters and setters
+    // -------------------------------------------------------------------------
+
+    public String getNamespace()
+    {
+        return namespace;
+    }
+
+    public KeyJsonValueQuery setNamespace( String namespace )
+    {
+        this.namespace = namespace;
+        return this;
+    }
+
+    public List<String> getFields()
+    {
+        return fields;
+    }
+
+    public KeyJsonValueQuery setFields( List<String> fields )
+    {
+        this.fields = fields;
+        return this;
+    }
+
+    public List<Filter> getFilters()
+    {
+        return filters;
+    }
+
+    public KeyJsonValueQuery setFilters( List<Filter> filters )
+    {
+        this.filters = filters;
+        return this;
+    }
+
+    public String getAfter()
+    {
+        return after;
+    }
+
+    public KeyJsonValueQuery setAfter( String after )
+    {
+        this.after = after;
+        return this;
+    }
+
+    public Date getLastUpdated()
+    {
+        return lastUpdated;
+    }
+
+    public KeyJsonValueQuery setLastUpdated( Date lastUpdated )
+    {
+        this.lastUpdated = lastUpdated;
+        return this;
+    }
+
+    public int getPageSize()
+    {
+        return pageSize;
+    }
+
+    /**
+     * Sets the page size, limited to between 1 and {@link #MAX_PAGE_SIZE}.
+     */
+    public KeyJsonValueQuery setPageSize( int pageSize )
+    {
+        this.pageSize = Math.max( 1, Math.min( pageSize, MAX_PAGE_SIZE ) );
+        return this;
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper( this )
+            .add( "namespace", namespace )
+            .add( "fields", fields )
+            .add( "filters", filters )
+            .add( "after", after )
+            .add( "lastUpdated", lastUpdated )
+            .add( "pageSize", pageSize )
+            .toString();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive classes
+    // -------------------------------------------------------------------------
+
+    /**
+     * Filter operators. Comparisons with {@code eq}, {@code ne}, {@code gt},
+     * {@code ge}, {@code lt} and {@code le} are done on JSON values, which
+     * means that numbers are compared as numbers and strings as strings.
+     * Matching with {@code like} and {@code ilike} is done on the text of the
+     * value.
+     */
+    public enum Operator
+    {
+        EQ( "eq", false ),
+        NE( "ne", false ),
+        GT( "gt", false ),
+        GE( "ge", false ),
+        LT( "lt", false ),
+        LE( "le", false ),
+        LIKE( "like", false ),
+        ILIKE( "ilike", false ),
+        NULL( "null", true ),
+        NOT_NULL( "!null", true );
+
+        private final String value;
+
+        private final boolean unary;
+
+        Operator( String value, boolean unary )
+        {
+            this.value = value;
+            this.unary = unary;
+        }
+
+        public String getValue()
+        {
+            return value;
+        }
+
+        public boolean isUnary()
+        {
+            return unary;
+        }
+
+        public static Operator fromString( String value )
+        {
+            return Arrays.stream( values() )
+                .filter( operator -> operator.value.equals( value ) )
+                .findFirst()
+                .orElseThrow( () -> new IllegalQueryException( "Filter operator is invalid: " + value ) );
+        }
+    }
+
+    public static class Filter
+    {
+        private final String path;
+
+        private final Operator operator;
+
+        private final String value;
+
+        public Filter( String path, Operator operator, String value )
+        {
+            this.path = path;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        public String getPath()
+        {
+            return path;
+        }
+
+        public Operator getOperator()
+        {
+            return operator;
+        }
+
+        public String getValue()
+        {
+            return value;
+        }
+
+        @Override
+        public String toString()
+        {
+            return path + FILTER_SEP + operator.getValue() + ( value != null ? FILTER_SEP + value : "" );
+        }
+    }
+}
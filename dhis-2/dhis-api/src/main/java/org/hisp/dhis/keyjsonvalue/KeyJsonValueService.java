@@ -30,6 +30,7 @@ package org.hisp.dhis.keyjsonvalue;
 
 import java.util.Date;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 /**
  * @author Stian Sandvold
@@ -60,6 +61,17 @@ public interface KeyJsonValueService
      */
     List<String> getKeysInNamespace( String namespace, Date lastUpdated, boolean isAdmin );
 
+    /**
+     * Retrieves the entries of a namespace matching the given query, one page
+     * at a time, passing the key and JSON value of each entry to the given
+     * consumer as entries are read. Only entries which can be read by the
+     * current user are included.
+     *
+     * @param query    the query.
+     * @param consumer the consumer of the key and JSON value of each entry.
+     */
+    void getKeyJsonValues( KeyJsonValueQuery query, boolean isAdmin, BiConsumer<String, String> consumer );
+
     /**
      * Retrieves a KeyJsonValue based on a namespace and key.
      *
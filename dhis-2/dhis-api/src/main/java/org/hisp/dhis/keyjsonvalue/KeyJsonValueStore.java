@@ -32,6 +32,7 @@ import org.hisp.dhis.common.IdentifiableObjectStore;
 
 import java.util.List;
 import java.util.Date;
+import java.util.function.BiConsumer;
 
 /**
  * @author Stian Sandvold
@@ -74,4 +75,14 @@ public interface KeyJsonValueStore
      * @return the KeyJsonValue retrieved
      */
     KeyJsonValue getKeyJsonValue( String namespace, String key );
+
+    /**
+     * Retrieves the entries matching the given query in key order, passing the
+     * key and the JSON value of each entry to the given consumer as rows are
+     * read. Filtering, projection and sharing restrictions for the current user
+     * are applied in the database. Encrypted entries are not included.
+     * @param query the query
+     * @param consumer the consumer of the key and JSON value of each entry
+     */
+    void getKeyJsonValues( KeyJsonValueQuery query, BiConsumer<String, String> consumer );
 }
@@ -0,0 +1,527 @@
+package org.hisp.dhis.organisationunit;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable in-memory index of the organisation unit hierarchy, for checking
+ * ancestry without loading organisation units.
+ * <p>
+ * Organisation units are numbered in pre-order, so that the descendants of an
+ * organisation unit are numbered consecutively after the unit itself. Each
+ * unit holds the interval of its subtree, which is the nested set
+ * representation of the hierarchy. Whether a unit is a descendant of another
+ * unit is hence a comparison of positions, and the descendants of a unit are
+ * a range of positions. Positions, parents, levels and intervals are held in
+ * primitive arrays.
+ * <p>
+ * Organisation units whose parent is not in the index are roots. Organisation
+ * units which are part of a cycle are not reachable from a root and are left
+ * out of the lookups. The index keeps the organisation units as they were
+ * added, including their parent identifiers, so that an index derived from it
+ * places them correctly once their parent is added or their cycle is broken.
+ */
+public class OrganisationUnitHierarchyIndex
+{
+    private static final int NONE = -1;
+
+    /**
+     * Identifiers by position.
+     */
+    private final long[] ids;
+
+    /**
+     * UIDs by position.
+     */
+    private final String[] uids;
+
+    /**
+     * Position of the parent by position, or {@link #NONE} for roots.
+     */
+    private final int[] parents;
+
+    /**
+     * Position after the last descendant by position, which makes the
+     * subtree of a position the interval from the position to the end.
+     */
+    private final int[] ends;
+
+    /**
+     * Hierarchy level by position, starting at 1 for roots.
+     */
+    private final int[] levels;
+
+    /**
+     * Identifiers in ascending order, with the positions by the same index,
+     * for binary search.
+     */
+    private final long[] sortedIds;
+
+    private final int[] sortedIdPositions;
+
+    private final Map<String, Integer> uidPositions;
+
+    /**
+     * Identifiers, UIDs and parent identifiers of all organisation units as
+     * they were added, in ascending order of identifier.
+     */
+    private final long[] addedIds;
+
+    private final String[] addedUids;
+
+    private final long[] addedParentIds;
+
+    private OrganisationUnitHierarchyIndex( long[] ids, String[] uids, int[] parents, int[] ends, int[] levels,
+        long[] sortedIds, int[] sortedIdPositions, Map<String, Integer> uidPositions, long[] addedIds,
+        String[] addedUids, long[] addedParentIds )
+    {
+        this.ids = ids;
+        this.uids = uids;
+        this.parents = parents;
+        this.ends = ends;
+        this.levels = levels;
+        this.sortedIds = sortedIds;
+        this.sortedIdPositions = sortedIdPositions;
+        this.uidPositions = uidPositions;
+        this.addedIds = addedIds;
+        this.addedUids = addedUids;
+        this.addedParentIds = addedParentIds;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * Returns a builder which contains the organisation units added to this
+     * index with their parent identifiers, also those whose parent is missing
+     * or which are part of a cycle, for deriving an index with changed
+     * organisation units.
+     */
+    public Builder toBuilder()
+    {
+        Builder builder = new Builder();
+
+        for ( int i = 0; i < addedIds.length; i++ )
+        {
+            builder.add( addedIds[i], addedUids[i], addedParentIds[i] );
+        }
+
+        return builder;
+    }
+
+    // -------------------------------------------------------------------------
+    // Lookups
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the number of organisation units in the index.
+     */
+    public int size()
+    {
+        return ids.length;
+    }
+
+    /**
+     * Indicates whether the organisation unit with the given UID is in the
+     * index.
+     */
+    public boolean contains( String uid )
+    {
+        return uid != null && uidPositions.containsKey( uid );
+    }
+
+    /**
+     * Indicates whether the organisation unit with the given identifier is in
+     * the index.
+     */
+    public boolean contains( long id )
+    {
+        return getPosition( id ) != NONE;
+    }
+
+    /**
+     * Returns the hierarchy level of the organisation unit with the given UID,
+     * starting at 1 for roots, or 0 if not in the index.
+     */
+    public int getLevel( String uid )
+    {
+        int position = getPosition( uid );
+
+        return position == NONE ? 0 : levels[position];
+    }
+
+    /**
+     * Returns the UID of the parent of the organisation unit with the given
+     * UID, or null if it is a root or not in the index.
+     */
+    public String getParent( String uid )
+    {
+        int position = getPosition( uid );
+
+        return position == NONE || parents[position] == NONE ? null : uids[parents[position]];
+    }
+
+    /**
+     * Indicates whether the organisation unit with the given UID is equal to
+     * or a descendant of the organisation unit with the given ancestor UID.
+     */
+    public boolean isDescendant( String uid, String ancestorUid )
+    {
+        return isDescendant( getPosition( uid ), getPosition( ancestorUid ) );
+    }
+
+    /**
+     * Indicates whether the organisation unit with the given identifier is
+     * equal to or a descendant of the organisation unit with the given
+     * ancestor identifier.
+     */
+    public boolean isDescendant( long id, long ancestorId )
+    {
+        return isDescendant( getPosition( id ), getPosition( ancestorId ) );
+    }
+
+    /**
+     * Indicates whether the organisation unit with the given UID is equal to
+     * or a descendant of any of the organisation units with the given ancestor
+     * UIDs. Sets of ancestors are matched along the path to the root, other
+     * collections are matched by subtree interval.
+     */
+    public boolean isDescendant( String uid, Collection<String> ancestorUids )
+    {
+        int position = getPosition( uid );
+
+        if ( position == NONE || ancestorUids == null || ancestorUids.isEmpty() )
+        {
+            return false;
+        }
+
+        if ( ancestorUids instanceof Set )
+        {
+            for ( int p = position; p != NONE; p = parents[p] )
+            {
+                if ( ancestorUids.contains( uids[p] ) )
+                {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        for ( String ancestorUid : ancestorUids )
+        {
+            if ( isDescendant( position, getPosition( ancestorUid ) ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the UIDs of the organisation unit with the given UID and of all
+     * its descendants, in pre-order.
+     */
+    public List<String> getDescendants( String uid )
+    {
+        int position = getPosition( uid );
+
+        return position == NONE ? Collections.emptyList() :
+            Collections.unmodifiableList( Arrays.asList( uids ).subList( position, ends[position] ) );
+    }
+
+    /**
+     * Returns the identifiers of the organisation unit with the given
+     * identifier and of all its descendants, in pre-order.
+     */
+    public long[] getDescendantIds( long id )
+    {
+        int position = getPosition( id );
+
+        return position == NONE ? new long[0] : Arrays.copyOfRange( ids, position, ends[position] );
+    }
+
+    /**
+     * Returns the number of descendants of the organisation unit with the given
+     * UID, including the unit itself, or 0 if not in the index.
+     */
+    public int getSubtreeSize( String uid )
+    {
+        int position = getPosition( uid );
+
+        return position == NONE ? 0 : ends[position] - position;
+    }
+
+    /**
+     * Returns the UIDs of the ancestors of the organisation unit with the
+     * given UID, starting at the root and excluding the unit itself.
+     */
+    public List<String> getAncestors( String uid )
+    {
+        int position = getPosition( uid );
+
+        if ( position == NONE )
+        {
+            return Collections.emptyList();
+        }
+
+        List<String> ancestors = new ArrayList<>( levels[position] - 1 );
+
+        for ( int p = parents[position]; p != NONE; p = parents[p] )
+        {
+            ancestors.add( uids[p] );
+        }
+
+        Collections.reverse( ancestors );
+
+        return ancestors;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private boolean isDescendant( int position, int ancestorPosition )
+    {
+        return position != NONE && ancestorPosition != NONE &&
+            position >= ancestorPosition && position < ends[ancestorPosition];
+    }
+
+    private int getPosition( String uid )
+    {
+        Integer position = uid != null ? uidPositions.get( uid ) : null;
+
+        return position != null ? position : NONE;
+    }
+
+    private int getPosition( long id )
+    {
+        int index = Arrays.binarySearch( sortedIds, id );
+
+        return index < 0 ? NONE : sortedIdPositions[index];
+    }
+
+    /**
+     * Builder of organisation unit hierarchy indexes. Organisation units can be
+     * added in any order, and parents do not need to be added before children.
+     */
+    public static class Builder
+    {
+        private final Map<Long, String> uids = new HashMap<>();
+
+        private final Map<Long, Long> parents = new HashMap<>();
+
+        private Builder()
+        {
+        }
+
+        /**
+         * Adds the given organisation unit, or replaces it if already added.
+         *
+         * @param id the identifier.
+         * @param uid the UID.
+         * @param parentId the identifier of the parent, or 0 for roots.
+         * @return this builder.
+         */
+        public Builder add( long id, String uid, long parentId )
+        {
+            uids.put( id, uid );
+            parents.put( id, parentId );
+            return this;
+        }
+
+        /**
+         * Removes the organisation unit with the given identifier. Children of
+         * the organisation unit become roots unless they are removed as well.
+         *
+         * @param id the identifier.
+         * @return this builder.
+         */
+        public Builder remove( long id )
+        {
+            uids.remove( id );
+            parents.remove( id );
+            return this;
+        }
+
+        public OrganisationUnitHierarchyIndex build()
+        {
+            int n = uids.size();
+
+            // Temporary indexes in order of identifier, for a deterministic order
+
+            long[] tmpIds = new long[n];
+            int i = 0;
+
+            for ( Long id : uids.keySet() )
+            {
+                tmpIds[i++] = id;
+            }
+
+            Arrays.sort( tmpIds );
+
+            String[] tmpUids = new String[n];
+            long[] tmpParentIds = new long[n];
+
+            for ( i = 0; i < n; i++ )
+            {
+                tmpUids[i] = uids.get( tmpIds[i] );
+                tmpParentIds[i] = parents.get( tmpIds[i] );
+            }
+
+            int[] tmpParents = new int[n];
+            int[] childCounts = new int[n + 1];
+
+            for ( i = 0; i < n; i++ )
+            {
+                long parentId = tmpParentIds[i];
+                int parent = parentId == tmpIds[i] ? -1 : Arrays.binarySearch( tmpIds, parentId );
+                tmpParents[i] = parent < 0 ? NONE : parent;
+
+                if ( tmpParents[i] != NONE )
+                {
+                    childCounts[tmpParents[i] + 1]++;
+                }
+            }
+
+            // Children in compressed form, the children of a temporary index
+            // are between its child start and the child start of the next
+
+            int[] childStarts = new int[n + 1];
+
+            for ( i = 0; i < n; i++ )
+            {
+                childStarts[i + 1] = childStarts[i] + childCounts[i + 1];
+            }
+
+            int[] children = new int[childStarts[n]];
+            int[] fill = Arrays.copyOf( childStarts, n );
+
+            for ( i = 0; i < n; i++ )
+            {
+                if ( tmpParents[i] != NONE )
+                {
+                    children[fill[tmpParents[i]]++] = i;
+                }
+            }
+
+            // Pre-order traversal from the roots with an explicit stack
+
+            int[] positions = new int[n];
+            Arrays.fill( positions, NONE );
+
+            long[] ids = new long[n];
+            String[] uidArray = new String[n];
+            int[] parentArray = new int[n];
+            int[] ends = new int[n];
+            int[] levels = new int[n];
+
+            int[] stack = new int[n];
+            int[] nextChild = new int[n];
+            int count = 0;
+
+            for ( int root = 0; root < n; root++ )
+            {
+                if ( tmpParents[root] != NONE )
+                {
+                    continue;
+                }
+
+                int depth = 0;
+                stack[depth] = root;
+                nextChild[root] = childStarts[root];
+                positions[root] = count;
+                visit( root, count++, NONE, 1, tmpIds, ids, uidArray, parentArray, levels );
+
+                while ( depth >= 0 )
+                {
+                    int current = stack[depth];
+
+                    if ( nextChild[current] < childStarts[current + 1] )
+                    {
+                        int child = children[nextChild[current]++];
+                        int parentPosition = positions[current];
+
+                        stack[++depth] = child;
+                        nextChild[child] = childStarts[child];
+                        positions[child] = count;
+                        visit( child, count++, parentPosition, levels[parentPosition] + 1, tmpIds, ids, uidArray,
+                            parentArray, levels );
+                    }
+                    else
+                    {
+                        ends[positions[current]] = count;
+                        depth--;
+                    }
+                }
+            }
+
+            // Units in cycles are not reached from any root
+
+            long[] sortedIds = new long[count];
+            int[] sortedIdPositions = new int[count];
+            Map<String, Integer> uidPositions = new HashMap<>( count * 4 / 3 + 1 );
+            int sorted = 0;
+
+            for ( i = 0; i < n; i++ )
+            {
+                if ( positions[i] != NONE )
+                {
+                    sortedIds[sorted] = tmpIds[i];
+                    sortedIdPositions[sorted++] = positions[i];
+                    uidPositions.put( uidArray[positions[i]], positions[i] );
+                }
+            }
+
+            return new OrganisationUnitHierarchyIndex( Arrays.copyOf( ids, count ), Arrays.copyOf( uidArray, count ),
+                Arrays.copyOf( parentArray, count ), Arrays.copyOf( ends, count ), Arrays.copyOf( levels, count ),
+                sortedIds, sortedIdPositions, uidPositions, tmpIds, tmpUids, tmpParentIds );
+        }
+
+        private void visit( int tmpIndex, int position, int parentPosition, int level, long[] tmpIds, long[] ids,
+            String[] uidArray, int[] parentArray, int[] levels )
+        {
+            ids[position] = tmpIds[tmpIndex];
+            uidArray[position] = uids.get( tmpIds[tmpIndex] );
+            parentArray[position] = parentPosition;
+            levels[position] = level;
+        }
+    }
+}
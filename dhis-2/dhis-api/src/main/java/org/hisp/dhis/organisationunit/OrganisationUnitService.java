@@ -308,6 +308,20 @@ public interface OrganisationUnitService
      */
     List<OrganisationUnit> getOrganisationUnitsWithoutGroups();
 
+    /**
+     * Returns all OrganisationUnits which are part of a cyclic parent reference.
+     *
+     * @return all OrganisationUnits which are part of a cyclic parent reference.
+     */
+    List<OrganisationUnit> getOrganisationUnitsWithCyclicReferences();
+
+    /**
+     * Returns all OrganisationUnits which have no parent and no children.
+     *
+     * @return all OrganisationUnits which have no parent and no children.
+     */
+    List<OrganisationUnit> getOrphanedOrganisationUnits();
+
     /**
      * Returns the count of OrganisationUnits which are part of the
      * sub-hierarchy of the given parent OrganisationUnit and members of
@@ -77,6 +77,20 @@ public interface OrganisationUnitStore
      */
     List<OrganisationUnit> getOrganisationUnitsWithoutGroups();
 
+    /**
+     * Returns all OrganisationUnits which are part of a cyclic parent reference.
+     *
+     * @return all OrganisationUnits which are part of a cyclic parent reference.
+     */
+    List<OrganisationUnit> getOrganisationUnitsWithCyclicReferences();
+
+    /**
+     * Returns all OrganisationUnits which have no parent and no children.
+     *
+     * @return all OrganisationUnits which have no parent and no children.
+     */
+    List<OrganisationUnit> getOrphanedOrganisationUnits();
+
     /**
      * Returns the count of OrganisationUnits which are part of the
      * sub-hierarchy of the given parent OrganisationUnit and members of
@@ -133,6 +147,14 @@ public interface OrganisationUnitStore
      */
     OrganisationUnitHierarchy getOrganisationUnitHierarchy();
 
+    /**
+     * Loads an index of the OrganisationUnit hierarchy, which is read through
+     * JDBC without loading any OrganisationUnits.
+     *
+     * @return the OrganisationUnitHierarchyIndex.
+     */
+    OrganisationUnitHierarchyIndex getOrganisationUnitHierarchyIndex();
+
     /**
      * Updates the parent id of the organisation unit with the given id.
      *
@@ -32,6 +32,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.hisp.dhis.common.DeliveryChannel;
+import org.hisp.dhis.scheduling.JobConfiguration;
 
 /**
  * @author Zubair <rajazubair.asghar@gmail.com>
@@ -43,6 +44,11 @@ public class OutboundMessageBatch
 
     private final DeliveryChannel deliveryChannel;
 
+    /**
+     * The job the batch is sent by, if any, used for progress notifications.
+     */
+    private JobConfiguration jobConfiguration;
+
     public OutboundMessageBatch( List<OutboundMessage> messages, DeliveryChannel deliveryChannel )
     {
         this.messages = messages;
@@ -69,6 +75,16 @@ public class OutboundMessageBatch
         this.messages = messages;
     }
 
+    public JobConfiguration getJobConfiguration()
+    {
+        return jobConfiguration;
+    }
+
+    public void setJobConfiguration( JobConfiguration jobConfiguration )
+    {
+        this.jobConfiguration = jobConfiguration;
+    }
+
     public int size()
     {
         return messages.size();
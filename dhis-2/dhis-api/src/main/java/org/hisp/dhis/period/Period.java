@@ -303,11 +303,13 @@ public class Period
     }
     
     /**
-     * Returns a unique key suitable for caching and lookups.
+     * Returns a unique key suitable for caching and lookups. Dates are given
+     * by their time, which is cheaper than formatting them and equals for
+     * dates and timestamps loaded from the database.
      */
     public String getCacheKey()
     {
-        return periodType.getName() + "-" + startDate.toString() + "-" + endDate.toString();
+        return periodType.getName() + "-" + startDate.getTime() + "-" + endDate.getTime();
     }
 
     // -------------------------------------------------------------------------
@@ -0,0 +1,150 @@
+package org.hisp.dhis.period;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hisp.dhis.calendar.Calendar;
+
+/**
+ * Index of periods of a calendar. Periods are parsed from ISO strings once
+ * and are then shared, so that repeated lookups of the same ISO string, as
+ * done in data value imports and analytics, do not parse the string and
+ * convert dates with the calendar again.
+ * <p>
+ * Periods of the index are shared between threads and must not be modified,
+ * use {@link PeriodType#getPeriodFromIsoString(String)} to obtain a copy
+ * which can be modified.
+ */
+public class PeriodIndex
+{
+    /**
+     * Max number of periods held per calendar. Periods beyond the limit are
+     * parsed on every lookup.
+     */
+    private static final int MAX_SIZE = 100000;
+
+    private static final Map<String, PeriodIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final Calendar calendar;
+
+    private final Map<String, Period> periods = new ConcurrentHashMap<>();
+
+    private PeriodIndex( Calendar calendar )
+    {
+        this.calendar = calendar;
+    }
+
+    /**
+     * Returns the index of the system calendar.
+     *
+     * @return the index.
+     */
+    public static PeriodIndex getInstance()
+    {
+        return getInstance( PeriodType.getCalendar() );
+    }
+
+    /**
+     * Returns the index of the given calendar.
+     *
+     * @param calendar the calendar.
+     * @return the index.
+     */
+    public static PeriodIndex getInstance( Calendar calendar )
+    {
+        return INDEXES.computeIfAbsent( calendar.name(), name -> new PeriodIndex( calendar ) );
+    }
+
+    /**
+     * Removes the indexes of all calendars.
+     */
+    public static void invalidateAll()
+    {
+        INDEXES.clear();
+    }
+
+    public Calendar getCalendar()
+    {
+        return calendar;
+    }
+
+    /**
+     * Returns the period for the given ISO string. The period is shared and
+     * must not be modified.
+     *
+     * @param isoPeriod the ISO string, e.g. 202001 or 2020Q1.
+     * @return the period, or null if the string is null or cannot be parsed
+     *         to a period.
+     */
+    public Period getPeriod( String isoPeriod )
+    {
+        if ( isoPeriod == null )
+        {
+            return null;
+        }
+
+        Period period = periods.get( isoPeriod );
+
+        if ( period == null )
+        {
+            period = parsePeriod( isoPeriod );
+
+            if ( period != null && periods.size() < MAX_SIZE )
+            {
+                Period existing = periods.putIfAbsent( isoPeriod, period );
+
+                period = existing != null ? existing : period;
+            }
+        }
+
+        return period;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private Period parsePeriod( String isoPeriod )
+    {
+        PeriodType periodType = PeriodType.getPeriodTypeFromIsoString( isoPeriod );
+
+        try
+        {
+            return periodType != null ? periodType.createPeriod( isoPeriod, calendar ) : null;
+        }
+        catch ( Exception ex )
+        {
+            // Do nothing and return null
+        }
+
+        return null;
+    }
+}
@@ -92,6 +92,7 @@ public abstract class PeriodType
     public static void invalidatePeriodCache()
     {
         PERIOD_CACHE.invalidateAll();
+        PeriodIndex.invalidateAll();
     }
 
     /**
@@ -437,28 +438,27 @@ public abstract class PeriodType
 
     /**
      * Returns a period based on the given date string in ISO format. Returns
-     * null if the date string cannot be parsed to a period.
+     * null if the date string cannot be parsed to a period. The period is
+     * resolved through the {@link PeriodIndex} of the system calendar and is
+     * a new instance, with its own dates, which can be modified.
      *
      * @param isoPeriod the date string in ISO format.
      * @return a period.
      */
     public static Period getPeriodFromIsoString( String isoPeriod )
     {
-        if ( isoPeriod != null )
-        {
-            PeriodType periodType = getPeriodTypeFromIsoString( isoPeriod );
+        Period period = PeriodIndex.getInstance().getPeriod( isoPeriod );
 
-            try
-            {
-                return periodType != null ? periodType.createPeriod( isoPeriod ) : null;
-            }
-            catch ( Exception ex )
-            {
-                // Do nothing and return null
-            }
+        if ( period == null )
+        {
+            return null;
         }
 
-        return null;
+        Period copy = new Period( period );
+        copy.setStartDate( new Date( period.getStartDate().getTime() ) );
+        copy.setEndDate( new Date( period.getEndDate().getTime() ) );
+
+        return copy;
     }
 
     /**
@@ -508,18 +508,26 @@ public abstract class PeriodType
      * @return the period.
      */
     public Period createPeriod( DateInterval dateInterval )
+    {
+        return createPeriod( dateInterval, getCalendar() );
+    }
+
+    /**
+     * @param dateInterval DateInterval to create period from
+     * @param calendar the calendar of the date interval.
+     * @return the period.
+     */
+    public Period createPeriod( DateInterval dateInterval, org.hisp.dhis.calendar.Calendar calendar )
     {
         if ( dateInterval == null || dateInterval.getFrom() == null || dateInterval.getTo() == null )
         {
             return null;
         }
 
-        org.hisp.dhis.calendar.Calendar cal = getCalendar();
-
-        final DateTimeUnit from = cal.toIso( dateInterval.getFrom() );
-        final DateTimeUnit to = cal.toIso( dateInterval.getTo() );
+        final DateTimeUnit from = calendar.toIso( dateInterval.getFrom() );
+        final DateTimeUnit to = calendar.toIso( dateInterval.getTo() );
 
-        return new Period( this, from.toJdkDate(), to.toJdkDate(), getIsoDate( from ) );
+        return new Period( this, from.toJdkDate(), to.toJdkDate(), getIsoDate( from, calendar ) );
     }
 
     /**
@@ -560,7 +568,19 @@ public abstract class PeriodType
      */
     public Period createPeriod( String isoDate )
     {
-        return createPeriod( dateUnitFormat.parse( isoDate ) );
+        return createPeriod( isoDate, getCalendar() );
+    }
+
+    /**
+     * Generates a period based on the given iso8601 formatted string.
+     *
+     * @param isoDate the iso8601 string.
+     * @param calendar the calendar to parse the string with.
+     * @return the period.
+     */
+    public Period createPeriod( String isoDate, org.hisp.dhis.calendar.Calendar calendar )
+    {
+        return createPeriod( dateUnitFormat.parse( calendar, isoDate ), calendar );
     }
 
     /**
@@ -192,6 +192,12 @@ public class TwoYearlyPeriodType
         return null; // TODO
     }
 
+    @Override
+    public Period createPeriod( String isoDate, org.hisp.dhis.calendar.Calendar calendar )
+    {
+        return createPeriod( isoDate );
+    }
+
     @Override
     public String getIsoFormat()
     {
@@ -97,6 +97,11 @@ public class Preheat
      */
     private Map<Class<?>, Map<String, Map<String, String>>> uniqueAttributeValues = new HashMap<>();
 
+    /**
+     * Time spent loading references, mapped by class type => milliseconds.
+     */
+    private Map<Class<?>, Long> timings = new HashMap<>();
+
     public Preheat()
     {
     }
@@ -465,6 +470,16 @@ public class Preheat
         this.uniqueAttributeValues = uniqueAttributeValues;
     }
 
+    public Map<Class<?>, Long> getTimings()
+    {
+        return timings;
+    }
+
+    public void addTiming( Class<?> klass, long millis )
+    {
+        timings.merge( klass, millis, Long::sum );
+    }
+
     public static Class<?> getRealClass( Class<?> klass )
     {
         if ( ProxyFactory.isProxyClass( klass ) )
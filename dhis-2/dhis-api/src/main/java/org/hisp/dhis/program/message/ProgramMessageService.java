@@ -34,6 +34,7 @@ import java.util.Set;
 
 import org.hisp.dhis.outboundmessage.BatchResponseStatus;
 import org.hisp.dhis.common.DeliveryChannel;
+import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.user.User;
 
 /**
@@ -77,6 +78,15 @@ public interface ProgramMessageService
      */
     BatchResponseStatus sendMessages( List<ProgramMessage> programMessages );
 
+    /**
+     * Send message batch based on their {@link DeliveryChannel channel} as
+     * part of the given job, which is notified of the progress of sending.
+     *
+     * @param programMessages the ProgramMessage.
+     * @param jobConfiguration the job, can be null.
+     */
+    BatchResponseStatus sendMessages( List<ProgramMessage> programMessages, JobConfiguration jobConfiguration );
+
     void sendMessagesAsync( List<ProgramMessage> programMessages );
 
     // -------------------------------------------------------------------------
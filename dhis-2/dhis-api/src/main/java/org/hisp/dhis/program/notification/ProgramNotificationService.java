@@ -30,6 +30,8 @@ package org.hisp.dhis.program.notification;
 
 import java.util.Date;
 
+import org.hisp.dhis.scheduling.JobConfiguration;
+
 /**
  * @author Halvdan Hoem Grelland
  */
@@ -55,12 +57,30 @@ public interface ProgramNotificationService
      */
     void sendScheduledNotificationsForDay( Date day );
 
+    /**
+     * Send all scheduled notifications for the given day as part of the given
+     * job, which is notified of the progress of sending.
+     *
+     * @param day the Date representing the day relative to the
+     *             scheduled notifications for which to send messages.
+     * @param jobConfiguration the job, can be null.
+     */
+    void sendScheduledNotificationsForDay( Date day, JobConfiguration jobConfiguration );
+
     /**
      * Sends all notifications which are scheduled by program rule and having scheduledDate
      * for today.
      */
     void sendScheduledNotifications();
 
+    /**
+     * Sends all notifications which are scheduled by program rule and having scheduledDate
+     * for today as part of the given job, which is notified of the progress of sending.
+     *
+     * @param jobConfiguration the job, can be null.
+     */
+    void sendScheduledNotifications( JobConfiguration jobConfiguration );
+
     /**
      * Send completion notifications for the ProgramStageInstance.
      * If the ProgramStage is not configured with suitable
@@ -30,6 +30,7 @@ package org.hisp.dhis.resourcetable;
 
 import org.hisp.dhis.common.CodeGenerator;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -94,6 +95,20 @@ public abstract class ResourceTable<T>
         return "alter table " + getTempTableName() + " rename to " + getTableName() + ";";
     }
 
+    /**
+     * Provides a SQL select statement which returns a single text fingerprint
+     * of the source data of the resource table. When the fingerprint is equal
+     * to the fingerprint of the last generation of the table, the table is
+     * not generated again. Returns empty if the table should always be
+     * generated, which is the default.
+     *
+     * @return a SQL select statement.
+     */
+    public Optional<String> getFingerprintStatement()
+    {
+        return Optional.empty();
+    }
+
     // -------------------------------------------------------------------------
     // Protected methods
     // -------------------------------------------------------------------------
@@ -103,6 +118,36 @@ public abstract class ResourceTable<T>
         return CodeGenerator.generateCode( 5 );
     }
 
+    /**
+     * Returns a SQL select statement which produces a single text fingerprint
+     * of the given source tables, based on the row count and the max last
+     * updated timestamp of object tables, and on the row count and a hash of
+     * the rows of join tables. Join tables have no last updated column, and a
+     * change of members which keeps the row count would otherwise go unnoticed.
+     *
+     * @param objectTables the object source tables, with a lastupdated column.
+     * @param joinTables the join source tables.
+     * @return a SQL select statement.
+     */
+    protected static String getSourceFingerprintStatement( List<String> objectTables, List<String> joinTables )
+    {
+        List<String> parts = new ArrayList<>();
+
+        for ( String table : objectTables )
+        {
+            parts.add( "(select count(*) from " + table + ")" );
+            parts.add( "(select max(lastupdated) from " + table + ")" );
+        }
+
+        for ( String table : joinTables )
+        {
+            parts.add( "(select count(*) from " + table + ")" );
+            parts.add( "(select coalesce(sum(hashtext(t::text)), 0) from " + table + " t)" );
+        }
+
+        return "select concat_ws('|', " + String.join( ", ", parts ) + ")";
+    }
+
     // -------------------------------------------------------------------------
     // Abstract methods
     // -------------------------------------------------------------------------
@@ -62,6 +62,22 @@ public interface CurrentUserService
      */
     UserInfo getCurrentUserInfo();
 
+    /**
+     * @return the cached security context of the currently logged in user. If
+     *          no user is logged in or the auto access admin is active, null is
+     *          returned.
+     */
+    UserSecurityContext getCurrentUserSecurityContext();
+
+    /**
+     * Returns the cached security context of the given user, which is created
+     * from the given user if not already cached.
+     *
+     * @param user the user.
+     * @return the security context, or null if the user is null.
+     */
+    UserSecurityContext getUserSecurityContext( User user );
+
     /**
      * @return the data capture organisation units of the current user, empty set
      *          if no current user.
@@ -84,6 +100,28 @@ public interface CurrentUserService
      */
     void expireUserSessions();
 
+    /**
+     * Invalidates the cached user identifier for the given username, on this
+     * node as well as on other nodes of the cluster.
+     *
+     * @param username the username.
+     */
+    void invalidateUserIdCache( String username );
+
+    /**
+     * Invalidates the cached security context of the given username, on this
+     * node as well as on other nodes of the cluster.
+     *
+     * @param username the username.
+     */
+    void invalidateUserSecurityContext( String username );
+
+    /**
+     * Invalidates all cached security contexts, on this node as well as on
+     * other nodes of the cluster.
+     */
+    void invalidateUserSecurityContexts();
+
     /**
      * Return UserCredentials of current User
      *
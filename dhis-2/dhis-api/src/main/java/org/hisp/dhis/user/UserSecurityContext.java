@@ -0,0 +1,358 @@
+package org.hisp.dhis.user;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Immutable snapshot of the information about a user which is needed for
+ * access control checks, such as authorities, user group memberships and
+ * organisation unit paths. Snapshots are cached per user by the
+ * {@link CurrentUserService} and allow access checks without loading the user
+ * and walking its lazy collections.
+ * <p>
+ * Organisation unit hierarchy checks are done on the identifiers of the
+ * assigned organisation units, and are hence not affected by organisation
+ * units moving in the hierarchy after the snapshot was taken.
+ */
+public final class UserSecurityContext
+    extends UserInfo
+{
+    private static final String PATH_SEP = "/";
+
+    private final String uid;
+
+    private final Set<Long> userGroupIds;
+
+    private final Set<String> userGroupUids;
+
+    private final Set<String> organisationUnitPaths;
+
+    private final Set<String> dataViewOrganisationUnitPaths;
+
+    private final Set<String> teiSearchOrganisationUnitPaths;
+
+    private final Set<String> organisationUnitUids;
+
+    private final Set<String> dataViewOrganisationUnitUids;
+
+    private final Set<String> teiSearchOrganisationUnitUids;
+
+    private final boolean superUser;
+
+    /**
+     * @param id the user identifier.
+     * @param uid the user UID.
+     * @param username the username.
+     * @param authorities the authorities granted to the user.
+     * @param userGroupIds the identifiers of the user groups of the user.
+     * @param userGroupUids the UIDs of the user groups of the user.
+     * @param organisationUnitPaths the paths of the data capture organisation units.
+     * @param dataViewOrganisationUnitPaths the paths of the data view organisation
+     *        units, with fallback to the data capture organisation units.
+     * @param teiSearchOrganisationUnitPaths the paths of the search organisation
+     *        units, with fallback to the data capture organisation units.
+     */
+    public UserSecurityContext( long id, String uid, String username, Set<String> authorities,
+        Set<Long> userGroupIds, Set<String> userGroupUids, Set<String> organisationUnitPaths,
+        Set<String> dataViewOrganisationUnitPaths, Set<String> teiSearchOrganisationUnitPaths )
+    {
+        super( id, username, ImmutableSet.copyOf( authorities ) );
+        this.uid = uid;
+        this.userGroupIds = ImmutableSet.copyOf( userGroupIds );
+        this.userGroupUids = ImmutableSet.copyOf( userGroupUids );
+        this.organisationUnitPaths = ImmutableSet.copyOf( organisationUnitPaths );
+        this.dataViewOrganisationUnitPaths = ImmutableSet.copyOf( dataViewOrganisationUnitPaths );
+        this.teiSearchOrganisationUnitPaths = ImmutableSet.copyOf( teiSearchOrganisationUnitPaths );
+        this.organisationUnitUids = getLeafUids( this.organisationUnitPaths );
+        this.dataViewOrganisationUnitUids = getLeafUids( this.dataViewOrganisationUnitPaths );
+        this.teiSearchOrganisationUnitUids = getLeafUids( this.teiSearchOrganisationUnitPaths );
+        this.superUser = super.isSuper();
+    }
+
+    /**
+     * Creates a snapshot of the given user.
+     *
+     * @param user the user.
+     * @return a {@link UserSecurityContext}, or null if the user is null.
+     */
+    public static UserSecurityContext fromUser( User user )
+    {
+        return user != null ? fromUser( user, user.getGroups() ) : null;
+    }
+
+    /**
+     * Creates a snapshot of the given user with the given user groups, which
+     * is useful as the user groups of a user are the inverse side of the user
+     * group membership association and may hence not reflect changes to user
+     * group members.
+     *
+     * @param user the user.
+     * @param userGroups the user groups of the user.
+     * @return a {@link UserSecurityContext}, or null if the user is null.
+     */
+    public static UserSecurityContext fromUser( User user, Collection<UserGroup> userGroups )
+    {
+        if ( user == null )
+        {
+            return null;
+        }
+
+        UserCredentials credentials = user.getUserCredentials();
+
+        Set<String> authorities = credentials != null ? credentials.getAllAuthorities() : ImmutableSet.of();
+
+        return new UserSecurityContext( user.getId(), user.getUid(), user.getUsername(), authorities,
+            getIds( userGroups ), getUids( userGroups ),
+            getPaths( user.getOrganisationUnits() ),
+            getPaths( user.getDataViewOrganisationUnitsWithFallback() ),
+            getPaths( user.getTeiSearchOrganisationUnitsWithFallback() ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean isSuper()
+    {
+        return superUser;
+    }
+
+    /**
+     * Indicates whether the user has been granted the given authority. Returns
+     * true in any case if the user has the ALL authority.
+     */
+    public boolean isAuthorized( String auth )
+    {
+        return superUser || ( auth != null && getAuthorities().contains( auth ) );
+    }
+
+    /**
+     * Indicates whether the user has been granted any of the given authorities.
+     */
+    public boolean isAnyAuthorized( Collection<String> auths )
+    {
+        return superUser || auths.stream().anyMatch( getAuthorities()::contains );
+    }
+
+    /**
+     * Indicates whether the user is a member of the user group with the given UID.
+     */
+    public boolean isInUserGroup( String userGroupUid )
+    {
+        return userGroupUids.contains( userGroupUid );
+    }
+
+    /**
+     * Indicates whether the given organisation unit is equal to or a descendant
+     * of one of the data capture organisation units of the user.
+     */
+    public boolean isInUserHierarchy( OrganisationUnit organisationUnit )
+    {
+        return isInHierarchy( organisationUnit, organisationUnitUids );
+    }
+
+    /**
+     * Indicates whether the organisation unit with the given path is equal to
+     * or a descendant of one of the data capture organisation units of the user.
+     */
+    public boolean isInUserHierarchy( String path )
+    {
+        return isInHierarchy( path, organisationUnitPaths );
+    }
+
+    /**
+     * Indicates whether the given organisation unit is equal to or a descendant
+     * of one of the data view organisation units of the user.
+     */
+    public boolean isInUserDataViewHierarchy( OrganisationUnit organisationUnit )
+    {
+        return isInHierarchy( organisationUnit, dataViewOrganisationUnitUids );
+    }
+
+    /**
+     * Indicates whether the given organisation unit is equal to or a descendant
+     * of one of the search organisation units of the user.
+     */
+    public boolean isInUserSearchHierarchy( OrganisationUnit organisationUnit )
+    {
+        return isInHierarchy( organisationUnit, teiSearchOrganisationUnitUids );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static boolean isInHierarchy( OrganisationUnit organisationUnit, Set<String> ancestorUids )
+    {
+        if ( ancestorUids.isEmpty() )
+        {
+            return false;
+        }
+
+        OrganisationUnit unit = organisationUnit;
+
+        // Depth is bounded to protect against cyclic org unit graphs
+
+        for ( int depth = 0; unit != null && depth < 100; depth++ )
+        {
+            if ( ancestorUids.contains( unit.getUid() ) )
+            {
+                return true;
+            }
+
+            unit = unit.getParent();
+        }
+
+        return false;
+    }
+
+    private static boolean isInHierarchy( String path, Set<String> ancestorPaths )
+    {
+        if ( path == null )
+        {
+            return false;
+        }
+
+        for ( String ancestorPath : ancestorPaths )
+        {
+            if ( path.equals( ancestorPath ) || path.startsWith( ancestorPath + PATH_SEP ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static Set<Long> getIds( Collection<? extends IdentifiableObject> objects )
+    {
+        ImmutableSet.Builder<Long> ids = ImmutableSet.builder();
+
+        if ( objects != null )
+        {
+            objects.forEach( object -> ids.add( object.getId() ) );
+        }
+
+        return ids.build();
+    }
+
+    private static Set<String> getUids( Collection<? extends IdentifiableObject> objects )
+    {
+        ImmutableSet.Builder<String> uids = ImmutableSet.builder();
+
+        if ( objects != null )
+        {
+            objects.stream().map( IdentifiableObject::getUid ).filter( StringUtils::isNotEmpty ).forEach( uids::add );
+        }
+
+        return uids.build();
+    }
+
+    private static Set<String> getPaths( Collection<OrganisationUnit> organisationUnits )
+    {
+        ImmutableSet.Builder<String> paths = ImmutableSet.builder();
+
+        if ( organisationUnits != null )
+        {
+            organisationUnits.forEach( unit -> paths.add( unit.getPath() ) );
+        }
+
+        return paths.build();
+    }
+
+    /**
+     * Returns the UIDs of the last elements of the given paths.
+     */
+    private static Set<String> getLeafUids( Set<String> paths )
+    {
+        ImmutableSet.Builder<String> uids = ImmutableSet.builder();
+
+        paths.forEach( path -> uids.add( StringUtils.substringAfterLast( path, PATH_SEP ) ) );
+
+        return uids.build();
+    }
+
+    // -------------------------------------------------------------------------
+    // Get methods
+    // -------------------------------------------------------------------------
+
+    public String getUid()
+    {
+        return uid;
+    }
+
+    public Set<Long> getUserGroupIds()
+    {
+        return userGroupIds;
+    }
+
+    public Set<String> getUserGroupUids()
+    {
+        return userGroupUids;
+    }
+
+    public Set<String> getOrganisationUnitPaths()
+    {
+        return organisationUnitPaths;
+    }
+
+    public Set<String> getDataViewOrganisationUnitPaths()
+    {
+        return dataViewOrganisationUnitPaths;
+    }
+
+    public Set<String> getTeiSearchOrganisationUnitPaths()
+    {
+        return teiSearchOrganisationUnitPaths;
+    }
+
+    public Set<String> getOrganisationUnitUids()
+    {
+        return organisationUnitUids;
+    }
+
+    public Set<String> getDataViewOrganisationUnitUids()
+    {
+        return dataViewOrganisationUnitUids;
+    }
+
+    public Set<String> getTeiSearchOrganisationUnitUids()
+    {
+        return teiSearchOrganisationUnitUids;
+    }
+}
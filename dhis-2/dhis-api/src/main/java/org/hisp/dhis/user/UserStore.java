@@ -92,4 +92,13 @@ public interface UserStore
      * @return User with given userId
      */
     User getUser( long userId );
+
+    /**
+     * Returns the user groups of which the user with the given identifier is
+     * a member, as persisted.
+     *
+     * @param userId the user identifier.
+     * @return a list of user groups.
+     */
+    List<UserGroup> getUserGroups( long userId );
 }
@@ -0,0 +1,80 @@
+package org.hisp.dhis.user;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.apache.commons.lang3.StringUtils.EMPTY;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.hisp.dhis.common.IdentifiableObject;
+
+/**
+ * Utility methods for users.
+ */
+public class UserUtils
+{
+    private UserUtils()
+    {
+    }
+
+    /**
+     * Returns a key of the properties of a user which determine the data the
+     * user can see: the organisation units, the user groups through which
+     * objects and data are shared with the user, the user roles and the
+     * dimension constraints. Users with the same key see the same data, so
+     * output which is rendered for one of them can be shared with the others.
+     *
+     * @param user the user, may be null.
+     * @return the key.
+     */
+    public static String getDataAccessKey( User user )
+    {
+        if ( user == null )
+        {
+            return "null";
+        }
+
+        UserCredentials credentials = user.getUserCredentials();
+
+        return DigestUtils.md5Hex( String.join( ":",
+            getSortedUids( user.getOrganisationUnits() ),
+            getSortedUids( user.getDataViewOrganisationUnits() ),
+            getSortedUids( user.getGroups() ),
+            credentials != null ? getSortedUids( credentials.getUserAuthorityGroups() ) : EMPTY,
+            credentials != null ? getSortedUids( credentials.getCatDimensionConstraints() ) : EMPTY,
+            credentials != null ? getSortedUids( credentials.getCogsDimensionConstraints() ) : EMPTY ) );
+    }
+
+    private static String getSortedUids( Collection<? extends IdentifiableObject> objects )
+    {
+        return objects.stream().map( IdentifiableObject::getUid ).sorted().collect( Collectors.joining( "," ) );
+    }
+}
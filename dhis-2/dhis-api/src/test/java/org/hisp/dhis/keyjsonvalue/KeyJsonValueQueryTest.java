@@ -0,0 +1,111 @@
+package org.hisp.dhis.keyjsonvalue;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.hisp.dhis.common.IllegalQueryException;
+import org.hisp.dhis.keyjsonvalue.KeyJsonValueQuery.Filter;
+import org.hisp.dhis.keyjsonvalue.KeyJsonValueQuery.Operator;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class KeyJsonValueQueryTest
+{
+    @Test
+    public void testParseFields()
+    {
+        assertEquals( Lists.newArrayList( "name", "person.age" ), KeyJsonValueQuery.parseFields( "name, person.age" ) );
+        assertTrue( KeyJsonValueQuery.parseFields( "." ).isEmpty() );
+        assertTrue( KeyJsonValueQuery.parseFields( "name,." ).isEmpty() );
+    }
+
+    @Test( expected = IllegalQueryException.class )
+    public void testParseFieldsInvalidPath()
+    {
+        KeyJsonValueQuery.parseFields( "name,person..age" );
+    }
+
+    @Test
+    public void testParseFilter()
+    {
+        Filter filter = KeyJsonValueQuery.parseFilter( "person.age:gt:18" );
+
+        assertEquals( "person.age", filter.getPath() );
+        assertEquals( Operator.GT, filter.getOperator() );
+        assertEquals( "18", filter.getValue() );
+
+        filter = KeyJsonValueQuery.parseFilter( "url:eq:http://dhis2.org" );
+
+        assertEquals( Operator.EQ, filter.getOperator() );
+        assertEquals( "http://dhis2.org", filter.getValue() );
+
+        filter = KeyJsonValueQuery.parseFilter( "name:!null" );
+
+        assertEquals( Operator.NOT_NULL, filter.getOperator() );
+        assertNull( filter.getValue() );
+    }
+
+    @Test( expected = IllegalQueryException.class )
+    public void testParseFilterInvalidOperator()
+    {
+        KeyJsonValueQuery.parseFilter( "name:in:a" );
+    }
+
+    @Test( expected = IllegalQueryException.class )
+    public void testParseFilterMissingValue()
+    {
+        KeyJsonValueQuery.parseFilter( "name:eq" );
+    }
+
+    @Test( expected = IllegalQueryException.class )
+    public void testParseFilterUnexpectedValue()
+    {
+        KeyJsonValueQuery.parseFilter( "name:null:a" );
+    }
+
+    @Test
+    public void testPageSize()
+    {
+        assertEquals( KeyJsonValueQuery.MAX_PAGE_SIZE, new KeyJsonValueQuery().setPageSize( 100000 ).getPageSize() );
+        assertEquals( 1, new KeyJsonValueQuery().setPageSize( 0 ).getPageSize() );
+        assertFalse( new KeyJsonValueQuery().hasFieldProjection() );
+    }
+
+    @Test
+    public void testGetPathElements()
+    {
+        assertArrayEquals( new String[] { "person", "age" }, KeyJsonValueQuery.getPathElements( "person.age" ) );
+    }
+}
@@ -0,0 +1,177 @@
+package org.hisp.dhis.organisationunit;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class OrganisationUnitHierarchyIndexTest
+{
+    private OrganisationUnitHierarchyIndex index;
+
+    @Before
+    public void setUp()
+    {
+        // A - B - C
+        //   \ D - E
+
+        index = OrganisationUnitHierarchyIndex.builder()
+            .add( 5, "C", 2 )
+            .add( 1, "A", 0 )
+            .add( 2, "B", 1 )
+            .add( 3, "D", 1 )
+            .add( 4, "E", 3 )
+            .build();
+    }
+
+    @Test
+    public void testIsDescendant()
+    {
+        assertTrue( index.isDescendant( "C", "A" ) );
+        assertTrue( index.isDescendant( "C", "B" ) );
+        assertTrue( index.isDescendant( "A", "A" ) );
+        assertFalse( index.isDescendant( "C", "D" ) );
+        assertFalse( index.isDescendant( "A", "C" ) );
+        assertFalse( index.isDescendant( "X", "A" ) );
+        assertTrue( index.isDescendant( 4, 1 ) );
+        assertFalse( index.isDescendant( 4, 2 ) );
+    }
+
+    @Test
+    public void testIsDescendantOfAny()
+    {
+        assertTrue( index.isDescendant( "E", Sets.newHashSet( "B", "D" ) ) );
+        assertFalse( index.isDescendant( "E", Sets.newHashSet( "B", "C" ) ) );
+        assertTrue( index.isDescendant( "E", Arrays.asList( "B", "D" ) ) );
+        assertFalse( index.isDescendant( "E", Arrays.asList( "B", "C" ) ) );
+        assertFalse( index.isDescendant( "E", Sets.newHashSet() ) );
+    }
+
+    @Test
+    public void testLevelsAndAncestors()
+    {
+        assertEquals( 5, index.size() );
+        assertEquals( 1, index.getLevel( "A" ) );
+        assertEquals( 3, index.getLevel( "E" ) );
+        assertEquals( 0, index.getLevel( "X" ) );
+        assertEquals( "D", index.getParent( "E" ) );
+        assertNull( index.getParent( "A" ) );
+        assertEquals( Arrays.asList( "A", "D" ), index.getAncestors( "E" ) );
+    }
+
+    @Test
+    public void testDescendants()
+    {
+        assertEquals( Arrays.asList( "A", "B", "C", "D", "E" ), index.getDescendants( "A" ) );
+        assertEquals( Arrays.asList( "D", "E" ), index.getDescendants( "D" ) );
+        assertEquals( 1, index.getSubtreeSize( "C" ) );
+        assertArrayEquals( new long[] { 2, 5 }, index.getDescendantIds( 2 ) );
+        assertTrue( index.getDescendants( "X" ).isEmpty() );
+    }
+
+    @Test
+    public void testMoveAndRemove()
+    {
+        OrganisationUnitHierarchyIndex changed = index.toBuilder()
+            .add( 3, "D", 5 )
+            .remove( 2 )
+            .build();
+
+        // B removed, C becomes a root
+
+        assertEquals( 4, changed.size() );
+        assertFalse( changed.contains( "B" ) );
+        assertEquals( Arrays.asList( "C", "D", "E" ), changed.getDescendants( "C" ) );
+        assertEquals( 3, changed.getLevel( "E" ) );
+        assertFalse( changed.isDescendant( "E", "A" ) );
+
+        // Original index is unchanged
+
+        assertTrue( index.isDescendant( "E", "A" ) );
+    }
+
+    @Test
+    public void testCycleIsExcluded()
+    {
+        OrganisationUnitHierarchyIndex cyclic = OrganisationUnitHierarchyIndex.builder()
+            .add( 1, "A", 0 )
+            .add( 2, "B", 3 )
+            .add( 3, "C", 2 )
+            .build();
+
+        assertEquals( 1, cyclic.size() );
+        assertFalse( cyclic.contains( "B" ) );
+        assertFalse( cyclic.contains( 3 ) );
+    }
+
+    @Test
+    public void testMissingParentKeptWhenDerived()
+    {
+        OrganisationUnitHierarchyIndex orphan = OrganisationUnitHierarchyIndex.builder()
+            .add( 1, "A", 0 )
+            .add( 3, "C", 2 )
+            .build();
+
+        assertEquals( 1, orphan.getLevel( "C" ) );
+
+        OrganisationUnitHierarchyIndex changed = orphan.toBuilder()
+            .add( 2, "B", 1 )
+            .build();
+
+        assertEquals( 3, changed.getLevel( "C" ) );
+        assertEquals( Arrays.asList( "A", "B" ), changed.getAncestors( "C" ) );
+    }
+
+    @Test
+    public void testCycleKeptWhenDerived()
+    {
+        OrganisationUnitHierarchyIndex cyclic = OrganisationUnitHierarchyIndex.builder()
+            .add( 1, "A", 0 )
+            .add( 2, "B", 3 )
+            .add( 3, "C", 2 )
+            .build();
+
+        OrganisationUnitHierarchyIndex changed = cyclic.toBuilder()
+            .add( 2, "B", 1 )
+            .build();
+
+        assertEquals( 3, changed.size() );
+        assertEquals( 3, changed.getLevel( "C" ) );
+    }
+}
@@ -0,0 +1,94 @@
+package org.hisp.dhis.period;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.hisp.dhis.calendar.impl.Iso8601Calendar;
+import org.junit.Test;
+
+public class PeriodIndexTest
+{
+    private final PeriodIndex index = PeriodIndex.getInstance( Iso8601Calendar.getInstance() );
+
+    @Test
+    public void testGetInstance()
+    {
+        assertSame( index, PeriodIndex.getInstance() );
+        assertEquals( Iso8601Calendar.getInstance().name(), index.getCalendar().name() );
+    }
+
+    @Test
+    public void testGetPeriod()
+    {
+        Period period = index.getPeriod( "2020Q2" );
+
+        assertNotNull( period );
+        assertEquals( new QuarterlyPeriodType(), period.getPeriodType() );
+        assertEquals( "2020Q2", period.getIsoDate() );
+        assertEquals( new QuarterlyPeriodType().createPeriod( "2020Q2" ), period );
+        assertSame( period, index.getPeriod( "2020Q2" ) );
+    }
+
+    @Test
+    public void testGetPeriodInvalid()
+    {
+        assertNull( index.getPeriod( null ) );
+        assertNull( index.getPeriod( "2020Q5" ) );
+        assertNull( index.getPeriod( "201er2345566" ) );
+    }
+
+    @Test
+    public void testGetPeriodFromIsoStringReturnsCopy()
+    {
+        Period period = PeriodType.getPeriodFromIsoString( "202003" );
+
+        assertEquals( index.getPeriod( "202003" ), period );
+        assertNotSame( index.getPeriod( "202003" ), period );
+        assertEquals( "202003", period.getIsoDate() );
+    }
+
+    @Test
+    public void testGetPeriodFromIsoStringCopiesDates()
+    {
+        Period period = PeriodType.getPeriodFromIsoString( "202004" );
+        Period shared = index.getPeriod( "202004" );
+
+        assertNotSame( shared.getStartDate(), period.getStartDate() );
+        assertNotSame( shared.getEndDate(), period.getEndDate() );
+
+        period.getStartDate().setTime( 0 );
+
+        assertEquals( new MonthlyPeriodType().createPeriod( "202004" ).getStartDate(), shared.getStartDate() );
+    }
+}
@@ -0,0 +1,167 @@
+package org.hisp.dhis.user;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Unit tests for {@link UserSecurityContext}.
+ */
+public class UserSecurityContextTest
+{
+    private OrganisationUnit unitA;
+
+    private OrganisationUnit unitB;
+
+    private OrganisationUnit unitC;
+
+    private OrganisationUnit unitD;
+
+    private UserGroup userGroup;
+
+    private User user;
+
+    @Before
+    public void setUp()
+    {
+        unitA = new OrganisationUnit( "A" );
+        unitB = new OrganisationUnit( "B" );
+        unitB.setParent( unitA );
+        unitC = new OrganisationUnit( "C" );
+        unitC.setParent( unitB );
+        unitD = new OrganisationUnit( "D" );
+        unitD.setParent( unitA );
+
+        UserAuthorityGroup role = new UserAuthorityGroup();
+        role.setAuthorities( new HashSet<>( Arrays.asList( "F_A", "F_B" ) ) );
+
+        UserCredentials credentials = new UserCredentials();
+        credentials.setUsername( "userA" );
+        credentials.setUserAuthorityGroups( Sets.newHashSet( role ) );
+
+        userGroup = new UserGroup( "GroupA" );
+
+        user = new User();
+        user.setAutoFields();
+        user.setUserCredentials( credentials );
+        user.setOrganisationUnits( Sets.newHashSet( unitB ) );
+        user.setTeiSearchOrganisationUnits( Sets.newHashSet( unitA ) );
+        user.getGroups().add( userGroup );
+    }
+
+    @Test
+    public void testFromUser()
+    {
+        UserSecurityContext context = UserSecurityContext.fromUser( user );
+
+        assertEquals( user.getUid(), context.getUid() );
+        assertEquals( "userA", context.getUsername() );
+        assertEquals( Sets.newHashSet( "F_A", "F_B" ), context.getAuthorities() );
+        assertEquals( Sets.newHashSet( unitB.getPath() ), context.getOrganisationUnitPaths() );
+        assertEquals( Sets.newHashSet( unitB.getPath() ), context.getDataViewOrganisationUnitPaths() );
+        assertEquals( Sets.newHashSet( unitA.getPath() ), context.getTeiSearchOrganisationUnitPaths() );
+        assertNull( UserSecurityContext.fromUser( null ) );
+    }
+
+    @Test
+    public void testIsAuthorized()
+    {
+        UserSecurityContext context = UserSecurityContext.fromUser( user );
+
+        assertFalse( context.isSuper() );
+        assertTrue( context.isAuthorized( "F_A" ) );
+        assertFalse( context.isAuthorized( "F_C" ) );
+        assertFalse( context.isAuthorized( null ) );
+        assertTrue( context.isAnyAuthorized( Arrays.asList( "F_C", "F_B" ) ) );
+        assertFalse( context.isAnyAuthorized( Arrays.asList( "F_C", "F_D" ) ) );
+    }
+
+    @Test
+    public void testIsInUserGroup()
+    {
+        UserSecurityContext context = UserSecurityContext.fromUser( user );
+
+        assertTrue( context.isInUserGroup( userGroup.getUid() ) );
+        assertFalse( context.isInUserGroup( new UserGroup( "GroupB" ).getUid() ) );
+
+        context = UserSecurityContext.fromUser( user, new HashSet<>() );
+
+        assertFalse( context.isInUserGroup( userGroup.getUid() ) );
+        assertTrue( context.getUserGroupIds().isEmpty() );
+    }
+
+    @Test
+    public void testIsInUserHierarchy()
+    {
+        UserSecurityContext context = UserSecurityContext.fromUser( user );
+
+        assertTrue( context.isInUserHierarchy( unitB ) );
+        assertTrue( context.isInUserHierarchy( unitC ) );
+        assertFalse( context.isInUserHierarchy( unitA ) );
+        assertFalse( context.isInUserHierarchy( unitD ) );
+
+        assertTrue( context.isInUserHierarchy( unitC.getPath() ) );
+        assertFalse( context.isInUserHierarchy( unitD.getPath() ) );
+        assertFalse( context.isInUserHierarchy( unitB.getPath() + "x" ) );
+
+        assertTrue( context.isInUserSearchHierarchy( unitD ) );
+        assertTrue( context.isInUserDataViewHierarchy( unitC ) );
+        assertFalse( context.isInUserDataViewHierarchy( unitA ) );
+    }
+
+    @Test
+    public void testSnapshotIsNotAffectedByUserChanges()
+    {
+        UserSecurityContext context = UserSecurityContext.fromUser( user );
+
+        user.getOrganisationUnits().add( unitD );
+        user.getGroups().clear();
+
+        assertFalse( context.isInUserHierarchy( unitD ) );
+        assertTrue( context.isInUserGroup( userGroup.getUid() ) );
+    }
+
+    @Test( expected = UnsupportedOperationException.class )
+    public void testImmutable()
+    {
+        UserSecurityContext.fromUser( user ).getAuthorities().add( "F_C" );
+    }
+}
@@ -28,6 +28,7 @@ package org.hisp.dhis.security.acl;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hibernate.Hibernate;
 import org.hisp.dhis.category.CategoryOption;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.common.BaseIdentifiableObject;
@@ -38,9 +39,12 @@ import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
 import org.hisp.dhis.security.AuthorityType;
 import org.hisp.dhis.security.acl.AccessStringHelper.Permission;
+import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserAccess;
+import org.hisp.dhis.user.UserGroup;
 import org.hisp.dhis.user.UserGroupAccess;
+import org.hisp.dhis.user.UserSecurityContext;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -60,11 +64,15 @@ public class DefaultAclService implements AclService
 {
     private final SchemaService schemaService;
 
-    public DefaultAclService( SchemaService schemaService )
+    private final CurrentUserService currentUserService;
+
+    public DefaultAclService( SchemaService schemaService, CurrentUserService currentUserService )
     {
         checkNotNull( schemaService );
+        checkNotNull( currentUserService );
 
         this.schemaService = schemaService;
+        this.currentUserService = currentUserService;
     }
 
     @Override
@@ -649,14 +657,19 @@ public class DefaultAclService implements AclService
             return true;
         }
 
-        for ( UserGroupAccess userGroupAccess : object.getUserGroupAccesses() )
+        if ( !object.getUserGroupAccesses().isEmpty() )
         {
-            // Check if user is allowed to read this object through group access
+            UserSecurityContext context = currentUserService.getUserSecurityContext( user );
 
-            if ( AccessStringHelper.isEnabled( userGroupAccess.getAccess(), permission )
-                    && userGroupAccess.getUserGroup().getMembers().contains( user ) )
+            for ( UserGroupAccess userGroupAccess : object.getUserGroupAccesses() )
             {
-                return true;
+                // Check if user is allowed to read this object through group access
+
+                if ( AccessStringHelper.isEnabled( userGroupAccess.getAccess(), permission )
+                        && isUserGroupMember( context, user, userGroupAccess.getUserGroup() ) )
+                {
+                    return true;
+                }
             }
         }
 
@@ -674,6 +687,23 @@ public class DefaultAclService implements AclService
         return false;
     }
 
+    /**
+     * Indicates whether the given user is a member of the given user group.
+     * Membership is checked against the cached security context to avoid
+     * loading the members of every shared user group. Members which are
+     * already loaded are checked as well, as they may include changes which
+     * are not yet committed.
+     */
+    private boolean isUserGroupMember( UserSecurityContext context, User user, UserGroup userGroup )
+    {
+        if ( context != null && context.isInUserGroup( userGroup.getUid() ) )
+        {
+            return true;
+        }
+
+        return Hibernate.isInitialized( userGroup.getMembers() ) && userGroup.getMembers().contains( user );
+    }
+
     private boolean checkOptionComboSharingPermission( User user, IdentifiableObject object, Permission permission )
     {
         CategoryOptionCombo optionCombo = (CategoryOptionCombo) object;
@@ -0,0 +1,128 @@
+package org.hisp.dhis.dataintegrity;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A single data integrity check. Checks are independent of each other and may
+ * run concurrently, each in its own session.
+ * <p>
+ * The tables a check reads from are declared, so that the result of a
+ * previous run of the check can be reused as long as none of the tables have
+ * changed.
+ *
+ * @param <T> the type of the result of the check.
+ */
+public class DataIntegrityCheck<T>
+{
+    private final String name;
+
+    private final Set<String> tables;
+
+    private final Supplier<T> check;
+
+    private final BiConsumer<DataIntegrityReport, T> reportSetter;
+
+    private final Function<T, Object> flattener;
+
+    /**
+     * @param name the name of the check, which is also the name of the result
+     *        in the {@link FlattenedDataIntegrityReport}.
+     * @param tables the tables the check reads from.
+     * @param check the check.
+     * @param reportSetter sets the result on a {@link DataIntegrityReport}.
+     * @param flattener flattens the result for the {@link FlattenedDataIntegrityReport}.
+     */
+    public DataIntegrityCheck( String name, Set<String> tables, Supplier<T> check,
+        BiConsumer<DataIntegrityReport, T> reportSetter, Function<T, Object> flattener )
+    {
+        this.name = name;
+        this.tables = ImmutableSet.copyOf( tables );
+        this.check = check;
+        this.reportSetter = reportSetter;
+        this.flattener = flattener;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public Set<String> getTables()
+    {
+        return tables;
+    }
+
+    /**
+     * Runs the check and sets the result on the given report.
+     *
+     * @param report the report.
+     */
+    public void runInto( DataIntegrityReport report )
+    {
+        run().accept( report );
+    }
+
+    /**
+     * Runs the check and returns a consumer which sets the result on a
+     * report, so that the result can be kept and set on later reports.
+     *
+     * @return a consumer which sets the result on a report.
+     */
+    public Consumer<DataIntegrityReport> run()
+    {
+        T result = check.get();
+
+        return report -> {
+            synchronized ( report )
+            {
+                reportSetter.accept( report, result );
+            }
+        };
+    }
+
+    /**
+     * Runs the check and flattens the result. The result is flattened in the
+     * same session as the check runs in, as it may refer to lazily loaded
+     * objects.
+     *
+     * @return the flattened result.
+     */
+    public Object runFlattened()
+    {
+        return flattener.apply( check.get() );
+    }
+}
@@ -0,0 +1,65 @@
+package org.hisp.dhis.dataintegrity;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Store of the latest results of the data integrity checks.
+ */
+public interface DataIntegrityCheckResultStore
+{
+    /**
+     * Returns the latest check results of the given database locale.
+     *
+     * @param locale the database locale.
+     * @return the check results by check name.
+     */
+    Map<String, DataIntegrityCheckResult> getCheckResults( String locale );
+
+    /**
+     * Saves a check result of the given database locale, replacing the
+     * previous result of the check.
+     *
+     * @param locale the database locale.
+     * @param result the check result.
+     */
+    void saveCheckResult( String locale, DataIntegrityCheckResult result );
+
+    /**
+     * Returns the current version of each of the given tables. The version of
+     * a table changes with every committed change of its rows. Tables which do
+     * not exist have no version.
+     *
+     * @param tables the table names.
+     * @return the versions by table name.
+     */
+    Map<String, String> getTableVersions( Set<String> tables );
+}
@@ -33,13 +33,27 @@ import static org.hisp.dhis.commons.collection.ListUtils.getDuplicates;
 import static org.hisp.dhis.expression.ParseType.INDICATOR_EXPRESSION;
 import static org.hisp.dhis.expression.ParseType.VALIDATION_RULE_EXPRESSION;
 
+import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.hisp.dhis.category.CategoryCombo;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.antlr.ParserException;
 import org.hisp.dhis.common.ListMap;
+import org.hisp.dhis.common.UserContext;
+import org.hisp.dhis.commons.timer.SystemTimer;
+import org.hisp.dhis.commons.timer.Timer;
+import org.hisp.dhis.commons.util.ConcurrentUtils;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataelement.DataElementGroup;
 import org.hisp.dhis.dataelement.DataElementGroupSet;
@@ -49,6 +63,7 @@ import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dataset.DataSetService;
 import org.hisp.dhis.expression.ExpressionService;
 import org.hisp.dhis.expression.ExpressionValidationOutcome;
+import org.hisp.dhis.expression.ParseType;
 import org.hisp.dhis.i18n.I18n;
 import org.hisp.dhis.i18n.I18nManager;
 import org.hisp.dhis.indicator.Indicator;
@@ -63,11 +78,21 @@ import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramIndicator;
 import org.hisp.dhis.program.ProgramIndicatorService;
 import org.hisp.dhis.programrule.*;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserSettingKey;
 import org.hisp.dhis.validation.ValidationRule;
 import org.hisp.dhis.validation.ValidationRuleService;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 
 import lombok.extern.slf4j.Slf4j;
@@ -83,6 +108,13 @@ public class DefaultDataIntegrityService
 {
     private static final String FORMULA_SEPARATOR = "#";
 
+    /**
+     * Tables holding objects which may be referred to by expressions.
+     */
+    private static final Set<String> EXPRESSION_TABLES = ImmutableSet.of( "dataelement", "categoryoptioncombo",
+        "constant", "indicator", "orgunitgroup", "dataset", "program", "programstage", "programstagedataelement",
+        "programindicator", "trackedentityattribute" );
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -117,6 +149,28 @@ public class DefaultDataIntegrityService
 
     private final ProgramIndicatorService programIndicatorService;
 
+    private final DataIntegrityCheckResultStore checkResultStore;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final List<DataIntegrityCheck<?>> checks;
+
+    /**
+     * Latest results of the checks of the data integrity report by check name,
+     * kept as long as the version of the tables of the check is unchanged.
+     */
+    private final Map<String, ReportResult> reportResults = new ConcurrentHashMap<>();
+
+    /**
+     * Outcomes of expression checks by type and expression. An outcome is
+     * empty for a valid expression. Outcomes depend on the objects which
+     * expressions refer to, and are kept as long as the version of the
+     * expression tables is unchanged.
+     */
+    private final Map<String, Optional<String>> expressionOutcomes = new ConcurrentHashMap<>();
+
+    private String expressionOutcomesVersion;
+
     public DefaultDataIntegrityService( I18nManager i18nManager, DataElementService dataElementService,
         IndicatorService indicatorService, DataSetService dataSetService,
         OrganisationUnitService organisationUnitService, OrganisationUnitGroupService organisationUnitGroupService,
@@ -124,7 +178,8 @@ public class DefaultDataIntegrityService
         DataEntryFormService dataEntryFormService, CategoryService categoryService, PeriodService periodService,
         ProgramIndicatorService programIndicatorService,
         ProgramRuleService programRuleService, ProgramRuleVariableService programRuleVariableService,
-        ProgramRuleActionService programRuleActionService )
+        ProgramRuleActionService programRuleActionService, DataIntegrityCheckResultStore checkResultStore,
+        PlatformTransactionManager transactionManager )
     {
         checkNotNull( i18nManager );
         checkNotNull( dataElementService );
@@ -140,6 +195,8 @@ public class DefaultDataIntegrityService
         checkNotNull( programRuleService );
         checkNotNull( programRuleVariableService );
         checkNotNull( programRuleActionService );
+        checkNotNull( checkResultStore );
+        checkNotNull( transactionManager );
 
         this.i18nManager = i18nManager;
         this.dataElementService = dataElementService;
@@ -156,6 +213,9 @@ public class DefaultDataIntegrityService
         this.programRuleService = programRuleService;
         this.programRuleVariableService = programRuleVariableService;
         this.programRuleActionService = programRuleActionService;
+        this.checkResultStore = checkResultStore;
+        this.transactionManager = transactionManager;
+        this.checks = createChecks();
     }
 
     // -------------------------------------------------------------------------
@@ -181,29 +241,29 @@ public class DefaultDataIntegrityService
     @Override
     public SortedMap<DataElement, Collection<DataSet>> getDataElementsAssignedToDataSetsWithDifferentPeriodTypes()
     {
-        Collection<DataElement> dataElements = dataElementService.getAllDataElements();
-
         Collection<DataSet> dataSets = dataSetService.getAllDataSets();
 
-        SortedMap<DataElement, Collection<DataSet>> targets = new TreeMap<>();
+        Map<DataElement, Collection<DataSet>> dataSetsByElement = new HashMap<>();
 
-        for ( DataElement element : dataElements )
+        for ( DataSet dataSet : dataSets )
         {
-            final Set<PeriodType> targetPeriodTypes = new HashSet<>();
-            final Collection<DataSet> targetDataSets = new HashSet<>();
-
-            for ( DataSet dataSet : dataSets )
+            for ( DataElement element : dataSet.getDataElements() )
             {
-                if ( dataSet.getDataElements().contains( element ) )
-                {
-                    targetPeriodTypes.add( dataSet.getPeriodType() );
-                    targetDataSets.add( dataSet );
-                }
+                dataSetsByElement.computeIfAbsent( element, k -> new HashSet<>() ).add( dataSet );
             }
+        }
+
+        SortedMap<DataElement, Collection<DataSet>> targets = new TreeMap<>();
+
+        for ( Map.Entry<DataElement, Collection<DataSet>> entry : dataSetsByElement.entrySet() )
+        {
+            Set<PeriodType> targetPeriodTypes = entry.getValue().stream()
+                .map( DataSet::getPeriodType )
+                .collect( Collectors.toSet() );
 
             if ( targetPeriodTypes.size() > 1 )
             {
-                targets.put( element, targetDataSets );
+                targets.put( entry.getKey(), entry.getValue() );
             }
         }
 
@@ -294,37 +354,13 @@ public class DefaultDataIntegrityService
     @Override
     public Set<Set<Indicator>> getIndicatorsWithIdenticalFormulas()
     {
-        Map<String, Indicator> formulas = new HashMap<>();
-
         Map<String, Set<Indicator>> targets = new HashMap<>();
 
-        List<Indicator> indicators = indicatorService.getAllIndicators();
-
-        for ( Indicator indicator : indicators )
+        for ( Indicator indicator : indicatorService.getIndicatorsWithIdenticalFormulas() )
         {
             final String formula = indicator.getNumerator() + FORMULA_SEPARATOR + indicator.getDenominator();
 
-            if ( formulas.containsKey( formula ) )
-            {
-                if ( targets.containsKey( formula ) )
-                {
-                    targets.get( formula ).add( indicator );
-                }
-                else
-                {
-                    Set<Indicator> elements = new HashSet<>();
-
-                    elements.add( indicator );
-                    elements.add( formulas.get( formula ) );
-
-                    targets.put( formula, elements );
-                    targets.get( formula ).add( indicator );
-                }
-            }
-            else
-            {
-                formulas.put( formula, indicator );
-            }
+            targets.computeIfAbsent( formula, k -> new HashSet<>() ).add( indicator );
         }
 
         return Sets.newHashSet( targets.values() );
@@ -342,14 +378,12 @@ public class DefaultDataIntegrityService
         SortedMap<Indicator, String> invalids = new TreeMap<>();
         I18n i18n = i18nManager.getI18n();
 
+        Map<String, Optional<String>> outcomes = getExpressionOutcomes();
+
         for ( Indicator indicator : indicatorService.getAllIndicators() )
         {
-            ExpressionValidationOutcome result = expressionService.expressionIsValid( indicator.getNumerator(), INDICATOR_EXPRESSION );
-
-            if ( !result.isValid() )
-            {
-                invalids.put( indicator, i18n.getString(result.getKey()) );
-            }
+            getExpressionOutcome( outcomes, indicator.getNumerator(), INDICATOR_EXPRESSION )
+                .ifPresent( key -> invalids.put( indicator, i18n.getString( key ) ) );
         }
 
         return invalids;
@@ -361,14 +395,12 @@ public class DefaultDataIntegrityService
         SortedMap<Indicator, String> invalids = new TreeMap<>();
         I18n i18n = i18nManager.getI18n();
 
+        Map<String, Optional<String>> outcomes = getExpressionOutcomes();
+
         for ( Indicator indicator : indicatorService.getAllIndicators() )
         {
-            ExpressionValidationOutcome result = expressionService.expressionIsValid( indicator.getDenominator(), INDICATOR_EXPRESSION );
-
-            if ( !result.isValid() )
-            {
-                invalids.put( indicator, i18n.getString(result.getKey()) );
-            }
+            getExpressionOutcome( outcomes, indicator.getDenominator(), INDICATOR_EXPRESSION )
+                .ifPresent( key -> invalids.put( indicator, i18n.getString( key ) ) );
         }
 
         return invalids;
@@ -437,48 +469,13 @@ public class DefaultDataIntegrityService
     @Override
     public Set<OrganisationUnit> getOrganisationUnitsWithCyclicReferences()
     {
-        List<OrganisationUnit> organisationUnits = organisationUnitService.getAllOrganisationUnits();
-
-        Set<OrganisationUnit> cyclic = new HashSet<>();
-
-        Set<OrganisationUnit> visited = new HashSet<>();
-
-        OrganisationUnit parent;
-
-        for ( OrganisationUnit unit : organisationUnits )
-        {
-            parent = unit;
-
-            while ( (parent = parent.getParent()) != null )
-            {
-                if ( parent.equals( unit ) ) // Cyclic reference
-                {
-                    cyclic.add( unit );
-
-                    break;
-                }
-                else if ( visited.contains( parent ) ) // Ends in cyclic ref
-                {
-                    break;
-                }
-                else
-                {
-                    visited.add( parent ); // Remember visited
-                }
-            }
-
-            visited.clear();
-        }
-
-        return cyclic;
+        return new HashSet<>( organisationUnitService.getOrganisationUnitsWithCyclicReferences() );
     }
 
     @Override
     public List<OrganisationUnit> getOrphanedOrganisationUnits()
     {
-        List<OrganisationUnit> units = organisationUnitService.getAllOrganisationUnits();
-
-        return units.stream().filter( ou -> ou.getParent() == null && ( ou.getChildren() == null || ou.getChildren().size() == 0 ) ).collect( Collectors.toList() );
+        return organisationUnitService.getOrphanedOrganisationUnits();
     }
 
     @Override
@@ -535,14 +532,12 @@ public class DefaultDataIntegrityService
         SortedMap<ValidationRule, String> invalids = new TreeMap<>();
         I18n i18n = i18nManager.getI18n();
 
+        Map<String, Optional<String>> outcomes = getExpressionOutcomes();
+
         for ( ValidationRule rule : validationRuleService.getAllValidationRules() )
         {
-            ExpressionValidationOutcome result = expressionService.expressionIsValid( rule.getLeftSide().getExpression(), VALIDATION_RULE_EXPRESSION );
-
-            if ( !result.isValid() )
-            {
-                invalids.put( rule, i18n.getString(result.getKey()) );
-            }
+            getExpressionOutcome( outcomes, rule.getLeftSide().getExpression(), VALIDATION_RULE_EXPRESSION )
+                .ifPresent( key -> invalids.put( rule, i18n.getString( key ) ) );
         }
 
         return invalids;
@@ -554,104 +549,108 @@ public class DefaultDataIntegrityService
         SortedMap<ValidationRule, String> invalids = new TreeMap<>();
         I18n i18n = i18nManager.getI18n();
 
+        Map<String, Optional<String>> outcomes = getExpressionOutcomes();
+
         for ( ValidationRule rule : validationRuleService.getAllValidationRules() )
         {
-            ExpressionValidationOutcome result = expressionService.expressionIsValid( rule.getRightSide().getExpression(), VALIDATION_RULE_EXPRESSION );
-
-            if ( !result.isValid() )
-            {
-                invalids.put( rule, i18n.getString(result.getKey()) );
-            }
+            getExpressionOutcome( outcomes, rule.getRightSide().getExpression(), VALIDATION_RULE_EXPRESSION )
+                .ifPresent( key -> invalids.put( rule, i18n.getString( key ) ) );
         }
 
         return invalids;
     }
 
     @Override
+    @Transactional( propagation = Propagation.SUPPORTS )
     public DataIntegrityReport getDataIntegrityReport()
     {
+        Timer timer = new SystemTimer().start();
+
         DataIntegrityReport report = new DataIntegrityReport();
 
-        report.setDataElementsWithoutDataSet( new ArrayList<>( getDataElementsWithoutDataSet() ) );
-        report.setDataElementsWithoutGroups( new ArrayList<>( getDataElementsWithoutGroups() ) );
-        report.setDataElementsAssignedToDataSetsWithDifferentPeriodTypes( getDataElementsAssignedToDataSetsWithDifferentPeriodTypes() );
-        report.setDataElementsViolatingExclusiveGroupSets( getDataElementsViolatingExclusiveGroupSets() );
-        report.setDataElementsInDataSetNotInForm( getDataElementsInDataSetNotInForm() );
-        report.setInvalidCategoryCombos( getInvalidCategoryCombos() );
+        // Within a transaction results may reflect uncommitted changes and
+        // refer to objects of the session, so they are not kept
 
-        log.info( "Checked data elements" );
+        if ( TransactionSynchronizationManager.isActualTransactionActive() )
+        {
+            runChecks( checks, check -> check.runInto( report ) );
 
-        report.setDataSetsNotAssignedToOrganisationUnits( new ArrayList<>( getDataSetsNotAssignedToOrganisationUnits() ) );
+            log.info( "Ran " + checks.size() + " data integrity checks in " + timer.stop().toString() );
 
-        log.info( "Checked data sets" );
+            return report;
+        }
 
-        report.setIndicatorsWithIdenticalFormulas( getIndicatorsWithIdenticalFormulas() );
-        report.setIndicatorsWithoutGroups( new ArrayList<>( getIndicatorsWithoutGroups() ) );
-        report.setInvalidIndicatorNumerators( getInvalidIndicatorNumerators() );
-        report.setInvalidIndicatorDenominators( getInvalidIndicatorDenominators() );
-        report.setIndicatorsViolatingExclusiveGroupSets( getIndicatorsViolatingExclusiveGroupSets() );
+        Map<String, String> versions = getCheckVersions();
 
-        log.info( "Checked indicators" );
+        List<DataIntegrityCheck<?>> changedChecks = checks.stream()
+            .filter( check -> reportResults.get( check.getName() ) == null ||
+                !reportResults.get( check.getName() ).isCurrent( versions.get( check.getName() ) ) )
+            .collect( Collectors.toList() );
 
-        report.setDuplicatePeriods( getDuplicatePeriods() );
+        runChecks( changedChecks, check -> reportResults.put( check.getName(),
+            new ReportResult( versions.get( check.getName() ), check.run() ) ) );
 
-        log.info( "Checked periods" );
+        checks.forEach( check -> reportResults.get( check.getName() ).setter.accept( report ) );
 
-        report.setOrganisationUnitsWithCyclicReferences( new ArrayList<>( getOrganisationUnitsWithCyclicReferences() ) );
-        report.setOrphanedOrganisationUnits( new ArrayList<>( getOrphanedOrganisationUnits() ) );
-        report.setOrganisationUnitsWithoutGroups( new ArrayList<>( getOrganisationUnitsWithoutGroups() ) );
-        report.setOrganisationUnitsViolatingExclusiveGroupSets( getOrganisationUnitsViolatingExclusiveGroupSets() );
-        report.setOrganisationUnitGroupsWithoutGroupSets( new ArrayList<>( getOrganisationUnitGroupsWithoutGroupSets() ) );
-        report.setValidationRulesWithoutGroups( new ArrayList<>( getValidationRulesWithoutGroups() ) );
+        log.info( "Ran " + changedChecks.size() + " of " + checks.size() + " data integrity checks in " +
+            timer.stop().toString() + ", reused results of unchanged checks" );
 
-        log.info( "Checked organisation units" );
+        return report;
+    }
 
-        report.setInvalidValidationRuleLeftSideExpressions( getInvalidValidationRuleLeftSideExpressions() );
-        report.setInvalidValidationRuleRightSideExpressions( getInvalidValidationRuleRightSideExpressions() );
+    @Override
+    @Transactional( propagation = Propagation.SUPPORTS )
+    public FlattenedDataIntegrityReport getFlattenedDataIntegrityReport()
+    {
+        Timer timer = new SystemTimer().start();
 
-        log.info( "Checked validation rules" );
+        String locale = getLocaleKey();
 
-        report.setInvalidProgramIndicatorExpressions( getInvalidProgramIndicatorExpressions() );
-        report.setInvalidProgramIndicatorFilters( getInvalidProgramIndicatorFilters() );
-        report.setGetProgramIndicatorWithNoExpression( getProgramIndicatorsWithNoExpression() );
+        // Versions are read before the checks run, so that a change made while
+        // a check runs leads to the check being run again the next time
 
-        log.info( "Checked ProgramIndicators" );
+        Map<String, String> versions = getCheckVersions();
 
-        report.setProgramRulesWithoutCondition( getProgramRulesWithNoCondition() );
-        report.setProgramRulesWithNoPriority( getProgramRulesWithNoPriority() );
-        report.setProgramRulesWithNoAction( getProgramRulesWithNoAction() );
+        Map<String, DataIntegrityCheckResult> results = new ConcurrentHashMap<>( checkResultStore.getCheckResults( locale ) );
 
-        log.info( "Checked ProgramRules" );
+        List<DataIntegrityCheck<?>> changedChecks = checks.stream()
+            .filter( check -> results.get( check.getName() ) == null ||
+                !results.get( check.getName() ).isCurrent( versions.get( check.getName() ) ) )
+            .collect( Collectors.toList() );
 
-        report.setProgramRuleVariablesWithNoDataElement( getProgramRuleVariablesWithNoDataElement() );
-        report.setProgramRuleVariablesWithNoAttribute( getProgramRuleVariablesWithNoAttribute() );
+        runChecks( changedChecks, check -> {
+            Date startTime = new Date();
 
-        log.info( "Checked ProgramRuleVariables" );
+            Object result = check.runFlattened();
 
-        report.setProgramRuleActionsWithNoDataObject( getProgramRuleActionsWithNoDataObject() );
-        report.setProgramRuleActionsWithNoNotification( getProgramRuleActionsWithNoNotificationTemplate() );
-        report.setProgramRuleActionsWithNoSectionId( getProgramRuleActionsWithNoSectionId() );
-        report.setProgramRuleActionsWithNoStageId( getProgramRuleActionsWithNoProgramStageId() );
+            results.put( check.getName(), new DataIntegrityCheckResult( check.getName(), result,
+                versions.get( check.getName() ), startTime, System.currentTimeMillis() - startTime.getTime() ) );
+        } );
 
-        log.info( "Checked ProgramRuleActions" );
+        changedChecks.forEach( check -> checkResultStore.saveCheckResult( locale, results.get( check.getName() ) ) );
 
-        Collections.sort( report.getDataElementsWithoutDataSet() );
-        Collections.sort( report.getDataElementsWithoutGroups() );
-        Collections.sort( report.getDataSetsNotAssignedToOrganisationUnits() );
-        Collections.sort( report.getIndicatorsWithoutGroups() );
-        Collections.sort( report.getOrganisationUnitsWithCyclicReferences() );
-        Collections.sort( report.getOrphanedOrganisationUnits() );
-        Collections.sort( report.getOrganisationUnitsWithoutGroups() );
-        Collections.sort( report.getOrganisationUnitGroupsWithoutGroupSets() );
-        Collections.sort( report.getValidationRulesWithoutGroups() );
+        log.info( "Ran " + changedChecks.size() + " of " + checks.size() + " data integrity checks in " +
+            timer.stop().toString() + ", reused results of unchanged checks" );
 
-        return report;
+        Map<String, Object> flattenedResults = new LinkedHashMap<>();
+
+        for ( DataIntegrityCheck<?> check : checks )
+        {
+            flattenedResults.put( check.getName(), results.get( check.getName() ).getResult() );
+        }
+
+        return new FlattenedDataIntegrityReport( flattenedResults );
     }
 
     @Override
-    public FlattenedDataIntegrityReport getFlattenedDataIntegrityReport()
+    public List<DataIntegrityCheckResult> getDataIntegrityCheckResults()
     {
-        return new FlattenedDataIntegrityReport( getDataIntegrityReport() );
+        Map<String, DataIntegrityCheckResult> results = checkResultStore.getCheckResults( getLocaleKey() );
+
+        return checks.stream()
+            .map( check -> results.get( check.getName() ) )
+            .filter( Objects::nonNull )
+            .collect( Collectors.toList() );
     }
 
     @Override
@@ -665,19 +664,16 @@ public class DefaultDataIntegrityService
     {
         Map<ProgramIndicator, String> invalidExpressions = new HashMap<>();
 
-        List<ProgramIndicator> programIndicators = programIndicatorService.getAllProgramIndicators()
-            .stream()
-            .filter( pi -> !programIndicatorService.expressionIsValid( pi.getExpression() ) )
-            .collect( Collectors.toList() );
+        Map<String, Optional<String>> outcomes = getExpressionOutcomes();
 
-        for ( ProgramIndicator programIndicator : programIndicators )
+        for ( ProgramIndicator programIndicator : programIndicatorService.getAllProgramIndicators() )
         {
-            String description = getInvalidExpressionDescription( programIndicator.getExpression() );
+            String expression = programIndicator.getExpression();
 
-            if ( description != null )
-            {
-                invalidExpressions.put( programIndicator, description );
-            }
+            outcomes.computeIfAbsent( "programIndicatorExpression" + FORMULA_SEPARATOR + expression,
+                k -> programIndicatorService.expressionIsValid( expression ) ?
+                    Optional.empty() : Optional.ofNullable( getInvalidExpressionDescription( expression ) ) )
+                .ifPresent( description -> invalidExpressions.put( programIndicator, description ) );
         }
 
         return invalidExpressions;
@@ -688,19 +684,16 @@ public class DefaultDataIntegrityService
     {
         Map<ProgramIndicator, String> invalidFilters = new HashMap<>();
 
-        List<ProgramIndicator> programIndicators = programIndicatorService.getAllProgramIndicators()
-            .stream()
-            .filter( pi -> !programIndicatorService.filterIsValid( pi.getFilter() ) )
-            .collect( Collectors.toList() );
+        Map<String, Optional<String>> outcomes = getExpressionOutcomes();
 
-        for ( ProgramIndicator programIndicator : programIndicators )
+        for ( ProgramIndicator programIndicator : programIndicatorService.getAllProgramIndicators() )
         {
-            String description = getInvalidExpressionDescription( programIndicator.getFilter() );
+            String filter = programIndicator.getFilter();
 
-            if ( description != null )
-            {
-                invalidFilters.put( programIndicator, description );
-            }
+            outcomes.computeIfAbsent( "programIndicatorFilter" + FORMULA_SEPARATOR + filter,
+                k -> programIndicatorService.filterIsValid( filter ) ?
+                    Optional.empty() : Optional.ofNullable( getInvalidExpressionDescription( filter ) ) )
+                .ifPresent( description -> invalidFilters.put( programIndicator, description ) );
         }
 
         return invalidFilters;
@@ -777,6 +770,339 @@ public class DefaultDataIntegrityService
         return groupVariablesByProgram( ruleVariables );
     }
 
+    // -------------------------------------------------------------------------
+    // Checks
+    // -------------------------------------------------------------------------
+
+    private List<DataIntegrityCheck<?>> createChecks()
+    {
+        return Arrays.asList(
+            check( "dataElementsWithoutDataSet", tables( "dataelement", "datasetelement" ),
+                () -> sorted( getDataElementsWithoutDataSet() ),
+                DataIntegrityReport::setDataElementsWithoutDataSet,
+                FlattenedDataIntegrityReport::transformCollection ),
+            check( "dataElementsWithoutGroups", tables( "dataelement", "dataelementgroupmembers" ),
+                () -> sorted( getDataElementsWithoutGroups() ),
+                DataIntegrityReport::setDataElementsWithoutGroups,
+                FlattenedDataIntegrityReport::transformCollection ),
+            check( "dataElementsAssignedToDataSetsWithDifferentPeriodTypes", tables( "dataelement", "dataset", "datasetelement" ),
+                this::getDataElementsAssignedToDataSetsWithDifferentPeriodTypes,
+                DataIntegrityReport::setDataElementsAssignedToDataSetsWithDifferentPeriodTypes,
+                FlattenedDataIntegrityReport::transformMapOfCollections ),
+            check( "dataElementsViolatingExclusiveGroupSets", tables( "dataelement", "dataelementgroup",
+                "dataelementgroupmembers", "dataelementgroupset", "dataelementgroupsetmembers" ),
+                this::getDataElementsViolatingExclusiveGroupSets,
+                DataIntegrityReport::setDataElementsViolatingExclusiveGroupSets,
+                FlattenedDataIntegrityReport::transformSortedMap ),
+            check( "dataElementsInDataSetNotInForm", tables( "dataelement", "dataset", "datasetelement",
+                "dataentryform", "section", "sectiondataelements" ),
+                this::getDataElementsInDataSetNotInForm,
+                DataIntegrityReport::setDataElementsInDataSetNotInForm,
+                FlattenedDataIntegrityReport::transformSortedMap ),
+            check( "invalidCategoryCombos", tables( "categorycombo", "categorycombos_categories",
+                "dataelementcategory", "categories_categoryoptions" ),
+                this::getInvalidCategoryCombos,
+                DataIntegrityReport::setInvalidCategoryCombos,
+                FlattenedDataIntegrityReport::transformCollection ),
+            check( "dataSetsNotAssignedToOrganisationUnits", tables( "dataset", "datasetsource" ),
+                () -> sorted( getDataSetsNotAssignedToOrganisationUnits() ),
+                DataIntegrityReport::setDataSetsNotAssignedToOrganisationUnits,
+                FlattenedDataIntegrityReport::transformCollection ),
+            check( "indicatorsWithIdenticalFormulas", tables( "indicator" ),
+                this::getIndicatorsWithIdenticalFormulas,
+                DataIntegrityReport::setIndicatorsWithIdenticalFormulas,
+                FlattenedDataIntegrityReport::transformCollectionOfCollections ),
+            check( "indicatorsWithoutGroups", tables( "indicator", "indicatorgroupmembers" ),
+                () -> sorted( getIndicatorsWithoutGroups() ),
+                DataIntegrityReport::setIndicatorsWithoutGroups,
+                FlattenedDataIntegrityReport::transformCollection ),
+            check( "invalidIndicatorNumerators", EXPRESSION_TABLES,
+                this::getInvalidIndicatorNumerators,
+                DataIntegrityReport::setInvalidIndicatorNumerators,
+                FlattenedDataIntegrityReport::transformMapOfStrings ),
+            check( "invalidIndicatorDenominators", EXPRESSION_TABLES,
+                this::getInvalidIndicatorDenominators,
+                DataIntegrityReport::setInvalidIndicatorDenominators,
+                FlattenedDataIntegrityReport::transformMapOfStrings ),
+            check( "indicatorsViolatingExclusiveGroupSets", tables( "indicator", "indicatorgroup",
+                "indicatorgroupmembers", "indicatorgroupset", "indicatorgroupsetmembers" ),
+                this::getIndicatorsViolatingExclusiveGroupSets,
+                DataIntegrityReport::setIndicatorsViolatingExclusiveGroupSets,
+                FlattenedDataIntegrityReport::transformSortedMap ),
+            check( "duplicatePeriods", tables( "period" ),
+                this::getDuplicatePeriods,
+                DataIntegrityReport::setDuplicatePeriods,
+                FlattenedDataIntegrityReport::transformCollection ),
+            check( "organisationUnitsWithCyclicReferences", tables( "organisationunit" ),
+                () -> sorted( getOrganisationUnitsWithCyclicReferences() ),
+                DataIntegrityReport::setOrganisationUnitsWithCyclicReferences,
+                FlattenedDataIntegrityReport::transformCollection ),
+            check( "orphanedOrganisationUnits", tables( "organisationunit" ),
+                () -> sorted( getOrphanedOrganisationUnits() ),
+                DataIntegrityReport::setOrphanedOrganisationUnits,
+                FlattenedDataIntegrityReport::transformCollection ),
+            check( "organisationUnitsWithoutGroups", tables( "organisationunit", "orgunitgroupmembers" ),
+                () -> sorted( getOrganisationUnitsWithoutGroups() ),
+                DataIntegrityReport::setOrganisationUnitsWithoutGroups,
+                FlattenedDataIntegrityReport::transformCollection ),
+            check( "organisationUnitsViolatingExclusiveGroupSets", tables( "organisationunit", "orgunitgroup",
+                "orgunitgroupmembers", "orgunitgroupset", "orgunitgroupsetmembers" ),
+                this::getOrganisationUnitsViolatingExclusiveGroupSets,
+                DataIntegrityReport::setOrganisationUnitsViolatingExclusiveGroupSets,
+                FlattenedDataIntegrityReport::transformSortedMap ),
+            check( "organisationUnitGroupsWithoutGroupSets", tables( "orgunitgroup", "orgunitgroupsetmembers" ),
+                () -> sorted( getOrganisationUnitGroupsWithoutGroupSets() ),
+                DataIntegrityReport::setOrganisationUnitGroupsWithoutGroupSets,
+                FlattenedDataIntegrityReport::transformCollection ),
+            check( "validationRulesWithoutGroups", tables( "validationrule", "validationrulegroupmembers" ),
+                () -> sorted( getValidationRulesWithoutGroups() ),
+                DataIntegrityReport::setValidationRulesWithoutGroups,
+                FlattenedDataIntegrityReport::transformCollection ),
+            check( "invalidValidationRuleLeftSideExpressions", tables( EXPRESSION_TABLES, "validationrule", "expression" ),
+                this::getInvalidValidationRuleLeftSideExpressions,
+                DataIntegrityReport::setInvalidValidationRuleLeftSideExpressions,
+                FlattenedDataIntegrityReport::transformMapOfStrings ),
+            check( "invalidValidationRuleRightSideExpressions", tables( EXPRESSION_TABLES, "validationrule", "expression" ),
+                this::getInvalidValidationRuleRightSideExpressions,
+                DataIntegrityReport::setInvalidValidationRuleRightSideExpressions,
+                FlattenedDataIntegrityReport::transformMapOfStrings ),
+            check( "programIndicatorsWithNoExpression", tables( "programindicator" ),
+                this::getProgramIndicatorsWithNoExpression,
+                DataIntegrityReport::setGetProgramIndicatorWithNoExpression,
+                FlattenedDataIntegrityReport::transformCollection ),
+            check( "invalidProgramIndicatorExpressions", EXPRESSION_TABLES,
+                this::getInvalidProgramIndicatorExpressions,
+                DataIntegrityReport::setInvalidProgramIndicatorExpressions,
+                FlattenedDataIntegrityReport::transformMapOfStrings ),
+            check( "invalidProgramIndicatorFilters", EXPRESSION_TABLES,
+                this::getInvalidProgramIndicatorFilters,
+                DataIntegrityReport::setInvalidProgramIndicatorFilters,
+                FlattenedDataIntegrityReport::transformMapOfStrings ),
+            check( "programRulesWithNoCondition", tables( "programrule", "program" ),
+                this::getProgramRulesWithNoCondition,
+                DataIntegrityReport::setProgramRulesWithoutCondition,
+                FlattenedDataIntegrityReport::transformMapOfCollections ),
+            check( "programRulesWithNoPriority", tables( "programrule", "program" ),
+                this::getProgramRulesWithNoPriority,
+                DataIntegrityReport::setProgramRulesWithNoPriority,
+                FlattenedDataIntegrityReport::transformMapOfCollections ),
+            check( "programRulesWithNoAction", tables( "programrule", "programruleaction", "program" ),
+                this::getProgramRulesWithNoAction,
+                DataIntegrityReport::setProgramRulesWithNoAction,
+                FlattenedDataIntegrityReport::transformMapOfCollections ),
+            check( "programRuleVariablesWithNoDataElement", tables( "programrulevariable", "program" ),
+                this::getProgramRuleVariablesWithNoDataElement,
+                DataIntegrityReport::setProgramRuleVariablesWithNoDataElement,
+                FlattenedDataIntegrityReport::transformMapOfCollections ),
+            check( "programRuleVariablesWithNoAttribute", tables( "programrulevariable", "program" ),
+                this::getProgramRuleVariablesWithNoAttribute,
+                DataIntegrityReport::setProgramRuleVariablesWithNoAttribute,
+                FlattenedDataIntegrityReport::transformMapOfCollections ),
+            check( "programRuleActionsWithNoDataObject", tables( "programruleaction", "programrule" ),
+                this::getProgramRuleActionsWithNoDataObject,
+                DataIntegrityReport::setProgramRuleActionsWithNoDataObject,
+                FlattenedDataIntegrityReport::transformMapOfCollections ),
+            check( "programRuleActionsWithNoNotification", tables( "programruleaction", "programrule" ),
+                this::getProgramRuleActionsWithNoNotificationTemplate,
+                DataIntegrityReport::setProgramRuleActionsWithNoNotification,
+                FlattenedDataIntegrityReport::transformMapOfCollections ),
+            check( "programRuleActionsWithNoSectionId", tables( "programruleaction", "programrule" ),
+                this::getProgramRuleActionsWithNoSectionId,
+                DataIntegrityReport::setProgramRuleActionsWithNoSectionId,
+                FlattenedDataIntegrityReport::transformMapOfCollections ),
+            check( "programRuleActionsWithNoStageId", tables( "programruleaction", "programrule" ),
+                this::getProgramRuleActionsWithNoProgramStageId,
+                DataIntegrityReport::setProgramRuleActionsWithNoStageId,
+                FlattenedDataIntegrityReport::transformMapOfCollections ) );
+    }
+
+    private static <T> DataIntegrityCheck<?> check( String name, Set<String> tables, Supplier<T> check,
+        BiConsumer<DataIntegrityReport, T> reportSetter, Function<T, Object> flattener )
+    {
+        return new DataIntegrityCheck<>( name, tables, check, reportSetter, flattener );
+    }
+
+    private static Set<String> tables( String... tables )
+    {
+        return ImmutableSet.copyOf( tables );
+    }
+
+    private static Set<String> tables( Set<String> tables, String... moreTables )
+    {
+        return ImmutableSet.<String>builder().addAll( tables ).add( moreTables ).build();
+    }
+
+    private static <T extends Comparable<? super T>> List<T> sorted( Collection<T> collection )
+    {
+        List<T> list = new ArrayList<>( collection );
+
+        Collections.sort( list );
+
+        return list;
+    }
+
+    /**
+     * Runs the given checks. Within an existing transaction uncommitted changes
+     * must be visible, the checks run on the current thread. Otherwise the
+     * checks run concurrently, each in its own read-only transaction.
+     *
+     * @param checks the checks to run.
+     * @param runner runs a check.
+     */
+    private void runChecks( List<DataIntegrityCheck<?>> checks, Consumer<DataIntegrityCheck<?>> runner )
+    {
+        if ( checks.isEmpty() )
+        {
+            return;
+        }
+
+        if ( TransactionSynchronizationManager.isActualTransactionActive() )
+        {
+            checks.forEach( runner );
+
+            return;
+        }
+
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        User contextUser = UserContext.getUser();
+        Serializable dbLocale = UserContext.getUserSetting( UserSettingKey.DB_LOCALE );
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate( transactionManager );
+        transactionTemplate.setReadOnly( true );
+
+        ExecutorService executor = Executors.newFixedThreadPool( Math.min( checks.size(), SystemUtils.getCpuCores() ) );
+
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+
+            for ( DataIntegrityCheck<?> check : checks )
+            {
+                futures.add( executor.submit( () -> {
+                    SecurityContextHolder.setContext( securityContext );
+                    UserContext.setUser( contextUser );
+                    UserContext.setUserSetting( UserSettingKey.DB_LOCALE, dbLocale );
+
+                    try
+                    {
+                        transactionTemplate.execute( status -> {
+                            runner.accept( check );
+                            return null;
+                        } );
+                    }
+                    finally
+                    {
+                        UserContext.reset();
+                        SecurityContextHolder.clearContext();
+                    }
+                } ) );
+            }
+
+            ConcurrentUtils.waitForCompletion( futures );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the current version of the tables of each check, made up of the
+     * version of each table. If no table versions are available, no versions
+     * are returned and all checks must run.
+     *
+     * @return the versions by check name.
+     */
+    private Map<String, String> getCheckVersions()
+    {
+        Set<String> tables = checks.stream()
+            .flatMap( check -> check.getTables().stream() )
+            .collect( Collectors.toSet() );
+
+        Map<String, String> tableVersions = getTableVersions( tables );
+
+        Map<String, String> versions = new HashMap<>();
+
+        if ( tableVersions.isEmpty() )
+        {
+            return versions;
+        }
+
+        for ( DataIntegrityCheck<?> check : checks )
+        {
+            versions.put( check.getName(), check.getTables().stream().sorted()
+                .map( table -> table + ":" + tableVersions.getOrDefault( table, "" ) )
+                .collect( Collectors.joining( "," ) ) );
+        }
+
+        return versions;
+    }
+
+    /**
+     * Returns the outcomes of expression checks for the current version of the
+     * expression tables. The outcomes are cleared when the version changed.
+     * If no version is available, an empty map which is not kept is returned.
+     *
+     * @return the outcomes by type and expression.
+     */
+    private synchronized Map<String, Optional<String>> getExpressionOutcomes()
+    {
+        Map<String, String> tableVersions = getTableVersions( EXPRESSION_TABLES );
+
+        if ( tableVersions.isEmpty() )
+        {
+            return new HashMap<>();
+        }
+
+        String version = new TreeMap<>( tableVersions ).toString();
+
+        if ( !version.equals( expressionOutcomesVersion ) )
+        {
+            expressionOutcomes.clear();
+            expressionOutcomesVersion = version;
+        }
+
+        return expressionOutcomes;
+    }
+
+    /**
+     * Returns the i18n key of the validation outcome of the given expression,
+     * or empty if the expression is valid. Parses the expression only if no
+     * outcome is known.
+     */
+    private Optional<String> getExpressionOutcome( Map<String, Optional<String>> outcomes, String expression,
+        ParseType parseType )
+    {
+        return outcomes.computeIfAbsent( parseType.name() + FORMULA_SEPARATOR + expression, k -> {
+            ExpressionValidationOutcome result = expressionService.expressionIsValid( expression, parseType );
+
+            return result.isValid() ? Optional.empty() : Optional.of( result.getKey() );
+        } );
+    }
+
+    private Map<String, String> getTableVersions( Set<String> tables )
+    {
+        try
+        {
+            return checkResultStore.getTableVersions( tables );
+        }
+        catch ( DataAccessException ex )
+        {
+            log.warn( "Could not get table versions, running all data integrity checks", ex );
+
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * Returns the key of the check results of the current database locale,
+     * as flattened results contain translated names.
+     */
+    private String getLocaleKey()
+    {
+        return String.valueOf( UserContext.getUserSetting( UserSettingKey.DB_LOCALE ) );
+    }
+
     private String getInvalidExpressionDescription( String expression )
     {
         try
@@ -847,4 +1173,26 @@ public class DefaultDataIntegrityService
 
         return collectionMap;
     }
+
+    /**
+     * The result of a check of the data integrity report, with the version of
+     * the tables of the check when it ran.
+     */
+    private static class ReportResult
+    {
+        private final String version;
+
+        private final Consumer<DataIntegrityReport> setter;
+
+        ReportResult( String version, Consumer<DataIntegrityReport> setter )
+        {
+            this.version = version;
+            this.setter = setter;
+        }
+
+        boolean isCurrent( String currentVersion )
+        {
+            return version != null && version.equals( currentVersion );
+        }
+    }
 }
@@ -0,0 +1,178 @@
+package org.hisp.dhis.dataintegrity;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.commons.util.TextUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Stores data integrity check results in the dataintegritycheckresult table,
+ * with the flattened result of each check as JSON.
+ */
+@Repository( "org.hisp.dhis.dataintegrity.DataIntegrityCheckResultStore" )
+public class JdbcDataIntegrityCheckResultStore
+    implements DataIntegrityCheckResultStore
+{
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper jsonMapper;
+
+    public JdbcDataIntegrityCheckResultStore( JdbcTemplate jdbcTemplate, ObjectMapper jsonMapper )
+    {
+        checkNotNull( jdbcTemplate );
+        checkNotNull( jsonMapper );
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.jsonMapper = jsonMapper;
+    }
+
+    // -------------------------------------------------------------------------
+    // DataIntegrityCheckResultStore implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Map<String, DataIntegrityCheckResult> getCheckResults( String locale )
+    {
+        final String sql = "select name, version, starttime, duration, result from dataintegritycheckresult where locale = ?";
+
+        Map<String, DataIntegrityCheckResult> results = new HashMap<>();
+
+        jdbcTemplate.query( sql, rs -> {
+            String name = rs.getString( "name" );
+            String result = rs.getString( "result" );
+
+            results.put( name, new DataIntegrityCheckResult( name, result != null ? readResult( result ) : null,
+                rs.getString( "version" ), rs.getTimestamp( "starttime" ), rs.getLong( "duration" ) ) );
+        }, locale );
+
+        return results;
+    }
+
+    @Override
+    public void saveCheckResult( String locale, DataIntegrityCheckResult result )
+    {
+        final String sql = "insert into dataintegritycheckresult (name, locale, version, starttime, duration, result) " +
+            "values (?, ?, ?, ?, ?, cast(? as jsonb)) on conflict (name, locale) do update set " +
+            "version = excluded.version, starttime = excluded.starttime, duration = excluded.duration, result = excluded.result";
+
+        jdbcTemplate.update( sql, result.getName(), locale, result.getVersion(), result.getStartTime(),
+            result.getDuration(), writeResult( result.getResult() ) );
+    }
+
+    /**
+     * Tables with a lastupdated column are versioned by their number of rows
+     * and latest update, as inserts and updates set the column. Other tables
+     * are versioned by their number of rows and the latest transaction which
+     * inserted or updated a row, as every new row version carries the id of
+     * the transaction which wrote it. Reading the transaction id of a row is
+     * much cheaper than hashing the text of the row.
+     */
+    @Override
+    public Map<String, String> getTableVersions( Set<String> tables )
+    {
+        Map<String, String> versions = new HashMap<>();
+
+        if ( tables.isEmpty() )
+        {
+            return versions;
+        }
+
+        String tableNames = TextUtils.getQuotedCommaDelimitedString( tables );
+
+        Set<String> existingTables = new HashSet<>( jdbcTemplate.queryForList(
+            "select table_name from information_schema.tables where table_schema = current_schema() " +
+            "and table_name in (" + tableNames + ")", String.class ) );
+
+        Set<String> lastUpdatedTables = new HashSet<>( jdbcTemplate.queryForList(
+            "select table_name from information_schema.columns where table_schema = current_schema() " +
+            "and column_name = 'lastupdated' and table_name in (" + tableNames + ")", String.class ) );
+
+        if ( existingTables.isEmpty() )
+        {
+            return versions;
+        }
+
+        List<String> tableSql = existingTables.stream()
+            .sorted()
+            .map( table -> lastUpdatedTables.contains( table ) ?
+                "select '" + table + "' as tablename, count(*) || ':' || coalesce(max(lastupdated)::text, '') as version from " + table :
+                "select '" + table + "' as tablename, count(*) || ':' || coalesce(max(xmin::text::bigint), 0) as version from " + table )
+            .collect( Collectors.toList() );
+
+        jdbcTemplate.query( String.join( " union all ", tableSql ),
+            rs -> {
+                versions.put( rs.getString( "tablename" ), rs.getString( "version" ) );
+            } );
+
+        return versions;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private Object readResult( String result )
+    {
+        try
+        {
+            return jsonMapper.readValue( result, Object.class );
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+    }
+
+    private String writeResult( Object result )
+    {
+        try
+        {
+            return result != null ? jsonMapper.writeValueAsString( result ) : null;
+        }
+        catch ( JsonProcessingException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+    }
+}
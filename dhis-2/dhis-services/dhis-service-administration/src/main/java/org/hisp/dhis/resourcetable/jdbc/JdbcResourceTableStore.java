@@ -30,6 +30,9 @@ package org.hisp.dhis.resourcetable.jdbc;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -41,9 +44,16 @@ import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.resourcetable.ResourceTable;
 import org.hisp.dhis.resourcetable.ResourceTableStore;
 import org.hisp.dhis.system.util.Clock;
+import org.hisp.dhis.util.DateUtils;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import com.google.common.hash.Hashing;
+
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -54,6 +64,10 @@ import lombok.extern.slf4j.Slf4j;
 public class JdbcResourceTableStore
     implements ResourceTableStore
 {
+    private static final int COPY_BUFFER_SIZE = 1024 * 1024;
+
+    private static final String FINGERPRINT_TABLE = "resourcetablefingerprint";
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -87,14 +101,28 @@ public class JdbcResourceTableStore
     @Override
     public void generateResourceTable( ResourceTable<?> resourceTable )
     {
-        log.info( String.format( "Generating resource table: '%s'", resourceTable.getTableName() ) );
-
         final Clock clock = new Clock().startClock();
+        final String tableName = resourceTable.getTableName();
         final String createTableSql = resourceTable.getCreateTempTableStatement();
         final Optional<String> populateTableSql = resourceTable.getPopulateTempTableStatement();
-        final Optional<List<Object[]>> populateTableContent = resourceTable.getPopulateTempTableContent();
+        final List<AnalyticsTableHook> hooks = analyticsTableHookService
+            .getByPhaseAndResourceTableType( AnalyticsTablePhase.RESOURCE_TABLE_POPULATED, resourceTable.getTableType() );
+        final String fingerprint = getFingerprint( resourceTable, createTableSql, populateTableSql, hooks );
+
+        // ---------------------------------------------------------------------
+        // Skip if source data is unchanged since last generation
+        // ---------------------------------------------------------------------
+
+        if ( fingerprint != null && fingerprint.equals( getLastFingerprint( tableName ) ) && dbmsManager.tableExists( tableName ) )
+        {
+            log.info( String.format( "Skipping resource table, source data unchanged: '%s'", tableName ) );
+            return;
+        }
+
+        log.info( String.format( "Generating resource table: '%s'", tableName ) );
+
         final List<String> createIndexSql = resourceTable.getCreateIndexStatements();
-        final String analyzeTableSql = statementBuilder.getAnalyze( resourceTable.getTableName() );
+        final String analyzeTableSql = statementBuilder.getAnalyze( tableName );
 
         // ---------------------------------------------------------------------
         // Drop temporary table if it exists
@@ -114,7 +142,7 @@ public class JdbcResourceTableStore
         jdbcTemplate.execute( createTableSql );
 
         // ---------------------------------------------------------------------
-        // Populate temporary table through SQL or object batch update
+        // Populate temporary table through SQL or object bulk load
         // ---------------------------------------------------------------------
 
         if ( populateTableSql.isPresent() )
@@ -123,17 +151,20 @@ public class JdbcResourceTableStore
 
             jdbcTemplate.execute( populateTableSql.get() );
         }
-        else if ( populateTableContent.isPresent() )
+        else
         {
-            List<Object[]> content = populateTableContent.get();
+            Optional<List<Object[]>> populateTableContent = resourceTable.getPopulateTempTableContent();
 
-            log.debug( String.format( "Populate table content rows: '%d'", content.size() ) );
-
-            if ( content.size() > 0 )
+            if ( populateTableContent.isPresent() )
             {
-                int columns = content.get( 0 ).length;
+                List<Object[]> content = populateTableContent.get();
+
+                log.debug( String.format( "Populate table content rows: '%d'", content.size() ) );
 
-                batchUpdate( columns, resourceTable.getTempTableName(), content );
+                if ( content.size() > 0 )
+                {
+                    bulkLoad( resourceTable.getTempTableName(), content );
+                }
             }
         }
 
@@ -141,9 +172,6 @@ public class JdbcResourceTableStore
         // Invoke hooks
         // ---------------------------------------------------------------------
 
-        List<AnalyticsTableHook> hooks = analyticsTableHookService
-            .getByPhaseAndResourceTableType( AnalyticsTablePhase.RESOURCE_TABLE_POPULATED, resourceTable.getTableType() );
-
         if ( !hooks.isEmpty() )
         {
             analyticsTableHookService.executeAnalyticsTableSqlHooks( hooks );
@@ -188,7 +216,12 @@ public class JdbcResourceTableStore
 
         log.debug( String.format( "Analyzed resource table: '%s'", resourceTable.getTableName() ) );
 
-        log.info( String.format( "Resource table '%s' update done: '%s'", resourceTable.getTableName(), clock.time() ) );
+        if ( fingerprint != null )
+        {
+            saveFingerprint( tableName, fingerprint );
+        }
+
+        log.info( String.format( "Resource table '%s' update done: '%s'", tableName, clock.time() ) );
     }
 
     @Override
@@ -210,4 +243,146 @@ public class JdbcResourceTableStore
 
         jdbcTemplate.batchUpdate( builder.toString(), batchArgs );
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns a fingerprint of the given resource table, which covers the
+     * source data as well as the statements used to create and populate the
+     * table, or null if the table does not provide a fingerprint statement or
+     * if fingerprints can not be persisted.
+     */
+    private String getFingerprint( ResourceTable<?> resourceTable, String createTableSql,
+        Optional<String> populateTableSql, List<AnalyticsTableHook> hooks )
+    {
+        Optional<String> fingerprintSql = resourceTable.getFingerprintStatement();
+
+        if ( !fingerprintSql.isPresent() || !dbmsManager.tableExists( FINGERPRINT_TABLE ) )
+        {
+            return null;
+        }
+
+        String sourceFingerprint = jdbcTemplate.queryForObject( fingerprintSql.get(), String.class );
+
+        StringBuilder builder = new StringBuilder( createTableSql )
+            .append( populateTableSql.orElse( "" ) )
+            .append( sourceFingerprint );
+
+        hooks.forEach( hook -> builder.append( hook.getSql() ) );
+
+        return Hashing.sha256().hashString( builder, StandardCharsets.UTF_8 ).toString();
+    }
+
+    /**
+     * Returns the persisted fingerprint of the last generation of the given
+     * resource table, or null if none exists. Fingerprints are persisted so
+     * that they survive restarts and are shared between server instances.
+     */
+    private String getLastFingerprint( String tableName )
+    {
+        List<String> fingerprints = jdbcTemplate.queryForList(
+            "select fingerprint from " + FINGERPRINT_TABLE + " where tablename = ?", String.class, tableName );
+
+        return fingerprints.isEmpty() ? null : fingerprints.get( 0 );
+    }
+
+    private void saveFingerprint( String tableName, String fingerprint )
+    {
+        final String sql = "insert into " + FINGERPRINT_TABLE + " (tablename, fingerprint, lastupdated) values (?, ?, ?) " +
+            "on conflict (tablename) do update set fingerprint = excluded.fingerprint, lastupdated = excluded.lastupdated";
+
+        jdbcTemplate.update( sql, tableName, fingerprint, new Date() );
+    }
+
+    /**
+     * Loads the given content into the given table. Uses the PostgreSQL COPY
+     * protocol when available, and falls back to a batch update otherwise.
+     */
+    private void bulkLoad( String tableName, List<Object[]> content )
+    {
+        Boolean copied = jdbcTemplate.execute( (ConnectionCallback<Boolean>) connection -> {
+            if ( !connection.isWrapperFor( PGConnection.class ) )
+            {
+                return false;
+            }
+
+            copy( connection.unwrap( PGConnection.class ).getCopyAPI(), tableName, content );
+            return true;
+        } );
+
+        if ( !Boolean.TRUE.equals( copied ) )
+        {
+            batchUpdate( content.get( 0 ).length, tableName, content );
+        }
+    }
+
+    private void copy( CopyManager copyManager, String tableName, List<Object[]> content )
+        throws SQLException
+    {
+        CopyIn copyIn = copyManager.copyIn( "copy " + tableName + " from stdin with (format csv)" );
+
+        try
+        {
+            StringBuilder builder = new StringBuilder();
+
+            for ( Object[] row : content )
+            {
+                appendCsvRow( builder, row );
+
+                if ( builder.length() >= COPY_BUFFER_SIZE )
+                {
+                    writeToCopy( copyIn, builder );
+                }
+            }
+
+            writeToCopy( copyIn, builder );
+
+            long rows = copyIn.endCopy();
+
+            log.debug( String.format( "Copied rows into table: '%s', '%d'", tableName, rows ) );
+        }
+        finally
+        {
+            if ( copyIn.isActive() )
+            {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private void writeToCopy( CopyIn copyIn, StringBuilder builder )
+        throws SQLException
+    {
+        byte[] bytes = builder.toString().getBytes( StandardCharsets.UTF_8 );
+        copyIn.writeToCopy( bytes, 0, bytes.length );
+        builder.setLength( 0 );
+    }
+
+    /**
+     * Appends the given row in CSV format, where null values are written as
+     * unquoted empty values and all other values are quoted.
+     */
+    private void appendCsvRow( StringBuilder builder, Object[] row )
+    {
+        for ( int i = 0; i < row.length; i++ )
+        {
+            if ( i > 0 )
+            {
+                builder.append( ',' );
+            }
+
+            Object value = row[i];
+
+            if ( value != null )
+            {
+                String text = value instanceof Date ? DateUtils.getLongDateString( (Date) value ) : value.toString();
+
+                builder.append( '"' ).append( text.replace( "\"", "\"\"" ) ).append( '"' );
+            }
+        }
+
+        builder.append( '\n' );
+    }
 }
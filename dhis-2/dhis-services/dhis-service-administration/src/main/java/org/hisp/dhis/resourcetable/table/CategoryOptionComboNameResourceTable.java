@@ -105,6 +105,14 @@ public class CategoryOptionComboNameResourceTable
         return Optional.of( batchArgs );
     }
 
+    @Override
+    public Optional<String> getFingerprintStatement()
+    {
+        return Optional.of( getSourceFingerprintStatement(
+            Lists.newArrayList( "categorycombo", "categoryoptioncombo", "dataelementcategoryoption" ),
+            Lists.newArrayList( "categorycombos_optioncombos", "categoryoptioncombos_categoryoptions" ) ) );
+    }
+
     @Override
     public List<String> getCreateIndexStatements()
     {
@@ -86,6 +86,14 @@ public class CategoryOptionComboResourceTable
         return Optional.empty();
     }
 
+    @Override
+    public Optional<String> getFingerprintStatement()
+    {
+        return Optional.of( getSourceFingerprintStatement(
+            Lists.newArrayList( "dataelement", "categoryoptioncombo" ),
+            Lists.newArrayList( "categorycombos_optioncombos" ) ) );
+    }
+
     @Override
     public List<String> getCreateIndexStatements()
     {
@@ -145,6 +145,14 @@ public class CategoryResourceTable
         return Optional.empty();
     }
 
+    @Override
+    public Optional<String> getFingerprintStatement()
+    {
+        return Optional.of( getSourceFingerprintStatement(
+            Lists.newArrayList( "categoryoptioncombo", "dataelementcategoryoption", "dataelementcategory", "categoryoptiongroup", "categoryoptiongroupset" ),
+            Lists.newArrayList( "categoryoptioncombos_categoryoptions", "categories_categoryoptions", "categoryoptiongroupmembers", "categoryoptiongroupsetmembers" ) ) );
+    }
+
     @Override
     public List<String> getCreateIndexStatements()
     {
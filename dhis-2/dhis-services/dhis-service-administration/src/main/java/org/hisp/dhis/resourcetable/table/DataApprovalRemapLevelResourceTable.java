@@ -103,6 +103,14 @@ public class DataApprovalRemapLevelResourceTable
         return Optional.empty();
     }
 
+    @Override
+    public Optional<String> getFingerprintStatement()
+    {
+        return Optional.of( getSourceFingerprintStatement(
+            Lists.newArrayList( "dataapprovallevel", "dataapprovalworkflow" ),
+            Lists.newArrayList( "dataapprovalworkflowlevels" ) ) );
+    }
+
     @Override
     public List<String> getCreateIndexStatements()
     {
@@ -113,6 +113,14 @@ public class DataElementGroupSetResourceTable
         return Optional.empty();
     }
 
+    @Override
+    public Optional<String> getFingerprintStatement()
+    {
+        return Optional.of( getSourceFingerprintStatement(
+            Lists.newArrayList( "dataelement", "dataelementgroup", "dataelementgroupset" ),
+            Lists.newArrayList( "dataelementgroupmembers", "dataelementgroupsetmembers" ) ) );
+    }
+
     @Override
     public List<String> getCreateIndexStatements()
     {
@@ -117,6 +117,14 @@ public class DataElementResourceTable
         return Optional.of( batchArgs );
     }
 
+    @Override
+    public Optional<String> getFingerprintStatement()
+    {
+        return Optional.of( getSourceFingerprintStatement(
+            Lists.newArrayList( "dataelement", "dataset", "dataapprovalworkflow" ),
+            Lists.newArrayList( "datasetelement" ) ) );
+    }
+
     @Override
     public List<String> getCreateIndexStatements()
     {
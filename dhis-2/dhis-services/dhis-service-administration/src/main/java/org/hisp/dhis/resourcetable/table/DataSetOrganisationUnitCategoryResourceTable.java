@@ -133,6 +133,14 @@ public class DataSetOrganisationUnitCategoryResourceTable
         return Optional.of( batchArgs );
     }
 
+    @Override
+    public Optional<String> getFingerprintStatement()
+    {
+        return Optional.of( getSourceFingerprintStatement(
+            Lists.newArrayList( "dataset", "organisationunit", "categorycombo", "categoryoptioncombo", "dataelementcategoryoption" ),
+            Lists.newArrayList( "datasetsource", "categoryoption_organisationunits", "categorycombos_optioncombos", "categoryoptioncombos_categoryoptions" ) ) );
+    }
+
     @Override
     public List<String> getCreateIndexStatements()
     {
@@ -113,6 +113,14 @@ public class IndicatorGroupSetResourceTable
         return Optional.empty();
     }
 
+    @Override
+    public Optional<String> getFingerprintStatement()
+    {
+        return Optional.of( getSourceFingerprintStatement(
+            Lists.newArrayList( "indicator", "indicatorgroup", "indicatorgroupset" ),
+            Lists.newArrayList( "indicatorgroupmembers", "indicatorgroupsetmembers" ) ) );
+    }
+
     @Override
     public List<String> getCreateIndexStatements()
     {
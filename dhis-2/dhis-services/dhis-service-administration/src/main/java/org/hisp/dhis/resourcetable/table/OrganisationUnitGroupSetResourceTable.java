@@ -162,6 +162,14 @@ public class OrganisationUnitGroupSetResourceTable
         return Optional.empty();
     }
 
+    @Override
+    public Optional<String> getFingerprintStatement()
+    {
+        return Optional.of( getSourceFingerprintStatement(
+            Lists.newArrayList( "organisationunit", "orgunitgroup", "orgunitgroupset" ),
+            Lists.newArrayList( "orgunitgroupmembers", "orgunitgroupsetmembers" ) ) );
+    }
+
     @Override
     public List<String> getCreateIndexStatements()
     {
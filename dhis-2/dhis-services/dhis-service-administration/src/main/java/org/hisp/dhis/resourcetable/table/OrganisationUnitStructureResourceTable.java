@@ -138,6 +138,14 @@ public class OrganisationUnitStructureResourceTable
         return Optional.of( batchArgs );
     }
 
+    @Override
+    public Optional<String> getFingerprintStatement()
+    {
+        return Optional.of( getSourceFingerprintStatement(
+            Lists.newArrayList( "organisationunit" ),
+            Lists.newArrayList() ) );
+    }
+
     @Override
     public List<String> getCreateIndexStatements()
     {
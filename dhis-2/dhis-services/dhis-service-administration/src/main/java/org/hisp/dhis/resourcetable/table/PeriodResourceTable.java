@@ -134,6 +134,16 @@ public class PeriodResourceTable
         return Optional.of( batchArgs );
     }
 
+    /**
+     * Periods are never updated, so the row count and the max identifier of
+     * the period table is used as fingerprint.
+     */
+    @Override
+    public Optional<String> getFingerprintStatement()
+    {
+        return Optional.of( "select concat_ws('|', count(*), max(periodid)) from period" );
+    }
+
     @Override
     public List<String> getCreateIndexStatements()
     {
@@ -76,8 +76,10 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
+import org.springframework.transaction.PlatformTransactionManager;
 
 /**
  * @author Lars Helge Overland
@@ -134,6 +136,12 @@ public class DataIntegrityServiceTest
     @Mock
     private ProgramRuleActionService programRuleActionService;
 
+    @Mock
+    private DataIntegrityCheckResultStore checkResultStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
@@ -160,7 +168,6 @@ public class DataIntegrityServiceTest
     private OrganisationUnit unitD;
     private OrganisationUnit unitE;
     private OrganisationUnit unitF;
-    private List<OrganisationUnit> allOrgUnits;
 
     private OrganisationUnitGroup unitGroupA;
     private OrganisationUnitGroup unitGroupB;
@@ -182,7 +189,8 @@ public class DataIntegrityServiceTest
         subject = new DefaultDataIntegrityService( i18nManager, dataElementService, indicatorService, dataSetService,
             organisationUnitService, organisationUnitGroupService, validationRuleService, expressionService,
             dataEntryFormService, categoryService, periodService, programIndicatorService,
-            programRuleService, programRuleVariableService, programRuleActionService );
+            programRuleService, programRuleVariableService, programRuleActionService, checkResultStore,
+            transactionManager );
         rnd = new BeanRandomizer();
         setUpFixtures();
     }
@@ -220,7 +228,6 @@ public class DataIntegrityServiceTest
         unitE = createOrganisationUnit( 'E', unitD );
         unitF = createOrganisationUnit( 'F' );
         unitA.setParent( unitC );
-        allOrgUnits = newArrayList(unitA, unitB, unitC, unitD, unitE, unitF);
 
         dataSetA = createDataSet( 'A', new MonthlyPeriodType() );
         dataSetB = createDataSet( 'B', new QuarterlyPeriodType() );
@@ -376,7 +383,7 @@ public class DataIntegrityServiceTest
     @Test
     public void testGetIndicatorsWithIdenticalFormulas()
     {
-        when(indicatorService.getAllIndicators()).thenReturn(newArrayList(indicatorA, indicatorB, indicatorC));
+        when(indicatorService.getIndicatorsWithIdenticalFormulas()).thenReturn(newArrayList(indicatorB, indicatorC));
         Set<Set<Indicator>> expected = subject.getIndicatorsWithIdenticalFormulas();
 
         Collection<Indicator> violation = expected.iterator().next();
@@ -397,21 +404,23 @@ public class DataIntegrityServiceTest
     @Test
     public void testGetOrganisationUnitsWithCyclicReferences()
     {
-        when(organisationUnitService.getAllOrganisationUnits()).thenReturn(allOrgUnits);
+        when(organisationUnitService.getOrganisationUnitsWithCyclicReferences()).thenReturn(newArrayList(unitA, unitB, unitC));
 
         Collection<OrganisationUnit> expected = subject.getOrganisationUnitsWithCyclicReferences();
         assertThat(expected, hasSize(3));
         assertThat(expected, hasItems(unitA, unitB, unitC));
+        verify(organisationUnitService, never()).getAllOrganisationUnits();
     }
 
     @Test
     public void testGetOrphanedOrganisationUnits()
     {
-        when(organisationUnitService.getAllOrganisationUnits()).thenReturn(allOrgUnits);
+        when(organisationUnitService.getOrphanedOrganisationUnits()).thenReturn(newArrayList(unitF));
 
         Collection<OrganisationUnit> expected = subject.getOrphanedOrganisationUnits();
         assertThat(expected, hasSize(1));
         assertThat(expected, hasItem(unitF));
+        verify(organisationUnitService, never()).getAllOrganisationUnits();
     }
 
     @Test
@@ -531,6 +540,131 @@ public class DataIntegrityServiceTest
         assertTrue( invalidExpressions.isEmpty() );
     }
 
+    @Test
+    public void testGetDataIntegrityReport()
+    {
+        when( organisationUnitService.getOrphanedOrganisationUnits() ).thenReturn( newArrayList( unitF ) );
+        when( indicatorService.getIndicatorsWithIdenticalFormulas() ).thenReturn( newArrayList( indicatorB, indicatorC ) );
+
+        DataIntegrityReport report = subject.getDataIntegrityReport();
+
+        assertThat( report.getOrphanedOrganisationUnits(), contains( unitF ) );
+        assertThat( report.getIndicatorsWithIdenticalFormulas(), hasSize( 1 ) );
+    }
+
+    @Test
+    public void testGetDataIntegrityReportReusesUnchangedChecks()
+    {
+        when( organisationUnitService.getOrphanedOrganisationUnits() ).thenReturn( newArrayList( unitF ) );
+
+        Map<String, String> tableVersions = new HashMap<>();
+        tableVersions.put( "organisationunit", "1" );
+        tableVersions.put( "indicator", "1" );
+        mockCheckResultStore( tableVersions );
+
+        subject.getDataIntegrityReport();
+
+        DataIntegrityReport report = subject.getDataIntegrityReport();
+
+        assertThat( report.getOrphanedOrganisationUnits(), contains( unitF ) );
+        verify( organisationUnitService, times( 1 ) ).getOrphanedOrganisationUnits();
+
+        tableVersions.put( "organisationunit", "2" );
+
+        report = subject.getDataIntegrityReport();
+
+        assertThat( report.getOrphanedOrganisationUnits(), contains( unitF ) );
+        verify( organisationUnitService, times( 2 ) ).getOrphanedOrganisationUnits();
+        verify( indicatorService, times( 1 ) ).getIndicatorsWithIdenticalFormulas();
+    }
+
+    @Test
+    public void testInvalidProgramIndicatorExpressionParsedOnce()
+    {
+        ProgramIndicator programIndicator = new ProgramIndicator();
+        programIndicator.setName( "Test-PI" );
+        programIndicator.setExpression( "A{someuid} + 1" );
+
+        Map<String, String> tableVersions = new HashMap<>();
+        tableVersions.put( "programindicator", "1" );
+        mockCheckResultStore( tableVersions );
+
+        when( programIndicatorService.expressionIsValid( anyString() ) ).thenReturn( false );
+        when( programIndicatorService.getAllProgramIndicators() ).thenReturn( Arrays.asList( programIndicator ) );
+
+        when( expressionService.getExpressionDescription( anyString(), any() ) )
+            .thenThrow( new ParserException(  INVALID_EXPRESSION ) );
+
+        subject.getInvalidProgramIndicatorExpressions();
+
+        Map<ProgramIndicator, String> invalidExpressions = subject.getInvalidProgramIndicatorExpressions();
+
+        assertEquals( INVALID_EXPRESSION, invalidExpressions.get( programIndicator ) );
+        verify( programIndicatorService, times( 1 ) ).expressionIsValid( anyString() );
+
+        tableVersions.put( "programindicator", "2" );
+
+        subject.getInvalidProgramIndicatorExpressions();
+
+        verify( programIndicatorService, times( 2 ) ).expressionIsValid( anyString() );
+    }
+
+    @Test
+    public void testGetFlattenedDataIntegrityReportReusesUnchangedChecks()
+    {
+        when( organisationUnitService.getOrphanedOrganisationUnits() ).thenReturn( newArrayList( unitF ) );
+
+        Map<String, String> tableVersions = new HashMap<>();
+        tableVersions.put( "organisationunit", "1" );
+        tableVersions.put( "indicator", "1" );
+        mockCheckResultStore( tableVersions );
+
+        FlattenedDataIntegrityReport report = subject.getFlattenedDataIntegrityReport();
+
+        assertThat( report.getResults(), hasKey( "orphanedOrganisationUnits" ) );
+        assertThat( (Collection<?>) report.getResults().get( "orphanedOrganisationUnits" ), hasSize( 1 ) );
+        assertThat( report.getResults().keySet(), hasSize( subject.getDataIntegrityCheckResults().size() ) );
+
+        subject.getFlattenedDataIntegrityReport();
+
+        verify( organisationUnitService, times( 1 ) ).getOrphanedOrganisationUnits();
+        verify( indicatorService, times( 1 ) ).getIndicatorsWithIdenticalFormulas();
+
+        tableVersions.put( "organisationunit", "2" );
+
+        report = subject.getFlattenedDataIntegrityReport();
+
+        assertThat( (Collection<?>) report.getResults().get( "orphanedOrganisationUnits" ), hasSize( 1 ) );
+        verify( organisationUnitService, times( 2 ) ).getOrphanedOrganisationUnits();
+        verify( organisationUnitService, times( 2 ) ).getOrganisationUnitsWithCyclicReferences();
+        verify( indicatorService, times( 1 ) ).getIndicatorsWithIdenticalFormulas();
+    }
+
+    @Test
+    public void testGetFlattenedDataIntegrityReportWithoutTableVersions()
+    {
+        mockCheckResultStore( new HashMap<>() );
+
+        subject.getFlattenedDataIntegrityReport();
+        subject.getFlattenedDataIntegrityReport();
+
+        verify( organisationUnitService, times( 2 ) ).getOrphanedOrganisationUnits();
+    }
+
+    private void mockCheckResultStore( Map<String, String> tableVersions )
+    {
+        Map<String, DataIntegrityCheckResult> results = new HashMap<>();
+
+        when( checkResultStore.getTableVersions( anySet() ) ).thenAnswer( invocation -> new HashMap<>( tableVersions ) );
+        when( checkResultStore.getCheckResults( anyString() ) ).thenAnswer( invocation -> new HashMap<>( results ) );
+
+        doAnswer( invocation -> {
+            DataIntegrityCheckResult result = invocation.getArgument( 1 );
+            results.put( result.getName(), result );
+            return null;
+        } ).when( checkResultStore ).saveCheckResult( anyString(), Mockito.any( DataIntegrityCheckResult.class ) );
+    }
+
     private Map<String, DataElement> createRandomDataElements(int quantity, String uidSeed) {
 
         return IntStream.range( 1, quantity + 1 ).mapToObj(i -> {
@@ -0,0 +1,137 @@
+package org.hisp.dhis.dataintegrity;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+
+import org.hisp.dhis.IntegrationTestBase;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class JdbcDataIntegrityCheckResultStoreTest
+    extends IntegrationTestBase
+{
+    @Autowired
+    private DataIntegrityCheckResultStore checkResultStore;
+
+    @Autowired
+    private IdentifiableObjectManager manager;
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    @Test
+    public void testSaveAndGetCheckResults()
+    {
+        Date startTime = new Date();
+
+        checkResultStore.saveCheckResult( "en", new DataIntegrityCheckResult( "checkA",
+            Lists.newArrayList( "A", "B" ), "organisationunit:1", startTime, 10 ) );
+        checkResultStore.saveCheckResult( "en", new DataIntegrityCheckResult( "checkB",
+            ImmutableMap.of( "A", "B" ), null, startTime, 20 ) );
+        checkResultStore.saveCheckResult( "fr", new DataIntegrityCheckResult( "checkA",
+            Lists.newArrayList( "C" ), "organisationunit:1", startTime, 30 ) );
+
+        Map<String, DataIntegrityCheckResult> results = checkResultStore.getCheckResults( "en" );
+
+        assertEquals( 2, results.size() );
+        assertEquals( Lists.newArrayList( "A", "B" ), results.get( "checkA" ).getResult() );
+        assertEquals( "organisationunit:1", results.get( "checkA" ).getVersion() );
+        assertEquals( startTime.getTime(), results.get( "checkA" ).getStartTime().getTime() );
+        assertEquals( 10, results.get( "checkA" ).getDuration() );
+        assertEquals( ImmutableMap.of( "A", "B" ), results.get( "checkB" ).getResult() );
+        assertNull( results.get( "checkB" ).getVersion() );
+
+        checkResultStore.saveCheckResult( "en", new DataIntegrityCheckResult( "checkA",
+            Lists.newArrayList(), "organisationunit:2", startTime, 40 ) );
+
+        results = checkResultStore.getCheckResults( "en" );
+
+        assertEquals( Lists.newArrayList(), results.get( "checkA" ).getResult() );
+        assertEquals( "organisationunit:2", results.get( "checkA" ).getVersion() );
+        assertEquals( 40, results.get( "checkA" ).getDuration() );
+
+        assertEquals( Lists.newArrayList( "C" ), checkResultStore.getCheckResults( "fr" ).get( "checkA" ).getResult() );
+    }
+
+    @Test
+    public void testGetTableVersions()
+    {
+        Set<String> tables = Sets.newHashSet( "organisationunit", "orgunitgroupmembers", "nonexistingtable" );
+
+        Map<String, String> versions = checkResultStore.getTableVersions( tables );
+
+        assertTrue( versions.containsKey( "organisationunit" ) );
+        assertTrue( versions.containsKey( "orgunitgroupmembers" ) );
+        assertFalse( versions.containsKey( "nonexistingtable" ) );
+        assertEquals( versions, checkResultStore.getTableVersions( tables ) );
+
+        OrganisationUnit ouA = createOrganisationUnit( 'A' );
+        OrganisationUnitGroup groupA = createOrganisationUnitGroup( 'A' );
+
+        manager.save( ouA );
+        manager.save( groupA );
+
+        Map<String, String> changedVersions = checkResultStore.getTableVersions( tables );
+
+        assertNotEquals( versions.get( "organisationunit" ), changedVersions.get( "organisationunit" ) );
+        assertEquals( versions.get( "orgunitgroupmembers" ), changedVersions.get( "orgunitgroupmembers" ) );
+
+        groupA.addOrganisationUnit( ouA );
+        manager.update( groupA );
+
+        Map<String, String> memberVersions = checkResultStore.getTableVersions( tables );
+
+        assertNotEquals( changedVersions.get( "orgunitgroupmembers" ), memberVersions.get( "orgunitgroupmembers" ) );
+
+        ouA.setName( "Renamed" );
+        manager.update( ouA );
+
+        assertNotEquals( memberVersions.get( "organisationunit" ),
+            checkResultStore.getTableVersions( tables ).get( "organisationunit" ) );
+    }
+}
@@ -28,6 +28,8 @@ package org.hisp.dhis.resourcetable;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import static org.junit.Assert.assertEquals;
+
 import org.hisp.dhis.DhisTest;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.dataelement.DataElement;
@@ -40,6 +42,7 @@ import org.hisp.dhis.period.MonthlyPeriodType;
 import org.hisp.dhis.period.PeriodType;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 /**
  * @author Lars Helge Overland
@@ -56,6 +59,9 @@ public class ResourceTableServiceTest
     @Autowired
     private DataSetService dataSetService;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Override
     public void setUpTest()
     {
@@ -138,4 +144,28 @@ public class ResourceTableServiceTest
         resourceTableService.generateDatePeriodTable();
         resourceTableService.generateCategoryOptionComboTable();
     }
+
+    @Test
+    public void testRegenerateResourceTableOnSourceChange()
+    {
+        resourceTableService.generateOrganisationUnitStructures();
+
+        assertEquals( 3, countRows( "_orgunitstructure" ) );
+
+        resourceTableService.generateOrganisationUnitStructures();
+
+        assertEquals( 3, countRows( "_orgunitstructure" ) );
+
+        OrganisationUnit ouD = createOrganisationUnit( 'D' );
+        idObjectManager.save( ouD );
+
+        resourceTableService.generateOrganisationUnitStructures();
+
+        assertEquals( 4, countRows( "_orgunitstructure" ) );
+    }
+
+    private int countRows( String table )
+    {
+        return jdbcTemplate.queryForObject( "select count(*) from " + table, Integer.class );
+    }
 }
@@ -116,6 +116,15 @@ public interface AnalyticsTableManager
      */
     void swapTable( AnalyticsTableUpdateParams params, AnalyticsTable table );
 
+    /**
+     * Performs work after tables have been swapped, i.e. when the updated
+     * analytics tables are in place under their real names.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param tables the list of {@link AnalyticsTable}.
+     */
+    void postSwapTables( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables );
+
     /**
      * Copies and denormalizes rows from data value table into analytics table.
      * The data range is based on the start date of the data value row.
@@ -84,7 +84,7 @@ import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.feedback.ErrorCode;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
-import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.period.PeriodIndex;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.jdbc.BadSqlGrammarException;
@@ -216,6 +216,8 @@ public class JdbcAnalyticsManager
                 return; // Period is filter, nothing to replace
             }
 
+            PeriodIndex index = PeriodIndex.getInstance();
+
             Set<String> keys = new HashSet<>( dataValueMap.keySet() );
 
             for ( String key : keys )
@@ -226,7 +228,7 @@ public class JdbcAnalyticsManager
 
                 Assert.notNull( periodKey, String.format( "Period key cannot be null, key: '%s'", key ) );
 
-                List<DimensionalItemObject> periods = dataPeriodAggregationPeriodMap.get( PeriodType.getPeriodFromIsoString( periodKey ) );
+                List<DimensionalItemObject> periods = dataPeriodAggregationPeriodMap.get( index.getPeriod( periodKey ) );
 
                 Assert.notNull( periods, String.format( "Period list cannot be null, key: '%s', map: '%s'", key, dataPeriodAggregationPeriodMap.toString() ) );
 
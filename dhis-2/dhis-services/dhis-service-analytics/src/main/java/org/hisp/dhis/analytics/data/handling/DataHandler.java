@@ -96,7 +96,6 @@ import static org.hisp.dhis.commons.util.DebugUtils.getStackTrace;
 import static org.hisp.dhis.commons.util.SystemUtils.getCpuCores;
 import static org.hisp.dhis.dataelement.DataElementOperand.TotalType.values;
 import static org.hisp.dhis.period.DailyPeriodType.NAME;
-import static org.hisp.dhis.period.PeriodType.getPeriodFromIsoString;
 import static org.hisp.dhis.period.PeriodType.getPeriodTypeFromIsoString;
 import static org.hisp.dhis.setting.SettingKey.ANALYTICS_MAX_LIMIT;
 import static org.hisp.dhis.setting.SettingKey.DATABASE_SERVER_CPUS;
@@ -148,6 +147,7 @@ import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodIndex;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.util.Timer;
@@ -648,7 +648,7 @@ public class DataHandler
     {
         if ( dataSetPt.equalsName( NAME ) )
         {
-            Period period = getPeriodFromIsoString( dataRow.get( periodIndex ) );
+            Period period = PeriodIndex.getInstance().getPeriod( dataRow.get( periodIndex ) );
             target = target * period.getDaysInPeriod() * timeUnits;
         }
         else
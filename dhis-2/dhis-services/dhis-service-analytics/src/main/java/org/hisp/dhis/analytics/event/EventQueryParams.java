@@ -228,6 +228,11 @@ public class EventQueryParams
      */
     protected IdScheme dataIdScheme;
 
+    /**
+     * Periods which were replaced by the start and end date of this query.
+     */
+    private List<DimensionalItemObject> replacedPeriods = new ArrayList<>();
+
     // -------------------------------------------------------------------------
     // Constructors
     // -------------------------------------------------------------------------
@@ -286,6 +291,7 @@ public class EventQueryParams
         params.programStatus = this.programStatus;
         params.includeMetadataDetails = this.includeMetadataDetails;
         params.dataIdScheme = this.dataIdScheme;
+        params.replacedPeriods = new ArrayList<>( this.replacedPeriods );
 
         params.periodType = this.periodType;
 
@@ -398,6 +404,10 @@ public class EventQueryParams
     {
         List<Period> periods = asTypedList( getDimensionOrFilterItems( PERIOD_DIM_ID ) );
 
+        // the periods only describe the date range if no dates were given
+
+        replacedPeriods = startDate == null && endDate == null ? new ArrayList<>( periods ) : new ArrayList<>();
+
         for ( Period period : periods )
         {
             Date start = period.getStartDate();
@@ -786,6 +796,15 @@ public class EventQueryParams
         return bbox != null && !bbox.isEmpty();
     }
 
+    /**
+     * Indicates whether the start and end date of this query were derived
+     * from periods, see {@link #getReplacedPeriods()}.
+     */
+    public boolean hasReplacedPeriods()
+    {
+        return !replacedPeriods.isEmpty();
+    }
+
     public boolean hasDataIdScheme()
     {
         return dataIdScheme != null;
@@ -934,6 +953,15 @@ public class EventQueryParams
         return bbox;
     }
 
+    /**
+     * Returns the periods which were replaced by the start and end date of
+     * this query, or an empty list if the dates were not derived from periods.
+     */
+    public List<DimensionalItemObject> getReplacedPeriods()
+    {
+        return replacedPeriods;
+    }
+
     public boolean isIncludeClusterPoints()
     {
         return includeClusterPoints;
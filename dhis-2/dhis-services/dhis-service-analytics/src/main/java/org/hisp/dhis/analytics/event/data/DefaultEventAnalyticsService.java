@@ -45,10 +45,13 @@ import static org.hisp.dhis.analytics.DataQueryParams.VALUE_HEADER_NAME;
 import static org.hisp.dhis.analytics.DataQueryParams.VALUE_ID;
 import static org.hisp.dhis.common.DimensionalObject.ORGUNIT_DIM_ID;
 import static org.hisp.dhis.common.DimensionalObject.PERIOD_DIM_ID;
+import static org.hisp.dhis.commons.util.SystemUtils.getCpuCores;
 import static org.hisp.dhis.reporttable.ReportTable.COLUMN_NAMES;
 import static org.hisp.dhis.reporttable.ReportTable.DASH_PRETTY_SEPARATOR;
 import static org.hisp.dhis.reporttable.ReportTable.SPACE;
 import static org.hisp.dhis.reporttable.ReportTable.TOTAL_COLUMN_PRETTY_NAME;
+import static org.hisp.dhis.setting.SettingKey.DATABASE_SERVER_CPUS;
+import static org.hisp.dhis.system.util.MathUtils.getWithin;
 import static org.hisp.dhis.analytics.util.AnalyticsUtils.throwIllegalQueryEx;
 
 import java.util.ArrayList;
@@ -57,6 +60,15 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
 
 import org.apache.commons.lang3.StringUtils;
 import org.hisp.dhis.analytics.AnalyticsSecurityManager;
@@ -86,9 +98,11 @@ import org.hisp.dhis.common.ValueTypedDimensionalItemObject;
 import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
 import org.hisp.dhis.commons.collection.ListUtils;
 import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.datasource.DataSourceManager;
 import org.hisp.dhis.feedback.ErrorCode;
 import org.hisp.dhis.legend.Legend;
 import org.hisp.dhis.option.Option;
+import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.database.DatabaseInfo;
 import org.hisp.dhis.system.grid.ListGrid;
 import org.hisp.dhis.trackedentity.TrackedEntityAttributeService;
@@ -97,6 +111,7 @@ import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -126,6 +141,11 @@ public class DefaultEventAnalyticsService
     private static final String NAME_EXTENT = "Extent";
     private static final String NAME_POINTS = "Points";
 
+    /**
+     * Max number of planned queries of a request executed concurrently.
+     */
+    private static final int MAX_QUERIES = 8;
+
     private static final Option OPT_TRUE = new Option( "Yes", "1" );
     private static final Option OPT_FALSE = new Option( "No", "0" );
 
@@ -145,11 +165,20 @@ public class DefaultEventAnalyticsService
 
     private final AnalyticsCache analyticsCache;
 
+    private final SystemSettingManager systemSettingManager;
+
+    /**
+     * Executor of planned aggregate queries, bounded by the size of the read
+     * only connection pool.
+     */
+    private final ExecutorService queryExecutor;
+
     public DefaultEventAnalyticsService( DataElementService dataElementService,
         TrackedEntityAttributeService trackedEntityAttributeService, EventAnalyticsManager eventAnalyticsManager,
         EventDataQueryService eventDataQueryService, AnalyticsSecurityManager securityManager,
         EventQueryPlanner queryPlanner, EventQueryValidator queryValidator, DatabaseInfo databaseInfo,
-        AnalyticsCache analyticsCache, EnrollmentAnalyticsManager enrollmentAnalyticsManager )
+        AnalyticsCache analyticsCache, EnrollmentAnalyticsManager enrollmentAnalyticsManager,
+        SystemSettingManager systemSettingManager, DataSourceManager dataSourceManager )
     {
         super( securityManager, queryValidator );
 
@@ -160,6 +189,8 @@ public class DefaultEventAnalyticsService
         checkNotNull( queryPlanner );
         checkNotNull( databaseInfo );
         checkNotNull( analyticsCache );
+        checkNotNull( systemSettingManager );
+        checkNotNull( dataSourceManager );
 
         this.dataElementService = dataElementService;
         this.trackedEntityAttributeService = trackedEntityAttributeService;
@@ -169,6 +200,15 @@ public class DefaultEventAnalyticsService
         this.databaseInfo = databaseInfo;
         this.analyticsCache = analyticsCache;
         this.enrollmentAnalyticsManager = enrollmentAnalyticsManager;
+        this.systemSettingManager = systemSettingManager;
+
+        int poolSize = Math.max( 1, dataSourceManager.getReadOnlyMaxPoolSize() );
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor( poolSize, poolSize, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setNameFormat( "event-analytics-query-%d" ).setDaemon( true ).build() );
+        executor.allowCoreThreadTimeOut( true );
+
+        this.queryExecutor = executor;
     }
 
     // -------------------------------------------------------------------------
@@ -508,19 +548,7 @@ public class DefaultEventAnalyticsService
 
             timer.getSplitTime( "Planned event query, got partitions: " + params.getPartitions() );
 
-            for ( EventQueryParams query : queries )
-            {
-                // Each query might be either an enrollment or event indicator
-
-                if ( query.hasEnrollmentProgramIndicatorDimension() )
-                {
-                    enrollmentAnalyticsManager.getAggregatedEventData(query, grid, maxLimit);
-                }
-                else
-                {
-                    eventAnalyticsManager.getAggregatedEventData( query, grid, maxLimit );
-                }
-            }
+            executeQueries( queries, grid, maxLimit );
 
             timer.getTime( "Got aggregated events" );
 
@@ -553,6 +581,132 @@ public class DefaultEventAnalyticsService
         return grid;
     }
 
+    /**
+     * Executes the given planned queries and adds the resulting rows to the
+     * given grid in the order of the queries. Multiple queries are executed
+     * concurrently, a single query is executed in the current thread. The
+     * number of queries of a request executed concurrently is limited by the
+     * number of database server CPUs, so that a single request does not
+     * occupy the shared executor.
+     *
+     * @param queries the list of {@link EventQueryParams}.
+     * @param grid the grid to add rows to.
+     * @param maxLimit the max number of records to retrieve per query.
+     */
+    private void executeQueries( List<EventQueryParams> queries, Grid grid, int maxLimit )
+    {
+        if ( queries.size() == 1 )
+        {
+            executeQuery( queries.get( 0 ), grid, maxLimit );
+            return;
+        }
+
+        int tasks = Math.min( queries.size(), getWithin( getProcessNo(), 1, MAX_QUERIES ) );
+
+        Grid[] grids = new Grid[queries.size()];
+
+        AtomicInteger next = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+
+        for ( int i = 0; i < tasks; i++ )
+        {
+            futures.add( queryExecutor.submit( () -> {
+                int index;
+
+                while ( !Thread.currentThread().isInterrupted() && (index = next.getAndIncrement()) < queries.size() )
+                {
+                    grids[index] = executeQuery( queries.get( index ), new ListGrid(), maxLimit );
+                }
+
+                return null;
+            } ) );
+        }
+
+        try
+        {
+            for ( Future<?> future : futures )
+            {
+                future.get();
+            }
+
+            for ( Grid queryGrid : grids )
+            {
+                grid.addRows( queryGrid );
+            }
+        }
+        catch ( ExecutionException ex )
+        {
+            if ( ex.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) ex.getCause(); // Throw the real exception instead of execution exception
+            }
+
+            throw new RuntimeException( "Error during execution of event query task", ex );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException( "Thread interrupted", ex );
+        }
+        finally
+        {
+            futures.forEach( future -> future.cancel( true ) );
+        }
+    }
+
+    /**
+     * Executes the given query, which might be either for an enrollment or an
+     * event indicator, and adds the resulting rows to the given grid.
+     *
+     * @param query the {@link EventQueryParams}.
+     * @param grid the grid to add rows to.
+     * @param maxLimit the max number of records to retrieve.
+     * @return the grid.
+     */
+    private Grid executeQuery( EventQueryParams query, Grid grid, int maxLimit )
+    {
+        Timer timer = new Timer().start().disablePrint();
+
+        if ( query.hasEnrollmentProgramIndicatorDimension() )
+        {
+            enrollmentAnalyticsManager.getAggregatedEventData( query, grid, maxLimit );
+        }
+        else
+        {
+            eventAnalyticsManager.getAggregatedEventData( query, grid, maxLimit );
+        }
+
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( String.format( "Executed event query for partitions: %s in: %d ms, got rows: %d",
+                query.getPartitions(), timer.getTimeInMs(), grid.getHeight() ) );
+        }
+
+        return grid;
+    }
+
+    /**
+     * Gets the number of database server CPUs. Uses explicit number from
+     * system setting if available. Detects number of cores from current server
+     * runtime if not.
+     *
+     * @return the number of database server CPUs.
+     */
+    private int getProcessNo()
+    {
+        Integer cores = (Integer) systemSettingManager.getSystemSetting( DATABASE_SERVER_CPUS );
+
+        return (cores == null || cores == 0) ? getCpuCores() : cores;
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        queryExecutor.shutdownNow();
+    }
+
     // -------------------------------------------------------------------------
     // Query
     // -------------------------------------------------------------------------
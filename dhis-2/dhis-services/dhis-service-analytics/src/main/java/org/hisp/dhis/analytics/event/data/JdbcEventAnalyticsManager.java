@@ -28,6 +28,7 @@ package org.hisp.dhis.analytics.event.data;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.commons.lang.time.DateUtils.addYears;
 import static org.hisp.dhis.analytics.event.EventAnalyticsService.ITEM_LATITUDE;
 import static org.hisp.dhis.analytics.event.EventAnalyticsService.ITEM_LONGITUDE;
@@ -36,6 +37,18 @@ import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.DATE_PERIOD_STRUCT_
 import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.ORG_UNIT_STRUCT_ALIAS;
 import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
 import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quoteAlias;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_CELL;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_CLUSTER_SIZE;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_GEOMETRY;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_POINT;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_POINT_GEOMETRY;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_SUM_X;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_SUM_Y;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.getClusterTableName;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.MAX_REQUESTED_CLUSTER_SIZES;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.isClusterPeriodType;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.parseClusterSizes;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.toClusterSizes;
 import static org.hisp.dhis.common.DimensionalObject.ORGUNIT_DIM_ID;
 import static org.hisp.dhis.common.DimensionalObject.PERIOD_DIM_ID;
 import static org.hisp.dhis.common.IdentifiableObjectUtils.getUids;
@@ -44,7 +57,9 @@ import static org.hisp.dhis.commons.util.TextUtils.removeLastOr;
 import static org.hisp.dhis.util.DateUtils.getMediumDateString;
 
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -55,6 +70,7 @@ import org.hisp.dhis.analytics.event.EventAnalyticsManager;
 import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.analytics.event.ProgramIndicatorSubqueryBuilder;
 import org.hisp.dhis.analytics.util.AnalyticsUtils;
+import org.hisp.dhis.analytics.util.EventClusterUtils;
 import org.hisp.dhis.common.DimensionType;
 import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.DimensionalObject;
@@ -75,6 +91,8 @@ import org.hisp.dhis.period.Period;
 import org.hisp.dhis.program.AnalyticsPeriodBoundary;
 import org.hisp.dhis.program.AnalyticsType;
 import org.hisp.dhis.program.ProgramIndicatorService;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.util.MathUtils;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.jdbc.BadSqlGrammarException;
@@ -101,10 +119,17 @@ public class JdbcEventAnalyticsManager
     extends AbstractJdbcEventAnalyticsManager
         implements EventAnalyticsManager
 {
+    private final SystemSettingManager systemSettingManager;
+
     public JdbcEventAnalyticsManager( JdbcTemplate jdbcTemplate, StatementBuilder statementBuilder,
-        ProgramIndicatorService programIndicatorService, ProgramIndicatorSubqueryBuilder programIndicatorSubqueryBuilder )
+        ProgramIndicatorService programIndicatorService, ProgramIndicatorSubqueryBuilder programIndicatorSubqueryBuilder,
+        SystemSettingManager systemSettingManager )
     {
         super( jdbcTemplate, statementBuilder, programIndicatorService, programIndicatorSubqueryBuilder );
+
+        checkNotNull( systemSettingManager );
+
+        this.systemSettingManager = systemSettingManager;
     }
 
     @Override
@@ -159,6 +184,21 @@ public class JdbcEventAnalyticsManager
     @Override
     public Grid getEventClusters( EventQueryParams params, Grid grid, int maxLimit )
     {
+        if ( isPreAggregatedClusterQuery( params ) )
+        {
+            if ( getClusterTableSizes().contains( params.getClusterSize() ) )
+            {
+                if ( getPreAggregatedEventClusters( params, grid ) )
+                {
+                    return grid;
+                }
+            }
+            else
+            {
+                addRequestedClusterSize( params.getClusterSize() );
+            }
+        }
+
         String clusterField = params.getCoordinateField();
         String quotedClusterField = quoteAlias( clusterField );
 
@@ -181,8 +221,207 @@ public class JdbcEventAnalyticsManager
 
         log.debug( String.format( "Analytics event cluster SQL: %s", sql ) );
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+        addEventClusters( grid, jdbcTemplate.queryForRowSet( sql ) );
+
+        return grid;
+    }
+
+    /**
+     * Indicates whether the event clusters of the given query can be read from
+     * the pre-aggregated cluster table, which holds event counts per cluster
+     * size, grid cell, organisation unit, program stage, event status and
+     * period of monthly or lower frequency. Cluster queries have their periods
+     * replaced by start and end dates, which is only supported when the dates
+     * were derived from periods of a single cluster period type.
+     *
+     * @param params the {@link EventQueryParams}.
+     */
+    private boolean isPreAggregatedClusterQuery( EventQueryParams params )
+    {
+        return COL_GEOMETRY.equals( params.getCoordinateField() ) &&
+            !params.isIncludeClusterPoints() &&
+            !params.hasNonDefaultBoundaries() &&
+            ( !params.hasStartEndDate() || params.hasReplacedPeriods() ) &&
+            !params.hasTimeField() &&
+            !params.hasOrgUnitField() &&
+            isClusterPeriodType( getClusterPeriodType( params ) ) &&
+            params.getDimensionsAndFilters( Sets.newHashSet( DimensionType.ORGANISATION_UNIT_GROUP_SET,
+                DimensionType.CATEGORY, DimensionType.CATEGORY_OPTION_GROUP_SET ) ).isEmpty() &&
+            params.getItems().stream().noneMatch( QueryItem::hasFilter ) &&
+            params.getItemFilters().stream().noneMatch( QueryItem::hasFilter ) &&
+            !params.hasProgramIndicatorDimension() &&
+            !params.hasProgramStatus() &&
+            !params.isCompletedOnly() &&
+            !params.getAggregationTypeFallback().isFirstOrLastPeriodAggregationType();
+    }
+
+    /**
+     * Returns the periods of the given cluster query, either the period
+     * dimension or filter items or the periods replaced by start and end dates.
+     *
+     * @param params the {@link EventQueryParams}.
+     */
+    private List<DimensionalItemObject> getClusterPeriods( EventQueryParams params )
+    {
+        List<DimensionalItemObject> periods = params.getDimensionOrFilterItems( PERIOD_DIM_ID );
+
+        return !periods.isEmpty() ? periods : params.getReplacedPeriods();
+    }
+
+    /**
+     * Returns the name of the period type shared by all periods of the given
+     * cluster query, or null if there are no periods or the periods are of
+     * different period types.
+     *
+     * @param params the {@link EventQueryParams}.
+     */
+    private String getClusterPeriodType( EventQueryParams params )
+    {
+        Set<String> periodTypes = getClusterPeriods( params ).stream()
+            .map( period -> ((Period) period).getPeriodType().getName() )
+            .collect( Collectors.toSet() );
+
+        return periodTypes.size() == 1 ? periodTypes.iterator().next() : null;
+    }
+
+    /**
+     * Returns the cluster sizes which the pre-aggregated cluster tables hold.
+     * Read from the cached system settings so that requests do not have to
+     * query the cluster table for the cluster size.
+     */
+    private Set<Long> getClusterTableSizes()
+    {
+        return parseClusterSizes( (String) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_TABLE_SIZES ) );
+    }
+
+    /**
+     * Records the given cluster size as requested, so that the next analytics
+     * table update pre-aggregates it when no cluster sizes are configured.
+     * Clients request cluster sizes per zoom level, so the set of requested
+     * sizes is small. It is bounded by {@link EventClusterUtils#MAX_REQUESTED_CLUSTER_SIZES}.
+     *
+     * @param clusterSize the cluster size.
+     */
+    private void addRequestedClusterSize( Long clusterSize )
+    {
+        Set<Long> sizes = parseClusterSizes( (String) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_REQUESTED_SIZES ) );
+
+        if ( clusterSize == null || sizes.contains( clusterSize ) || sizes.size() >= MAX_REQUESTED_CLUSTER_SIZES )
+        {
+            return;
+        }
+
+        Set<Long> requestedSizes = new HashSet<>( sizes );
+        requestedSizes.add( clusterSize );
+
+        systemSettingManager.saveSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_REQUESTED_SIZES, toClusterSizes( requestedSizes ) );
+    }
+
+    /**
+     * Adds event clusters from the pre-aggregated cluster table to the given
+     * grid. The center of a cluster of a single event is the geometry of the
+     * event, as for clusters computed on demand. The center of other clusters
+     * is the mean of the event centroids. A cluster is included if its grid
+     * cell lies within the bounding box.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @param grid the {@link Grid}.
+     * @return true if the cluster table could answer the query, false if the
+     *         cluster table does not exist.
+     */
+    private boolean getPreAggregatedEventClusters( EventQueryParams params, Grid grid )
+    {
+        String clusterTable = getClusterTableName( params.getTableName() );
+
+        String count = quoteAlias( COL_COUNT );
 
+        String sql = "select sum(" + count + ") as count, " +
+            "ST_Extent(" + quoteAlias( COL_EXTENT ) + ") as extent, " +
+            "case when sum(" + count + ") = 1 then max(" + quoteAlias( COL_POINT_GEOMETRY ) + ") " +
+            "else ST_AsGeoJSON(ST_SetSRID(ST_MakePoint(sum(" + quoteAlias( COL_SUM_X ) + ") / sum(" + count + "), " +
+            "sum(" + quoteAlias( COL_SUM_Y ) + ") / sum(" + count + ")), 4326), 6) end as center, " +
+            "case when sum(" + count + ") = 1 then max(" + quoteAlias( COL_POINT ) + ") end as points " +
+            "from " + clusterTable + " as " + ANALYTICS_TBL_ALIAS + " " +
+            getClusterWhereClause( params ) +
+            "group by " + quoteAlias( COL_CELL ) + " ";
+
+        try
+        {
+            log.debug( String.format( "Analytics pre-aggregated event cluster SQL: %s", sql ) );
+
+            addEventClusters( grid, jdbcTemplate.queryForRowSet( sql ) );
+
+            return true;
+        }
+        catch ( BadSqlGrammarException ex )
+        {
+            log.debug( String.format( "Event cluster table not available: '%s', clustering events on demand", clusterTable ) );
+
+            return false;
+        }
+    }
+
+    /**
+     * Returns a where SQL clause for the pre-aggregated cluster table.
+     *
+     * @param params the {@link EventQueryParams}.
+     */
+    private String getClusterWhereClause( EventQueryParams params )
+    {
+        SqlHelper sqlHelper = new SqlHelper();
+
+        String sql = sqlHelper.whereAnd() + " " + quoteAlias( COL_CLUSTER_SIZE ) + " = " + params.getClusterSize() + " ";
+
+        sql += sqlHelper.whereAnd() + " " + quoteAlias( getClusterPeriodType( params ).toLowerCase() ) + " in (" + getQuotedCommaDelimitedString( getUids( getClusterPeriods( params ) ) ) + ") ";
+
+        if ( params.isOrganisationUnitMode( OrganisationUnitSelectionMode.SELECTED ) )
+        {
+            sql += sqlHelper.whereAnd() + " " + quoteAlias( "ou" ) + " in (" + getQuotedCommaDelimitedString( getUids( params.getDimensionOrFilterItems( ORGUNIT_DIM_ID ) ) ) + ") ";
+        }
+        else if ( params.isOrganisationUnitMode( OrganisationUnitSelectionMode.CHILDREN ) )
+        {
+            sql += sqlHelper.whereAnd() + " " + quoteAlias( "ou" ) + " in (" + getQuotedCommaDelimitedString( getUids( params.getOrganisationUnitChildren() ) ) + ") ";
+        }
+        else // Descendants
+        {
+            sql += sqlHelper.whereAnd() + " (";
+
+            for ( DimensionalItemObject object : params.getDimensionOrFilterItems( ORGUNIT_DIM_ID ) )
+            {
+                OrganisationUnit unit = (OrganisationUnit) object;
+
+                sql += quoteAlias( "uidlevel" + unit.getLevel() ) + " = '" + unit.getUid() + "' or ";
+            }
+
+            sql = removeLastOr( sql ) + ") ";
+        }
+
+        if ( params.hasProgramStage() )
+        {
+            sql += sqlHelper.whereAnd() + " " + quoteAlias( "ps" ) + " = '" + params.getProgramStage().getUid() + "' ";
+        }
+
+        if ( params.hasEventStatus() )
+        {
+            sql += sqlHelper.whereAnd() + " " + quoteAlias( "psistatus" ) + " = '" + params.getEventStatus().name() + "' ";
+        }
+
+        if ( params.hasBbox() )
+        {
+            sql += sqlHelper.whereAnd() + " " + quoteAlias( COL_CELL ) + " && ST_Transform(ST_MakeEnvelope(" + params.getBbox() + ",4326), 3785) ";
+        }
+
+        if ( !params.isSkipPartitioning() && params.hasPartitions() )
+        {
+            sql += sqlHelper.whereAnd() + " " + quoteAlias( "yearly" ) + " in (" +
+                TextUtils.getQuotedCommaDelimitedString( params.getPartitions().getPartitions() ) + ") ";
+        }
+
+        return sql;
+    }
+
+    private void addEventClusters( Grid grid, SqlRowSet rowSet )
+    {
         while ( rowSet.next() )
         {
             grid.addRow()
@@ -191,8 +430,6 @@ public class JdbcEventAnalyticsManager
                 .addValue( rowSet.getString( "extent" ) )
                 .addValue( rowSet.getString( "points" ) );
         }
-
-        return grid;
     }
 
     @Override
@@ -237,6 +237,14 @@ public abstract class AbstractJdbcTableManager
         }
     }
 
+    /**
+     * Override in order to perform work after tables have been swapped.
+     */
+    @Override
+    public void postSwapTables( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
+    {
+    }
+
     @Override
     public void dropTempTable( AnalyticsTable table )
     {
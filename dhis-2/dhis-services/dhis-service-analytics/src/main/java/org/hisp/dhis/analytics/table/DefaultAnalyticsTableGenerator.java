@@ -33,9 +33,13 @@ import static org.hisp.dhis.system.notification.NotificationLevel.ERROR;
 import static org.hisp.dhis.system.notification.NotificationLevel.INFO;
 import static org.hisp.dhis.util.DateUtils.getLongDateString;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.hisp.dhis.analytics.AnalyticsTableGenerator;
@@ -43,7 +47,9 @@ import org.hisp.dhis.analytics.AnalyticsTableService;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
 import org.hisp.dhis.commons.collection.CollectionUtils;
+import org.hisp.dhis.commons.util.ConcurrentUtils;
 import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.message.MessageService;
 import org.hisp.dhis.resourcetable.ResourceTableService;
 import org.hisp.dhis.scheduling.JobConfiguration;
@@ -54,6 +60,8 @@ import org.hisp.dhis.system.util.Clock;
 import org.hisp.dhis.util.DateUtils;
 import org.springframework.stereotype.Service;
 
+import com.google.common.collect.Lists;
+
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -201,24 +209,73 @@ public class DefaultAnalyticsTableGenerator
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Generates resource tables. Tables are generated concurrently in two
+     * phases, where tables in the second phase depend on tables generated in
+     * the first phase.
+     */
     private void generateResourceTables()
     {
         final Date startTime = new Date();
 
         resourceTableService.dropAllSqlViews();
-        resourceTableService.generateOrganisationUnitStructures();
-        resourceTableService.generateDataSetOrganisationUnitCategoryTable();
-        resourceTableService.generateCategoryOptionComboNames();
-        resourceTableService.generateDataElementGroupSetTable();
-        resourceTableService.generateIndicatorGroupSetTable();
-        resourceTableService.generateOrganisationUnitGroupSetTable();
-        resourceTableService.generateCategoryTable();
-        resourceTableService.generateDataElementTable();
-        resourceTableService.generatePeriodTable();
-        resourceTableService.generateDatePeriodTable();
-        resourceTableService.generateCategoryOptionComboTable();
+
+        generateResourceTables( Lists.newArrayList(
+            resourceTableService::generateOrganisationUnitStructures,
+            resourceTableService::generateDataSetOrganisationUnitCategoryTable,
+            resourceTableService::generateCategoryOptionComboNames,
+            resourceTableService::generateDataElementGroupSetTable,
+            resourceTableService::generateIndicatorGroupSetTable,
+            resourceTableService::generateDataElementTable,
+            resourceTableService::generatePeriodTable,
+            resourceTableService::generateDatePeriodTable,
+            resourceTableService::generateCategoryOptionComboTable ) );
+
+        generateResourceTables( Lists.newArrayList(
+            resourceTableService::generateOrganisationUnitGroupSetTable,
+            resourceTableService::generateCategoryTable ) );
+
         resourceTableService.createAllSqlViews();
 
         systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_RESOURCE_TABLES_UPDATE, startTime );
     }
+
+    /**
+     * Runs the given independent resource table generation tasks concurrently
+     * and waits for all tasks to complete.
+     *
+     * @param tasks the resource table generation tasks.
+     */
+    private void generateResourceTables( List<Runnable> tasks )
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( Math.min( tasks.size(), getProcessNo() ) );
+
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+
+            for ( Runnable task : tasks )
+            {
+                futures.add( executor.submit( task ) );
+            }
+
+            ConcurrentUtils.waitForCompletion( futures );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Gets the number of available cores. Uses explicit number from system
+     * setting if available. Detects number of cores from current server runtime
+     * if not.
+     */
+    private int getProcessNo()
+    {
+        Integer cores = (Integer) systemSettingManager.getSystemSetting( SettingKey.DATABASE_SERVER_CPUS );
+
+        return ( cores == null || cores == 0 ) ? SystemUtils.getCpuCores() : cores;
+    }
 }
@@ -203,6 +203,11 @@ public class DefaultAnalyticsTableService
 
         swapTables( params, tables );
 
+        clock.logTime( "Swapped analytics tables" );
+        notifier.notify( jobId, "Performing post-swap table work" );
+
+        tableManager.postSwapTables( params, tables );
+
         clock.logTime( "Table update done: " + tableType.getTableName() );
         notifier.notify( jobId, "Table update done" );
     }
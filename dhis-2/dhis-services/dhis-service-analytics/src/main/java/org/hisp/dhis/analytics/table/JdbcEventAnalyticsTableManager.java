@@ -40,13 +40,31 @@ import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
 import static org.hisp.dhis.system.util.MathUtils.NUMERIC_LENIENT_REGEXP;
 import static org.hisp.dhis.util.DateUtils.getLongDateString;
 import static org.hisp.dhis.analytics.util.AnalyticsUtils.getColumnType;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_CELL;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_CLUSTER_SIZE;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_COUNT;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_EXTENT;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_GEOMETRY;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.CLUSTER_TABLE_SUFFIX;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_POINT;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_POINT_GEOMETRY;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_SUM_X;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_SUM_Y;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.DIMENSION_COLUMNS;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.getClusterTableName;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.getPeriodColumns;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.parseClusterSizes;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.toClusterSizes;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableSet;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.analytics.AnalyticsIndex;
 import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
@@ -72,6 +90,7 @@ import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.database.DatabaseInfo;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
 import org.hisp.dhis.util.DateUtils;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -91,6 +110,13 @@ public class JdbcEventAnalyticsTableManager
 
     private static final String OU_GEOMETRY_COL_SUFFIX = "_geom";
 
+    /**
+     * Years of the events removed from each table by a "latest" partition
+     * update, of which the clusters must be replaced after the tables are
+     * swapped.
+     */
+    private final Map<String, Set<Integer>> updatedClusterYears = new ConcurrentHashMap<>();
+
     public JdbcEventAnalyticsTableManager( IdentifiableObjectManager idObjectManager,
         OrganisationUnitService organisationUnitService, CategoryService categoryService,
         SystemSettingManager systemSettingManager, DataApprovalLevelService dataApprovalLevelService,
@@ -255,24 +281,89 @@ public class JdbcEventAnalyticsTableManager
             return;
         }
 
+        boolean clusterTables = !getClusterTableSizes().isEmpty();
+
         for ( AnalyticsTable table : tables )
         {
             AnalyticsTablePartition partition = table.getLatestPartition();
 
+            String updatedEvents =
+                "select psi.uid " +
+                "from programstageinstance psi " +
+                "inner join programinstance pi on psi.programinstanceid=pi.programinstanceid " +
+                "where pi.programid = " + table.getProgram().getId() + " " +
+                "and psi.lastupdated >= '" + getLongDateString( partition.getStartDate() ) + "' " +
+                "and psi.lastupdated < '" + getLongDateString( partition.getEndDate() ) + "'";
+
+            if ( clusterTables )
+            {
+                // the clusters of the years the updated events are removed from must be replaced after the swap
+
+                updatedClusterYears.put( table.getTableName(), new HashSet<>( jdbcTemplate.queryForList(
+                    "select distinct cast(ax.yearly as integer) from " + quote( table.getTableName() ) + " ax " +
+                    "where ax.psi in (" + updatedEvents + ")", Integer.class ) ) );
+            }
+
             String sql =
                 "delete from " + quote( table.getTableName() ) + " ax " +
-                "where ax.psi in (" +
-                    "select psi.uid " +
-                    "from programstageinstance psi " +
-                    "inner join programinstance pi on psi.programinstanceid=pi.programinstanceid " +
-                    "where pi.programid = " + table.getProgram().getId() + " " +
-                    "and psi.lastupdated >= '" + getLongDateString( partition.getStartDate() ) + "' " +
-                    "and psi.lastupdated < '" + getLongDateString( partition.getEndDate() ) + "')";
+                "where ax.psi in (" + updatedEvents + ")";
 
             invokeTimeAndLog( sql, String.format( "Remove updated events for table: '%s'", table.getTableName() ) );
         }
     }
 
+    /**
+     * Generates the event cluster table of each program from the swapped event
+     * analytics table. The cluster sizes are given by the
+     * {@link SettingKey#ANALYTICS_EVENT_CLUSTER_SIZES} system setting or, when
+     * not configured, by the cluster sizes recorded from event cluster requests.
+     * <p>
+     * Full updates regenerate the cluster tables, apply changes to the cluster
+     * sizes and drop cluster tables of programs which no longer have an event
+     * analytics table. Partial and "latest" partition updates keep the cluster
+     * sizes of the existing cluster tables and replace the clusters of the
+     * affected years only. For "latest" partition updates, these are the years
+     * of the updated events, both before and after the update.
+     */
+    @Override
+    public void postSwapTables( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
+    {
+        final boolean fullUpdate = !params.isPartialUpdate() && !params.isLatestUpdate();
+        final Set<Long> tableSizes = getClusterTableSizes();
+        final Set<Long> clusterSizes = fullUpdate ? getConfiguredClusterSizes() : tableSizes;
+
+        try
+        {
+            if ( clusterSizes.isEmpty() || !databaseInfo.isSpatialSupport() )
+            {
+                if ( fullUpdate )
+                {
+                    dropOrphanedClusterTables( Collections.emptySet() );
+                    saveClusterTableSizes( clusterSizes );
+                }
+
+                return;
+            }
+
+            List<String> groupColumns = getClusterGroupColumns();
+
+            for ( AnalyticsTable table : tables )
+            {
+                generateClusterTable( params, table, groupColumns, clusterSizes );
+            }
+
+            if ( fullUpdate )
+            {
+                dropOrphanedClusterTables( tables.stream().map( t -> getClusterTableName( t.getTableName() ) ).collect( Collectors.toSet() ) );
+                saveClusterTableSizes( clusterSizes );
+            }
+        }
+        finally
+        {
+            updatedClusterYears.clear();
+        }
+    }
+
     @Override
     public List<AnalyticsTableColumn> getFixedColumns()
     {
@@ -322,6 +413,247 @@ public class JdbcEventAnalyticsTableManager
         populateTableInternal( partition, getDimensionColumns( program ), fromClause );
     }
 
+    /**
+     * Creates the cluster table as a temporary table, populates it for every
+     * cluster size and replaces the existing cluster table with it.
+     *
+     * @param table the {@link AnalyticsTable}.
+     * @param clusterTable the cluster table name.
+     * @param groupColumns the quoted columns to group clusters by.
+     * @param clusterSizes the cluster sizes.
+     */
+    private void createClusterTable( AnalyticsTable table, String clusterTable, List<String> groupColumns, Set<Long> clusterSizes )
+    {
+        final String tempTable = clusterTable + TABLE_TEMP_SUFFIX;
+
+        dropTable( tempTable );
+
+        String sql = "create table " + tempTable + " (" +
+            quote( COL_CLUSTER_SIZE ) + " bigint not null, " +
+            quote( COL_CELL ) + " geometry not null, " +
+            groupColumns.stream().map( col -> col + " text" ).collect( Collectors.joining( ", " ) ) + ", " +
+            quote( COL_COUNT ) + " bigint not null, " +
+            quote( COL_EXTENT ) + " geometry, " +
+            quote( COL_SUM_X ) + " double precision, " +
+            quote( COL_SUM_Y ) + " double precision, " +
+            quote( COL_POINT ) + " char(11), " +
+            quote( COL_POINT_GEOMETRY ) + " text)";
+
+        log.debug( String.format( "Create event cluster table: '%s' with SQL: '%s'", tempTable, sql ) );
+
+        jdbcTemplate.execute( sql );
+
+        for ( Long clusterSize : clusterSizes )
+        {
+            populateClusterTable( table, tempTable, groupColumns, clusterSize, null );
+        }
+
+        List<AnalyticsIndex> indexes = Lists.newArrayList(
+            new AnalyticsIndex( tempTable, Lists.newArrayList( quote( COL_CLUSTER_SIZE ) ), null ),
+            new AnalyticsIndex( tempTable, Lists.newArrayList( quote( COL_CELL ) ), GEOMETRY_INDEX_TYPE ) );
+
+        for ( AnalyticsIndex index : indexes )
+        {
+            jdbcTemplate.execute( "create index " + index.getIndexName( getAnalyticsTableType() ) + " on " + tempTable +
+                ( index.hasType() ? " using " + index.getType() : "" ) + " (" + StringUtils.join( index.getColumns(), "," ) + ")" );
+        }
+
+        analyzeTable( tempTable );
+
+        dropTable( clusterTable );
+
+        jdbcTemplate.execute( "alter table " + tempTable + " rename to " + clusterTable );
+    }
+
+    /**
+     * Replaces the clusters of the given years in the existing cluster table.
+     *
+     * @param table the {@link AnalyticsTable}.
+     * @param clusterTable the cluster table name.
+     * @param groupColumns the quoted columns to group clusters by.
+     * @param clusterSizes the cluster sizes.
+     * @param years the years to replace clusters for.
+     */
+    private void updateClusterTable( AnalyticsTable table, String clusterTable, List<String> groupColumns,
+        Set<Long> clusterSizes, List<Integer> years )
+    {
+        final String yearClause = quote( "yearly" ) + " in (" + years.stream()
+            .map( year -> "'" + year + "'" ).collect( Collectors.joining( "," ) ) + ")";
+
+        invokeTimeAndLog( "delete from " + clusterTable + " where " + yearClause,
+            String.format( "Removed clusters for years: %s from table: '%s'", years, clusterTable ) );
+
+        for ( Long clusterSize : clusterSizes )
+        {
+            populateClusterTable( table, clusterTable, groupColumns, clusterSize, yearClause );
+        }
+
+        analyzeTable( clusterTable );
+    }
+
+    /**
+     * Populates the given cluster table with the events of the analytics table
+     * snapped to a grid with the given cluster size in meters. The grid cell of
+     * each event is based on the centroid of the event geometry.
+     *
+     * @param table the {@link AnalyticsTable}.
+     * @param clusterTable the cluster table name.
+     * @param groupColumns the quoted columns to group clusters by.
+     * @param clusterSize the cluster size.
+     * @param yearClause the SQL clause restricting the years, can be null.
+     */
+    private void populateClusterTable( AnalyticsTable table, String clusterTable, List<String> groupColumns,
+        Long clusterSize, String yearClause )
+    {
+        final String columns = StringUtils.join( groupColumns, "," );
+        final String geometry = quote( COL_GEOMETRY );
+        final String centroid = "ST_Centroid(" + geometry + ")";
+
+        String sql =
+            "insert into " + clusterTable + " (" + quote( COL_CLUSTER_SIZE ) + "," + quote( COL_CELL ) + "," + columns + "," +
+                quote( COL_COUNT ) + "," + quote( COL_EXTENT ) + "," + quote( COL_SUM_X ) + "," + quote( COL_SUM_Y ) + "," +
+                quote( COL_POINT ) + "," + quote( COL_POINT_GEOMETRY ) + ") " +
+            "select " + clusterSize + ", " +
+            "ST_SnapToGrid(ST_Transform(ST_SetSRID(" + centroid + ", 4326), 3785), " + clusterSize + ") as cell, " +
+            columns + ", " +
+            "count(psi), " +
+            "ST_SetSRID(ST_Extent(" + geometry + ")::geometry, 4326), " +
+            "sum(ST_X(" + centroid + ")), " +
+            "sum(ST_Y(" + centroid + ")), " +
+            "case when count(psi) = 1 then max(psi) end, " +
+            "case when count(psi) = 1 then ST_AsGeoJSON(array_to_string(array_agg(" + geometry + "), ','), 6) end " +
+            "from " + table.getTableName() + " " +
+            "where " + geometry + " is not null " +
+            ( yearClause != null ? "and " + yearClause + " " : "" ) +
+            "group by cell," + columns;
+
+        invokeTimeAndLog( sql, String.format( "Populated clusters of size: %d for table: '%s'", clusterSize, clusterTable ) );
+    }
+
+    /**
+     * Generates the cluster table for the given event analytics table, either by
+     * replacing the clusters of the affected years or by regenerating the table.
+     * A failure drops the cluster table so that clusters are computed on demand.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param table the {@link AnalyticsTable}.
+     * @param groupColumns the quoted columns to group clusters by.
+     * @param clusterSizes the cluster sizes.
+     */
+    private void generateClusterTable( AnalyticsTableUpdateParams params, AnalyticsTable table,
+        List<String> groupColumns, Set<Long> clusterSizes )
+    {
+        String clusterTable = getClusterTableName( table.getTableName() );
+
+        try
+        {
+            boolean exists = partitionManager.tableExists( clusterTable );
+
+            if ( params.isLatestUpdate() && exists )
+            {
+                Set<Integer> years = new HashSet<>( updatedClusterYears.getOrDefault( table.getTableName(), Collections.emptySet() ) );
+
+                years.addAll( jdbcTemplate.queryForList( "select distinct cast(yearly as integer) from " +
+                    quote( table.getLatestPartition().getTableName() ), Integer.class ) );
+
+                if ( !years.isEmpty() )
+                {
+                    updateClusterTable( table, clusterTable, groupColumns, clusterSizes, new ArrayList<>( years ) );
+                }
+            }
+            else if ( params.isPartialUpdate() && exists )
+            {
+                List<Integer> years = table.getTablePartitions().stream()
+                    .filter( p -> !p.isLatestPartition() )
+                    .map( AnalyticsTablePartition::getYear )
+                    .filter( Objects::nonNull )
+                    .collect( Collectors.toList() );
+
+                if ( !years.isEmpty() )
+                {
+                    updateClusterTable( table, clusterTable, groupColumns, clusterSizes, years );
+                }
+            }
+            else
+            {
+                createClusterTable( table, clusterTable, groupColumns, clusterSizes );
+            }
+        }
+        catch ( DataAccessException ex )
+        {
+            log.warn( String.format( "Failed to generate event cluster table: '%s', clusters will be computed on demand", clusterTable ), ex );
+
+            dropTable( clusterTable );
+            dropTable( clusterTable + TABLE_TEMP_SUFFIX );
+        }
+    }
+
+    /**
+     * Drops the event cluster tables which are not in the given set of cluster
+     * tables, i.e. the cluster tables of programs which were deleted, which
+     * no longer have event data or of which clustering was disabled.
+     *
+     * @param clusterTables the names of the cluster tables to keep.
+     */
+    private void dropOrphanedClusterTables( Set<String> clusterTables )
+    {
+        final String sql =
+            "select table_name from information_schema.tables " +
+            "where table_name like '" + getAnalyticsTableType().getTableName() + "%" + CLUSTER_TABLE_SUFFIX + "' " +
+            "and table_type = 'BASE TABLE'";
+
+        jdbcTemplate.queryForList( sql, String.class ).stream()
+            .filter( table -> table.endsWith( CLUSTER_TABLE_SUFFIX ) && !clusterTables.contains( table ) )
+            .forEach( table -> {
+                log.info( String.format( "Dropping orphaned event cluster table: '%s'", table ) );
+                dropTable( table );
+            } );
+    }
+
+    /**
+     * Returns the configured cluster sizes, or the cluster sizes recorded from
+     * event cluster requests if no cluster sizes are configured.
+     */
+    private Set<Long> getConfiguredClusterSizes()
+    {
+        Set<Long> sizes = parseClusterSizes( (String) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_SIZES ) );
+
+        return !sizes.isEmpty() ? sizes :
+            parseClusterSizes( (String) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_REQUESTED_SIZES ) );
+    }
+
+    /**
+     * Returns the cluster sizes which the existing cluster tables hold.
+     */
+    private Set<Long> getClusterTableSizes()
+    {
+        return parseClusterSizes( (String) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_TABLE_SIZES ) );
+    }
+
+    private void saveClusterTableSizes( Set<Long> clusterSizes )
+    {
+        systemSettingManager.saveSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_TABLE_SIZES, toClusterSizes( clusterSizes ) );
+    }
+
+    /**
+     * Returns the quoted event analytics table columns which clusters are
+     * grouped by, i.e. organisation unit levels, organisation unit, program
+     * stage, event status and periods of monthly or lower frequency.
+     */
+    private List<String> getClusterGroupColumns()
+    {
+        List<String> columns = new ArrayList<>();
+
+        organisationUnitService.getFilledOrganisationUnitLevels()
+            .forEach( lv -> columns.add( quote( PREFIX_ORGUNITLEVEL + lv.getLevel() ) ) );
+
+        DIMENSION_COLUMNS.forEach( col -> columns.add( quote( col ) ) );
+
+        getPeriodColumns().forEach( col -> columns.add( quote( col ) ) );
+
+        return columns;
+    }
+
     private List<AnalyticsTableColumn> getDimensionColumns( Program program )
     {
         List<AnalyticsTableColumn> columns = new ArrayList<>();
@@ -85,6 +85,7 @@ import org.hisp.dhis.indicator.Indicator;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.FinancialPeriodType;
 import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodIndex;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramIndicator;
@@ -917,6 +918,6 @@ public class AnalyticsUtils
     public static boolean hasPeriod( List<Object> row, int periodIndex )
     {
         return periodIndex < row.size() && row.get( periodIndex ) instanceof String
-            && PeriodType.getPeriodFromIsoString( (String) row.get( periodIndex ) ) != null;
+            && PeriodIndex.getInstance().getPeriod( (String) row.get( periodIndex ) ) != null;
     }
 }
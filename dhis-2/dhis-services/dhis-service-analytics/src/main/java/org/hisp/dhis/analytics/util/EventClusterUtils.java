@@ -0,0 +1,153 @@
+package org.hisp.dhis.analytics.util;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.PeriodType;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Utilities for the pre-aggregated event cluster tables. An event cluster
+ * table holds one row per cluster size, grid cell and combination of
+ * organisation unit, program stage, event status and period of monthly or
+ * lower frequency, and is derived from the event analytics table of the same
+ * program.
+ */
+public class EventClusterUtils
+{
+    public static final String CLUSTER_TABLE_SUFFIX = "_cluster";
+
+    /**
+     * Event analytics table column holding the geometry which is clustered.
+     */
+    public static final String COL_GEOMETRY = "psigeometry";
+
+    public static final String COL_CLUSTER_SIZE = "clustersize";
+    public static final String COL_CELL = "cell";
+    public static final String COL_COUNT = "count";
+    public static final String COL_EXTENT = "extent";
+    public static final String COL_SUM_X = "sumx";
+    public static final String COL_SUM_Y = "sumy";
+    public static final String COL_POINT = "point";
+    public static final String COL_POINT_GEOMETRY = "pointgeometry";
+
+    /**
+     * Maximum number of distinct cluster sizes which are recorded from
+     * requests and pre-aggregated when no cluster sizes are configured.
+     */
+    public static final int MAX_REQUESTED_CLUSTER_SIZES = 30;
+
+    /**
+     * Event analytics table columns which are kept as dimensions of the
+     * cluster table in addition to organisation unit levels and periods.
+     */
+    public static final List<String> DIMENSION_COLUMNS = ImmutableList.of( "ou", "ps", "psistatus" );
+
+    private static final Set<String> PERIOD_COLUMNS = ImmutableSet.copyOf( PeriodType.getAvailablePeriodTypes().stream()
+        .filter( pt -> pt.getFrequencyOrder() >= MonthlyPeriodType.FREQUENCY_ORDER )
+        .map( pt -> pt.getName().toLowerCase() )
+        .collect( Collectors.toList() ) );
+
+    /**
+     * Returns the name of the cluster table for the given event analytics
+     * table name.
+     *
+     * @param tableName the event analytics table name.
+     * @return the cluster table name.
+     */
+    public static String getClusterTableName( String tableName )
+    {
+        return tableName + CLUSTER_TABLE_SUFFIX;
+    }
+
+    /**
+     * Returns the lower case names of the period types which are kept in the
+     * cluster table, i.e. monthly and all period types of lower frequency.
+     *
+     * @return a set of period column names.
+     */
+    public static Set<String> getPeriodColumns()
+    {
+        return PERIOD_COLUMNS;
+    }
+
+    /**
+     * Indicates whether the cluster table can answer queries for the given
+     * period type.
+     *
+     * @param periodType the period type name, may be null.
+     * @return true if the period type is kept in the cluster table.
+     */
+    public static boolean isClusterPeriodType( String periodType )
+    {
+        return periodType != null && PERIOD_COLUMNS.contains( periodType.toLowerCase() );
+    }
+
+    /**
+     * Returns the given cluster sizes as a comma separated list.
+     *
+     * @param sizes the cluster sizes.
+     * @return a comma separated list of cluster sizes.
+     */
+    public static String toClusterSizes( Set<Long> sizes )
+    {
+        return sizes.stream().sorted().map( String::valueOf ).collect( Collectors.joining( "," ) );
+    }
+
+    /**
+     * Parses a comma separated list of cluster sizes. Blank, non-numeric and
+     * non-positive values are ignored.
+     *
+     * @param sizes the comma separated cluster sizes, may be null.
+     * @return a sorted set of cluster sizes.
+     */
+    public static Set<Long> parseClusterSizes( String sizes )
+    {
+        if ( StringUtils.isBlank( sizes ) )
+        {
+            return ImmutableSet.of();
+        }
+
+        return ImmutableSet.copyOf( new TreeSet<>( Arrays.stream( sizes.split( "," ) )
+            .map( StringUtils::trimToNull )
+            .filter( StringUtils::isNumeric )
+            .map( Long::valueOf )
+            .filter( size -> size > 0 )
+            .collect( Collectors.toSet() ) ) );
+    }
+}
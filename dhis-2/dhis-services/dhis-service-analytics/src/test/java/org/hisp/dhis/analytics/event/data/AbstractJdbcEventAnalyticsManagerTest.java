@@ -52,6 +52,7 @@ import org.hisp.dhis.program.AnalyticsType;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramIndicator;
 import org.hisp.dhis.program.ProgramIndicatorService;
+import org.hisp.dhis.setting.SystemSettingManager;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -76,6 +77,9 @@ public class AbstractJdbcEventAnalyticsManagerTest
     @Mock
     private ProgramIndicatorService programIndicatorService;
 
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
     private JdbcEventAnalyticsManager subject;
 
     private Program programA;
@@ -91,7 +95,8 @@ public class AbstractJdbcEventAnalyticsManagerTest
     {
         StatementBuilder statementBuilder = new PostgreSQLStatementBuilder();
         DefaultProgramIndicatorSubqueryBuilder programIndicatorSubqueryBuilder = new DefaultProgramIndicatorSubqueryBuilder( programIndicatorService );
-        subject = new JdbcEventAnalyticsManager( jdbcTemplate, statementBuilder, programIndicatorService, programIndicatorSubqueryBuilder );
+        subject = new JdbcEventAnalyticsManager( jdbcTemplate, statementBuilder, programIndicatorService,
+            programIndicatorSubqueryBuilder, systemSettingManager );
 
         // data init
 
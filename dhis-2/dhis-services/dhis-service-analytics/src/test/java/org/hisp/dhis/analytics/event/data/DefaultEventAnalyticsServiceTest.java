@@ -0,0 +1,242 @@
+package org.hisp.dhis.analytics.event.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hisp.dhis.analytics.AnalyticsSecurityManager;
+import org.hisp.dhis.analytics.cache.AnalyticsCache;
+import org.hisp.dhis.analytics.event.EnrollmentAnalyticsManager;
+import org.hisp.dhis.analytics.event.EventAnalyticsManager;
+import org.hisp.dhis.analytics.event.EventDataQueryService;
+import org.hisp.dhis.analytics.event.EventQueryParams;
+import org.hisp.dhis.analytics.event.EventQueryPlanner;
+import org.hisp.dhis.analytics.event.EventQueryValidator;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.IllegalQueryException;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.datasource.DataSourceManager;
+import org.hisp.dhis.feedback.ErrorCode;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.database.DatabaseInfo;
+import org.hisp.dhis.trackedentity.TrackedEntityAttributeService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class DefaultEventAnalyticsServiceTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private DataElementService dataElementService;
+
+    @Mock
+    private TrackedEntityAttributeService trackedEntityAttributeService;
+
+    @Mock
+    private EventAnalyticsManager eventAnalyticsManager;
+
+    @Mock
+    private EnrollmentAnalyticsManager enrollmentAnalyticsManager;
+
+    @Mock
+    private EventDataQueryService eventDataQueryService;
+
+    @Mock
+    private AnalyticsSecurityManager securityManager;
+
+    @Mock
+    private EventQueryPlanner queryPlanner;
+
+    @Mock
+    private EventQueryValidator queryValidator;
+
+    @Mock
+    private DatabaseInfo databaseInfo;
+
+    @Mock
+    private AnalyticsCache analyticsCache;
+
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @Mock
+    private DataSourceManager dataSourceManager;
+
+    private DefaultEventAnalyticsService subject;
+
+    private EventQueryParams params;
+
+    @Before
+    public void setUp()
+    {
+        when( dataSourceManager.getReadOnlyMaxPoolSize() ).thenReturn( 10 );
+        when( systemSettingManager.getSystemSetting( SettingKey.DATABASE_SERVER_CPUS ) ).thenReturn( 4 );
+        when( analyticsCache.isEnabled() ).thenReturn( false );
+
+        subject = new DefaultEventAnalyticsService( dataElementService, trackedEntityAttributeService,
+            eventAnalyticsManager, eventDataQueryService, securityManager, queryPlanner, queryValidator,
+            databaseInfo, analyticsCache, enrollmentAnalyticsManager, systemSettingManager, dataSourceManager );
+
+        params = new EventQueryParams.Builder().withSkipMeta( true ).build();
+    }
+
+    @After
+    public void tearDown()
+    {
+        subject.shutdown();
+    }
+
+    @Test
+    public void testMergeRowsInPlannedOrder()
+    {
+        List<EventQueryParams> queries = planQueries( 3 );
+
+        CountDownLatch lastDone = new CountDownLatch( 1 );
+
+        when( eventAnalyticsManager.getAggregatedEventData( same( queries.get( 0 ) ), any( Grid.class ), anyInt() ) )
+            .thenAnswer( invocation -> {
+                lastDone.await( 5, TimeUnit.SECONDS );
+                return addRow( invocation, "A" );
+            } );
+        when( eventAnalyticsManager.getAggregatedEventData( same( queries.get( 1 ) ), any( Grid.class ), anyInt() ) )
+            .thenAnswer( invocation -> addRow( invocation, "B" ) );
+        when( eventAnalyticsManager.getAggregatedEventData( same( queries.get( 2 ) ), any( Grid.class ), anyInt() ) )
+            .thenAnswer( invocation -> {
+                Grid grid = addRow( invocation, "C" );
+                lastDone.countDown();
+                return grid;
+            } );
+
+        Grid grid = subject.getAggregatedEventData( params );
+
+        assertEquals( 3, grid.getHeight() );
+        assertEquals( "A", grid.getValue( 0, 0 ) );
+        assertEquals( "B", grid.getValue( 1, 0 ) );
+        assertEquals( "C", grid.getValue( 2, 0 ) );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testPropagateFailedQuery()
+    {
+        List<EventQueryParams> queries = planQueries( 3 );
+
+        when( eventAnalyticsManager.getAggregatedEventData( any( EventQueryParams.class ), any( Grid.class ), anyInt() ) )
+            .thenAnswer( invocation -> addRow( invocation, "A" ) );
+        when( eventAnalyticsManager.getAggregatedEventData( same( queries.get( 1 ) ), any( Grid.class ), anyInt() ) )
+            .thenThrow( new IllegalStateException( "Query failed" ) );
+
+        subject.getAggregatedEventData( params );
+    }
+
+    @Test
+    public void testMaxLimitAppliedToMergedRows()
+    {
+        planQueries( 3 );
+
+        when( queryValidator.getMaxLimit() ).thenReturn( 2 );
+        when( eventAnalyticsManager.getAggregatedEventData( any( EventQueryParams.class ), any( Grid.class ), anyInt() ) )
+            .thenAnswer( invocation -> addRow( invocation, "A" ) );
+
+        try
+        {
+            subject.getAggregatedEventData( params );
+
+            throw new AssertionError( "Expected max limit to be exceeded" );
+        }
+        catch ( IllegalQueryException ex )
+        {
+            assertEquals( ErrorCode.E7128, ex.getErrorCode() );
+        }
+    }
+
+    @Test
+    public void testConcurrentQueriesPerRequestLimited()
+    {
+        planQueries( 8 );
+
+        when( systemSettingManager.getSystemSetting( SettingKey.DATABASE_SERVER_CPUS ) ).thenReturn( 2 );
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        when( eventAnalyticsManager.getAggregatedEventData( any( EventQueryParams.class ), any( Grid.class ), anyInt() ) )
+            .thenAnswer( invocation -> {
+                maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+                Thread.sleep( 20 );
+                running.decrementAndGet();
+                return addRow( invocation, "A" );
+            } );
+
+        Grid grid = subject.getAggregatedEventData( params );
+
+        assertEquals( 8, grid.getHeight() );
+        assertTrue( maxRunning.get() <= 2 );
+    }
+
+    private List<EventQueryParams> planQueries( int count )
+    {
+        List<EventQueryParams> queries = new ArrayList<>();
+
+        for ( int i = 0; i < count; i++ )
+        {
+            queries.add( new EventQueryParams.Builder().build() );
+        }
+
+        when( queryPlanner.planAggregateQuery( any( EventQueryParams.class ) ) ).thenReturn( queries );
+
+        return queries;
+    }
+
+    private static Grid addRow( InvocationOnMock invocation, String value )
+    {
+        Grid grid = invocation.getArgument( 1 );
+        grid.addRow().addValue( value );
+        return grid;
+    }
+}
@@ -30,27 +30,35 @@ package org.hisp.dhis.analytics.event.data;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hisp.dhis.DhisConvenienceTest.createCategoryOptionGroup;
 import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
 import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
 import static org.hisp.dhis.DhisConvenienceTest.createProgram;
 import static org.hisp.dhis.DhisConvenienceTest.createProgramIndicator;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.CLUSTER_TABLE_SUFFIX;
+import static org.hisp.dhis.analytics.util.EventClusterUtils.COL_GEOMETRY;
 import static org.hisp.dhis.common.DimensionalObject.DATA_X_DIM_ID;
 import static org.hisp.dhis.common.DimensionalObject.ORGUNIT_DIM_ID;
 import static org.hisp.dhis.common.DimensionalObject.PERIOD_DIM_ID;
 import static org.hisp.dhis.common.DimensionalObjectUtils.getList;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+
 import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.analytics.AnalyticsAggregationType;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.DataType;
 import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.analytics.event.data.programindicator.DefaultProgramIndicatorSubqueryBuilder;
+import org.hisp.dhis.category.CategoryOptionGroup;
 import org.hisp.dhis.common.BaseDimensionalObject;
 import org.hisp.dhis.common.DimensionType;
 import org.hisp.dhis.common.Grid;
@@ -70,6 +78,8 @@ import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramIndicator;
 import org.hisp.dhis.program.ProgramIndicatorService;
 import org.hisp.dhis.program.ProgramType;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.grid.ListGrid;
 import org.junit.Before;
 import org.junit.Rule;
@@ -92,6 +102,9 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
     @Mock
     private JdbcTemplate jdbcTemplate;
 
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
     private JdbcEventAnalyticsManager subject;
 
     @Captor
@@ -107,8 +120,11 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
         ProgramIndicatorService programIndicatorService = mock(ProgramIndicatorService.class);
         DefaultProgramIndicatorSubqueryBuilder programIndicatorSubqueryBuilder = new DefaultProgramIndicatorSubqueryBuilder( programIndicatorService );
 
-        subject = new JdbcEventAnalyticsManager( jdbcTemplate, statementBuilder, programIndicatorService, programIndicatorSubqueryBuilder );
+        subject = new JdbcEventAnalyticsManager( jdbcTemplate, statementBuilder, programIndicatorService,
+            programIndicatorSubqueryBuilder, systemSettingManager );
 
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_TABLE_SIZES ) ).thenReturn( "" );
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_REQUESTED_SIZES ) ).thenReturn( "" );
         when( jdbcTemplate.queryForRowSet( anyString() ) ).thenReturn( this.rowSet );
     }
 
@@ -352,6 +368,74 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
 
     }
 
+    @Test
+    public void verifyGetEventClustersFromClusterTable()
+    {
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_TABLE_SIZES ) ).thenReturn( "500,1000" );
+        when( rowSet.next() ).thenReturn( true ).thenReturn( false );
+        when( rowSet.getLong( "count" ) ).thenReturn( 12L );
+        when( rowSet.getString( "center" ) ).thenReturn( "{\"type\":\"Point\",\"coordinates\":[-11.8,8.5]}" );
+
+        Grid grid = subject.getEventClusters( createClusterRequestParams(), new ListGrid(), 100 );
+
+        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+
+        assertThat( sql.getValue(), containsString( "from " + getTable( programA.getUid() ) + CLUSTER_TABLE_SUFFIX + " as ax" ) );
+        assertThat( sql.getValue(), containsString( "ax.\"quarterly\" in ('2000Q1')" ) );
+        assertThat( sql.getValue(), containsString( "ax.\"clustersize\" = 1000" ) );
+        assertThat( sql.getValue(), containsString( "case when sum(ax.\"count\") = 1 then max(ax.\"pointgeometry\")" ) );
+        assertThat( grid.getRows(), hasSize( 1 ) );
+        assertThat( grid.getRow( 0 ).get( 0 ), is( 12L ) );
+
+        verify( jdbcTemplate, never() ).queryForList( anyString() );
+        verify( systemSettingManager, never() ).saveSystemSetting( any(), any() );
+    }
+
+    @Test
+    public void verifyGetEventClustersWithoutClusterSize()
+    {
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_TABLE_SIZES ) ).thenReturn( "500" );
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_REQUESTED_SIZES ) ).thenReturn( "500" );
+        mockEmptyRowSet();
+
+        subject.getEventClusters( createClusterRequestParams(), new ListGrid(), 100 );
+
+        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+        verify( systemSettingManager ).saveSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_REQUESTED_SIZES, "500,1000" );
+
+        assertThat( sql.getValue(), containsString( "from " + getTable( programA.getUid() ) + " as ax" ) );
+        assertThat( sql.getValue(), not( containsString( CLUSTER_TABLE_SUFFIX ) ) );
+    }
+
+    @Test
+    public void verifyGetEventClustersWithCategoryOptionGroupSetConstraint()
+    {
+        mockEmptyRowSet();
+
+        CategoryOptionGroup groupA = createCategoryOptionGroup( 'A' );
+
+        EventQueryParams params = new EventQueryParams.Builder( createClusterRequestParams() )
+            .addFilter( new BaseDimensionalObject( "cogsA", DimensionType.CATEGORY_OPTION_GROUP_SET, getList( groupA ) ) )
+            .build();
+
+        subject.getEventClusters( params, new ListGrid(), 100 );
+
+        verify( jdbcTemplate, never() ).queryForList( anyString() );
+        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+
+        assertThat( sql.getValue(), not( containsString( CLUSTER_TABLE_SUFFIX ) ) );
+    }
+
+    private EventQueryParams createClusterRequestParams()
+    {
+        return new EventQueryParams.Builder( createRequestParams() )
+            .withCoordinateField( COL_GEOMETRY )
+            .withClusterSize( 1000L )
+            .withGeometryOnly( true )
+            .withStartEndDatesForPeriods()
+            .build();
+    }
+
     private EventQueryParams createRequestParamsWithFilter( ValueType queryItemValueType )
     {
         EventQueryParams.Builder params = new EventQueryParams.Builder( createRequestParams( queryItemValueType ) );
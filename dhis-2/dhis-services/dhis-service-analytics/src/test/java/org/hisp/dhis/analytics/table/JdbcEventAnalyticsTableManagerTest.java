@@ -30,6 +30,7 @@ package org.hisp.dhis.analytics.table;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.hamcrest.Matchers.startsWith;
 import static org.hisp.dhis.DhisConvenienceTest.*;
 import static org.hisp.dhis.analytics.ColumnDataType.*;
 import static org.junit.Assert.assertNotNull;
@@ -74,6 +75,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnit;
@@ -570,6 +572,84 @@ public class JdbcEventAnalyticsTableManagerTest
         assertThat( sql.getValue(), containsString( ouQuery ) );
     }
 
+    @Test
+    public void verifyClusterTableNotGeneratedWithoutClusterSizes()
+    {
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_SIZES ) ).thenReturn( "" );
+        when( databaseInfo.isSpatialSupport() ).thenReturn( true );
+
+        AnalyticsTable table = new AnalyticsTable( AnalyticsTableType.EVENT, Lists.newArrayList(), Lists.newArrayList(), createProgram( 'A' ) );
+
+        subject.postSwapTables( AnalyticsTableUpdateParams.newBuilder().build(), Lists.newArrayList( table ) );
+
+        verify( jdbcTemplate, never() ).execute( anyString() );
+    }
+
+    @Test
+    public void verifyClusterTableGeneratedForClusterSizes()
+    {
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_SIZES ) ).thenReturn( "5000, 1000" );
+        when( databaseInfo.isSpatialSupport() ).thenReturn( true );
+
+        AnalyticsTable table = new AnalyticsTable( AnalyticsTableType.EVENT, Lists.newArrayList(), Lists.newArrayList(), createProgram( 'A' ) );
+        String clusterTable = table.getTableName() + "_cluster";
+
+        subject.postSwapTables( AnalyticsTableUpdateParams.newBuilder().build(), Lists.newArrayList( table ) );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+        verify( jdbcTemplate, atLeastOnce() ).execute( sql.capture() );
+
+        List<String> statements = sql.getAllValues();
+
+        assertThat( statements, hasItem( startsWith( "create table " + clusterTable + "_temp" ) ) );
+        assertThat( statements, hasItem( allOf( startsWith( "insert into " + clusterTable + "_temp" ),
+            containsString( "select 1000, ST_SnapToGrid" ), containsString( "from " + table.getTableName() + " " ) ) ) );
+        assertThat( statements, hasItem( containsString( "select 5000, ST_SnapToGrid" ) ) );
+        assertThat( statements, hasItem( "alter table " + clusterTable + "_temp rename to " + clusterTable ) );
+
+        verify( systemSettingManager ).saveSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_TABLE_SIZES, "1000,5000" );
+    }
+
+    @Test
+    public void verifyClusterTableGeneratedForRequestedClusterSizes()
+    {
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_SIZES ) ).thenReturn( "" );
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_REQUESTED_SIZES ) ).thenReturn( "2000" );
+        when( databaseInfo.isSpatialSupport() ).thenReturn( true );
+
+        AnalyticsTable table = new AnalyticsTable( AnalyticsTableType.EVENT, Lists.newArrayList(), Lists.newArrayList(), createProgram( 'A' ) );
+
+        subject.postSwapTables( AnalyticsTableUpdateParams.newBuilder().build(), Lists.newArrayList( table ) );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+        verify( jdbcTemplate, atLeastOnce() ).execute( sql.capture() );
+
+        assertThat( sql.getAllValues(), hasItem( containsString( "select 2000, ST_SnapToGrid" ) ) );
+        verify( systemSettingManager ).saveSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_TABLE_SIZES, "2000" );
+    }
+
+    @Test
+    public void verifyOrphanedClusterTableDropped()
+    {
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_SIZES ) ).thenReturn( "1000" );
+        when( databaseInfo.isSpatialSupport() ).thenReturn( true );
+
+        AnalyticsTable table = new AnalyticsTable( AnalyticsTableType.EVENT, Lists.newArrayList(), Lists.newArrayList(), createProgram( 'A' ) );
+        String clusterTable = table.getTableName() + "_cluster";
+        String orphanedTable = "analytics_event_orphaned_cluster";
+
+        when( jdbcTemplate.queryForList( ArgumentMatchers.startsWith( "select table_name from information_schema.tables" ), eq( String.class ) ) )
+            .thenReturn( Lists.newArrayList( clusterTable, orphanedTable ) );
+
+        subject.postSwapTables( AnalyticsTableUpdateParams.newBuilder().build(), Lists.newArrayList( table ) );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+        verify( jdbcTemplate, atLeastOnce() ).execute( sql.capture() );
+
+        assertThat( sql.getAllValues(), hasItem( "drop table if exists " + orphanedTable ) );
+        assertThat( sql.getAllValues(), not( hasItem( "drop table if exists " + clusterTable ) ) );
+    }
+
     private String toAlias( String template, String uid )
     {
         return String.format( template, uid, uid, uid );
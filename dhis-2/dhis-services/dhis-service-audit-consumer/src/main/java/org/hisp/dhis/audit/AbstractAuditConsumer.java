@@ -30,8 +30,9 @@ package org.hisp.dhis.audit;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.hisp.dhis.artemis.codec.MessageCodec;
 
-import javax.jms.TextMessage;
+import javax.jms.Message;
 import java.io.IOException;
 
 /**
@@ -43,15 +44,16 @@ public abstract class AbstractAuditConsumer
 {
     protected AuditService auditService;
     protected ObjectMapper objectMapper;
+    protected MessageCodec messageCodec;
 
     protected boolean isAuditLogEnabled;
     protected boolean isAuditDatabaseEnabled;
 
-    protected void _consume( TextMessage message )
+    protected void _consume( Message message )
     {
         try
         {
-            org.hisp.dhis.artemis.audit.Audit auditMessage = objectMapper.readValue( message.getText(), org.hisp.dhis.artemis.audit.Audit.class );
+            org.hisp.dhis.artemis.audit.Audit auditMessage = messageCodec.decode( message, org.hisp.dhis.artemis.audit.Audit.class );
 
             if ( auditMessage.getData() != null && !(auditMessage.getData() instanceof String) )
             {
@@ -30,6 +30,7 @@ package org.hisp.dhis.audit.consumers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hisp.dhis.artemis.Topics;
+import org.hisp.dhis.artemis.codec.MessageCodec;
 import org.hisp.dhis.audit.AbstractAuditConsumer;
 import org.hisp.dhis.audit.AuditService;
 import org.hisp.dhis.external.conf.ConfigurationKey;
@@ -37,7 +38,7 @@ import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
-import javax.jms.TextMessage;
+import javax.jms.Message;
 
 /**
  * A MetadataAudit object consumer.
@@ -51,17 +52,19 @@ public class MetadataAuditConsumer
     public MetadataAuditConsumer(
         AuditService auditService,
         ObjectMapper objectMapper,
+        MessageCodec messageCodec,
         DhisConfigurationProvider dhisConfig )
     {
         this.auditService = auditService;
         this.objectMapper = objectMapper;
+        this.messageCodec = messageCodec;
 
         this.isAuditLogEnabled = dhisConfig.isEnabled( ConfigurationKey.AUDIT_LOGGER );
         this.isAuditDatabaseEnabled = dhisConfig.isEnabled( ConfigurationKey.AUDIT_DATABASE );
     }
 
     @JmsListener( destination = Topics.METADATA_TOPIC_NAME )
-    public void consume( TextMessage message )
+    public void consume( Message message )
     {
         _consume( message );
     }
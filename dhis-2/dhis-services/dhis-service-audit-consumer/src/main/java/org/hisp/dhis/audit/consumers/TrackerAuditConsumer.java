@@ -30,6 +30,7 @@ package org.hisp.dhis.audit.consumers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hisp.dhis.artemis.Topics;
+import org.hisp.dhis.artemis.codec.MessageCodec;
 import org.hisp.dhis.audit.AbstractAuditConsumer;
 import org.hisp.dhis.audit.AuditService;
 import org.hisp.dhis.external.conf.ConfigurationKey;
@@ -37,7 +38,7 @@ import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
-import javax.jms.TextMessage;
+import javax.jms.Message;
 import java.util.Objects;
 
 /**
@@ -52,10 +53,12 @@ public class TrackerAuditConsumer
     public TrackerAuditConsumer(
         AuditService auditService,
         ObjectMapper objectMapper,
+        MessageCodec messageCodec,
         DhisConfigurationProvider dhisConfig )
     {
         this.auditService = auditService;
         this.objectMapper = objectMapper;
+        this.messageCodec = messageCodec;
 
         // for legacy reasons we are overriding the default here and using "off" for tracking logger (we don't have a specific key for tracker logger)
         this.isAuditLogEnabled = Objects.equals( dhisConfig.getPropertyOrDefault( ConfigurationKey.AUDIT_LOGGER, "off" ), "on" );
@@ -63,7 +66,7 @@ public class TrackerAuditConsumer
     }
 
     @JmsListener( destination = Topics.TRACKER_TOPIC_NAME )
-    public void consume( TextMessage message )
+    public void consume( Message message )
     {
         _consume( message );
     }
@@ -76,10 +76,13 @@ import org.hisp.dhis.user.UserAccess;
 import org.hisp.dhis.user.UserCredentials;
 import org.hisp.dhis.user.UserGroupAccess;
 import org.hisp.dhis.user.UserInfo;
+import org.hisp.dhis.user.UserSecurityContext;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.util.Assert;
 
+import com.google.common.collect.Lists;
+
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -1021,18 +1024,10 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
         disjunction.add( Restrictions.like( "c.publicAccess", access ) );
         disjunction.add( Restrictions.isNull( "c.publicAccess" ) );
 
-        DetachedCriteria userGroupDetachedCriteria = DetachedCriteria.forClass( getClazz(), "ugdc" );
-        userGroupDetachedCriteria.createCriteria( "ugdc.userGroupAccesses", "uga" );
-        userGroupDetachedCriteria.createCriteria( "uga.userGroup", "ug" );
-        userGroupDetachedCriteria.createCriteria( "ug.members", "ugm" );
-
-        userGroupDetachedCriteria.add( Restrictions.eqProperty( "ugdc.id", "c.id" ) );
-        userGroupDetachedCriteria.add( Restrictions.eq( "ugm.id", user.getId() ) );
-        userGroupDetachedCriteria.add( Restrictions.like( "uga.access", access ) );
-
-        userGroupDetachedCriteria.setProjection( Property.forName( "uga.id" ) );
-
-        disjunction.add( Subqueries.exists( userGroupDetachedCriteria ) );
+        if ( hasUserGroups( user ) )
+        {
+            disjunction.add( Subqueries.exists( getUserGroupDetachedCriteria( user, access ) ) );
+        }
 
         DetachedCriteria userDetachedCriteria = DetachedCriteria.forClass( getClazz(), "udc" );
         userDetachedCriteria.createCriteria( "udc.userAccesses", "ua" );
@@ -1079,18 +1074,10 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
         disjunction.add( Restrictions.isNull( "c.user.id" ) );
         disjunction.add( Restrictions.eq( "c.user.id", user.getId() ) );
 
-        DetachedCriteria userGroupDetachedCriteria = DetachedCriteria.forClass( getClazz(), "ugdc" );
-        userGroupDetachedCriteria.createCriteria( "ugdc.userGroupAccesses", "uga" );
-        userGroupDetachedCriteria.createCriteria( "uga.userGroup", "ug" );
-        userGroupDetachedCriteria.createCriteria( "ug.members", "ugm" );
-
-        userGroupDetachedCriteria.add( Restrictions.eqProperty( "ugdc.id", "c.id" ) );
-        userGroupDetachedCriteria.add( Restrictions.eq( "ugm.id", user.getId() ) );
-        userGroupDetachedCriteria.add( Restrictions.like( "uga.access", access ) );
-
-        userGroupDetachedCriteria.setProjection( Property.forName( "uga.id" ) );
-
-        disjunction.add( Subqueries.exists( userGroupDetachedCriteria ) );
+        if ( hasUserGroups( user ) )
+        {
+            disjunction.add( Subqueries.exists( getUserGroupDetachedCriteria( user, access ) ) );
+        }
 
         DetachedCriteria userDetachedCriteria = DetachedCriteria.forClass( getClazz(), "udc" );
         userDetachedCriteria.createCriteria( "udc.userAccesses", "ua" );
@@ -1218,7 +1205,7 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
             return userGroupSubQuery.where(
                 builder.and(
                     builder.equal( root.get( "id" ), ugdc.get( "id" ) ),
-                    builder.equal( uga.join( "userGroup" ).join( "members" ).get( "id" ), user.getId() ),
+                    getUserGroupMemberPredicate( builder, uga, user ),
                     builder.like( uga.get( "access" ), access ) ) );
         });
 
@@ -1235,13 +1222,23 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
                     builder.like( ua.get( "access" ), access ) ) );
         });
 
-        predicates.add( root -> builder.or(
-            builder.like( root.get( "publicAccess" ), access ),
-            builder.isNull( root.get( "publicAccess" ) ),
-            builder.isNull( root.get( "user" ) ),
-            builder.equal( root.get( "user" ).get( "id" ), user.getId() ),
-            builder.exists( userGroupPredicate.apply( root ) ),
-            builder.exists( userPredicate.apply( root ) ) ) );
+        boolean hasUserGroups = hasUserGroups( user );
+
+        predicates.add( root -> {
+            List<Predicate> disjunction = Lists.newArrayList(
+                builder.like( root.get( "publicAccess" ), access ),
+                builder.isNull( root.get( "publicAccess" ) ),
+                builder.isNull( root.get( "user" ) ),
+                builder.equal( root.get( "user" ).get( "id" ), user.getId() ),
+                builder.exists( userPredicate.apply( root ) ) );
+
+            if ( hasUserGroups )
+            {
+                disjunction.add( builder.exists( userGroupPredicate.apply( root ) ) );
+            }
+
+            return builder.or( disjunction.toArray( new Predicate[0] ) );
+        } );
 
         return predicates;
     }
@@ -1269,7 +1266,7 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
             return userGroupSubQuery.where(
                 builder.and(
                     builder.equal( root.get( "id" ), ugdc.get( "id" ) ),
-                    builder.equal( uga.join( "userGroup" ).join( "members" ).get( "id" ), user.getId() ),
+                    getUserGroupMemberPredicate( builder, uga, user ),
                     builder.like( uga.get( "access" ), access ) ) );
         });
 
@@ -1286,11 +1283,21 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
                     builder.like( ua.get( "access" ), access ) ) );
         });
 
-        predicates.add( root -> builder.or(
-            builder.like( root.get( "publicAccess" ), access ),
-            builder.isNull( root.get( "publicAccess" ) ),
-            builder.exists( userGroupPredicate.apply( root ) ),
-            builder.exists( userPredicate.apply( root ) ) ) );
+        boolean hasUserGroups = hasUserGroups( user );
+
+        predicates.add( root -> {
+            List<Predicate> disjunction = Lists.newArrayList(
+                builder.like( root.get( "publicAccess" ), access ),
+                builder.isNull( root.get( "publicAccess" ) ),
+                builder.exists( userPredicate.apply( root ) ) );
+
+            if ( hasUserGroups )
+            {
+                disjunction.add( builder.exists( userGroupPredicate.apply( root ) ) );
+            }
+
+            return builder.or( disjunction.toArray( new Predicate[0] ) );
+        } );
 
         return predicates;
     }
@@ -1333,6 +1340,60 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
         return aclService.isDataShareable( clazz ) && !userInfo.isSuper();
     }
 
+    /**
+     * Indicates whether the given user may be a member of any user group. Only
+     * a {@link UserSecurityContext} knows the user groups of the user, in which
+     * case user group sharing is skipped for users without user groups.
+     */
+    private boolean hasUserGroups( UserInfo user )
+    {
+        return !(user instanceof UserSecurityContext) || !((UserSecurityContext) user).getUserGroupIds().isEmpty();
+    }
+
+    /**
+     * Creates a detached criteria for user group accesses of the given user
+     * with the given access string. User group membership is matched on the
+     * user group identifiers of a {@link UserSecurityContext}, which avoids
+     * joining in user group members.
+     */
+    private DetachedCriteria getUserGroupDetachedCriteria( UserInfo user, String access )
+    {
+        DetachedCriteria userGroupDetachedCriteria = DetachedCriteria.forClass( getClazz(), "ugdc" );
+        userGroupDetachedCriteria.createCriteria( "ugdc.userGroupAccesses", "uga" );
+
+        if ( user instanceof UserSecurityContext )
+        {
+            userGroupDetachedCriteria.add( Restrictions.in( "uga.userGroup.id", ((UserSecurityContext) user).getUserGroupIds() ) );
+        }
+        else
+        {
+            userGroupDetachedCriteria.createCriteria( "uga.userGroup", "ug" );
+            userGroupDetachedCriteria.createCriteria( "ug.members", "ugm" );
+            userGroupDetachedCriteria.add( Restrictions.eq( "ugm.id", user.getId() ) );
+        }
+
+        userGroupDetachedCriteria.add( Restrictions.eqProperty( "ugdc.id", "c.id" ) );
+        userGroupDetachedCriteria.add( Restrictions.like( "uga.access", access ) );
+
+        userGroupDetachedCriteria.setProjection( Property.forName( "uga.id" ) );
+
+        return userGroupDetachedCriteria;
+    }
+
+    /**
+     * Returns a predicate matching user group accesses of user groups of which
+     * the given user is a member. See {@link #getUserGroupDetachedCriteria}.
+     */
+    private Predicate getUserGroupMemberPredicate( CriteriaBuilder builder, Join<T, UserGroupAccess> uga, UserInfo user )
+    {
+        if ( user instanceof UserSecurityContext )
+        {
+            return uga.get( "userGroup" ).get( "id" ).in( ((UserSecurityContext) user).getUserGroupIds() );
+        }
+
+        return builder.equal( uga.join( "userGroup" ).join( "members" ).get( "id" ), user.getId() );
+    }
+
     private boolean isReadAllowed( T object, User user )
     {
         if ( IdentifiableObject.class.isInstance( object ) )
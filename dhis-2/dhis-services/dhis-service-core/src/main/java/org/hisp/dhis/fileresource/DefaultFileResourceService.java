@@ -216,6 +216,14 @@ public class DefaultFileResourceService
         fileResourceContentStore.copyContent( fileResource.getStorageKey(), outputStream );
     }
 
+    @Override
+    @Transactional( readOnly = true )
+    public void copyFileResourceContent( FileResource fileResource, OutputStream outputStream, long offset, long length )
+        throws IOException, NoSuchElementException
+    {
+        fileResourceContentStore.copyContent( fileResource.getStorageKey(), outputStream, offset, length );
+    }
+
     @Override
     @Transactional
     public boolean fileResourceExists( String uid )
@@ -0,0 +1,234 @@
+package org.hisp.dhis.fileresource;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.hash.Hashing;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded local disk cache of file resource content, used in front of remote
+ * file stores. Content is stored by storage key and evicted in least recently
+ * used order when the total size of the cached content exceeds the max size.
+ * <p>
+ * The content of a storage key never changes, as new content is always stored
+ * under a new key, which means that cached content only has to be removed when
+ * the content is deleted.
+ */
+@Slf4j
+public class FileResourceContentCache
+{
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+
+    private final long maxSize;
+
+    /**
+     * Size of cached content by storage key, in access order.
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>( 16, 0.75f, true );
+
+    private long size = 0;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param directory the cache directory. Any existing content is removed.
+     * @param maxSize the max total size of cached content in bytes.
+     */
+    public FileResourceContentCache( Path directory, long maxSize )
+        throws IOException
+    {
+        this.directory = directory;
+        this.maxSize = maxSize;
+
+        FileUtils.deleteDirectory( directory.toFile() );
+        Files.createDirectories( directory );
+    }
+
+    /**
+     * Returns the cached content file of the given key.
+     *
+     * @param key the storage key.
+     * @return the content file, or null if the content is not cached.
+     */
+    public synchronized File get( String key )
+    {
+        Long entry = entries.get( key );
+
+        if ( entry == null )
+        {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return getPath( key ).toFile();
+    }
+
+    /**
+     * Caches the given content under the given key, evicting least recently
+     * used content as necessary. Content larger than the max size of the cache
+     * is not cached.
+     *
+     * @param key the storage key.
+     * @param content the content, which is consumed but not closed.
+     * @param length the content length.
+     * @return the cached content file, or null if the content was not cached.
+     * @throws IOException if the content could not be written.
+     */
+    public File put( String key, InputStream content, long length )
+        throws IOException
+    {
+        if ( length > maxSize )
+        {
+            return null;
+        }
+
+        Path path = getPath( key );
+        Path tmp = Files.createTempFile( directory, null, TMP_SUFFIX );
+
+        try
+        {
+            Files.copy( content, tmp, StandardCopyOption.REPLACE_EXISTING );
+            Files.move( tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        finally
+        {
+            Files.deleteIfExists( tmp );
+        }
+
+        long fileSize = Files.size( path );
+
+        synchronized ( this )
+        {
+            Long previous = entries.put( key, fileSize );
+            size += fileSize - ( previous != null ? previous : 0 );
+            evict();
+        }
+
+        return path.toFile();
+    }
+
+    /**
+     * Removes the content of the given key from the cache.
+     *
+     * @param key the storage key.
+     */
+    public synchronized void remove( String key )
+    {
+        Long entry = entries.remove( key );
+
+        if ( entry != null )
+        {
+            size -= entry;
+            delete( key );
+        }
+    }
+
+    /**
+     * Removes all content from the cache.
+     */
+    public synchronized void clear()
+    {
+        entries.keySet().forEach( this::delete );
+        entries.clear();
+        size = 0;
+    }
+
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    public synchronized long getSize()
+    {
+        return size;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void evict()
+    {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+
+        while ( size > maxSize && iterator.hasNext() )
+        {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.getValue();
+            delete( eldest.getKey() );
+        }
+    }
+
+    private void delete( String key )
+    {
+        try
+        {
+            Files.deleteIfExists( getPath( key ) );
+        }
+        catch ( IOException ex )
+        {
+            log.warn( String.format( "Cached content for key '%s' could not be deleted", key ), ex );
+        }
+    }
+
+    /**
+     * Returns the cache file path of the given key. Keys may contain path
+     * separators and are hence hashed.
+     */
+    private Path getPath( String key )
+    {
+        return directory.resolve( Hashing.sha256().hashString( key, StandardCharsets.UTF_8 ).toString() );
+    }
+}
@@ -31,12 +31,21 @@ package org.hisp.dhis.fileresource;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 
 import javax.annotation.PostConstruct;
@@ -51,6 +60,7 @@ import org.hisp.dhis.external.location.LocationManager;
 import org.jclouds.ContextBuilder;
 import org.jclouds.blobstore.*;
 import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.BlobMetadata;
 import org.jclouds.blobstore.internal.RequestSigningUnsupported;
 import org.jclouds.domain.Credentials;
 import org.jclouds.domain.Location;
@@ -67,6 +77,10 @@ import org.springframework.stereotype.Service;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -75,7 +89,7 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 @Service( "org.hisp.dhis.fileresource.FileResourceContentStore" )
 public class JCloudsFileResourceContentStore
-    implements FileResourceContentStore
+    implements FileResourceContentStore, MeterBinder
 {
     private static final Pattern CONTAINER_NAME_PATTERN = Pattern
         .compile( "^(?![.-])(?=.{1,63}$)([.-]?[a-zA-Z0-9]+)+$" );
@@ -88,6 +102,21 @@ public class JCloudsFileResourceContentStore
 
     private BlobStoreProperties config;
 
+    /**
+     * Container directory of the file system provider, null for other
+     * providers.
+     */
+    private Path fileSystemContainer;
+
+    /**
+     * Local cache of content of remote providers, null if not enabled.
+     */
+    private FileResourceContentCache contentCache;
+
+    private final LongAdder servedRequests = new LongAdder();
+
+    private final LongAdder servedBytes = new LongAdder();
+
     // -------------------------------------------------------------------------
     // Providers
     // -------------------------------------------------------------------------
@@ -98,6 +127,8 @@ public class JCloudsFileResourceContentStore
 
     private static final String JCLOUDS_PROVIDER_KEY_TRANSIENT = "transient";
 
+    private static final String CONTENT_CACHE_DIR = "filecache";
+
     private static final List<String> SUPPORTED_PROVIDERS =
         Arrays.asList( JCLOUDS_PROVIDER_KEY_FILESYSTEM, JCLOUDS_PROVIDER_KEY_AWS_S3, JCLOUDS_PROVIDER_KEY_TRANSIENT );
 
@@ -165,6 +196,8 @@ public class JCloudsFileResourceContentStore
 
             log.info( String.format( "File store configured with provider: '%s', container: '%s' and location: '%s'.",
                 config.provider, config.container, config.location ) );
+
+            initContentAccess();
         }
         catch ( HttpResponseException ex )
         {
@@ -178,6 +211,43 @@ public class JCloudsFileResourceContentStore
         }
     }
 
+    /**
+     * Sets up direct access to content files for the file system provider, and
+     * a local content cache for remote providers.
+     */
+    private void initContentAccess()
+    {
+        if ( config.provider.equals( JCLOUDS_PROVIDER_KEY_FILESYSTEM ) )
+        {
+            fileSystemContainer = Paths.get( locationManager.getExternalDirectoryPath(), config.container );
+        }
+        else if ( config.provider.equals( JCLOUDS_PROVIDER_KEY_AWS_S3 ) )
+        {
+            long maxSizeMb = Long.parseLong( configurationProvider.getProperty( ConfigurationKey.FILESTORE_CACHE_MAX_SIZE_MB ) );
+
+            if ( maxSizeMb <= 0 )
+            {
+                return;
+            }
+
+            Path directory = locationManager.externalDirectorySet() ?
+                Paths.get( locationManager.getExternalDirectoryPath(), CONTENT_CACHE_DIR ) :
+                Paths.get( System.getProperty( "java.io.tmpdir" ), "dhis2-" + CONTENT_CACHE_DIR );
+
+            try
+            {
+                contentCache = new FileResourceContentCache( directory, maxSizeMb * 1024 * 1024 );
+
+                log.info( String.format( "File store content cache configured with directory: '%s' and max size: %d MB",
+                    directory, maxSizeMb ) );
+            }
+            catch ( IOException ex )
+            {
+                log.warn( String.format( "File store content cache could not be created in directory: '%s'", directory ), ex );
+            }
+        }
+    }
+
     @PreDestroy
     public void cleanUp()
     {
@@ -191,6 +261,20 @@ public class JCloudsFileResourceContentStore
     @Override
     public InputStream getFileResourceContent( String key )
     {
+        try
+        {
+            File file = getContentFile( key );
+
+            if ( file != null )
+            {
+                return new FileInputStream( file );
+            }
+        }
+        catch ( IOException e )
+        {
+            log.debug( String.format( "Unable to read content file of key: %s, reading from blob", key ), e );
+        }
+
         final Blob blob = getBlob( key );
 
         if ( blob == null )
@@ -212,14 +296,24 @@ public class JCloudsFileResourceContentStore
     @Override
     public long getFileResourceContentLength( String key )
     {
-        final Blob blob = getBlob( key );
+        if ( fileSystemContainer != null )
+        {
+            File file = fileSystemContainer.resolve( key ).toFile();
 
-        if ( blob == null )
+            if ( file.isFile() )
+            {
+                return file.length();
+            }
+        }
+
+        final BlobMetadata metadata = key != null ? blobStore.blobMetadata( config.container, key ) : null;
+
+        if ( metadata == null )
         {
             return 0;
         }
 
-        return blob.getMetadata().getContentMetadata().getContentLength();
+        return metadata.getContentMetadata().getContentLength();
     }
 
     @Override
@@ -333,6 +427,11 @@ public class JCloudsFileResourceContentStore
     public void deleteFileResourceContent( String key )
     {
         deleteBlob( key );
+
+        if ( contentCache != null )
+        {
+            contentCache.remove( key );
+        }
     }
 
     @Override
@@ -369,6 +468,30 @@ public class JCloudsFileResourceContentStore
     public void copyContent( String key, OutputStream output )
         throws IOException, NoSuchElementException
     {
+        copyContent( key, output, 0, Long.MAX_VALUE );
+    }
+
+    @Override
+    public void copyContent( String key, OutputStream output, long offset, long length )
+        throws IOException, NoSuchElementException
+    {
+        servedRequests.increment();
+
+        File file = getContentFile( key );
+
+        if ( file != null )
+        {
+            try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+            {
+                servedBytes.add( transfer( channel, Channels.newChannel( output ), offset, length ) );
+                return;
+            }
+            catch ( NoSuchFileException ex )
+            {
+                log.debug( String.format( "Content file of key: %s was removed, reading from blob", key ) );
+            }
+        }
+
         if ( !blobExists( key ) )
         {
             throw new NoSuchElementException( "key '" + key + "' not found." );
@@ -378,7 +501,40 @@ public class JCloudsFileResourceContentStore
 
         try ( InputStream in = blob.getPayload().openStream() )
         {
-            IOUtils.copy( in, output );
+            servedBytes.add( IOUtils.copyLarge( in, output, offset, length == Long.MAX_VALUE ? -1 : length ) );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // MeterBinder implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void bindTo( MeterRegistry registry )
+    {
+        FunctionCounter.builder( "filestore.served.requests", servedRequests, LongAdder::doubleValue )
+            .description( "Number of file resource content requests served" )
+            .register( registry );
+
+        FunctionCounter.builder( "filestore.served.bytes", servedBytes, LongAdder::doubleValue )
+            .description( "Number of file resource content bytes served" )
+            .baseUnit( "bytes" )
+            .register( registry );
+
+        if ( contentCache != null )
+        {
+            FunctionCounter.builder( "filestore.cache.hits", contentCache, FileResourceContentCache::getHits )
+                .description( "Number of file resource content requests served from the local cache" )
+                .register( registry );
+
+            FunctionCounter.builder( "filestore.cache.misses", contentCache, FileResourceContentCache::getMisses )
+                .description( "Number of file resource content requests not found in the local cache" )
+                .register( registry );
+
+            Gauge.builder( "filestore.cache.size", contentCache, FileResourceContentCache::getSize )
+                .description( "Size of file resource content in the local cache" )
+                .baseUnit( "bytes" )
+                .register( registry );
         }
     }
 
@@ -386,6 +542,77 @@ public class JCloudsFileResourceContentStore
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Returns a local file holding the content of the given key, which is the
+     * blob file itself for the file system provider, or a cached copy of the
+     * blob for remote providers. The content is cached if not already cached.
+     *
+     * @param key the key.
+     * @return a file, or null if the content is not available as a local file.
+     */
+    private File getContentFile( String key )
+        throws IOException
+    {
+        if ( key == null )
+        {
+            return null;
+        }
+
+        if ( fileSystemContainer != null )
+        {
+            File file = fileSystemContainer.resolve( key ).toFile();
+            return file.isFile() ? file : null;
+        }
+
+        if ( contentCache == null )
+        {
+            return null;
+        }
+
+        File file = contentCache.get( key );
+
+        if ( file == null && blobExists( key ) )
+        {
+            Blob blob = getBlob( key );
+
+            try ( InputStream in = blob.getPayload().openStream() )
+            {
+                file = contentCache.put( key, in, blob.getMetadata().getContentMetadata().getContentLength() );
+            }
+        }
+
+        return file;
+    }
+
+    /**
+     * Transfers a range of the given file channel to the given target channel,
+     * which avoids copying through user space buffers where supported by the
+     * operating system.
+     *
+     * @return the number of bytes transferred.
+     */
+    private static long transfer( FileChannel channel, WritableByteChannel target, long offset, long length )
+        throws IOException
+    {
+        long size = channel.size();
+        long end = length >= size - offset ? size : offset + length;
+        long position = offset;
+
+        while ( position < end )
+        {
+            long transferred = channel.transferTo( position, end - position, target );
+
+            if ( transferred <= 0 )
+            {
+                break;
+            }
+
+            position += transferred;
+        }
+
+        return Math.max( 0, position - offset );
+    }
+
     private Blob getBlob( String key )
     {
         return blobStore.getBlob( config.container, key );
@@ -141,6 +141,13 @@ public class DefaultIndicatorService
         return indicatorStore.getIndicatorsWithDataSets();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Indicator> getIndicatorsWithIdenticalFormulas()
+    {
+        return indicatorStore.getIndicatorsWithIdenticalFormulas();
+    }
+
     // -------------------------------------------------------------------------
     // IndicatorType
     // -------------------------------------------------------------------------
@@ -81,4 +81,13 @@ public class HibernateIndicatorStore
 
         return getQuery( hql ).setCacheable( true ).list();
     }
+
+    @Override
+    public List<Indicator> getIndicatorsWithIdenticalFormulas()
+    {
+        final String hql = "from Indicator d where exists (select o.id from Indicator o " +
+            "where o.id <> d.id and o.numerator = d.numerator and o.denominator = d.denominator)";
+
+        return getQuery( hql ).list();
+    }
 }
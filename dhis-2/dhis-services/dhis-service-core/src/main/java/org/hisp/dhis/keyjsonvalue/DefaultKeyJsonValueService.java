@@ -38,6 +38,7 @@ import java.io.UncheckedIOException;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -101,6 +102,18 @@ public class DefaultKeyJsonValueService
         return keyJsonValueStore.getKeyJsonValue( namespace, key );
     }
 
+    @Override
+    @Transactional( readOnly = true )
+    public void getKeyJsonValues( KeyJsonValueQuery query, boolean isAdmin, BiConsumer<String, String> consumer )
+    {
+        if ( !isAdmin && MetadataVersionService.METADATASTORE.equals( query.getNamespace() ) )
+        {
+            return;
+        }
+
+        keyJsonValueStore.getKeyJsonValues( query, consumer );
+    }
+
     @Override
     @Transactional( readOnly = true )
     public List<KeyJsonValue> getKeyJsonValuesInNamespace( String namespace, boolean isAdmin )
@@ -28,8 +28,11 @@
 
 package org.hisp.dhis.keyjsonvalue.hibernate;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
 
 import javax.persistence.criteria.CriteriaBuilder;
 
@@ -37,13 +40,17 @@ import org.hibernate.SessionFactory;
 import org.hibernate.query.Query;
 import org.hisp.dhis.common.hibernate.HibernateIdentifiableObjectStore;
 import org.hisp.dhis.keyjsonvalue.KeyJsonValue;
+import org.hisp.dhis.keyjsonvalue.KeyJsonValueQuery;
 import org.hisp.dhis.keyjsonvalue.KeyJsonValueStore;
 import org.hisp.dhis.security.acl.AclService;
 import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.user.UserInfo;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
 /**
  * @author Stian Sandvold
  */
@@ -52,6 +59,9 @@ public class HibernateKeyJsonValueStore
     extends HibernateIdentifiableObjectStore<KeyJsonValue>
     implements KeyJsonValueStore
 {
+    private static final Pattern JSON_LITERAL_PATTERN = Pattern.compile(
+        "^(-?(0|[1-9]\\d*)(\\.\\d+)?([eE][+-]?\\d+)?|true|false|null)$" );
+
     public HibernateKeyJsonValueStore( SessionFactory sessionFactory, JdbcTemplate jdbcTemplate,
         ApplicationEventPublisher publisher, CurrentUserService currentUserService, AclService aclService )
     {
@@ -113,4 +123,165 @@ public class HibernateKeyJsonValueStore
             .addPredicate( root -> builder.equal( root.get( "namespace" ), namespace ) )
             .addPredicate( root -> builder.equal( root.get( "key" ), key ) ) );
     }
+
+    @Override
+    public void getKeyJsonValues( KeyJsonValueQuery query, BiConsumer<String, String> consumer )
+    {
+        List<Object> args = new ArrayList<>();
+
+        String sql = getKeyJsonValuesSql( query, currentUserService.getCurrentUserInfo(), args );
+
+        jdbcTemplate.query( sql, rs -> {
+            consumer.accept( rs.getString( "namespacekey" ), rs.getString( "value" ) );
+        }, args.toArray() );
+    }
+
+    /**
+     * Returns the SQL for the given query, adding the arguments of the SQL to
+     * the given list.
+     */
+    String getKeyJsonValuesSql( KeyJsonValueQuery query, UserInfo user, List<Object> args )
+    {
+        StringBuilder sql = new StringBuilder( "select kjv.namespacekey, " );
+
+        if ( query.hasFieldProjection() )
+        {
+            List<String> fields = new ArrayList<>();
+
+            for ( String field : query.getFields() )
+            {
+                fields.add( "?, kjv.jbvalue #> cast(? as text[])" );
+                args.add( field );
+                args.add( getPathArray( field ) );
+            }
+
+            sql.append( "cast(jsonb_build_object(" ).append( String.join( ", ", fields ) ).append( ") as text) as value " );
+        }
+        else
+        {
+            sql.append( "cast(kjv.jbvalue as text) as value " );
+        }
+
+        sql.append( "from keyjsonvalue kjv where kjv.namespace = ? and kjv.encrypted = false " );
+        args.add( query.getNamespace() );
+
+        if ( query.getLastUpdated() != null )
+        {
+            sql.append( "and kjv.lastupdated >= ? " );
+            args.add( query.getLastUpdated() );
+        }
+
+        if ( query.getAfter() != null )
+        {
+            sql.append( "and kjv.namespacekey > ? " );
+            args.add( query.getAfter() );
+        }
+
+        for ( KeyJsonValueQuery.Filter filter : query.getFilters() )
+        {
+            sql.append( "and " ).append( getFilterSql( filter, args ) ).append( " " );
+        }
+
+        if ( user != null && !user.isSuper() && aclService.isShareable( KeyJsonValue.class ) )
+        {
+            sql.append( "and " ).append( getSharingSql( user, AclService.LIKE_READ_METADATA, args ) ).append( " " );
+        }
+
+        sql.append( "order by kjv.namespacekey limit ?" );
+        args.add( query.getPageSize() );
+
+        return sql.toString();
+    }
+
+    private String getFilterSql( KeyJsonValueQuery.Filter filter, List<Object> args )
+    {
+        final String path = "kjv.jbvalue #> cast(? as text[])";
+        final String textPath = "kjv.jbvalue #>> cast(? as text[])";
+
+        args.add( getPathArray( filter.getPath() ) );
+
+        switch ( filter.getOperator() )
+        {
+            case NULL:
+                return "coalesce(" + path + ", 'null'::jsonb) = 'null'::jsonb";
+            case NOT_NULL:
+                return "coalesce(" + path + ", 'null'::jsonb) <> 'null'::jsonb";
+            case LIKE:
+                args.add( "%" + filter.getValue() + "%" );
+                return textPath + " like ?";
+            case ILIKE:
+                args.add( "%" + filter.getValue() + "%" );
+                return textPath + " ilike ?";
+            default:
+                args.add( getJsonLiteral( filter.getValue() ) );
+                return path + " " + getComparisonOperator( filter.getOperator() ) + " cast(? as jsonb)";
+        }
+    }
+
+    private String getComparisonOperator( KeyJsonValueQuery.Operator operator )
+    {
+        switch ( operator )
+        {
+            case EQ:
+                return "=";
+            case NE:
+                return "<>";
+            case GT:
+                return ">";
+            case GE:
+                return ">=";
+            case LT:
+                return "<";
+            case LE:
+                return "<=";
+            default:
+                throw new IllegalArgumentException( "Not a comparison operator: " + operator );
+        }
+    }
+
+    /**
+     * Returns a SQL condition which matches entries readable by the given user
+     * through public access, ownership, user access or user group access.
+     */
+    private String getSharingSql( UserInfo user, String access, List<Object> args )
+    {
+        args.add( access );
+        args.add( user.getId() );
+        args.add( user.getId() );
+        args.add( access );
+        args.add( user.getId() );
+        args.add( access );
+
+        return "(kjv.publicaccess like ? or kjv.publicaccess is null or kjv.userid is null or kjv.userid = ? " +
+            "or exists (select 1 from keyjsonvalueusergroupaccesses kuga " +
+            "inner join usergroupaccess uga on kuga.usergroupaccessid = uga.usergroupaccessid " +
+            "inner join usergroupmembers ugm on uga.usergroupid = ugm.usergroupid " +
+            "where kuga.keyjsonvalueid = kjv.keyjsonvalueid and ugm.userid = ? and uga.access like ?) " +
+            "or exists (select 1 from keyjsonvalueuseraccesses kua " +
+            "inner join useraccess ua on kua.useraccessid = ua.useraccessid " +
+            "where kua.keyjsonvalueid = kjv.keyjsonvalueid and ua.userid = ? and ua.access like ?))";
+    }
+
+    /**
+     * Returns a PostgreSQL text array literal of the elements of the given
+     * property path.
+     */
+    private static String getPathArray( String path )
+    {
+        return "{\"" + String.join( "\",\"", KeyJsonValueQuery.getPathElements( path ) ) + "\"}";
+    }
+
+    /**
+     * Returns the given value as a JSON literal. Numbers, booleans and null are
+     * kept as is, whereas any other value is treated as a string.
+     */
+    private static String getJsonLiteral( String value )
+    {
+        if ( JSON_LITERAL_PATTERN.matcher( value ).matches() )
+        {
+            return value;
+        }
+
+        return "\"" + new String( JsonStringEncoder.getInstance().quoteAsString( value ) ) + "\"";
+    }
 }
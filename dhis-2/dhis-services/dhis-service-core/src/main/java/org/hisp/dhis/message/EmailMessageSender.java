@@ -30,6 +30,8 @@ package org.hisp.dhis.message;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +39,10 @@ import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
+import javax.annotation.PreDestroy;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.mail.DefaultAuthenticator;
 import org.apache.commons.mail.EmailException;
@@ -46,13 +52,17 @@ import org.hisp.dhis.commons.util.DebugUtils;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.email.EmailConfiguration;
 import org.hisp.dhis.email.EmailResponse;
+import org.hisp.dhis.external.conf.ConfigurationKey;
 import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.outboundmessage.OutboundMessage;
 import org.hisp.dhis.outboundmessage.OutboundMessageBatch;
 import org.hisp.dhis.outboundmessage.OutboundMessageBatchStatus;
 import org.hisp.dhis.outboundmessage.OutboundMessageResponse;
 import org.hisp.dhis.outboundmessage.OutboundMessageResponseSummary;
+import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.notification.Notifier;
 import org.hisp.dhis.system.util.ValidationUtils;
 import org.hisp.dhis.system.velocity.VelocityManager;
 import org.hisp.dhis.user.User;
@@ -84,6 +94,7 @@ public class EmailMessageSender
     private static final String LB = System.getProperty( "line.separator" );
     private static final String MESSAGE_EMAIL_TEMPLATE = "message_email";
     private static final String HOST = "Host: ";
+    private static final long RETRY_BACKOFF = 1000;
 
     // -------------------------------------------------------------------------
     // Dependencies
@@ -95,16 +106,28 @@ public class EmailMessageSender
 
     private DhisConfigurationProvider configurationProvider;
 
+    private Notifier notifier;
+
+    /**
+     * Sender of the current email configuration, which keeps SMTP connections
+     * open between messages.
+     */
+    private SmtpBatchSender smtpSender;
+
+    private List<Object> smtpSenderKey;
+
     public EmailMessageSender( SystemSettingManager systemSettingManager, UserSettingService userSettingService,
-        DhisConfigurationProvider configurationProvider )
+        DhisConfigurationProvider configurationProvider, Notifier notifier )
     {
         checkNotNull( systemSettingManager );
         checkNotNull( userSettingService );
         checkNotNull( configurationProvider );
+        checkNotNull( notifier );
 
         this.systemSettingManager = systemSettingManager;
         this.userSettingService = userSettingService;
         this.configurationProvider = configurationProvider;
+        this.notifier = notifier;
     }
 
     // -------------------------------------------------------------------------
@@ -165,10 +188,7 @@ public class EmailMessageSender
 
             if ( hasRecipients )
             {
-                email.send();
-
-                log.info( "Email sent using host: " + emailConfig.getHostName() + ":" + emailConfig.getPort() + " with TLS: " + emailConfig.isTls() );
-                status = new OutboundMessageResponse( "Email sent", EmailResponse.SENT, true );
+                status = send( emailConfig, email );
             }
             else
             {
@@ -235,10 +255,7 @@ public class EmailMessageSender
 
             if ( hasRecipients )
             {
-                email.send();
-
-                log.info( "Email sent using host: " + emailConfig.getHostName() + ":" + emailConfig.getPort() + " with TLS: " + emailConfig.isTls() );
-                return new OutboundMessageResponse( "Email sent", EmailResponse.SENT, true );
+                return send( emailConfig, email );
             }
             else
             {
@@ -260,14 +277,112 @@ public class EmailMessageSender
         return sendMessage( subject, text, Sets.newHashSet( recipient ) );
     }
 
+    /**
+     * Sends the messages of the batch over pooled SMTP connections, see
+     * {@link SmtpBatchSender}. Progress is reported through the notifier if
+     * the batch is sent as part of a job. The summary counts every message
+     * which was not sent as failed.
+     */
     @Override
     public OutboundMessageResponseSummary sendMessageBatch( OutboundMessageBatch batch )
     {
-        List<OutboundMessageResponse> statuses = batch.getMessages().stream()
-            .map( m -> sendMessage( m.getSubject(), m.getText(), m.getRecipients() ) )
-            .collect( Collectors.toList() );
+        EmailConfiguration emailConfig = getEmailConfiguration();
+
+        if ( emailConfig.getHostName() == null )
+        {
+            return new OutboundMessageResponseSummary( EmailResponse.HOST_CONFIG_NOT_FOUND.getResponseMessage(),
+                DeliveryChannel.EMAIL, OutboundMessageBatchStatus.FAILED );
+        }
+
+        OutboundMessageResponse[] statuses = new OutboundMessageResponse[batch.size()];
+        List<Integer> indexes = new ArrayList<>();
+        List<MimeMessage> mimeMessages = new ArrayList<>();
+
+        for ( int i = 0; i < batch.size(); i++ )
+        {
+            OutboundMessage message = batch.getMessages().get( i );
+
+            Set<String> recipients = message.getRecipients().stream()
+                .filter( this::isEmailValid )
+                .collect( Collectors.toSet() );
+
+            if ( recipients.isEmpty() )
+            {
+                statuses[i] = new OutboundMessageResponse( "No valid email address found", EmailResponse.ABORTED, false );
+                continue;
+            }
+
+            try
+            {
+                HtmlEmail email = getHtmlEmail( emailConfig.getHostName(), emailConfig.getPort(), emailConfig.getUsername(),
+                    emailConfig.getPassword(), emailConfig.isTls(), emailConfig.getFrom() );
+                email.setSubject( getPrefixedSubject( message.getSubject() ) );
+                email.setTextMsg( message.getText() );
+
+                for ( String recipient : recipients )
+                {
+                    email.addBcc( recipient );
+                }
+
+                email.buildMimeMessage();
+
+                indexes.add( i );
+                mimeMessages.add( email.getMimeMessage() );
+            }
+            catch ( EmailException ex )
+            {
+                log.error( "Error while building email: " + ex.getMessage() );
+                statuses[i] = new OutboundMessageResponse( "Email not sent: " + ex.getMessage(), EmailResponse.FAILED, false );
+            }
+        }
+
+        if ( !mimeMessages.isEmpty() )
+        {
+            SmtpBatchSender sender;
+
+            try
+            {
+                sender = getSmtpSender( emailConfig );
+            }
+            catch ( EmailException ex )
+            {
+                log.error( "Error while creating email session: " + ex.getMessage() );
+                return new OutboundMessageResponseSummary( "Email not sent: " + ex.getMessage(),
+                    DeliveryChannel.EMAIL, OutboundMessageBatchStatus.FAILED );
+            }
+
+            JobConfiguration jobId = batch.getJobConfiguration();
+            int total = mimeMessages.size();
+
+            List<OutboundMessageResponse> responses;
+
+            try
+            {
+                responses = sender.send( mimeMessages, count -> {
+                    String progress = String.format( "Sent %d of %d emails", count, total );
+
+                    if ( jobId != null )
+                    {
+                        notifier.notify( jobId, progress );
+                    }
+
+                    log.info( progress );
+                } );
+            }
+            finally
+            {
+                sender.release();
+            }
 
-        return generateSummary( statuses );
+            for ( int i = 0; i < indexes.size(); i++ )
+            {
+                statuses[indexes.get( i )] = responses.get( i );
+            }
+
+            log.info( "Email batch sent using host: " + emailConfig.getHostName() + ":" + emailConfig.getPort() + " with TLS: " + emailConfig.isTls() );
+        }
+
+        return generateSummary( Arrays.asList( statuses ) );
     }
 
     @Override
@@ -283,10 +398,84 @@ public class EmailMessageSender
         return getEmailConfiguration().isOk();
     }
 
+    @PreDestroy
+    public synchronized void shutdown()
+    {
+        if ( smtpSender != null )
+        {
+            smtpSender.close();
+            smtpSender = null;
+        }
+    }
+
     // -------------------------------------------------------------------------
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Sends the given email over a pooled SMTP connection.
+     */
+    private OutboundMessageResponse send( EmailConfiguration emailConfig, HtmlEmail email )
+        throws EmailException
+    {
+        email.buildMimeMessage();
+
+        SmtpBatchSender sender = getSmtpSender( emailConfig );
+
+        OutboundMessageResponse status;
+
+        try
+        {
+            status = sender.send( email.getMimeMessage() );
+        }
+        finally
+        {
+            sender.release();
+        }
+
+        if ( status.isOk() )
+        {
+            log.info( "Email sent using host: " + emailConfig.getHostName() + ":" + emailConfig.getPort() + " with TLS: " + emailConfig.isTls() );
+        }
+
+        return status;
+    }
+
+    /**
+     * Returns the SMTP sender of the given configuration, acquired for the
+     * caller which must release it when done sending. The sender is replaced
+     * when the configuration changes, and the replaced sender is shut down
+     * once the messages which are being sent with it are sent.
+     */
+    private synchronized SmtpBatchSender getSmtpSender( EmailConfiguration emailConfig )
+        throws EmailException
+    {
+        List<Object> key = Arrays.asList( emailConfig.getHostName(), emailConfig.getPort(), emailConfig.getUsername(),
+            emailConfig.getPassword(), emailConfig.isTls(), emailConfig.getFrom() );
+
+        if ( smtpSender == null || !key.equals( smtpSenderKey ) )
+        {
+            if ( smtpSender != null )
+            {
+                smtpSender.close();
+            }
+
+            Session session = getHtmlEmail( emailConfig.getHostName(), emailConfig.getPort(), emailConfig.getUsername(),
+                emailConfig.getPassword(), emailConfig.isTls(), emailConfig.getFrom() ).getMailSession();
+
+            smtpSender = new SmtpBatchSender( session::getTransport,
+                Integer.parseInt( configurationProvider.getProperty( ConfigurationKey.EMAIL_SMTP_WORKERS ) ),
+                Double.parseDouble( configurationProvider.getProperty( ConfigurationKey.EMAIL_SMTP_RATE_LIMIT ) ),
+                Integer.parseInt( configurationProvider.getProperty( ConfigurationKey.EMAIL_SMTP_MAX_ATTEMPTS ) ),
+                RETRY_BACKOFF );
+            smtpSenderKey = key;
+        }
+
+        smtpSender.acquire();
+
+        return smtpSender;
+    }
+
     private HtmlEmail getHtmlEmail( String hostName, int port, String username, String password, boolean tls,
         String sender ) throws EmailException
     {
@@ -0,0 +1,518 @@
+package org.hisp.dhis.message;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
+import org.hisp.dhis.email.EmailResponse;
+import org.hisp.dhis.outboundmessage.OutboundMessageResponse;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends email messages over SMTP. Messages of a batch are divided among a
+ * number of workers, each of which keeps a single SMTP connection open for
+ * all of its messages, rather than opening a connection per message.
+ * Connections are kept open after sending and are reused by subsequent
+ * batches and single messages, up to one idle connection per worker.
+ * <p>
+ * Messages are sent at no more than the given rate across all workers.
+ * Transient failures, such as dropped connections and temporarily rejected
+ * messages, are retried on a new connection with exponential backoff.
+ * Messages rejected because of invalid addresses are not retried. A response
+ * is returned for every message, also when a worker fails.
+ * <p>
+ * A sender which is shared between threads can be {@link #acquire() acquired}
+ * for the duration of a send, in which case closing it is deferred until all
+ * users have {@link #release() released} it.
+ */
+@Slf4j
+public class SmtpBatchSender
+{
+    /**
+     * Number of sent messages between progress reports.
+     */
+    public static final int PROGRESS_INTERVAL = 100;
+
+    private final TransportFactory transportFactory;
+
+    private final int workers;
+
+    private final RateLimiter rateLimiter;
+
+    private final int maxAttempts;
+
+    private final long backoff;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Connected SMTP connections which are not in use.
+     */
+    private final BlockingDeque<Transport> idleTransports = new LinkedBlockingDeque<>();
+
+    private volatile boolean closed = false;
+
+    /**
+     * Number of users which have acquired the sender and not yet released it.
+     */
+    private int users = 0;
+
+    /**
+     * Creates SMTP connections.
+     */
+    @FunctionalInterface
+    public interface TransportFactory
+    {
+        Transport getTransport()
+            throws MessagingException;
+    }
+
+    /**
+     * @param transportFactory the factory of SMTP connections.
+     * @param workers the max number of workers, and hence of concurrent SMTP
+     *        connections of batches.
+     * @param maxRate the max number of messages sent per second, or 0 if
+     *        unlimited.
+     * @param maxAttempts the max number of attempts to send a message.
+     * @param backoff the time to wait before the first retry in milliseconds,
+     *        which is doubled for each subsequent retry.
+     */
+    public SmtpBatchSender( TransportFactory transportFactory, int workers, double maxRate, int maxAttempts,
+        long backoff )
+    {
+        this.transportFactory = transportFactory;
+        this.workers = Math.max( workers, 1 );
+        this.rateLimiter = maxRate > 0 ? RateLimiter.create( maxRate ) : null;
+        this.maxAttempts = Math.max( maxAttempts, 1 );
+        this.backoff = backoff;
+        this.executor = new ThreadPoolExecutor( this.workers, this.workers, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setNameFormat( "smtp-sender-%d" ).setDaemon( true ).build() );
+        this.executor.allowCoreThreadTimeOut( true );
+    }
+
+    /**
+     * Sends the given messages.
+     *
+     * @param messages the messages.
+     * @param progress receives the number of messages processed so far, every
+     *        {@link #PROGRESS_INTERVAL} messages.
+     * @return the responses, in the order of the messages. Messages which were
+     *         not sent because a worker failed or the thread was interrupted
+     *         have a failed response.
+     */
+    public List<OutboundMessageResponse> send( List<MimeMessage> messages, IntConsumer progress )
+    {
+        if ( messages.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        OutboundMessageResponse[] responses = new OutboundMessageResponse[messages.size()];
+
+        int partitionSize = (messages.size() + workers - 1) / workers;
+
+        List<List<MimeMessage>> partitions = Lists.partition( messages, partitionSize );
+
+        AtomicInteger processed = new AtomicInteger();
+
+        String failure = "Email worker failed";
+
+        if ( partitions.size() == 1 )
+        {
+            try
+            {
+                new Worker( processed, progress ).send( messages, responses, 0 );
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+
+                failure = "Thread interrupted";
+            }
+        }
+        else
+        {
+            List<Future<?>> futures = new ArrayList<>();
+
+            for ( int i = 0; i < partitions.size(); i++ )
+            {
+                List<MimeMessage> partition = partitions.get( i );
+                int offset = i * partitionSize;
+
+                futures.add( executor.submit( () -> {
+                    new Worker( processed, progress ).send( partition, responses, offset );
+                    return null;
+                } ) );
+            }
+
+            for ( Future<?> future : futures )
+            {
+                try
+                {
+                    future.get();
+                }
+                catch ( ExecutionException ex )
+                {
+                    log.error( "Email worker failed", ex.getCause() );
+                }
+                catch ( InterruptedException ex )
+                {
+                    Thread.currentThread().interrupt();
+
+                    futures.forEach( f -> f.cancel( true ) );
+
+                    failure = "Thread interrupted";
+
+                    break;
+                }
+            }
+        }
+
+        for ( int i = 0; i < responses.length; i++ )
+        {
+            if ( responses[i] == null )
+            {
+                responses[i] = failed( failure );
+            }
+        }
+
+        return Arrays.asList( responses );
+    }
+
+    /**
+     * Sends the given message over an idle connection, or over a new
+     * connection if none is idle.
+     *
+     * @param message the message.
+     * @return the response.
+     */
+    public OutboundMessageResponse send( MimeMessage message )
+    {
+        Worker worker = new Worker( new AtomicInteger(), count -> {} );
+
+        try
+        {
+            return worker.send( message );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            return failed( "Thread interrupted" );
+        }
+        catch ( RuntimeException ex )
+        {
+            worker.close();
+
+            log.error( "Email not sent", ex );
+
+            return failed( ex.getMessage() );
+        }
+        finally
+        {
+            worker.release();
+        }
+    }
+
+    /**
+     * Registers a user of the sender, which must {@link #release() release} it
+     * when done sending. The sender is not shut down while it has users.
+     *
+     * @throws IllegalStateException if the sender is closed.
+     */
+    public synchronized void acquire()
+    {
+        if ( closed )
+        {
+            throw new IllegalStateException( "SMTP sender is closed" );
+        }
+
+        users++;
+    }
+
+    /**
+     * Releases the sender, and shuts it down if it is closed and this was the
+     * last user.
+     */
+    public synchronized void release()
+    {
+        users--;
+
+        if ( closed && users == 0 )
+        {
+            shutdown();
+        }
+    }
+
+    /**
+     * Closes the sender. Idle connections are closed and the workers are
+     * stopped once all users have released the sender, immediately if it has
+     * no users. Connections in use are closed when their messages are sent.
+     */
+    public synchronized void close()
+    {
+        closed = true;
+
+        if ( users == 0 )
+        {
+            shutdown();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void shutdown()
+    {
+        executor.shutdown();
+
+        Transport transport;
+
+        while ( (transport = idleTransports.pollFirst()) != null )
+        {
+            close( transport );
+        }
+    }
+
+    /**
+     * Indicates whether the given failure is permanent, meaning that sending
+     * the message again will fail the same way.
+     */
+    private static boolean isPermanent( MessagingException ex )
+    {
+        if ( ex instanceof SendFailedException )
+        {
+            Address[] invalid = ((SendFailedException) ex).getInvalidAddresses();
+
+            return invalid != null && invalid.length > 0;
+        }
+
+        return false;
+    }
+
+    private static OutboundMessageResponse failed( String reason )
+    {
+        return new OutboundMessageResponse( "Email not sent: " + reason, EmailResponse.FAILED, false );
+    }
+
+    private static void close( Transport transport )
+    {
+        try
+        {
+            transport.close();
+        }
+        catch ( MessagingException ex )
+        {
+            log.debug( "SMTP connection could not be closed", ex );
+        }
+    }
+
+    /**
+     * Sends messages over a single connection, which is taken from the idle
+     * connections if available and replaced when it fails.
+     */
+    private class Worker
+    {
+        private final AtomicInteger processed;
+
+        private final IntConsumer progress;
+
+        private Transport transport;
+
+        private Worker( AtomicInteger processed, IntConsumer progress )
+        {
+            this.processed = processed;
+            this.progress = progress;
+        }
+
+        /**
+         * Sends the given messages and puts the response of each message in
+         * the given array, starting at the given offset. Unexpected failures
+         * fail only the message being sent.
+         */
+        private void send( List<MimeMessage> messages, OutboundMessageResponse[] responses, int offset )
+            throws InterruptedException
+        {
+            try
+            {
+                for ( int i = 0; i < messages.size(); i++ )
+                {
+                    try
+                    {
+                        responses[offset + i] = send( messages.get( i ) );
+                    }
+                    catch ( RuntimeException ex )
+                    {
+                        log.error( "Email not sent", ex );
+
+                        responses[offset + i] = failed( ex.getMessage() );
+
+                        close();
+                    }
+
+                    int count = processed.incrementAndGet();
+
+                    if ( count % PROGRESS_INTERVAL == 0 )
+                    {
+                        progress.accept( count );
+                    }
+                }
+            }
+            finally
+            {
+                release();
+            }
+        }
+
+        private OutboundMessageResponse send( MimeMessage message )
+            throws InterruptedException
+        {
+            for ( int attempt = 1; ; attempt++ )
+            {
+                if ( rateLimiter != null )
+                {
+                    rateLimiter.acquire();
+                }
+
+                try
+                {
+                    if ( transport != null && !transport.isConnected() )
+                    {
+                        close();
+                    }
+
+                    if ( transport == null )
+                    {
+                        transport = borrow();
+                    }
+
+                    transport.sendMessage( message, message.getAllRecipients() );
+
+                    return new OutboundMessageResponse( "Email sent", EmailResponse.SENT, true );
+                }
+                catch ( MessagingException ex )
+                {
+                    if ( isPermanent( ex ) || attempt >= maxAttempts )
+                    {
+                        log.error( String.format( "Email not sent after %d attempts: %s", attempt, ex.getMessage() ) );
+
+                        return failed( ex.getMessage() );
+                    }
+
+                    long wait = backoff << (attempt - 1);
+
+                    log.warn( String.format( "Email not sent, retrying in %d ms: %s", wait, ex.getMessage() ) );
+
+                    close();
+
+                    Thread.sleep( wait );
+                }
+            }
+        }
+
+        /**
+         * Returns an idle connection which is still connected, or a new
+         * connection.
+         */
+        private Transport borrow()
+            throws MessagingException
+        {
+            Transport idle;
+
+            while ( (idle = idleTransports.pollFirst()) != null )
+            {
+                if ( idle.isConnected() )
+                {
+                    return idle;
+                }
+
+                SmtpBatchSender.close( idle );
+            }
+
+            Transport created = transportFactory.getTransport();
+            created.connect();
+            return created;
+        }
+
+        /**
+         * Returns the connection to the idle connections, or closes it if
+         * there are enough idle connections or the sender is closed.
+         */
+        private void release()
+        {
+            if ( transport != null )
+            {
+                if ( !closed && idleTransports.size() < workers && transport.isConnected() )
+                {
+                    idleTransports.offerFirst( transport );
+                }
+                else
+                {
+                    SmtpBatchSender.close( transport );
+                }
+
+                transport = null;
+            }
+        }
+
+        private void close()
+        {
+            if ( transport != null )
+            {
+                SmtpBatchSender.close( transport );
+
+                transport = null;
+            }
+        }
+    }
+}
@@ -29,22 +29,15 @@ package org.hisp.dhis.organisationunit;
  */
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static org.hisp.dhis.commons.util.TextUtils.joinHyphen;
 
 import java.awt.geom.Point2D;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
-import javax.annotation.PostConstruct;
-
 import org.apache.commons.lang3.ObjectUtils;
-import org.hisp.dhis.cache.Cache;
-import org.hisp.dhis.cache.CacheProvider;
 import org.hisp.dhis.common.SortProperty;
 import org.hisp.dhis.commons.collection.ListUtils;
 import org.hisp.dhis.commons.filter.FilterUtils;
-import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.configuration.ConfigurationService;
 import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dataset.DataSetService;
@@ -56,9 +49,9 @@ import org.hisp.dhis.system.util.GeoUtils;
 import org.hisp.dhis.system.util.ValidationUtils;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserSecurityContext;
 import org.hisp.dhis.user.UserSettingKey;
 import org.hisp.dhis.user.UserSettingService;
-import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -74,16 +67,10 @@ public class DefaultOrganisationUnitService
 {
     private static final String LEVEL_PREFIX = "Level ";
 
-    private static Cache<Boolean> IN_USER_ORG_UNIT_HIERARCHY_CACHE;
-
-    private static Cache<Boolean> IN_USER_ORG_UNIT_SEARCH_HIERARCHY_CACHE;
-
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
 
-    private final Environment env;
-
     private final OrganisationUnitStore organisationUnitStore;
 
     private final DataSetService dataSetService;
@@ -96,29 +83,28 @@ public class DefaultOrganisationUnitService
 
     private final UserSettingService userSettingService;
 
-    private final CacheProvider cacheProvider;
+    private final OrganisationUnitHierarchyIndexProvider hierarchyIndexProvider;
 
-    public DefaultOrganisationUnitService( Environment env, OrganisationUnitStore organisationUnitStore,
+    public DefaultOrganisationUnitService( OrganisationUnitStore organisationUnitStore,
         DataSetService dataSetService, OrganisationUnitLevelStore organisationUnitLevelStore,
         CurrentUserService currentUserService, ConfigurationService configurationService,
-        UserSettingService userSettingService, CacheProvider cacheProvider )
+        UserSettingService userSettingService, OrganisationUnitHierarchyIndexProvider hierarchyIndexProvider )
     {
-        checkNotNull( env );
         checkNotNull( organisationUnitStore );
         checkNotNull( dataSetService );
         checkNotNull( organisationUnitLevelStore );
         checkNotNull( currentUserService );
         checkNotNull( configurationService );
         checkNotNull( userSettingService );
+        checkNotNull( hierarchyIndexProvider );
 
-        this.env = env;
         this.organisationUnitStore = organisationUnitStore;
         this.dataSetService = dataSetService;
         this.organisationUnitLevelStore = organisationUnitLevelStore;
         this.currentUserService = currentUserService;
         this.configurationService = configurationService;
         this.userSettingService = userSettingService;
-        this.cacheProvider = cacheProvider;
+        this.hierarchyIndexProvider = hierarchyIndexProvider;
     }
 
     /**
@@ -130,18 +116,6 @@ public class DefaultOrganisationUnitService
         this.currentUserService = currentUserService;
     }
 
-    @PostConstruct
-    public void init()
-    {
-        IN_USER_ORG_UNIT_HIERARCHY_CACHE = cacheProvider.newCacheBuilder( Boolean.class )
-            .forRegion( "inUserOuHierarchy" ).expireAfterWrite( 3, TimeUnit.HOURS ).withInitialCapacity( 1000 )
-            .forceInMemory().withMaximumSize( SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 : 20000 ).build();
-
-        IN_USER_ORG_UNIT_SEARCH_HIERARCHY_CACHE = cacheProvider.newCacheBuilder( Boolean.class )
-            .forRegion( "inUserSearchOuHierarchy" ).expireAfterWrite( 3, TimeUnit.HOURS ).withInitialCapacity( 1000 )
-            .forceInMemory().withMaximumSize( SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 : 20000 ).build();
-    }
-
     // -------------------------------------------------------------------------
     // OrganisationUnit
     // -------------------------------------------------------------------------
@@ -403,6 +377,20 @@ public class DefaultOrganisationUnitService
         return organisationUnitStore.getOrganisationUnitsWithoutGroups();
     }
 
+    @Override
+    @Transactional( readOnly = true )
+    public List<OrganisationUnit> getOrganisationUnitsWithCyclicReferences()
+    {
+        return organisationUnitStore.getOrganisationUnitsWithCyclicReferences();
+    }
+
+    @Override
+    @Transactional( readOnly = true )
+    public List<OrganisationUnit> getOrphanedOrganisationUnits()
+    {
+        return organisationUnitStore.getOrphanedOrganisationUnits();
+    }
+
     @Override
     @Transactional( readOnly = true )
     public Long getOrganisationUnitHierarchyMemberCount( OrganisationUnit parent, Object member, String collectionName )
@@ -452,24 +440,32 @@ public class DefaultOrganisationUnitService
     @Transactional( readOnly = true )
     public boolean isInUserHierarchy( OrganisationUnit organisationUnit )
     {
-        return isInUserHierarchy( currentUserService.getCurrentUser(), organisationUnit );
+        UserSecurityContext context = currentUserService.getCurrentUserSecurityContext();
+
+        if ( context == null || organisationUnit == null )
+        {
+            return false;
+        }
+
+        OrganisationUnitHierarchyIndex index = hierarchyIndexProvider.getIndex();
+
+        return index.contains( organisationUnit.getUid() ) ?
+            index.isDescendant( organisationUnit.getUid(), context.getOrganisationUnitUids() ) :
+            context.isInUserHierarchy( organisationUnit );
     }
 
     @Override
     @Transactional( readOnly = true )
     public boolean isInUserHierarchyCached( OrganisationUnit organisationUnit )
     {
-        return isInUserHierarchyCached( currentUserService.getCurrentUser(), organisationUnit );
+        return isInUserHierarchy( organisationUnit );
     }
 
     @Override
     @Transactional( readOnly = true )
     public boolean isInUserHierarchyCached( User user, OrganisationUnit organisationUnit )
     {
-        String cacheKey = joinHyphen( user.getUsername(), organisationUnit.getUid() );
-
-        return IN_USER_ORG_UNIT_HIERARCHY_CACHE.get( cacheKey, ou -> isInUserHierarchy( user, organisationUnit ) )
-            .orElse( false );
+        return isInUserHierarchy( user, organisationUnit );
     }
 
     @Override
@@ -481,31 +477,39 @@ public class DefaultOrganisationUnitService
             return false;
         }
 
-        return organisationUnit.isDescendant( user.getOrganisationUnits() );
+        return isDescendant( organisationUnit, user.getOrganisationUnits() );
     }
 
     @Override
     @Transactional( readOnly = true )
     public boolean isInUserSearchHierarchy( OrganisationUnit organisationUnit )
     {
-        return isInUserSearchHierarchy( currentUserService.getCurrentUser(), organisationUnit );
+        UserSecurityContext context = currentUserService.getCurrentUserSecurityContext();
+
+        if ( context == null || organisationUnit == null )
+        {
+            return false;
+        }
+
+        OrganisationUnitHierarchyIndex index = hierarchyIndexProvider.getIndex();
+
+        return index.contains( organisationUnit.getUid() ) ?
+            index.isDescendant( organisationUnit.getUid(), context.getTeiSearchOrganisationUnitUids() ) :
+            context.isInUserSearchHierarchy( organisationUnit );
     }
 
     @Override
     @Transactional( readOnly = true )
     public boolean isInUserSearchHierarchyCached( OrganisationUnit organisationUnit )
     {
-        return isInUserSearchHierarchyCached( currentUserService.getCurrentUser(), organisationUnit );
+        return isInUserSearchHierarchy( organisationUnit );
     }
 
     @Override
     @Transactional( readOnly = true )
     public boolean isInUserSearchHierarchyCached( User user, OrganisationUnit organisationUnit )
     {
-        String cacheKey = joinHyphen( user.getUsername(), organisationUnit.getUid() );
-
-        return IN_USER_ORG_UNIT_SEARCH_HIERARCHY_CACHE
-            .get( cacheKey, ou -> isInUserSearchHierarchy( user, organisationUnit ) ).orElse( false );
+        return isInUserSearchHierarchy( user, organisationUnit );
     }
 
     @Override
@@ -518,13 +522,20 @@ public class DefaultOrganisationUnitService
             return false;
         }
 
-        return organisationUnit.isDescendant( user.getTeiSearchOrganisationUnitsWithFallback() );
+        return isDescendant( organisationUnit, user.getTeiSearchOrganisationUnitsWithFallback() );
     }
 
     @Override
     @Transactional( readOnly = true )
     public boolean isInUserHierarchy( String uid, Set<OrganisationUnit> organisationUnits )
     {
+        OrganisationUnitHierarchyIndex index = hierarchyIndexProvider.getIndex();
+
+        if ( index.contains( uid ) )
+        {
+            return organisationUnits != null && index.isDescendant( uid, getUidSet( organisationUnits ) );
+        }
+
         OrganisationUnit organisationUnit = organisationUnitStore.getByUid( uid );
 
         return organisationUnit != null && organisationUnit.isDescendant( organisationUnits );
@@ -546,6 +557,8 @@ public class DefaultOrganisationUnitService
     public void updateOrganisationUnitParent( long organisationUnitId, long parentId )
     {
         organisationUnitStore.updateOrganisationUnitParent( organisationUnitId, parentId );
+
+        hierarchyIndexProvider.invalidateAfterCommit();
     }
 
     // -------------------------------------------------------------------------
@@ -919,4 +932,33 @@ public class DefaultOrganisationUnitService
 
         return new ArrayList<>();
     }
+
+    /**
+     * Indicates whether the given organisation unit is equal to or a descendant
+     * of any of the given ancestors, using the hierarchy index if the
+     * organisation unit is in the index.
+     */
+    private boolean isDescendant( OrganisationUnit organisationUnit, Set<OrganisationUnit> ancestors )
+    {
+        OrganisationUnitHierarchyIndex index = hierarchyIndexProvider.getIndex();
+
+        if ( index.contains( organisationUnit.getUid() ) )
+        {
+            return index.isDescendant( organisationUnit.getUid(), getUidSet( ancestors ) );
+        }
+
+        return organisationUnit.isDescendant( ancestors );
+    }
+
+    private static Set<String> getUidSet( Set<OrganisationUnit> organisationUnits )
+    {
+        Set<String> uids = new HashSet<>( organisationUnits.size() * 4 / 3 + 1 );
+
+        for ( OrganisationUnit organisationUnit : organisationUnits )
+        {
+            uids.add( organisationUnit.getUid() );
+        }
+
+        return uids;
+    }
 }
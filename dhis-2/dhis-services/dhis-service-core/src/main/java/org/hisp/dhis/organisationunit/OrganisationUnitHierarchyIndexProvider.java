@@ -0,0 +1,328 @@
+package org.hisp.dhis.organisationunit;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Holds the {@link OrganisationUnitHierarchyIndex} of this instance. The index
+ * is loaded once, and is then refreshed incrementally from Hibernate post
+ * commit listeners without reading from the database. Changes are collected
+ * and applied together the next time the index is requested, so that bulk
+ * changes such as imports rebuild the index once.
+ * <p>
+ * Local changes invalidate the index on other instances through the cache
+ * region, which makes them reload the index. As cache invalidation between
+ * instances is not enabled by default, and changes made through SQL, such as
+ * {@link OrganisationUnitStore#updateOrganisationUnitParent(long, long)}, are
+ * not detected unless followed by {@link #invalidateAfterCommit()}, the index
+ * is also reloaded once it is older than {@link #MAX_AGE_HOURS} hours.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.organisationunit.OrganisationUnitHierarchyIndexProvider" )
+public class OrganisationUnitHierarchyIndexProvider
+    implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener
+{
+    private static final String KEY = "index";
+
+    /**
+     * Max age of a loaded index in hours, after which it is reloaded.
+     */
+    static final long MAX_AGE_HOURS = 3;
+
+    @PersistenceUnit
+    private EntityManagerFactory emf;
+
+    private final OrganisationUnitStore organisationUnitStore;
+
+    /**
+     * Marks the index as valid. The entry is removed when the index is
+     * invalidated, locally or by another instance.
+     */
+    private final Cache<Boolean> valid;
+
+    private final Queue<Consumer<OrganisationUnitHierarchyIndex.Builder>> changes = new ConcurrentLinkedQueue<>();
+
+    private volatile OrganisationUnitHierarchyIndex index;
+
+    /**
+     * Time when the index was loaded from the database in milliseconds.
+     */
+    private volatile long loaded;
+
+    public OrganisationUnitHierarchyIndexProvider( OrganisationUnitStore organisationUnitStore,
+        CacheProvider cacheProvider )
+    {
+        checkNotNull( organisationUnitStore );
+        checkNotNull( cacheProvider );
+
+        this.organisationUnitStore = organisationUnitStore;
+        this.valid = cacheProvider.newCacheBuilder( Boolean.class )
+            .forRegion( "organisationUnitHierarchyIndex" )
+            .withMaximumSize( 1 )
+            .forceInMemory()
+            .build();
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        SessionFactoryImpl sessionFactory = emf.unwrap( SessionFactoryImpl.class );
+
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService( EventListenerRegistry.class );
+
+        registry.getEventListenerGroup( EventType.POST_COMMIT_INSERT ).appendListener( this );
+        registry.getEventListenerGroup( EventType.POST_COMMIT_UPDATE ).appendListener( this );
+        registry.getEventListenerGroup( EventType.POST_COMMIT_DELETE ).appendListener( this );
+    }
+
+    /**
+     * Returns the current index, loading or refreshing it if required. The
+     * index reflects committed changes only.
+     */
+    public OrganisationUnitHierarchyIndex getIndex()
+    {
+        OrganisationUnitHierarchyIndex current = index;
+
+        if ( current != null && changes.isEmpty() && valid.getIfPresent( KEY ).isPresent() && !isExpired() )
+        {
+            return current;
+        }
+
+        return refresh();
+    }
+
+    /**
+     * Invalidates the index on all instances, which makes the next request
+     * reload the index from the database.
+     */
+    public void invalidate()
+    {
+        valid.invalidate( KEY );
+    }
+
+    /**
+     * Invalidates the index on all instances once the current transaction is
+     * committed, or immediately if there is no transaction.
+     */
+    public void invalidateAfterCommit()
+    {
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            invalidate();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+        {
+            @Override
+            public void afterCommit()
+            {
+                invalidate();
+            }
+        } );
+    }
+
+    @EventListener
+    public void handleApplicationCachesCleared( ApplicationCacheClearedEvent event )
+    {
+        invalidate();
+    }
+
+    // -------------------------------------------------------------------------
+    // Listener implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void onPostInsert( PostInsertEvent event )
+    {
+        handleChange( (OrganisationUnit) event.getEntity() );
+    }
+
+    @Override
+    public void onPostUpdate( PostUpdateEvent event )
+    {
+        if ( isHierarchyChanged( event ) )
+        {
+            handleChange( (OrganisationUnit) event.getEntity() );
+        }
+    }
+
+    @Override
+    public void onPostDelete( PostDeleteEvent event )
+    {
+        long id = ((Number) event.getId()).longValue();
+
+        addChange( builder -> builder.remove( id ) );
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding( EntityPersister persister )
+    {
+        return OrganisationUnit.class.isAssignableFrom( persister.getMappedClass() );
+    }
+
+    @Override
+    public void onPostInsertCommitFailed( PostInsertEvent event )
+    {
+        log.debug( "onPostInsertCommitFailed: " + event );
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed( PostUpdateEvent event )
+    {
+        log.debug( "onPostUpdateCommitFailed: " + event );
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed( PostDeleteEvent event )
+    {
+        log.debug( "onPostDeleteCommitFailed: " + event );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private synchronized OrganisationUnitHierarchyIndex refresh()
+    {
+        if ( index == null || !valid.getIfPresent( KEY ).isPresent() || isExpired() )
+        {
+            // Changes committed before loading are read from the database
+
+            changes.clear();
+            valid.put( KEY, true );
+            loaded = System.currentTimeMillis();
+            index = organisationUnitStore.getOrganisationUnitHierarchyIndex();
+
+            log.info( String.format( "Loaded organisation unit hierarchy index with %d units", index.size() ) );
+        }
+
+        if ( !changes.isEmpty() )
+        {
+            OrganisationUnitHierarchyIndex.Builder builder = index.toBuilder();
+
+            Consumer<OrganisationUnitHierarchyIndex.Builder> change;
+
+            while ( (change = changes.poll()) != null )
+            {
+                change.accept( builder );
+            }
+
+            index = builder.build();
+        }
+
+        return index;
+    }
+
+    private boolean isExpired()
+    {
+        return System.currentTimeMillis() - loaded > TimeUnit.HOURS.toMillis( MAX_AGE_HOURS );
+    }
+
+    private void handleChange( OrganisationUnit organisationUnit )
+    {
+        long id = organisationUnit.getId();
+        String uid = organisationUnit.getUid();
+
+        // The identifier of a proxy is read without initializing the proxy
+
+        long parentId = organisationUnit.getParent() != null ? organisationUnit.getParent().getId() : 0;
+
+        addChange( builder -> builder.add( id, uid, parentId ) );
+    }
+
+    private void addChange( Consumer<OrganisationUnitHierarchyIndex.Builder> change )
+    {
+        changes.add( change );
+
+        // Invalidate on other instances while keeping the local index, unless
+        // it was invalidated already
+
+        boolean isValid = valid.getIfPresent( KEY ).isPresent();
+
+        valid.invalidate( KEY );
+
+        if ( isValid )
+        {
+            valid.put( KEY, true );
+        }
+    }
+
+    private boolean isHierarchyChanged( PostUpdateEvent event )
+    {
+        int[] dirtyProperties = event.getDirtyProperties();
+
+        if ( dirtyProperties == null )
+        {
+            return true;
+        }
+
+        String[] propertyNames = event.getPersister().getPropertyNames();
+
+        for ( int property : dirtyProperties )
+        {
+            if ( "parent".equals( propertyNames[property] ) || "uid".equals( propertyNames[property] ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -51,6 +51,7 @@ import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dbms.DbmsManager;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitHierarchy;
+import org.hisp.dhis.organisationunit.OrganisationUnitHierarchyIndex;
 import org.hisp.dhis.organisationunit.OrganisationUnitQueryParams;
 import org.hisp.dhis.organisationunit.OrganisationUnitStore;
 import org.hisp.dhis.security.acl.AclService;
@@ -59,6 +60,7 @@ import org.hisp.dhis.system.util.SqlUtils;
 import org.hisp.dhis.user.CurrentUserService;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
 
@@ -107,6 +109,38 @@ public class HibernateOrganisationUnitStore
         return getQuery( "from OrganisationUnit o where size(o.groups) = 0" ).list();
     }
 
+    @Override
+    public List<OrganisationUnit> getOrganisationUnitsWithCyclicReferences()
+    {
+        // Units which cannot be reached from a root are either part of a cycle
+        // or lead into one, walk up from those only and stop at visited units
+
+        final String sql =
+            "with recursive reachable (organisationunitid) as ( " +
+                "select organisationunitid from organisationunit where parentid is null " +
+                "union " +
+                "select ou.organisationunitid from organisationunit ou " +
+                "join reachable r on ou.parentid = r.organisationunitid ), " +
+            "ancestors (organisationunitid, parentid, visited) as ( " +
+                "select ou.organisationunitid, ou.parentid, array[ou.organisationunitid] from organisationunit ou " +
+                "where not exists (select 1 from reachable r where r.organisationunitid = ou.organisationunitid) " +
+                "union all " +
+                "select a.organisationunitid, p.parentid, a.visited || p.organisationunitid from ancestors a " +
+                "join organisationunit p on p.organisationunitid = a.parentid " +
+                "where p.parentid is not null and not p.organisationunitid = any(a.visited) ) " +
+            "select distinct organisationunitid from ancestors where parentid = organisationunitid";
+
+        List<Long> ids = jdbcTemplate.queryForList( sql, Long.class );
+
+        return ids.isEmpty() ? new ArrayList<>() : getById( ids );
+    }
+
+    @Override
+    public List<OrganisationUnit> getOrphanedOrganisationUnits()
+    {
+        return getQuery( "from OrganisationUnit o where o.parent is null and size(o.children) = 0" ).list();
+    }
+
     @Override
     public Long getOrganisationUnitHierarchyMemberCount( OrganisationUnit parent, Object member, String collectionName )
     {
@@ -298,6 +332,18 @@ public class HibernateOrganisationUnitStore
         return new OrganisationUnitHierarchy( jdbcTemplate.query( sql, new OrganisationUnitRelationshipRowMapper() ) );
     }
 
+    @Override
+    public OrganisationUnitHierarchyIndex getOrganisationUnitHierarchyIndex()
+    {
+        final String sql = "select organisationunitid, uid, parentid from organisationunit";
+
+        OrganisationUnitHierarchyIndex.Builder builder = OrganisationUnitHierarchyIndex.builder();
+
+        jdbcTemplate.query( sql, (RowCallbackHandler) rs -> builder.add( rs.getLong( 1 ), rs.getString( 2 ), rs.getLong( 3 ) ) );
+
+        return builder.build();
+    }
+
     @Override
     public void updateOrganisationUnitParent( long organisationUnitId, long parentId )
     {
@@ -108,6 +108,14 @@ public class HibernatePeriodStore
         save( period );
     }
 
+    @Override
+    public void delete( Period period )
+    {
+        super.delete( period );
+
+        PERIOD_ID_CACHE.invalidate( period.getCacheKey() );
+    }
+
     @Override
     public Period getPeriod( Date startDate, Date endDate, PeriodType periodType )
     {
@@ -74,11 +74,15 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -92,6 +96,13 @@ import static com.google.common.base.Preconditions.checkNotNull;
 @Scope( value = "prototype", proxyMode = ScopedProxyMode.INTERFACES )
 public class DefaultPreheatService implements PreheatService
 {
+    private static final int QUERY_CHUNK_SIZE = 20000;
+
+    /**
+     * Reference property accessors per class. Static as this service is prototype scoped.
+     */
+    private static final Map<Class<?>, List<PropertyAccessor>> REFERENCE_ACCESSORS = new ConcurrentHashMap<>();
+
     private final SchemaService schemaService;
 
     private final QueryService queryService;
@@ -197,18 +208,14 @@ public class DefaultPreheatService implements PreheatService
             {
                 for ( Class<? extends IdentifiableObject> klass : uidMap.keySet() )
                 {
-                    List<List<String>> identifiers = Lists.partition( Lists.newArrayList( uidMap.get( klass ) ), 20000 );
+                    List<? extends IdentifiableObject> objects = queryByIdentifiers( preheat, klass, "id", uidMap.get( klass ) );
+                    preheat.put( PreheatIdentifier.UID, objects );
 
-                    if ( !identifiers.isEmpty() )
+                    // objects already loaded by UID do not need to be looked up again by code
+                    if ( PreheatIdentifier.AUTO == params.getPreheatIdentifier() && codeMap != null && codeMap.containsKey( klass ) )
                     {
-                        for ( List<String> ids : identifiers )
-                        {
-                            Query query = Query.from( schemaService.getDynamicSchema( klass ) );
-                            query.setUser( preheat.getUser() );
-                            query.add( Restrictions.in( "id", ids ) );
-                            List<? extends IdentifiableObject> objects = queryService.query( query );
-                            preheat.put( PreheatIdentifier.UID, objects );
-                        }
+                        preheat.put( PreheatIdentifier.CODE, objects );
+                        objects.forEach( object -> codeMap.get( klass ).remove( object.getCode() ) );
                     }
                 }
             }
@@ -217,19 +224,8 @@ public class DefaultPreheatService implements PreheatService
             {
                 for ( Class<? extends IdentifiableObject> klass : codeMap.keySet() )
                 {
-                    List<List<String>> identifiers = Lists.partition( Lists.newArrayList( codeMap.get( klass ) ), 20000 );
-
-                    if ( !identifiers.isEmpty() )
-                    {
-                        for ( List<String> ids : identifiers )
-                        {
-                            Query query = Query.from( schemaService.getDynamicSchema( klass ) );
-                            query.setUser( preheat.getUser() );
-                            query.add( Restrictions.in( "code", ids ) );
-                            List<? extends IdentifiableObject> objects = queryService.query( query );
-                            preheat.put( PreheatIdentifier.CODE, objects );
-                        }
-                    }
+                    List<? extends IdentifiableObject> objects = queryByIdentifiers( preheat, klass, "code", codeMap.get( klass ) );
+                    preheat.put( PreheatIdentifier.CODE, objects );
                 }
             }
 
@@ -299,6 +295,61 @@ public class DefaultPreheatService implements PreheatService
         return preheat;
     }
 
+    /**
+     * Loads all objects of the given class matching any of the given identifiers,
+     * querying in chunks of {@link #QUERY_CHUNK_SIZE} identifiers. The time spent
+     * is recorded per class in the preheat.
+     *
+     * @param preheat     the preheat.
+     * @param klass       the class of the objects.
+     * @param property    the identifier property, either id or code.
+     * @param identifiers the identifiers.
+     * @return the matching objects.
+     */
+    private List<? extends IdentifiableObject> queryByIdentifiers( Preheat preheat, Class<? extends IdentifiableObject> klass,
+        String property, Set<String> identifiers )
+    {
+        if ( identifiers.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        Timer timer = new SystemTimer().start();
+
+        Schema schema = schemaService.getDynamicSchema( klass );
+        List<IdentifiableObject> objects = new ArrayList<>();
+
+        for ( List<String> ids : Lists.partition( new ArrayList<>( identifiers ), QUERY_CHUNK_SIZE ) )
+        {
+            Query query = Query.from( schema );
+            query.setUser( preheat.getUser() );
+            query.add( Restrictions.in( property, ids ) );
+            objects.addAll( queryService.query( query ) );
+        }
+
+        preheat.addTiming( klass, TimeUnit.NANOSECONDS.toMillis( timer.duration() ) );
+
+        log.debug( "Import:Preheat loaded " + objects.size() + " objects of type " + klass.getSimpleName() + " by " + property + " in " + timer.toString() );
+
+        return objects;
+    }
+
+    /**
+     * Returns accessors for the persisted and owned reference properties of the
+     * given class. These are resolved once per class and reused for every object
+     * walked when collecting and connecting references.
+     *
+     * @param klass the class.
+     * @return the reference property accessors.
+     */
+    private List<PropertyAccessor> getReferenceAccessors( Class<?> klass )
+    {
+        return REFERENCE_ACCESSORS.computeIfAbsent( klass, k -> schemaService.getDynamicSchema( k ).getProperties().stream()
+            .filter( p -> p.isPersisted() && p.isOwner() && (PropertyType.REFERENCE == p.getPropertyType() || PropertyType.REFERENCE == p.getItemPropertyType()) )
+            .map( PropertyAccessor::new )
+            .collect( Collectors.toList() ) );
+    }
+
     private void handleSecurity( Map<Class<? extends IdentifiableObject>, List<IdentifiableObject>> objects, PreheatIdentifier identifier, Preheat preheat )
     {
         objects.forEach( ( klass, list ) -> list.forEach( object ->
@@ -496,96 +547,81 @@ public class DefaultPreheatService implements PreheatService
         return collectReferences( map );
     }
 
-    @SuppressWarnings( "unchecked" )
     private Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>> collectReferences( Map<Class<?>, List<?>> objects )
     {
-        Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>> map = new HashMap<>();
-
-        map.put( PreheatIdentifier.UID, new HashMap<>() );
-        map.put( PreheatIdentifier.CODE, new HashMap<>() );
-
-        Map<Class<? extends IdentifiableObject>, Set<String>> uidMap = map.get( PreheatIdentifier.UID );
-        Map<Class<? extends IdentifiableObject>, Set<String>> codeMap = map.get( PreheatIdentifier.CODE );
+        ReferenceCollector collector = new ReferenceCollector();
 
         if ( objects.isEmpty() )
         {
-            return map;
+            return collector.getReferences();
         }
 
         Map<Class<?>, List<?>> targets = new HashMap<>( objects ); // Clone objects list, we don't want to modify it
         collectScanTargets( targets );
 
+        // single pass over the objects of each class, the references of an object are read once per property
+
         for ( Class<?> klass : targets.keySet() )
         {
-            Schema schema = schemaService.getDynamicSchema( klass );
+            boolean identifiable = schemaService.getDynamicSchema( klass ).isIdentifiableObject();
 
-            List<Property> referenceProperties = schema.getProperties().stream()
-                .filter( p -> p.isPersisted() && p.isOwner() && (PropertyType.REFERENCE == p.getPropertyType() || PropertyType.REFERENCE == p.getItemPropertyType()) )
-                .collect( Collectors.toList() );
+            List<PropertyAccessor> accessors = getReferenceAccessors( klass );
 
             for ( Object object : targets.get( klass ) )
             {
-                if ( schema.isIdentifiableObject() )
+                if ( identifiable )
                 {
                     IdentifiableObject identifiableObject = (IdentifiableObject) object;
-                    identifiableObject.getAttributeValues().forEach( av -> addIdentifiers( map, av.getAttribute() ) );
-                    identifiableObject.getUserGroupAccesses().forEach( uga -> addIdentifiers( map, uga.getUserGroup() ) );
-                    identifiableObject.getUserAccesses().forEach( ua -> addIdentifiers( map, ua.getUser() ) );
+                    identifiableObject.getAttributeValues().forEach( av -> collector.add( av.getAttribute() ) );
+                    identifiableObject.getUserGroupAccesses().forEach( uga -> collector.add( uga.getUserGroup() ) );
+                    identifiableObject.getUserAccesses().forEach( ua -> collector.add( ua.getUser() ) );
 
-                    addIdentifiers( map, identifiableObject );
+                    collector.add( identifiableObject );
                 }
 
-                referenceProperties.forEach( p ->
+                for ( PropertyAccessor accessor : accessors )
                 {
-                    if ( !p.isCollection() )
+                    if ( !accessor.getProperty().isCollection() )
                     {
-                        Class<? extends IdentifiableObject> itemKlass = (Class<? extends IdentifiableObject>) p.getKlass();
-
-                        if ( !uidMap.containsKey( itemKlass ) ) uidMap.put( itemKlass, new HashSet<>() );
-                        if ( !codeMap.containsKey( itemKlass ) ) codeMap.put( itemKlass, new HashSet<>() );
-
-                        Object reference = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
-
-                        if ( reference != null )
-                        {
-                            IdentifiableObject identifiableObject = (IdentifiableObject) reference;
-                            addIdentifiers( map, identifiableObject );
-                        }
+                        collector.add( accessor.get( object ) );
                     }
                     else
                     {
-                        Collection<IdentifiableObject> reference = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
-                        reference.forEach( identifiableObject -> addIdentifiers( map, identifiableObject ) );
+                        Collection<IdentifiableObject> reference = accessor.get( object );
 
-                        if ( DataElementOperand.class.isAssignableFrom( p.getItemKlass() ) )
+                        if ( reference == null )
+                        {
+                            continue;
+                        }
+
+                        CollectionUtils.nullSafeForEach( reference, collector::add );
+
+                        if ( DataElementOperand.class.isAssignableFrom( accessor.getProperty().getItemKlass() ) )
                         {
                             CollectionUtils.nullSafeForEach( reference, identifiableObject ->
                             {
                                 DataElementOperand dataElementOperand = (DataElementOperand) identifiableObject;
-                                addIdentifiers( map, dataElementOperand.getDataElement() );
-                                addIdentifiers( map, dataElementOperand.getCategoryOptionCombo() );
+                                collector.add( dataElementOperand.getDataElement() );
+                                collector.add( dataElementOperand.getCategoryOptionCombo() );
                             } );
                         }
                     }
-                } );
+                }
 
-                collectAnalyticalObjectReferences( map, object );
+                collectAnalyticalObjectReferences( collector, object );
             }
         }
 
-        cleanEmptyEntries( uidMap );
-        cleanEmptyEntries( codeMap );
-
-        return map;
+        return collector.getReferences();
     }
 
     /**
      * Collect references for {@link AnalyticalObject}.
      *
-     * @param map    the mapping between {@link PreheatIdentifier} and object identifiers.
-     * @param object the object.
+     * @param collector the reference collector.
+     * @param object    the object.
      */
-    private void collectAnalyticalObjectReferences( Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>> map, Object object )
+    private void collectAnalyticalObjectReferences( ReferenceCollector collector, Object object )
     {
         if ( AnalyticalObject.class.isInstance( object ) )
         {
@@ -598,55 +634,55 @@ public class DefaultPreheatService implements PreheatService
 
             CollectionUtils.nullSafeForEach( dataDimensionItems, dataDimensionItem ->
             {
-                addIdentifiers( map, dataDimensionItem.getDimensionalItemObject() );
+                collector.add( dataDimensionItem.getDimensionalItemObject() );
 
                 if ( dataDimensionItem.getDataElementOperand() != null )
                 {
-                    addIdentifiers( map, dataDimensionItem.getDataElementOperand().getDataElement() );
-                    addIdentifiers( map, dataDimensionItem.getDataElementOperand().getCategoryOptionCombo() );
+                    collector.add( dataDimensionItem.getDataElementOperand().getDataElement() );
+                    collector.add( dataDimensionItem.getDataElementOperand().getCategoryOptionCombo() );
                 }
 
                 if ( dataDimensionItem.getReportingRate() != null )
                 {
-                    addIdentifiers( map, dataDimensionItem.getReportingRate().getDataSet() );
+                    collector.add( dataDimensionItem.getReportingRate().getDataSet() );
                 }
 
                 if ( dataDimensionItem.getProgramDataElement() != null )
                 {
-                    addIdentifiers( map, dataDimensionItem.getProgramDataElement().getDataElement() );
-                    addIdentifiers( map, dataDimensionItem.getProgramDataElement().getProgram() );
+                    collector.add( dataDimensionItem.getProgramDataElement().getDataElement() );
+                    collector.add( dataDimensionItem.getProgramDataElement().getProgram() );
                 }
 
                 if ( dataDimensionItem.getProgramAttribute() != null )
                 {
-                    addIdentifiers( map, dataDimensionItem.getProgramAttribute().getAttribute() );
-                    addIdentifiers( map, dataDimensionItem.getProgramAttribute().getProgram() );
+                    collector.add( dataDimensionItem.getProgramAttribute().getAttribute() );
+                    collector.add( dataDimensionItem.getProgramAttribute().getProgram() );
                 }
             } );
 
             CollectionUtils.nullSafeForEach( categoryDimensions, categoryDimension ->
             {
-                addIdentifiers( map, categoryDimension.getDimension() );
-                categoryDimension.getItems().forEach( item -> addIdentifiers( map, item ) );
+                collector.add( categoryDimension.getDimension() );
+                categoryDimension.getItems().forEach( item -> collector.add( item ) );
             } );
 
             CollectionUtils.nullSafeForEach( trackedEntityDataElementDimensions, trackedEntityDataElementDimension ->
             {
-                addIdentifiers( map, trackedEntityDataElementDimension.getDataElement() );
-                addIdentifiers( map, trackedEntityDataElementDimension.getLegendSet() );
-                addIdentifiers( map, trackedEntityDataElementDimension.getProgramStage() );
+                collector.add( trackedEntityDataElementDimension.getDataElement() );
+                collector.add( trackedEntityDataElementDimension.getLegendSet() );
+                collector.add( trackedEntityDataElementDimension.getProgramStage() );
             } );
 
             CollectionUtils.nullSafeForEach( attributeDimensions, trackedEntityAttributeDimension ->
             {
-                addIdentifiers( map, trackedEntityAttributeDimension.getAttribute() );
-                addIdentifiers( map, trackedEntityAttributeDimension.getLegendSet() );
+                collector.add( trackedEntityAttributeDimension.getAttribute() );
+                collector.add( trackedEntityAttributeDimension.getLegendSet() );
             } );
 
             CollectionUtils.nullSafeForEach( programIndicatorDimensions, programIndicatorDimension ->
             {
-                addIdentifiers( map, programIndicatorDimension.getProgramIndicator() );
-                addIdentifiers( map, programIndicatorDimension.getLegendSet() );
+                collector.add( programIndicatorDimension.getProgramIndicator() );
+                collector.add( programIndicatorDimension.getLegendSet() );
             } );
         }
     }
@@ -711,9 +747,7 @@ public class DefaultPreheatService implements PreheatService
                 continue;
             }
 
-            List<Property> properties = schema.getProperties().stream()
-                .filter( p -> p.isPersisted() && p.isOwner() && (PropertyType.REFERENCE == p.getPropertyType() || PropertyType.REFERENCE == p.getItemPropertyType()) )
-                .collect( Collectors.toList() );
+            List<PropertyAccessor> accessors = getReferenceAccessors( objectClass );
 
             List<IdentifiableObject> identifiableObjects = (List<IdentifiableObject>) targets.get( objectClass );
             Map<String, Map<String, Object>> refMap = new HashMap<>();
@@ -723,11 +757,13 @@ public class DefaultPreheatService implements PreheatService
             {
                 refMap.put( object.getUid(), new HashMap<>() );
 
-                properties.forEach( p ->
+                accessors.forEach( accessor ->
                 {
+                    Property p = accessor.getProperty();
+
                     if ( !p.isCollection() )
                     {
-                        IdentifiableObject reference = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                        IdentifiableObject reference = accessor.get( object );
 
                         if ( reference != null )
                         {
@@ -745,7 +781,7 @@ public class DefaultPreheatService implements PreheatService
                     else
                     {
                         Collection<IdentifiableObject> refObjects = ReflectionUtils.newCollectionInstance( p.getKlass() );
-                        Collection<IdentifiableObject> references = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                        Collection<IdentifiableObject> references = accessor.get( object );
 
                         if ( references != null )
                         {
@@ -863,14 +899,10 @@ public class DefaultPreheatService implements PreheatService
             return;
         }
 
-        Schema schema = schemaService.getDynamicSchema( object.getClass() );
-
-        List<Property> properties = schema.getProperties().stream()
-            .filter( p -> p.isPersisted() && p.isOwner() && (PropertyType.REFERENCE == p.getPropertyType() || PropertyType.REFERENCE == p.getItemPropertyType()) )
-            .collect( Collectors.toList() );
-
-        for ( Property property : properties )
+        for ( PropertyAccessor accessor : getReferenceAccessors( object.getClass() ) )
         {
+            Property property = accessor.getProperty();
+
             if ( skipConnect( property.getKlass() ) || skipConnect( property.getItemKlass() ) )
             {
                 continue;
@@ -878,24 +910,24 @@ public class DefaultPreheatService implements PreheatService
 
             if ( !property.isCollection() )
             {
-                IdentifiableObject refObject = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                IdentifiableObject refObject = accessor.get( object );
                 IdentifiableObject ref = getPersistedObject( preheat, identifier, refObject );
 
                 ref = connectDefaults( preheat, property, object, refObject, ref );
 
                 if ( ref != null && ref.getId() == 0 )
                 {
-                    ReflectionUtils.invokeMethod( object, property.getSetterMethod(), (Object) null );
+                    accessor.set( object, null );
                 }
                 else
                 {
-                    ReflectionUtils.invokeMethod( object, property.getSetterMethod(), ref );
+                    accessor.set( object, ref );
                 }
             }
             else
             {
                 Collection<IdentifiableObject> objects = ReflectionUtils.newCollectionInstance( property.getKlass() );
-                Collection<IdentifiableObject> refObjects = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                Collection<IdentifiableObject> refObjects = accessor.get( object );
 
                 for ( IdentifiableObject refObject : refObjects )
                 {
@@ -903,7 +935,7 @@ public class DefaultPreheatService implements PreheatService
                     if ( ref != null && ref.getId() != 0 ) objects.add( ref );
                 }
 
-                ReflectionUtils.invokeMethod( object, property.getSetterMethod(), objects );
+                accessor.set( object, objects );
             }
         }
     }
@@ -946,29 +978,6 @@ public class DefaultPreheatService implements PreheatService
         return ref;
     }
 
-    private void cleanEmptyEntries( Map<Class<? extends IdentifiableObject>, Set<String>> map )
-    {
-        Set<Class<? extends IdentifiableObject>> classes = new HashSet<>( map.keySet() );
-        classes.stream().filter( klass -> map.get( klass ).isEmpty() ).forEach( map::remove );
-    }
-
-    @SuppressWarnings( "unchecked" )
-    private void addIdentifiers( Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>> map, IdentifiableObject identifiableObject )
-    {
-        if ( identifiableObject == null ) return;
-
-        Map<Class<? extends IdentifiableObject>, Set<String>> uidMap = map.get( PreheatIdentifier.UID );
-        Map<Class<? extends IdentifiableObject>, Set<String>> codeMap = map.get( PreheatIdentifier.CODE );
-
-        Class<? extends IdentifiableObject> klass = (Class<? extends IdentifiableObject>) ReflectionUtils.getRealClass( identifiableObject.getClass() );
-
-        if ( !uidMap.containsKey( klass ) ) uidMap.put( klass, new HashSet<>() );
-        if ( !codeMap.containsKey( klass ) ) codeMap.put( klass, new HashSet<>() );
-
-        if ( !StringUtils.isEmpty( identifiableObject.getUid() ) ) uidMap.get( klass ).add( identifiableObject.getUid() );
-        if ( !StringUtils.isEmpty( identifiableObject.getCode() ) ) codeMap.get( klass ).add( identifiableObject.getCode() );
-    }
-
     private Map<String, Map<Object, String>> handleUniqueProperties( Schema schema, PreheatIdentifier identifier, List<IdentifiableObject> objects )
     {
         List<Property> uniqueProperties = schema.getProperties().stream()
@@ -1016,4 +1025,48 @@ public class DefaultPreheatService implements PreheatService
     {
         return klass != null && (UserCredentials.class.isAssignableFrom( klass ) || EmbeddedObject.class.isAssignableFrom( klass ));
     }
-}
\ No newline at end of file
+
+    /**
+     * Collects the UID and code identifiers of referenced objects per class.
+     * References are deduplicated by identity, so an object which is referenced
+     * by many of the imported objects is only inspected once.
+     */
+    private static class ReferenceCollector
+    {
+        private final Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>> references = new HashMap<>();
+
+        private final Set<IdentifiableObject> visited = Collections.newSetFromMap( new IdentityHashMap<>() );
+
+        ReferenceCollector()
+        {
+            references.put( PreheatIdentifier.UID, new HashMap<>() );
+            references.put( PreheatIdentifier.CODE, new HashMap<>() );
+        }
+
+        @SuppressWarnings( "unchecked" )
+        void add( IdentifiableObject identifiableObject )
+        {
+            if ( identifiableObject == null || !visited.add( identifiableObject ) )
+            {
+                return;
+            }
+
+            Class<? extends IdentifiableObject> klass = (Class<? extends IdentifiableObject>) ReflectionUtils.getRealClass( identifiableObject.getClass() );
+
+            if ( !StringUtils.isEmpty( identifiableObject.getUid() ) )
+            {
+                references.get( PreheatIdentifier.UID ).computeIfAbsent( klass, k -> new HashSet<>() ).add( identifiableObject.getUid() );
+            }
+
+            if ( !StringUtils.isEmpty( identifiableObject.getCode() ) )
+            {
+                references.get( PreheatIdentifier.CODE ).computeIfAbsent( klass, k -> new HashSet<>() ).add( identifiableObject.getCode() );
+            }
+        }
+
+        Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>> getReferences()
+        {
+            return references;
+        }
+    }
+}
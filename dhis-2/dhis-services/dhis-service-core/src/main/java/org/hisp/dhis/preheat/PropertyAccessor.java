@@ -0,0 +1,147 @@
+package org.hisp.dhis.preheat;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.hisp.dhis.schema.Property;
+import org.hisp.dhis.system.util.ReflectionUtils;
+
+/**
+ * Accessor for a schema {@link Property} which resolves the getter and setter
+ * to method handles once, so that walking the references of many objects does
+ * not go through reflective method lookup and access checks for every call.
+ * Methods which can not be unreflected, for instance public methods declared
+ * by a package private class, fall back to reflective invocation. Accessors
+ * are immutable and can be shared between threads.
+ */
+class PropertyAccessor
+{
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    private final Property property;
+
+    private final MethodHandle getter;
+
+    private final MethodHandle setter;
+
+    PropertyAccessor( Property property )
+    {
+        this.property = property;
+        this.getter = unreflect( property.getGetterMethod() );
+        this.setter = unreflect( property.getSetterMethod() );
+    }
+
+    public Property getProperty()
+    {
+        return property;
+    }
+
+    /**
+     * Returns the value of the property of the given object, or null if the
+     * object is null or the property has no public getter.
+     */
+    @SuppressWarnings( "unchecked" )
+    public <T> T get( Object object )
+    {
+        if ( object == null )
+        {
+            return null;
+        }
+
+        if ( getter == null )
+        {
+            return ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+        }
+
+        try
+        {
+            return (T) getter.invoke( object );
+        }
+        catch ( RuntimeException | Error ex )
+        {
+            throw ex;
+        }
+        catch ( Throwable ex )
+        {
+            throw new RuntimeException( ex );
+        }
+    }
+
+    /**
+     * Sets the property of the given object to the given value. Does nothing
+     * if the object is null or the property has no public setter.
+     */
+    public void set( Object object, Object value )
+    {
+        if ( object == null )
+        {
+            return;
+        }
+
+        if ( setter == null )
+        {
+            ReflectionUtils.invokeMethod( object, property.getSetterMethod(), value );
+            return;
+        }
+
+        try
+        {
+            setter.invoke( object, value );
+        }
+        catch ( RuntimeException | Error ex )
+        {
+            throw ex;
+        }
+        catch ( Throwable ex )
+        {
+            throw new RuntimeException( ex );
+        }
+    }
+
+    private static MethodHandle unreflect( Method method )
+    {
+        if ( method == null || !Modifier.isPublic( method.getModifiers() ) )
+        {
+            return null;
+        }
+
+        try
+        {
+            return LOOKUP.unreflect( method );
+        }
+        catch ( IllegalAccessException ex )
+        {
+            return null;
+        }
+    }
+}
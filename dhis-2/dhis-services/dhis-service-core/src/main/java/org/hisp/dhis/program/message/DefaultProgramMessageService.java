@@ -50,6 +50,7 @@ import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramInstance;
 import org.hisp.dhis.program.ProgramService;
 import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.security.acl.AclService;
 import org.hisp.dhis.sms.config.MessageSendingCallback;
 import org.hisp.dhis.trackedentity.TrackedEntityInstanceService;
@@ -238,6 +239,13 @@ public class DefaultProgramMessageService
     @Override
     @Transactional
     public BatchResponseStatus sendMessages( List<ProgramMessage> programMessages )
+    {
+        return sendMessages( programMessages, null );
+    }
+
+    @Override
+    @Transactional
+    public BatchResponseStatus sendMessages( List<ProgramMessage> programMessages, JobConfiguration jobConfiguration )
     {
         List<ProgramMessage> populatedProgramMessages = programMessages.stream()
             .filter( this::hasDataWriteAccess )
@@ -246,6 +254,8 @@ public class DefaultProgramMessageService
 
         List<OutboundMessageBatch> batches = createBatches( populatedProgramMessages );
 
+        batches.forEach( batch -> batch.setJobConfiguration( jobConfiguration ) );
+
         BatchResponseStatus status = new BatchResponseStatus( messageBatchService.sendBatches( batches ) );
 
         saveProgramMessages( programMessages, status );
@@ -57,6 +57,7 @@ import org.hisp.dhis.program.ProgramStageInstanceStore;
 import org.hisp.dhis.program.message.ProgramMessage;
 import org.hisp.dhis.program.message.ProgramMessageRecipients;
 import org.hisp.dhis.program.message.ProgramMessageService;
+import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.system.util.Clock;
 import org.hisp.dhis.trackedentity.TrackedEntityInstance;
 import org.hisp.dhis.trackedentityattributevalue.TrackedEntityAttributeValue;
@@ -136,6 +137,13 @@ public class DefaultProgramNotificationService
     @Transactional
     @Override
     public void sendScheduledNotificationsForDay( Date notificationDate )
+    {
+        sendScheduledNotificationsForDay( notificationDate, null );
+    }
+
+    @Transactional
+    @Override
+    public void sendScheduledNotificationsForDay( Date notificationDate, JobConfiguration jobConfiguration )
     {
         Clock clock = new Clock( log ).startClock()
             .logTime( "Processing ProgramStageNotification messages" );
@@ -147,7 +155,7 @@ public class DefaultProgramNotificationService
         for ( ProgramNotificationTemplate template : scheduledTemplates )
         {
             MessageBatch batch = createScheduledMessageBatchForDay( template, notificationDate );
-            sendAll( batch );
+            sendAll( batch, jobConfiguration );
 
             totalMessageCount += batch.messageCount();
         }
@@ -158,6 +166,13 @@ public class DefaultProgramNotificationService
     @Transactional
     @Override
     public void sendScheduledNotifications()
+    {
+        sendScheduledNotifications( null );
+    }
+
+    @Transactional
+    @Override
+    public void sendScheduledNotifications( JobConfiguration jobConfiguration )
     {
         Clock clock = new Clock( log ).startClock()
             .logTime( "Processing ProgramStageNotification messages scheduled by program rules" );
@@ -182,7 +197,7 @@ public class DefaultProgramNotificationService
                 Collections.singletonList( t.getProgramStageInstance() ) ) )
             .collect( Collectors.toList() ) );
 
-        batches.forEach( this::sendAll );
+        batches.forEach( batch -> sendAll( batch, jobConfiguration ) );
 
         totalMessageCount = batches.stream().mapToInt( MessageBatch::messageCount ).sum();
 
@@ -529,7 +544,7 @@ public class DefaultProgramNotificationService
         );
     }
 
-    private void sendProgramMessages( Set<ProgramMessage> messages )
+    private void sendProgramMessages( Set<ProgramMessage> messages, JobConfiguration jobConfiguration )
     {
         if ( messages.isEmpty() )
         {
@@ -538,15 +553,20 @@ public class DefaultProgramNotificationService
 
         log.debug( String.format( "Dispatching %d ProgramMessages", messages.size() ) );
 
-        BatchResponseStatus status = programMessageService.sendMessages( Lists.newArrayList( messages ) );
+        BatchResponseStatus status = programMessageService.sendMessages( Lists.newArrayList( messages ), jobConfiguration );
 
         log.debug( String.format( "Resulting status from ProgramMessageService:\n %s", status.toString() ) );
     }
 
     private void sendAll( MessageBatch messageBatch )
+    {
+        sendAll( messageBatch, null );
+    }
+
+    private void sendAll( MessageBatch messageBatch, JobConfiguration jobConfiguration )
     {
         sendDhisMessages( messageBatch.dhisMessages );
-        sendProgramMessages( messageBatch.programMessages );
+        sendProgramMessages( messageBatch.programMessages, jobConfiguration );
     }
 
     // -------------------------------------------------------------------------
@@ -85,7 +85,7 @@ public class ProgramNotificationJob extends AbstractJob
 
         try
         {
-            runInternal();
+            runInternal( jobConfiguration );
 
             notifier.notify( jobConfiguration, NotificationLevel.INFO, "Generated and sent scheduled program notifications: " + clock.time(), true );
         }
@@ -99,14 +99,14 @@ public class ProgramNotificationJob extends AbstractJob
         }
     }
 
-    private void runInternal()
+    private void runInternal( JobConfiguration jobConfiguration )
     {
         // Today at 00:00:00
         Calendar calendar = Calendar.getInstance();
         calendar.set( Calendar.HOUR, 0 );
 
-        programNotificationService.sendScheduledNotificationsForDay( calendar.getTime() );
-        programNotificationService.sendScheduledNotifications();
+        programNotificationService.sendScheduledNotificationsForDay( calendar.getTime(), jobConfiguration );
+        programNotificationService.sendScheduledNotifications( jobConfiguration );
     }
 
 }
@@ -29,15 +29,24 @@ package org.hisp.dhis.query;
  */
 
 import org.hibernate.Criteria;
+import org.hibernate.NullPrecedence;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.criterion.Subqueries;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.hibernate.InternalHibernateGenericStore;
 import org.hisp.dhis.query.planner.QueryPlan;
 import org.hisp.dhis.query.planner.QueryPlanner;
+import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.user.CurrentUserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,8 +54,16 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -66,31 +83,139 @@ public class CriteriaQueryEngine<T extends IdentifiableObject>
 
     private final List<InternalHibernateGenericStore<T>> hibernateGenericStores;
 
+    private final SessionFactory sessionFactory;
+
     private Map<Class<?>, InternalHibernateGenericStore<T>> stores = new HashMap<>();
 
     @Autowired
     public CriteriaQueryEngine( CurrentUserService currentUserService, QueryPlanner queryPlanner,
-        List<InternalHibernateGenericStore<T>> hibernateGenericStores )
+        List<InternalHibernateGenericStore<T>> hibernateGenericStores, SessionFactory sessionFactory )
     {
         checkNotNull( currentUserService );
         checkNotNull( queryPlanner );
         checkNotNull( hibernateGenericStores );
+        checkNotNull( sessionFactory );
 
         this.currentUserService = currentUserService;
         this.queryPlanner = queryPlanner;
         this.hibernateGenericStores = hibernateGenericStores;
+        this.sessionFactory = sessionFactory;
     }
 
     @Override
     @SuppressWarnings( "unchecked" )
     public List<T> query( Query query )
+    {
+        Criteria criteria = getQueryCriteria( query );
+
+        if ( criteria == null )
+        {
+            return new ArrayList<>();
+        }
+
+        return criteria.list();
+    }
+
+    /**
+     * Returns a stream of the objects matching the given query. Objects are
+     * read from a forward-only cursor in chunks of the given size. Before each
+     * subsequent chunk is read, the objects which were loaded into the session
+     * since the stream was opened are evicted, including objects loaded while
+     * consuming the previous chunk. Objects which were in the session before
+     * are kept, as they belong to the caller. The stream must be closed after
+     * use.
+     *
+     * @param query the query.
+     * @param chunkSize the number of objects per chunk.
+     * @return a stream of objects.
+     */
+    @SuppressWarnings( "unchecked" )
+    public Stream<T> stream( Query query, int chunkSize )
+    {
+        Criteria criteria = getQueryCriteria( query );
+
+        if ( criteria == null )
+        {
+            return Stream.empty();
+        }
+
+        Session session = sessionFactory.getCurrentSession();
+        Set<?> existingKeys = new HashSet<>( session.getStatistics().getEntityKeys() );
+        ScrollableResults results = criteria.setFetchSize( chunkSize ).scroll( ScrollMode.FORWARD_ONLY );
+
+        Iterator<T> iterator = new Iterator<T>()
+        {
+            private int count = 0;
+
+            private Boolean hasNext;
+
+            @Override
+            public boolean hasNext()
+            {
+                if ( hasNext == null )
+                {
+                    // Objects are loaded when advancing, evict before that
+
+                    if ( count > 0 && count % chunkSize == 0 )
+                    {
+                        evictLoaded( session, existingKeys );
+                    }
+
+                    hasNext = results.next();
+                }
+
+                return hasNext;
+            }
+
+            @Override
+            public T next()
+            {
+                if ( !hasNext() )
+                {
+                    throw new NoSuchElementException();
+                }
+
+                hasNext = null;
+                count++;
+
+                return (T) results.get( 0 );
+            }
+        };
+
+        return StreamSupport.stream( Spliterators.spliteratorUnknownSize( iterator,
+            Spliterator.ORDERED | Spliterator.NONNULL ), false ).onClose( results::close );
+    }
+
+    /**
+     * Evicts the objects in the session whose keys are not in the given keys.
+     */
+    private void evictLoaded( Session session, Set<?> existingKeys )
+    {
+        PersistenceContext persistenceContext = session.unwrap( SessionImplementor.class ).getPersistenceContext();
+
+        for ( Object key : new ArrayList<>( session.getStatistics().getEntityKeys() ) )
+        {
+            if ( !existingKeys.contains( key ) )
+            {
+                Object entity = persistenceContext.getEntity( (EntityKey) key );
+
+                if ( entity != null )
+                {
+                    session.evict( entity );
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private Criteria getQueryCriteria( Query query )
     {
         Schema schema = query.getSchema();
         InternalHibernateGenericStore<?> store = getStore( (Class<? extends IdentifiableObject>) schema.getKlass() );
 
         if ( store == null )
         {
-            return new ArrayList<>();
+            return null;
         }
 
         if ( query.getUser() == null )
@@ -109,18 +234,85 @@ public class CriteriaQueryEngine<T extends IdentifiableObject>
 
         if ( criteria == null )
         {
-            return new ArrayList<>();
+            return null;
+        }
+
+        if ( query.getFetchSize() != null )
+        {
+            criteria.setFetchSize( query.getFetchSize() );
+        }
+
+        if ( query.isCursorPaging() )
+        {
+            criteria.setMaxResults( query.getMaxResults() );
+            addCursor( criteria, query );
+        }
+        else
+        {
+            criteria.setFirstResult( query.getFirstResult() );
+            criteria.setMaxResults( query.getMaxResults() );
+
+            for ( Order order : query.getOrders() )
+            {
+                criteria.addOrder( getHibernateOrder( order ) );
+            }
+        }
+
+        return criteria.add( Subqueries.propertyIn( "id", detachedCriteria ) );
+    }
+
+    /**
+     * Orders by the sort key and identifier, and restricts to objects after
+     * the position of the page token, if any. Null sort keys are ordered
+     * last in both directions. The sort key is compared case sensitively,
+     * as a case insensitive order cannot use the column index.
+     */
+    private void addCursor( Criteria criteria, Query query )
+    {
+        Order order = PageToken.getSortOrder( query.getOrders() );
+        PageToken pageToken = query.getPageToken();
+
+        if ( pageToken != null && !pageToken.matches( order ) )
+        {
+            throw new QueryParserException( "Page token does not match the order of the query" );
         }
 
-        criteria.setFirstResult( query.getFirstResult() );
-        criteria.setMaxResults( query.getMaxResults() );
+        String fieldName = order != null ? getFieldName( order.getProperty() ) : null;
 
-        for ( Order order : query.getOrders() )
+        if ( order != null )
         {
-            criteria.addOrder( getHibernateOrder( order ) );
+            criteria.addOrder( (order.isAscending() ? org.hibernate.criterion.Order.asc( fieldName ) :
+                org.hibernate.criterion.Order.desc( fieldName )).nulls( NullPrecedence.LAST ) );
         }
 
-        return criteria.add( Subqueries.propertyIn( "id", detachedCriteria ) ).list();
+        criteria.addOrder( org.hibernate.criterion.Order.asc( "id" ) );
+
+        if ( pageToken == null )
+        {
+            return;
+        }
+
+        Criterion afterId = Restrictions.gt( "id", pageToken.getId() );
+
+        if ( order == null )
+        {
+            criteria.add( afterId );
+            return;
+        }
+
+        Object value = pageToken.getTypedValue( order.getProperty() );
+
+        if ( value == null )
+        {
+            criteria.add( Restrictions.and( Restrictions.isNull( fieldName ), afterId ) );
+        }
+        else
+        {
+            criteria.add( Restrictions.or(
+                order.isAscending() ? Restrictions.gt( fieldName, value ) : Restrictions.lt( fieldName, value ),
+                Restrictions.and( Restrictions.eq( fieldName, value ), afterId ),
+                Restrictions.isNull( fieldName ) ) );
+        }
     }
 
     @Override
@@ -282,12 +474,7 @@ public class CriteriaQueryEngine<T extends IdentifiableObject>
         }
 
         org.hibernate.criterion.Order criteriaOrder;
-        String fieldName = order.getProperty().getFieldName();
-
-        if ( fieldName == null )
-        {
-            fieldName = order.getProperty().getName();
-        }
+        String fieldName = getFieldName( order.getProperty() );
 
         if ( order.isAscending() )
         {
@@ -306,6 +493,11 @@ public class CriteriaQueryEngine<T extends IdentifiableObject>
         return criteriaOrder;
     }
 
+    private static String getFieldName( Property property )
+    {
+        return property.getFieldName() != null ? property.getFieldName() : property.getName();
+    }
+
     private void initStoreMap()
     {
         if ( !stores.isEmpty() )
@@ -31,6 +31,7 @@ package org.hisp.dhis.query;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.fieldfilter.Defaults;
@@ -96,6 +97,40 @@ public class DefaultQueryService
         return objects;
     }
 
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public Stream<? extends IdentifiableObject> stream( Query query, int chunkSize )
+    {
+        if ( query.getObjects() != null )
+        {
+            return queryObjects( query ).stream();
+        }
+
+        QueryPlan queryPlan = queryPlanner.planQuery( query );
+
+        if ( !queryPlan.getNonPersistedQuery().isEmpty() )
+        {
+            // In-memory filtering and ordering need all objects
+            return queryObjects( query ).stream();
+        }
+
+        Stream<IdentifiableObject> objects = (Stream<IdentifiableObject>) criteriaQueryEngine
+            .stream( queryPlan.getPersistedQuery(), chunkSize );
+
+        if ( Defaults.INCLUDE == query.getDefaults() || !Preheat.isDefaultClass( query.getSchema().getKlass() ) )
+        {
+            return objects;
+        }
+
+        return objects.filter( object -> !"default".equals( object.getName() ) );
+    }
+
+    @Override
+    public String getNextPageToken( Query query )
+    {
+        return query.isCursorPaging() ? query.getNextPageToken() : null;
+    }
+
     @Override
     public int count( Query query )
     {
@@ -104,6 +139,8 @@ public class DefaultQueryService
         cloned.clearOrders();
         cloned.setFirstResult( 0 );
         cloned.setMaxResults( Integer.MAX_VALUE );
+        cloned.setCursorPaging( false );
+        cloned.setPageToken( null );
 
         return countObjects( cloned );
     }
@@ -129,6 +166,8 @@ public class DefaultQueryService
         {
             query.setFirstResult( pagination.getFirstResult() );
             query.setMaxResults( pagination.getSize() );
+            query.setCursorPaging( pagination.isCursor() );
+            query.setPageToken( pagination.getPageToken() );
         }
         
         return query;
@@ -179,8 +218,18 @@ public class DefaultQueryService
         Query pQuery = queryPlan.getPersistedQuery();
         Query npQuery = queryPlan.getNonPersistedQuery();
 
+        if ( query.isCursorPaging() && !npQuery.isEmpty() )
+        {
+            throw new QueryParserException( "Cursor paging requires filters and orders on persisted properties only" );
+        }
+
         objects = criteriaQueryEngine.query( pQuery );
 
+        if ( query.isCursorPaging() )
+        {
+            query.setNextPageToken( getNextPageToken( query, objects ) );
+        }
+
         if ( !npQuery.isEmpty() )
         {
             if ( log.isDebugEnabled() )
@@ -199,6 +248,20 @@ public class DefaultQueryService
         return objects;
     }
 
+    /**
+     * Returns the token of the page following the given objects read from the
+     * database, or null if the objects do not fill the page.
+     */
+    private String getNextPageToken( Query query, List<? extends IdentifiableObject> objects )
+    {
+        if ( objects.isEmpty() || objects.size() < query.getMaxResults() )
+        {
+            return null;
+        }
+
+        return PageToken.of( objects.get( objects.size() - 1 ), PageToken.getSortOrder( query.getOrders() ) ).encode();
+    }
+
     private void clearDefaults( Class<?> klass, List<? extends IdentifiableObject> objects, Defaults defaults )
     {
         if ( Defaults.INCLUDE == defaults || !Preheat.isDefaultClass( klass ) )
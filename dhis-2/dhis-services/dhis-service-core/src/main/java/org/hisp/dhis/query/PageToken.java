@@ -0,0 +1,296 @@
+package org.hisp.dhis.query;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.schema.Property;
+import org.hisp.dhis.system.util.ReflectionUtils;
+
+import com.google.common.primitives.Primitives;
+
+/**
+ * Opaque token which identifies the position after the last object of a page
+ * when paging with a cursor. The position is given by the value of the sort
+ * property and the identifier of the last object, which together form a
+ * stable sort order.
+ */
+public class PageToken
+{
+    private static final String SEPARATOR = ":";
+
+    /**
+     * Name of the sort property, or null if objects are sorted by identifier
+     * only.
+     */
+    private final String property;
+
+    /**
+     * Value of the sort property of the last object, or null if the value is
+     * null or objects are sorted by identifier only.
+     */
+    private final String value;
+
+    /**
+     * Identifier of the last object.
+     */
+    private final long id;
+
+    public PageToken( String property, String value, long id )
+    {
+        this.property = property;
+        this.value = value;
+        this.id = id;
+    }
+
+    /**
+     * Creates a token which points after the given object.
+     *
+     * @param object the last object of a page.
+     * @param order the sort order as returned by {@link #getSortOrder(List)},
+     *        may be null.
+     * @return the token.
+     */
+    public static PageToken of( IdentifiableObject object, Order order )
+    {
+        if ( order == null )
+        {
+            return new PageToken( null, null, object.getId() );
+        }
+
+        Property property = order.getProperty();
+        Object value = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+
+        return new PageToken( property.getName(), toString( value ), object.getId() );
+    }
+
+    /**
+     * Returns the order which is used as sort key when paging with a cursor,
+     * which is the first order on a persisted, simple property of a type
+     * which can be represented in a token. Remaining orders are ignored, as
+     * objects are ordered by identifier when sort keys are equal.
+     *
+     * @param orders the orders of the query.
+     * @return the order, or null if objects are sorted by identifier only.
+     */
+    public static Order getSortOrder( List<Order> orders )
+    {
+        for ( Order order : orders )
+        {
+            Property property = order.getProperty();
+
+            if ( property != null && property.isPersisted() && property.isSimple() && !property.isCollection() )
+            {
+                return isSupported( property.getKlass() ) ? order : null;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Decodes the given token.
+     *
+     * @param token the token.
+     * @return the token.
+     * @throws QueryParserException if the token is invalid.
+     */
+    public static PageToken decode( String token )
+        throws QueryParserException
+    {
+        try
+        {
+            String decoded = new String( Base64.getUrlDecoder().decode( token ), StandardCharsets.UTF_8 );
+            String[] parts = decoded.split( SEPARATOR, 3 );
+
+            if ( parts.length < 2 )
+            {
+                throw new QueryParserException( "Invalid page token: " + token );
+            }
+
+            return new PageToken( parts[1].isEmpty() ? null : parts[1], parts.length == 3 ? parts[2] : null,
+                Long.parseLong( parts[0] ) );
+        }
+        catch ( IllegalArgumentException ex )
+        {
+            throw new QueryParserException( "Invalid page token: " + token );
+        }
+    }
+
+    public String encode()
+    {
+        String token = id + SEPARATOR + (property != null ? property : "") + (value != null ? SEPARATOR + value : "");
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString( token.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * Indicates whether this token was created for the given sort order.
+     */
+    public boolean matches( Order order )
+    {
+        return Objects.equals( property, order != null ? order.getProperty().getName() : null );
+    }
+
+    public String getProperty()
+    {
+        return property;
+    }
+
+    public String getValue()
+    {
+        return value;
+    }
+
+    public long getId()
+    {
+        return id;
+    }
+
+    /**
+     * Returns the value of the sort property converted to the type of the
+     * given property.
+     *
+     * @param property the sort property.
+     * @return the value, or null.
+     * @throws QueryParserException if the value cannot be converted.
+     */
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    public Object getTypedValue( Property property )
+        throws QueryParserException
+    {
+        if ( value == null )
+        {
+            return null;
+        }
+
+        Class<?> klass = Primitives.wrap( property.getKlass() );
+
+        try
+        {
+            if ( String.class == klass )
+            {
+                return value;
+            }
+            else if ( Date.class.isAssignableFrom( klass ) )
+            {
+                String[] parts = value.split( SEPARATOR );
+                Timestamp timestamp = new Timestamp( Long.parseLong( parts[0] ) );
+
+                if ( parts.length > 1 )
+                {
+                    timestamp.setNanos( Integer.parseInt( parts[1] ) );
+                }
+
+                return timestamp;
+            }
+            else if ( Integer.class == klass )
+            {
+                return Integer.valueOf( value );
+            }
+            else if ( Long.class == klass )
+            {
+                return Long.valueOf( value );
+            }
+            else if ( Double.class == klass )
+            {
+                return Double.valueOf( value );
+            }
+            else if ( Float.class == klass )
+            {
+                return Float.valueOf( value );
+            }
+            else if ( Boolean.class == klass )
+            {
+                return Boolean.valueOf( value );
+            }
+            else if ( klass.isEnum() )
+            {
+                return Enum.valueOf( (Class<? extends Enum>) klass, value );
+            }
+        }
+        catch ( IllegalArgumentException ex )
+        {
+            // Fall through
+        }
+
+        throw new QueryParserException( "Invalid page token value for property: " + property.getName() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static boolean isSupported( Class<?> klass )
+    {
+        Class<?> type = Primitives.wrap( klass );
+
+        return String.class == type || Date.class.isAssignableFrom( type ) || Integer.class == type ||
+            Long.class == type || Double.class == type || Float.class == type || Boolean.class == type ||
+            type.isEnum();
+    }
+
+    /**
+     * Converts the given value to a string, retaining the full precision of
+     * timestamps so that the value compares equal to the persisted value.
+     */
+    private static String toString( Object value )
+    {
+        if ( value == null )
+        {
+            return null;
+        }
+        else if ( value instanceof Timestamp )
+        {
+            return ((Timestamp) value).getTime() + SEPARATOR + ((Timestamp) value).getNanos();
+        }
+        else if ( value instanceof Date )
+        {
+            return String.valueOf( ((Date) value).getTime() );
+        }
+        else if ( value instanceof Enum )
+        {
+            return ((Enum<?>) value).name();
+        }
+
+        return value.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return encode();
+    }
+}
@@ -41,6 +41,10 @@ public class Pagination
 
     private boolean hasPagination = false;
 
+    private boolean cursor = false;
+
+    private PageToken pageToken;
+
     public Pagination(int firstResult, int size )
     {
         assert (size > 0);
@@ -57,6 +61,21 @@ public class Pagination
         // empty constructor
     }
 
+    /**
+     * Creates pagination with a cursor, which continues after the position
+     * given by the page token rather than at a first result.
+     *
+     * @param pageToken the page token, or null for the first page.
+     * @param size the page size.
+     */
+    public static Pagination cursor( PageToken pageToken, int size )
+    {
+        Pagination pagination = new Pagination( 0, size );
+        pagination.cursor = true;
+        pagination.pageToken = pageToken;
+        return pagination;
+    }
+
     public int getFirstResult()
     {
         return firstResult;
@@ -71,4 +90,14 @@ public class Pagination
     {
         return hasPagination;
     }
+
+    public boolean isCursor()
+    {
+        return cursor;
+    }
+
+    public PageToken getPageToken()
+    {
+        return pageToken;
+    }
 }
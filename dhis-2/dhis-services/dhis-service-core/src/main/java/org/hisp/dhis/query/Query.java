@@ -57,6 +57,14 @@ public class Query extends Criteria
 
     private Integer maxResults = Integer.MAX_VALUE;
 
+    private Integer fetchSize;
+
+    private boolean cursorPaging;
+
+    private PageToken pageToken;
+
+    private String nextPageToken;
+
     private Junction.Type rootJunctionType = Junction.Type.AND;
 
     private boolean plannedQuery;
@@ -83,6 +91,9 @@ public class Query extends Criteria
         clone.addOrders( query.getOrders() );
         clone.setFirstResult( query.getFirstResult() );
         clone.setMaxResults( query.getMaxResults() );
+        clone.setFetchSize( query.getFetchSize() );
+        clone.setCursorPaging( query.isCursorPaging() );
+        clone.setPageToken( query.getPageToken() );
         clone.add( query.getCriterions() );
         clone.setObjects( query.getObjects() );
 
@@ -192,6 +203,66 @@ public class Query extends Criteria
         return this;
     }
 
+    public Integer getFetchSize()
+    {
+        return fetchSize;
+    }
+
+    /**
+     * Sets the JDBC fetch size hint used when reading the persisted part of
+     * the query, useful for large result sets. A null value leaves the driver
+     * default in place.
+     */
+    public Query setFetchSize( Integer fetchSize )
+    {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    public boolean isCursorPaging()
+    {
+        return cursorPaging;
+    }
+
+    /**
+     * Sets whether to page with a cursor, in which case the query continues
+     * after the position given by the page token rather than at the first
+     * result, and objects are ordered by the sort key and identifier.
+     */
+    public Query setCursorPaging( boolean cursorPaging )
+    {
+        this.cursorPaging = cursorPaging;
+        return this;
+    }
+
+    public PageToken getPageToken()
+    {
+        return pageToken;
+    }
+
+    public Query setPageToken( PageToken pageToken )
+    {
+        this.pageToken = pageToken;
+        return this;
+    }
+
+    public String getNextPageToken()
+    {
+        return nextPageToken;
+    }
+
+    /**
+     * Sets the token of the page following the objects read by this query
+     * when paging with a cursor. The token is based on the objects read from
+     * the database, before objects such as defaults are excluded from the
+     * result.
+     */
+    public Query setNextPageToken( String nextPageToken )
+    {
+        this.nextPageToken = nextPageToken;
+        return this;
+    }
+
     public Junction.Type getRootJunctionType()
     {
         return rootJunctionType;
@@ -306,6 +377,9 @@ public class Query extends Criteria
         return MoreObjects.toStringHelper( this )
             .add( "firstResult", firstResult )
             .add( "maxResults", maxResults )
+            .add( "fetchSize", fetchSize )
+            .add( "cursorPaging", cursorPaging )
+            .add( "pageToken", pageToken )
             .add( "orders", orders )
             .add( "criterions", criterions )
             .toString();
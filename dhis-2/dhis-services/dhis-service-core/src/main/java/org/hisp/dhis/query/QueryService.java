@@ -32,6 +32,7 @@ import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.query.Junction.Type;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -58,6 +59,34 @@ public interface QueryService
     @SuppressWarnings( "rawtypes" )
     List<? extends IdentifiableObject> query( Query query, ResultTransformer transformer );
 
+    /**
+     * Return a stream of objects matching given query. Objects are read from
+     * the database in chunks of the given size, and the objects loaded by the
+     * stream are evicted from the session between chunks, so that memory use
+     * is bounded by the chunk size. Objects from previous chunks are hence
+     * detached, while objects which were in the session before are kept.
+     * Queries which require in-memory filtering or ordering are read in full.
+     * The stream must be closed after use, and must be consumed within the
+     * session.
+     *
+     * @param query     Query instance to use
+     * @param chunkSize Number of objects to read per chunk
+     * @return Stream of matching objects
+     */
+    Stream<? extends IdentifiableObject> stream( Query query, int chunkSize );
+
+    /**
+     * Returns the token of the page following the page of objects returned by
+     * the given query when paging with a cursor. The token is based on the
+     * objects read from the database, so that excluding objects such as
+     * defaults from the page does not end paging early.
+     *
+     * @param query Query instance which returned the current page
+     * @return Page token, or null if not paging with a cursor, if the query
+     * has not been executed or if the current page is the last page
+     */
+    String getNextPageToken( Query query );
+
     /**
      * Returns how many objects matches the given query.
      *
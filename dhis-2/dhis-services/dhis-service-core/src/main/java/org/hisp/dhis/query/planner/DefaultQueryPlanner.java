@@ -84,14 +84,15 @@ public class DefaultQueryPlanner implements QueryPlanner
         if ( (!isFilterOnPersistedFieldOnly( query ) || Junction.Type.OR == junctionType) && !persistedOnly )
         {
             return QueryPlan.QueryPlanBuilder.newBuilder()
-                .persistedQuery( Query.from( query.getSchema() ).setPlannedQuery( true ) )
+                .persistedQuery( Query.from( query.getSchema() ).setFetchSize( query.getFetchSize() ).setPlannedQuery( true ) )
                 .nonPersistedQuery( Query.from( query ).setPlannedQuery( true ) )
                 .build();
         }
 
         Query npQuery = Query.from( query ).setUser( query.getUser() ).setPlannedQuery( true );
 
-        Query pQuery = getQuery( npQuery, persistedOnly ).setUser( query.getUser() ).setPlannedQuery( true );
+        Query pQuery = getQuery( npQuery, persistedOnly ).setUser( query.getUser() )
+            .setFetchSize( query.getFetchSize() ).setPlannedQuery( true );
 
         // if there are any non persisted criterions left, we leave the paging to the in-memory engine
         if ( !npQuery.getCriterions().isEmpty() )
@@ -102,6 +103,8 @@ public class DefaultQueryPlanner implements QueryPlanner
         {
             pQuery.setFirstResult( npQuery.getFirstResult() );
             pQuery.setMaxResults( npQuery.getMaxResults() );
+            pQuery.setCursorPaging( npQuery.isCursorPaging() );
+            pQuery.setPageToken( npQuery.getPageToken() );
         }
 
         return QueryPlan.QueryPlanBuilder
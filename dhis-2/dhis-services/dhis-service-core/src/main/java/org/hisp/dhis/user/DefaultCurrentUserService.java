@@ -35,19 +35,22 @@ import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.security.spring.AbstractSpringSecurityCurrentUserService;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.core.env.Environment;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.session.SessionInformation;
 import org.springframework.security.core.session.SessionRegistry;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.PostConstruct;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -70,6 +73,19 @@ public class DefaultCurrentUserService
      */
     private static Cache<Long> USERNAME_ID_CACHE;
 
+    /**
+     * Cache for user security contexts. Key is username. Disabled during test
+     * phase. Invalidated on changes to users, user roles and user groups by
+     * {@link org.hisp.dhis.user.hibernate.UserSecurityContextInvalidationListener}.
+     */
+    private static Cache<UserSecurityContext> USER_SECURITY_CONTEXT_CACHE;
+
+    /**
+     * Key of the transaction resource holding the security contexts created
+     * within a read-write transaction.
+     */
+    private static final Object TRANSACTION_CONTEXTS_KEY = new Object();
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -110,6 +126,14 @@ public class DefaultCurrentUserService
             .forceInMemory()
             .withMaximumSize( SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 : 4000 )
             .build();
+
+        USER_SECURITY_CONTEXT_CACHE = cacheProvider.newCacheBuilder( UserSecurityContext.class )
+            .forRegion( "userSecurityContext" )
+            .expireAfterAccess( 1, TimeUnit.HOURS )
+            .withInitialCapacity( 200 )
+            .forceInMemory()
+            .withMaximumSize( SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 : 4000 )
+            .build();
     }
 
     @Override
@@ -137,25 +161,122 @@ public class DefaultCurrentUserService
     @Transactional(readOnly = true)
     public UserInfo getCurrentUserInfo()
     {
-        UserDetails userDetails = getCurrentUserDetails();
+        return getCurrentUserSecurityContext();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserSecurityContext getCurrentUserSecurityContext()
+    {
+        String username = getCurrentUsername();
 
-        if ( userDetails == null )
+        if ( username == null )
         {
             return null;
         }
 
-        Long userId = USERNAME_ID_CACHE.get( userDetails.getUsername(), un -> getUserId( un ) ).orElse( null );
+        return getUserSecurityContext( username, this::loadUserSecurityContext );
+    }
 
-        if ( userId == null )
+    @Override
+    @Transactional(readOnly = true)
+    public UserSecurityContext getUserSecurityContext( User user )
+    {
+        if ( user == null )
         {
             return null;
         }
 
-        Set<String> authorities = userDetails.getAuthorities()
-            .stream().map( GrantedAuthority::getAuthority )
-            .collect( Collectors.toSet() );
+        String username = user.getUsername();
+
+        if ( username == null )
+        {
+            return createUserSecurityContext( user );
+        }
+
+        return getUserSecurityContext( username, un -> createUserSecurityContext( user ) );
+    }
+
+    /**
+     * Returns the security context of the given user from the cache. Within a
+     * read-write transaction the user may hold changes which are not committed
+     * and may be rolled back, so contexts are then only kept for the
+     * transaction and never enter the cache.
+     */
+    private UserSecurityContext getUserSecurityContext( String username, Function<String, UserSecurityContext> loader )
+    {
+        if ( isReadWriteTransaction() )
+        {
+            Map<String, UserSecurityContext> contexts = getTransactionContexts();
+
+            return contexts != null ? contexts.computeIfAbsent( username, loader ) : loader.apply( username );
+        }
+
+        return USER_SECURITY_CONTEXT_CACHE.get( username, loader ).orElse( null );
+    }
 
-        return new UserInfo( userId, userDetails.getUsername(), authorities );
+    private boolean isReadWriteTransaction()
+    {
+        return TransactionSynchronizationManager.isActualTransactionActive() &&
+            !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /**
+     * Returns the security contexts of the current transaction, which are
+     * discarded when the transaction completes, or null if transaction
+     * synchronization is not active.
+     */
+    @SuppressWarnings( "unchecked" )
+    private Map<String, UserSecurityContext> getTransactionContexts()
+    {
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            return null;
+        }
+
+        Map<String, UserSecurityContext> contexts = (Map<String, UserSecurityContext>)
+            TransactionSynchronizationManager.getResource( TRANSACTION_CONTEXTS_KEY );
+
+        if ( contexts == null )
+        {
+            Map<String, UserSecurityContext> transactionContexts = new HashMap<>();
+
+            TransactionSynchronizationManager.bindResource( TRANSACTION_CONTEXTS_KEY, transactionContexts );
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCompletion( int status )
+                {
+                    TransactionSynchronizationManager.unbindResourceIfPossible( TRANSACTION_CONTEXTS_KEY );
+                }
+            } );
+
+            contexts = transactionContexts;
+        }
+
+        return contexts;
+    }
+
+    private UserSecurityContext loadUserSecurityContext( String username )
+    {
+        UserCredentials credentials = userStore.getUserCredentialsByUsername( username );
+
+        return credentials != null ? createUserSecurityContext( credentials.getUserInfo() ) : null;
+    }
+
+    /**
+     * Creates a security context for the given user. User groups of persisted
+     * users are queried, as the user groups of a loaded user do not reflect
+     * changes made to user group members.
+     */
+    private UserSecurityContext createUserSecurityContext( User user )
+    {
+        if ( user == null || user.getId() == 0 )
+        {
+            return UserSecurityContext.fromUser( user );
+        }
+
+        return UserSecurityContext.fromUser( user, userStore.getUserGroups( user.getId() ) );
     }
 
     private Long getUserId( String username )
@@ -169,9 +290,9 @@ public class DefaultCurrentUserService
     @Transactional(readOnly = true)
     public boolean currentUserIsSuper()
     {
-        User user = getCurrentUser();
+        UserSecurityContext context = getCurrentUserSecurityContext();
 
-        return user != null && user.isSuper();
+        return context != null && context.isSuper();
     }
 
     @Override
@@ -187,9 +308,9 @@ public class DefaultCurrentUserService
     @Transactional(readOnly = true)
     public boolean currentUserIsAuthorized( String auth )
     {
-        User user = getCurrentUser();
+        UserSecurityContext context = getCurrentUserSecurityContext();
 
-        return user != null && user.getUserCredentials().isAuthorized( auth );
+        return context != null && context.isAuthorized( auth );
     }
 
     @Override
@@ -210,4 +331,22 @@ public class DefaultCurrentUserService
             sessions.forEach( SessionInformation::expireNow );
         }
     }
+
+    @Override
+    public void invalidateUserIdCache( String username )
+    {
+        USERNAME_ID_CACHE.invalidate( username );
+    }
+
+    @Override
+    public void invalidateUserSecurityContext( String username )
+    {
+        USER_SECURITY_CONTEXT_CACHE.invalidate( username );
+    }
+
+    @Override
+    public void invalidateUserSecurityContexts()
+    {
+        USER_SECURITY_CONTEXT_CACHE.invalidateAll();
+    }
 }
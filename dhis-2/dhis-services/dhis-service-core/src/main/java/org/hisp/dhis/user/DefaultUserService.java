@@ -154,6 +154,11 @@ public class DefaultUserService
         AuditLogUtil.infoWrapper( log, currentUserService.getCurrentUsername(), user, AuditLogUtil.ACTION_DELETE );
 
         userStore.delete( user );
+
+        if ( user.getUsername() != null )
+        {
+            currentUserService.invalidateUserIdCache( user.getUsername() );
+        }
     }
 
     @Override
@@ -60,6 +60,7 @@ import org.hisp.dhis.security.acl.AclService;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserCredentials;
+import org.hisp.dhis.user.UserGroup;
 import org.hisp.dhis.user.UserInvitationStatus;
 import org.hisp.dhis.user.UserQueryParams;
 import org.hisp.dhis.user.UserStore;
@@ -373,6 +374,16 @@ public class HibernateUserStore
         return getSession().get( User.class, id );
     }
 
+    @Override
+    public List<UserGroup> getUserGroups( long userId )
+    {
+        String hql = "select ug from UserGroup ug join ug.members m where m.id = :userId";
+
+        return getSession().createQuery( hql, UserGroup.class )
+            .setParameter( "userId", userId )
+            .list();
+    }
+
     @Override
     public UserCredentials getUserCredentialsByUsername( String username )
     {
@@ -0,0 +1,319 @@
+package org.hisp.dhis.user.hibernate;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.hibernate.HibernateException;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserAuthorityGroup;
+import org.hisp.dhis.user.UserCredentials;
+import org.hisp.dhis.user.UserGroup;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Invalidates cached user security contexts when users, user roles, user
+ * groups or the paths of organisation units change. Invalidation is done after
+ * commit, so that contexts are not reloaded from uncommitted state.
+ * <p>
+ * Changes to users and user credentials invalidate the context of the user,
+ * whereas changes to user roles, user groups and organisation unit paths
+ * invalidate all contexts, as such changes may affect any number of users.
+ * <p>
+ * Changes which only touch a collection, such as user group members, the user
+ * roles of user credentials or the organisation units of users, do not fire
+ * entity events. They are detected through collection events, which fire on
+ * flush, and invalidate the contexts once the transaction completes.
+ */
+@Slf4j
+@Component
+public class UserSecurityContextInvalidationListener
+    implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener,
+    PostCollectionUpdateEventListener, PostCollectionRecreateEventListener, PostCollectionRemoveEventListener
+{
+    private static final String PATH_PROPERTY = "path";
+
+    @PersistenceUnit
+    private EntityManagerFactory emf;
+
+    private final CurrentUserService currentUserService;
+
+    public UserSecurityContextInvalidationListener( CurrentUserService currentUserService )
+    {
+        checkNotNull( currentUserService );
+
+        this.currentUserService = currentUserService;
+    }
+
+    @PostConstruct
+    protected void init()
+    {
+        SessionFactoryImpl sessionFactory = emf.unwrap( SessionFactoryImpl.class );
+
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService( EventListenerRegistry.class );
+
+        registry.getEventListenerGroup( EventType.POST_COMMIT_INSERT ).appendListener( this );
+        registry.getEventListenerGroup( EventType.POST_COMMIT_UPDATE ).appendListener( this );
+        registry.getEventListenerGroup( EventType.POST_COMMIT_DELETE ).appendListener( this );
+        registry.getEventListenerGroup( EventType.POST_COLLECTION_UPDATE ).appendListener( this );
+        registry.getEventListenerGroup( EventType.POST_COLLECTION_RECREATE ).appendListener( this );
+        registry.getEventListenerGroup( EventType.POST_COLLECTION_REMOVE ).appendListener( this );
+    }
+
+    // -------------------------------------------------------------------------
+    // Listener implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void onPostInsert( PostInsertEvent event )
+    {
+        if ( event.getEntity() instanceof UserGroup )
+        {
+            currentUserService.invalidateUserSecurityContexts();
+        }
+    }
+
+    @Override
+    public void onPostUpdate( PostUpdateEvent event )
+    {
+        Object entity = event.getEntity();
+
+        if ( entity instanceof OrganisationUnit )
+        {
+            if ( isPathUpdated( event ) )
+            {
+                currentUserService.invalidateUserSecurityContexts();
+            }
+        }
+        else
+        {
+            invalidate( entity );
+        }
+    }
+
+    @Override
+    public void onPostDelete( PostDeleteEvent event )
+    {
+        if ( event.getEntity() instanceof OrganisationUnit )
+        {
+            currentUserService.invalidateUserSecurityContexts();
+        }
+        else
+        {
+            invalidate( event.getEntity() );
+        }
+    }
+
+    @Override
+    public void onPostUpdateCollection( PostCollectionUpdateEvent event )
+    {
+        invalidateAfterCompletion( event );
+    }
+
+    @Override
+    public void onPostRecreateCollection( PostCollectionRecreateEvent event )
+    {
+        invalidateAfterCompletion( event );
+    }
+
+    @Override
+    public void onPostRemoveCollection( PostCollectionRemoveEvent event )
+    {
+        invalidateAfterCompletion( event );
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding( EntityPersister persister )
+    {
+        return isContextEntity( persister.getMappedClass() );
+    }
+
+    @Override
+    public void onPostInsertCommitFailed( PostInsertEvent event )
+    {
+        log.debug( "onPostInsertCommitFailed: " + event );
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed( PostUpdateEvent event )
+    {
+        log.debug( "onPostUpdateCommitFailed: " + event );
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed( PostDeleteEvent event )
+    {
+        log.debug( "onPostDeleteCommitFailed: " + event );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void invalidate( Object entity )
+    {
+        if ( !(entity instanceof User || entity instanceof UserCredentials ||
+            entity instanceof UserGroup || entity instanceof UserAuthorityGroup) )
+        {
+            return;
+        }
+
+        getInvalidation( entity ).run();
+    }
+
+    /**
+     * Invalidates the contexts affected by the collection of the given event
+     * once the transaction completes, or immediately if there is no
+     * transaction. The contexts are invalidated also on rollback, which is
+     * harmless. Collections of organisation units are ignored, as the paths of
+     * their members are not affected.
+     */
+    private void invalidateAfterCompletion( AbstractCollectionEvent event )
+    {
+        Object owner = event.getAffectedOwnerOrNull();
+
+        if ( owner == null || owner instanceof OrganisationUnit || !isContextEntity( owner.getClass() ) )
+        {
+            return;
+        }
+
+        log.debug( "Invalidating user security contexts after collection change of: " + event.getAffectedOwnerEntityName() );
+
+        Runnable invalidation = getInvalidation( owner );
+
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            invalidation.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+        {
+            @Override
+            public void afterCompletion( int status )
+            {
+                invalidation.run();
+            }
+        } );
+    }
+
+    /**
+     * Resolves which contexts a change to the given entity affects. The
+     * username is resolved eagerly, while the entity is still attached. Falls
+     * back to invalidating all contexts when the username cannot be resolved.
+     */
+    private Runnable getInvalidation( Object entity )
+    {
+        String username = null;
+
+        try
+        {
+            if ( entity instanceof UserCredentials )
+            {
+                username = ((UserCredentials) entity).getUsername();
+            }
+            else if ( entity instanceof User )
+            {
+                username = ((User) entity).getUsername();
+            }
+        }
+        catch ( HibernateException ex )
+        {
+            log.debug( "Could not resolve username of changed entity, invalidating all contexts", ex );
+        }
+
+        if ( username != null )
+        {
+            String name = username;
+
+            return () -> currentUserService.invalidateUserSecurityContext( name );
+        }
+
+        return currentUserService::invalidateUserSecurityContexts;
+    }
+
+    private boolean isContextEntity( Class<?> type )
+    {
+        return User.class.isAssignableFrom( type ) || UserCredentials.class.isAssignableFrom( type ) ||
+            UserGroup.class.isAssignableFrom( type ) || UserAuthorityGroup.class.isAssignableFrom( type ) ||
+            OrganisationUnit.class.isAssignableFrom( type );
+    }
+
+    /**
+     * Indicates whether the path of the updated organisation unit changed.
+     * Returns true if this cannot be determined from the event.
+     */
+    private boolean isPathUpdated( PostUpdateEvent event )
+    {
+        String[] propertyNames = event.getPersister().getPropertyNames();
+        int[] dirtyProperties = event.getDirtyProperties();
+
+        if ( dirtyProperties == null )
+        {
+            return true;
+        }
+
+        for ( int index : dirtyProperties )
+        {
+            if ( PATH_PROPERTY.equals( propertyNames[index] ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
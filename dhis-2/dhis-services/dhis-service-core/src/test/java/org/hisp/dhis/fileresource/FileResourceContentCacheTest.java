@@ -0,0 +1,144 @@
+package org.hisp.dhis.fileresource;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileResourceContentCacheTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileResourceContentCache cache;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        cache = new FileResourceContentCache( folder.getRoot().toPath().resolve( "cache" ), 10 );
+    }
+
+    @Test
+    public void testPutAndGet()
+        throws IOException
+    {
+        assertNull( cache.get( "dataValue/a" ) );
+
+        cache.put( "dataValue/a", content( 4 ), 4 );
+
+        File file = cache.get( "dataValue/a" );
+
+        assertNotNull( file );
+        assertArrayEquals( new byte[] { 0, 1, 2, 3 }, Files.readAllBytes( file.toPath() ) );
+        assertEquals( 4, cache.getSize() );
+        assertEquals( 1, cache.getHits() );
+        assertEquals( 1, cache.getMisses() );
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed()
+        throws IOException
+    {
+        cache.put( "a", content( 4 ), 4 );
+        cache.put( "b", content( 4 ), 4 );
+
+        assertNotNull( cache.get( "a" ) );
+
+        cache.put( "c", content( 4 ), 4 );
+
+        assertNotNull( cache.get( "a" ) );
+        assertNull( cache.get( "b" ) );
+        assertNotNull( cache.get( "c" ) );
+        assertEquals( 8, cache.getSize() );
+    }
+
+    @Test
+    public void testSkipContentLargerThanCache()
+        throws IOException
+    {
+        assertNull( cache.put( "a", content( 11 ), 11 ) );
+        assertNull( cache.get( "a" ) );
+        assertEquals( 0, cache.getSize() );
+    }
+
+    @Test
+    public void testRemove()
+        throws IOException
+    {
+        File file = cache.put( "a", content( 4 ), 4 );
+
+        cache.remove( "a" );
+
+        assertNull( cache.get( "a" ) );
+        assertEquals( 0, cache.getSize() );
+        assertFalse( file.exists() );
+    }
+
+    @Test
+    public void testClear()
+        throws IOException
+    {
+        File fileA = cache.put( "a", content( 4 ), 4 );
+        File fileB = cache.put( "b", content( 4 ), 4 );
+
+        cache.clear();
+
+        assertNull( cache.get( "a" ) );
+        assertNull( cache.get( "b" ) );
+        assertEquals( 0, cache.getSize() );
+        assertFalse( fileA.exists() );
+        assertFalse( fileB.exists() );
+    }
+
+    private static ByteArrayInputStream content( int length )
+    {
+        byte[] bytes = new byte[length];
+
+        for ( int i = 0; i < length; i++ )
+        {
+            bytes[i] = (byte) i;
+        }
+
+        return new ByteArrayInputStream( bytes );
+    }
+}
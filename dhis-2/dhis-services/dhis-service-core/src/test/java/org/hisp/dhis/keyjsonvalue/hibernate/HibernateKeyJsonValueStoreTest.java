@@ -0,0 +1,180 @@
+package org.hisp.dhis.keyjsonvalue.hibernate;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.keyjsonvalue.KeyJsonValue;
+import org.hisp.dhis.keyjsonvalue.KeyJsonValueQuery;
+import org.hisp.dhis.security.acl.AclService;
+import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.user.UserAuthorityGroup;
+import org.hisp.dhis.user.UserInfo;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Unit tests of the SQL generated for {@link KeyJsonValueQuery} by
+ * {@link HibernateKeyJsonValueStore}.
+ */
+public class HibernateKeyJsonValueStoreTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ApplicationEventPublisher publisher;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @Mock
+    private AclService aclService;
+
+    private HibernateKeyJsonValueStore store;
+
+    private final UserInfo superUser = new UserInfo( 1L, "admin", Sets.newHashSet( UserAuthorityGroup.AUTHORITY_ALL ) );
+
+    private final UserInfo user = new UserInfo( 2L, "user", Sets.newHashSet() );
+
+    @Before
+    public void setUp()
+    {
+        store = new HibernateKeyJsonValueStore( sessionFactory, jdbcTemplate, publisher, currentUserService, aclService );
+    }
+
+    @Test
+    public void testFullValue()
+    {
+        List<Object> args = new ArrayList<>();
+
+        String sql = store.getKeyJsonValuesSql( new KeyJsonValueQuery().setNamespace( "ns" ), superUser, args );
+
+        assertThat( sql, is( "select kjv.namespacekey, cast(kjv.jbvalue as text) as value " +
+            "from keyjsonvalue kjv where kjv.namespace = ? and kjv.encrypted = false " +
+            "order by kjv.namespacekey limit ?" ) );
+        assertThat( args, contains( "ns", KeyJsonValueQuery.DEFAULT_PAGE_SIZE ) );
+    }
+
+    @Test
+    public void testFieldProjection()
+    {
+        List<Object> args = new ArrayList<>();
+
+        KeyJsonValueQuery query = new KeyJsonValueQuery()
+            .setNamespace( "ns" )
+            .setFields( KeyJsonValueQuery.parseFields( "name,address.city" ) )
+            .setPageSize( 10 );
+
+        String sql = store.getKeyJsonValuesSql( query, superUser, args );
+
+        assertThat( sql, is( "select kjv.namespacekey, cast(jsonb_build_object(" +
+            "?, kjv.jbvalue #> cast(? as text[]), ?, kjv.jbvalue #> cast(? as text[])) as text) as value " +
+            "from keyjsonvalue kjv where kjv.namespace = ? and kjv.encrypted = false " +
+            "order by kjv.namespacekey limit ?" ) );
+        assertThat( args, contains( "name", "{\"name\"}", "address.city", "{\"address\",\"city\"}", "ns", 10 ) );
+    }
+
+    @Test
+    public void testFiltersAndPaging()
+    {
+        List<Object> args = new ArrayList<>();
+
+        KeyJsonValueQuery query = new KeyJsonValueQuery()
+            .setNamespace( "ns" )
+            .setAfter( "keyA" )
+            .setFilters( Lists.newArrayList(
+                KeyJsonValueQuery.parseFilter( "age:gt:20" ),
+                KeyJsonValueQuery.parseFilter( "name:eq:Fido" ),
+                KeyJsonValueQuery.parseFilter( "name:ilike:fi" ),
+                KeyJsonValueQuery.parseFilter( "owner:null" ) ) );
+
+        String sql = store.getKeyJsonValuesSql( query, superUser, args );
+
+        assertThat( sql, is( "select kjv.namespacekey, cast(kjv.jbvalue as text) as value " +
+            "from keyjsonvalue kjv where kjv.namespace = ? and kjv.encrypted = false " +
+            "and kjv.namespacekey > ? " +
+            "and kjv.jbvalue #> cast(? as text[]) > cast(? as jsonb) " +
+            "and kjv.jbvalue #> cast(? as text[]) = cast(? as jsonb) " +
+            "and kjv.jbvalue #>> cast(? as text[]) ilike ? " +
+            "and coalesce(kjv.jbvalue #> cast(? as text[]), 'null'::jsonb) = 'null'::jsonb " +
+            "order by kjv.namespacekey limit ?" ) );
+        assertThat( args, contains( "ns", "keyA", "{\"age\"}", "20", "{\"name\"}", "\"Fido\"",
+            "{\"name\"}", "%fi%", "{\"owner\"}", KeyJsonValueQuery.DEFAULT_PAGE_SIZE ) );
+    }
+
+    @Test
+    public void testSharingForNonSuperUser()
+    {
+        when( aclService.isShareable( KeyJsonValue.class ) ).thenReturn( true );
+
+        List<Object> args = new ArrayList<>();
+
+        String sql = store.getKeyJsonValuesSql( new KeyJsonValueQuery().setNamespace( "ns" ), user, args );
+
+        assertThat( sql, containsString( "and (kjv.publicaccess like ? or kjv.publicaccess is null " +
+            "or kjv.userid is null or kjv.userid = ? " ) );
+        assertThat( args, contains( "ns", AclService.LIKE_READ_METADATA, 2L, 2L, AclService.LIKE_READ_METADATA,
+            2L, AclService.LIKE_READ_METADATA, KeyJsonValueQuery.DEFAULT_PAGE_SIZE ) );
+    }
+
+    @Test
+    public void testNoSharingForSuperUser()
+    {
+        List<Object> args = new ArrayList<>();
+
+        String sql = store.getKeyJsonValuesSql( new KeyJsonValueQuery().setNamespace( "ns" ), superUser, args );
+
+        assertThat( sql, not( containsString( "publicaccess" ) ) );
+    }
+}
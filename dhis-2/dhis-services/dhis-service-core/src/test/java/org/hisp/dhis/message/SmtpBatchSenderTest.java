@@ -0,0 +1,301 @@
+package org.hisp.dhis.message;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.hisp.dhis.email.EmailResponse;
+import org.hisp.dhis.outboundmessage.OutboundMessageResponse;
+import org.junit.Test;
+
+public class SmtpBatchSenderTest
+{
+    private final AtomicInteger connections = new AtomicInteger();
+
+    @Test
+    public void testSendOverSingleConnection()
+        throws MessagingException
+    {
+        Transport transport = transport();
+
+        SmtpBatchSender sender = new SmtpBatchSender( () -> transport, 1, 0, 3, 0 );
+
+        List<OutboundMessageResponse> responses = sender.send( messages( 3 ), count -> {} );
+
+        assertEquals( 3, responses.size() );
+        responses.forEach( r -> assertEquals( EmailResponse.SENT, r.getResponseObject() ) );
+
+        verify( transport, times( 1 ) ).connect();
+        verify( transport, times( 3 ) ).sendMessage( any(), any() );
+        verify( transport, never() ).close();
+
+        sender.close();
+
+        verify( transport ).close();
+    }
+
+    @Test
+    public void testRetryTransientFailure()
+        throws MessagingException
+    {
+        Transport failing = transport();
+        Transport working = transport();
+
+        doThrow( new MessagingException( "Connection reset" ) ).when( failing ).sendMessage( any(), any() );
+
+        List<OutboundMessageResponse> responses = new SmtpBatchSender(
+            () -> connections.getAndIncrement() == 0 ? failing : working, 1, 0, 3, 0 )
+            .send( messages( 2 ), count -> {} );
+
+        assertTrue( responses.get( 0 ).isOk() );
+        assertTrue( responses.get( 1 ).isOk() );
+        assertEquals( 2, connections.get() );
+
+        verify( failing ).close();
+        verify( working, times( 2 ) ).sendMessage( any(), any() );
+    }
+
+    @Test
+    public void testFailAfterMaxAttempts()
+        throws MessagingException
+    {
+        Transport transport = transport();
+
+        doThrow( new MessagingException( "Service unavailable" ) ).when( transport ).sendMessage( any(), any() );
+
+        List<OutboundMessageResponse> responses = new SmtpBatchSender( () -> transport, 1, 0, 3, 0 )
+            .send( messages( 1 ), count -> {} );
+
+        assertFalse( responses.get( 0 ).isOk() );
+        assertEquals( EmailResponse.FAILED, responses.get( 0 ).getResponseObject() );
+
+        verify( transport, times( 3 ) ).sendMessage( any(), any() );
+    }
+
+    @Test
+    public void testNoRetryForInvalidAddress()
+        throws MessagingException
+    {
+        Transport transport = transport();
+
+        Address[] invalid = { new InternetAddress( "invalid@dhis2.org" ) };
+
+        doThrow( new SendFailedException( "Invalid address", null, null, null, invalid ) )
+            .when( transport ).sendMessage( any(), any() );
+
+        List<OutboundMessageResponse> responses = new SmtpBatchSender( () -> transport, 1, 0, 3, 0 )
+            .send( messages( 1 ), count -> {} );
+
+        assertFalse( responses.get( 0 ).isOk() );
+
+        verify( transport, times( 1 ) ).sendMessage( any(), any() );
+    }
+
+    @Test
+    public void testSendWithWorkers()
+        throws MessagingException
+    {
+        List<Integer> progress = new CopyOnWriteArrayList<>();
+
+        List<MimeMessage> messages = messages( SmtpBatchSender.PROGRESS_INTERVAL * 2 );
+
+        List<OutboundMessageResponse> responses = new SmtpBatchSender( () -> {
+            connections.incrementAndGet();
+            return transport();
+        }, 4, 0, 3, 0 ).send( messages, progress::add );
+
+        assertEquals( messages.size(), responses.size() );
+        responses.forEach( r -> assertTrue( r.isOk() ) );
+        assertEquals( 4, connections.get() );
+
+        Collections.sort( progress );
+
+        assertEquals( 2, progress.size() );
+        assertEquals( SmtpBatchSender.PROGRESS_INTERVAL * 2, (int) progress.get( 1 ) );
+    }
+
+    @Test
+    public void testResponsePerMessageOnUnexpectedFailure()
+        throws MessagingException
+    {
+        Transport transport = transport();
+
+        List<MimeMessage> messages = messages( 8 );
+
+        doThrow( new IllegalStateException( "Unexpected" ) ).when( transport )
+            .sendMessage( eq( messages.get( 1 ) ), any() );
+
+        List<OutboundMessageResponse> responses = new SmtpBatchSender( () -> transport, 4, 0, 3, 0 )
+            .send( messages, count -> {} );
+
+        assertEquals( messages.size(), responses.size() );
+
+        for ( int i = 0; i < responses.size(); i++ )
+        {
+            assertEquals( i != 1, responses.get( i ).isOk() );
+        }
+
+        assertEquals( EmailResponse.FAILED, responses.get( 1 ).getResponseObject() );
+    }
+
+    @Test
+    public void testReuseConnectionBetweenMessages()
+        throws MessagingException
+    {
+        Transport transport = transport();
+
+        SmtpBatchSender sender = new SmtpBatchSender( () -> {
+            connections.incrementAndGet();
+            return transport;
+        }, 2, 0, 3, 0 );
+
+        for ( MimeMessage message : messages( 3 ) )
+        {
+            assertTrue( sender.send( message ).isOk() );
+        }
+
+        assertEquals( 1, connections.get() );
+
+        sender.send( messages( 1 ), count -> {} );
+
+        assertEquals( 1, connections.get() );
+
+        verify( transport, times( 4 ) ).sendMessage( any(), any() );
+        verify( transport, never() ).close();
+    }
+
+    @Test
+    public void testReplaceDisconnectedIdleConnection()
+        throws MessagingException
+    {
+        Transport dropped = transport();
+        Transport working = transport();
+
+        SmtpBatchSender sender = new SmtpBatchSender(
+            () -> connections.getAndIncrement() == 0 ? dropped : working, 1, 0, 3, 0 );
+
+        assertTrue( sender.send( messages( 1 ).get( 0 ) ).isOk() );
+
+        when( dropped.isConnected() ).thenReturn( false );
+
+        assertTrue( sender.send( messages( 1 ).get( 0 ) ).isOk() );
+
+        assertEquals( 2, connections.get() );
+
+        verify( dropped ).close();
+        verify( working ).sendMessage( any(), any() );
+    }
+
+    @Test
+    public void testCloseDeferredUntilReleased()
+        throws MessagingException
+    {
+        Transport transport = transport();
+
+        SmtpBatchSender sender = new SmtpBatchSender( () -> transport, 2, 0, 3, 0 );
+
+        sender.acquire();
+        sender.close();
+
+        List<OutboundMessageResponse> responses = sender.send( messages( 4 ), count -> {} );
+
+        assertEquals( 4, responses.size() );
+        assertTrue( responses.stream().allMatch( OutboundMessageResponse::isOk ) );
+
+        sender.release();
+
+        verify( transport, times( 4 ) ).sendMessage( any(), any() );
+        verify( transport, times( 2 ) ).close();
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testAcquireClosed()
+    {
+        SmtpBatchSender sender = new SmtpBatchSender( () -> mock( Transport.class ), 1, 0, 3, 0 );
+
+        sender.close();
+        sender.acquire();
+    }
+
+    private Transport transport()
+        throws MessagingException
+    {
+        Transport transport = mock( Transport.class );
+
+        when( transport.isConnected() ).thenReturn( true );
+        doNothing().when( transport ).sendMessage( any( Message.class ), any() );
+
+        return transport;
+    }
+
+    private List<MimeMessage> messages( int count )
+        throws MessagingException
+    {
+        Session session = Session.getInstance( new Properties() );
+
+        List<MimeMessage> messages = new ArrayList<>();
+
+        for ( int i = 0; i < count; i++ )
+        {
+            MimeMessage message = new MimeMessage( session );
+            message.setRecipient( Message.RecipientType.BCC, new InternetAddress( "user" + i + "@dhis2.org" ) );
+            message.setSubject( "Message " + i );
+            messages.add( message );
+        }
+
+        return messages;
+    }
+}
@@ -28,10 +28,13 @@ package org.hisp.dhis.organisationunit;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hisp.dhis.organisationunit.FeatureType.POINT;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -41,6 +44,7 @@ import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.system.util.GeoUtils;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import com.vividsolutions.jts.geom.Geometry;
 
@@ -61,6 +65,9 @@ public class OrganisationUnitStoreIntegrationTest extends IntegrationTestBase
     @Autowired
     private IdentifiableObjectManager manager;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Override
     public boolean emptyDatabaseAfterTest()
     {
@@ -99,6 +106,75 @@ public class OrganisationUnitStoreIntegrationTest extends IntegrationTestBase
 
     }
 
+    @Test
+    public void verifyGetOrganisationUnitsWithCyclicReferences()
+    {
+        OrganisationUnit ouA = createOrganisationUnit( 'A' );
+        OrganisationUnit ouB = createOrganisationUnit( 'B', ouA );
+        OrganisationUnit ouC = createOrganisationUnit( 'C', ouB );
+        OrganisationUnit ouD = createOrganisationUnit( 'D', ouC );
+        OrganisationUnit ouE = createOrganisationUnit( 'E' );
+        OrganisationUnit ouF = createOrganisationUnit( 'F' );
+        OrganisationUnit ouG = createOrganisationUnit( 'G', ouF );
+
+        manager.save( ouA );
+        manager.save( ouB );
+        manager.save( ouC );
+        manager.save( ouD );
+        manager.save( ouE );
+        manager.save( ouF );
+        manager.save( ouG );
+
+        // A -> C -> B -> A is a cycle which D leads into, E refers to itself
+
+        setParent( ouA, ouC );
+        setParent( ouE, ouE );
+
+        assertContainsExactly( organisationUnitStore.getOrganisationUnitsWithCyclicReferences(), ouA, ouB, ouC, ouE );
+    }
+
+    @Test
+    public void verifyGetOrganisationUnitsWithCyclicReferencesWithoutCycles()
+    {
+        OrganisationUnit ouA = createOrganisationUnit( 'A' );
+        OrganisationUnit ouB = createOrganisationUnit( 'B', ouA );
+        OrganisationUnit ouC = createOrganisationUnit( 'C', ouB );
+
+        manager.save( ouA );
+        manager.save( ouB );
+        manager.save( ouC );
+
+        assertContainsExactly( organisationUnitStore.getOrganisationUnitsWithCyclicReferences() );
+    }
+
+    @Test
+    public void verifyGetOrphanedOrganisationUnits()
+    {
+        OrganisationUnit ouA = createOrganisationUnit( 'A' );
+        OrganisationUnit ouB = createOrganisationUnit( 'B', ouA );
+        OrganisationUnit ouC = createOrganisationUnit( 'C' );
+
+        manager.save( ouA );
+        manager.save( ouB );
+        manager.save( ouC );
+
+        assertContainsExactly( organisationUnitStore.getOrphanedOrganisationUnits(), ouC );
+    }
+
+    private void setParent( OrganisationUnit organisationUnit, OrganisationUnit parent )
+    {
+        jdbcTemplate.update( "update organisationunit set parentid = ? where organisationunitid = ?",
+            parent.getId(), organisationUnit.getId() );
+    }
+
+    private void assertContainsExactly( List<OrganisationUnit> ous, OrganisationUnit... ou )
+    {
+        List<String> uids = ous.stream().map( BaseIdentifiableObject::getUid ).collect( Collectors.toList() );
+        String[] expected = Arrays.stream( ou ).map( BaseIdentifiableObject::getUid ).toArray( String[]::new );
+
+        assertThat( uids, containsInAnyOrder( expected ) );
+    }
+
     private List<OrganisationUnit> getOUsFromPointToDistance( Geometry point, long distance )
     {
         double[] box = GeoUtils.getBoxShape( point.getCoordinate().x, point.getCoordinate().y, distance );
@@ -373,6 +373,36 @@ public class PreheatServiceTest
         assertTrue( preheat.containsKey( PreheatIdentifier.UID, User.class, user.getUid() ) );
     }
 
+    @Test
+    public void testPreheatReferenceAUTO()
+    {
+        DataElement de1 = createDataElement( 'A' );
+        DataElement de2 = createDataElement( 'B' );
+        DataElement de3 = createDataElement( 'C' );
+
+        manager.save( de1 );
+        manager.save( de2 );
+        manager.save( de3 );
+
+        PreheatParams params = new PreheatParams();
+        params.setPreheatMode( PreheatMode.REFERENCE );
+        params.setPreheatIdentifier( PreheatIdentifier.AUTO );
+
+        params.getObjects().put( DataElement.class, Lists.newArrayList( de1, de2 ) );
+
+        preheatService.validate( params );
+        Preheat preheat = preheatService.preheat( params );
+
+        assertTrue( preheat.containsKey( PreheatIdentifier.UID, DataElement.class, de1.getUid() ) );
+        assertTrue( preheat.containsKey( PreheatIdentifier.UID, DataElement.class, de2.getUid() ) );
+        assertTrue( preheat.containsKey( PreheatIdentifier.CODE, DataElement.class, de1.getCode() ) );
+        assertTrue( preheat.containsKey( PreheatIdentifier.CODE, DataElement.class, de2.getCode() ) );
+        assertFalse( preheat.containsKey( PreheatIdentifier.UID, DataElement.class, de3.getUid() ) );
+        assertFalse( preheat.containsKey( PreheatIdentifier.CODE, DataElement.class, de3.getCode() ) );
+
+        assertTrue( preheat.getTimings().containsKey( DataElement.class ) );
+    }
+
     @Test
     public void testPreheatReferenceCODE()
     {
@@ -0,0 +1,63 @@
+package org.hisp.dhis.preheat;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.category.CategoryCombo;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.schema.Property;
+import org.junit.Test;
+
+public class PropertyAccessorTest extends DhisConvenienceTest
+{
+    @Test
+    public void testGetAndSet()
+        throws Exception
+    {
+        PropertyAccessor accessor = new PropertyAccessor( new Property( CategoryCombo.class,
+            DataElement.class.getMethod( "getCategoryCombo" ),
+            DataElement.class.getMethod( "setCategoryCombo", CategoryCombo.class ) ) );
+
+        DataElement dataElement = createDataElement( 'A' );
+        CategoryCombo categoryCombo = createCategoryCombo( 'A' );
+
+        accessor.set( dataElement, categoryCombo );
+
+        assertEquals( categoryCombo, dataElement.getCategoryCombo() );
+        assertEquals( categoryCombo, accessor.get( dataElement ) );
+
+        accessor.set( dataElement, null );
+
+        assertNull( accessor.get( dataElement ) );
+        assertNull( accessor.get( null ) );
+    }
+}
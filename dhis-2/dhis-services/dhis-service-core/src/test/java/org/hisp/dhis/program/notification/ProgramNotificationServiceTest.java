@@ -197,7 +197,7 @@ public class ProgramNotificationServiceTest extends DhisConvenienceTest
     {
         when( programInstanceStore.get( anyLong() ) ).thenReturn( programInstances.iterator().next() );
 
-        when( programMessageService.sendMessages( anyList() ) ).thenAnswer( invocation ->
+        when( programMessageService.sendMessages( anyList(), any() ) ).thenAnswer( invocation ->
         {
             sentProgramMessages.addAll( (List<ProgramMessage>) invocation.getArguments()[0] );
             return new BatchResponseStatus(Collections.emptyList());
@@ -222,7 +222,7 @@ public class ProgramNotificationServiceTest extends DhisConvenienceTest
     {
         when( programInstanceStore.get( anyLong() ) ).thenReturn( programInstances.iterator().next() );
 
-        when( programMessageService.sendMessages( anyList() ) ).thenAnswer( invocation ->
+        when( programMessageService.sendMessages( anyList(), any() ) ).thenAnswer( invocation ->
         {
             sentProgramMessages.addAll( (List<ProgramMessage>) invocation.getArguments()[0] );
             return new BatchResponseStatus(Collections.emptyList());
@@ -275,7 +275,7 @@ public class ProgramNotificationServiceTest extends DhisConvenienceTest
     {
         when( programInstanceStore.get( anyLong() ) ).thenReturn( programInstances.iterator().next() );
 
-        when( programMessageService.sendMessages( anyList() ) ).thenAnswer( invocation ->
+        when( programMessageService.sendMessages( anyList(), any() ) ).thenAnswer( invocation ->
         {
             sentProgramMessages.addAll( (List<ProgramMessage>) invocation.getArguments()[0] );
             return new BatchResponseStatus(Collections.emptyList());
@@ -301,7 +301,7 @@ public class ProgramNotificationServiceTest extends DhisConvenienceTest
     {
         when( programInstanceStore.get( anyLong() ) ).thenReturn( programInstances.iterator().next() );
 
-        when( programMessageService.sendMessages( anyList() ) ).thenAnswer( invocation ->
+        when( programMessageService.sendMessages( anyList(), any() ) ).thenAnswer( invocation ->
         {
             sentProgramMessages.addAll( (List<ProgramMessage>) invocation.getArguments()[0] );
             return new BatchResponseStatus(Collections.emptyList());
@@ -329,7 +329,7 @@ public class ProgramNotificationServiceTest extends DhisConvenienceTest
     {
         when( programInstanceStore.get( anyLong() ) ).thenReturn( programInstances.iterator().next() );
 
-        when( programMessageService.sendMessages( anyList() ) ).thenAnswer( invocation ->
+        when( programMessageService.sendMessages( anyList(), any() ) ).thenAnswer( invocation ->
         {
             sentProgramMessages.addAll( (List<ProgramMessage>) invocation.getArguments()[0] );
             return new BatchResponseStatus(Collections.emptyList());
@@ -357,7 +357,7 @@ public class ProgramNotificationServiceTest extends DhisConvenienceTest
     {
         when( programStageInstanceStore.get( anyLong() ) ).thenReturn( programStageInstances.iterator().next() );
 
-        when( programMessageService.sendMessages( anyList() ) ).thenAnswer( invocation ->
+        when( programMessageService.sendMessages( anyList(), any() ) ).thenAnswer( invocation ->
         {
             sentProgramMessages.addAll( (List<ProgramMessage>) invocation.getArguments()[0] );
             return new BatchResponseStatus(Collections.emptyList());
@@ -391,7 +391,7 @@ public class ProgramNotificationServiceTest extends DhisConvenienceTest
     {
         when( programStageInstanceStore.get( anyLong() ) ).thenReturn( programStageInstances.iterator().next() );
 
-        when( programMessageService.sendMessages( anyList() ) ).thenAnswer( invocation ->
+        when( programMessageService.sendMessages( anyList(), any() ) ).thenAnswer( invocation ->
         {
             sentProgramMessages.addAll( (List<ProgramMessage>) invocation.getArguments()[0] );
             return new BatchResponseStatus(Collections.emptyList());
@@ -563,7 +563,7 @@ public class ProgramNotificationServiceTest extends DhisConvenienceTest
     {
         sentProgramMessages.clear();
 
-        when( programMessageService.sendMessages( anyList() ) ).thenAnswer( invocation ->
+        when( programMessageService.sendMessages( anyList(), any() ) ).thenAnswer( invocation ->
             {
                 sentProgramMessages.addAll( (List<ProgramMessage>) invocation.getArguments()[0] );
                 return new BatchResponseStatus(Collections.emptyList());
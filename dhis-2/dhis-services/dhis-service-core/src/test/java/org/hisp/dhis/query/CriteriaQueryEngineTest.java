@@ -29,6 +29,7 @@ package org.hisp.dhis.query;
  */
 
 import com.google.common.collect.Lists;
+import org.hibernate.SessionFactory;
 import org.hisp.dhis.DhisSpringTest;
 import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.IdentifiableObjectManager;
@@ -46,6 +47,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -67,6 +69,9 @@ public class CriteriaQueryEngineTest
     @Autowired
     private IdentifiableObjectManager identifiableObjectManager;
 
+    @Autowired
+    private SessionFactory sessionFactory;
+
     @Before
     public void createDataElements()
     {
@@ -148,6 +153,21 @@ public class CriteriaQueryEngineTest
         assertEquals( 6, queryEngine.query( query ).size() );
     }
 
+    @Test
+    public void testStreamKeepsObjectsOfCaller()
+    {
+        DataElementGroup group = identifiableObjectManager.getAll( DataElementGroup.class ).get( 0 );
+
+        Query query = Query.from( schemaService.getDynamicSchema( DataElement.class ) );
+
+        try ( Stream<? extends IdentifiableObject> stream = queryEngine.stream( query, 2 ) )
+        {
+            assertEquals( 6, stream.count() );
+        }
+
+        assertTrue( sessionFactory.getCurrentSession().contains( group ) );
+    }
+
     @Test
     public void getMinMaxQuery()
     {
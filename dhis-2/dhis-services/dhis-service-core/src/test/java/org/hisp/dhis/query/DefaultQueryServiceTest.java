@@ -29,20 +29,25 @@
 package org.hisp.dhis.query;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.lang.RandomStringUtils;
+import org.hisp.dhis.category.Category;
 import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.query.planner.DefaultQueryPlanner;
 import org.hisp.dhis.query.planner.QueryPlanner;
 import org.hisp.dhis.schema.SchemaService;
+import org.hisp.dhis.schema.descriptors.CategorySchemaDescriptor;
 import org.hisp.dhis.schema.descriptors.OrganisationUnitSchemaDescriptor;
 import org.junit.Before;
 import org.junit.Rule;
@@ -52,6 +57,8 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import com.google.common.collect.Lists;
+
 /**
  * @author Luciano Fiandesio
  */
@@ -98,6 +105,67 @@ public class DefaultQueryServiceTest
         assertThat( orgUnits.size(), is( 20 ) );
     }
 
+    @Test
+    public void verifyNextPageTokenOnlyForFullPage()
+    {
+        Query query = Query.from( new OrganisationUnitSchemaDescriptor().getSchema() );
+        query.setMaxResults( 20 );
+        query.setCursorPaging( true );
+
+        List<OrganisationUnit> orgUnits = createOrgUnits( 20 );
+        orgUnits.get( 19 ).setId( 99 );
+
+        when( criteriaQueryEngine.query( any() ) ).thenReturn( orgUnits );
+
+        subject.query( query );
+
+        PageToken pageToken = PageToken.decode( subject.getNextPageToken( query ) );
+
+        assertThat( pageToken.getId(), is( 99L ) );
+
+        when( criteriaQueryEngine.query( any() ) ).thenReturn( createOrgUnits( 10 ) );
+
+        subject.query( query );
+
+        assertThat( subject.getNextPageToken( query ), is( nullValue() ) );
+
+        query.setCursorPaging( false );
+        query.setNextPageToken( "token" );
+
+        assertThat( subject.getNextPageToken( query ), is( nullValue() ) );
+    }
+
+    @Test
+    public void verifyNextPageTokenFromRowsBeforeExcludingDefaults()
+    {
+        Query query = Query.from( new CategorySchemaDescriptor().getSchema() );
+        query.setMaxResults( 3 );
+        query.setCursorPaging( true );
+
+        Category defaultCategory = new Category();
+        defaultCategory.setName( "default" );
+        defaultCategory.setId( 1 );
+
+        Category categoryA = new Category();
+        categoryA.setName( "CategoryA" );
+        categoryA.setId( 2 );
+
+        Category categoryB = new Category();
+        categoryB.setName( "CategoryB" );
+        categoryB.setId( 3 );
+
+        doReturn( Lists.newArrayList( defaultCategory, categoryA, categoryB ) )
+            .when( criteriaQueryEngine ).query( any() );
+
+        List<? extends IdentifiableObject> categories = subject.query( query );
+
+        assertThat( categories.size(), is( 2 ) );
+
+        PageToken pageToken = PageToken.decode( subject.getNextPageToken( query ) );
+
+        assertThat( pageToken.getId(), is( 3L ) );
+    }
+
     private List<OrganisationUnit> createOrgUnits( int size )
     {
 
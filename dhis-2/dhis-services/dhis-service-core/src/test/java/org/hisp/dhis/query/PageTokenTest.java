@@ -0,0 +1,146 @@
+package org.hisp.dhis.query;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.schema.Property;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class PageTokenTest
+{
+    @Test
+    public void testEncodeDecode()
+    {
+        PageToken token = PageToken.decode( new PageToken( "name", "ANC: 1st visit", 42 ).encode() );
+
+        assertEquals( "name", token.getProperty() );
+        assertEquals( "ANC: 1st visit", token.getValue() );
+        assertEquals( 42, token.getId() );
+    }
+
+    @Test
+    public void testEncodeDecodeNullValue()
+    {
+        PageToken token = PageToken.decode( new PageToken( "code", null, 7 ).encode() );
+
+        assertEquals( "code", token.getProperty() );
+        assertNull( token.getValue() );
+
+        token = PageToken.decode( new PageToken( "code", "", 7 ).encode() );
+
+        assertEquals( "", token.getValue() );
+    }
+
+    @Test
+    public void testEncodeDecodeWithoutProperty()
+    {
+        PageToken token = PageToken.decode( new PageToken( null, null, 3 ).encode() );
+
+        assertNull( token.getProperty() );
+        assertTrue( token.matches( null ) );
+        assertEquals( 3, token.getId() );
+    }
+
+    @Test( expected = QueryParserException.class )
+    public void testDecodeInvalid()
+    {
+        PageToken.decode( "not a token" );
+    }
+
+    @Test
+    public void testOfObject()
+        throws Exception
+    {
+        DataElement dataElement = new DataElement( "ANC" );
+        dataElement.setId( 11 );
+
+        Order order = Order.asc( property( "name", String.class, DataElement.class.getMethod( "getName" ) ) );
+
+        PageToken token = PageToken.decode( PageToken.of( dataElement, order ).encode() );
+
+        assertTrue( token.matches( order ) );
+        assertEquals( "ANC", token.getTypedValue( order.getProperty() ) );
+        assertEquals( 11, token.getId() );
+    }
+
+    @Test
+    public void testTypedValues()
+        throws Exception
+    {
+        Timestamp created = new Timestamp( new Date().getTime() );
+        created.setNanos( 123456789 );
+
+        DataElement dataElement = new DataElement( "ANC" );
+        dataElement.setCreated( created );
+        dataElement.setValueType( ValueType.INTEGER );
+
+        Property createdProperty = property( "created", Date.class, DataElement.class.getMethod( "getCreated" ) );
+        Property valueTypeProperty = property( "valueType", ValueType.class, DataElement.class.getMethod( "getValueType" ) );
+
+        assertEquals( created, PageToken.of( dataElement, Order.asc( createdProperty ) ).getTypedValue( createdProperty ) );
+        assertEquals( ValueType.INTEGER, PageToken.of( dataElement, Order.asc( valueTypeProperty ) ).getTypedValue( valueTypeProperty ) );
+        assertEquals( 5, new PageToken( "sortOrder", "5", 1 ).getTypedValue( property( "sortOrder", int.class, null ) ) );
+    }
+
+    @Test
+    public void testGetSortOrder()
+    {
+        Property nonPersisted = property( "displayName", String.class, null );
+        nonPersisted.setPersisted( false );
+
+        Order name = Order.iasc( property( "name", String.class, null ) );
+
+        assertEquals( name, PageToken.getSortOrder( Lists.newArrayList( Order.asc( nonPersisted ), name ) ) );
+        assertNull( PageToken.getSortOrder( Lists.newArrayList( Order.asc( property( "style", Object.class, null ) ) ) ) );
+        assertNull( PageToken.getSortOrder( Lists.newArrayList() ) );
+        assertFalse( new PageToken( "code", null, 1 ).matches( name ) );
+    }
+
+    private static Property property( String name, Class<?> klass, Method getter )
+    {
+        Property property = new Property( klass, getter, null );
+        property.setName( name );
+        property.setFieldName( name );
+        property.setPersisted( true );
+        property.setSimple( true );
+        return property;
+    }
+}
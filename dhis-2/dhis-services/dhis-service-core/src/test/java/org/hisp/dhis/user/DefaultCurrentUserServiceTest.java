@@ -0,0 +1,159 @@
+package org.hisp.dhis.user;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createUser;
+import static org.hisp.dhis.DhisConvenienceTest.createUserAuthorityGroup;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.SimpleCacheBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.core.env.Environment;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Unit tests for the caching of user security contexts in
+ * {@link DefaultCurrentUserService}.
+ */
+public class DefaultCurrentUserServiceTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private Environment env;
+
+    @Mock
+    private CacheProvider cacheProvider;
+
+    @Mock
+    private SessionRegistry sessionRegistry;
+
+    @Mock
+    private UserStore userStore;
+
+    private DefaultCurrentUserService currentUserService;
+
+    private User user;
+
+    @Before
+    public void setUp()
+    {
+        when( env.getActiveProfiles() ).thenReturn( new String[0] );
+        when( cacheProvider.newCacheBuilder( any() ) ).thenAnswer( invocation -> new SimpleCacheBuilder<>() );
+
+        currentUserService = new DefaultCurrentUserService( env, cacheProvider, sessionRegistry, userStore );
+        currentUserService.init();
+
+        user = createUser( 'A', Lists.newArrayList( "F_READ" ) );
+    }
+
+    @After
+    public void tearDown()
+    {
+        if ( TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        TransactionSynchronizationManager.setActualTransactionActive( false );
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly( false );
+    }
+
+    @Test
+    public void testContextIsCached()
+    {
+        assertTrue( currentUserService.getUserSecurityContext( user ).isAuthorized( "F_READ" ) );
+
+        setAuthority( "F_WRITE" );
+
+        assertTrue( currentUserService.getUserSecurityContext( user ).isAuthorized( "F_READ" ) );
+    }
+
+    @Test
+    public void testContextNotCachedAfterRollback()
+    {
+        beginReadWriteTransaction();
+
+        setAuthority( "F_WRITE" );
+
+        UserSecurityContext context = currentUserService.getUserSecurityContext( user );
+
+        assertTrue( context.isAuthorized( "F_WRITE" ) );
+        assertSame( context, currentUserService.getUserSecurityContext( user ) );
+
+        completeTransaction( TransactionSynchronization.STATUS_ROLLED_BACK );
+
+        setAuthority( "F_READ" );
+
+        context = currentUserService.getUserSecurityContext( user );
+
+        assertTrue( context.isAuthorized( "F_READ" ) );
+        assertFalse( context.isAuthorized( "F_WRITE" ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void setAuthority( String authority )
+    {
+        user.getUserCredentials().setUserAuthorityGroups( Sets.newHashSet( createUserAuthorityGroup( 'A', authority ) ) );
+    }
+
+    private void beginReadWriteTransaction()
+    {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive( true );
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly( false );
+    }
+
+    private void completeTransaction( int status )
+    {
+        TransactionSynchronizationManager.getSynchronizations().forEach( sync -> sync.afterCompletion( status ) );
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive( false );
+    }
+}
@@ -102,6 +102,21 @@ public interface DataValueSetService
     void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes, int pageSize,
         int page );
 
+    /**
+     * Query for {@link DataValueSet DataValueSets} ordered by last updated time
+     * and data value key, positioned after the given cursor, and write result
+     * as JSON.
+     *
+     * @param lastUpdated specifies the date to filter data values last updated after
+     * @param outputStream the stream to write to
+     * @param idSchemes idSchemes
+     * @param pageSize the max number of data values to write
+     * @param after the cursor to write data values after, null to start from the first data value
+     * @return the cursor of the last data value written, null if no data values were written
+     */
+    DataValueSyncCursor writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes,
+        int pageSize, DataValueSyncCursor after );
+
     void writeDataValueSetCsv( DataExportParams params, Writer writer );
 
     RootNode getDataValueSetTemplate( DataSet dataSet, Period period, List<String> orgUnits, boolean writeComments,
@@ -0,0 +1,198 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.Timestamp;
+import java.util.Objects;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.common.base.Joiner;
+
+/**
+ * Keyset cursor over data values ordered by last updated time and data value
+ * key, i.e. data element, period, organisation unit, category option combo and
+ * attribute option combo identifiers. Pages of data values are read after a
+ * cursor instead of at an offset, which keeps the cost of reading a page
+ * constant and allows a synchronization to be resumed from the last page which
+ * was acknowledged by the remote server.
+ */
+public class DataValueSyncCursor
+{
+    private static final String SEP = ";";
+
+    private final Timestamp lastUpdated;
+
+    private final long dataElementId;
+
+    private final long periodId;
+
+    private final long sourceId;
+
+    private final long categoryOptionComboId;
+
+    private final long attributeOptionComboId;
+
+    public DataValueSyncCursor( Timestamp lastUpdated, long dataElementId, long periodId, long sourceId,
+        long categoryOptionComboId, long attributeOptionComboId )
+    {
+        this.lastUpdated = lastUpdated;
+        this.dataElementId = dataElementId;
+        this.periodId = periodId;
+        this.sourceId = sourceId;
+        this.categoryOptionComboId = categoryOptionComboId;
+        this.attributeOptionComboId = attributeOptionComboId;
+    }
+
+    /**
+     * Returns a SQL condition which matches data values positioned after this
+     * cursor, using the given data value table alias.
+     *
+     * @param alias the data value table alias.
+     * @return a SQL condition.
+     */
+    public String getSqlCondition( String alias )
+    {
+        return "(" + alias + ".lastupdated, " + alias + ".dataelementid, " + alias + ".periodid, " +
+            alias + ".sourceid, " + alias + ".categoryoptioncomboid, " + alias + ".attributeoptioncomboid) > " +
+            "(cast('" + lastUpdated.toString() + "' as timestamp), " + dataElementId + ", " + periodId + ", " +
+            sourceId + ", " + categoryOptionComboId + ", " + attributeOptionComboId + ")";
+    }
+
+    /**
+     * Returns a string representation of this cursor which can be parsed with
+     * {@link #fromString(String)}.
+     */
+    public String asString()
+    {
+        return Joiner.on( SEP ).join( lastUpdated.toString(), dataElementId, periodId, sourceId,
+            categoryOptionComboId, attributeOptionComboId );
+    }
+
+    /**
+     * Parses a cursor from the given string representation.
+     *
+     * @param cursor the string representation, as returned by {@link #asString()}.
+     * @return a cursor, or null if the given string is blank or invalid.
+     */
+    public static DataValueSyncCursor fromString( String cursor )
+    {
+        if ( StringUtils.isBlank( cursor ) )
+        {
+            return null;
+        }
+
+        String[] parts = cursor.split( SEP );
+
+        if ( parts.length != 6 )
+        {
+            return null;
+        }
+
+        try
+        {
+            return new DataValueSyncCursor( Timestamp.valueOf( parts[0] ), Long.parseLong( parts[1] ),
+                Long.parseLong( parts[2] ), Long.parseLong( parts[3] ), Long.parseLong( parts[4] ), Long.parseLong( parts[5] ) );
+        }
+        catch ( IllegalArgumentException ex )
+        {
+            return null;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    public Timestamp getLastUpdated()
+    {
+        return lastUpdated;
+    }
+
+    public long getDataElementId()
+    {
+        return dataElementId;
+    }
+
+    public long getPeriodId()
+    {
+        return periodId;
+    }
+
+    public long getSourceId()
+    {
+        return sourceId;
+    }
+
+    public long getCategoryOptionComboId()
+    {
+        return categoryOptionComboId;
+    }
+
+    public long getAttributeOptionComboId()
+    {
+        return attributeOptionComboId;
+    }
+
+    // -------------------------------------------------------------------------
+    // Object
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean equals( Object object )
+    {
+        if ( this == object )
+        {
+            return true;
+        }
+
+        if ( object == null || getClass() != object.getClass() )
+        {
+            return false;
+        }
+
+        DataValueSyncCursor other = (DataValueSyncCursor) object;
+
+        return Objects.equals( lastUpdated, other.lastUpdated ) && dataElementId == other.dataElementId &&
+            periodId == other.periodId && sourceId == other.sourceId &&
+            categoryOptionComboId == other.categoryOptionComboId && attributeOptionComboId == other.attributeOptionComboId;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash( lastUpdated, dataElementId, periodId, sourceId, categoryOptionComboId, attributeOptionComboId );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[" + asString() + "]";
+    }
+}
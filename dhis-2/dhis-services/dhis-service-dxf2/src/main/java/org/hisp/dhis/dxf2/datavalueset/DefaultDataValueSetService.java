@@ -84,6 +84,7 @@ import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodIndex;
 import org.hisp.dhis.period.PeriodService;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.scheduling.JobConfiguration;
@@ -460,6 +461,14 @@ public class DefaultDataValueSetService
         dataValueSetStore.writeDataValueSetJson( lastUpdated, outputStream, idSchemes, pageSize, page );
     }
 
+    @Override
+    @Transactional
+    public DataValueSyncCursor writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes,
+        int pageSize, DataValueSyncCursor after )
+    {
+        return dataValueSetStore.writeDataValueSetJson( lastUpdated, outputStream, idSchemes, pageSize, after );
+    }
+
     @Override
     @Transactional
     public void writeDataValueSetCsv( DataExportParams params, Writer writer )
@@ -832,6 +841,7 @@ public class DefaultDataValueSetService
         IdentifiableObjectCallable<CategoryOptionCombo> attributeOptionComboCallable = new CategoryOptionComboAclCallable(
             categoryService, categoryOptComboIdScheme, null );
         IdentifiableObjectCallable<Period> periodCallable = new PeriodCallable( periodService, null, trimToNull( dataValueSet.getPeriod() ) );
+        PeriodIndex periodIndex = PeriodIndex.getInstance();
 
         // ---------------------------------------------------------------------
         // Heat caches
@@ -852,7 +862,7 @@ public class DefaultDataValueSetService
 
         Date completeDate = parseDate( dataValueSet.getCompleteDate() );
 
-        Period outerPeriod = periodMap.get( trimToNull( dataValueSet.getPeriod() ), periodCallable );
+        Period outerPeriod = getPeriod( periodMap, periodIndex, dataValueSet.getPeriod(), periodCallable );
 
         OrganisationUnit outerOrgUnit = orgUnitMap.get( trimToNull( dataValueSet.getOrgUnit() ), orgUnitCallable );
 
@@ -952,7 +962,7 @@ public class DefaultDataValueSetService
             final DataElement dataElement =
                 dataElementMap.get( trimToNull( dataValue.getDataElement() ), dataElementCallable.setId( trimToNull( dataValue.getDataElement() ) ) );
             final Period period = outerPeriod != null ? outerPeriod :
-                periodMap.get( trimToNull( dataValue.getPeriod() ), periodCallable.setId( trimToNull( dataValue.getPeriod() ) ) );
+                getPeriod( periodMap, periodIndex, dataValue.getPeriod(), periodCallable );
             final OrganisationUnit orgUnit = outerOrgUnit != null ? outerOrgUnit :
                 orgUnitMap.get( trimToNull( dataValue.getOrgUnit() ), orgUnitCallable.setId( trimToNull( dataValue.getOrgUnit() ) ) );
             CategoryOptionCombo categoryOptionCombo =
@@ -1432,6 +1442,27 @@ public class DefaultDataValueSetService
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Returns the persisted period for the given ISO string. The string is
+     * resolved through the period index first, so that invalid strings do not
+     * reach the database and a period given in different ISO formats is
+     * loaded once.
+     */
+    private Period getPeriod( CachingMap<String, Period> periodMap, PeriodIndex periodIndex, String isoPeriod,
+        IdentifiableObjectCallable<Period> periodCallable )
+    {
+        Period period = periodIndex.getPeriod( trimToNull( isoPeriod ) );
+
+        if ( period == null )
+        {
+            return null;
+        }
+
+        String iso = period.getIsoDate();
+
+        return periodMap.get( iso, periodCallable.setId( iso ) );
+    }
+
     private void handleComplete( DataSet dataSet, Date completeDate, Period period, OrganisationUnit orgUnit,
         CategoryOptionCombo attributeOptionCombo, String currentUserName, ImportSummary summary )
     {
@@ -39,6 +39,7 @@ import java.io.Writer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.common.IdScheme;
@@ -147,6 +148,26 @@ public class SpringDataValueSetStore
         writeDataValueSet( sql, new DataExportParams(), null, dataValueSet );
     }
 
+    @Override
+    public DataValueSyncCursor writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes,
+        int pageSize, DataValueSyncCursor after )
+    {
+        DataValueSet dataValueSet = new StreamingJsonDataValueSet( outputStream );
+
+        final String sql = buildDataValueSql( lastUpdated, idSchemes ) +
+            ( after != null ? "and " + after.getSqlCondition( "dv" ) + " " : "" ) +
+            "order by dv.lastupdated, dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, " +
+            "dv.attributeoptioncomboid limit " + pageSize;
+
+        final AtomicReference<DataValueSyncCursor> cursor = new AtomicReference<>();
+
+        writeDataValueSet( sql, new DataExportParams(), null, dataValueSet, rs -> cursor.set(
+            new DataValueSyncCursor( rs.getTimestamp( "lastupdated" ), rs.getLong( "dv_deid" ), rs.getLong( "dv_peid" ),
+                rs.getLong( "dv_ouid" ), rs.getLong( "dv_cocid" ), rs.getLong( "dv_aocid" ) ) ) );
+
+        return cursor.get();
+    }
+
     private String buildDataValueSql( Date lastUpdated, IdSchemes idSchemes )
     {
         String deScheme = idSchemes.getDataElementIdScheme().getIdentifiableString().toLowerCase();
@@ -156,7 +177,9 @@ public class SpringDataValueSetStore
         final String sql =
             "select de." + deScheme + " as deid, pe.startdate as pestart, pt.name as ptname, ou." + ouScheme + " as ouid, " +
                 "coc." + ocScheme + " as cocid, aoc." + ocScheme + " as aocid, " +
-                "dv.value, dv.storedby, dv.created, dv.lastupdated, dv.comment, dv.followup, dv.deleted " +
+                "dv.value, dv.storedby, dv.created, dv.lastupdated, dv.comment, dv.followup, dv.deleted, " +
+                "dv.dataelementid as dv_deid, dv.periodid as dv_peid, dv.sourceid as dv_ouid, " +
+                "dv.categoryoptioncomboid as dv_cocid, dv.attributeoptioncomboid as dv_aocid " +
                 "from datavalue dv " +
                 "join dataelement de on (dv.dataelementid=de.dataelementid) " +
                 "join period pe on (dv.periodid=pe.periodid) " +
@@ -170,6 +193,19 @@ public class SpringDataValueSetStore
     }
 
     private void writeDataValueSet( String sql, DataExportParams params, Date completeDate, final DataValueSet dataValueSet )
+    {
+        writeDataValueSet( sql, params, completeDate, dataValueSet, null );
+    }
+
+    /**
+     * Writes the data values returned by the given SQL query to the given
+     * data value set.
+     *
+     * @param rowHandler handler invoked for each row after the data value is
+     *        written, can be null.
+     */
+    private void writeDataValueSet( String sql, DataExportParams params, Date completeDate, final DataValueSet dataValueSet,
+        final RowCallbackHandler rowHandler )
     {
         if ( params.isSingleDataValueSet() )
         {
@@ -212,6 +248,11 @@ public class SpringDataValueSetStore
                 }
 
                 dataValue.close();
+
+                if ( rowHandler != null )
+                {
+                    rowHandler.processRow( rs );
+                }
             }
         } );
 
@@ -812,15 +812,18 @@ public abstract class AbstractEventService
     }
 
     @Override
-    public Events getAnonymousEventsForSync( int pageSize, Date skipChangedBefore, Map<String, Set<String>> psdesWithSkipSyncTrue )
+    public Events getAnonymousEventsForSync( int pageSize, Date skipChangedBefore, Map<String, Set<String>> psdesWithSkipSyncTrue,
+        String afterEvent )
     {
         // A page is not specified here as it would lead to SQLGrammarException after a successful sync of few pages
-        // (total count will change and offset won't be valid)
+        // (total count will change and offset won't be valid). Pages are instead read after the last event of the
+        // previous page, which does not depend on the previous page having been marked as synchronized.
 
         EventSearchParams params = new EventSearchParams()
             .setProgramType( ProgramType.WITHOUT_REGISTRATION )
             .setIncludeDeleted( true )
             .setSynchronizationQuery( true )
+            .setSynchronizationAfterEvent( afterEvent )
             .setPageSize( pageSize )
             .setSkipChangedBefore( skipChangedBefore );
 
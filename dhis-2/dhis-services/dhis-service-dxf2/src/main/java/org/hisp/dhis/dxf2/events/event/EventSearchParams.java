@@ -166,6 +166,13 @@ public class EventSearchParams
      */
     private Date skipChangedBefore;
 
+    /**
+     * Event UID after which events are returned for synchronization queries.
+     * Events are ordered by UID, which allows pages of events to be read
+     * before the previous pages have been marked as synchronized.
+     */
+    private String synchronizationAfterEvent;
+
     // -------------------------------------------------------------------------
     // Constructors
     // -------------------------------------------------------------------------
@@ -699,6 +706,17 @@ public class EventSearchParams
         return this;
     }
 
+    public String getSynchronizationAfterEvent()
+    {
+        return synchronizationAfterEvent;
+    }
+
+    public EventSearchParams setSynchronizationAfterEvent( String synchronizationAfterEvent )
+    {
+        this.synchronizationAfterEvent = synchronizationAfterEvent;
+        return this;
+    }
+
     public void handleCurrentUserSelectionMode( User currentUser )
     {
         if ( AssignedUserSelectionMode.CURRENT.equals( this.assignedUserSelectionMode ) && currentUser != null )
@@ -90,15 +90,17 @@ public interface EventService
     int getAnonymousEventReadyForSynchronizationCount( Date skipChangedBefore );
 
     /**
-     * Returns the anonymous events that are supposed to be synchronized (lastUpdated > lastSynchronized)
+     * Returns the anonymous events that are supposed to be synchronized (lastUpdated > lastSynchronized),
+     * ordered by event UID.
      *
      * @param pageSize Specifies the max number for the events returned.
      * @param skipChangedBefore the point in time specifying which events will be synchronized and which not
      * @param psdesWithSkipSyncTrue Holds information about PSDEs for which the data should not be synchronized
+     * @param afterEvent the UID of the last event of the previous page, null for the first page
      * @return the anonymous events that are supposed to be synchronized (lastUpdated > lastSynchronized)
      */
     Events getAnonymousEventsForSync( int pageSize, Date skipChangedBefore,
-        Map<String, Set<String>> psdesWithSkipSyncTrue );
+        Map<String, Set<String>> psdesWithSkipSyncTrue, String afterEvent );
 
     // -------------------------------------------------------------------------
     // CREATE
@@ -960,6 +960,11 @@ public class JdbcEventStore
         if ( params.isSynchronizationQuery() )
         {
             sqlBuilder.append( hlp.whereAnd() + " psi.lastupdated > psi.lastsynchronized " );
+
+            if ( params.getSynchronizationAfterEvent() != null )
+            {
+                sqlBuilder.append( hlp.whereAnd() + " psi.uid > " + statementBuilder.encode( params.getSynchronizationAfterEvent() ) + " " );
+            }
         }
 
         return sqlBuilder.toString();
@@ -1316,6 +1321,10 @@ public class JdbcEventStore
         {
             return "order by " + StringUtils.join( orderFields, ',' ) + " ";
         }
+        else if ( params.isSynchronizationQuery() )
+        {
+            return "order by psi_uid asc ";
+        }
         else
         {
             return "order by psi_lastupdated desc ";
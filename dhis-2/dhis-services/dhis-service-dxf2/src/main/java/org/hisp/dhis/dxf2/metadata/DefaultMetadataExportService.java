@@ -28,9 +28,16 @@ package org.hisp.dhis.dxf2.metadata;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
+import javax.annotation.PreDestroy;
 
 import org.hisp.dhis.attribute.Attribute;
 import org.hisp.dhis.attribute.AttributeService;
@@ -42,8 +49,10 @@ import org.hisp.dhis.chart.Chart;
 import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.InterpretableObject;
 import org.hisp.dhis.common.SetMap;
+import org.hisp.dhis.common.UserContext;
 import org.hisp.dhis.commons.timer.SystemTimer;
 import org.hisp.dhis.commons.timer.Timer;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.dashboard.Dashboard;
 import org.hisp.dhis.dashboard.DashboardItem;
 import org.hisp.dhis.dataelement.DataElement;
@@ -70,6 +79,7 @@ import org.hisp.dhis.node.NodeUtils;
 import org.hisp.dhis.node.config.InclusionStrategy;
 import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
+import org.hisp.dhis.node.types.DeferredCollectionNode;
 import org.hisp.dhis.node.types.RootNode;
 import org.hisp.dhis.node.types.SimpleNode;
 import org.hisp.dhis.option.Option;
@@ -88,13 +98,23 @@ import org.hisp.dhis.system.SystemService;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
 import org.hisp.dhis.trackedentity.TrackedEntityType;
 import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserService;
+import org.hisp.dhis.user.UserSettingKey;
 import org.hisp.dhis.visualization.Visualization;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.google.common.base.Enums;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -105,6 +125,14 @@ import lombok.extern.slf4j.Slf4j;
 @Service( "org.hisp.dhis.dxf2.metadata.MetadataExportService" )
 public class DefaultMetadataExportService implements MetadataExportService
 {
+    private static final int MAX_EXPORT_THREADS = 4;
+
+    /**
+     * Executor shared by all exports, so that concurrent export requests do
+     * not each start their own threads and database sessions.
+     */
+    private final ThreadPoolExecutor exportExecutor;
+
     @Autowired
     private SchemaService schemaService;
 
@@ -129,49 +157,40 @@ public class DefaultMetadataExportService implements MetadataExportService
     @Autowired
     private AttributeService attributeService;
 
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public DefaultMetadataExportService()
+    {
+        int threads = Math.max( 1, Math.min( SystemUtils.getCpuCores(), MAX_EXPORT_THREADS ) );
+
+        this.exportExecutor = new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat( "metadata-export-%d" ).setDaemon( true ).build() );
+        this.exportExecutor.allowCoreThreadTimeOut( true );
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        exportExecutor.shutdownNow();
+    }
+
     @Override
-    @SuppressWarnings( "unchecked" )
     public Map<Class<? extends IdentifiableObject>, List<? extends IdentifiableObject>> getMetadata( MetadataExportParams params )
     {
         Timer timer = new SystemTimer().start();
         Map<Class<? extends IdentifiableObject>, List<? extends IdentifiableObject>> metadata = new HashMap<>();
 
-        if ( params.getUser() == null )
-        {
-            params.setUser( currentUserService.getCurrentUser() );
-        }
-
-        if ( params.getClasses().isEmpty() )
-        {
-            schemaService.getMetadataSchemas().stream().filter( Schema::isIdentifiableObject ).filter( s -> !s.isSecondaryMetadata() )
-                .forEach( schema -> params.getClasses().add( (Class<? extends IdentifiableObject>) schema.getKlass() ) );
-        }
+        prepareParams( params );
 
         log.info( "(" + params.getUsername() + ") Export:Start" );
 
         for ( Class<? extends IdentifiableObject> klass : params.getClasses() )
         {
-            Query query;
-
-            if ( params.getQuery( klass ) != null )
-            {
-                query = params.getQuery( klass );
-            }
-            else
-            {
-                OrderParams orderParams = new OrderParams( Sets.newHashSet( params.getDefaultOrder() ) );
-                query = queryService.getQueryFromUrl( klass, params.getDefaultFilter(), orderParams.getOrders( schemaService.getDynamicSchema( klass ) ) );
-            }
-
-            if ( query.getUser() == null )
-            {
-                query.setUser( params.getUser() );
-            }
-
-            query.setDefaultOrder();
-            query.setDefaults( params.getDefaults() );
-
-            List<? extends IdentifiableObject> objects = queryService.query( query );
+            List<? extends IdentifiableObject> objects = queryService.query( getQuery( klass, params, params.getUser() ) );
 
             if ( !objects.isEmpty() )
             {
@@ -199,24 +218,169 @@ public class DefaultMetadataExportService implements MetadataExportService
         system.addChild( new SimpleNode( "version", systemInfo.getVersion() ) );
         system.addChild( new SimpleNode( "date", systemInfo.getServerDate() ) );
 
-        Map<Class<? extends IdentifiableObject>, List<? extends IdentifiableObject>> metadata = getMetadata( params );
+        prepareParams( params );
 
-        for ( Class<? extends IdentifiableObject> klass : metadata.keySet() )
+        List<Class<? extends IdentifiableObject>> classes = getOrderedClasses( params );
+
+        if ( classes.isEmpty() )
         {
-            FieldFilterParams fieldFilterParams = new FieldFilterParams( metadata.get( klass ), params.getFields( klass ), params.getDefaults(), params.getSkipSharing() );
-            fieldFilterParams.setUser( params.getUser() );
+            return rootNode;
+        }
 
-            CollectionNode collectionNode = fieldFilterService.toCollectionNode( klass, fieldFilterParams );
+        Timer timer = new SystemTimer().start();
+
+        log.info( "(" + params.getUsername() + ") Export:Start" );
+
+        // Within an existing transaction uncommitted changes must be visible, export on the current thread
 
-            if ( !collectionNode.getChildren().isEmpty() )
+        if ( TransactionSynchronizationManager.isActualTransactionActive() )
+        {
+            for ( Class<? extends IdentifiableObject> klass : classes )
             {
-                rootNode.addChild( collectionNode );
+                rootNode.addChild( new DeferredCollectionNode( schemaService.getDynamicSchema( klass ).getCollectionName(),
+                    CompletableFuture.completedFuture( getMetadataAsNode( klass, params, params.getUser() ) ) ) );
             }
+
+            log.info( "(" + params.getUsername() + ") Export:Done took " + timer.toString() );
+
+            return rootNode;
         }
 
+        // Each type is queried and rendered in its own read-only transaction on
+        // the shared export executor, the serializer writes each collection when ready
+
+        String userUid = params.getUser() != null ? params.getUser().getUid() : null;
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        User contextUser = UserContext.getUser();
+        Serializable dbLocale = UserContext.getUserSetting( UserSettingKey.DB_LOCALE );
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate( transactionManager );
+        transactionTemplate.setReadOnly( true );
+
+        List<CompletableFuture<CollectionNode>> futures = new ArrayList<>();
+
+        for ( Class<? extends IdentifiableObject> klass : classes )
+        {
+            CompletableFuture<CollectionNode> future = CompletableFuture.supplyAsync( () -> {
+                SecurityContextHolder.setContext( securityContext );
+                UserContext.setUser( contextUser );
+                UserContext.setUserSetting( UserSettingKey.DB_LOCALE, dbLocale );
+
+                try
+                {
+                    // reload the user so that it is attached to the session of this transaction
+
+                    return transactionTemplate.execute( status -> getMetadataAsNode( klass, params,
+                        userUid != null ? userService.getUser( userUid ) : null ) );
+                }
+                finally
+                {
+                    UserContext.reset();
+                    SecurityContextHolder.clearContext();
+                }
+            }, exportExecutor );
+
+            futures.add( future );
+
+            rootNode.addChild( new DeferredCollectionNode(
+                schemaService.getDynamicSchema( klass ).getCollectionName(), future ) );
+        }
+
+        CompletableFuture.allOf( futures.toArray( new CompletableFuture[0] ) ).whenComplete( ( result, ex ) -> {
+            if ( ex != null )
+            {
+                log.error( "(" + params.getUsername() + ") Export:Failed took " + timer.toString(), ex );
+            }
+            else
+            {
+                log.info( "(" + params.getUsername() + ") Export:Done took " + timer.toString() );
+            }
+        } );
+
         return rootNode;
     }
 
+    /**
+     * Queries and renders the objects of the given type, must be invoked within a transaction.
+     */
+    private CollectionNode getMetadataAsNode( Class<? extends IdentifiableObject> klass, MetadataExportParams params,
+        User user )
+    {
+        Timer timer = new SystemTimer().start();
+
+        List<? extends IdentifiableObject> objects = queryService.query( getQuery( klass, params, user ) );
+
+        FieldFilterParams fieldFilterParams = new FieldFilterParams( objects, params.getFields( klass ), params.getDefaults(), params.getSkipSharing() );
+        fieldFilterParams.setUser( user );
+
+        CollectionNode collectionNode = fieldFilterService.toCollectionNode( klass, fieldFilterParams );
+
+        if ( !objects.isEmpty() )
+        {
+            log.info( "(" + params.getUsername() + ") Exported " + objects.size() + " objects of type " + klass.getSimpleName() + " took " + timer.toString() );
+        }
+
+        return collectionNode;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private void prepareParams( MetadataExportParams params )
+    {
+        if ( params.getUser() == null )
+        {
+            params.setUser( currentUserService.getCurrentUser() );
+        }
+
+        if ( params.getClasses().isEmpty() )
+        {
+            schemaService.getMetadataSchemas().stream().filter( Schema::isIdentifiableObject ).filter( s -> !s.isSecondaryMetadata() )
+                .forEach( schema -> params.getClasses().add( (Class<? extends IdentifiableObject>) schema.getKlass() ) );
+        }
+    }
+
+    /**
+     * Returns the classes to export in metadata import order, followed by any
+     * other classes ordered by name, so that the export order is stable.
+     */
+    private List<Class<? extends IdentifiableObject>> getOrderedClasses( MetadataExportParams params )
+    {
+        List<Class<?>> schemaClasses = schemaService.getMetadataSchemas().stream()
+            .map( Schema::getKlass ).collect( Collectors.toList() );
+
+        List<Class<? extends IdentifiableObject>> classes = new ArrayList<>( params.getClasses() );
+
+        classes.sort( Comparator.<Class<? extends IdentifiableObject>>comparingInt( klass -> schemaClasses.contains( klass ) ?
+            schemaClasses.indexOf( klass ) : Integer.MAX_VALUE ).thenComparing( Class::getSimpleName ) );
+
+        return classes;
+    }
+
+    private Query getQuery( Class<? extends IdentifiableObject> klass, MetadataExportParams params, User user )
+    {
+        Query query;
+
+        if ( params.getQuery( klass ) != null )
+        {
+            query = params.getQuery( klass );
+        }
+        else
+        {
+            OrderParams orderParams = new OrderParams( Sets.newHashSet( params.getDefaultOrder() ) );
+            query = queryService.getQueryFromUrl( klass, params.getDefaultFilter(), orderParams.getOrders( schemaService.getDynamicSchema( klass ) ) );
+        }
+
+        if ( query.getUser() == null )
+        {
+            query.setUser( user );
+        }
+
+        query.setDefaultOrder();
+        query.setDefaults( params.getDefaults() );
+        query.setFetchSize( params.getFetchSize() );
+
+        return query;
+    }
+
     @Override
     public void validate( MetadataExportParams params )
     {
@@ -258,6 +422,12 @@ public class DefaultMetadataExportService implements MetadataExportService
             parameters.remove( "skipSharing" );
         }
 
+        if ( parameters.containsKey( "fetchSize" ) )
+        {
+            params.setFetchSize( getFetchSize( parameters.get( "fetchSize" ).get( 0 ) ) );
+            parameters.remove( "fetchSize" );
+        }
+
         for ( String parameterKey : parameters.keySet() )
         {
             String[] parameter = parameterKey.split( ":" );
@@ -885,4 +1055,15 @@ public class DefaultMetadataExportService implements MetadataExportService
 
         return Enums.getIfPresent( enumKlass, value ).or( defaultValue );
     }
+
+    /**
+     * Returns the given fetch size, or null if it is not a positive integer so
+     * that the default fetch size is used. Requests are validated by the controller.
+     */
+    private Integer getFetchSize( String value )
+    {
+        Integer fetchSize = value != null ? Ints.tryParse( value.trim() ) : null;
+
+        return fetchSize != null && fetchSize > 0 ? fetchSize : null;
+    }
 }
@@ -31,6 +31,7 @@ package org.hisp.dhis.dxf2.metadata;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.hisp.dhis.common.BaseIdentifiableObject;
@@ -123,6 +124,13 @@ public class DefaultMetadataImportService implements MetadataImportService
 
         prepareBundle( bundle, bundleParams );
 
+        if ( ImportReportMode.DEBUG == params.getImportReportMode() )
+        {
+            Map<String, Long> preheatTimings = new TreeMap<>();
+            bundle.getPreheat().getTimings().forEach( ( klass, millis ) -> preheatTimings.put( klass.getSimpleName(), millis ) );
+            importReport.setPreheatTimings( preheatTimings );
+        }
+
         ObjectBundleValidationReport validationReport = objectBundleValidationService.validate( bundle );
         importReport.addTypeReports( validationReport.getTypeReportMap() );
 
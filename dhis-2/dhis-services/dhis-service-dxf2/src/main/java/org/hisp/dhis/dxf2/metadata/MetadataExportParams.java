@@ -100,6 +100,11 @@ public class MetadataExportParams
      */
     private boolean skipSharing;
 
+    /**
+     * JDBC fetch size hint used when reading each exported type, null means driver default.
+     */
+    private Integer fetchSize;
+
     public MetadataExportParams()
     {
     }
@@ -241,4 +246,14 @@ public class MetadataExportParams
     {
         return this.skipSharing;
     }
-}
\ No newline at end of file
+
+    public Integer getFetchSize()
+    {
+        return fetchSize;
+    }
+
+    public void setFetchSize( Integer fetchSize )
+    {
+        this.fetchSize = fetchSize;
+    }
+}
@@ -57,6 +57,8 @@ public class ImportReport
 
     private Map<Class<?>, TypeReport> typeReportMap = new HashMap<>();
 
+    private Map<String, Long> preheatTimings;
+
     public ImportReport()
     {
     }
@@ -153,6 +155,22 @@ public class ImportReport
         return typeReportMap;
     }
 
+    /**
+     * Time in milliseconds spent loading references during preheat, by type.
+     * Only included when the import report mode is DEBUG.
+     */
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public Map<String, Long> getPreheatTimings()
+    {
+        return preheatTimings;
+    }
+
+    public void setPreheatTimings( Map<String, Long> preheatTimings )
+    {
+        this.preheatTimings = preheatTimings;
+    }
+
     @Override
     public String toString()
     {
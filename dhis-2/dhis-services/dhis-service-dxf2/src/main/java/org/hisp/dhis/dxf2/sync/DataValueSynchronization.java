@@ -29,16 +29,20 @@ package org.hisp.dhis.dxf2.sync;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
 import lombok.extern.slf4j.Slf4j;
 import org.hisp.dhis.common.IdSchemes;
 import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.dxf2.datavalueset.DataValueSetService;
+import org.hisp.dhis.dxf2.datavalueset.DataValueSyncCursor;
+import org.hisp.dhis.dxf2.synch.SystemInstance;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.util.Clock;
-import org.hisp.dhis.system.util.CodecUtils;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.RestTemplate;
@@ -50,12 +54,17 @@ import org.springframework.web.client.RestTemplate;
 @Component
 public class DataValueSynchronization extends DataSynchronizationWithPaging
 {
+    private static final String CHECKPOINT_SEP = "|";
+
     private final DataValueService dataValueService;
     private final DataValueSetService dataValueSetService;
     private final SystemSettingManager systemSettingManager;
     private final RestTemplate restTemplate;
 
     private Date lastUpdatedAfter;
+    private DataValueSyncCursor cursor;
+    private SyncPagePipeline<DataValueSyncCursor> pipeline;
+    private int maxSyncAttempts;
 
     public DataValueSynchronization( DataValueService dataValueService, DataValueSetService dataValueSetService,
         SystemSettingManager systemSettingManager, RestTemplate restTemplate )
@@ -97,6 +106,7 @@ public class DataValueSynchronization extends DataSynchronizationWithPaging
         {
             clock.logTime( "SUCCESS! DataValueSynchronization job is done. It took" );
             SyncUtils.setLastSyncSuccess( systemSettingManager, SettingKey.LAST_SUCCESSFUL_DATA_VALUE_SYNC, new Date( clock.getStartTime() ));
+            systemSettingManager.deleteSystemSetting( SettingKey.DATA_VALUE_SYNC_CHECKPOINT );
             return SynchronizationResult
                 .newSuccessResultWithMessage( "DataValueSynchronization done. It took " + clock.getTime() + " ms." );
         }
@@ -110,6 +120,7 @@ public class DataValueSynchronization extends DataSynchronizationWithPaging
         final Date lastSuccessTime = SyncUtils.getLastSyncSuccess( systemSettingManager, SettingKey.LAST_SUCCESSFUL_DATA_VALUE_SYNC );
         final Date skipChangedBefore = (Date) systemSettingManager.getSystemSetting( SettingKey.SKIP_SYNCHRONIZATION_FOR_DATA_CHANGED_BEFORE );
         lastUpdatedAfter = lastSuccessTime.after( skipChangedBefore ) ? lastSuccessTime : skipChangedBefore;
+        cursor = getCheckpoint( lastUpdatedAfter );
 
         objectsToSynchronize = dataValueService.getDataValueCountLastUpdatedAfter( lastUpdatedAfter, true );
 
@@ -118,13 +129,53 @@ public class DataValueSynchronization extends DataSynchronizationWithPaging
         if ( objectsToSynchronize != 0 )
         {
             instance = SyncUtils.getRemoteInstance( systemSettingManager, SyncEndpoint.DATA_VALUE_SETS );
+            maxSyncAttempts = (int) systemSettingManager.getSystemSetting( SettingKey.MAX_SYNC_ATTEMPTS );
 
             // Using this approach as (int) Match.ceil doesn't work until I cast int to double
             pages = ( objectsToSynchronize / pageSize ) + (( objectsToSynchronize % pageSize == 0 ) ? 0 : 1 );
 
             log.info( objectsToSynchronize + " DataValues to synchronize were found." );
             log.info( "Remote server URL for DataValues POST sync: " + instance.getUrl() );
-            log.info( "DataValueSynchronization job has " + pages + " pages to sync. With page size: " + pageSize );
+            log.info( "DataValueSynchronization job has at most " + pages + " pages to sync. With page size: " + pageSize );
+
+            if ( cursor != null )
+            {
+                log.info( "Resuming DataValueSynchronization after checkpoint: " + cursor );
+            }
+        }
+    }
+
+    /**
+     * Reads pages of data values after the last checkpoint, with the number of
+     * pages in flight given by {@link SettingKey#MAX_SYNC_PAGES_IN_FLIGHT}. A
+     * checkpoint is saved for each acknowledged page.
+     */
+    @Override
+    protected void runSyncWithPaging( int pageSize )
+    {
+        final int maxPagesInFlight = (int) systemSettingManager.getSystemSetting( SettingKey.MAX_SYNC_PAGES_IN_FLIGHT );
+
+        syncResult = true;
+
+        try ( SyncPagePipeline<DataValueSyncCursor> syncPipeline = new SyncPagePipeline<>( maxPagesInFlight, this::saveCheckpoint ) )
+        {
+            pipeline = syncPipeline;
+
+            int page = 1;
+
+            do
+            {
+                synchronizePage( page++, pageSize );
+            }
+            while ( syncResult && cursor != null );
+
+            syncResult = pipeline.finish() && syncResult;
+
+            log.info( String.format( "DataValueSynchronization acknowledged %d pages", pipeline.getAcknowledgedPages() ) );
+        }
+        finally
+        {
+            pipeline = null;
         }
     }
 
@@ -132,24 +183,55 @@ public class DataValueSynchronization extends DataSynchronizationWithPaging
     {
         log.info( String.format( "Synchronizing page %d with page size %d", page, pageSize ) );
 
-        if ( !sendSyncRequest( pageSize, page ) )
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        try ( GZIPOutputStream out = new GZIPOutputStream( body ) )
+        {
+            cursor = dataValueSetService.writeDataValueSetJson( lastUpdatedAfter, out, new IdSchemes(), pageSize, cursor );
+        }
+        catch ( IOException ex )
+        {
+            log.error( "Failed to write DataValues for page " + page, ex );
+            syncResult = false;
+            return;
+        }
+
+        if ( cursor == null )
+        {
+            log.info( "No more DataValues to synchronize" );
+            return;
+        }
+
+        final RequestCallback requestCallback = SyncUtils.getCompressedJsonRequestCallback( instance, body.toByteArray() );
+        final SystemInstance syncInstance = instance;
+
+        if ( !pipeline.submit( () -> SyncUtils.sendSyncRequest( maxSyncAttempts, restTemplate, requestCallback,
+            syncInstance, SyncEndpoint.DATA_VALUE_SETS ), cursor ) )
         {
             syncResult = false;
         }
     }
 
-    private boolean sendSyncRequest( int syncPageSize, int page )
+    /**
+     * Returns the checkpoint of a previous synchronization which has not
+     * completed, if any, and if it was based on the same last updated date.
+     */
+    private DataValueSyncCursor getCheckpoint( Date lastUpdated )
     {
-        final RequestCallback requestCallback = request ->
+        String checkpoint = (String) systemSettingManager.getSystemSetting( SettingKey.DATA_VALUE_SYNC_CHECKPOINT );
+        String prefix = lastUpdated.getTime() + CHECKPOINT_SEP;
+
+        if ( checkpoint == null || !checkpoint.startsWith( prefix ) )
         {
-            request.getHeaders().setContentType( MediaType.APPLICATION_JSON );
-            request.getHeaders().add( SyncUtils.HEADER_AUTHORIZATION,
-                CodecUtils.getBasicAuthString( instance.getUsername(), instance.getPassword() ) );
+            return null;
+        }
 
-            dataValueSetService.writeDataValueSetJson( lastUpdatedAfter, request.getBody(), new IdSchemes(),
-                syncPageSize, page );
-        };
+        return DataValueSyncCursor.fromString( checkpoint.substring( prefix.length() ) );
+    }
 
-        return SyncUtils.sendSyncRequest( systemSettingManager, restTemplate, requestCallback, instance, SyncEndpoint.DATA_VALUE_SETS );
+    private void saveCheckpoint( DataValueSyncCursor checkpoint )
+    {
+        systemSettingManager.saveSystemSetting( SettingKey.DATA_VALUE_SYNC_CHECKPOINT,
+            lastUpdatedAfter.getTime() + CHECKPOINT_SEP + checkpoint.asString() );
     }
-}
\ No newline at end of file
+}
@@ -30,22 +30,24 @@ package org.hisp.dhis.dxf2.sync;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import org.hisp.dhis.dxf2.events.event.Event;
 import org.hisp.dhis.dxf2.events.event.EventService;
 import org.hisp.dhis.dxf2.events.event.Events;
+import org.hisp.dhis.dxf2.synch.SystemInstance;
 import org.hisp.dhis.program.ProgramStageDataElementService;
 import org.hisp.dhis.render.RenderService;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.util.Clock;
-import org.hisp.dhis.system.util.CodecUtils;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.RestTemplate;
@@ -66,6 +68,9 @@ public class EventSynchronization extends DataSynchronizationWithPaging
 
     private Date skipChangedBefore;
     private Map<String, Set<String>> psdesWithSkipSyncTrue;
+    private String lastEvent;
+    private SyncPagePipeline<List<String>> pipeline;
+    private int maxSyncAttempts;
 
     public EventSynchronization( EventService eventService, SystemSettingManager systemSettingManager, RestTemplate restTemplate, RenderService renderService,
         ProgramStageDataElementService programStageDataElementService )
@@ -121,21 +126,67 @@ public class EventSynchronization extends DataSynchronizationWithPaging
         if ( objectsToSynchronize != 0 )
         {
             instance = SyncUtils.getRemoteInstanceWithSyncImportStrategy( systemSettingManager, SyncEndpoint.EVENTS );
+            maxSyncAttempts = (int) systemSettingManager.getSystemSetting( SettingKey.MAX_SYNC_ATTEMPTS );
             //Have to use this as (int) Match.ceil doesn't work until I am casting int to double
             pages = ( objectsToSynchronize / pageSize ) + (( objectsToSynchronize % pageSize == 0 ) ? 0 : 1 );
 
             log.info( objectsToSynchronize + " anonymous Events to synchronize were found." );
             log.info( "Remote server URL for Event programs POST synchronization: " + instance.getUrl() );
-            log.info( "Event programs data synchronization job has " + pages + " pages to synchronize. With page size: " +
+            log.info( "Event programs data synchronization job has at most " + pages + " pages to synchronize. With page size: " +
                 pageSize );
 
             psdesWithSkipSyncTrue = programStageDataElementService.getProgramStageDataElementsWithSkipSynchronizationSetToTrue();
         }
     }
 
+    /**
+     * Reads pages of events ordered by identifier, with the number of pages in
+     * flight given by {@link SettingKey#MAX_SYNC_PAGES_IN_FLIGHT}. The events
+     * of each acknowledged page are marked as synchronized, which means that a
+     * failed synchronization is resumed from the first page which was not
+     * acknowledged.
+     */
+    @Override
+    protected void runSyncWithPaging( int pageSize )
+    {
+        final int maxPagesInFlight = (int) systemSettingManager.getSystemSetting( SettingKey.MAX_SYNC_PAGES_IN_FLIGHT );
+
+        syncResult = true;
+        lastEvent = null;
+
+        try ( SyncPagePipeline<List<String>> syncPipeline = new SyncPagePipeline<>( maxPagesInFlight, this::markEventsAsSynchronized ) )
+        {
+            pipeline = syncPipeline;
+
+            int page = 1;
+
+            do
+            {
+                synchronizePage( page++, pageSize );
+            }
+            while ( syncResult && lastEvent != null );
+
+            syncResult = pipeline.finish() && syncResult;
+
+            log.info( String.format( "Event programs data synchronization acknowledged %d pages", pipeline.getAcknowledgedPages() ) );
+        }
+        finally
+        {
+            pipeline = null;
+        }
+    }
+
     protected void synchronizePage( int page, int pageSize )
     {
-        Events events = eventService.getAnonymousEventsForSync( pageSize, skipChangedBefore, psdesWithSkipSyncTrue );
+        Events events = eventService.getAnonymousEventsForSync( pageSize, skipChangedBefore, psdesWithSkipSyncTrue, lastEvent );
+
+        if ( events.getEvents().isEmpty() )
+        {
+            log.info( "No more Events to synchronize" );
+            lastEvent = null;
+            return;
+        }
+
         filterOutDataValuesMarkedWithSkipSynchronizationFlag( events );
         log.info( String.format( "Synchronizing page %d with page size %d", page, pageSize ) );
 
@@ -144,20 +195,41 @@ public class EventSynchronization extends DataSynchronizationWithPaging
             log.debug( "Events that are going to be synchronized are: " + events );
         }
 
-        if ( sendSyncRequest( events ) )
+        List<String> eventsUIDs = events.getEvents().stream()
+            .map( Event::getEvent )
+            .collect( Collectors.toList() );
+
+        lastEvent = eventsUIDs.get( eventsUIDs.size() - 1 );
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        try ( GZIPOutputStream out = new GZIPOutputStream( body ) )
         {
-            List<String> eventsUIDs = events.getEvents().stream()
-                .map( Event::getEvent )
-                .collect( Collectors.toList() );
-            log.info( "The lastSynchronized flag of these Events will be updated: " + eventsUIDs );
-            eventService.updateEventsSyncTimestamp( eventsUIDs, new Date( clock.getStartTime() ) );
+            renderService.toJson( out, events );
         }
-        else
+        catch ( IOException ex )
+        {
+            log.error( "Failed to write Events for page " + page, ex );
+            syncResult = false;
+            return;
+        }
+
+        final RequestCallback requestCallback = SyncUtils.getCompressedJsonRequestCallback( instance, body.toByteArray() );
+        final SystemInstance syncInstance = instance;
+
+        if ( !pipeline.submit( () -> SyncUtils.sendSyncRequest( maxSyncAttempts, restTemplate, requestCallback,
+            syncInstance, SyncEndpoint.EVENTS ), eventsUIDs ) )
         {
             syncResult = false;
         }
     }
 
+    private void markEventsAsSynchronized( List<String> eventsUIDs )
+    {
+        log.info( "The lastSynchronized flag of these Events will be updated: " + eventsUIDs );
+        eventService.updateEventsSyncTimestamp( eventsUIDs, new Date( clock.getStartTime() ) );
+    }
+
     private void filterOutDataValuesMarkedWithSkipSynchronizationFlag( Events events )
     {
         for ( Event event : events.getEvents() )
@@ -169,16 +241,4 @@ public class EventSynchronization extends DataSynchronizationWithPaging
             );
         }
     }
-
-    private boolean sendSyncRequest( Events events )
-    {
-        final RequestCallback requestCallback = request ->
-        {
-            request.getHeaders().setContentType( MediaType.APPLICATION_JSON );
-            request.getHeaders().add( SyncUtils.HEADER_AUTHORIZATION, CodecUtils.getBasicAuthString( instance.getUsername(), instance.getPassword() ) );
-            renderService.toJson( request.getBody(), events );
-        };
-
-        return SyncUtils.sendSyncRequest( systemSettingManager, restTemplate, requestCallback, instance, SyncEndpoint.EVENTS );
-    }
 }
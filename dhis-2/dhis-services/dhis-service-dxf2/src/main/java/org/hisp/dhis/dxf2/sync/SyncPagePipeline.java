@@ -0,0 +1,188 @@
+package org.hisp.dhis.dxf2.sync;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends synchronization pages to the remote server while the following pages
+ * are being prepared, with up to a given number of pages in flight. Pages are
+ * acknowledged in the order in which they were submitted and only as long as
+ * all previous pages succeeded, which means that the checkpoint of the last
+ * acknowledged page can be used to resume a synchronization which failed.
+ * <p>
+ * Page requests are executed by the pipeline threads, whereas pages are
+ * submitted and acknowledged by the calling thread.
+ *
+ * @param <C> the type of checkpoint associated with each page.
+ */
+@Slf4j
+public class SyncPagePipeline<C>
+    implements AutoCloseable
+{
+    private final ExecutorService executor;
+
+    private final int maxPagesInFlight;
+
+    private final Consumer<C> acknowledger;
+
+    private final Deque<Page<C>> pages = new ArrayDeque<>();
+
+    private boolean failed = false;
+
+    private int acknowledgedPages = 0;
+
+    /**
+     * @param maxPagesInFlight the max number of pages sent concurrently.
+     * @param acknowledger the consumer of the checkpoint of each page which
+     *        was successfully synchronized.
+     */
+    public SyncPagePipeline( int maxPagesInFlight, Consumer<C> acknowledger )
+    {
+        checkArgument( maxPagesInFlight > 0, "Max pages in flight must be greater than zero" );
+        checkNotNull( acknowledger );
+
+        this.maxPagesInFlight = maxPagesInFlight;
+        this.acknowledger = acknowledger;
+        this.executor = Executors.newFixedThreadPool( maxPagesInFlight,
+            new ThreadFactoryBuilder().setNameFormat( "sync-page-%d" ).setDaemon( true ).build() );
+    }
+
+    /**
+     * Submits the request of a page. Blocks while the max number of pages are
+     * in flight, acknowledging the pages which complete in the meantime.
+     *
+     * @param request the request, returning true if the page was successfully
+     *        synchronized.
+     * @param checkpoint the checkpoint of the page.
+     * @return true if the page was submitted, false if a previous page failed,
+     *         in which case no further pages should be submitted.
+     */
+    public boolean submit( Callable<Boolean> request, C checkpoint )
+    {
+        while ( !failed && pages.size() >= maxPagesInFlight )
+        {
+            awaitNextPage();
+        }
+
+        if ( failed )
+        {
+            return false;
+        }
+
+        pages.add( new Page<>( executor.submit( request ), checkpoint ) );
+
+        return true;
+    }
+
+    /**
+     * Waits for all pages in flight to complete.
+     *
+     * @return true if all pages were successfully synchronized.
+     */
+    public boolean finish()
+    {
+        while ( !pages.isEmpty() )
+        {
+            awaitNextPage();
+        }
+
+        return !failed;
+    }
+
+    public int getAcknowledgedPages()
+    {
+        return acknowledgedPages;
+    }
+
+    @Override
+    public void close()
+    {
+        executor.shutdownNow();
+    }
+
+    private void awaitNextPage()
+    {
+        Page<C> page = pages.poll();
+
+        boolean success;
+
+        try
+        {
+            success = Boolean.TRUE.equals( page.result.get() );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            success = false;
+        }
+        catch ( ExecutionException ex )
+        {
+            log.error( "Synchronization page request failed", ex.getCause() );
+            success = false;
+        }
+
+        if ( success && !failed )
+        {
+            acknowledger.accept( page.checkpoint );
+            acknowledgedPages++;
+        }
+        else
+        {
+            failed = true;
+        }
+    }
+
+    private static final class Page<C>
+    {
+        private final Future<Boolean> result;
+
+        private final C checkpoint;
+
+        private Page( Future<Boolean> result, C checkpoint )
+        {
+            this.result = result;
+            this.checkpoint = checkpoint;
+        }
+    }
+}
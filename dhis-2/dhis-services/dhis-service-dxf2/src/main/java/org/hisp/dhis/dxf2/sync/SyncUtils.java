@@ -59,6 +59,7 @@ public class SyncUtils
 {
     static final String HEADER_AUTHORIZATION = "Authorization";
     static final String IMPORT_STRATEGY_SYNC_SUFFIX = "?strategy=SYNC";
+    static final String CONTENT_ENCODING_GZIP = "gzip";
     private static final String PING_PATH = "/api/system/ping";
 
     private SyncUtils()
@@ -78,6 +79,23 @@ public class SyncUtils
     static boolean sendSyncRequest( SystemSettingManager systemSettingManager, RestTemplate restTemplate, RequestCallback requestCallback, SystemInstance instance, SyncEndpoint endpoint )
     {
         final int maxSyncAttempts = (int) systemSettingManager.getSystemSetting( SettingKey.MAX_SYNC_ATTEMPTS );
+
+        return sendSyncRequest( maxSyncAttempts, restTemplate, requestCallback, instance, endpoint );
+    }
+
+    /**
+     * Sends a synchronization request to the {@code syncUrl} and analyzes the returned summary. Does not
+     * access system settings, and can hence be invoked outside of the synchronization job thread.
+     *
+     * @param maxSyncAttempts      Max number of attempts in case of server errors
+     * @param restTemplate         Spring Rest Template instance
+     * @param requestCallback      Request callback
+     * @param instance             SystemInstance of remote system
+     * @param endpoint             Endpoint against which the sync request is run
+     * @return True if sync was successful, false otherwise
+     */
+    static boolean sendSyncRequest( int maxSyncAttempts, RestTemplate restTemplate, RequestCallback requestCallback, SystemInstance instance, SyncEndpoint endpoint )
+    {
         Optional<AbstractWebMessageResponse> responseSummaries = runSyncRequest( restTemplate, requestCallback, endpoint.getKlass(), instance.getUrl(), maxSyncAttempts );
 
         if ( responseSummaries.isPresent() )
@@ -231,6 +249,25 @@ public class SyncUtils
         return true;
     }
 
+    /**
+     * Returns a request callback which writes the given GZIP compressed JSON body. The remote import
+     * endpoints detect GZIP compressed content, and the content encoding header is set accordingly.
+     *
+     * @param instance SystemInstance of remote system
+     * @param body     GZIP compressed JSON body
+     * @return the request callback
+     */
+    static RequestCallback getCompressedJsonRequestCallback( SystemInstance instance, byte[] body )
+    {
+        return request ->
+        {
+            request.getHeaders().setContentType( MediaType.APPLICATION_JSON );
+            request.getHeaders().set( HttpHeaders.CONTENT_ENCODING, CONTENT_ENCODING_GZIP );
+            request.getHeaders().add( HEADER_AUTHORIZATION, CodecUtils.getBasicAuthString( instance.getUsername(), instance.getPassword() ) );
+            request.getBody().write( body );
+        };
+    }
+
     /**
      * Checks the availability of remote server.
      *
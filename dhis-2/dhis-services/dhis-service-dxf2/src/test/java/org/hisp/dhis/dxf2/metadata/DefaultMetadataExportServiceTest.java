@@ -189,4 +189,26 @@ public class DefaultMetadataExportServiceTest
         Assert.assertFalse( exportParams.getClasses().contains( JobConfiguration.class ) );
         Assert.assertTrue( exportParams.getClasses().contains( Option.class ) );
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getParamsFromMapFetchSize()
+    {
+        final Map<String, List<String>> params = new HashMap<>();
+        params.put( "fetchSize", Collections.singletonList( "500" ) );
+
+        MetadataExportParams exportParams = service.getParamsFromMap( params );
+        Assert.assertEquals( Integer.valueOf( 500 ), exportParams.getFetchSize() );
+        Assert.assertTrue( exportParams.getClasses().isEmpty() );
+    }
+
+    @Test
+    public void getParamsFromMapInvalidFetchSize()
+    {
+        final Map<String, List<String>> params = new HashMap<>();
+        params.put( "fetchSize", Collections.singletonList( "abc" ) );
+
+        MetadataExportParams exportParams = service.getParamsFromMap( params );
+        Assert.assertNull( exportParams.getFetchSize() );
+        Assert.assertTrue( exportParams.getClasses().isEmpty() );
+    }
+}
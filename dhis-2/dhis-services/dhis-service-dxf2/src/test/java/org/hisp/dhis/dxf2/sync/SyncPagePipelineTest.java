@@ -0,0 +1,107 @@
+package org.hisp.dhis.dxf2.sync;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class SyncPagePipelineTest
+{
+    @Test
+    public void testAcknowledgeInSubmissionOrder()
+    {
+        List<Integer> acknowledged = new ArrayList<>();
+        CountDownLatch firstPage = new CountDownLatch( 1 );
+
+        try ( SyncPagePipeline<Integer> pipeline = new SyncPagePipeline<>( 3, acknowledged::add ) )
+        {
+            assertTrue( pipeline.submit( () -> {
+                firstPage.await();
+                return true;
+            }, 1 ) );
+            assertTrue( pipeline.submit( () -> true, 2 ) );
+            assertTrue( pipeline.submit( () -> {
+                firstPage.countDown();
+                return true;
+            }, 3 ) );
+            assertTrue( pipeline.submit( () -> true, 4 ) );
+
+            assertTrue( pipeline.finish() );
+            assertEquals( 4, pipeline.getAcknowledgedPages() );
+        }
+
+        assertEquals( Lists.newArrayList( 1, 2, 3, 4 ), acknowledged );
+    }
+
+    @Test
+    public void testStopAfterFailedPage()
+    {
+        List<Integer> acknowledged = new ArrayList<>();
+
+        try ( SyncPagePipeline<Integer> pipeline = new SyncPagePipeline<>( 1, acknowledged::add ) )
+        {
+            assertTrue( pipeline.submit( () -> true, 1 ) );
+            assertTrue( pipeline.submit( () -> false, 2 ) );
+            assertFalse( pipeline.submit( () -> true, 3 ) );
+
+            assertFalse( pipeline.finish() );
+            assertEquals( 1, pipeline.getAcknowledgedPages() );
+        }
+
+        assertEquals( Lists.newArrayList( 1 ), acknowledged );
+    }
+
+    @Test
+    public void testNoAcknowledgementAfterFailedPage()
+    {
+        List<Integer> acknowledged = new ArrayList<>();
+
+        try ( SyncPagePipeline<Integer> pipeline = new SyncPagePipeline<>( 3, acknowledged::add ) )
+        {
+            assertTrue( pipeline.submit( () -> {
+                throw new IllegalStateException( "Remote server failed" );
+            }, 1 ) );
+            assertTrue( pipeline.submit( () -> true, 2 ) );
+
+            assertFalse( pipeline.finish() );
+            assertEquals( 0, pipeline.getAcknowledgedPages() );
+        }
+
+        assertTrue( acknowledged.isEmpty() );
+    }
+}
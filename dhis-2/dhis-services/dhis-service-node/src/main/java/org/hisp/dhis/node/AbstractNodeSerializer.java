@@ -31,6 +31,7 @@ package org.hisp.dhis.node;
 import org.hisp.dhis.node.config.Config;
 import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
+import org.hisp.dhis.node.types.DeferredCollectionNode;
 import org.hisp.dhis.node.types.RootNode;
 import org.hisp.dhis.node.types.SimpleNode;
 import org.joda.time.format.DateTimeFormat;
@@ -132,6 +133,13 @@ public abstract class AbstractNodeSerializer implements NodeSerializer
             return;
         }
 
+        // deferred collections are only known to be empty once resolved, skip them like unadded collections
+
+        if ( collectionNode instanceof DeferredCollectionNode && collectionNode.getChildren().isEmpty() )
+        {
+            return;
+        }
+
         startWriteCollectionNode( collectionNode );
 
         for ( Node node : collectionNode.getChildren() )
@@ -141,6 +149,11 @@ public abstract class AbstractNodeSerializer implements NodeSerializer
         }
 
         endWriteCollectionNode( collectionNode );
+
+        if ( collectionNode instanceof DeferredCollectionNode )
+        {
+            ( (DeferredCollectionNode) collectionNode ).release();
+        }
     }
 
     protected abstract void endWriteCollectionNode( CollectionNode collectionNode ) throws Exception;
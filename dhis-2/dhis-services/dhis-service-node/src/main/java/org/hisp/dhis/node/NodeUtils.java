@@ -102,6 +102,36 @@ public final class NodeUtils
         return pagerNode;
     }
 
+    /**
+     * Creates a pager node for paging with a cursor, which has no page
+     * numbers, and which has a total only if it was requested.
+     *
+     * @param pageSize the page size.
+     * @param nextPageToken the token of the next page, or null if the current
+     *        page is the last page.
+     * @param total the total number of objects, or null.
+     * @return the pager node.
+     */
+    public static Node createCursorPager( int pageSize, String nextPageToken, Long total )
+    {
+        ComplexNode pagerNode = new ComplexNode( "pager" );
+        pagerNode.setMetadata( true );
+
+        pagerNode.addChild( new SimpleNode( "pageSize", pageSize ) );
+
+        if ( total != null )
+        {
+            pagerNode.addChild( new SimpleNode( "total", total ) );
+        }
+
+        if ( nextPageToken != null )
+        {
+            pagerNode.addChild( new SimpleNode( "nextPageToken", nextPageToken ) );
+        }
+
+        return pagerNode;
+    }
+
     public static Iterable<? extends Node> createSimples( Collection<?> collection )
     {
         return collection.stream().map( o -> new SimpleNode( "", o ) ).collect( Collectors.toList() );
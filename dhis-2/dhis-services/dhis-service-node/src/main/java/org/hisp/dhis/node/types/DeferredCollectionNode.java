@@ -0,0 +1,176 @@
+package org.hisp.dhis.node.types;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.hisp.dhis.node.Node;
+
+/**
+ * Collection node whose children are produced asynchronously. The node is
+ * resolved the first time its children are requested, which blocks until the
+ * underlying {@link Future} completes. This allows node serializers to write
+ * each collection as soon as it is ready while preserving the order in which
+ * the collections were added to their parent.
+ * <p>
+ * Once written, the serializer releases the children of the node. Any later
+ * access to the children of a released node fails with an
+ * {@link IllegalStateException}, so that a node which is written twice fails
+ * loudly instead of silently producing an empty collection.
+ */
+public class DeferredCollectionNode extends CollectionNode
+{
+    private final Future<CollectionNode> future;
+
+    private boolean resolved;
+
+    private boolean released;
+
+    public DeferredCollectionNode( String name, Future<CollectionNode> future )
+    {
+        super( name );
+        this.future = future;
+    }
+
+    @Override
+    public List<Node> getChildren()
+    {
+        resolve();
+        checkNotReleased();
+        return super.getChildren();
+    }
+
+    @Override
+    public List<Node> getUnorderedChildren()
+    {
+        resolve();
+        checkNotReleased();
+        return super.getUnorderedChildren();
+    }
+
+    @Override
+    public <T extends Node> T addChild( T child )
+    {
+        checkNotReleased();
+        return super.addChild( child );
+    }
+
+    @Override
+    public void setChildren( List<Node> children )
+    {
+        checkNotReleased();
+        super.setChildren( children );
+    }
+
+    @Override
+    public boolean isWrapping()
+    {
+        resolve();
+        return super.isWrapping();
+    }
+
+    @Override
+    public String getNamespace()
+    {
+        resolve();
+        return super.getNamespace();
+    }
+
+    /**
+     * Releases the children of this node once they have been written, so that
+     * a serialized collection does not stay in memory until the whole root
+     * node is written. The node must not be accessed after it is released.
+     */
+    public synchronized void release()
+    {
+        resolve();
+
+        children = null;
+        sortedChildren = null;
+        released = true;
+    }
+
+    public synchronized boolean isReleased()
+    {
+        return released;
+    }
+
+    private synchronized void checkNotReleased()
+    {
+        if ( released )
+        {
+            throw new IllegalStateException( "Collection has already been written and released: " + name );
+        }
+    }
+
+    private synchronized void resolve()
+    {
+        if ( resolved )
+        {
+            return;
+        }
+
+        CollectionNode collectionNode;
+
+        try
+        {
+            collectionNode = future.get();
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while waiting for collection: " + name, ex );
+        }
+        catch ( ExecutionException ex )
+        {
+            if ( ex.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            throw new IllegalStateException( "Failed to produce collection: " + name, ex.getCause() );
+        }
+
+        // only mark as resolved on success, a failed collection fails again on every access
+
+        if ( collectionNode != null )
+        {
+            setWrapping( collectionNode.isWrapping() );
+            setNamespace( collectionNode.getNamespace() );
+            setComment( collectionNode.getComment() );
+            setProperty( collectionNode.getProperty() );
+            setMetadata( collectionNode.isMetadata() );
+            addChildren( collectionNode.getUnorderedChildren() );
+        }
+
+        resolved = true;
+    }
+}
@@ -0,0 +1,123 @@
+package org.hisp.dhis.node.types;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.concurrent.CompletableFuture;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link DeferredCollectionNode}.
+ */
+public class DeferredCollectionNodeTest
+{
+    @Test
+    public void resolveChildren()
+    {
+        final CollectionNode collectionNode = new CollectionNode( "tests" );
+        collectionNode.setNamespace( "http://dhis2.org/schema/dxf/2.0" );
+        collectionNode.setWrapping( false );
+
+        final SimpleNode simpleNode1 = new SimpleNode( "id", "My Test 1" );
+        final SimpleNode simpleNode2 = new SimpleNode( "id", "My Test 2" );
+        collectionNode.addChild( simpleNode1 );
+        collectionNode.addChild( simpleNode2 );
+
+        final CompletableFuture<CollectionNode> future = new CompletableFuture<>();
+        final DeferredCollectionNode deferredNode = new DeferredCollectionNode( "tests", future );
+        Assert.assertEquals( "tests", deferredNode.getName() );
+
+        future.complete( collectionNode );
+
+        Assert.assertThat( deferredNode.getChildren(), Matchers.contains( simpleNode1, simpleNode2 ) );
+        Assert.assertSame( deferredNode, simpleNode1.getParent() );
+        Assert.assertEquals( "http://dhis2.org/schema/dxf/2.0", deferredNode.getNamespace() );
+        Assert.assertFalse( deferredNode.isWrapping() );
+    }
+
+    @Test
+    public void resolveEmpty()
+    {
+        final DeferredCollectionNode deferredNode = new DeferredCollectionNode( "tests",
+            CompletableFuture.completedFuture( new CollectionNode( "tests" ) ) );
+
+        Assert.assertEquals( 0, deferredNode.getChildren().size() );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void resolveFailure()
+    {
+        final CompletableFuture<CollectionNode> future = new CompletableFuture<>();
+        future.completeExceptionally( new IllegalArgumentException( "Failed" ) );
+
+        new DeferredCollectionNode( "tests", future ).getChildren();
+    }
+
+    @Test
+    public void resolveFailureRepeated()
+    {
+        final CompletableFuture<CollectionNode> future = new CompletableFuture<>();
+        future.completeExceptionally( new IllegalArgumentException( "Failed" ) );
+
+        final DeferredCollectionNode deferredNode = new DeferredCollectionNode( "tests", future );
+
+        for ( int i = 0; i < 2; i++ )
+        {
+            try
+            {
+                deferredNode.getChildren();
+                Assert.fail( "Failed collection must not resolve as empty" );
+            }
+            catch ( IllegalArgumentException ex )
+            {
+                Assert.assertEquals( "Failed", ex.getMessage() );
+            }
+        }
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void release()
+    {
+        final CollectionNode collectionNode = new CollectionNode( "tests" );
+        collectionNode.addChild( new SimpleNode( "id", "My Test 1" ) );
+
+        final DeferredCollectionNode deferredNode = new DeferredCollectionNode( "tests",
+            CompletableFuture.completedFuture( collectionNode ) );
+
+        Assert.assertEquals( 1, deferredNode.getChildren().size() );
+
+        deferredNode.release();
+
+        Assert.assertTrue( deferredNode.isReleased() );
+
+        deferredNode.getChildren();
+    }
+}
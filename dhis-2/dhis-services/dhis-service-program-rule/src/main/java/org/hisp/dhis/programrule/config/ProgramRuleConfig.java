@@ -28,6 +28,11 @@ package org.hisp.dhis.programrule.config;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.concurrent.TimeUnit;
+
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
 import org.hisp.dhis.program.ProgramService;
@@ -38,6 +43,7 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 /**
  * @author Enrico Colasante
@@ -65,16 +71,22 @@ public class ProgramRuleConfig
 
     @Autowired
     private ProgramRuleService programRuleService;
+
     @Autowired
     private ProgramService programService;
 
+    @Autowired
+    private CacheProvider cacheProvider;
+
+    @Autowired
+    private Environment env;
 
     @Bean( "oldRuleEngine" )
     public ProgramRuleEngine oldRuleEngine( OldImplementableRuleService oldImplementableRuleService )
     {
         return new ProgramRuleEngine( programRuleEntityMapperService, programRuleVariableService,
             organisationUnitGroupService, inMemoryMap, currentUserService, constantService,
-            oldImplementableRuleService );
+            oldImplementableRuleService, newContextCache( "oldRuleEngineContext" ) );
     }
 
     @Bean( "newRuleEngine" )
@@ -82,6 +94,13 @@ public class ProgramRuleConfig
     {
         return new ProgramRuleEngine( programRuleEntityMapperService, programRuleVariableService,
             organisationUnitGroupService, inMemoryMap, currentUserService, constantService,
-            newImplementableRuleService );
+            newImplementableRuleService, newContextCache( "newRuleEngineContext" ) );
+    }
+
+    private Cache<ProgramRuleEngineContext> newContextCache( String region )
+    {
+        return cacheProvider.newCacheBuilder( ProgramRuleEngineContext.class ).forRegion( region )
+            .expireAfterWrite( 1, TimeUnit.HOURS ).withInitialCapacity( 20 ).forceInMemory()
+            .withMaximumSize( SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 : 1000 ).build();
     }
 }
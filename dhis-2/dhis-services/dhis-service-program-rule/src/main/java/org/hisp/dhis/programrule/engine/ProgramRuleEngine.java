@@ -31,17 +31,30 @@ package org.hisp.dhis.programrule.engine;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import javax.annotation.PreDestroy;
+
 import lombok.extern.slf4j.Slf4j;
 
+import org.hisp.dhis.cache.Cache;
 import org.hisp.dhis.common.BaseIdentifiableObject;
 import org.hisp.dhis.commons.collection.ListUtils;
 import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
@@ -58,6 +71,8 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.UserAuthorityGroup;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Created by zubair@dhis2.org on 11.10.17.
  */
@@ -81,11 +96,15 @@ public class ProgramRuleEngine
 
     private final ImplementableRuleService implementableRuleService;
 
+    private final Cache<ProgramRuleEngineContext> contextCache;
+
+    private final ThreadPoolExecutor evaluationExecutor;
+
     public ProgramRuleEngine( ProgramRuleEntityMapperService programRuleEntityMapperService,
         ProgramRuleVariableService programRuleVariableService,
         OrganisationUnitGroupService organisationUnitGroupService, RuleVariableInMemoryMap inMemoryMap,
         CurrentUserService currentUserService, ConstantService constantService,
-        ImplementableRuleService implementableRuleService )
+        ImplementableRuleService implementableRuleService, Cache<ProgramRuleEngineContext> contextCache )
     {
 
         checkNotNull( programRuleEntityMapperService );
@@ -95,6 +114,7 @@ public class ProgramRuleEngine
         checkNotNull( inMemoryMap );
         checkNotNull( constantService );
         checkNotNull( implementableRuleService );
+        checkNotNull( contextCache );
 
         this.programRuleEntityMapperService = programRuleEntityMapperService;
         this.programRuleVariableService = programRuleVariableService;
@@ -103,6 +123,19 @@ public class ProgramRuleEngine
         this.currentUserService = currentUserService;
         this.constantService = constantService;
         this.implementableRuleService = implementableRuleService;
+        this.contextCache = contextCache;
+
+        int threads = SystemUtils.getCpuCores();
+
+        this.evaluationExecutor = new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat( "rule-engine-%d" ).setDaemon( true ).build() );
+        this.evaluationExecutor.allowCoreThreadTimeOut( true );
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        evaluationExecutor.shutdownNow();
     }
 
     /**
@@ -117,22 +150,18 @@ public class ProgramRuleEngine
     {
         List<RuleEffect> ruleEffects = new ArrayList<>();
 
-        List<ProgramRule> implementableProgramRules = implementableRuleService
-            .getImplementableRules( enrollment.getProgram() );
+        ProgramRuleEngineContext context = getContext( enrollment.getProgram() );
 
-        if ( implementableProgramRules.isEmpty() ) // if implementation does not exist on back end side
+        if ( context.isEmpty() ) // if implementation does not exist on back end side
         {
             return ruleEffects;
         }
 
-        List<ProgramRuleVariable> programRuleVariables = programRuleVariableService
-            .getProgramRuleVariable( enrollment.getProgram() );
-
         List<RuleEvent> ruleEvents = getRuleEvents( events, programStageInstance );
 
         try
         {
-            RuleEngine ruleEngine = ruleEngineBuilder( implementableProgramRules, programRuleVariables, RuleEngineIntent.EVALUATION )
+            RuleEngine ruleEngine = ruleEngineBuilder( context, getSupplementaryData( context ) )
                 .events( ruleEvents )
                 .enrollment( getRuleEnrollment( enrollment ) )
                 .build();
@@ -154,6 +183,106 @@ public class ProgramRuleEngine
         return ruleEffects;
     }
 
+    /**
+     * To evaluate a batch of enrollments. The rule engine context is assembled
+     * once per program and shared by all enrollments of that program. Entities
+     * are mapped on the calling thread, only the evaluation itself runs in
+     * parallel when requested, as it does not touch the persistence layer.
+     * Parallel evaluations run on a pool owned by this engine and bounded by
+     * the number of CPU cores, never on the common fork join pool.
+     *
+     * @param enrollments the enrollments to evaluate, mapped to the events which
+     *        provide the necessary data for rule engine execution.
+     * @param parallel whether to evaluate the enrollments in parallel.
+     * @return map of enrollment identifiers to the list of {@link RuleEffect}
+     *         that need to be applied.
+     */
+    public Map<String, List<RuleEffect>> evaluateEnrollments( Map<ProgramInstance, Set<ProgramStageInstance>> enrollments,
+        boolean parallel )
+    {
+        Map<String, List<RuleEffect>> ruleEffects = new HashMap<>();
+
+        Map<String, Callable<List<RuleEffect>>> evaluations = new HashMap<>();
+
+        Map<Program, List<ProgramInstance>> programEnrollments = enrollments.keySet().stream()
+            .collect( Collectors.groupingBy( ProgramInstance::getProgram ) );
+
+        for ( Map.Entry<Program, List<ProgramInstance>> entry : programEnrollments.entrySet() )
+        {
+            ProgramRuleEngineContext context = getContext( entry.getKey() );
+
+            if ( context.isEmpty() )
+            {
+                entry.getValue().forEach( enrollment -> ruleEffects.put( enrollment.getUid(), new ArrayList<>() ) );
+                continue;
+            }
+
+            RuleEngineContext ruleEngineContext = toRuleEngineContext( context, getSupplementaryData( context ) );
+
+            for ( ProgramInstance enrollment : entry.getValue() )
+            {
+                RuleEnrollment ruleEnrollment = getRuleEnrollment( enrollment );
+
+                RuleEngine ruleEngine = ruleEngineContext.toEngineBuilder()
+                    .triggerEnvironment( TriggerEnvironment.SERVER )
+                    .events( getRuleEvents( enrollments.get( enrollment ), Optional.empty() ) )
+                    .enrollment( ruleEnrollment )
+                    .build();
+
+                evaluations.put( enrollment.getUid(), ruleEngine.evaluate( ruleEnrollment ) );
+            }
+        }
+
+        if ( parallel && evaluations.size() > 1 )
+        {
+            Map<String, Future<List<RuleEffect>>> futures = new HashMap<>();
+
+            evaluations.forEach( ( uid, evaluation ) -> futures.put( uid, evaluationExecutor.submit( evaluation ) ) );
+
+            futures.forEach( ( uid, future ) -> ruleEffects.put( uid, get( future ) ) );
+        }
+        else
+        {
+            evaluations.forEach( ( uid, evaluation ) -> ruleEffects.put( uid, call( evaluation ) ) );
+        }
+
+        return ruleEffects;
+    }
+
+    /**
+     * Invalidates all cached rule engine contexts. Invoked when metadata which
+     * every context contains, such as constants, changes.
+     */
+    public void invalidateContextCache()
+    {
+        contextCache.invalidateAll();
+    }
+
+    /**
+     * Invalidates the cached rule engine context of the given program.
+     *
+     * @param program the program identifier.
+     */
+    public void invalidateContextCache( String program )
+    {
+        contextCache.invalidate( program );
+    }
+
+    /**
+     * Invalidates the cached rule engine contexts which refer to the data
+     * element or tracked entity attribute with the given identifier.
+     *
+     * @param uid the data element or tracked entity attribute identifier.
+     */
+    public void invalidateDependentContexts( String uid )
+    {
+        contextCache.getAll().stream()
+            .filter( context -> context.dependsOn( uid ) )
+            .map( ProgramRuleEngineContext::getProgram )
+            .filter( Objects::nonNull )
+            .forEach( contextCache::invalidate );
+    }
+
     /**
      * To getDescription rule condition in order to fetch its description
      * @param condition of program rule
@@ -172,22 +301,83 @@ public class ProgramRuleEngine
 
         List<ProgramRuleVariable> programRuleVariables = programRuleVariableService.getProgramRuleVariable( program );
 
-        RuleEngine ruleEngine = ruleEngineBuilder( ListUtils.newList( programRule ), programRuleVariables, RuleEngineIntent.DESCRIPTION ).build();
+        RuleEngine ruleEngine = descriptionRuleEngineBuilder( ListUtils.newList( programRule ), programRuleVariables ).build();
 
         return ruleEngine.evaluate( condition );
     }
 
-    private RuleEngine.Builder ruleEngineBuilder( List<ProgramRule> programRules,
-         List<ProgramRuleVariable> programRuleVariables, RuleEngineIntent intent )
+    private ProgramRuleEngineContext getContext( Program program )
+    {
+        return contextCache.get( program.getUid(), uid -> loadContext( program ) )
+            .orElse( ProgramRuleEngineContext.empty() );
+    }
+
+    private ProgramRuleEngineContext loadContext( Program program )
+    {
+        List<ProgramRule> implementableProgramRules = implementableRuleService.getImplementableRules( program );
+
+        if ( implementableProgramRules.isEmpty() )
+        {
+            return ProgramRuleEngineContext.empty();
+        }
+
+        List<ProgramRuleVariable> programRuleVariables = programRuleVariableService.getProgramRuleVariable( program );
+
+        return new ProgramRuleEngineContext( program.getUid(),
+            programRuleEntityMapperService.toMappedProgramRules( implementableProgramRules ),
+            programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ),
+            getConstantMap(), getOrganisationUnitGroupMap(),
+            getDependencies( implementableProgramRules, programRuleVariables ) );
+    }
+
+    private Set<String> getDependencies( List<ProgramRule> programRules, List<ProgramRuleVariable> programRuleVariables )
+    {
+        Set<String> dependencies = new HashSet<>();
+
+        for ( ProgramRuleVariable variable : programRuleVariables )
+        {
+            addDependency( dependencies, variable.getDataElement() );
+            addDependency( dependencies, variable.getAttribute() );
+        }
+
+        for ( ProgramRule programRule : programRules )
+        {
+            for ( ProgramRuleAction action : programRule.getProgramRuleActions() )
+            {
+                addDependency( dependencies, action.getDataElement() );
+                addDependency( dependencies, action.getAttribute() );
+            }
+        }
+
+        return dependencies;
+    }
+
+    private void addDependency( Set<String> dependencies, BaseIdentifiableObject object )
+    {
+        if ( object != null )
+        {
+            dependencies.add( object.getUid() );
+        }
+    }
+
+    private Map<String, String> getConstantMap()
     {
-        Map<String, String> constantMap = constantService.getConstantMap().entrySet()
+        return constantService.getConstantMap().entrySet()
             .stream()
             .collect( Collectors.toMap( Map.Entry::getKey, v -> v.getValue().toString() ) );
+    }
 
-        Map<String, List<String>> supplementaryData = organisationUnitGroupService.getAllOrganisationUnitGroups()
+    private Map<String, List<String>> getOrganisationUnitGroupMap()
+    {
+        return organisationUnitGroupService.getAllOrganisationUnitGroups()
             .stream()
             .collect( Collectors.toMap( BaseIdentifiableObject::getUid,
                 g -> g.getMembers().stream().map( OrganisationUnit::getUid ).collect( Collectors.toList() ) ) );
+    }
+
+    private Map<String, List<String>> getSupplementaryData( ProgramRuleEngineContext context )
+    {
+        Map<String, List<String>> supplementaryData = new HashMap<>( context.getOrganisationUnitGroups() );
 
         if ( currentUserService.getCurrentUser() != null )
         {
@@ -195,31 +385,48 @@ public class ProgramRuleEngine
                 .getUserAuthorityGroups().stream().map( UserAuthorityGroup::getUid ).collect( Collectors.toList() ) );
         }
 
-        if ( RuleEngineIntent.DESCRIPTION == intent )
-        {
-            Map<String, DataItem> itemStore = programRuleEntityMapperService.getItemStore( programRuleVariables );
+        return supplementaryData;
+    }
 
-            return RuleEngineContext.builder()
-                .supplementaryData( supplementaryData )
-                .rules( programRuleEntityMapperService.toMappedProgramRules( programRules ) )
-                .ruleVariables( programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ) )
-                .constantsValue( constantMap ).ruleEngineItent( intent ).itemStore( itemStore )
-                .build()
-                .toEngineBuilder()
-                .triggerEnvironment( TriggerEnvironment.SERVER );
-        }
-        else
-        {
-            return RuleEngineContext.builder()
-                .supplementaryData( supplementaryData )
-                .calculatedValueMap( inMemoryMap.getVariablesMap() )
-                .rules( programRuleEntityMapperService.toMappedProgramRules( programRules ) )
-                .ruleVariables( programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ) )
-                .constantsValue( constantMap ).ruleEngineItent( intent )
-                .build()
-                .toEngineBuilder()
-                .triggerEnvironment( TriggerEnvironment.SERVER );
-        }
+    private RuleEngineContext toRuleEngineContext( ProgramRuleEngineContext context,
+        Map<String, List<String>> supplementaryData )
+    {
+        return RuleEngineContext.builder()
+            .supplementaryData( supplementaryData )
+            .calculatedValueMap( inMemoryMap.getVariablesMap() )
+            .rules( context.getRules() )
+            .ruleVariables( context.getRuleVariables() )
+            .constantsValue( context.getConstants() ).ruleEngineItent( RuleEngineIntent.EVALUATION )
+            .build();
+    }
+
+    private RuleEngine.Builder ruleEngineBuilder( ProgramRuleEngineContext context,
+        Map<String, List<String>> supplementaryData )
+    {
+        return toRuleEngineContext( context, supplementaryData )
+            .toEngineBuilder()
+            .triggerEnvironment( TriggerEnvironment.SERVER );
+    }
+
+    private RuleEngine.Builder descriptionRuleEngineBuilder( List<ProgramRule> programRules,
+        List<ProgramRuleVariable> programRuleVariables )
+    {
+        ProgramRuleEngineContext context = new ProgramRuleEngineContext(
+            programRuleEntityMapperService.toMappedProgramRules( programRules ),
+            programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ),
+            getConstantMap(), getOrganisationUnitGroupMap() );
+
+        Map<String, DataItem> itemStore = programRuleEntityMapperService.getItemStore( programRuleVariables );
+
+        return RuleEngineContext.builder()
+            .supplementaryData( getSupplementaryData( context ) )
+            .rules( context.getRules() )
+            .ruleVariables( context.getRuleVariables() )
+            .constantsValue( context.getConstants() ).ruleEngineItent( RuleEngineIntent.DESCRIPTION )
+            .itemStore( itemStore )
+            .build()
+            .toEngineBuilder()
+            .triggerEnvironment( TriggerEnvironment.SERVER );
     }
 
     private RuleEvent getRuleEvent( ProgramStageInstance programStageInstance )
@@ -251,4 +458,38 @@ public class ProgramRuleEngine
             return ruleEngine.evaluate( event.get() ).call();
         }
     }
+
+    private List<RuleEffect> call( Callable<List<RuleEffect>> evaluation )
+    {
+        try
+        {
+            return evaluation.call();
+        }
+        catch ( Exception e )
+        {
+            log.error( DebugUtils.getStackTrace( e ) );
+
+            return new ArrayList<>();
+        }
+    }
+
+    private List<RuleEffect> get( Future<List<RuleEffect>> future )
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+
+            return new ArrayList<>();
+        }
+        catch ( ExecutionException e )
+        {
+            log.error( DebugUtils.getStackTrace( e.getCause() ) );
+
+            return new ArrayList<>();
+        }
+    }
 }
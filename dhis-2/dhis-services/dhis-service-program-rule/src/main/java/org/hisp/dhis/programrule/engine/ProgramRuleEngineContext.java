@@ -0,0 +1,139 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hisp.dhis.rules.models.Rule;
+import org.hisp.dhis.rules.models.RuleVariable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Immutable snapshot of the mapped program rule metadata for a single program,
+ * i.e. the rules, rule variables, constants and organisation unit group data
+ * from which a rule engine context is assembled. Instances are cached per
+ * program by {@link ProgramRuleEngine} and can be shared between threads.
+ * <p>
+ * The context records the identifiers of the data elements and tracked entity
+ * attributes its rules and rule variables refer to, so that a change to one of
+ * them only invalidates the contexts which depend on it.
+ */
+public class ProgramRuleEngineContext
+{
+    private static final ProgramRuleEngineContext EMPTY = new ProgramRuleEngineContext( Collections.emptyList(),
+        Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap() );
+
+    private final String program;
+
+    private final List<Rule> rules;
+
+    private final List<RuleVariable> ruleVariables;
+
+    private final Map<String, String> constants;
+
+    private final Map<String, List<String>> organisationUnitGroups;
+
+    private final Set<String> dependencies;
+
+    public ProgramRuleEngineContext( List<Rule> rules, List<RuleVariable> ruleVariables,
+        Map<String, String> constants, Map<String, List<String>> organisationUnitGroups )
+    {
+        this( null, rules, ruleVariables, constants, organisationUnitGroups, Collections.emptySet() );
+    }
+
+    public ProgramRuleEngineContext( String program, List<Rule> rules, List<RuleVariable> ruleVariables,
+        Map<String, String> constants, Map<String, List<String>> organisationUnitGroups, Set<String> dependencies )
+    {
+        this.program = program;
+        this.rules = ImmutableList.copyOf( rules );
+        this.ruleVariables = ImmutableList.copyOf( ruleVariables );
+        this.constants = ImmutableMap.copyOf( constants );
+        this.organisationUnitGroups = ImmutableMap.copyOf( organisationUnitGroups );
+        this.dependencies = ImmutableSet.copyOf( dependencies );
+    }
+
+    /**
+     * Returns a context without rules, used for programs which have no rules
+     * implemented on the server side.
+     */
+    public static ProgramRuleEngineContext empty()
+    {
+        return EMPTY;
+    }
+
+    public boolean isEmpty()
+    {
+        return rules.isEmpty();
+    }
+
+    /**
+     * Indicates whether this context refers to the data element or tracked
+     * entity attribute with the given identifier.
+     */
+    public boolean dependsOn( String uid )
+    {
+        return dependencies.contains( uid );
+    }
+
+    public String getProgram()
+    {
+        return program;
+    }
+
+    public List<Rule> getRules()
+    {
+        return rules;
+    }
+
+    public List<RuleVariable> getRuleVariables()
+    {
+        return ruleVariables;
+    }
+
+    public Map<String, String> getConstants()
+    {
+        return constants;
+    }
+
+    public Map<String, List<String>> getOrganisationUnitGroups()
+    {
+        return organisationUnitGroups;
+    }
+
+    public Set<String> getDependencies()
+    {
+        return dependencies;
+    }
+}
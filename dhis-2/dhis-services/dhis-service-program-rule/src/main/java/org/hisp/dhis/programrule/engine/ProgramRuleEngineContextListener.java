@@ -0,0 +1,328 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.hibernate.HibernateException;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.constant.Constant;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.program.ProgramStage;
+import org.hisp.dhis.program.ProgramStageDataElement;
+import org.hisp.dhis.program.ProgramTrackedEntityAttribute;
+import org.hisp.dhis.programrule.ProgramRule;
+import org.hisp.dhis.programrule.ProgramRuleAction;
+import org.hisp.dhis.programrule.ProgramRuleVariable;
+import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Invalidates the rule engine contexts cached by {@link ProgramRuleEngine}
+ * after any committed change to program rule metadata, constants,
+ * organisation unit groups or the program metadata which rule variables refer
+ * to.
+ * <p>
+ * Changes to program scoped metadata only invalidate the context of the owning
+ * program. Changes to data elements and tracked entity attributes only
+ * invalidate the contexts which refer to them. Constants and organisation unit
+ * groups are part of every context, so changes to them invalidate all
+ * contexts, as does any change whose program cannot be resolved.
+ * <p>
+ * Changes which only touch a collection, such as organisation unit group
+ * members or program stage data elements, do not fire entity events. They are
+ * detected through collection events, which fire on flush, and invalidate the
+ * contexts once the transaction completes.
+ */
+@Slf4j
+@Component
+public class ProgramRuleEngineContextListener
+    implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener,
+    PostCollectionUpdateEventListener, PostCollectionRecreateEventListener, PostCollectionRemoveEventListener
+{
+    private static final Set<Class<?>> CONTEXT_CLASSES = ImmutableSet.of( ProgramRule.class,
+        ProgramRuleAction.class, ProgramRuleVariable.class, Constant.class, OrganisationUnitGroup.class,
+        Program.class, ProgramStage.class, ProgramStageDataElement.class, ProgramTrackedEntityAttribute.class,
+        DataElement.class, TrackedEntityAttribute.class );
+
+    @PersistenceUnit
+    private EntityManagerFactory emf;
+
+    private final List<ProgramRuleEngine> programRuleEngines;
+
+    public ProgramRuleEngineContextListener( List<ProgramRuleEngine> programRuleEngines )
+    {
+        checkNotNull( programRuleEngines );
+
+        this.programRuleEngines = programRuleEngines;
+    }
+
+    @PostConstruct
+    protected void init()
+    {
+        SessionFactoryImpl sessionFactory = emf.unwrap( SessionFactoryImpl.class );
+
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService( EventListenerRegistry.class );
+
+        registry.getEventListenerGroup( EventType.POST_COMMIT_INSERT ).appendListener( this );
+        registry.getEventListenerGroup( EventType.POST_COMMIT_UPDATE ).appendListener( this );
+        registry.getEventListenerGroup( EventType.POST_COMMIT_DELETE ).appendListener( this );
+        registry.getEventListenerGroup( EventType.POST_COLLECTION_UPDATE ).appendListener( this );
+        registry.getEventListenerGroup( EventType.POST_COLLECTION_RECREATE ).appendListener( this );
+        registry.getEventListenerGroup( EventType.POST_COLLECTION_REMOVE ).appendListener( this );
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding( EntityPersister persister )
+    {
+        return CONTEXT_CLASSES.contains( persister.getMappedClass() );
+    }
+
+    @Override
+    public void onPostInsert( PostInsertEvent event )
+    {
+        invalidate( event.getEntity() );
+    }
+
+    @Override
+    public void onPostUpdate( PostUpdateEvent event )
+    {
+        invalidate( event.getEntity() );
+    }
+
+    @Override
+    public void onPostDelete( PostDeleteEvent event )
+    {
+        invalidate( event.getEntity() );
+    }
+
+    @Override
+    public void onPostUpdateCollection( PostCollectionUpdateEvent event )
+    {
+        invalidateAfterCompletion( event );
+    }
+
+    @Override
+    public void onPostRecreateCollection( PostCollectionRecreateEvent event )
+    {
+        invalidateAfterCompletion( event );
+    }
+
+    @Override
+    public void onPostRemoveCollection( PostCollectionRemoveEvent event )
+    {
+        invalidateAfterCompletion( event );
+    }
+
+    @Override
+    public void onPostInsertCommitFailed( PostInsertEvent event )
+    {
+        log.debug( "onPostInsertCommitFailed: " + event );
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed( PostUpdateEvent event )
+    {
+        log.debug( "onPostUpdateCommitFailed: " + event );
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed( PostDeleteEvent event )
+    {
+        log.debug( "onPostDeleteCommitFailed: " + event );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void invalidate( Object entity )
+    {
+        if ( isContextEntity( entity ) )
+        {
+            log.debug( "Invalidating rule engine contexts after change to: " + entity.getClass().getSimpleName() );
+
+            getInvalidation( entity ).run();
+        }
+    }
+
+    /**
+     * Invalidates the contexts once the transaction of the given collection
+     * event completes, or immediately if there is no transaction. The
+     * contexts are invalidated also on rollback, which is harmless.
+     */
+    private void invalidateAfterCompletion( AbstractCollectionEvent event )
+    {
+        Object owner = event.getAffectedOwnerOrNull();
+
+        if ( owner == null || !isContextEntity( owner ) )
+        {
+            return;
+        }
+
+        log.debug( "Invalidating rule engine contexts after collection change of: " + event.getAffectedOwnerEntityName() );
+
+        Runnable invalidation = getInvalidation( owner );
+
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            invalidation.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+        {
+            @Override
+            public void afterCompletion( int status )
+            {
+                invalidation.run();
+            }
+        } );
+    }
+
+    /**
+     * Resolves which contexts a change to the given entity affects. The
+     * identifiers are resolved eagerly, while the entity is still attached.
+     * Falls back to invalidating all contexts when the owning program cannot
+     * be resolved, for instance for a detached association.
+     */
+    private Runnable getInvalidation( Object entity )
+    {
+        try
+        {
+            if ( entity instanceof DataElement || entity instanceof TrackedEntityAttribute )
+            {
+                String uid = ((IdentifiableObject) entity).getUid();
+
+                return () -> forEachEngine( engine -> engine.invalidateDependentContexts( uid ) );
+            }
+
+            Program program = getProgram( entity );
+
+            if ( program != null && program.getUid() != null )
+            {
+                String uid = program.getUid();
+
+                return () -> forEachEngine( engine -> engine.invalidateContextCache( uid ) );
+            }
+        }
+        catch ( HibernateException ex )
+        {
+            log.debug( "Could not resolve program of changed entity, invalidating all contexts", ex );
+        }
+
+        return this::invalidateAll;
+    }
+
+    private Program getProgram( Object entity )
+    {
+        if ( entity instanceof Program )
+        {
+            return (Program) entity;
+        }
+        else if ( entity instanceof ProgramStage )
+        {
+            return ((ProgramStage) entity).getProgram();
+        }
+        else if ( entity instanceof ProgramStageDataElement )
+        {
+            ProgramStage programStage = ((ProgramStageDataElement) entity).getProgramStage();
+
+            return programStage != null ? programStage.getProgram() : null;
+        }
+        else if ( entity instanceof ProgramTrackedEntityAttribute )
+        {
+            return ((ProgramTrackedEntityAttribute) entity).getProgram();
+        }
+        else if ( entity instanceof ProgramRule )
+        {
+            return ((ProgramRule) entity).getProgram();
+        }
+        else if ( entity instanceof ProgramRuleAction )
+        {
+            ProgramRule programRule = ((ProgramRuleAction) entity).getProgramRule();
+
+            return programRule != null ? programRule.getProgram() : null;
+        }
+        else if ( entity instanceof ProgramRuleVariable )
+        {
+            return ((ProgramRuleVariable) entity).getProgram();
+        }
+
+        return null;
+    }
+
+    private boolean isContextEntity( Object entity )
+    {
+        return CONTEXT_CLASSES.stream().anyMatch( klass -> klass.isInstance( entity ) );
+    }
+
+    private void invalidateAll()
+    {
+        forEachEngine( ProgramRuleEngine::invalidateContextCache );
+    }
+
+    private void forEachEngine( Consumer<ProgramRuleEngine> invalidation )
+    {
+        programRuleEngines.forEach( invalidation );
+    }
+}
@@ -0,0 +1,186 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.cache.SimpleCacheBuilder;
+import org.hisp.dhis.constant.ConstantService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.program.ProgramInstance;
+import org.hisp.dhis.programrule.ProgramRuleVariableService;
+import org.hisp.dhis.rules.models.RuleEffect;
+import org.hisp.dhis.user.CurrentUserService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class ProgramRuleEngineContextCacheTest extends DhisConvenienceTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private ProgramRuleEntityMapperService programRuleEntityMapperService;
+
+    @Mock
+    private ProgramRuleVariableService programRuleVariableService;
+
+    @Mock
+    private OrganisationUnitGroupService organisationUnitGroupService;
+
+    @Mock
+    private RuleVariableInMemoryMap inMemoryMap;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @Mock
+    private ConstantService constantService;
+
+    @Mock
+    private ImplementableRuleService implementableRuleService;
+
+    private ProgramRuleEngine programRuleEngine;
+
+    private ProgramRuleEngineContextListener listener;
+
+    private Program program;
+
+    private ProgramInstance enrollment;
+
+    @Before
+    public void setUp()
+    {
+        programRuleEngine = new ProgramRuleEngine( programRuleEntityMapperService, programRuleVariableService,
+            organisationUnitGroupService, inMemoryMap, currentUserService, constantService, implementableRuleService,
+            new SimpleCacheBuilder<ProgramRuleEngineContext>().forRegion( "ruleEngineContextTest" )
+                .withMaximumSize( 10 ).build() );
+
+        listener = new ProgramRuleEngineContextListener( Collections.singletonList( programRuleEngine ) );
+
+        program = createProgram( 'A' );
+
+        enrollment = new ProgramInstance();
+        enrollment.setProgram( program );
+
+        when( implementableRuleService.getImplementableRules( program ) ).thenReturn( Collections.emptyList() );
+    }
+
+    @Test
+    public void testContextIsCached()
+    {
+        assertTrue( evaluate().isEmpty() );
+        assertTrue( evaluate().isEmpty() );
+
+        verify( implementableRuleService, times( 1 ) ).getImplementableRules( program );
+    }
+
+    @Test
+    public void testInvalidateOnEntityUpdate()
+    {
+        evaluate();
+
+        PostUpdateEvent event = mock( PostUpdateEvent.class );
+        when( event.getEntity() ).thenReturn( createProgramStage( 'A', program ) );
+
+        listener.onPostUpdate( event );
+
+        evaluate();
+
+        verify( implementableRuleService, times( 2 ) ).getImplementableRules( program );
+    }
+
+    @Test
+    public void testNoInvalidateOnOtherProgramUpdate()
+    {
+        evaluate();
+
+        PostUpdateEvent event = mock( PostUpdateEvent.class );
+        when( event.getEntity() ).thenReturn( createProgramStage( 'B', createProgram( 'B' ) ) );
+
+        listener.onPostUpdate( event );
+
+        evaluate();
+
+        verify( implementableRuleService, times( 1 ) ).getImplementableRules( program );
+    }
+
+    @Test
+    public void testInvalidateOnCollectionUpdate()
+    {
+        evaluate();
+
+        PostCollectionUpdateEvent event = mock( PostCollectionUpdateEvent.class );
+        when( event.getAffectedOwnerOrNull() ).thenReturn( new OrganisationUnitGroup( "Group" ) );
+
+        listener.onPostUpdateCollection( event );
+
+        evaluate();
+
+        verify( implementableRuleService, times( 2 ) ).getImplementableRules( program );
+    }
+
+    @Test
+    public void testNoInvalidateOnUnrelatedCollectionUpdate()
+    {
+        evaluate();
+
+        PostCollectionUpdateEvent event = mock( PostCollectionUpdateEvent.class );
+        when( event.getAffectedOwnerOrNull() ).thenReturn( new OrganisationUnit( "Unit" ) );
+
+        listener.onPostUpdateCollection( event );
+
+        evaluate();
+
+        verify( implementableRuleService, times( 1 ) ).getImplementableRules( program );
+    }
+
+    private List<RuleEffect> evaluate()
+    {
+        return programRuleEngine.evaluate( enrollment, Optional.empty(), Collections.emptySet() );
+    }
+}
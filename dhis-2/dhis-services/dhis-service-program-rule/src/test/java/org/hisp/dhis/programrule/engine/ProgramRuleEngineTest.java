@@ -262,6 +262,28 @@ public class ProgramRuleEngineTest extends DhisSpringTest
         assertEquals( "PNT-1", ruleActionSendMessage.notification() );
     }
 
+    @Test
+    public void testSendMessageForEnrollmentBatch()
+    {
+        setUpSendMessageForEnrollment();
+
+        ProgramInstance programInstance = programInstanceService.getProgramInstance( "UID-P1" );
+
+        Map<String, List<RuleEffect>> ruleEffects = programRuleEngine.evaluateEnrollments(
+            Collections.singletonMap( programInstance, Sets.newHashSet() ), true );
+
+        assertEquals( 1, ruleEffects.size() );
+        assertEquals( 1, ruleEffects.get( "UID-P1" ).size() );
+
+        RuleAction ruleAction = ruleEffects.get( "UID-P1" ).get( 0 ).ruleAction();
+
+        assertTrue( ruleAction instanceof RuleActionSendMessage );
+
+        RuleActionSendMessage ruleActionSendMessage = (RuleActionSendMessage) ruleAction;
+
+        assertEquals( "PNT-1", ruleActionSendMessage.notification() );
+    }
+
     @Test
     public void testSendMessageForEvent()
     {
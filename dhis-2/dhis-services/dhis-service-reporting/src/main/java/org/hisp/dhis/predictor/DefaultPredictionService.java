@@ -39,7 +39,12 @@ import static org.hisp.dhis.system.notification.NotificationLevel.ERROR;
 import static org.hisp.dhis.system.util.ValidationUtils.dataValueIsZeroAndInsignificant;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -49,7 +54,11 @@ import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.*;
 import org.hisp.dhis.commons.collection.CachingMap;
+import org.hisp.dhis.commons.timer.SystemTimer;
+import org.hisp.dhis.commons.timer.Timer;
+import org.hisp.dhis.commons.util.ConcurrentUtils;
 import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.constant.Constant;
 import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.dataelement.DataElement;
@@ -60,6 +69,7 @@ import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.expression.Expression;
 import org.hisp.dhis.expression.ExpressionService;
+import org.hisp.dhis.indicator.Indicator;
 import org.hisp.dhis.jdbc.batchhandler.DataValueBatchHandler;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitLevel;
@@ -79,8 +89,14 @@ import org.hisp.dhis.user.User;
 import org.hisp.dhis.util.DateUtils;
 import org.hisp.quick.BatchHandler;
 import org.hisp.quick.BatchHandlerFactory;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -120,11 +136,14 @@ public class DefaultPredictionService
 
     private CurrentUserService currentUserService;
 
+    private final PlatformTransactionManager transactionManager;
+
     public DefaultPredictionService( PredictorService predictorService, ConstantService constantService,
         ExpressionService expressionService, DataValueService dataValueService, CategoryService categoryService,
         OrganisationUnitService organisationUnitService, PeriodService periodService,
         IdentifiableObjectManager idObjectManager, AnalyticsService analyticsService, Notifier notifier,
-        BatchHandlerFactory batchHandlerFactory, CurrentUserService currentUserService )
+        BatchHandlerFactory batchHandlerFactory, CurrentUserService currentUserService,
+        PlatformTransactionManager transactionManager )
     {
         checkNotNull( predictorService );
         checkNotNull( constantService );
@@ -137,6 +156,7 @@ public class DefaultPredictionService
         checkNotNull( notifier );
         checkNotNull( batchHandlerFactory );
         checkNotNull( currentUserService );
+        checkNotNull( transactionManager );
 
         this.predictorService = predictorService;
         this.constantService = constantService;
@@ -150,6 +170,7 @@ public class DefaultPredictionService
         this.notifier = notifier;
         this.batchHandlerFactory = batchHandlerFactory;
         this.currentUserService = currentUserService;
+        this.transactionManager = transactionManager;
     }
 
     /**
@@ -181,7 +202,13 @@ public class DefaultPredictionService
      */
     private final static String NON_AOC = "x";
 
+    /**
+     * Max number of organisation units to predict for in one block.
+     */
+    private static final int ORG_UNIT_BLOCK_SIZE = 500;
+
     @Override
+    @Transactional( propagation = Propagation.SUPPORTS )
     public PredictionSummary predictJob( PredictorJobParameters params, JobConfiguration jobId )
     {
         Date startDate = DateUtils.getDateAfterAddition( new Date(), params.getRelativeStart() );
@@ -191,6 +218,7 @@ public class DefaultPredictionService
     }
 
     @Override
+    @Transactional( propagation = Propagation.SUPPORTS )
     public PredictionSummary predictTask( Date startDate, Date endDate,
         List<String> predictors, List<String> predictorGroups, JobConfiguration jobId )
     {
@@ -219,37 +247,35 @@ public class DefaultPredictionService
 
     private PredictionSummary predictInternal( Date startDate, Date endDate, List<String> predictors, List<String> predictorGroups )
     {
-        List<Predictor> predictorList = new ArrayList<>();
+        PredictionSummary predictionSummary = new PredictionSummary();
 
-        if ( CollectionUtils.isEmpty( predictors ) && CollectionUtils.isEmpty( predictorGroups ) )
-        {
-            predictorList = predictorService.getAllPredictors();
-        }
-        else
-        {
-            if ( !CollectionUtils.isEmpty( predictors ) )
-            {
-                predictorList = idObjectManager.get( Predictor.class, predictors );
-            }
+        // Within an existing transaction uncommitted changes must be visible,
+        // predict on the current thread. Otherwise the blocks of each stage
+        // are predicted in their own transactions on separate threads.
 
-            if ( !CollectionUtils.isEmpty( predictorGroups ) )
-            {
-                List<PredictorGroup> predictorGroupList = idObjectManager.get( PredictorGroup.class, predictorGroups );
+        boolean inTransaction = TransactionSynchronizationManager.isActualTransactionActive();
 
-                for ( PredictorGroup predictorGroup : predictorGroupList )
+        PredictionPlan plan = inTransaction ?
+            getPredictionPlan( startDate, endDate, predictors, predictorGroups, false, predictionSummary ) :
+            new TransactionTemplate( transactionManager ).execute( status ->
+                getPredictionPlan( startDate, endDate, predictors, predictorGroups, true, predictionSummary ) );
+
+        log.info( "Running " + predictionSummary.getPredictors() + " predictors in " + plan.stages.size() +
+            " stages from " + startDate.toString() + " to " + endDate.toString() );
+
+        if ( inTransaction )
+        {
+            for ( List<PredictionBlock> stage : plan.stages )
+            {
+                for ( PredictionBlock block : stage )
                 {
-                    predictorList.addAll( predictorGroup.getMembers() );
+                    predictionSummary.add( predictBlock( block, plan ) );
                 }
             }
         }
-
-        PredictionSummary predictionSummary = new PredictionSummary();
-
-        log.info( "Running " + predictorList.size() + " predictors from " + startDate.toString() + " to " + endDate.toString() );
-
-        for ( Predictor predictor : predictorList )
+        else
         {
-            predict( predictor, startDate, endDate, predictionSummary );
+            predictInParallel( plan, predictionSummary );
         }
 
         log.info( "Finished predictors from " + startDate.toString() + " to " + endDate.toString() + ": " + predictionSummary.toString() );
@@ -260,10 +286,58 @@ public class DefaultPredictionService
     @Override
     public void predict( Predictor predictor, Date startDate, Date endDate, PredictionSummary predictionSummary )
     {
-        Expression generator = predictor.getGenerator();
-        Expression skipTest = predictor.getSampleSkipTest();
-        DataElement outputDataElement = predictor.getOutput();
+        List<PredictorContext> contexts = Lists.newArrayList(
+            getPredictorContext( predictor, categoryService.getDefaultCategoryOptionCombo() ) );
+        Map<String, Constant> constantMap = constantService.getConstantMap();
+        PredictionPeriods periods = getPredictionPeriods( predictor, startDate, endDate, false );
+
+        Set<OrganisationUnit> currentUserOrgUnits = new HashSet<>();
+        String storedBy = "system-process";
+        User currentUser = currentUserService.getCurrentUser();
+
+        if ( currentUser != null )
+        {
+            currentUserOrgUnits = currentUser.getOrganisationUnits();
+            storedBy = currentUser.getUsername();
+        }
+
+        predictionSummary.incrementPredictors();
+
+        // Do separate predictor processing for each organisation unit level
+        // selected. This is because at each level, predictions might be based
+        // on data aggregated from all descendant org units. So to prevent
+        // confusion, data for different levels are fetched independently.
+
+        for ( OrganisationUnitLevel orgUnitLevel : predictor.getOrganisationUnitLevels() )
+        {
+            List<OrganisationUnit> orgUnitsAtLevel = organisationUnitService.getOrganisationUnitsAtOrgUnitLevels(
+                    Lists.newArrayList( orgUnitLevel ), currentUserOrgUnits );
+
+            // For performance, fetch the data from a bunch of orgUnits at once.
+
+            for ( List<OrganisationUnit> orgUnits : Lists.partition( orgUnitsAtLevel, ORG_UNIT_BLOCK_SIZE ) )
+            {
+                predictOrgUnits( contexts, periods, orgUnits, constantMap, storedBy, predictionSummary );
+            }
+        }
+    }
 
+    /**
+     * Makes the predictions of one or more predictors for a block of
+     * organisation units. Data for all predictors is fetched at once, as the
+     * predictors share their sample and output periods.
+     *
+     * @param contexts the predictors to predict for.
+     * @param periods the output and sample periods of the predictors.
+     * @param orgUnits the organisation units to predict for.
+     * @param constantMap constants to use in expressions.
+     * @param storedBy the username to store predictions by.
+     * @param predictionSummary the prediction summary to update.
+     */
+    private void predictOrgUnits( List<PredictorContext> contexts, PredictionPeriods periods,
+        List<OrganisationUnit> orgUnits, Map<String, Constant> constantMap, String storedBy,
+        PredictionSummary predictionSummary )
+    {
         // Note that data is collected for the output (predicted) period based
         // on items that are not enclosed within vector functions (like sum,
         // stddev, etc.) For items that are within vector functions, and
@@ -273,26 +347,145 @@ public class DefaultPredictionService
 
         Set<DimensionalItemObject> items = new HashSet<>(); // Non-sampled items.
         Set<DimensionalItemObject> sampleItems = new HashSet<>(); // Sampled items.
-        expressionService.getExpressionDimensionalItemObjects( generator.getExpression(), PREDICTOR_EXPRESSION, items, sampleItems );
-        if ( skipTest != null )
+
+        for ( PredictorContext context : contexts )
         {
-            expressionService.getExpressionDimensionalItemObjects( skipTest.getExpression(), PREDICTOR_SKIP_TEST, sampleItems, new HashSet<>() );
+            items.addAll( context.items );
+            sampleItems.addAll( context.sampleItems );
         }
-        Map<String, Constant> constantMap = constantService.getConstantMap();
-        List<Period> outputPeriods = getPeriodsBetweenDates( predictor.getPeriodType(), startDate, endDate );
-        Set<Period> existingOutputPeriods = getExistingPeriods( outputPeriods );
-        ListMap<Period, Period> samplePeriodsMap = getSamplePeriodsMap( outputPeriods, predictor );
-        Set<Period> allSamplePeriods = samplePeriodsMap.uniqueValues();
-        Set<Period> existingSamplePeriods = getExistingPeriods( new ArrayList<>( allSamplePeriods ) );
-        outputPeriods = periodService.reloadPeriods( outputPeriods );
-        Set<Period> outputPeriodSet = new HashSet<>( outputPeriods );
+
+        Timer fetchTimer = new SystemTimer().start();
+
+        Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> sampleMap4 = sampleItems.isEmpty() ?
+            new Map4<>() : getDataValues( sampleItems, periods.allSamplePeriods, periods.existingSamplePeriods, orgUnits );
+
+        Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> valueMap4 = items.isEmpty() ?
+            new Map4<>() : getDataValues( items, periods.outputPeriodSet, periods.existingOutputPeriods, orgUnits );
+
+        // The fetch time is shared equally by the predictors
+
+        long fetchTime = fetchTimer.stop().duration() / contexts.size();
+
+        // Data fetched for several predictors is restricted to the items of
+        // each predictor, so that predictors neither see nor modify the data
+        // of other predictors.
+
+        boolean shared = contexts.size() > 1;
+
+        for ( PredictorContext context : contexts )
+        {
+            Timer timer = new SystemTimer().start();
+
+            Predictor predictor = context.predictor;
+            Expression generator = predictor.getGenerator();
+            Expression skipTest = predictor.getSampleSkipTest();
+            DataElement outputDataElement = predictor.getOutput();
+            CachingMap<String, CategoryOptionCombo> cocMap = new CachingMap<>();
+            Date now = new Date();
+
+            List<DataValue> predictions = new ArrayList<>();
+
+            // For each org unit, find its sample data and its non-sample
+            // data values.
+            //
+            // We will make independent predictions for each attribute
+            // option combination, but some analytics data that is not
+            // stored by AOC must be evaluated with every AOC found.
+
+            for ( OrganisationUnit orgUnit : orgUnits )
+            {
+                MapMapMap<String, Period, DimensionalItemObject, Double> sampleMap3 = getItemValues( sampleMap4.get( orgUnit ), context.sampleItems, shared );
+                MapMapMap<String, Period, DimensionalItemObject, Double> valueMap3 = getItemValues( valueMap4.get( orgUnit ), context.items, shared );
+
+                MapMap<Period, DimensionalItemObject, Double> sampleMapNonAoc = firstNonNull( sampleMap3.get( NON_AOC ), new MapMap<>() );
+                MapMap<Period, DimensionalItemObject, Double> valueMapNonAoc = firstNonNull( valueMap3.get( NON_AOC ), new MapMap<>() );
+
+                Set<String> attributeOptionCombos = getAttributeOptionCombos( sampleMap3, valueMap3, periods.defaultOptionComboAsSet );
+
+                // Predict independently for each AOC, adding in the data,
+                // if any, that is stored without an AOC.
+
+                for ( String aoc : attributeOptionCombos )
+                {
+                    MapMap<Period, DimensionalItemObject, Double> sampleMap2 = firstNonNull( sampleMap3.get( aoc ), new MapMap<>() );
+                    MapMap<Period, DimensionalItemObject, Double> valueMap2 = firstNonNull( valueMap3.get( aoc ), new MapMap<>() );
+
+                    sampleMap2.putMap( sampleMapNonAoc );
+                    valueMap2.putMap( valueMapNonAoc );
+
+                    MapMap<Period, DimensionalItemObject, Double> periodValueMap = applySkipTest( sampleMap2, skipTest, constantMap );
+
+                    // Predict for each output period.
+
+                    for ( Period outputPeriod : periods.outputPeriods )
+                    {
+                        Map<DimensionalItemObject, Double> valueMap = firstNonNull( valueMap2.get( outputPeriod ), new HashMap<>() );
+
+                        if ( context.requireData && dataIsAbsent( outputPeriod, valueMap, periods.samplePeriodsMap, periodValueMap ) )
+                        {
+                            continue;
+                        }
+
+                        Double value = castDouble( expressionService.getExpressionValue( generator.getExpression(),
+                                PREDICTOR_EXPRESSION, valueMap, constantMap, null,
+                                outputPeriod.getDaysInPeriod(), generator.getMissingValueStrategy(),
+                                periods.samplePeriodsMap.get( outputPeriod ), periodValueMap ) );
+
+                        carryPredictionForward( value, outputPeriod, context.predictionReference, periodValueMap );
+
+                        if ( value != null && !value.isNaN() && !value.isInfinite() &&
+                            !dataValueIsZeroAndInsignificant( Double.toString( value ), outputDataElement ) )
+                        {
+                            String valueString = outputDataElement.getValueType().isInteger() ?
+                                Long.toString( Math.round( value ) ) :
+                                Double.toString( MathUtils.roundFraction( value, 4 ) );
+
+                            predictions.add( new DataValue( outputDataElement,
+                                outputPeriod, orgUnit, context.outputOptionCombo,
+                                cocMap.get( aoc, () -> categoryService.getCategoryOptionCombo( aoc ) ),
+                                valueString, storedBy, now, null ) );
+                        }
+                    }
+                }
+            }
+
+            writePredictions( predictions, outputDataElement, context.outputOptionCombo,
+                periods.outputPeriodSet, periods.existingOutputPeriods, orgUnits, storedBy, predictionSummary );
+
+            predictionSummary.addPredictorTime( predictor.getUid(),
+                TimeUnit.NANOSECONDS.toMillis( fetchTime + timer.stop().duration() ) );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Prediction planning
+    // -------------------------------------------------------------------------
+
+    /**
+     * Plans the predictions of the given predictors and predictor groups.
+     * Predictors are divided into stages, where the predictors of a stage do
+     * not depend on the output of each other, but may depend on the output of
+     * predictors of earlier stages. The predictors of a stage which share
+     * periods and organisation unit levels are predicted together, in blocks
+     * of organisation units.
+     *
+     * @param startDate the start date of the predictions.
+     * @param endDate the end date of the predictions.
+     * @param predictors the UIDs of the predictors.
+     * @param predictorGroups the UIDs of the predictor groups.
+     * @param periodsCommitted whether output periods created here are
+     *        committed before the predictions are made.
+     * @param predictionSummary the prediction summary to update.
+     * @return the prediction plan.
+     */
+    private PredictionPlan getPredictionPlan( Date startDate, Date endDate, List<String> predictors,
+        List<String> predictorGroups, boolean periodsCommitted, PredictionSummary predictionSummary )
+    {
         CategoryOptionCombo defaultCategoryOptionCombo = categoryService.getDefaultCategoryOptionCombo();
-        Set<String> defaultOptionComboAsSet = Sets.newHashSet( defaultCategoryOptionCombo.getUid() );
-        CategoryOptionCombo outputOptionCombo = predictor.getOutputCombo() == null ? defaultCategoryOptionCombo : predictor.getOutputCombo();
-        CachingMap<String, CategoryOptionCombo> cocMap = new CachingMap<>();
-        Date now = new Date();
-        boolean requireData = generator.getMissingValueStrategy() != NEVER_SKIP && ( !items.isEmpty() || !sampleItems.isEmpty() );
-        DimensionalItemObject predictionReference = getPredictionReference( outputDataElement, outputOptionCombo, sampleItems );
+
+        List<PredictorContext> contexts = getPredictors( predictors, predictorGroups ).stream()
+            .map( p -> getPredictorContext( p, defaultCategoryOptionCombo ) )
+            .collect( Collectors.toList() );
 
         Set<OrganisationUnit> currentUserOrgUnits = new HashSet<>();
         String storedBy = "system-process";
@@ -304,105 +497,370 @@ public class DefaultPredictionService
             storedBy = currentUser.getUsername();
         }
 
-        predictionSummary.incrementPredictors();
+        PredictionPlan plan = new PredictionPlan( constantService.getConstantMap(), storedBy );
 
-        // Do separate predictor processing for each organisation unit level
-        // selected. This is because at each level, predictions might be based
-        // on data aggregated from all descendant org units. So to prevent
-        // confusion, data for different levels are fetched independently.
+        for ( List<PredictorContext> stage : getPredictorStages( contexts ) )
+        {
+            // The organisation unit levels of a predictor are predicted one
+            // after another, as predictions at a level may be based on data
+            // aggregated from the predictions at the levels below. The blocks
+            // of the n-th level of each group are hence placed in the n-th step.
 
-        for ( OrganisationUnitLevel orgUnitLevel : predictor.getOrganisationUnitLevels() )
+            List<List<PredictionBlock>> steps = new ArrayList<>();
+
+            for ( List<PredictorContext> group : getPredictorGroups( stage ) )
+            {
+                Predictor predictor = group.get( 0 ).predictor;
+                PredictionPeriods periods = getPredictionPeriods( predictor, startDate, endDate, periodsCommitted );
+                List<String> predictorUids = group.stream().map( c -> c.predictor.getUid() ).collect( Collectors.toList() );
+
+                int step = 0;
+
+                for ( OrganisationUnitLevel orgUnitLevel : predictor.getOrganisationUnitLevels() )
+                {
+                    List<OrganisationUnit> orgUnitsAtLevel = organisationUnitService.getOrganisationUnitsAtOrgUnitLevels(
+                        Lists.newArrayList( orgUnitLevel ), currentUserOrgUnits );
+
+                    if ( steps.size() <= step )
+                    {
+                        steps.add( new ArrayList<>() );
+                    }
+
+                    for ( List<OrganisationUnit> orgUnits : Lists.partition( orgUnitsAtLevel, ORG_UNIT_BLOCK_SIZE ) )
+                    {
+                        steps.get( step ).add( new PredictionBlock( predictorUids, periods,
+                            orgUnits.stream().map( OrganisationUnit::getId ).collect( Collectors.toList() ) ) );
+                    }
+
+                    step++;
+                }
+
+                group.forEach( c -> predictionSummary.incrementPredictors() );
+            }
+
+            steps.stream().filter( blocks -> !blocks.isEmpty() ).forEach( plan.stages::add );
+        }
+
+        return plan;
+    }
+
+    private List<Predictor> getPredictors( List<String> predictors, List<String> predictorGroups )
+    {
+        List<Predictor> predictorList = new ArrayList<>();
+
+        if ( CollectionUtils.isEmpty( predictors ) && CollectionUtils.isEmpty( predictorGroups ) )
         {
-            List<OrganisationUnit> orgUnitsAtLevel = organisationUnitService.getOrganisationUnitsAtOrgUnitLevels(
-                    Lists.newArrayList( orgUnitLevel ), currentUserOrgUnits );
+            predictorList = predictorService.getAllPredictors();
+        }
+        else
+        {
+            if ( !CollectionUtils.isEmpty( predictors ) )
+            {
+                predictorList = idObjectManager.get( Predictor.class, predictors );
+            }
 
-            if ( orgUnitsAtLevel.size() == 0 )
+            if ( !CollectionUtils.isEmpty( predictorGroups ) )
             {
-                continue;
+                List<PredictorGroup> predictorGroupList = idObjectManager.get( PredictorGroup.class, predictorGroups );
+
+                for ( PredictorGroup predictorGroup : predictorGroupList )
+                {
+                    predictorList.addAll( predictorGroup.getMembers() );
+                }
             }
+        }
 
-            // For performance, fetch the data from a bunch of orgUnits at once.
+        return predictorList;
+    }
 
-            List<List<OrganisationUnit>> orgUnitLists = Lists.partition( orgUnitsAtLevel, 500 );
+    /**
+     * Divides predictors into stages. A predictor is placed in a later stage
+     * than the predictors it depends on, which are the predictors whose output
+     * it uses as input, and the earlier predictors in the list with the same
+     * output. Predictors with circular dependencies are run one at a time in
+     * list order.
+     *
+     * @param contexts the predictors in list order.
+     * @return the predictors by stage.
+     */
+    private List<List<PredictorContext>> getPredictorStages( List<PredictorContext> contexts )
+    {
+        List<List<PredictorContext>> stages = new ArrayList<>();
+        List<PredictorContext> remaining = new ArrayList<>( contexts );
 
-            for ( List<OrganisationUnit> orgUnits : orgUnitLists )
+        while ( !remaining.isEmpty() )
+        {
+            List<PredictorContext> stage = remaining.stream()
+                .filter( c -> remaining.stream().noneMatch( other -> dependsOn( c, other, remaining ) ) )
+                .collect( Collectors.toList() );
+
+            if ( stage.isEmpty() )
             {
-                Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> sampleMap4 = sampleItems.isEmpty() ?
-                    new Map4<>() : getDataValues( sampleItems, allSamplePeriods, existingSamplePeriods, orgUnits );
+                stage = Lists.newArrayList( remaining.get( 0 ) );
+            }
 
-                Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> valueMap4 = items.isEmpty() ?
-                        new Map4<>() : getDataValues( items, outputPeriodSet, existingOutputPeriods, orgUnits );
+            remaining.removeAll( stage );
+            stages.add( stage );
+        }
 
-                List<DataValue> predictions = new ArrayList<>();
+        return stages;
+    }
 
-                // For each org unit, find its sample data and its non-sample
-                // data values.
-                //
-                // We will make independent predictions for each attribute
-                // option combination, but some analytics data that is not
-                // stored by AOC must be evaluated with every AOC found.
+    /**
+     * Indicates whether a predictor depends on another predictor. Indicators
+     * used by the predictor are expanded to the items of their numerator and
+     * denominator, and program indicators depend on the output if their
+     * expression or filter refers to it.
+     *
+     * @param context the predictor.
+     * @param other the other predictor.
+     * @param order the predictors in list order.
+     * @return true if the predictor depends on the other predictor.
+     */
+    private boolean dependsOn( PredictorContext context, PredictorContext other, List<PredictorContext> order )
+    {
+        if ( context == other )
+        {
+            return false;
+        }
 
-                for ( OrganisationUnit orgUnit : orgUnits )
-                {
-                    MapMapMap<String, Period, DimensionalItemObject, Double> sampleMap3 = firstNonNull( sampleMap4.get( orgUnit ), new MapMapMap<>() );
-                    MapMapMap<String, Period, DimensionalItemObject, Double> valueMap3 = firstNonNull( valueMap4.get( orgUnit ), new MapMapMap<>() );
+        DataElement output = other.predictor.getOutput();
 
-                    MapMap<Period, DimensionalItemObject, Double> sampleMapNonAoc = firstNonNull( sampleMap3.get( NON_AOC ), new MapMap<>() );
-                    MapMap<Period, DimensionalItemObject, Double> valueMapNonAoc = firstNonNull( valueMap3.get( NON_AOC ), new MapMap<>() );
+        if ( output.equals( context.predictor.getOutput() ) &&
+            other.outputOptionCombo.equals( context.outputOptionCombo ) )
+        {
+            return order.indexOf( other ) < order.indexOf( context );
+        }
 
-                    Set<String> attributeOptionCombos = getAttributeOptionCombos( sampleMap3, valueMap3, defaultOptionComboAsSet );
+        return context.inputItems.stream().anyMatch( item -> isOutputItem( output, item ) );
+    }
 
-                    // Predict independently for each AOC, adding in the data,
-                    // if any, that is stored without an AOC.
+    /**
+     * Indicates whether the given item refers to the given output data
+     * element. Program indicators refer to data elements by UID in their
+     * expression and filter.
+     *
+     * @param output the output data element.
+     * @param item the item.
+     * @return true if the item refers to the output.
+     */
+    private boolean isOutputItem( DataElement output, DimensionalItemObject item )
+    {
+        if ( item instanceof DataElementOperand )
+        {
+            return output.equals( ( (DataElementOperand) item ).getDataElement() );
+        }
+        else if ( item instanceof ProgramIndicator )
+        {
+            ProgramIndicator programIndicator = (ProgramIndicator) item;
 
-                    for ( String aoc : attributeOptionCombos )
-                    {
-                        MapMap<Period, DimensionalItemObject, Double> sampleMap2 = firstNonNull( sampleMap3.get( aoc ), new MapMap<>() );
-                        MapMap<Period, DimensionalItemObject, Double> valueMap2 = firstNonNull( valueMap3.get( aoc ), new MapMap<>() );
+            return StringUtils.contains( programIndicator.getExpression(), output.getUid() ) ||
+                StringUtils.contains( programIndicator.getFilter(), output.getUid() );
+        }
 
-                        sampleMap2.putMap( sampleMapNonAoc );
-                        valueMap2.putMap( valueMapNonAoc );
+        return output.equals( item );
+    }
 
-                        MapMap<Period, DimensionalItemObject, Double> periodValueMap = applySkipTest( sampleMap2, skipTest, constantMap );
+    /**
+     * Returns the items which a predictor reads, with indicators expanded to
+     * the items of their numerator and denominator.
+     *
+     * @param items the items of the generator.
+     * @param sampleItems the sample items of the generator and skip test.
+     * @return the input items.
+     */
+    private Set<DimensionalItemObject> getInputItems( Set<DimensionalItemObject> items, Set<DimensionalItemObject> sampleItems )
+    {
+        Set<DimensionalItemObject> inputItems = new HashSet<>();
+        List<Indicator> indicators = new ArrayList<>();
 
-                        // Predict for each output period.
+        Stream.concat( items.stream(), sampleItems.stream() ).forEach( item -> {
+            if ( item instanceof Indicator )
+            {
+                indicators.add( (Indicator) item );
+            }
+            else
+            {
+                inputItems.add( item );
+            }
+        } );
 
-                        for ( Period outputPeriod : outputPeriods )
-                        {
-                            Map<DimensionalItemObject, Double> valueMap = firstNonNull( valueMap2.get( outputPeriod ), new HashMap<>() );
+        if ( !indicators.isEmpty() )
+        {
+            inputItems.addAll( expressionService.getIndicatorDimensionalItemObjects( indicators ) );
+        }
 
-                            if ( requireData && dataIsAbsent( outputPeriod, valueMap, samplePeriodsMap, periodValueMap ) )
-                            {
-                                continue;
-                            }
+        return inputItems;
+    }
+
+    /**
+     * Groups the predictors of a stage which have the same period type,
+     * sample counts and organisation unit levels. The data of the predictors
+     * of a group can be fetched at once.
+     *
+     * @param stage the predictors of a stage.
+     * @return the predictors by group.
+     */
+    private Collection<List<PredictorContext>> getPredictorGroups( List<PredictorContext> stage )
+    {
+        Map<String, List<PredictorContext>> groups = new LinkedHashMap<>();
+
+        for ( PredictorContext context : stage )
+        {
+            Predictor p = context.predictor;
+
+            String key = p.getPeriodType().getName() + "-" + p.getSequentialSampleCount() + "-" +
+                p.getAnnualSampleCount() + "-" + firstNonNull( p.getSequentialSkipCount(), 0 ) + "-" +
+                p.getOrganisationUnitLevels().stream().map( OrganisationUnitLevel::getId ).sorted()
+                    .map( String::valueOf ).collect( Collectors.joining( "," ) );
+
+            groups.computeIfAbsent( key, k -> new ArrayList<>() ).add( context );
+        }
+
+        return groups.values();
+    }
+
+    /**
+     * Predicts the stages of a plan in order. The blocks of a stage are
+     * predicted concurrently, each in its own transaction. As the levels of a
+     * predictor are in separate stages, they are predicted in order.
+     *
+     * @param plan the prediction plan.
+     * @param predictionSummary the prediction summary to update.
+     */
+    private void predictInParallel( PredictionPlan plan, PredictionSummary predictionSummary )
+    {
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        User contextUser = UserContext.getUser();
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate( transactionManager );
+
+        int maxBlocks = plan.stages.stream().mapToInt( List::size ).max().orElse( 1 );
+
+        ExecutorService executor = Executors.newFixedThreadPool( Math.min( maxBlocks, SystemUtils.getCpuCores() ) );
+
+        try
+        {
+            for ( List<PredictionBlock> stage : plan.stages )
+            {
+                List<Future<?>> futures = new ArrayList<>();
 
-                            Double value = castDouble( expressionService.getExpressionValue( generator.getExpression(),
-                                    PREDICTOR_EXPRESSION, valueMap, constantMap, null,
-                                    outputPeriod.getDaysInPeriod(), generator.getMissingValueStrategy(),
-                                    samplePeriodsMap.get( outputPeriod ), periodValueMap ) );
+                for ( PredictionBlock block : stage )
+                {
+                    futures.add( executor.submit( () -> {
+                        SecurityContextHolder.setContext( securityContext );
+                        UserContext.setUser( contextUser );
 
-                            carryPredictionForward( value, outputPeriod, predictionReference, periodValueMap );
+                        try
+                        {
+                            PredictionSummary blockSummary = transactionTemplate.execute( status -> predictBlock( block, plan ) );
 
-                            if ( value != null && !value.isNaN() && !value.isInfinite() &&
-                                !dataValueIsZeroAndInsignificant( Double.toString( value ), outputDataElement ) )
+                            synchronized ( predictionSummary )
                             {
-                                String valueString = outputDataElement.getValueType().isInteger() ?
-                                    Long.toString( Math.round( value ) ) :
-                                    Double.toString( MathUtils.roundFraction( value, 4 ) );
-
-                                predictions.add( new DataValue( outputDataElement,
-                                    outputPeriod, orgUnit, outputOptionCombo,
-                                    cocMap.get( aoc, () -> categoryService.getCategoryOptionCombo( aoc ) ),
-                                    valueString, storedBy, now, null ) );
+                                predictionSummary.add( blockSummary );
                             }
                         }
-                    }
+                        finally
+                        {
+                            UserContext.reset();
+                            SecurityContextHolder.clearContext();
+                        }
+                    } ) );
                 }
 
-                writePredictions( predictions, outputDataElement, outputOptionCombo,
-                    outputPeriodSet, existingOutputPeriods, orgUnits, storedBy, predictionSummary );
+                // Predictors of the next stage may use the output of this stage
+
+                ConcurrentUtils.waitForCompletion( futures );
             }
         }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Predicts a block of organisation units. Predictors and organisation
+     * units are loaded in the current session, as blocks may be predicted on
+     * other threads than the one that planned them.
+     *
+     * @param block the prediction block.
+     * @param plan the prediction plan.
+     * @return the prediction summary of the block.
+     */
+    private PredictionSummary predictBlock( PredictionBlock block, PredictionPlan plan )
+    {
+        PredictionSummary blockSummary = new PredictionSummary();
+
+        CategoryOptionCombo defaultCategoryOptionCombo = categoryService.getDefaultCategoryOptionCombo();
+
+        List<PredictorContext> contexts = idObjectManager.getByUidOrdered( Predictor.class, block.predictorUids ).stream()
+            .map( p -> getPredictorContext( p, defaultCategoryOptionCombo ) )
+            .collect( Collectors.toList() );
+
+        List<OrganisationUnit> orgUnits = idObjectManager.getById( OrganisationUnit.class, block.orgUnitIds );
+
+        predictOrgUnits( contexts, block.periods, orgUnits, plan.constantMap, plan.storedBy, blockSummary );
+
+        return blockSummary;
+    }
+
+    /**
+     * Finds the items used by a predictor and other information needed to
+     * make its predictions.
+     *
+     * @param predictor the predictor.
+     * @param defaultCategoryOptionCombo the default category option combo.
+     * @return the predictor context.
+     */
+    private PredictorContext getPredictorContext( Predictor predictor, CategoryOptionCombo defaultCategoryOptionCombo )
+    {
+        Expression generator = predictor.getGenerator();
+        Expression skipTest = predictor.getSampleSkipTest();
+
+        Set<DimensionalItemObject> items = new HashSet<>();
+        Set<DimensionalItemObject> sampleItems = new HashSet<>();
+        expressionService.getExpressionDimensionalItemObjects( generator.getExpression(), PREDICTOR_EXPRESSION, items, sampleItems );
+        if ( skipTest != null )
+        {
+            expressionService.getExpressionDimensionalItemObjects( skipTest.getExpression(), PREDICTOR_SKIP_TEST, sampleItems, new HashSet<>() );
+        }
+
+        CategoryOptionCombo outputOptionCombo = predictor.getOutputCombo() == null ? defaultCategoryOptionCombo : predictor.getOutputCombo();
+        boolean requireData = generator.getMissingValueStrategy() != NEVER_SKIP && ( !items.isEmpty() || !sampleItems.isEmpty() );
+        DimensionalItemObject predictionReference = getPredictionReference( predictor.getOutput(), outputOptionCombo, sampleItems );
+
+        return new PredictorContext( predictor, items, sampleItems, getInputItems( items, sampleItems ),
+            outputOptionCombo, requireData, predictionReference );
+    }
+
+    /**
+     * Finds the output and sample periods of a predictor. Output periods are
+     * added to the database if they do not exist.
+     *
+     * @param predictor the predictor.
+     * @param startDate the start date of the predictions.
+     * @param endDate the end date of the predictions.
+     * @param periodsCommitted whether added output periods are committed
+     *        before the predictions are made.
+     * @return the prediction periods.
+     */
+    private PredictionPeriods getPredictionPeriods( Predictor predictor, Date startDate, Date endDate, boolean periodsCommitted )
+    {
+        List<Period> outputPeriods = getPeriodsBetweenDates( predictor.getPeriodType(), startDate, endDate );
+        Set<Period> existingOutputPeriods = getExistingPeriods( outputPeriods );
+        ListMap<Period, Period> samplePeriodsMap = getSamplePeriodsMap( outputPeriods, predictor );
+        Set<Period> allSamplePeriods = samplePeriodsMap.uniqueValues();
+        Set<Period> existingSamplePeriods = getExistingPeriods( new ArrayList<>( allSamplePeriods ) );
+        outputPeriods = periodService.reloadPeriods( outputPeriods );
+
+        if ( periodsCommitted )
+        {
+            existingOutputPeriods = new HashSet<>( outputPeriods );
+        }
+
+        return new PredictionPeriods( outputPeriods, existingOutputPeriods, samplePeriodsMap, allSamplePeriods,
+            existingSamplePeriods, Sets.newHashSet( categoryService.getDefaultCategoryOptionCombo().getUid() ) );
     }
 
     // -------------------------------------------------------------------------
@@ -436,6 +894,48 @@ public class DefaultPredictionService
         return attributeOptionCombos;
     }
 
+    /**
+     * Returns the data of an organisation unit for the items of a predictor.
+     * Data fetched for a single predictor is returned as is, whereas data
+     * fetched for several predictors is copied for the items of the predictor.
+     *
+     * @param map3 the data of the organisation unit, if any.
+     * @param items the items of the predictor.
+     * @param shared whether the data was fetched for several predictors.
+     * @return the data for the items of the predictor.
+     */
+    private MapMapMap<String, Period, DimensionalItemObject, Double> getItemValues(
+        MapMapMap<String, Period, DimensionalItemObject, Double> map3, Set<DimensionalItemObject> items, boolean shared )
+    {
+        if ( map3 == null )
+        {
+            return new MapMapMap<>();
+        }
+
+        if ( !shared )
+        {
+            return map3;
+        }
+
+        MapMapMap<String, Period, DimensionalItemObject, Double> itemValues = new MapMapMap<>();
+
+        for ( Map.Entry<String, MapMap<Period, DimensionalItemObject, Double>> aocEntry : map3.entrySet() )
+        {
+            for ( Map.Entry<Period, Map<DimensionalItemObject, Double>> periodEntry : aocEntry.getValue().entrySet() )
+            {
+                for ( Map.Entry<DimensionalItemObject, Double> itemEntry : periodEntry.getValue().entrySet() )
+                {
+                    if ( items.contains( itemEntry.getKey() ) )
+                    {
+                        itemValues.putEntry( aocEntry.getKey(), periodEntry.getKey(), itemEntry.getKey(), itemEntry.getValue() );
+                    }
+                }
+            }
+        }
+
+        return itemValues;
+    }
+
     /**
      * Checks to see if a dimensional item object has values
      * stored in the database by attribute option combo.
@@ -990,4 +1490,116 @@ public class DefaultPredictionService
 
         dataValueBatchHandler.flush();
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive classes
+    // -------------------------------------------------------------------------
+
+    /**
+     * A predictor with the items it uses and other information needed to
+     * make its predictions.
+     */
+    private static class PredictorContext
+    {
+        private final Predictor predictor;
+
+        private final Set<DimensionalItemObject> items;
+
+        private final Set<DimensionalItemObject> sampleItems;
+
+        private final Set<DimensionalItemObject> inputItems;
+
+        private final CategoryOptionCombo outputOptionCombo;
+
+        private final boolean requireData;
+
+        private final DimensionalItemObject predictionReference;
+
+        PredictorContext( Predictor predictor, Set<DimensionalItemObject> items, Set<DimensionalItemObject> sampleItems,
+            Set<DimensionalItemObject> inputItems, CategoryOptionCombo outputOptionCombo, boolean requireData,
+            DimensionalItemObject predictionReference )
+        {
+            this.predictor = predictor;
+            this.items = items;
+            this.sampleItems = sampleItems;
+            this.inputItems = inputItems;
+            this.outputOptionCombo = outputOptionCombo;
+            this.requireData = requireData;
+            this.predictionReference = predictionReference;
+        }
+    }
+
+    /**
+     * The output and sample periods of one or more predictors.
+     */
+    private static class PredictionPeriods
+    {
+        private final List<Period> outputPeriods;
+
+        private final Set<Period> outputPeriodSet;
+
+        private final Set<Period> existingOutputPeriods;
+
+        private final ListMap<Period, Period> samplePeriodsMap;
+
+        private final Set<Period> allSamplePeriods;
+
+        private final Set<Period> existingSamplePeriods;
+
+        private final Set<String> defaultOptionComboAsSet;
+
+        PredictionPeriods( List<Period> outputPeriods, Set<Period> existingOutputPeriods,
+            ListMap<Period, Period> samplePeriodsMap, Set<Period> allSamplePeriods, Set<Period> existingSamplePeriods,
+            Set<String> defaultOptionComboAsSet )
+        {
+            this.outputPeriods = outputPeriods;
+            this.outputPeriodSet = new HashSet<>( outputPeriods );
+            this.existingOutputPeriods = existingOutputPeriods;
+            this.samplePeriodsMap = samplePeriodsMap;
+            this.allSamplePeriods = allSamplePeriods;
+            this.existingSamplePeriods = existingSamplePeriods;
+            this.defaultOptionComboAsSet = defaultOptionComboAsSet;
+        }
+    }
+
+    /**
+     * A block of organisation units to predict for with one or more
+     * predictors. Predictors and organisation units are referenced by
+     * identifier, as blocks may be predicted in other sessions.
+     */
+    private static class PredictionBlock
+    {
+        private final List<String> predictorUids;
+
+        private final PredictionPeriods periods;
+
+        private final List<Long> orgUnitIds;
+
+        PredictionBlock( List<String> predictorUids, PredictionPeriods periods, List<Long> orgUnitIds )
+        {
+            this.predictorUids = predictorUids;
+            this.periods = periods;
+            this.orgUnitIds = orgUnitIds;
+        }
+    }
+
+    /**
+     * The stages of prediction blocks to predict in order, with the constants
+     * and the username to store predictions by. Each organisation unit level
+     * of a predictor is in a stage of its own.
+     */
+    private static class PredictionPlan
+    {
+        private final List<List<PredictionBlock>> stages = new ArrayList<>();
+
+        private final Map<String, Constant> constantMap;
+
+        private final String storedBy;
+
+        PredictionPlan( Map<String, Constant> constantMap, String storedBy )
+        {
+            this.constantMap = constantMap;
+            this.storedBy = storedBy;
+        }
+    }
 }
@@ -28,6 +28,9 @@ package org.hisp.dhis.predictor;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlRootElement;
@@ -55,6 +58,11 @@ public class PredictionSummary extends AbstractWebMessageResponse
 
     private int unchanged = 0;
 
+    /**
+     * Time spent per predictor in milliseconds, by predictor UID.
+     */
+    private Map<String, Long> predictorTimings = new LinkedHashMap<>();
+
     public PredictionSummary()
     {
     }
@@ -90,6 +98,28 @@ public class PredictionSummary extends AbstractWebMessageResponse
         unchanged += 1;
     }
 
+    public void addPredictorTime( String predictor, long millis )
+    {
+        predictorTimings.merge( predictor, millis, Long::sum );
+    }
+
+    /**
+     * Adds the counts and predictor timings of the given summary to this
+     * summary.
+     *
+     * @param summary the summary to add.
+     */
+    public void add( PredictionSummary summary )
+    {
+        predictors += summary.predictors;
+        inserted += summary.inserted;
+        updated += summary.updated;
+        deleted += summary.deleted;
+        unchanged += summary.unchanged;
+
+        summary.predictorTimings.forEach( this::addPredictorTime );
+    }
+
     public int getPredictions()
     {
         return inserted + updated + unchanged;
@@ -156,6 +186,13 @@ public class PredictionSummary extends AbstractWebMessageResponse
         return unchanged;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public Map<String, Long> getPredictorTimings()
+    {
+        return predictorTimings;
+    }
+
     @Override
     public String toString()
     {
@@ -35,17 +35,26 @@ import static org.hisp.dhis.visualization.VisualizationType.PIVOT_TABLE;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.Serializable;
 import java.io.StringWriter;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PreDestroy;
 import javax.imageio.ImageIO;
 
 import org.apache.velocity.VelocityContext;
 import org.hisp.dhis.common.IdentifiableObjectStore;
+import org.hisp.dhis.common.UserContext;
+import org.hisp.dhis.commons.util.ConcurrentUtils;
 import org.hisp.dhis.commons.util.Encoder;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.dashboard.DashboardItem;
 import org.hisp.dhis.external.conf.ConfigurationKey;
 import org.hisp.dhis.external.conf.DhisConfigurationProvider;
@@ -68,18 +77,28 @@ import org.hisp.dhis.system.velocity.VelocityManager;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserGroup;
+import org.hisp.dhis.user.UserService;
+import org.hisp.dhis.user.UserSettingKey;
+import org.hisp.dhis.user.UserUtils;
 import org.hisp.dhis.visualization.ChartImageGenerator;
 import org.hisp.dhis.visualization.Visualization;
 import org.hisp.dhis.visualization.VisualizationService;
 import org.jfree.chart.JFreeChart;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.MimeTypeUtils;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.Lists;
 import com.google.common.hash.Hashing;
 import com.google.common.io.ByteSource;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -94,6 +113,11 @@ public class DefaultPushAnalysisService
 {
     private static final Encoder encoder = new Encoder();
 
+    /**
+     * Max number of recipients of a single email.
+     */
+    private static final int EMAIL_BATCH_SIZE = 50;
+
     private final Notifier notifier;
 
     private final SystemSettingManager systemSettingManager;
@@ -118,13 +142,23 @@ public class DefaultPushAnalysisService
 
     private final IdentifiableObjectStore<PushAnalysis> pushAnalysisStore;
 
+    private final UserService userService;
+
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Executor generating the reports of the groups of users of a run.
+     */
+    private final ThreadPoolExecutor reportExecutor;
+
     public DefaultPushAnalysisService( Notifier notifier, SystemSettingManager systemSettingManager,
         DhisConfigurationProvider dhisConfigurationProvider, ExternalFileResourceService externalFileResourceService,
         FileResourceService fileResourceService, CurrentUserService currentUserService,
         MapGenerationService mapGenerationService, VisualizationService visualizationService,
         ChartImageGenerator chartImageGenerator, I18nManager i18nManager,
         @Qualifier( "emailMessageSender" ) MessageSender messageSender,
-        @Qualifier( "org.hisp.dhis.pushanalysis.PushAnalysisStore" ) IdentifiableObjectStore<PushAnalysis> pushAnalysisStore )
+        @Qualifier( "org.hisp.dhis.pushanalysis.PushAnalysisStore" ) IdentifiableObjectStore<PushAnalysis> pushAnalysisStore,
+        UserService userService, PlatformTransactionManager transactionManager )
     {
         checkNotNull( notifier );
         checkNotNull( systemSettingManager );
@@ -138,6 +172,8 @@ public class DefaultPushAnalysisService
         checkNotNull( i18nManager );
         checkNotNull( messageSender );
         checkNotNull( pushAnalysisStore );
+        checkNotNull( userService );
+        checkNotNull( transactionManager );
 
         this.notifier = notifier;
         this.systemSettingManager = systemSettingManager;
@@ -151,6 +187,20 @@ public class DefaultPushAnalysisService
         this.i18nManager = i18nManager;
         this.messageSender = messageSender;
         this.pushAnalysisStore = pushAnalysisStore;
+        this.userService = userService;
+        this.transactionManager = transactionManager;
+
+        int threads = SystemUtils.getCpuCores();
+
+        this.reportExecutor = new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat( "push-analysis-%d" ).setDaemon( true ).build() );
+        this.reportExecutor.allowCoreThreadTimeOut( true );
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        reportExecutor.shutdownNow();
     }
 
     //----------------------------------------------------------------------
@@ -170,15 +220,102 @@ public class DefaultPushAnalysisService
     }
 
     @Override
+    @Transactional( propagation = Propagation.SUPPORTS )
     public void runPushAnalysis( String uid, JobConfiguration jobId )
     {
+        notifier.clear( jobId );
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate( transactionManager );
+
         //----------------------------------------------------------------------
-        // Set up
+        // Pre-check and compose groups of users that can receive PushAnalysis
         //----------------------------------------------------------------------
 
+        PushAnalysisRun run = transactionTemplate.execute( status -> preparePushAnalysis( uid, jobId ) );
+
+        if ( run == null )
+        {
+            return;
+        }
+
+        //----------------------------------------------------------------------
+        // Generating reports, once for each group of users
+        //----------------------------------------------------------------------
+
+        log( jobId, NotificationLevel.INFO, "Generating and sending reports", false, null );
+
+        java.util.Map<Integer, String> reports = generateHtmlReports( run, jobId, transactionTemplate );
+
+        //----------------------------------------------------------------------
+        // Sending reports in batches of users
+        //----------------------------------------------------------------------
+
+        for ( int i = 0; i < run.recipientGroups.size(); i++ )
+        {
+            String html = reports.get( i );
+
+            if ( html == null )
+            {
+                continue;
+            }
+
+            for ( List<User> batch : Lists.partition( run.recipientGroups.get( i ), EMAIL_BATCH_SIZE ) )
+            {
+                try
+                {
+                    // TODO: Better handling of messageStatus; Might require refactoring of EmailMessageSender
+                    @SuppressWarnings( "unused" )
+                    Future<OutboundMessageResponse> status = messageSender
+                        .sendMessageAsync( run.title, html, "", null, new HashSet<>( batch ), true );
+                }
+                catch ( Exception e )
+                {
+                    log( jobId, NotificationLevel.ERROR,
+                        "Could not send report for PushAnalysis '" + run.name + "' to " + batch.size() +
+                            " users: " + e.getMessage(), false, e );
+                }
+            }
+        }
+    }
+
+    @Override
+    @Transactional( propagation = Propagation.SUPPORTS )
+    public void runPushAnalysis( List<String> uids, JobConfiguration jobId )
+    {
+        uids.forEach( uid -> runPushAnalysis( uid, jobId ) );
+    }
+
+    @Override
+    public String generateHtmlReport( PushAnalysis pushAnalysis, User user, JobConfiguration jobId )
+        throws IOException
+    {
+        if ( jobId == null )
+        {
+            jobId = new JobConfiguration( "inMemoryGenerateHtmlReport", JobType.PUSH_ANALYSIS, currentUserService.getCurrentUser().getUid(), true );
+            notifier.clear( jobId );
+        }
+
+        user = user == null ? currentUserService.getCurrentUser() : user;
+
+        return generateHtmlReport( pushAnalysis, user, jobId, new HashMap<>() );
+    }
+
+    //--------------------------------------------------------------------------
+    // Supportive methods
+    //--------------------------------------------------------------------------
+
+    /**
+     * Loads the PushAnalysis, checks that it can be run and groups the users
+     * which can receive it by {@link UserUtils#getDataAccessKey(User)}. Users in
+     * the same group see identical reports.
+     *
+     * @param uid the PushAnalysis uid.
+     * @param jobId for logging.
+     * @return the run, or null if the PushAnalysis can not be run.
+     */
+    private PushAnalysisRun preparePushAnalysis( String uid, JobConfiguration jobId )
+    {
         PushAnalysis pushAnalysis = pushAnalysisStore.getByUid( uid );
-        Set<User> receivingUsers = new HashSet<>();
-        notifier.clear( jobId );
 
         //----------------------------------------------------------------------
         // Pre-check
@@ -190,21 +327,21 @@ public class DefaultPushAnalysisService
         {
             log( jobId, NotificationLevel.ERROR,
                 "PushAnalysis with uid '" + uid + "' was not found. Terminating PushAnalysis", true, null );
-            return;
+            return null;
         }
 
         if ( pushAnalysis.getRecipientUserGroups().size() == 0 )
         {
             log( jobId, NotificationLevel.ERROR,
                 "PushAnalysis with uid '" + uid + "' has no userGroups assigned. Terminating PushAnalysis.", true, null );
-            return;
+            return null;
         }
 
         if ( pushAnalysis.getDashboard() == null )
         {
             log( jobId, NotificationLevel.ERROR,
                 "PushAnalysis with uid '" + uid + "' has no dashboard assigned. Terminating PushAnalysis.", true, null );
-            return;
+            return null;
         }
 
         if ( dhisConfigurationProvider.getServerBaseUrl() == null )
@@ -212,7 +349,7 @@ public class DefaultPushAnalysisService
             log( jobId, NotificationLevel.ERROR,
                 "Missing configuration '" + ConfigurationKey.SERVER_BASE_URL.getKey() + "'. Terminating PushAnalysis.",
                 true, null );
-            return;
+            return null;
         }
 
         log( jobId, NotificationLevel.INFO, "pre-check completed successfully", false, null );
@@ -223,6 +360,8 @@ public class DefaultPushAnalysisService
 
         log( jobId, NotificationLevel.INFO, "Composing list of receiving users", false, null );
 
+        Set<User> receivingUsers = new HashSet<>();
+
         for ( UserGroup userGroup : pushAnalysis.getRecipientUserGroups() )
         {
             for ( User user : userGroup.getMembers() )
@@ -238,54 +377,125 @@ public class DefaultPushAnalysisService
             }
         }
 
-        log( jobId, NotificationLevel.INFO, "List composed. " + receivingUsers.size() + " eligible users found.",
-            false, null );
-
-        //----------------------------------------------------------------------
-        // Generating reports
-        //----------------------------------------------------------------------
-
-        log( jobId, NotificationLevel.INFO, "Generating and sending reports", false, null );
+        java.util.Map<String, List<User>> recipientGroups = new LinkedHashMap<>();
 
         for ( User user : receivingUsers )
         {
-            try
-            {
-                String title = pushAnalysis.getTitle();
-                String html = generateHtmlReport( pushAnalysis, user, jobId );
+            recipientGroups.computeIfAbsent( UserUtils.getDataAccessKey( user ), k -> new ArrayList<>() ).add( user );
+        }
 
-                // TODO: Better handling of messageStatus; Might require refactoring of EmailMessageSender
-                @SuppressWarnings( "unused" )
-                Future<OutboundMessageResponse> status = messageSender
-                    .sendMessageAsync( title, html, "", null, Sets.newHashSet( user ), true );
+        log( jobId, NotificationLevel.INFO, "List composed. " + receivingUsers.size() + " eligible users found in " +
+            recipientGroups.size() + " groups with identical reports.", false, null );
 
-            }
-            catch ( Exception e )
+        return new PushAnalysisRun( uid, pushAnalysis.getName(), pushAnalysis.getTitle(),
+            new ArrayList<>( recipientGroups.values() ) );
+    }
+
+    /**
+     * Generates the report for each group of users of the run. Reports are
+     * generated in parallel unless a transaction is active, in which case they
+     * are generated in the current transaction.
+     *
+     * @param run the run.
+     * @param jobId for logging.
+     * @param transactionTemplate the template of the transaction of each report.
+     * @return the reports by index of the group of users. Reports which could
+     *         not be generated are missing.
+     */
+    private java.util.Map<Integer, String> generateHtmlReports( PushAnalysisRun run, JobConfiguration jobId,
+        TransactionTemplate transactionTemplate )
+    {
+        java.util.Map<Integer, String> reports = new ConcurrentHashMap<>();
+
+        if ( run.recipientGroups.isEmpty() )
+        {
+            return reports;
+        }
+
+        if ( TransactionSynchronizationManager.isActualTransactionActive() )
+        {
+            for ( int i = 0; i < run.recipientGroups.size(); i++ )
             {
-                log( jobId, NotificationLevel.ERROR,
-                    "Could not create or send report for PushAnalysis '" + pushAnalysis.getName() + "' and User '" +
-                        user.getUsername() + "': " + e.getMessage(), false, e );
+                generateHtmlReport( run, i, jobId, reports );
             }
+
+            return reports;
         }
-    }
 
-    @Override
-    public void runPushAnalysis( List<String> uids, JobConfiguration jobId )
-    {
-        uids.forEach( uid -> runPushAnalysis( uid, jobId ) );
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        User contextUser = UserContext.getUser();
+        Serializable dbLocale = UserContext.getUserSetting( UserSettingKey.DB_LOCALE );
+
+        List<Future<?>> futures = new ArrayList<>();
+
+        for ( int i = 0; i < run.recipientGroups.size(); i++ )
+        {
+            final int group = i;
+
+            futures.add( reportExecutor.submit( () -> {
+                SecurityContextHolder.setContext( securityContext );
+                UserContext.setUser( contextUser );
+                UserContext.setUserSetting( UserSettingKey.DB_LOCALE, dbLocale );
+
+                try
+                {
+                    transactionTemplate.execute( status -> {
+                        generateHtmlReport( run, group, jobId, reports );
+                        return null;
+                    } );
+                }
+                finally
+                {
+                    UserContext.reset();
+                    SecurityContextHolder.clearContext();
+                }
+            } ) );
+        }
+
+        ConcurrentUtils.waitForCompletion( futures );
+
+        return reports;
     }
 
-    @Override
-    public String generateHtmlReport( PushAnalysis pushAnalysis, User user, JobConfiguration jobId )
-        throws IOException
+    /**
+     * Generates the report for a group of users of the run, on behalf of the
+     * first user of the group.
+     */
+    private void generateHtmlReport( PushAnalysisRun run, int group, JobConfiguration jobId,
+        java.util.Map<Integer, String> reports )
     {
-        if ( jobId == null )
+        List<User> users = run.recipientGroups.get( group );
+
+        try
         {
-            jobId = new JobConfiguration( "inMemoryGenerateHtmlReport", JobType.PUSH_ANALYSIS, currentUserService.getCurrentUser().getUid(), true );
-            notifier.clear( jobId );
+            PushAnalysis pushAnalysis = pushAnalysisStore.getByUid( run.uid );
+            User user = userService.getUser( users.get( 0 ).getUid() );
+
+            reports.put( group, generateHtmlReport( pushAnalysis, user, jobId, run.imageUrls ) );
         }
+        catch ( Exception e )
+        {
+            log( jobId, NotificationLevel.ERROR,
+                "Could not create report for PushAnalysis '" + run.name + "' and User '" +
+                    users.get( 0 ).getUsername() + "' with " + ( users.size() - 1 ) + " other users: " +
+                    e.getMessage(), false, e );
+        }
+    }
 
-        user = user == null ? currentUserService.getCurrentUser() : user;
+    /**
+     * Generates the report for a user.
+     *
+     * @param pushAnalysis the PushAnalysis.
+     * @param user the user.
+     * @param jobId for logging.
+     * @param imageUrls the URLs of images uploaded so far, by MD5 checksum of
+     *        the image, to be reused when an identical image is rendered.
+     * @return the HTML report.
+     */
+    private String generateHtmlReport( PushAnalysis pushAnalysis, User user, JobConfiguration jobId,
+        java.util.Map<String, String> imageUrls )
+        throws IOException
+    {
         log( jobId, NotificationLevel.INFO, "Generating PushAnalysis for user '" + user.getUsername() + "'.", false,
             null );
 
@@ -302,7 +512,7 @@ public class DefaultPushAnalysisService
             // In normal conditions all DashboardItem has a type.
             if ( item.getType() != null )
             {
-                itemHtml.put( item.getUid(), getItemHtml( item, user, jobId ) );
+                itemHtml.put( item.getUid(), getItemHtml( item, user, jobId, imageUrls ) );
                 itemLink.put( item.getUid(), getItemLink( item ) );
             }
         }
@@ -338,26 +548,24 @@ public class DefaultPushAnalysisService
 
     }
 
-    //--------------------------------------------------------------------------
-    // Supportive methods
-    //--------------------------------------------------------------------------
-
     /**
      * Finds the dashboardItem's type and calls the associated method for generating the resource (either URL or HTML)
      *
      * @param item   to generate resource
      * @param user   to generate for
      * @param jobId for logging
+     * @param imageUrls URLs of uploaded images by MD5 checksum
      */
-    private String getItemHtml( DashboardItem item, User user, JobConfiguration jobId )
+    private String getItemHtml( DashboardItem item, User user, JobConfiguration jobId,
+        java.util.Map<String, String> imageUrls )
         throws IOException
     {
         switch ( item.getType() )
         {
             case MAP:
-                return generateMapHtml( item.getMap(), user );
+                return generateMapHtml( item.getMap(), user, imageUrls );
             case VISUALIZATION:
-                return generateVisualizationHtml( item.getVisualization(), user );
+                return generateVisualizationHtml( item.getVisualization(), user, imageUrls );
             case EVENT_CHART:
                 // TODO: Add support for EventCharts
                 return "";
@@ -413,9 +621,10 @@ public class DefaultPushAnalysisService
      *
      * @param map  map to render and upload
      * @param user user to generate chart for
+     * @param imageUrls URLs of uploaded images by MD5 checksum
      * @return absolute URL to uploaded image
      */
-    private String generateMapHtml( Map map, User user )
+    private String generateMapHtml( Map map, User user, java.util.Map<String, String> imageUrls )
         throws IOException
     {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -429,7 +638,7 @@ public class DefaultPushAnalysisService
 
         ImageIO.write( image, "PNG", baos );
 
-        return uploadImage( map.getUid(), baos.toByteArray() );
+        return uploadImage( map.getUid(), baos.toByteArray(), imageUrls );
     }
 
     /**
@@ -437,9 +646,11 @@ public class DefaultPushAnalysisService
      *
      * @param visualization the visualization to be rendered and uploaded.
      * @param user the user generate the Visualization.
+     * @param imageUrls URLs of uploaded images by MD5 checksum.
      * @return absolute URL to the uploaded image.
      */
-    private String generateVisualizationHtml( final Visualization visualization, final User user )
+    private String generateVisualizationHtml( final Visualization visualization, final User user,
+        java.util.Map<String, String> imageUrls )
         throws IOException
     {
         switch ( visualization.getType() )
@@ -447,7 +658,7 @@ public class DefaultPushAnalysisService
         case PIVOT_TABLE:
             return generateReportTableHtml( visualization, user );
         default:
-            return generateChartHtml( visualization, user );
+            return generateChartHtml( visualization, user, imageUrls );
         }
     }
 
@@ -456,15 +667,17 @@ public class DefaultPushAnalysisService
      *
      * @param visualization chart to render and upload
      * @param user  user to generate chart for
+     * @param imageUrls URLs of uploaded images by MD5 checksum
      * @return absolute URL to uploaded image
      */
-    private String generateChartHtml( final Visualization visualization, User user )
+    private String generateChartHtml( final Visualization visualization, User user,
+        java.util.Map<String, String> imageUrls )
         throws IOException
     {
         JFreeChart jFreechart = chartImageGenerator
             .getJFreeChart( visualization, new Date(), null, i18nManager.getI18nFormat(), user );
 
-        return uploadImage( visualization.getUid(), ChartUtils.getChartAsPngByteArray( jFreechart, 578, 440 ) );
+        return uploadImage( visualization.getUid(), ChartUtils.getChartAsPngByteArray( jFreechart, 578, 440 ), imageUrls );
     }
 
     /**
@@ -485,27 +698,41 @@ public class DefaultPushAnalysisService
     }
 
     /**
-     * Uploads a byte array using FileResource and ExternalFileResource
+     * Uploads a byte array using FileResource and ExternalFileResource. An
+     * identical image which has already been uploaded is reused.
      *
      * @param name  name of the file to be stored
      * @param bytes the byte array representing the file to be stored
+     * @param imageUrls URLs of uploaded images by MD5 checksum
      * @return url pointing to the uploaded resource
      */
-    private String uploadImage( String name, byte[] bytes )
+    private String uploadImage( String name, byte[] bytes, java.util.Map<String, String> imageUrls )
         throws IOException
     {
+        String contentMd5 = ByteSource.wrap( bytes ).hash( Hashing.md5() ).toString();
+
+        String url = imageUrls.get( contentMd5 );
+
+        if ( url != null )
+        {
+            return url;
+        }
+
         FileResource fileResource = new FileResource(
             name,
             MimeTypeUtils.IMAGE_PNG.toString(), // All files uploaded from PushAnalysis is PNG.
             bytes.length,
-            ByteSource.wrap( bytes ).hash( Hashing.md5() ).toString(),
+            contentMd5,
             FileResourceDomain.PUSH_ANALYSIS
         );
 
         String accessToken = saveFileResource( fileResource, bytes );
 
-        return dhisConfigurationProvider.getServerBaseUrl() + "/api/externalFileResources/" + accessToken;
+        url = dhisConfigurationProvider.getServerBaseUrl() + "/api/externalFileResources/" + accessToken;
+
+        imageUrls.putIfAbsent( contentMd5, url );
 
+        return url;
     }
 
     /**
@@ -562,4 +789,33 @@ public class DefaultPushAnalysisService
         return externalFileResourceService.saveExternalFileResource( externalFileResource );
 
     }
+
+    //--------------------------------------------------------------------------
+    // Supportive classes
+    //--------------------------------------------------------------------------
+
+    /**
+     * A run of a PushAnalysis, holding the groups of users which receive
+     * identical reports and the images uploaded during the run.
+     */
+    private static class PushAnalysisRun
+    {
+        private final String uid;
+
+        private final String name;
+
+        private final String title;
+
+        private final List<List<User>> recipientGroups;
+
+        private final java.util.Map<String, String> imageUrls = new ConcurrentHashMap<>();
+
+        private PushAnalysisRun( String uid, String name, String title, List<List<User>> recipientGroups )
+        {
+            this.uid = uid;
+            this.name = name;
+            this.title = title;
+            this.recipientGroups = recipientGroups;
+        }
+    }
 }
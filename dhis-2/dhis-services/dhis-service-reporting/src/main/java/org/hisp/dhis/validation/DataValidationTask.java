@@ -40,7 +40,6 @@ import java.util.stream.Collectors;
 
 import javax.persistence.PersistenceException;
 
-import org.apache.commons.lang3.ObjectUtils;
 import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.category.CategoryOptionCombo;
@@ -122,21 +121,47 @@ public class DataValidationTask
 
     private OrganisationUnit orgUnit;       // Current organisation unit.
 
-    private long orgUnitId;                  // Current organisation unit id.
-
     private ValidationRuleExtended ruleX;   // Current rule extended.
 
-    // Data for current period and all rules being evaluated:
-    private MapMapMap<Long, String, DimensionalItemObject, Double> dataMap;
+    private int rulePartition;
+
+    private int rulePartitions;
+
+    private ValidationDataCache dataCache;
+
+    private Map<Long, Integer> orgUnitIdIndexes;
+
+    private Map<String, Integer> orgUnitUidIndexes;
 
-    private MapMapMap<Long, String, DimensionalItemObject, Double> slidingWindowDataMap;
+    // Data for current period and organisation unit, by attribute option combo:
+    private MapMap<String, DimensionalItemObject, Double> orgUnitValues;
+
+    private MapMap<String, DimensionalItemObject, Double> orgUnitSlidingWindowValues;
 
     @Override
     public void init( List<OrganisationUnit> orgUnits, ValidationRunContext context, AnalyticsService analyticsService )
+    {
+        init( orgUnits, 0, 1, context, analyticsService );
+    }
+
+    @Override
+    public void init( List<OrganisationUnit> orgUnits, int rulePartition, int rulePartitions,
+        ValidationRunContext context, AnalyticsService analyticsService )
     {
         this.orgUnits = orgUnits;
+        this.rulePartition = rulePartition;
+        this.rulePartitions = rulePartitions;
         this.context = context;
         this.analyticsService = analyticsService;
+        this.dataCache = context.getDataCache();
+        this.orgUnitIdIndexes = new HashMap<>();
+        this.orgUnitUidIndexes = new HashMap<>();
+
+        for ( int i = 0; i < orgUnits.size(); i++ )
+        {
+            orgUnitIdIndexes.put( orgUnits.get( i ).getId(), i );
+            orgUnitUidIndexes.put( orgUnits.get( i ).getUid(), i );
+        }
     }
 
     /**
@@ -162,6 +187,9 @@ public class DataValidationTask
     /**
      * Get the data needed for this task, then evaluate each combination
      * of organisation unit / period / validation rule.
+     * <p>
+     * The data of a period is shared with the other tasks evaluating rules
+     * for the same organisation units, through the data cache of the run.
      */
     private void runInternal()
     {
@@ -175,34 +203,88 @@ public class DataValidationTask
         {
             periodTypeX = ptx;
 
+            List<ValidationRuleExtended> ruleXs = getRuleXs();
+
+            if ( ruleXs.isEmpty() )
+            {
+                continue;
+            }
+
+            // Tasks of rule partitions without rules do not use the data
+
+            int dataUsers = Math.min( rulePartitions, periodTypeX.getRuleXs().size() );
+
             for ( Period p : periodTypeX.getPeriods() )
             {
                 period = p;
 
-                getData();
+                String dataKey = getDataKey();
 
-                for ( OrganisationUnit ou : orgUnits )
-                {
-                    orgUnit = ou;
-                    orgUnitId = ou.getId();
+                ValidationData data = dataCache.get( dataKey, dataUsers, this::getData );
 
-                    for ( ValidationRuleExtended r : periodTypeX.getRuleXs() )
+                try
+                {
+                    for ( int i = 0; i < orgUnits.size(); i++ )
                     {
-                        ruleX = r;
+                        orgUnit = orgUnits.get( i );
+                        orgUnitValues = data.getValues( i, false, dataCache );
+                        orgUnitSlidingWindowValues = periodTypeX.areSlidingWindowsNeeded() ?
+                            data.getValues( i, true, dataCache ) : null;
 
-                        if ( context.isAnalysisComplete() )
+                        for ( ValidationRuleExtended r : ruleXs )
                         {
-                            break loop;
+                            ruleX = r;
+
+                            if ( context.isAnalysisComplete() )
+                            {
+                                break loop;
+                            }
+                            validationResults = new HashSet<>();
+                            validateRule();
+                            addValidationResultsToContext();
                         }
-                        validationResults = new HashSet<>();
-                        validateRule();
-                        addValidationResultsToContext();
                     }
                 }
+                finally
+                {
+                    dataCache.release( dataKey );
+                }
             }
         }
     }
 
+    /**
+     * Gets the rules of the current period type in the rule partition of
+     * this task.
+     */
+    private List<ValidationRuleExtended> getRuleXs()
+    {
+        List<ValidationRuleExtended> ruleXs = new ArrayList<>();
+
+        int index = 0;
+
+        for ( ValidationRuleExtended r : periodTypeX.getRuleXs() )
+        {
+            if ( index++ % rulePartitions == rulePartition )
+            {
+                ruleXs.add( r );
+            }
+        }
+
+        return ruleXs;
+    }
+
+    /**
+     * Gets the key of the data of the organisation units of this task for the
+     * current period. Org unit blocks do not overlap, so a block is identified
+     * by its first org unit.
+     */
+    private String getDataKey()
+    {
+        return orgUnits.get( 0 ).getId() + "-" + orgUnits.size() + "-" +
+            periodTypeX.getPeriodType().getName() + "-" + period.getIsoDate();
+    }
+
     /**
      * Validates one rule / period by seeing which attribute option combos exist
      * for that data, and then iterating through those attribute option combos.
@@ -322,30 +404,33 @@ public class DataValidationTask
     /**
      * Gets the data for this period:
      * <p/>
-     * dataMap contains data for non-sliding window expressions.
-     * slidingWindowDataMap contains data for sliding window expressions.
+     * Data values and indicators are used by all expressions. Event data
+     * for the period is used by non-sliding window expressions, and event
+     * data for the sliding window of the period by sliding window expressions.
      */
-    private void getData()
+    private ValidationData getData()
     {
-        getDataValueMap();
+        ValidationData.ValuesBuilder dataValues = new ValidationData.ValuesBuilder();
+        ValidationData.ValuesBuilder eventValues = new ValidationData.ValuesBuilder();
+        ValidationData.ValuesBuilder slidingWindowEventValues = new ValidationData.ValuesBuilder();
 
-        dataMap.putMap( getAnalyticsMap( true, periodTypeX.getIndicators() ) );
+        addDataValues( dataValues );
 
-        slidingWindowDataMap = new MapMapMap<>();
+        addAnalyticsValues( dataValues, true, periodTypeX.getIndicators() );
 
         if ( periodTypeX.areSlidingWindowsNeeded() )
         {
-            slidingWindowDataMap.putMap( dataMap );
-
-            slidingWindowDataMap.putMap( getEventMapForSlidingWindow( true, periodTypeX.getEventItems() ) );
-            slidingWindowDataMap.putMap( getEventMapForSlidingWindow( false, periodTypeX.getEventItemsWithoutAttributeOptions() ) );
+            addEventValuesForSlidingWindow( slidingWindowEventValues, true, periodTypeX.getEventItems() );
+            addEventValuesForSlidingWindow( slidingWindowEventValues, false, periodTypeX.getEventItemsWithoutAttributeOptions() );
         }
 
         if ( periodTypeX.areNonSlidingWindowsNeeded() )
         {
-            dataMap.putMap( getAnalyticsMap( true, periodTypeX.getEventItems() ) );
-            dataMap.putMap( getAnalyticsMap( false, periodTypeX.getEventItemsWithoutAttributeOptions() ) );
+            addAnalyticsValues( eventValues, true, periodTypeX.getEventItems() );
+            addAnalyticsValues( eventValues, false, periodTypeX.getEventItemsWithoutAttributeOptions() );
         }
+
+        return new ValidationData( dataValues.build(), eventValues.build(), slidingWindowEventValues.build() );
     }
 
     /**
@@ -364,11 +449,11 @@ public class DataValidationTask
         }
         else if ( slidingWindow )
         {
-            return getExpressionValueMap( expression, slidingWindowDataMap );
+            return getExpressionValueMap( expression, orgUnitSlidingWindowValues );
         }
         else
         {
-            return getExpressionValueMap( expression, dataMap );
+            return getExpressionValueMap( expression, orgUnitValues );
         }
     }
 
@@ -448,18 +533,16 @@ public class DataValidationTask
      * combo.
      *
      * @param expression expression to evaluate.
-     * @param valueMap   Map of value maps, by attribute option combo.
+     * @param aocValues  Map of value maps for the current organisation unit,
+     *                   by attribute option combo.
      * @return map of values.
      */
     private Map<String, Double> getExpressionValueMap( Expression expression,
-        MapMapMap<Long, String, DimensionalItemObject, Double> valueMap )
+        MapMap<String, DimensionalItemObject, Double> aocValues )
     {
         Map<String, Double> expressionValueMap = new HashMap<>();
 
-        Map<DimensionalItemObject, Double> nonAocValues = valueMap.get( orgUnitId ) == null
-            ? null : valueMap.get( orgUnitId ).get( NON_AOC );
-
-        MapMap<String, DimensionalItemObject, Double> aocValues = valueMap.get( orgUnitId );
+        Map<DimensionalItemObject, Double> nonAocValues = aocValues == null ? null : aocValues.get( NON_AOC );
 
         if ( aocValues == null )
         {
@@ -499,7 +582,7 @@ public class DataValidationTask
     /**
      * Gets data elements and data element operands from the datavalue table.
      */
-    private void getDataValueMap()
+    private void addDataValues( ValidationData.ValuesBuilder builder )
     {
         DataExportParams params = new DataExportParams();
         params.setDataElements( periodTypeX.getDataElements() );
@@ -517,18 +600,21 @@ public class DataValidationTask
 
         List<DeflatedDataValue> dataValues = dataValueService.getDeflatedDataValues( params );
 
-        dataMap = new MapMapMap<>();
-
-        MapMapMap<Long, String, DimensionalItemObject, Long> checkForDuplicates = new MapMapMap<>();
-
         for ( DeflatedDataValue dv : dataValues )
         {
+            Integer orgUnitIndex = orgUnitIdIndexes.get( dv.getSourceId() );
+
+            if ( orgUnitIndex == null )
+            {
+                continue;
+            }
+
             DataElement dataElement = periodTypeX.getDataElementIdMap().get( dv.getDataElementId() );
             String deoIdKey = periodTypeX.getDeoIds( dv.getDataElementId(), dv.getCategoryOptionComboId() );
             DataElementOperand dataElementOperand = periodTypeX.getDataElementOperandIdMap().get( deoIdKey );
             Period p = getPeriod( dv.getPeriodId() );
-            long orgUnitId = dv.getSourceId();
-            String attributeOptionComboUid = getAttributeOptionCombo( dv.getAttributeOptionComboId() ).getUid();
+            long periodInterval = p.getEndDate().getTime() - p.getStartDate().getTime();
+            int aocIndex = dataCache.getAocIndex( getAttributeOptionCombo( dv.getAttributeOptionComboId() ).getUid() );
             String valueString = dv.getValue();
             Double value;
 
@@ -541,56 +627,44 @@ public class DataValidationTask
                 continue;
             }
 
+            // Values for shorter intervals replace values for longer
+            // intervals, values for the same interval are summed
+
             if ( dataElement != null )
             {
-                addValueToDataMap( orgUnitId, attributeOptionComboUid, dataElement, value, p, checkForDuplicates );
+                addValue( builder, orgUnitIndex, aocIndex, dataElement, value, periodInterval );
             }
 
             if ( dataElementOperand != null )
             {
-                addValueToDataMap( orgUnitId, attributeOptionComboUid, dataElementOperand, value, p,
-                    checkForDuplicates );
+                addValue( builder, orgUnitIndex, aocIndex, dataElementOperand, value, periodInterval );
             }
         }
     }
 
-    private void addValueToDataMap( long orgUnitId, String aocUid, DimensionalItemObject dimItemObject,
-        Double value, Period p, MapMapMap<Long, String, DimensionalItemObject, Long> checkForDuplicates )
+    private void addValue( ValidationData.ValuesBuilder builder, int orgUnitIndex, int aocIndex,
+        DimensionalItemObject dimItemObject, double value, long periodInterval )
     {
-        double existingValue = ObjectUtils.firstNonNull( dataMap.getValue( orgUnitId, aocUid, dimItemObject ), 0.0 );
-
-        long periodInterval = p.getEndDate().getTime() - p.getStartDate().getTime();
+        int itemIndex = dataCache.getItemIndex( dimItemObject );
 
-        Long existingPeriodInterval = checkForDuplicates.getValue( orgUnitId, aocUid, dimItemObject );
-
-        if ( existingPeriodInterval != null )
+        if ( itemIndex >= 0 )
         {
-            if ( existingPeriodInterval < periodInterval )
-            {
-                return; // Do not overwrite the previous value if for a shorter interval
-            }
-            else if ( existingPeriodInterval > periodInterval )
-            {
-                existingValue = 0.0; // Overwrite previous value if for a longer interval
-            }
+            builder.add( ValidationData.key( orgUnitIndex, aocIndex, itemIndex ), value, periodInterval );
         }
-
-        dataMap.putEntry( orgUnitId, aocUid, dimItemObject, value + existingValue );
-
-        checkForDuplicates.putEntry( orgUnitId, aocUid, dimItemObject, periodInterval );
     }
 
     /**
      * Gets analytics data for the given parameters.
      *
+     * @param builder the builder to add the data to.
      * @param hasAttributeOptions whether the event data has attribute options.
      */
-    private MapMapMap<Long, String, DimensionalItemObject, Double> getAnalyticsMap(
+    private void addAnalyticsValues( ValidationData.ValuesBuilder builder,
         boolean hasAttributeOptions, Set<DimensionalItemObject> analyticsItems )
     {
         if ( analyticsItems.isEmpty() )
         {
-            return new MapMapMap<>();
+            return;
         }
 
         DataQueryParams.Builder paramsBuilder = DataQueryParams.newBuilder()
@@ -604,20 +678,21 @@ public class DataValidationTask
             paramsBuilder.withAttributeOptionCombos( Lists.newArrayList() );
         }
 
-        return getAnalyticsData( paramsBuilder.build(), hasAttributeOptions );
+        addAnalyticsData( builder, paramsBuilder.build(), hasAttributeOptions );
     }
 
     /**
      * Gets sliding window analytics event data for the given parameters.
      *
+     * @param builder the builder to add the data to.
      * @param hasAttributeOptions whether the event data has attribute options.
      */
-    private MapMapMap<Long, String, DimensionalItemObject, Double> getEventMapForSlidingWindow(
+    private void addEventValuesForSlidingWindow( ValidationData.ValuesBuilder builder,
         boolean hasAttributeOptions, Set<DimensionalItemObject> eventItems )
     {
         if ( eventItems.isEmpty() )
         {
-            return new MapMapMap<>();
+            return;
         }
 
         // We want to position the sliding window over the most recent data.
@@ -652,21 +727,19 @@ public class DataValidationTask
             paramsBuilder.withAttributeOptionCombos( Lists.newArrayList() );
         }
 
-        return getAnalyticsData( paramsBuilder.build(), hasAttributeOptions );
+        addAnalyticsData( builder, paramsBuilder.build(), hasAttributeOptions );
     }
 
     /**
      * Gets analytics data.
      *
+     * @param builder             the builder to add the data to.
      * @param params              event data query parameters.
      * @param hasAttributeOptions whether the event data has attribute options.
-     * @return event data.
      */
-    private MapMapMap<Long, String, DimensionalItemObject, Double> getAnalyticsData(
+    private void addAnalyticsData( ValidationData.ValuesBuilder builder,
         DataQueryParams params, boolean hasAttributeOptions )
     {
-        MapMapMap<Long, String, DimensionalItemObject, Double> map = new MapMapMap<>();
-
         Grid grid;
 
         try
@@ -675,7 +748,7 @@ public class DataValidationTask
         }
         catch ( PersistenceException ex )
         {
-            return map;
+            return;
         }
 
         int dxInx = grid.getIndexOfHeader( DimensionalObject.DATA_X_DIM_ID );
@@ -683,8 +756,6 @@ public class DataValidationTask
         int aoInx = hasAttributeOptions ? grid.getIndexOfHeader( DimensionalObject.ATTRIBUTEOPTIONCOMBO_DIM_ID ) : 0;
         int vlInx = grid.getWidth() - 1;
 
-        Map<String, OrganisationUnit> ouLookup = orgUnits.stream()
-            .collect( Collectors.toMap(BaseIdentifiableObject::getUid, o -> o ) );
         Map<String, DimensionalItemObject> dxLookup = periodTypeX.getEventItems().stream()
             .collect( Collectors.toMap(DimensionalItemObject::getDimensionItem, d -> d ) );
         dxLookup.putAll( periodTypeX.getIndicators().stream()
@@ -697,12 +768,13 @@ public class DataValidationTask
             String ou = (String) row.get( ouInx );
             Double vl = ( (Number)row.get( vlInx ) ).doubleValue();
 
-            OrganisationUnit orgUnit = ouLookup.get( ou );
-            DimensionalItemObject analyticsItem = dxLookup.get( dx );
+            Integer orgUnitIndex = orgUnitUidIndexes.get( ou );
+            int itemIndex = dataCache.getItemIndex( dxLookup.get( dx ) );
 
-            map.putEntry( orgUnit.getId(), ao, analyticsItem, vl );
+            if ( orgUnitIndex != null && itemIndex >= 0 )
+            {
+                builder.put( ValidationData.key( orgUnitIndex, dataCache.getAocIndex( ao ), itemIndex ), vl );
+            }
         }
-
-        return map;
     }
 }
@@ -44,6 +44,8 @@ import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.expression.ExpressionService;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.Period;
@@ -101,12 +103,15 @@ public class DefaultValidationService
     
     private CurrentUserService currentUserService;
 
+    private final DhisConfigurationProvider config;
+
     public DefaultValidationService( PeriodService periodService, OrganisationUnitService organisationUnitService,
         ExpressionService expressionService, DimensionService dimensionService, DataValueService dataValueService,
         CategoryService categoryService, ConstantService constantService,
         ValidationNotificationService notificationService, ValidationRuleService validationRuleService,
         ApplicationContext applicationContext, ValidationResultService validationResultService,
-        AnalyticsService analyticsService, CurrentUserService currentUserService )
+        AnalyticsService analyticsService, CurrentUserService currentUserService,
+        DhisConfigurationProvider config )
     {
         checkNotNull( periodService );
         checkNotNull( organisationUnitService );
@@ -121,6 +126,7 @@ public class DefaultValidationService
         checkNotNull( validationResultService );
         checkNotNull( analyticsService );
         checkNotNull( currentUserService );
+        checkNotNull( config );
 
         this.periodService = periodService;
         this.organisationUnitService = organisationUnitService;
@@ -135,6 +141,7 @@ public class DefaultValidationService
         this.validationResultService = validationResultService;
         this.analyticsService = analyticsService;
         this.currentUserService = currentUserService;
+        this.config = config;
     }
 
     /**
@@ -298,7 +305,8 @@ public class DefaultValidationService
             .withPersistResults( parameters.isPersistResults() )
             .withAttributeCombo( parameters.getAttributeOptionCombo() )
             .withDefaultAttributeCombo( categoryService.getDefaultCategoryOptionCombo() )
-            .withMaxResults( parameters.getMaxResults() );
+            .withMaxResults( parameters.getMaxResults() )
+            .withMaxCachedValues( Long.parseLong( config.getProperty( ConfigurationKey.VALIDATION_CACHE_MAX_VALUES ) ) );
 
         if ( currentUser != null )
         {
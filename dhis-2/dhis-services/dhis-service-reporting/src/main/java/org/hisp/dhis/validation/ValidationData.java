@@ -0,0 +1,344 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Arrays;
+
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.MapMap;
+
+/**
+ * Read-only data for a block of organisation units and a period, shared by
+ * the validation tasks which evaluate rules for the block.
+ * <p>
+ * Values are stored in primitive arrays, keyed by the index of the
+ * organisation unit within the block, and the indexes of the attribute option
+ * combo and the item in the {@link ValidationDataCache}, packed into a long.
+ * Keys are sorted, so the values of an organisation unit are adjacent.
+ */
+public class ValidationData
+{
+    private static final int ITEM_BITS = 22;
+
+    private static final int AOC_BITS = 22;
+
+    private static final int ORG_UNIT_SHIFT = AOC_BITS + ITEM_BITS;
+
+    public static final int MAX_ORG_UNITS = 1 << ( 63 - ORG_UNIT_SHIFT );
+
+    public static final int MAX_AOCS = 1 << AOC_BITS;
+
+    public static final int MAX_ITEMS = 1 << ITEM_BITS;
+
+    /**
+     * Data values and indicators.
+     */
+    private final Values dataValues;
+
+    /**
+     * Event data for the period.
+     */
+    private final Values eventValues;
+
+    /**
+     * Event data for the sliding window of the period.
+     */
+    private final Values slidingWindowEventValues;
+
+    public ValidationData( Values dataValues, Values eventValues, Values slidingWindowEventValues )
+    {
+        this.dataValues = dataValues;
+        this.eventValues = eventValues;
+        this.slidingWindowEventValues = slidingWindowEventValues;
+    }
+
+    /**
+     * Returns the number of values.
+     */
+    public int size()
+    {
+        return dataValues.size() + eventValues.size() + slidingWindowEventValues.size();
+    }
+
+    /**
+     * Returns the values of an organisation unit by attribute option combo UID
+     * and item. The returned map is not shared and may be modified.
+     *
+     * @param orgUnitIndex the index of the organisation unit within the block.
+     * @param slidingWindow whether to return event data for the sliding window
+     *        of the period rather than for the period.
+     * @param cache the cache holding the attribute option combo and item indexes.
+     * @return the values, or null if the organisation unit has no values.
+     */
+    public MapMap<String, DimensionalItemObject, Double> getValues( int orgUnitIndex, boolean slidingWindow,
+        ValidationDataCache cache )
+    {
+        MapMap<String, DimensionalItemObject, Double> values = new MapMap<>();
+
+        dataValues.addValues( orgUnitIndex, cache, values );
+        ( slidingWindow ? slidingWindowEventValues : eventValues ).addValues( orgUnitIndex, cache, values );
+
+        return values.isEmpty() ? null : values;
+    }
+
+    /**
+     * Returns the key of a value.
+     *
+     * @param orgUnitIndex the index of the organisation unit within the block.
+     * @param aocIndex the index of the attribute option combo.
+     * @param itemIndex the index of the item.
+     * @return the key.
+     */
+    public static long key( int orgUnitIndex, int aocIndex, int itemIndex )
+    {
+        return ( (long) orgUnitIndex << ORG_UNIT_SHIFT ) | ( (long) aocIndex << ITEM_BITS ) | itemIndex;
+    }
+
+    private static int aocIndex( long key )
+    {
+        return (int) ( ( key >>> ITEM_BITS ) & ( MAX_AOCS - 1 ) );
+    }
+
+    private static int itemIndex( long key )
+    {
+        return (int) ( key & ( MAX_ITEMS - 1 ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Values
+    // -------------------------------------------------------------------------
+
+    /**
+     * Values sorted by key.
+     */
+    public static class Values
+    {
+        private final long[] keys;
+
+        private final double[] values;
+
+        private Values( long[] keys, double[] values )
+        {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        public int size()
+        {
+            return keys.length;
+        }
+
+        /**
+         * Returns the value with the given key.
+         *
+         * @param key the key.
+         * @return the value, or null if there is no value.
+         */
+        public Double get( long key )
+        {
+            int index = Arrays.binarySearch( keys, key );
+
+            return index >= 0 ? values[index] : null;
+        }
+
+        private void addValues( int orgUnitIndex, ValidationDataCache cache,
+            MapMap<String, DimensionalItemObject, Double> map )
+        {
+            long end = key( orgUnitIndex + 1, 0, 0 );
+
+            for ( int i = firstIndex( key( orgUnitIndex, 0, 0 ) ); i < keys.length && keys[i] < end; i++ )
+            {
+                map.putEntry( cache.getAoc( aocIndex( keys[i] ) ), cache.getItem( itemIndex( keys[i] ) ), values[i] );
+            }
+        }
+
+        private int firstIndex( long key )
+        {
+            int index = Arrays.binarySearch( keys, key );
+
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+
+    /**
+     * Builder of values, accumulating values in an open addressing hash table
+     * of primitive arrays.
+     */
+    public static class ValuesBuilder
+    {
+        private static final long EMPTY = -1L;
+
+        private long[] keys;
+
+        private double[] values;
+
+        private long[] intervals;
+
+        private int size = 0;
+
+        public ValuesBuilder()
+        {
+            allocate( 64 );
+        }
+
+        /**
+         * Puts a value, replacing any existing value with the same key.
+         *
+         * @param key the key.
+         * @param value the value.
+         * @return this builder.
+         */
+        public ValuesBuilder put( long key, double value )
+        {
+            int index = getIndex( key );
+
+            if ( keys[index] == EMPTY )
+            {
+                insert( index, key, value, 0 );
+            }
+            else
+            {
+                values[index] = value;
+            }
+
+            return this;
+        }
+
+        /**
+         * Adds a data value for a period of the given length. Values for
+         * periods of the same length are summed, and values for shorter
+         * periods replace values for longer periods.
+         *
+         * @param key the key.
+         * @param value the value.
+         * @param periodInterval the length of the period in milliseconds.
+         * @return this builder.
+         */
+        public ValuesBuilder add( long key, double value, long periodInterval )
+        {
+            int index = getIndex( key );
+
+            if ( keys[index] == EMPTY )
+            {
+                insert( index, key, value, periodInterval );
+            }
+            else if ( intervals[index] == periodInterval )
+            {
+                values[index] += value;
+            }
+            else if ( intervals[index] > periodInterval )
+            {
+                values[index] = value;
+                intervals[index] = periodInterval;
+            }
+
+            return this;
+        }
+
+        public Values build()
+        {
+            long[] sortedKeys = new long[size];
+
+            int i = 0;
+
+            for ( long key : keys )
+            {
+                if ( key != EMPTY )
+                {
+                    sortedKeys[i++] = key;
+                }
+            }
+
+            Arrays.sort( sortedKeys );
+
+            double[] sortedValues = new double[size];
+
+            for ( i = 0; i < size; i++ )
+            {
+                sortedValues[i] = values[getIndex( sortedKeys[i] )];
+            }
+
+            return new Values( sortedKeys, sortedValues );
+        }
+
+        private void insert( int index, long key, double value, long periodInterval )
+        {
+            keys[index] = key;
+            values[index] = value;
+            intervals[index] = periodInterval;
+
+            if ( ++size * 2 > keys.length )
+            {
+                resize();
+            }
+        }
+
+        private int getIndex( long key )
+        {
+            int mask = keys.length - 1;
+            int index = (int) ( ( key * 0x9E3779B97F4A7C15L ) >>> 32 ) & mask;
+
+            while ( keys[index] != EMPTY && keys[index] != key )
+            {
+                index = ( index + 1 ) & mask;
+            }
+
+            return index;
+        }
+
+        private void resize()
+        {
+            long[] oldKeys = keys;
+            double[] oldValues = values;
+            long[] oldIntervals = intervals;
+
+            allocate( oldKeys.length * 2 );
+
+            for ( int i = 0; i < oldKeys.length; i++ )
+            {
+                if ( oldKeys[i] != EMPTY )
+                {
+                    int index = getIndex( oldKeys[i] );
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                    intervals[index] = oldIntervals[i];
+                }
+            }
+        }
+
+        private void allocate( int capacity )
+        {
+            keys = new long[capacity];
+            values = new double[capacity];
+            intervals = new long[capacity];
+
+            Arrays.fill( keys, EMPTY );
+        }
+    }
+}
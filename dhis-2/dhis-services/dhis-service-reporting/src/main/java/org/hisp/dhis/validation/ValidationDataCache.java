@@ -0,0 +1,270 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.hisp.dhis.common.DimensionalItemObject;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Data cache shared by the tasks of a validation run. Data for a block of
+ * organisation units and a period is loaded once and shared by all tasks
+ * which evaluate rules for the block, and removed when released by all of
+ * them.
+ * <p>
+ * The cache holds at most the given number of values. When the cache is
+ * full, data is not cached and each task loads the data separately, so that
+ * tasks never wait for other tasks to release data.
+ * <p>
+ * The cache also holds the indexes of the attribute option combos and items
+ * by which values are keyed in {@link ValidationData}. Items are indexed up
+ * front, attribute option combos as they are found.
+ */
+public class ValidationDataCache
+{
+    private final long maxValues;
+
+    private final Map<DimensionalItemObject, Integer> itemIndexes = new HashMap<>();
+
+    private final List<DimensionalItemObject> items = new ArrayList<>();
+
+    private final Map<String, Integer> aocIndexes = new ConcurrentHashMap<>();
+
+    private final Map<Integer, String> aocs = new ConcurrentHashMap<>();
+
+    private final AtomicInteger aocCount = new AtomicInteger();
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private long cachedValues = 0;
+
+    /**
+     * @param periodTypeXs the period types of the validation run, holding the
+     *        items for which data is cached.
+     * @param maxValues the max number of values to hold.
+     */
+    public ValidationDataCache( Collection<PeriodTypeExtended> periodTypeXs, long maxValues )
+    {
+        this.maxValues = maxValues;
+
+        for ( PeriodTypeExtended periodTypeX : periodTypeXs )
+        {
+            periodTypeX.getDataElements().forEach( this::addItem );
+            periodTypeX.getDataElementOperands().forEach( this::addItem );
+            periodTypeX.getEventItems().forEach( this::addItem );
+            periodTypeX.getEventItemsWithoutAttributeOptions().forEach( this::addItem );
+            periodTypeX.getIndicators().forEach( this::addItem );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Data
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the data with the given key, loading it if it is not cached.
+     * Data shared by more than one user is cached until it has been released
+     * by all users, unless the cache is full. Each call must be followed by
+     * a call to {@link #release(String)}.
+     *
+     * @param key the data key.
+     * @param users the number of users of the data.
+     * @param loader the loader of the data.
+     * @return the data.
+     */
+    public ValidationData get( String key, int users, Supplier<ValidationData> loader )
+    {
+        if ( users <= 1 )
+        {
+            return loader.get();
+        }
+
+        CompletableFuture<ValidationData> future;
+        boolean load = false;
+
+        synchronized ( this )
+        {
+            Entry entry = entries.get( key );
+
+            if ( entry == null )
+            {
+                entry = new Entry( users, cachedValues < maxValues ? new CompletableFuture<>() : null );
+                entries.put( key, entry );
+                load = entry.data != null;
+            }
+
+            future = entry.data;
+        }
+
+        if ( future == null )
+        {
+            return loader.get();
+        }
+
+        if ( load )
+        {
+            try
+            {
+                ValidationData data = loader.get();
+
+                synchronized ( this )
+                {
+                    cachedValues += data.size();
+                }
+
+                future.complete( data );
+            }
+            catch ( RuntimeException ex )
+            {
+                future.completeExceptionally( ex );
+
+                throw ex;
+            }
+        }
+
+        return future.join();
+    }
+
+    /**
+     * Releases the data with the given key. The data is removed from the
+     * cache when released by all users.
+     *
+     * @param key the data key.
+     */
+    public synchronized void release( String key )
+    {
+        Entry entry = entries.get( key );
+
+        if ( entry != null && --entry.users == 0 )
+        {
+            entries.remove( key );
+
+            if ( entry.data != null && entry.data.isDone() && !entry.data.isCompletedExceptionally() )
+            {
+                cachedValues -= entry.data.join().size();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of values held.
+     */
+    public synchronized long getCachedValues()
+    {
+        return cachedValues;
+    }
+
+    // -------------------------------------------------------------------------
+    // Indexes
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the index of an item.
+     *
+     * @param item the item.
+     * @return the index, or -1 if the item is not used in the validation run.
+     */
+    public int getItemIndex( DimensionalItemObject item )
+    {
+        Integer index = itemIndexes.get( item );
+
+        return index != null ? index : -1;
+    }
+
+    public DimensionalItemObject getItem( int index )
+    {
+        return items.get( index );
+    }
+
+    /**
+     * Returns the index of an attribute option combo, indexing it if it has
+     * not been found before.
+     *
+     * @param uid the attribute option combo UID.
+     * @return the index.
+     */
+    public int getAocIndex( String uid )
+    {
+        return aocIndexes.computeIfAbsent( uid, k -> {
+            int index = aocCount.getAndIncrement();
+
+            Preconditions.checkState( index < ValidationData.MAX_AOCS, "Too many attribute option combos" );
+
+            aocs.put( index, k );
+
+            return index;
+        } );
+    }
+
+    public String getAoc( int index )
+    {
+        return aocs.get( index );
+    }
+
+    private void addItem( DimensionalItemObject item )
+    {
+        if ( !itemIndexes.containsKey( item ) )
+        {
+            Preconditions.checkState( items.size() < ValidationData.MAX_ITEMS, "Too many items" );
+
+            itemIndexes.put( item, items.size() );
+            items.add( item );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive classes
+    // -------------------------------------------------------------------------
+
+    private static class Entry
+    {
+        private int users;
+
+        /**
+         * The data, or null if the data is not cached.
+         */
+        private final CompletableFuture<ValidationData> data;
+
+        private Entry( int users, CompletableFuture<ValidationData> data )
+        {
+            this.users = users;
+            this.data = data;
+        }
+    }
+}
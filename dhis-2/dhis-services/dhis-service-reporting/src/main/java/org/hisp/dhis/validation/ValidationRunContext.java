@@ -60,6 +60,8 @@ public class ValidationRunContext
 {
     public static final int ORG_UNITS_PER_TASK = 500;
 
+    public static final long DEFAULT_MAX_CACHED_VALUES = 20_000_000;
+
     private Queue<ValidationResult> validationResults;
 
     private List<OrganisationUnit> orgUnits;
@@ -86,6 +88,10 @@ public class ValidationRunContext
 
     private boolean persistResults = false;
 
+    private long maxCachedValues = DEFAULT_MAX_CACHED_VALUES;
+
+    private ValidationDataCache dataCache;
+
     private MapMapMap<OrganisationUnit, ValidationRule, Period, List<ValidationResult>> initialValidationResults = new MapMapMap<>();
 
     private ValidationRunContext()
@@ -203,6 +209,11 @@ public class ValidationRunContext
 
     }
 
+    public ValidationDataCache getDataCache()
+    {
+        return dataCache;
+    }
+
     public int getNumberOfTasks()
     {
         return ( orgUnits.size() + ORG_UNITS_PER_TASK - 1 ) / ORG_UNITS_PER_TASK;
@@ -256,6 +267,8 @@ public class ValidationRunContext
                 }
             }
 
+            context.dataCache = new ValidationDataCache( context.periodTypeXs, context.maxCachedValues );
+
             return this.context;
         }
 
@@ -315,6 +328,18 @@ public class ValidationRunContext
             return this;
         }
 
+        /**
+         * Sets the max number of data values to cache for sharing between
+         * the tasks of the validation run.
+         *
+         * @param maxCachedValues 0 means no caching
+         */
+        public Builder withMaxCachedValues( long maxCachedValues )
+        {
+            this.context.maxCachedValues = maxCachedValues;
+            return this;
+        }
+
         public Builder withSendNotifications( boolean sendNotifications )
         {
             this.context.sendNotifications = sendNotifications;
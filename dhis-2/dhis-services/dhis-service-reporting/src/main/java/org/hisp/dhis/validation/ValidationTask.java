@@ -37,4 +37,19 @@ public interface ValidationTask
     extends Runnable
 {
     void init( List<OrganisationUnit> orgUnits, ValidationRunContext context, AnalyticsService analyticsService );
+
+    /**
+     * Initializes a task which evaluates a partition of the rules of each
+     * period type for the given organisation units. Tasks for the same
+     * organisation units share their data through the data cache of the
+     * validation run.
+     *
+     * @param orgUnits the organisation units.
+     * @param rulePartition the rule partition of this task.
+     * @param rulePartitions the number of rule partitions.
+     * @param context the validation run context.
+     * @param analyticsService the analytics service.
+     */
+    void init( List<OrganisationUnit> orgUnits, int rulePartition, int rulePartitions,
+        ValidationRunContext context, AnalyticsService analyticsService );
 }
@@ -54,6 +54,11 @@ public class Validator
      * evaluation for each organisation unit to a task that can be evaluated
      * independently in a multi-threaded environment.
      * <p/>
+     * The rules of each block of organisation units are partitioned between
+     * several tasks, which share the data of the block. The tasks of a block
+     * are queued together, so that the data of a block is fetched once and
+     * only the data of the blocks being evaluated is held in memory.
+     * <p/>
      * Return early with no results if there are no organisation units
      * or no validation rules.
      *
@@ -64,7 +69,11 @@ public class Validator
     {
         CategoryService categoryService = applicationContext.getBean( CategoryService.class );
                 
-        int threadPoolSize = getThreadPoolSize( context );
+        List<List<OrganisationUnit>> orgUnitLists = Lists.partition( context.getOrgUnits(), ValidationRunContext.ORG_UNITS_PER_TASK );
+
+        int rulePartitions = getRulePartitions( context );
+
+        int threadPoolSize = getThreadPoolSize( orgUnitLists.size() * rulePartitions );
 
         if ( threadPoolSize == 0 || context.getPeriodTypeXs().isEmpty() )
         {
@@ -73,14 +82,18 @@ public class Validator
 
         ExecutorService executor = Executors.newFixedThreadPool( threadPoolSize );
 
-        List<List<OrganisationUnit>> orgUnitLists = Lists.partition( context.getOrgUnits(), ValidationRunContext.ORG_UNITS_PER_TASK );
+        // Tasks for the same organisation units are queued together so that
+        // they run at the same time and share their data
 
         for ( List<OrganisationUnit> orgUnits : orgUnitLists )
         {
-            ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
-            task.init( orgUnits, context, analyticsService );
+            for ( int rulePartition = 0; rulePartition < rulePartitions; rulePartition++ )
+            {
+                ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
+                task.init( orgUnits, rulePartition, rulePartitions, context, analyticsService );
 
-            executor.execute( task );
+                executor.execute( task );
+            }
         }
 
         executor.shutdown();
@@ -102,19 +115,12 @@ public class Validator
     /**
      * Determines how many threads we should use for testing validation rules.
      * 
-     * @param context validation run context
+     * @param numberOfTasks number of validation tasks
      * @return number of threads we should use for testing validation rules
      */
-    private static int getThreadPoolSize( ValidationRunContext context )
+    private static int getThreadPoolSize( int numberOfTasks )
     {
-        int threadPoolSize = SystemUtils.getCpuCores();
-
-        if ( threadPoolSize > 2 )
-        {
-            threadPoolSize--;
-        }
-
-        int numberOfTasks = context.getNumberOfTasks();
+        int threadPoolSize = getMaxThreads();
 
         if ( threadPoolSize > numberOfTasks )
         {
@@ -124,6 +130,31 @@ public class Validator
         return threadPoolSize;
     }
 
+    /**
+     * Determines into how many partitions the rules of each block of
+     * organisation units are split, so that the threads evaluating a block
+     * share its data. The number of partitions does not depend on the number
+     * of blocks.
+     *
+     * @param context validation run context
+     * @return number of rule partitions
+     */
+    private static int getRulePartitions( ValidationRunContext context )
+    {
+        int maxRules = context.getPeriodTypeXs().stream()
+            .mapToInt( ptx -> ptx.getRuleXs().size() )
+            .max().orElse( 1 );
+
+        return Math.max( 1, Math.min( getMaxThreads(), maxRules ) );
+    }
+
+    private static int getMaxThreads()
+    {
+        int threads = SystemUtils.getCpuCores();
+
+        return threads > 2 ? threads - 1 : threads;
+    }
+
     /**
      * Reload attribute category option combos into this Hibernate context.
      *
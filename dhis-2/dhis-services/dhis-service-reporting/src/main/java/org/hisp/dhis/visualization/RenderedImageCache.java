@@ -0,0 +1,414 @@
+package org.hisp.dhis.visualization;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.hisp.dhis.category.CategoryDimension;
+import org.hisp.dhis.common.BaseAnalyticalObject;
+import org.hisp.dhis.common.DataDimensionItem;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.external.location.LocationManager;
+import org.hisp.dhis.fileresource.FileResourceContentCache;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroupSetDimension;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache of rendered chart and map images. Images are held in memory and
+ * evicted in least recently used order when the total size of the images
+ * exceeds the max size. Evicted images are kept in an optional disk cache.
+ * <p>
+ * Images are rendered from analytics data, and the cache is hence cleared
+ * when the analytics tables are updated and when application caches are
+ * cleared.
+ */
+@Slf4j
+@Component
+public class RenderedImageCache
+{
+    private static final String DISK_CACHE_DIR = "imagecache";
+
+    private static final String KEY_SEP = ":";
+
+    private final SystemSettingManager systemSettingManager;
+
+    private final long maxSize;
+
+    /**
+     * The disk cache, or null if disabled.
+     */
+    private final FileResourceContentCache diskCache;
+
+    /**
+     * Images by key, in access order.
+     */
+    private final LinkedHashMap<String, CachedImage> entries = new LinkedHashMap<>( 16, 0.75f, true );
+
+    private long size = 0;
+
+    /**
+     * The analytics table version the cached images were rendered from.
+     */
+    private String analyticsVersion;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public RenderedImageCache( SystemSettingManager systemSettingManager,
+        DhisConfigurationProvider configurationProvider, LocationManager locationManager )
+    {
+        this( systemSettingManager,
+            Long.parseLong( configurationProvider.getProperty( ConfigurationKey.IMAGE_CACHE_MAX_SIZE_MB ) ) * 1024 * 1024,
+            createDiskCache( configurationProvider, locationManager ) );
+    }
+
+    /**
+     * @param systemSettingManager the system setting manager.
+     * @param maxSize the max total size of images held in memory in bytes.
+     * @param diskCache the disk cache, can be null.
+     */
+    public RenderedImageCache( SystemSettingManager systemSettingManager, long maxSize,
+        FileResourceContentCache diskCache )
+    {
+        checkNotNull( systemSettingManager );
+
+        this.systemSettingManager = systemSettingManager;
+        this.maxSize = maxSize;
+        this.diskCache = diskCache;
+    }
+
+    /**
+     * Renders images. Returns null if there is nothing to render.
+     */
+    @FunctionalInterface
+    public interface Renderer
+    {
+        byte[] render()
+            throws IOException;
+    }
+
+    /**
+     * Returns the image with the given key, rendering and caching it if it is
+     * not cached.
+     *
+     * @param key the image key, see {@link #getKey(Object...)}.
+     * @param renderer the renderer of the image.
+     * @return the image, or null if there was nothing to render.
+     * @throws IOException if the image could not be rendered.
+     */
+    public CachedImage get( String key, Renderer renderer )
+        throws IOException
+    {
+        CachedImage image = get( key );
+
+        if ( image != null )
+        {
+            hits.increment();
+            return image;
+        }
+
+        misses.increment();
+
+        byte[] content = renderer.render();
+
+        if ( content == null )
+        {
+            return null;
+        }
+
+        image = new CachedImage( content );
+
+        put( key, image );
+
+        return image;
+    }
+
+    /**
+     * Removes all images from the cache.
+     */
+    public synchronized void invalidateAll()
+    {
+        entries.clear();
+        size = 0;
+
+        if ( diskCache != null )
+        {
+            diskCache.clear();
+        }
+
+        log.info( "Rendered image cache cleared" );
+    }
+
+    @EventListener
+    public void handleApplicationCachesCleared( ApplicationCacheClearedEvent event )
+    {
+        invalidateAll();
+    }
+
+    /**
+     * Returns a cache key composed of the given components. The key must
+     * include everything the rendered image depends on, such as the
+     * visualization, the last updated time of it and of the metadata read
+     * when rendering it, the request parameters, the locale and the
+     * {@link #getUserKey(User) data access} of the user.
+     *
+     * @param components the key components, may contain nulls.
+     * @return the key.
+     */
+    public static String getKey( Object... components )
+    {
+        return Stream.of( components )
+            .map( c -> c instanceof Date ? String.valueOf( ((Date) c).getTime() ) : String.valueOf( c ) )
+            .collect( Collectors.joining( KEY_SEP ) );
+    }
+
+    /**
+     * Returns a key of the data access of the given user. Users with the same
+     * key share images.
+     *
+     * @param user the user, may be null.
+     * @return the key.
+     * @see UserUtils#getDataAccessKey(User)
+     */
+    public static String getUserKey( User user )
+    {
+        return UserUtils.getDataAccessKey( user );
+    }
+
+    /**
+     * Returns the latest last updated time of the metadata referenced by the
+     * given analytical object which is read when rendering it: the data items,
+     * the organisation units and the category and organisation unit group set
+     * dimensions. Including it in the key makes images refresh when for
+     * instance a data element is renamed.
+     *
+     * @param object the analytical object.
+     * @return the latest last updated time, or null if there is none.
+     */
+    public static Date getReferencedLastUpdated( BaseAnalyticalObject object )
+    {
+        Stream<IdentifiableObject> referenced = Stream.of(
+            object.getDataDimensionItems().stream().map( DataDimensionItem::getDimensionalItemObject ),
+            object.getOrganisationUnits().stream(),
+            object.getCategoryDimensions().stream().map( CategoryDimension::getDimension ),
+            object.getCategoryDimensions().stream().flatMap( d -> d.getItems().stream() ),
+            object.getOrganisationUnitGroupSetDimensions().stream().map( OrganisationUnitGroupSetDimension::getDimension ),
+            object.getOrganisationUnitGroupSetDimensions().stream().flatMap( d -> d.getItems().stream() ) )
+            .flatMap( s -> s.map( IdentifiableObject.class::cast ) );
+
+        return referenced
+            .filter( Objects::nonNull )
+            .map( IdentifiableObject::getLastUpdated )
+            .filter( Objects::nonNull )
+            .max( Date::compareTo )
+            .orElse( null );
+    }
+
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    public synchronized long getSize()
+    {
+        return size;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private CachedImage get( String key )
+        throws IOException
+    {
+        File file;
+
+        synchronized ( this )
+        {
+            checkAnalyticsVersion();
+
+            CachedImage image = entries.get( key );
+
+            if ( image != null || diskCache == null )
+            {
+                return image;
+            }
+
+            file = diskCache.get( key );
+        }
+
+        if ( file == null )
+        {
+            return null;
+        }
+
+        byte[] content;
+
+        try
+        {
+            content = Files.readAllBytes( file.toPath() );
+        }
+        catch ( IOException ex )
+        {
+            // Content was evicted from the disk cache while being read
+
+            return null;
+        }
+
+        CachedImage image = new CachedImage( content );
+
+        synchronized ( this )
+        {
+            add( key, image );
+        }
+
+        return image;
+    }
+
+    /**
+     * Adds the image to the memory and disk caches. The disk cache is written
+     * while holding the lock so that an image is never written after the
+     * cache has been cleared.
+     */
+    private synchronized void put( String key, CachedImage image )
+        throws IOException
+    {
+        add( key, image );
+
+        if ( diskCache != null )
+        {
+            diskCache.put( key, new ByteArrayInputStream( image.getContent() ), image.getSize() );
+        }
+    }
+
+    private void add( String key, CachedImage image )
+    {
+        if ( image.getSize() > maxSize )
+        {
+            return;
+        }
+
+        CachedImage previous = entries.put( key, image );
+        size += image.getSize() - ( previous != null ? previous.getSize() : 0 );
+
+        Iterator<Map.Entry<String, CachedImage>> iterator = entries.entrySet().iterator();
+
+        while ( size > maxSize && iterator.hasNext() )
+        {
+            Map.Entry<String, CachedImage> eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.getValue().getSize();
+        }
+    }
+
+    /**
+     * Clears the cache if the analytics tables have been updated since the
+     * cached images were rendered.
+     */
+    private void checkAnalyticsVersion()
+    {
+        String version = getKey(
+            systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE ),
+            systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_UPDATE ) );
+
+        if ( !Objects.equals( version, analyticsVersion ) )
+        {
+            if ( analyticsVersion != null )
+            {
+                invalidateAll();
+            }
+
+            analyticsVersion = version;
+        }
+    }
+
+    private static FileResourceContentCache createDiskCache( DhisConfigurationProvider configurationProvider,
+        LocationManager locationManager )
+    {
+        long maxSizeMb = Long.parseLong( configurationProvider.getProperty( ConfigurationKey.IMAGE_CACHE_DISK_MAX_SIZE_MB ) );
+
+        if ( maxSizeMb <= 0 )
+        {
+            return null;
+        }
+
+        Path directory = locationManager.externalDirectorySet() ?
+            Paths.get( locationManager.getExternalDirectoryPath(), DISK_CACHE_DIR ) :
+            Paths.get( System.getProperty( "java.io.tmpdir" ), "dhis2-" + DISK_CACHE_DIR );
+
+        try
+        {
+            FileResourceContentCache diskCache = new FileResourceContentCache( directory, maxSizeMb * 1024 * 1024 );
+
+            log.info( String.format( "Rendered image disk cache configured with directory: '%s' and max size: %d MB",
+                directory, maxSizeMb ) );
+
+            return diskCache;
+        }
+        catch ( IOException ex )
+        {
+            log.warn( String.format( "Rendered image disk cache could not be created in directory: '%s'", directory ), ex );
+
+            return null;
+        }
+    }
+}
@@ -1125,6 +1125,45 @@ public class PredictionServiceTest
         assertEquals( "Pred 2 Ins 0 Upd 0 Del 0 Unch 2", shortSummary( summary ) );
     }
 
+    @Test
+    public void testPredictTaskMultiLevels()
+    {
+        useDataValue( dataElementA, makeMonth( 2001, 6 ), sourceE, 1 );
+        useDataValue( dataElementA, makeMonth( 2001, 7 ), sourceE, 2 );
+        useDataValue( dataElementA, makeMonth( 2001, 6 ), sourceF, 4 );
+        useDataValue( dataElementA, makeMonth( 2001, 7 ), sourceF, 8 );
+
+        dataValueBatchHandler.flush();
+
+        Set<OrganisationUnitLevel> orgUnitLevels = Sets.newHashSet( orgUnitLevel1, orgUnitLevel2, orgUnitLevel3 );
+
+        Predictor p = createPredictor( dataElementX, defaultCombo, "PredictTaskMultiLevels",
+            new Expression( "sum(#{" + dataElementA.getUid() + "})", "descriptionA" ), null,
+            periodTypeMonthly, orgUnitLevels, 2, 0, 0 );
+
+        predictorService.addPredictor( p );
+
+        List<String> predictors = Lists.newArrayList( p.getUid() );
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2001, 9 ), predictors, null, null );
+
+        assertEquals( "Pred 1 Ins 8 Upd 0 Del 0 Unch 0", shortSummary( summary ) );
+
+        assertEquals( "1.0", getDataValue( dataElementX, defaultCombo, sourceE, makeMonth( 2001, 7 ) ) );
+        assertEquals( "4.0", getDataValue( dataElementX, defaultCombo, sourceF, makeMonth( 2001, 7 ) ) );
+        assertEquals( "5.0", getDataValue( dataElementX, defaultCombo, sourceD, makeMonth( 2001, 7 ) ) );
+        assertEquals( "5.0", getDataValue( dataElementX, defaultCombo, sourceB, makeMonth( 2001, 7 ) ) );
+
+        assertEquals( "3.0", getDataValue( dataElementX, defaultCombo, sourceE, makeMonth( 2001, 8 ) ) );
+        assertEquals( "12.0", getDataValue( dataElementX, defaultCombo, sourceF, makeMonth( 2001, 8 ) ) );
+        assertEquals( "15.0", getDataValue( dataElementX, defaultCombo, sourceD, makeMonth( 2001, 8 ) ) );
+        assertEquals( "15.0", getDataValue( dataElementX, defaultCombo, sourceB, makeMonth( 2001, 8 ) ) );
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2001, 9 ), predictors, null, null );
+
+        assertEquals( "Pred 1 Ins 0 Upd 0 Del 0 Unch 8", shortSummary( summary ) );
+    }
+
     @Test
     public void testPredictTaskPredictorGroups()
     {
@@ -1167,6 +1206,39 @@ public class PredictionServiceTest
         assertEquals( "20", getDataValue( dataElementY, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
     }
 
+    @Test
+    public void testPredictTaskDependentPredictors()
+    {
+        useDataValue( dataElementA, makeMonth( 2001, 6 ), sourceA, 10 );
+        useDataValue( dataElementB, makeMonth( 2001, 7 ), sourceA, 5 );
+
+        dataValueBatchHandler.flush();
+
+        Expression expressionXB = new Expression( "#{" + dataElementX.getUid() + "}+#{" + dataElementB.getUid() + "}", "descriptionXB" );
+
+        Predictor predictorX = createPredictor( dataElementX, defaultCombo, "A", expressionA, null,
+            periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        Predictor predictorY = createPredictor( dataElementY, defaultCombo, "B", expressionXB, null,
+            periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        predictorService.addPredictor( predictorX );
+        predictorService.addPredictor( predictorY );
+
+        // Predictor Y uses the output of predictor X and must run after it
+
+        List<String> predictors = Lists.newArrayList( predictorY.getUid(), predictorX.getUid() );
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2001, 8 ), predictors, null, null );
+
+        assertEquals( "Pred 2 Ins 2 Upd 0 Del 0 Unch 0", shortSummary( summary ) );
+
+        assertEquals( "10.0", getDataValue( dataElementX, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
+        assertEquals( "15", getDataValue( dataElementY, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
+
+        assertEquals( Sets.newHashSet( predictorX.getUid(), predictorY.getUid() ), summary.getPredictorTimings().keySet() );
+    }
+
     @Test
     public void testPredictMedian()
     {
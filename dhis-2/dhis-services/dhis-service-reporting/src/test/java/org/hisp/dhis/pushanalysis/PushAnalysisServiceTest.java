@@ -0,0 +1,362 @@
+package org.hisp.dhis.pushanalysis;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
+import static org.hisp.dhis.DhisConvenienceTest.createUser;
+import static org.hisp.dhis.DhisConvenienceTest.createUserGroup;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.common.CodeGenerator;
+import org.hisp.dhis.common.IdentifiableObjectStore;
+import org.hisp.dhis.dashboard.Dashboard;
+import org.hisp.dhis.dashboard.DashboardItem;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.fileresource.ExternalFileResource;
+import org.hisp.dhis.fileresource.ExternalFileResourceService;
+import org.hisp.dhis.fileresource.FileResource;
+import org.hisp.dhis.fileresource.FileResourceService;
+import org.hisp.dhis.i18n.I18nManager;
+import org.hisp.dhis.mapgeneration.MapGenerationService;
+import org.hisp.dhis.mapping.Map;
+import org.hisp.dhis.message.MessageSender;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.scheduling.JobConfiguration;
+import org.hisp.dhis.scheduling.JobType;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.notification.NotificationLevel;
+import org.hisp.dhis.system.notification.Notifier;
+import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserService;
+import org.hisp.dhis.visualization.ChartImageGenerator;
+import org.hisp.dhis.visualization.VisualizationService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.google.common.collect.Sets;
+
+public class PushAnalysisServiceTest
+{
+    @Mock
+    private Notifier notifier;
+
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @Mock
+    private DhisConfigurationProvider dhisConfigurationProvider;
+
+    @Mock
+    private ExternalFileResourceService externalFileResourceService;
+
+    @Mock
+    private FileResourceService fileResourceService;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @Mock
+    private MapGenerationService mapGenerationService;
+
+    @Mock
+    private VisualizationService visualizationService;
+
+    @Mock
+    private ChartImageGenerator chartImageGenerator;
+
+    @Mock
+    private I18nManager i18nManager;
+
+    @Mock
+    private MessageSender messageSender;
+
+    @Mock
+    private IdentifiableObjectStore<PushAnalysis> pushAnalysisStore;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private DefaultPushAnalysisService subject;
+
+    private PushAnalysis pushAnalysis;
+
+    private Map map;
+
+    private OrganisationUnit ouA;
+
+    private OrganisationUnit ouB;
+
+    private JobConfiguration jobId;
+
+    private java.util.Map<String, User> users;
+
+    @Before
+    public void setUp()
+    {
+        subject = new DefaultPushAnalysisService( notifier, systemSettingManager, dhisConfigurationProvider,
+            externalFileResourceService, fileResourceService, currentUserService, mapGenerationService,
+            visualizationService, chartImageGenerator, i18nManager, messageSender, pushAnalysisStore, userService,
+            transactionManager );
+
+        map = new Map();
+        map.setAutoFields();
+
+        DashboardItem item = new DashboardItem();
+        item.setMap( map );
+
+        Dashboard dashboard = new Dashboard( "DashboardA" );
+        dashboard.setAutoFields();
+        dashboard.getItems().add( item );
+
+        pushAnalysis = new PushAnalysis();
+        pushAnalysis.setAutoFields();
+        pushAnalysis.setName( "PushAnalysisA" );
+        pushAnalysis.setTitle( "TitleA" );
+        pushAnalysis.setDashboard( dashboard );
+
+        ouA = createOrganisationUnit( 'A' );
+        ouB = createOrganisationUnit( 'B' );
+
+        jobId = new JobConfiguration( "PushAnalysisJob", JobType.PUSH_ANALYSIS, null, true );
+
+        users = new HashMap<>();
+
+        when( pushAnalysisStore.getByUid( pushAnalysis.getUid() ) ).thenReturn( pushAnalysis );
+        when( dhisConfigurationProvider.getServerBaseUrl() ).thenReturn( "http://localhost:8080" );
+        when( userService.getUser( anyString() ) ).thenAnswer( invocation -> users.get( invocation.getArgument( 0 ) ) );
+        when( fileResourceService.saveFileResource( any( FileResource.class ), any( byte[].class ) ) )
+            .thenAnswer( invocation -> CodeGenerator.generateUid() );
+        when( externalFileResourceService.saveExternalFileResource( any( ExternalFileResource.class ) ) )
+            .thenAnswer( invocation -> CodeGenerator.generateUid() );
+
+        // The map image is drawn from the org unit of the user
+
+        when( mapGenerationService.generateMapImageForUser( eq( map ), any( Date.class ), isNull(), anyInt(), anyInt(),
+            any( User.class ) ) ).thenAnswer( invocation -> {
+                User user = invocation.getArgument( 5 );
+                return createImage( user.getOrganisationUnit() == ouA ? 0xff0000 : 0x0000ff );
+            } );
+    }
+
+    @After
+    public void tearDown()
+    {
+        subject.shutdown();
+    }
+
+    @Test
+    public void testRecipientsGroupedByFingerprint()
+    {
+        User userA = createRecipient( 'A', ouA );
+        User userB = createRecipient( 'B', ouA );
+        User userC = createRecipient( 'C', ouB );
+
+        setRecipients( userA, userB, userC );
+
+        subject.runPushAnalysis( pushAnalysis.getUid(), jobId );
+
+        verify( mapGenerationService, times( 2 ) ).generateMapImageForUser( eq( map ), any( Date.class ), isNull(),
+            anyInt(), anyInt(), any( User.class ) );
+
+        List<Set<User>> recipients = getRecipientBatches( 2 );
+
+        assertEquals( Sets.newHashSet( Sets.newHashSet( userA, userB ), Sets.newHashSet( userC ) ),
+            Sets.newHashSet( recipients ) );
+    }
+
+    /**
+     * The locale of a user is a user setting, which the report rendering does
+     * not use. Users with the same access but different personal details and
+     * settings therefore share a report.
+     */
+    @Test
+    public void testRecipientFingerprintOmitsLocale()
+    {
+        User userA = createRecipient( 'A', ouA );
+        User userB = createRecipient( 'B', ouA );
+
+        userB.setFirstName( "Prénom" );
+        userB.setSurname( "Nom" );
+        userB.setPhoneNumber( "+33100000000" );
+
+        setRecipients( userA, userB );
+
+        subject.runPushAnalysis( pushAnalysis.getUid(), jobId );
+
+        verify( mapGenerationService, times( 1 ) ).generateMapImageForUser( eq( map ), any( Date.class ), isNull(),
+            anyInt(), anyInt(), any( User.class ) );
+
+        assertEquals( Sets.newHashSet( userA, userB ), getRecipientBatches( 1 ).get( 0 ) );
+    }
+
+    @Test
+    public void testImagesReusedByChecksum()
+    {
+        User userA = createRecipient( 'A', ouA );
+        User userB = createRecipient( 'B', ouA );
+        User userC = createRecipient( 'C', ouB );
+
+        // Users A and B see the same image through different user groups
+
+        userB.getGroups().add( createUserGroup( 'X', Sets.newHashSet( userB ) ) );
+
+        setRecipients( userA, userB, userC );
+
+        subject.runPushAnalysis( pushAnalysis.getUid(), jobId );
+
+        verify( mapGenerationService, times( 3 ) ).generateMapImageForUser( eq( map ), any( Date.class ), isNull(),
+            anyInt(), anyInt(), any( User.class ) );
+        verify( fileResourceService, times( 2 ) ).saveFileResource( any( FileResource.class ), any( byte[].class ) );
+
+        getRecipientBatches( 3 );
+    }
+
+    @Test
+    public void testRecipientsSentInBatches()
+    {
+        List<User> recipients = new ArrayList<>();
+
+        for ( int i = 0; i < 120; i++ )
+        {
+            recipients.add( createRecipient( 'A', ouA ) );
+        }
+
+        setRecipients( recipients.toArray( new User[0] ) );
+
+        subject.runPushAnalysis( pushAnalysis.getUid(), jobId );
+
+        List<Integer> batchSizes = getRecipientBatches( 3 ).stream()
+            .map( Set::size ).sorted().collect( Collectors.toList() );
+
+        assertEquals( Sets.newHashSet( recipients ), getRecipientBatches( 3 ).stream()
+            .flatMap( Set::stream ).collect( Collectors.toSet() ) );
+        assertEquals( 20, (int) batchSizes.get( 0 ) );
+        assertEquals( 50, (int) batchSizes.get( 1 ) );
+        assertEquals( 50, (int) batchSizes.get( 2 ) );
+    }
+
+    @Test
+    public void testFailedGroupLogged()
+    {
+        User userA = createRecipient( 'A', ouA );
+        User userB = createRecipient( 'B', ouB );
+
+        setRecipients( userA, userB );
+
+        when( mapGenerationService.generateMapImageForUser( eq( map ), any( Date.class ), isNull(), anyInt(), anyInt(),
+            eq( userB ) ) ).thenThrow( new IllegalStateException( "Map failed" ) );
+
+        subject.runPushAnalysis( pushAnalysis.getUid(), jobId );
+
+        verify( notifier ).notify( eq( jobId ), eq( NotificationLevel.ERROR ),
+            contains( "Could not create report for PushAnalysis 'PushAnalysisA' and User '" +
+                userB.getUsername() + "' with 0 other users: Map failed" ), eq( false ) );
+
+        assertEquals( Sets.newHashSet( userA ), getRecipientBatches( 1 ).get( 0 ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private User createRecipient( char uniqueCharacter, OrganisationUnit organisationUnit )
+    {
+        User user = createUser( uniqueCharacter );
+        user.setUid( CodeGenerator.generateUid() );
+        user.setEmail( user.getUid() + "@dhis2.org" );
+        user.getOrganisationUnits().add( organisationUnit );
+
+        users.put( user.getUid(), user );
+
+        return user;
+    }
+
+    private void setRecipients( User... recipients )
+    {
+        pushAnalysis.setRecipientUserGroups( Sets.newHashSet( createUserGroup( 'A', Sets.newHashSet( recipients ) ) ) );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private List<Set<User>> getRecipientBatches( int batches )
+    {
+        ArgumentCaptor<Set<User>> recipients = ArgumentCaptor.forClass( Set.class );
+
+        verify( messageSender, times( batches ) ).sendMessageAsync( eq( "TitleA" ), anyString(), eq( "" ), isNull(),
+            recipients.capture(), anyBoolean() );
+
+        return recipients.getAllValues();
+    }
+
+    private BufferedImage createImage( int rgb )
+    {
+        BufferedImage image = new BufferedImage( 2, 2, BufferedImage.TYPE_INT_RGB );
+
+        for ( int x = 0; x < 2; x++ )
+        {
+            for ( int y = 0; y < 2; y++ )
+            {
+                image.setRGB( x, y, rgb );
+            }
+        }
+
+        return image;
+    }
+}
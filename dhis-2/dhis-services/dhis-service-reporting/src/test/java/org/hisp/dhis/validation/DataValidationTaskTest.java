@@ -34,6 +34,8 @@ import static org.hisp.dhis.expression.ParseType.SIMPLE_TEST;
 import static org.hisp.dhis.expression.ParseType.VALIDATION_RULE_EXPRESSION;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
@@ -216,6 +218,62 @@ public class DataValidationTaskTest
 
 
 
+    /**
+     * Verify that tasks evaluating the rules of a block of many organisation
+     * units fetch the data of each period once and release it afterwards
+     */
+    @Test
+    public void verifyDataSharedBetweenRulePartitionsForManyOrgUnits()
+    {
+        Expression leftExpression = createExpression2( 'A', "#{FUrCpcvMAmC.OrDRjJL9bTS}" );
+        Expression rightExpression = createExpression2( 'B', "-10" );
+
+        List<PeriodTypeExtended> periodTypes = new ArrayList<>();
+        PeriodTypeExtended periodType = createPeriodTypeExtended(
+            createValidationRuleExtended( leftExpression, rightExpression, Operator.not_equal_to ),
+            createValidationRuleExtended( leftExpression, rightExpression, Operator.greater_than ) );
+        periodType.addDataElement( deA );
+        periodTypes.add( periodType );
+
+        List<OrganisationUnit> manyOrgUnits = new ArrayList<>();
+        List<DeflatedDataValue> deflatedDataValues = new ArrayList<>();
+        CategoryOptionCombo attributeOptionCombo = createCategoryOptionCombo( 'B', 'C' );
+
+        for ( int i = 0; i < ValidationRunContext.ORG_UNITS_PER_TASK; i++ )
+        {
+            OrganisationUnit orgUnit = createOu( 'A' );
+            orgUnit.setId( i + 1 );
+            manyOrgUnits.add( orgUnit );
+
+            deflatedDataValues.add( new DeflatedDataValue(
+                createDataValue( deA, p1, orgUnit, String.valueOf( i ), attributeOptionCombo ) ) );
+        }
+
+        ValidationRunContext ctx = ValidationRunContext.newBuilder()
+            .withOrgUnits( manyOrgUnits )
+            .withConstantMap( constantMap )
+            .withDefaultAttributeCombo( createCategoryOptionCombo( 'A', 'B' ) )
+            .withPeriodTypeXs( periodTypes )
+            .withMaxResults( 500 )
+            .build();
+
+        when( dataValueService.getDeflatedDataValues( any( DataExportParams.class ) ) )
+            .thenReturn( deflatedDataValues );
+
+        DataValidationTask partitionA = new DataValidationTask( expressionService, dataValueService, categoryService, periodService );
+        DataValidationTask partitionB = new DataValidationTask( expressionService, dataValueService, categoryService, periodService );
+
+        partitionA.init( manyOrgUnits, 0, 2, ctx, analyticsService );
+        partitionB.init( manyOrgUnits, 1, 2, ctx, analyticsService );
+
+        partitionA.run();
+        partitionB.run();
+
+        verify( dataValueService, times( 3 ) ).getDeflatedDataValues( any( DataExportParams.class ) );
+
+        assertThat( ctx.getDataCache().getCachedValues(), is( 0L ) );
+    }
+
     private void mockExpressionService(Expression expression, Map<DimensionalItemObject, Double> vals, ValidationRunContext ctx, Double val) {
 
         when( expressionService.getExpressionValue( expression.getExpression(), VALIDATION_RULE_EXPRESSION, vals,
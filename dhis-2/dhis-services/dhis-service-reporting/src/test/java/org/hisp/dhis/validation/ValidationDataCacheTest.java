@@ -0,0 +1,197 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.MapMap;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.period.PeriodType;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Unit tests for {@link ValidationData} and {@link ValidationDataCache}.
+ */
+public class ValidationDataCacheTest
+{
+    private DataElement deA;
+
+    private DataElement deB;
+
+    private ValidationDataCache cache;
+
+    @Before
+    public void setUp()
+    {
+        deA = createDataElement( 'A' );
+        deB = createDataElement( 'B' );
+
+        PeriodTypeExtended periodTypeX = new PeriodTypeExtended( PeriodType.getPeriodTypeFromIsoString( "201901" ) );
+        periodTypeX.addDataElement( deA );
+        periodTypeX.addDataElement( deB );
+
+        cache = new ValidationDataCache( Lists.newArrayList( periodTypeX ), 100 );
+    }
+
+    @Test
+    public void testValuesBuilder()
+    {
+        long keyA = ValidationData.key( 0, 0, 0 );
+        long keyB = ValidationData.key( 0, 0, 1 );
+        long keyC = ValidationData.key( 1, 0, 0 );
+
+        ValidationData.Values values = new ValidationData.ValuesBuilder()
+            .add( keyA, 1.0, 10 )
+            .add( keyA, 2.0, 10 )
+            .add( keyB, 1.0, 10 )
+            .add( keyB, 5.0, 5 )
+            .add( keyB, 7.0, 20 )
+            .add( keyC, 1.0, 10 )
+            .put( keyC, 4.0 )
+            .build();
+
+        assertEquals( 3, values.size() );
+        assertEquals( 3.0, values.get( keyA ), 0.0 );
+        assertEquals( 5.0, values.get( keyB ), 0.0 );
+        assertEquals( 4.0, values.get( keyC ), 0.0 );
+        assertNull( values.get( ValidationData.key( 2, 0, 0 ) ) );
+    }
+
+    @Test
+    public void testValuesBuilderResize()
+    {
+        ValidationData.ValuesBuilder builder = new ValidationData.ValuesBuilder();
+
+        for ( int i = 0; i < 1000; i++ )
+        {
+            builder.put( ValidationData.key( i, 0, 0 ), i );
+        }
+
+        ValidationData.Values values = builder.build();
+
+        assertEquals( 1000, values.size() );
+        assertEquals( 999.0, values.get( ValidationData.key( 999, 0, 0 ) ), 0.0 );
+    }
+
+    @Test
+    public void testGetValues()
+    {
+        int aocA = cache.getAocIndex( "aocA" );
+        int aocB = cache.getAocIndex( "aocB" );
+
+        ValidationData data = new ValidationData(
+            new ValidationData.ValuesBuilder()
+                .put( ValidationData.key( 0, aocA, cache.getItemIndex( deA ) ), 1.0 )
+                .put( ValidationData.key( 1, aocA, cache.getItemIndex( deA ) ), 2.0 )
+                .put( ValidationData.key( 1, aocB, cache.getItemIndex( deB ) ), 3.0 )
+                .build(),
+            new ValidationData.ValuesBuilder()
+                .put( ValidationData.key( 1, aocB, cache.getItemIndex( deA ) ), 4.0 )
+                .build(),
+            new ValidationData.ValuesBuilder().build() );
+
+        assertEquals( 4, data.size() );
+
+        MapMap<String, DimensionalItemObject, Double> values = data.getValues( 1, false, cache );
+
+        assertEquals( 2, values.size() );
+        assertEquals( 2.0, values.getValue( "aocA", deA ), 0.0 );
+        assertEquals( 3.0, values.getValue( "aocB", deB ), 0.0 );
+        assertEquals( 4.0, values.getValue( "aocB", deA ), 0.0 );
+
+        values = data.getValues( 1, true, cache );
+
+        assertNull( values.getValue( "aocB", deA ) );
+        assertNull( data.getValues( 2, false, cache ) );
+    }
+
+    @Test
+    public void testSharedData()
+    {
+        AtomicInteger loads = new AtomicInteger();
+
+        ValidationData data = cache.get( "A", 2, () -> load( loads, 3 ) );
+
+        assertSame( data, cache.get( "A", 2, () -> load( loads, 3 ) ) );
+        assertEquals( 1, loads.get() );
+        assertEquals( 3, cache.getCachedValues() );
+
+        cache.release( "A" );
+
+        assertEquals( 3, cache.getCachedValues() );
+
+        cache.release( "A" );
+
+        assertEquals( 0, cache.getCachedValues() );
+    }
+
+    @Test
+    public void testDataNotCachedWhenFull()
+    {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get( "A", 2, () -> load( loads, 100 ) );
+        cache.get( "B", 2, () -> load( loads, 3 ) );
+        cache.get( "B", 2, () -> load( loads, 3 ) );
+
+        assertEquals( 3, loads.get() );
+        assertEquals( 100, cache.getCachedValues() );
+
+        cache.release( "B" );
+        cache.release( "B" );
+        cache.release( "A" );
+        cache.release( "A" );
+
+        assertEquals( 0, cache.getCachedValues() );
+    }
+
+    private ValidationData load( AtomicInteger loads, int size )
+    {
+        loads.incrementAndGet();
+
+        ValidationData.ValuesBuilder builder = new ValidationData.ValuesBuilder();
+
+        for ( int i = 0; i < size; i++ )
+        {
+            builder.put( ValidationData.key( i, 0, 0 ), i );
+        }
+
+        return new ValidationData( builder.build(), new ValidationData.ValuesBuilder().build(),
+            new ValidationData.ValuesBuilder().build() );
+    }
+}
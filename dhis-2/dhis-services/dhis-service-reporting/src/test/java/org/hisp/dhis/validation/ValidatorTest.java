@@ -0,0 +1,143 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createCategoryOptionCombo;
+import static org.hisp.dhis.DhisConvenienceTest.createExpression2;
+import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
+import static org.hisp.dhis.DhisConvenienceTest.createPeriod;
+import static org.hisp.dhis.DhisConvenienceTest.createValidationRule;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.hisp.dhis.analytics.AnalyticsService;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.expression.Operator;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.PeriodType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.context.ApplicationContext;
+
+public class ValidatorTest
+{
+    private static final int RULES = 4;
+
+    @Mock
+    private ApplicationContext applicationContext;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @Mock
+    private AnalyticsService analyticsService;
+
+    @Mock
+    private ValidationTask validationTask;
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    /**
+     * Verify that the rules of every block of organisation units are
+     * partitioned in the same way when there are more blocks than threads,
+     * so that the tasks of each block share its data
+     */
+    @Test
+    public void verifyRulesPartitionedForManyOrgUnits()
+    {
+        PeriodType monthly = PeriodType.getPeriodTypeFromIsoString( "201901" );
+
+        PeriodTypeExtended periodTypeX = new PeriodTypeExtended( monthly );
+        periodTypeX.addPeriod( createPeriod( "201901" ) );
+
+        for ( int i = 0; i < RULES; i++ )
+        {
+            periodTypeX.getRuleXs().add( new ValidationRuleExtended( createValidationRule( 'A', Operator.equal_to,
+                createExpression2( 'A', "1" ), createExpression2( 'B', "1" ), monthly ) ) );
+        }
+
+        List<PeriodTypeExtended> periodTypeXs = new ArrayList<>();
+        periodTypeXs.add( periodTypeX );
+
+        int blocks = SystemUtils.getCpuCores() + 2;
+
+        List<OrganisationUnit> orgUnits = new ArrayList<>();
+
+        for ( int i = 0; i < blocks * ValidationRunContext.ORG_UNITS_PER_TASK; i++ )
+        {
+            OrganisationUnit orgUnit = createOrganisationUnit( 'A' );
+            orgUnit.setId( i + 1 );
+            orgUnits.add( orgUnit );
+        }
+
+        ValidationRunContext context = ValidationRunContext.newBuilder()
+            .withOrgUnits( orgUnits )
+            .withConstantMap( new HashMap<>() )
+            .withDefaultAttributeCombo( createCategoryOptionCombo( 'A', 'B' ) )
+            .withPeriodTypeXs( periodTypeXs )
+            .withMaxResults( 500 )
+            .build();
+
+        when( applicationContext.getBean( CategoryService.class ) ).thenReturn( categoryService );
+        when( applicationContext.getBean( DataValidationTask.NAME ) ).thenReturn( validationTask );
+
+        Validator.validate( context, applicationContext, analyticsService );
+
+        int threads = SystemUtils.getCpuCores() > 2 ? SystemUtils.getCpuCores() - 1 : SystemUtils.getCpuCores();
+        int rulePartitions = Math.min( threads, RULES );
+
+        ArgumentCaptor<List<OrganisationUnit>> orgUnitsCaptor = ArgumentCaptor.forClass( List.class );
+
+        verify( validationTask, times( blocks * rulePartitions ) ).init( orgUnitsCaptor.capture(), anyInt(),
+            eq( rulePartitions ), any( ValidationRunContext.class ), any( AnalyticsService.class ) );
+
+        List<List<OrganisationUnit>> initOrgUnits = orgUnitsCaptor.getAllValues();
+
+        for ( int i = 0; i < initOrgUnits.size(); i++ )
+        {
+            assertEquals( orgUnits.get( ( i / rulePartitions ) * ValidationRunContext.ORG_UNITS_PER_TASK ),
+                initOrgUnits.get( i ).get( 0 ) );
+        }
+    }
+}
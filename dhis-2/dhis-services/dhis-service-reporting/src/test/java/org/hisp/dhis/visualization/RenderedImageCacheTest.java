@@ -0,0 +1,272 @@
+package org.hisp.dhis.visualization;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.fileresource.FileResourceContentCache;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserCredentials;
+import org.hisp.dhis.user.UserGroup;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import com.google.common.collect.Sets;
+
+public class RenderedImageCacheTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    private final AtomicInteger renders = new AtomicInteger();
+
+    private RenderedImageCache cache;
+
+    @Before
+    public void setUp()
+    {
+        cache = new RenderedImageCache( systemSettingManager, 10, null );
+    }
+
+    @Test
+    public void testGetRendersOnce()
+        throws IOException
+    {
+        CachedImage imageA = cache.get( "a", () -> render( 4 ) );
+        CachedImage imageB = cache.get( "a", () -> render( 4 ) );
+
+        assertEquals( 1, renders.get() );
+        assertArrayEquals( imageA.getContent(), imageB.getContent() );
+        assertEquals( imageA.getEtag(), imageB.getEtag() );
+        assertEquals( 4, cache.getSize() );
+        assertEquals( 1, cache.getHits() );
+        assertEquals( 1, cache.getMisses() );
+    }
+
+    @Test
+    public void testEtagIsContentHash()
+        throws IOException
+    {
+        assertEquals( cache.get( "a", () -> render( 4 ) ).getEtag(), cache.get( "b", () -> render( 4 ) ).getEtag() );
+        assertNotEquals( cache.get( "a", () -> render( 4 ) ).getEtag(), cache.get( "c", () -> render( 5 ) ).getEtag() );
+    }
+
+    @Test
+    public void testNothingRendered()
+        throws IOException
+    {
+        assertNull( cache.get( "a", () -> null ) );
+        assertNull( cache.get( "a", () -> null ) );
+        assertEquals( 2, cache.getMisses() );
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed()
+        throws IOException
+    {
+        cache.get( "a", () -> render( 4 ) );
+        cache.get( "b", () -> render( 4 ) );
+        cache.get( "a", () -> render( 4 ) );
+        cache.get( "c", () -> render( 4 ) );
+
+        assertEquals( 3, renders.get() );
+        assertEquals( 8, cache.getSize() );
+
+        cache.get( "a", () -> render( 4 ) );
+        cache.get( "b", () -> render( 4 ) );
+
+        assertEquals( 4, renders.get() );
+    }
+
+    @Test
+    public void testSkipImageLargerThanCache()
+        throws IOException
+    {
+        cache.get( "a", () -> render( 11 ) );
+        cache.get( "a", () -> render( 11 ) );
+
+        assertEquals( 2, renders.get() );
+        assertEquals( 0, cache.getSize() );
+    }
+
+    @Test
+    public void testInvalidateOnAnalyticsTableUpdate()
+        throws IOException
+    {
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE ) )
+            .thenReturn( new Date( 1000 ) );
+
+        cache.get( "a", () -> render( 4 ) );
+        cache.get( "a", () -> render( 4 ) );
+
+        assertEquals( 1, renders.get() );
+
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE ) )
+            .thenReturn( new Date( 2000 ) );
+
+        cache.get( "a", () -> render( 4 ) );
+
+        assertEquals( 2, renders.get() );
+    }
+
+    @Test
+    public void testInvalidateAll()
+        throws IOException
+    {
+        cache.get( "a", () -> render( 4 ) );
+
+        cache.invalidateAll();
+
+        assertEquals( 0, cache.getSize() );
+
+        cache.get( "a", () -> render( 4 ) );
+
+        assertEquals( 2, renders.get() );
+    }
+
+    @Test
+    public void testDiskCache()
+        throws IOException
+    {
+        cache = new RenderedImageCache( systemSettingManager, 4,
+            new FileResourceContentCache( folder.getRoot().toPath().resolve( "cache" ), 100 ) );
+
+        CachedImage imageA = cache.get( "a", () -> render( 4 ) );
+        cache.get( "b", () -> render( 4 ) );
+
+        CachedImage diskImageA = cache.get( "a", () -> render( 4 ) );
+
+        assertEquals( 2, renders.get() );
+        assertArrayEquals( imageA.getContent(), diskImageA.getContent() );
+        assertEquals( imageA.getEtag(), diskImageA.getEtag() );
+
+        cache.invalidateAll();
+        cache.get( "b", () -> render( 4 ) );
+
+        assertEquals( 3, renders.get() );
+    }
+
+    @Test
+    public void testGetKey()
+    {
+        assertEquals( "chart:a:1000:null:800", RenderedImageCache.getKey( "chart", "a", new Date( 1000 ), null, 800 ) );
+    }
+
+    @Test
+    public void testGetUserKey()
+    {
+        OrganisationUnit unitA = new OrganisationUnit( "A" );
+        unitA.setUid( "ouA" );
+        OrganisationUnit unitB = new OrganisationUnit( "B" );
+        unitB.setUid( "ouB" );
+
+        UserGroup group = new UserGroup( "Group" );
+        group.setUid( "groupA" );
+
+        User userA = createUser( unitA, unitB );
+        userA.getGroups().add( group );
+        User userB = createUser( unitB, unitA );
+        userB.getGroups().add( group );
+        User userC = createUser( unitA, unitB );
+        User userD = createUser( unitA );
+        userD.getGroups().add( group );
+
+        assertEquals( RenderedImageCache.getUserKey( userA ), RenderedImageCache.getUserKey( userB ) );
+        assertNotEquals( RenderedImageCache.getUserKey( userA ), RenderedImageCache.getUserKey( userC ) );
+        assertNotEquals( RenderedImageCache.getUserKey( userA ), RenderedImageCache.getUserKey( userD ) );
+    }
+
+    @Test
+    public void testGetReferencedLastUpdated()
+    {
+        Visualization visualization = new Visualization( "Visualization" );
+
+        assertNull( RenderedImageCache.getReferencedLastUpdated( visualization ) );
+
+        DataElement dataElement = new DataElement( "DataElement" );
+        dataElement.setLastUpdated( new Date( 2000 ) );
+        OrganisationUnit unit = new OrganisationUnit( "A" );
+        unit.setLastUpdated( new Date( 1000 ) );
+
+        visualization.addDataDimensionItem( dataElement );
+        visualization.getOrganisationUnits().add( unit );
+
+        assertEquals( new Date( 2000 ), RenderedImageCache.getReferencedLastUpdated( visualization ) );
+
+        unit.setLastUpdated( new Date( 3000 ) );
+
+        assertEquals( new Date( 3000 ), RenderedImageCache.getReferencedLastUpdated( visualization ) );
+    }
+
+    private User createUser( OrganisationUnit... units )
+    {
+        User user = new User();
+        user.setUserCredentials( new UserCredentials() );
+        user.setOrganisationUnits( Sets.newLinkedHashSet( Arrays.asList( units ) ) );
+        return user;
+    }
+
+    private byte[] render( int length )
+    {
+        renders.incrementAndGet();
+
+        byte[] bytes = new byte[length];
+
+        for ( int i = 0; i < length; i++ )
+        {
+            bytes[i] = (byte) i;
+        }
+
+        return bytes;
+    }
+}
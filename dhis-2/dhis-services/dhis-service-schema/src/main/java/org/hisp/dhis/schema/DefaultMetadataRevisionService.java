@@ -0,0 +1,393 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hisp.dhis.common.EmbeddedObject;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.ImmutableSet;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Metadata revision service which increments revisions from Hibernate post
+ * commit listeners, so that a revision never precedes the state it denotes.
+ * <p>
+ * Revisions are kept in the {@link MetadataRevisionStore}, which is shared by
+ * all nodes, and are assigned from a database sequence, so that they increase
+ * across nodes and restarts. The types changed by a transaction are collected
+ * and their revisions are incremented in a new transaction once it has
+ * committed. Changes made through bulk HQL or SQL statements are not
+ * detected, clearing the application caches increments all revisions.
+ */
+@Slf4j
+@Service( "org.hisp.dhis.schema.MetadataRevisionService" )
+public class DefaultMetadataRevisionService
+    implements MetadataRevisionService, PostCommitInsertEventListener, PostCommitUpdateEventListener,
+    PostCommitDeleteEventListener
+{
+    @PersistenceUnit
+    private EntityManagerFactory emf;
+
+    /**
+     * Transaction resource key of the names of the types changed by the
+     * current transaction.
+     */
+    private static final Object CHANGED_TYPES_KEY = DefaultMetadataRevisionService.class.getName() + ".changedTypes";
+
+    private final SchemaService schemaService;
+
+    private final MetadataRevisionStore revisionStore;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Types referenced by a type, directly or indirectly, including the type.
+     */
+    private final Map<Class<?>, Set<Class<?>>> referencedTypes = new ConcurrentHashMap<>();
+
+    /**
+     * Types which are metadata types or are referenced by metadata types, and
+     * whose changes hence increment revisions. Initialized once the schemas
+     * are available.
+     */
+    private volatile Set<Class<?>> trackedTypes;
+
+    public DefaultMetadataRevisionService( SchemaService schemaService, MetadataRevisionStore revisionStore,
+        PlatformTransactionManager transactionManager )
+    {
+        checkNotNull( schemaService );
+        checkNotNull( revisionStore );
+        checkNotNull( transactionManager );
+
+        this.schemaService = schemaService;
+        this.revisionStore = revisionStore;
+        this.transactionTemplate = new TransactionTemplate( transactionManager );
+        this.transactionTemplate.setPropagationBehavior( TransactionDefinition.PROPAGATION_REQUIRES_NEW );
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        SessionFactoryImpl sessionFactory = emf.unwrap( SessionFactoryImpl.class );
+
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService( EventListenerRegistry.class );
+
+        registry.getEventListenerGroup( EventType.POST_COMMIT_INSERT ).appendListener( this );
+        registry.getEventListenerGroup( EventType.POST_COMMIT_UPDATE ).appendListener( this );
+        registry.getEventListenerGroup( EventType.POST_COMMIT_DELETE ).appendListener( this );
+    }
+
+    // -------------------------------------------------------------------------
+    // MetadataRevisionService implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean isEnabled()
+    {
+        return revisionStore.isAvailable();
+    }
+
+    @Override
+    public long getRevision( Class<?> klass )
+    {
+        return revisionStore.getRevision( Collections.singleton( klass.getName() ) );
+    }
+
+    @Override
+    public long getRevision( Class<?> klass, boolean includeReferences )
+    {
+        if ( !includeReferences )
+        {
+            return getRevision( klass );
+        }
+
+        // A new revision is greater than all previous revisions, the max
+        // revision hence changes whenever any of the types changes
+
+        return revisionStore.getRevision( getReferencedTypes( klass ).stream()
+            .map( Class::getName )
+            .collect( Collectors.toSet() ) );
+    }
+
+    @Override
+    public void incrementRevision( Class<?> klass )
+    {
+        incrementRevisions( Collections.singleton( klass.getName() ) );
+    }
+
+    @Override
+    public void incrementRevisions()
+    {
+        incrementRevisions( Collections.singleton( MetadataRevisionStore.ALL_TYPES ) );
+    }
+
+    @EventListener
+    public void handleApplicationCachesCleared( ApplicationCacheClearedEvent event )
+    {
+        incrementRevisions();
+    }
+
+    // -------------------------------------------------------------------------
+    // Listener implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void onPostInsert( PostInsertEvent event )
+    {
+        handleChange( event.getPersister().getMappedClass() );
+    }
+
+    @Override
+    public void onPostUpdate( PostUpdateEvent event )
+    {
+        handleChange( event.getPersister().getMappedClass() );
+    }
+
+    @Override
+    public void onPostDelete( PostDeleteEvent event )
+    {
+        handleChange( event.getPersister().getMappedClass() );
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding( EntityPersister persister )
+    {
+        return isTracked( persister.getMappedClass() );
+    }
+
+    @Override
+    public void onPostInsertCommitFailed( PostInsertEvent event )
+    {
+        log.debug( "onPostInsertCommitFailed: " + event );
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed( PostUpdateEvent event )
+    {
+        log.debug( "onPostUpdateCommitFailed: " + event );
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed( PostDeleteEvent event )
+    {
+        log.debug( "onPostDeleteCommitFailed: " + event );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Increments the revision of the given type and of its super classes
+     * which are tracked, as references may be declared by super class. When
+     * called during the completion of a transaction, the types are collected
+     * and incremented once after the transaction has completed.
+     */
+    void handleChange( Class<?> klass )
+    {
+        Set<String> types = new HashSet<>();
+        types.add( klass.getName() );
+
+        for ( Class<?> type = klass.getSuperclass(); type != null && type != Object.class; type = type.getSuperclass() )
+        {
+            if ( getTrackedTypes().contains( type ) )
+            {
+                types.add( type.getName() );
+            }
+        }
+
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            incrementRevisions( types );
+            return;
+        }
+
+        @SuppressWarnings( "unchecked" )
+        Set<String> changedTypes = (Set<String>) TransactionSynchronizationManager.getResource( CHANGED_TYPES_KEY );
+
+        if ( changedTypes == null )
+        {
+            Set<String> collected = new HashSet<>();
+
+            TransactionSynchronizationManager.bindResource( CHANGED_TYPES_KEY, collected );
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCompletion( int status )
+                {
+                    TransactionSynchronizationManager.unbindResourceIfPossible( CHANGED_TYPES_KEY );
+
+                    incrementRevisions( collected );
+                }
+            } );
+
+            changedTypes = collected;
+        }
+
+        changedTypes.addAll( types );
+    }
+
+    /**
+     * Increments the revisions of the given types in a new transaction, as
+     * the resources of a completed transaction may still be bound. Failures
+     * are logged, as the change they follow has already been committed.
+     */
+    private void incrementRevisions( Collection<String> types )
+    {
+        if ( types.isEmpty() || !revisionStore.isAvailable() )
+        {
+            return;
+        }
+
+        try
+        {
+            transactionTemplate.execute( status -> {
+                revisionStore.incrementRevisions( types );
+                return null;
+            } );
+        }
+        catch ( RuntimeException ex )
+        {
+            log.error( "Metadata revisions could not be incremented: " + types, ex );
+        }
+    }
+
+    /**
+     * Indicates whether changes to the given type increment revisions. Types
+     * which are not metadata types and are not referenced by metadata types,
+     * such as data values and events, are not tracked.
+     */
+    boolean isTracked( Class<?> klass )
+    {
+        Set<Class<?>> types = getTrackedTypes();
+
+        if ( types.isEmpty() )
+        {
+            // Schemas are not yet initialized, track everything until they are
+
+            return true;
+        }
+
+        for ( Class<?> type = klass; type != null && type != Object.class; type = type.getSuperclass() )
+        {
+            if ( types.contains( type ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private Set<Class<?>> getTrackedTypes()
+    {
+        Set<Class<?>> types = trackedTypes;
+
+        if ( types == null )
+        {
+            ImmutableSet.Builder<Class<?>> builder = ImmutableSet.builder();
+
+            schemaService.getMetadataSchemas().forEach( schema -> builder.addAll( getReferencedTypes( schema.getKlass() ) ) );
+
+            types = builder.build();
+
+            if ( !types.isEmpty() )
+            {
+                trackedTypes = types;
+            }
+        }
+
+        return types;
+    }
+
+    private Set<Class<?>> getReferencedTypes( Class<?> klass )
+    {
+        return referencedTypes.computeIfAbsent( klass, key -> {
+            Set<Class<?>> types = new HashSet<>();
+            collectReferencedTypes( key, types );
+            return ImmutableSet.copyOf( types );
+        } );
+    }
+
+    private void collectReferencedTypes( Class<?> klass, Set<Class<?>> types )
+    {
+        Schema schema = schemaService.getDynamicSchema( klass );
+
+        if ( schema == null || !types.add( schema.getKlass() ) )
+        {
+            return;
+        }
+
+        types.add( klass );
+
+        for ( Property property : schema.getProperties() )
+        {
+            Class<?> type = property.isCollection() ? property.getItemKlass() : property.getKlass();
+
+            if ( !property.isSimple() && type != null &&
+                (IdentifiableObject.class.isAssignableFrom( type ) || EmbeddedObject.class.isAssignableFrom( type )) )
+            {
+                collectReferencedTypes( type, types );
+            }
+        }
+    }
+}
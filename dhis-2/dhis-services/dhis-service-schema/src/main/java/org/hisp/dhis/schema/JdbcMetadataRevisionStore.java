@@ -0,0 +1,116 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.hisp.dhis.dbms.DbmsManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores metadata revisions in the metadata revision table. Revisions are
+ * taken from a database sequence, which is not transactional, so concurrent
+ * increments never block each other.
+ */
+@Slf4j
+@Repository( "org.hisp.dhis.schema.MetadataRevisionStore" )
+public class JdbcMetadataRevisionStore
+    implements MetadataRevisionStore
+{
+    private static final String TABLE = "metadatarevision";
+
+    private static final String NEXT_REVISION = "nextval('metadatarevision_sequence')";
+
+    private final DbmsManager dbmsManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean available;
+
+    public JdbcMetadataRevisionStore( DbmsManager dbmsManager, JdbcTemplate jdbcTemplate )
+    {
+        checkNotNull( dbmsManager );
+        checkNotNull( jdbcTemplate );
+
+        this.dbmsManager = dbmsManager;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean isAvailable()
+    {
+        Boolean exists = available;
+
+        if ( exists == null )
+        {
+            exists = dbmsManager.tableExists( TABLE );
+
+            if ( !exists )
+            {
+                log.warn( String.format( "Metadata revision table does not exist: '%s'", TABLE ) );
+            }
+
+            available = exists;
+        }
+
+        return exists;
+    }
+
+    @Override
+    public long getRevision( Collection<String> types )
+    {
+        List<String> names = new ArrayList<>( types );
+        names.add( ALL_TYPES );
+
+        String sql = "select coalesce(max(revision), 0) from " + TABLE + " where type in (" +
+            String.join( ",", Collections.nCopies( names.size(), "?" ) ) + ")";
+
+        Long revision = jdbcTemplate.queryForObject( sql, Long.class, names.toArray() );
+
+        return revision != null ? revision : 0;
+    }
+
+    @Override
+    public void incrementRevisions( Collection<String> types )
+    {
+        for ( String type : types )
+        {
+            jdbcTemplate.update( "insert into " + TABLE + " (type, revision) values (?, " + NEXT_REVISION + ") " +
+                "on conflict (type) do update set revision = excluded.revision", type );
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+/**
+ * Keeps a revision per metadata type which changes whenever an object of the
+ * type is created, updated or deleted. Revisions are increasing numbers, and
+ * a revision which has been handed out for a type is never reused for the
+ * type, also not after a restart.
+ * <p>
+ * Revisions are shared by all nodes, and are used to detect whether metadata
+ * has changed without querying the metadata itself, e.g. for conditional GET
+ * requests.
+ */
+public interface MetadataRevisionService
+{
+    /**
+     * Indicates whether revisions are kept. Revisions must not be used to
+     * detect changes when they are not.
+     *
+     * @return true if revisions are kept.
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns the current revision of the given type.
+     *
+     * @param klass the type.
+     * @return the revision.
+     */
+    long getRevision( Class<?> klass );
+
+    /**
+     * Returns the current revision of the given type, optionally including
+     * the types which are referenced by the type, directly or indirectly.
+     * The revision changes whenever the type or any of the referenced types
+     * changes.
+     *
+     * @param klass the type.
+     * @param includeReferences whether to include referenced types.
+     * @return the revision.
+     */
+    long getRevision( Class<?> klass, boolean includeReferences );
+
+    /**
+     * Increments the revision of the given type.
+     *
+     * @param klass the type.
+     */
+    void incrementRevision( Class<?> klass );
+
+    /**
+     * Increments the revision of all types.
+     */
+    void incrementRevisions();
+}
@@ -0,0 +1,69 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Collection;
+
+/**
+ * Store of the revisions of metadata types, which is shared by all nodes of
+ * a cluster. Revisions are assigned from a single sequence, so that a new
+ * revision of any type is greater than all previous revisions of all types.
+ */
+public interface MetadataRevisionStore
+{
+    /**
+     * Type name of the revision which is included in the revision of every
+     * type, and which is incremented to increment all revisions.
+     */
+    String ALL_TYPES = "*";
+
+    /**
+     * Indicates whether revisions can be stored, which is the case when the
+     * revision table exists.
+     *
+     * @return true if revisions can be stored.
+     */
+    boolean isAvailable();
+
+    /**
+     * Returns the greatest revision of the given types, including the
+     * revision of {@link #ALL_TYPES}.
+     *
+     * @param types the type names.
+     * @return the revision, or 0 if none of the types has a revision.
+     */
+    long getRevision( Collection<String> types );
+
+    /**
+     * Assigns a new revision to each of the given types.
+     *
+     * @param types the type names.
+     */
+    void incrementRevisions( Collection<String> types );
+}
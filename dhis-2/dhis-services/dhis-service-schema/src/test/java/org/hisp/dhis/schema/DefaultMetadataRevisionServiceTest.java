@@ -0,0 +1,219 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.dataset.DataSetElement;
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.google.common.collect.Lists;
+
+public class DefaultMetadataRevisionServiceTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private SchemaService schemaService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private InMemoryRevisionStore revisionStore;
+
+    private DefaultMetadataRevisionService service;
+
+    @Before
+    public void setUp()
+    {
+        Map<Class<?>, Schema> schemas = new HashMap<>();
+        schemas.put( DataSet.class, schema( DataSet.class, reference( "dataSetElements", DataSetElement.class, true ) ) );
+        schemas.put( DataSetElement.class, schema( DataSetElement.class, reference( "dataElement", DataElement.class, false ) ) );
+        schemas.put( DataElement.class, schema( DataElement.class ) );
+
+        when( schemaService.getDynamicSchema( any() ) ).thenAnswer( invocation -> schemas.get( invocation.getArgument( 0 ) ) );
+        when( schemaService.getMetadataSchemas() ).thenReturn( Lists.newArrayList( schemas.get( DataSet.class ), schemas.get( DataElement.class ) ) );
+
+        revisionStore = new InMemoryRevisionStore();
+
+        service = new DefaultMetadataRevisionService( schemaService, revisionStore, transactionManager );
+    }
+
+    @Test
+    public void testRevisionChangesOnIncrement()
+    {
+        long revision = service.getRevision( DataElement.class );
+
+        assertEquals( revision, service.getRevision( DataElement.class ) );
+
+        service.incrementRevision( DataElement.class );
+
+        assertTrue( service.getRevision( DataElement.class ) > revision );
+    }
+
+    @Test
+    public void testRevisionIncludingReferences()
+    {
+        long revision = service.getRevision( DataSet.class );
+        long referencesRevision = service.getRevision( DataSet.class, true );
+
+        service.handleChange( DataElement.class );
+
+        assertEquals( revision, service.getRevision( DataSet.class ) );
+        assertTrue( service.getRevision( DataSet.class, true ) > referencesRevision );
+    }
+
+    @Test
+    public void testIncrementRevisions()
+    {
+        long dataSetRevision = service.getRevision( DataSet.class );
+        long dataElementRevision = service.getRevision( DataElement.class );
+
+        service.incrementRevisions();
+
+        assertTrue( service.getRevision( DataSet.class ) > dataSetRevision );
+        assertTrue( service.getRevision( DataElement.class ) > dataElementRevision );
+    }
+
+    @Test
+    public void testRevisionSharedBetweenNodes()
+    {
+        DefaultMetadataRevisionService otherNode = new DefaultMetadataRevisionService( schemaService, revisionStore,
+            transactionManager );
+
+        long revision = otherNode.getRevision( DataElement.class );
+
+        service.handleChange( DataElement.class );
+
+        assertTrue( otherNode.getRevision( DataElement.class ) > revision );
+        assertEquals( service.getRevision( DataElement.class ), otherNode.getRevision( DataElement.class ) );
+    }
+
+    @Test
+    public void testIsTracked()
+    {
+        assertTrue( service.isTracked( DataSet.class ) );
+        assertTrue( service.isTracked( DataSetElement.class ) );
+        assertTrue( service.isTracked( DataElement.class ) );
+        assertFalse( service.isTracked( ProgramStageInstance.class ) );
+    }
+
+    /**
+     * Revision store backed by a map and a counter, standing in for the
+     * revision table and sequence.
+     */
+    private static class InMemoryRevisionStore
+        implements MetadataRevisionStore
+    {
+        private final Map<String, Long> revisions = new ConcurrentHashMap<>();
+
+        private final AtomicLong sequence = new AtomicLong();
+
+        @Override
+        public boolean isAvailable()
+        {
+            return true;
+        }
+
+        @Override
+        public long getRevision( Collection<String> types )
+        {
+            long revision = revisions.getOrDefault( ALL_TYPES, 0L );
+
+            for ( String type : types )
+            {
+                revision = Math.max( revision, revisions.getOrDefault( type, 0L ) );
+            }
+
+            return revision;
+        }
+
+        @Override
+        public void incrementRevisions( Collection<String> types )
+        {
+            types.forEach( type -> revisions.put( type, sequence.incrementAndGet() ) );
+        }
+    }
+
+    private static Schema schema( Class<?> klass, Property... properties )
+    {
+        Schema schema = new Schema( klass, klass.getSimpleName(), klass.getSimpleName() + "s" );
+
+        Map<String, Property> propertyMap = new HashMap<>();
+
+        Property name = new Property( String.class );
+        name.setName( "name" );
+        name.setSimple( true );
+        propertyMap.put( name.getName(), name );
+
+        for ( Property property : properties )
+        {
+            propertyMap.put( property.getName(), property );
+        }
+
+        schema.setPropertyMap( propertyMap );
+
+        return schema;
+    }
+
+    private static Property reference( String name, Class<?> klass, boolean collection )
+    {
+        Property property = new Property( collection ? List.class : klass );
+        property.setName( name );
+        property.setCollection( collection );
+
+        if ( collection )
+        {
+            property.setItemKlass( klass );
+        }
+
+        return property;
+    }
+}
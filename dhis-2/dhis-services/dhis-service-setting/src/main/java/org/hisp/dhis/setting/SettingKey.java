@@ -110,6 +110,9 @@ public enum SettingKey
     CUSTOM_LOGIN_PAGE_LOGO( "keyCustomLoginPageLogo", Boolean.FALSE, Boolean.class ),
     CUSTOM_TOP_MENU_LOGO( "keyCustomTopMenuLogo", Boolean.FALSE, Boolean.class ),
     ANALYTICS_MAINTENANCE_MODE( "keyAnalyticsMaintenanceMode", Boolean.FALSE, Boolean.class ),
+    ANALYTICS_EVENT_CLUSTER_SIZES( "keyAnalyticsEventClusterSizes", "", String.class ),
+    ANALYTICS_EVENT_CLUSTER_REQUESTED_SIZES( "keyAnalyticsEventClusterRequestedSizes", "", String.class ),
+    ANALYTICS_EVENT_CLUSTER_TABLE_SIZES( "keyAnalyticsEventClusterTableSizes", "", String.class ),
     DATABASE_SERVER_CPUS( "keyDatabaseServerCpus", 0, Integer.class ),
     LAST_SUCCESSFUL_ANALYTICS_TABLES_RUNTIME( "keyLastSuccessfulAnalyticsTablesRuntime" ),
     LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_RUNTIME( "keyLastSuccessfulLatestAnalyticsPartitionRuntime" ),
@@ -163,6 +166,8 @@ public enum SettingKey
     FILE_RESOURCE_RETENTION_STRATEGY( "keyFileResourceRetentionStrategy", FileResourceRetentionStrategy.NONE, FileResourceRetentionStrategy.class ),
     MAX_REMOTE_SERVER_AVAILABILITY_CHECK_ATTEMPTS( "syncMaxRemoteServerAvailabilityCheckAttempts", 3, Integer.class ),
     MAX_SYNC_ATTEMPTS( "syncMaxAttempts", 3, Integer.class ),
+    MAX_SYNC_PAGES_IN_FLIGHT( "syncMaxPagesInFlight", 3, Integer.class ),
+    DATA_VALUE_SYNC_CHECKPOINT( "keyDataValueSyncCheckpoint", String.class ),
     DELAY_BETWEEN_REMOTE_SERVER_AVAILABILITY_CHECK_ATTEMPTS( "syncDelayBetweenRemoteServerAvailabilityCheckAttempts", 500, Integer.class ),
     LAST_SUCCESSFUL_DATA_STATISTICS( "lastSuccessfulDataStatistics", Date.class ),
     ANALYTICS_HIDE_DAILY_PERIODS( "keyHideDailyPeriods", Boolean.FALSE, Boolean.class ),
@@ -73,13 +73,12 @@ public class DefaultTrackerProgramRuleService
     public Map<String, List<RuleEffect>> calculateEnrollmentRuleEffects( List<Enrollment> enrollments,
         TrackerBundle bundle )
     {
-        return enrollments
+        Map<ProgramInstance, Set<ProgramStageInstance>> programInstances = enrollments
             .stream()
-            .collect( Collectors.toMap( Enrollment::getEnrollment, e -> {
-                ProgramInstance enrollment = enrollmentTrackerConverterService.from( e );
-                return programRuleEngine.evaluate( enrollment, Optional.empty(),
-                    getEventsFromEnrollment( e.getEnrollment(), bundle, Lists.newArrayList() ) );
-            } ) );
+            .collect( Collectors.toMap( enrollmentTrackerConverterService::from,
+                e -> getEventsFromEnrollment( e.getEnrollment(), bundle, Lists.newArrayList() ) ) );
+
+        return programRuleEngine.evaluateEnrollments( programInstances, true );
     }
 
     @Override
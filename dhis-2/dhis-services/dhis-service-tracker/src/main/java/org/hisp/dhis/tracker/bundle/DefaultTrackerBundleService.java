@@ -34,9 +34,11 @@ import org.hisp.dhis.cache.HibernateCacheManager;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.dbms.DbmsManager;
 import org.hisp.dhis.fileresource.FileResource;
+import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramInstance;
 import org.hisp.dhis.program.ProgramStageInstance;
 import org.hisp.dhis.reservedvalue.ReservedValueService;
+import org.hisp.dhis.rules.models.RuleEffect;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
 import org.hisp.dhis.trackedentity.TrackedEntityInstance;
 import org.hisp.dhis.trackedentityattributevalue.TrackedEntityAttributeValue;
@@ -69,8 +71,11 @@ import org.springframework.util.StringUtils;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.google.api.client.util.Preconditions.checkNotNull;
@@ -82,6 +87,8 @@ import static com.google.api.client.util.Preconditions.checkNotNull;
 public class DefaultTrackerBundleService
     implements TrackerBundleService
 {
+    private static final String NO_PROGRAM = "";
+
     private final TrackerPreheatService trackerPreheatService;
 
     private final TrackerConverterService<TrackedEntity, TrackedEntityInstance> teConverter;
@@ -185,9 +192,11 @@ public class DefaultTrackerBundleService
 
         bundleHooks.forEach( hook -> hook.preCommit( bundle ) );
 
+        Map<String, TrackerSideEffectDataBundle> sideEffects = new LinkedHashMap<>();
+
         TrackerTypeReport trackedEntityReport = handleTrackedEntities( session, bundle );
-        TrackerTypeReport enrollmentReport = handleEnrollments( session, bundle );
-        TrackerTypeReport eventReport = handleEvents( session, bundle );
+        TrackerTypeReport enrollmentReport = handleEnrollments( session, bundle, sideEffects );
+        TrackerTypeReport eventReport = handleEvents( session, bundle, sideEffects );
         TrackerTypeReport relationshipReport = handleRelationships( session, bundle );
 
         bundleReport.getTypeReportMap().put( TrackerType.TRACKED_ENTITY, trackedEntityReport );
@@ -197,6 +206,8 @@ public class DefaultTrackerBundleService
 
         bundleHooks.forEach( hook -> hook.postCommit( bundle ) );
 
+        handleSideEffects( bundle, sideEffects );
+
         dbmsManager.clearSession();
         cacheManager.clearCache();
 
@@ -249,7 +260,8 @@ public class DefaultTrackerBundleService
         return typeReport;
     }
 
-    private TrackerTypeReport handleEnrollments( Session session, TrackerBundle bundle )
+    private TrackerTypeReport handleEnrollments( Session session, TrackerBundle bundle,
+        Map<String, TrackerSideEffectDataBundle> sideEffects )
     {
         List<Enrollment> enrollments = bundle.getEnrollments();
         TrackerTypeReport typeReport = new TrackerTypeReport( TrackerType.ENROLLMENT );
@@ -296,16 +308,12 @@ public class DefaultTrackerBundleService
             // TODO: Implement support for update and delete and rollback/decrement create etc.
             typeReport.getStats().incCreated();
 
-            TrackerSideEffectDataBundle sideEffectDataBundle = TrackerSideEffectDataBundle.builder()
-                .klass( ProgramInstance.class )
-                .enrollmentRuleEffects( bundle.getEnrollmentRuleEffects() )
-                .eventRuleEffects( bundle.getEventRuleEffects() )
-                .object( programInstance )
-                .importStrategy( bundle.getImportStrategy() )
-                .accessedBy( bundle.getUsername() )
-                .build();
+            TrackerSideEffectDataBundle sideEffectDataBundle = getSideEffectDataBundle( bundle, sideEffects,
+                programInstance.getProgram() );
 
-            sideEffectHandlers.forEach( handler -> handler.handleSideEffect( sideEffectDataBundle ) );
+            sideEffectDataBundle.getEnrollmentIds().add( programInstance.getId() );
+            addRuleEffects( bundle.getEnrollmentRuleEffects(), programInstance.getUid(),
+                sideEffectDataBundle.getEnrollmentRuleEffects() );
         }
 
         session.flush();
@@ -314,7 +322,8 @@ public class DefaultTrackerBundleService
         return typeReport;
     }
 
-    private TrackerTypeReport handleEvents( Session session, TrackerBundle bundle )
+    private TrackerTypeReport handleEvents( Session session, TrackerBundle bundle,
+        Map<String, TrackerSideEffectDataBundle> sideEffects )
     {
         List<Event> events = bundle.getEvents();
         TrackerTypeReport typeReport = new TrackerTypeReport( TrackerType.EVENT );
@@ -357,16 +366,20 @@ public class DefaultTrackerBundleService
             // TODO: Implement support for update and delete and rollback/decrement create etc.
             typeReport.getStats().incCreated();
 
-            TrackerSideEffectDataBundle sideEffectDataBundle = TrackerSideEffectDataBundle.builder()
-                .klass( ProgramStageInstance.class )
-                .enrollmentRuleEffects( bundle.getEnrollmentRuleEffects() )
-                .eventRuleEffects( bundle.getEventRuleEffects() )
-                .object( programStageInstance )
-                .importStrategy( bundle.getImportStrategy() )
-                .accessedBy( bundle.getUsername() )
-                .build();
+            ProgramInstance programInstance = programStageInstance.getProgramInstance();
 
-            sideEffectHandlers.forEach( handler -> handler.handleSideEffect( sideEffectDataBundle ) );
+            TrackerSideEffectDataBundle sideEffectDataBundle = getSideEffectDataBundle( bundle, sideEffects,
+                programInstance != null ? programInstance.getProgram() : null );
+
+            sideEffectDataBundle.getEventIds().add( programStageInstance.getId() );
+            addRuleEffects( bundle.getEventRuleEffects(), programStageInstance.getUid(),
+                sideEffectDataBundle.getEventRuleEffects() );
+
+            if ( programInstance != null )
+            {
+                addRuleEffects( bundle.getEnrollmentRuleEffects(), programInstance.getUid(),
+                    sideEffectDataBundle.getEnrollmentRuleEffects() );
+            }
         }
 
         session.flush();
@@ -541,6 +554,83 @@ public class DefaultTrackerBundleService
         session.persist( fileResource );
     }
 
+    /**
+     * Gets the side effect batch of the program with the given UID, creating
+     * it if it does not exist. Side effects are batched per program, so that
+     * a bundle results in one message per program rather than one message per
+     * enrollment and event.
+     */
+    private TrackerSideEffectDataBundle getSideEffectDataBundle( TrackerBundle bundle,
+        Map<String, TrackerSideEffectDataBundle> sideEffects, Program program )
+    {
+        String programUid = program != null ? program.getUid() : NO_PROGRAM;
+
+        return sideEffects.computeIfAbsent( programUid, uid -> TrackerSideEffectDataBundle.builder()
+            .program( program != null ? uid : null )
+            .importStrategy( bundle.getImportStrategy() )
+            .accessedBy( bundle.getUsername() )
+            .build() );
+    }
+
+    /**
+     * Adds the rule effects of the object with the given UID to the given
+     * batch rule effects. The effects of an object are added once, however
+     * many times the object is referred to in the bundle.
+     */
+    private void addRuleEffects( Map<String, List<RuleEffect>> ruleEffects, String uid,
+        Map<String, List<RuleEffect>> batchRuleEffects )
+    {
+        List<RuleEffect> effects = ruleEffects.get( uid );
+
+        if ( effects != null )
+        {
+            batchRuleEffects.putIfAbsent( uid, effects );
+        }
+    }
+
+    /**
+     * Passes the side effect batches to the side effect handlers. Rule effects
+     * of the bundle which do not belong to any of the persisted enrollments
+     * and events are added to the first batch.
+     */
+    private void handleSideEffects( TrackerBundle bundle, Map<String, TrackerSideEffectDataBundle> sideEffects )
+    {
+        if ( sideEffects.isEmpty() )
+        {
+            return;
+        }
+
+        TrackerSideEffectDataBundle first = sideEffects.values().iterator().next();
+
+        Set<String> enrollments = new HashSet<>();
+        Set<String> events = new HashSet<>();
+
+        for ( TrackerSideEffectDataBundle sideEffectDataBundle : sideEffects.values() )
+        {
+            enrollments.addAll( sideEffectDataBundle.getEnrollmentRuleEffects().keySet() );
+            events.addAll( sideEffectDataBundle.getEventRuleEffects().keySet() );
+        }
+
+        bundle.getEnrollmentRuleEffects().forEach( ( uid, effects ) -> {
+            if ( !enrollments.contains( uid ) )
+            {
+                first.getEnrollmentRuleEffects().put( uid, effects );
+            }
+        } );
+
+        bundle.getEventRuleEffects().forEach( ( uid, effects ) -> {
+            if ( !events.contains( uid ) )
+            {
+                first.getEventRuleEffects().put( uid, effects );
+            }
+        } );
+
+        for ( TrackerSideEffectDataBundle sideEffectDataBundle : sideEffects.values() )
+        {
+            sideEffectHandlers.forEach( handler -> handler.handleSideEffect( sideEffectDataBundle ) );
+        }
+    }
+
     private User getUser( User user, String userUid )
     {
         if ( user != null ) // ıf user already set, reload the user to make sure its loaded in the current
@@ -35,6 +35,7 @@ import org.hisp.dhis.scheduling.SchedulingManager;
 import org.springframework.stereotype.Component;
 
 import javax.jms.JMSException;
+import javax.jms.Message;
 import javax.jms.TextMessage;
 import java.io.IOException;
 
@@ -76,12 +77,15 @@ public abstract class BaseMessageManager
         schedulingManager.executeJob( runnable );
     }
 
-    public TrackerSideEffectDataBundle toBundle( TextMessage message )
+    public TrackerSideEffectDataBundle toBundle( Message message )
         throws JMSException, IOException
     {
-        String payload = message.getText();
+        if ( message instanceof TextMessage )
+        {
+            return renderService.fromJson( ((TextMessage) message).getText(), TrackerSideEffectDataBundle.class );
+        }
 
-        return renderService.fromJson( payload, TrackerSideEffectDataBundle.class );
+        return messageManager.decode( message, TrackerSideEffectDataBundle.class );
     }
 
     public abstract String getTopic();
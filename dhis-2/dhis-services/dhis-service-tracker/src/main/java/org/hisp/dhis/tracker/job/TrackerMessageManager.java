@@ -28,8 +28,6 @@ package org.hisp.dhis.tracker.job;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hisp.dhis.artemis.MessageManager;
 import org.hisp.dhis.artemis.Topics;
 import org.hisp.dhis.common.CodeGenerator;
@@ -42,7 +40,8 @@ import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
 import javax.jms.JMSException;
-import javax.jms.TextMessage;
+import javax.jms.Message;
+import java.io.IOException;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -52,20 +51,16 @@ public class TrackerMessageManager
 {
     private final MessageManager messageManager;
 
-    private final ObjectMapper objectMapper;
-
     private final SchedulingManager schedulingManager;
 
     private final ObjectFactory<TrackerImportThread> trackerImportThreadFactory;
 
     public TrackerMessageManager(
         MessageManager messageManager,
-        ObjectMapper objectMapper,
         SchedulingManager schedulingManager,
         ObjectFactory<TrackerImportThread> trackerImportThreadFactory )
     {
         this.messageManager = messageManager;
-        this.objectMapper = objectMapper;
         this.schedulingManager = schedulingManager;
         this.trackerImportThreadFactory = trackerImportThreadFactory;
     }
@@ -84,12 +79,10 @@ public class TrackerMessageManager
     }
 
     @JmsListener( destination = Topics.TRACKER_IMPORT_JOB_TOPIC_NAME, containerFactory = "jmsQueueListenerContainerFactory" )
-    public void consume( TextMessage message )
-        throws JMSException, JsonProcessingException
+    public void consume( Message message )
+        throws JMSException, IOException
     {
-        String payload = message.getText();
-
-        TrackerMessage trackerMessage = objectMapper.readValue( payload, TrackerMessage.class );
+        TrackerMessage trackerMessage = messageManager.decode( message, TrackerMessage.class );
         TrackerImportParams trackerImportParams = trackerMessage.getTrackerImportParams();
 
         JobConfiguration jobConfiguration = new JobConfiguration(
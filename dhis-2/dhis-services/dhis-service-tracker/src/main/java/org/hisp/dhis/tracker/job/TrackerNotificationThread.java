@@ -80,11 +80,14 @@ public class TrackerNotificationThread extends SecurityContextRunnable
 
         BaseIdentifiableObject object = sideEffectDataBundle.getObject();
 
-        if ( serviceMapper.containsKey( object.getClass() ) )
+        if ( object != null && serviceMapper.containsKey( object.getClass() ) )
         {
             serviceMapper.get( object.getClass() ).accept( object.getId() );
         }
 
+        sideEffectDataBundle.getEnrollmentIds().forEach( serviceMapper.get( ProgramInstance.class ) );
+        sideEffectDataBundle.getEventIds().forEach( serviceMapper.get( ProgramStageInstance.class ) );
+
         notifier.notify( sideEffectDataBundle.getJobConfiguration(), "Tracker notification side effects completed" );
     }
 
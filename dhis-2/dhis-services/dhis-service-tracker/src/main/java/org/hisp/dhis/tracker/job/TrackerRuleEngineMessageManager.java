@@ -39,7 +39,7 @@ import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
 import javax.jms.JMSException;
-import javax.jms.TextMessage;
+import javax.jms.Message;
 import java.io.IOException;
 
 /**
@@ -69,7 +69,7 @@ public class TrackerRuleEngineMessageManager extends BaseMessageManager
     }
 
     @JmsListener( destination = Topics.TRACKER_IMPORT_RULE_ENGINE_TOPIC_NAME, containerFactory = "jmsQueueListenerContainerFactory" )
-    public void consume( TextMessage message )
+    public void consume( Message message )
         throws JMSException, IOException
     {
         TrackerSideEffectDataBundle bundle = toBundle( message );
@@ -41,11 +41,17 @@ import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.tracker.TrackerImportStrategy;
 
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Class holding data necessary for implementation of side effects.
+ * <p>
+ * A bundle holds the side effects of either a single object, or a batch of
+ * enrollments and events of a program, which are referred to by identifier
+ * to keep messages compact.
  *
  * @author Zubair Asghar
  */
@@ -64,6 +70,17 @@ public class TrackerSideEffectDataBundle implements Message
     @JsonProperty
     private BaseIdentifiableObject object;
 
+    @JsonProperty
+    private String program;
+
+    @JsonProperty
+    @Builder.Default
+    private Set<Long> enrollmentIds = new LinkedHashSet<>();
+
+    @JsonProperty
+    @Builder.Default
+    private Set<Long> eventIds = new LinkedHashSet<>();
+
     @JsonProperty
     private JobConfiguration jobConfiguration;
 
@@ -29,6 +29,7 @@ package org.hisp.dhis.tracker.job;
  */
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.hisp.dhis.artemis.MessageType;
 import org.hisp.dhis.program.ProgramInstance;
 import org.hisp.dhis.program.ProgramStageInstance;
@@ -99,4 +100,21 @@ public class TrackerSideEffectDataBundleTest
         assertTrue( bundle.getEventRuleEffects().containsKey( "test-event" ) );
         assertTrue( bundle.getEnrollmentRuleEffects().isEmpty() );
     }
+
+    @Test
+    public void testSideEffectDataBundleForBatch()
+    {
+        TrackerSideEffectDataBundle bundle = TrackerSideEffectDataBundle.builder()
+            .program( "test-program" )
+            .build();
+
+        bundle.getEnrollmentIds().add( 1L );
+        bundle.getEventIds().add( 2L );
+        bundle.getEventIds().add( 2L );
+
+        assertEquals( "test-program", bundle.getProgram() );
+        assertEquals( Sets.newHashSet( 1L ), bundle.getEnrollmentIds() );
+        assertEquals( Sets.newHashSet( 2L ), bundle.getEventIds() );
+        assertTrue( TrackerSideEffectDataBundle.builder().build().getEventIds().isEmpty() );
+    }
 }
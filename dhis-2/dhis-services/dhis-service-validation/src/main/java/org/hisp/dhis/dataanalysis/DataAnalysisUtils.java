@@ -0,0 +1,179 @@
+package org.hisp.dhis.dataanalysis;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
+import org.hisp.dhis.system.util.MathUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Utilities for data analysis.
+ */
+public class DataAnalysisUtils
+{
+    /**
+     * Max number of data elements in a partition of an analysis.
+     */
+    public static final int DATA_ELEMENT_PARTITION_SIZE = 500;
+
+    /**
+     * Executor of partition queries shared by all analyses, which bounds the
+     * number of concurrent partition queries to the number of CPU cores.
+     * Threads are daemon threads and time out when idle.
+     */
+    private static final ThreadPoolExecutor PARTITION_EXECUTOR = createPartitionExecutor();
+
+    /**
+     * Orders outliers by severity, the most severe first.
+     */
+    public static final Comparator<DeflatedDataValue> SEVERITY_ORDER = Comparator
+        .comparingDouble( DataAnalysisUtils::getSeverity ).reversed();
+
+    /**
+     * Returns the severity of an outlier, which is the distance of its value
+     * from the middle of its min-max bounds relative to the width of the
+     * bounds.
+     *
+     * @param value the outlier.
+     * @return the severity, or 0 if the value is not numeric.
+     */
+    public static double getSeverity( DeflatedDataValue value )
+    {
+        Double number = MathUtils.parseDouble( value.getValue() );
+
+        if ( number == null )
+        {
+            return 0d;
+        }
+
+        return Math.abs( number - ( value.getMin() + value.getMax() ) / 2.0 ) /
+            Math.max( value.getMax() - value.getMin(), 1 );
+    }
+
+    /**
+     * Returns the given number of most severe outliers.
+     *
+     * @param outliers the outliers.
+     * @param limit the max number of outliers to return.
+     * @return the most severe outliers, the most severe first.
+     */
+    public static List<DeflatedDataValue> getMostSevere( Collection<DeflatedDataValue> outliers, int limit )
+    {
+        List<DeflatedDataValue> sorted = new ArrayList<>( outliers );
+
+        sorted.sort( SEVERITY_ORDER );
+
+        return sorted.size() > limit ? new ArrayList<>( sorted.subList( 0, limit ) ) : sorted;
+    }
+
+    /**
+     * Applies the given query to partitions of the given data elements, and
+     * returns the combined results. Partitions are queried in parallel on an
+     * executor shared by all analyses. The query must not depend on the
+     * current session or transaction.
+     *
+     * @param dataElements the data elements.
+     * @param query the query of a partition of data elements.
+     * @param <T> the type of results.
+     * @return the combined results.
+     */
+    public static <T> List<T> queryPartitioned( Collection<DataElement> dataElements,
+        Function<List<DataElement>, List<T>> query )
+    {
+        List<List<DataElement>> partitions = Lists.partition( new ArrayList<>( dataElements ),
+            DATA_ELEMENT_PARTITION_SIZE );
+
+        List<T> results = new ArrayList<>();
+
+        if ( partitions.size() <= 1 )
+        {
+            partitions.forEach( partition -> results.addAll( query.apply( partition ) ) );
+
+            return results;
+        }
+
+        List<Future<List<T>>> futures = new ArrayList<>();
+
+        try
+        {
+            for ( List<DataElement> partition : partitions )
+            {
+                futures.add( PARTITION_EXECUTOR.submit( () -> query.apply( partition ) ) );
+            }
+
+            for ( Future<List<T>> future : futures )
+            {
+                results.addAll( future.get() );
+            }
+        }
+        catch ( ExecutionException ex )
+        {
+            throw new RuntimeException( "Exception during execution", ex );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException( "Thread interrupted", ex );
+        }
+        finally
+        {
+            futures.forEach( future -> future.cancel( true ) );
+        }
+
+        return results;
+    }
+
+    private static ThreadPoolExecutor createPartitionExecutor()
+    {
+        int threads = SystemUtils.getCpuCores();
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setNameFormat( "data-analysis-%d" ).setDaemon( true ).build() );
+
+        executor.allowCoreThreadTimeOut( true );
+
+        return executor;
+    }
+}
@@ -120,41 +120,49 @@ public class MinMaxOutlierAnalysisService
 
         List<String> parentPaths = Lists.newArrayList( parent.getPath() );
 
+        Map<Long, DataElement> elements = dataElements.stream()
+            .filter( de -> de.getValueType().isNumeric() )
+            .collect( Collectors.toMap( DataElement::getId, de -> de, ( a, b ) -> a ) );
+
+        Set<CategoryOptionCombo> categoryOptionCombos = new HashSet<>();
+
+        for ( DataElement dataElement : elements.values() )
+        {
+            categoryOptionCombos.addAll( dataElement.getCategoryOptionCombos() );
+        }
+
+        List<DataAnalysisMeasures> measuresList = DataAnalysisUtils.queryPartitioned( elements.values(),
+            partition -> dataAnalysisStore.getDataAnalysisMeasures( partition, categoryOptionCombos, parentPaths, from ) );
+
+        log.debug( "Fetched measures, no of measures: " + measuresList.size() );
+
         BatchHandler<MinMaxDataElement> batchHandler = batchHandlerFactory.createBatchHandler( MinMaxDataElementBatchHandler.class ).init();
 
-        for ( DataElement dataElement : dataElements )
+        for ( DataAnalysisMeasures measures : measuresList )
         {
-            if ( dataElement.getValueType().isNumeric() )
+            DataElement dataElement = elements.get( measures.getDataElementId() );
+
+            int min = (int) Math.round( MathUtils.getLowBound( measures.getStandardDeviation(), stdDevFactor, measures.getAverage() ) );
+            int max = (int) Math.round( MathUtils.getHighBound( measures.getStandardDeviation(), stdDevFactor, measures.getAverage() ) );
+
+            switch ( dataElement.getValueType() )
             {
-                Set<CategoryOptionCombo> categoryOptionCombos = dataElement.getCategoryOptionCombos();
-
-                List<DataAnalysisMeasures> measuresList = dataAnalysisStore.getDataAnalysisMeasures( dataElement, categoryOptionCombos, parentPaths, from );
-
-                for ( DataAnalysisMeasures measures : measuresList )
-                {
-                    int min = (int) Math.round( MathUtils.getLowBound( measures.getStandardDeviation(), stdDevFactor, measures.getAverage() ) );
-                    int max = (int) Math.round( MathUtils.getHighBound( measures.getStandardDeviation(), stdDevFactor, measures.getAverage() ) );
-
-                    switch ( dataElement.getValueType() )
-                    {
-                        case INTEGER_POSITIVE:
-                        case INTEGER_ZERO_OR_POSITIVE:
-                            min = Math.max( 0, min ); // Cannot be < 0
-                            break;
-                        case INTEGER_NEGATIVE:
-                            max = Math.min( 0, max ); // Cannot be > 0
-                            break;
-                    }
-
-                    OrganisationUnit orgUnit = new OrganisationUnit();
-                    orgUnit.setId( measures.getOrgUnitId() );
-
-                    CategoryOptionCombo categoryOptionCombo = new CategoryOptionCombo();
-                    categoryOptionCombo.setId( measures.getCategoryOptionComboId() );
-
-                    batchHandler.addObject( new MinMaxDataElement( orgUnit, dataElement, categoryOptionCombo, min, max, true ) );
-                }
+                case INTEGER_POSITIVE:
+                case INTEGER_ZERO_OR_POSITIVE:
+                    min = Math.max( 0, min ); // Cannot be < 0
+                    break;
+                case INTEGER_NEGATIVE:
+                    max = Math.min( 0, max ); // Cannot be > 0
+                    break;
             }
+
+            OrganisationUnit orgUnit = new OrganisationUnit();
+            orgUnit.setId( measures.getOrgUnitId() );
+
+            CategoryOptionCombo categoryOptionCombo = new CategoryOptionCombo();
+            categoryOptionCombo.setId( measures.getCategoryOptionComboId() );
+
+            batchHandler.addObject( new MinMaxDataElement( orgUnit, dataElement, categoryOptionCombo, min, max, true ) );
         }
 
         log.info( "Min-max value generation done" );
@@ -0,0 +1,105 @@
+package org.hisp.dhis.dataanalysis;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Outlier analysis by a {@link RobustOutlierMethod}. The factor given to
+ * {@link #analyse} is the factor of the deviation of the method.
+ */
+@Slf4j
+public abstract class RobustOutlierAnalysisService
+    implements DataAnalysisService
+{
+    // -------------------------------------------------------------------------
+    // Dependencies
+    // -------------------------------------------------------------------------
+
+    private final DataAnalysisStore dataAnalysisStore;
+
+    private final RobustOutlierMethod method;
+
+    protected RobustOutlierAnalysisService( DataAnalysisStore dataAnalysisStore, RobustOutlierMethod method )
+    {
+        checkNotNull( dataAnalysisStore );
+        checkNotNull( method );
+
+        this.dataAnalysisStore = dataAnalysisStore;
+        this.method = method;
+    }
+
+    // -------------------------------------------------------------------------
+    // DataAnalysisService implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public final List<DeflatedDataValue> analyse( Collection<OrganisationUnit> parents,
+        Collection<DataElement> dataElements, Collection<Period> periods, Double factor, Date from )
+    {
+        log.info( "Starting " + method + " analysis, no of org units: " + parents.size() + ", factor: " + factor + ", from: " + from );
+
+        if ( factor == null )
+        {
+            return new ArrayList<>();
+        }
+
+        Set<DataElement> elements = dataElements.stream()
+            .filter( de -> de.getValueType().isNumeric() )
+            .collect( Collectors.toSet() );
+
+        Set<CategoryOptionCombo> categoryOptionCombos = new HashSet<>();
+
+        for ( DataElement dataElement : elements )
+        {
+            categoryOptionCombos.addAll( dataElement.getCategoryOptionCombos() );
+        }
+
+        List<String> parentsPaths = parents.stream().map( OrganisationUnit::getPath ).collect( Collectors.toList() );
+
+        List<DeflatedDataValue> outliers = DataAnalysisUtils.queryPartitioned( elements,
+            partition -> dataAnalysisStore.getRobustOutliers( partition, categoryOptionCombos, periods,
+                parentsPaths, from, method, factor, MAX_OUTLIERS + 1 ) );
+
+        log.info( method + " analysis done, no of outliers: " + outliers.size() );
+
+        return DataAnalysisUtils.getMostSevere( outliers, MAX_OUTLIERS + 1 );
+    }
+}
@@ -34,12 +34,10 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 import org.hisp.dhis.category.CategoryOptionCombo;
-import org.hisp.dhis.common.MapMap;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
-import org.hisp.dhis.system.util.MathUtils;
 import org.springframework.stereotype.Service;
 
 import lombok.extern.slf4j.Slf4j;
@@ -74,48 +72,32 @@ public class StdDevOutlierAnalysisService
     {
         log.info( "Starting std dev analysis, no of org units: " + parents.size() + ", factor: " + stdDevFactor + ", from: " + from );
 
-        List<DeflatedDataValue> outlierCollection = new ArrayList<>();
-
-        List<String> parentsPaths = parents.stream().map( OrganisationUnit::getPath ).collect( Collectors.toList() );
-
-        loop : for ( DataElement dataElement : dataElements )
+        if ( stdDevFactor == null )
         {
-            // TODO filter periods with data element period type
-
-            if ( dataElement.getValueType().isNumeric() && stdDevFactor != null )
-            {
-                Set<CategoryOptionCombo> categoryOptionCombos = dataElement.getCategoryOptionCombos();
+            return new ArrayList<>();
+        }
 
-                List<DataAnalysisMeasures> measuresList = dataAnalysisStore.getDataAnalysisMeasures( dataElement, categoryOptionCombos, parentsPaths, from );
+        // TODO filter periods with data element period type
 
-                MapMap<Long, Long, Integer> lowBoundMapMap = new MapMap<>(); // catOptionComboId, orgUnitId, lowBound
-                MapMap<Long, Long, Integer> highBoundMapMap = new MapMap<>(); // catOptionComboId, orgUnitId, highBound
+        Set<DataElement> elements = dataElements.stream()
+            .filter( de -> de.getValueType().isNumeric() )
+            .collect( Collectors.toSet() );
 
-                for ( DataAnalysisMeasures measures : measuresList )
-                {
-                    int lowBound = (int) Math.round( MathUtils.getLowBound( measures.getStandardDeviation(), stdDevFactor, measures.getAverage() ) );
-                    int highBound = (int) Math.round( MathUtils.getHighBound( measures.getStandardDeviation(), stdDevFactor, measures.getAverage() ) );
+        Set<CategoryOptionCombo> categoryOptionCombos = new HashSet<>();
 
-                    lowBoundMapMap.putEntry( measures.getCategoryOptionComboId(), measures.getOrgUnitId(), lowBound );
-                    highBoundMapMap.putEntry( measures.getCategoryOptionComboId(), measures.getOrgUnitId(), highBound );
-                }
+        for ( DataElement dataElement : elements )
+        {
+            categoryOptionCombos.addAll( dataElement.getCategoryOptionCombos() );
+        }
 
-                for ( CategoryOptionCombo categoryOptionCombo : categoryOptionCombos )
-                {
-                    Map<Long, Integer> lowBoundMap = lowBoundMapMap.get( categoryOptionCombo.getId() );
-                    Map<Long, Integer> highBoundMap = highBoundMapMap.get( categoryOptionCombo.getId() );
+        List<String> parentsPaths = parents.stream().map( OrganisationUnit::getPath ).collect( Collectors.toList() );
 
-                    outlierCollection.addAll( dataAnalysisStore.getDeflatedDataValues( dataElement, categoryOptionCombo, periods,
-                        lowBoundMap, highBoundMap ) );
+        List<DeflatedDataValue> outliers = DataAnalysisUtils.queryPartitioned( elements,
+            partition -> dataAnalysisStore.getStdDevOutliers( partition, categoryOptionCombos, periods,
+                parentsPaths, from, stdDevFactor, MAX_OUTLIERS + 1 ) );
 
-                    if ( outlierCollection.size() > MAX_OUTLIERS )
-                    {
-                        break loop;
-                    }
-                }
-            }
-        }
+        log.info( "Std dev analysis done, no of outliers: " + outliers.size() );
 
-        return outlierCollection;
+        return DataAnalysisUtils.getMostSevere( outliers, MAX_OUTLIERS + 1 );
     }
 }
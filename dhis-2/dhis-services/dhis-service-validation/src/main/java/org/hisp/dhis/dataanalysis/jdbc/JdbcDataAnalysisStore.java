@@ -41,6 +41,7 @@ import org.hisp.dhis.commons.collection.PaginatedList;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.dataanalysis.DataAnalysisMeasures;
 import org.hisp.dhis.dataanalysis.DataAnalysisStore;
+import org.hisp.dhis.dataanalysis.RobustOutlierMethod;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.jdbc.StatementBuilder;
@@ -54,6 +55,8 @@ import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 
+import com.google.common.collect.Lists;
+
 /**
  * @author Lars Helge Overland
  * @author Halvdan Hoem Grelland
@@ -62,6 +65,14 @@ import org.springframework.stereotype.Repository;
 @Repository( "org.hisp.dhis.dataanalysis.DataAnalysisStore" )
 public class JdbcDataAnalysisStore implements DataAnalysisStore
 {
+    /**
+     * Scales the median absolute deviation to be comparable to the standard
+     * deviation of normally distributed data.
+     */
+    private static final double MAD_SCALE_FACTOR = 1.4826;
+
+    private static final String SERIES_GROUP_BY = "group by dv.dataelementid, dv.sourceid, dv.categoryoptioncomboid";
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -90,51 +101,121 @@ public class JdbcDataAnalysisStore implements DataAnalysisStore
     @Override
     public List<DataAnalysisMeasures> getDataAnalysisMeasures( DataElement dataElement,
         Collection<CategoryOptionCombo> categoryOptionCombos, Collection<String> parentPaths, Date from )
+    {
+        return getDataAnalysisMeasures( Lists.newArrayList( dataElement ), categoryOptionCombos, parentPaths, from );
+    }
+
+    @Override
+    public List<DataAnalysisMeasures> getDataAnalysisMeasures( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<String> parentPaths, Date from )
     {
         List<DataAnalysisMeasures> measures = new ArrayList<>();
 
-        if ( categoryOptionCombos.isEmpty() || parentPaths.isEmpty() )
+        if ( dataElements.isEmpty() || categoryOptionCombos.isEmpty() || parentPaths.isEmpty() )
         {
             return measures;
         }
 
-        String catOptionComboIds = TextUtils.getCommaDelimitedString( getIdentifiers( categoryOptionCombos ) );
-
-        String matchPaths = "(";
-        for ( String path : parentPaths )
-        {
-            matchPaths += "ou.path like '" + path + "%' or ";
-        }
-        matchPaths = TextUtils.removeLastOr( matchPaths ) + ") ";
-
-        String sql = "select dv.sourceid, dv.categoryoptioncomboid, " + "avg( cast( dv.value as "
-            + statementBuilder.getDoubleColumnType() + " ) ) as average, " + "stddev_pop( cast( dv.value as "
-            + statementBuilder.getDoubleColumnType() + " ) ) as standarddeviation " + "from datavalue dv "
-            + "join organisationunit ou on ou.organisationunitid = dv.sourceid "
-            + "join period pe on dv.periodid = pe.periodid " + "where dv.dataelementid = " + dataElement.getId() + " "
-            + "and dv.categoryoptioncomboid in (" + catOptionComboIds + ") " + "and pe.startdate >= '"
-            + DateUtils.getMediumDateString( from ) + "' " + "and " + matchPaths + "and dv.deleted is false "
-            + "group by dv.sourceid, dv.categoryoptioncomboid";
+        String sql = getMeasuresSql( dataElements, categoryOptionCombos, parentPaths, from );
 
         SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
 
         while ( rowSet.next() )
         {
-            int orgUnitId = rowSet.getInt( 1 );
-            int categoryOptionComboId = rowSet.getInt( 2 );
-            double average = rowSet.getDouble( 3 );
-            double standardDeviation = rowSet.getDouble( 4 );
+            long dataElementId = rowSet.getLong( 1 );
+            long orgUnitId = rowSet.getLong( 2 );
+            long categoryOptionComboId = rowSet.getLong( 3 );
+            double average = rowSet.getDouble( 4 );
+            double standardDeviation = rowSet.getDouble( 5 );
 
             if ( standardDeviation != 0.0 )
             {
-                measures
-                    .add( new DataAnalysisMeasures( orgUnitId, categoryOptionComboId, average, standardDeviation ) );
+                measures.add( new DataAnalysisMeasures( dataElementId, orgUnitId, categoryOptionComboId,
+                    average, standardDeviation ) );
             }
         }
 
         return measures;
     }
 
+    @Override
+    public List<DeflatedDataValue> getStdDevOutliers( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<Period> periods,
+        Collection<String> parentPaths, Date from, double stdDevFactor, int limit )
+    {
+        if ( dataElements.isEmpty() || categoryOptionCombos.isEmpty() || periods.isEmpty() || parentPaths.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        String boundsSql = "select ms.dataelementid, ms.sourceid, ms.categoryoptioncomboid, "
+            + getRoundedSql( "ms.average - ms.standarddeviation * " + stdDevFactor ) + " as minimumvalue, "
+            + getRoundedSql( "ms.average + ms.standarddeviation * " + stdDevFactor ) + " as maximumvalue "
+            + "from (" + getMeasuresSql( dataElements, categoryOptionCombos, parentPaths, from ) + ") as ms "
+            + "where ms.standarddeviation <> 0";
+
+        return getOutliers( boundsSql, dataElements, categoryOptionCombos, periods, limit );
+    }
+
+    @Override
+    public List<DeflatedDataValue> getRobustOutliers( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<Period> periods,
+        Collection<String> parentPaths, Date from, RobustOutlierMethod method, double factor, int limit )
+    {
+        if ( dataElements.isEmpty() || categoryOptionCombos.isEmpty() || periods.isEmpty() || parentPaths.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        if ( !statementBuilder.supportsPercentileAggregates() )
+        {
+            log.warn( "Percentile aggregates are not supported by the DBMS, skipping outlier analysis: " + method );
+
+            return new ArrayList<>();
+        }
+
+        String boundsSql = method == RobustOutlierMethod.MEDIAN_ABSOLUTE_DEVIATION ?
+            getMedianAbsoluteDeviationBoundsSql( dataElements, categoryOptionCombos, parentPaths, from, factor ) :
+            getInterquartileRangeBoundsSql( dataElements, categoryOptionCombos, parentPaths, from, factor );
+
+        return getOutliers( boundsSql, dataElements, categoryOptionCombos, periods, limit );
+    }
+
+    /**
+     * Returns the data values outside of the given min-max bounds, ordered by
+     * severity, the most severe first.
+     *
+     * @param boundsSql SQL which returns the min-max bounds of each data
+     *        element, organisation unit and category option combo.
+     */
+    private List<DeflatedDataValue> getOutliers( String boundsSql, Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<Period> periods, int limit )
+    {
+        String dataElementIds = getCommaDelimitedString( getIdentifiers( dataElements ) );
+        String periodIds = getCommaDelimitedString( getIdentifiers( periods ) );
+        String categoryOptionComboIds = getCommaDelimitedString( getIdentifiers( categoryOptionCombos ) );
+
+        String sql = "select dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.attributeoptioncomboid, dv.value, dv.storedby, dv.lastupdated, "
+            + "dv.created, dv.comment, dv.followup, ou.name as sourcename, de.name as dataelementname, "
+            + "pt.name as periodtypename, pe.startdate, pe.enddate, coc.name as categoryoptioncomboname, mm.minimumvalue, mm.maximumvalue "
+            + "from datavalue dv "
+            + "join (" + boundsSql + ") as mm on ( dv.dataelementid = mm.dataelementid and dv.categoryoptioncomboid = mm.categoryoptioncomboid and dv.sourceid = mm.sourceid ) "
+            + "join dataelement de on dv.dataelementid = de.dataelementid "
+            + "join period pe on dv.periodid = pe.periodid "
+            + "join periodtype pt on pe.periodtypeid = pt.periodtypeid "
+            + "join organisationunit ou on dv.sourceid = ou.organisationunitid "
+            + "join categoryoptioncombo coc on dv.categoryoptioncomboid = coc.categoryoptioncomboid "
+            + "where dv.dataelementid in (" + dataElementIds + ") " + "and dv.categoryoptioncomboid in ("
+            + categoryOptionComboIds + ") " + "and dv.periodid in (" + periodIds + ") " + "and ( "
+            + getValueSql() + " < mm.minimumvalue or " + getValueSql() + " > mm.maximumvalue ) "
+            + "and dv.deleted is false "
+            + "order by " + getSeveritySql() + " desc ";
+
+        sql += statementBuilder.limitRecord( 0, limit );
+
+        return jdbcTemplate.query( sql, new DeflatedDataValueNameMinMaxRowMapper( null, null ) );
+    }
+
     @Override
     public List<DeflatedDataValue> getMinMaxViolations( Collection<DataElement> dataElements,
         Collection<CategoryOptionCombo> categoryOptionCombos, Collection<Period> periods,
@@ -171,6 +252,7 @@ public class JdbcDataAnalysisStore implements DataAnalysisStore
 
         sql = TextUtils.removeLastOr( sql ) + ") ";
         sql += "and dv.deleted is false ";
+        sql += "order by " + getSeveritySql() + " desc ";
 
         sql += statementBuilder.limitRecord( 0, limit );
 
@@ -279,4 +361,130 @@ public class JdbcDataAnalysisStore implements DataAnalysisStore
 
         return jdbcTemplate.query( sql, new DeflatedDataValueNameMinMaxRowMapper( null, null ) );
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns SQL which calculates the average and standard deviation of the
+     * data of each data element, organisation unit and category option combo.
+     */
+    private String getMeasuresSql( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<String> parentPaths, Date from )
+    {
+        return "select dv.dataelementid, dv.sourceid, dv.categoryoptioncomboid, "
+            + "avg( " + getValueSql() + " ) as average, "
+            + "stddev_pop( " + getValueSql() + " ) as standarddeviation "
+            + getSeriesSql( dataElements, categoryOptionCombos, parentPaths, from, "" )
+            + SERIES_GROUP_BY;
+    }
+
+    /**
+     * Returns SQL which calculates the min-max bounds of each data element,
+     * organisation unit and category option combo as the median plus and minus
+     * the given factor of the median absolute deviation. The deviation is
+     * scaled to be comparable to the standard deviation. Data with a median
+     * absolute deviation of zero has no bounds.
+     */
+    private String getMedianAbsoluteDeviationBoundsSql( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<String> parentPaths, Date from, double factor )
+    {
+        String medianSql = "select dv.dataelementid, dv.sourceid, dv.categoryoptioncomboid, "
+            + "percentile_cont( 0.5 ) within group ( order by " + getValueSql() + " ) as median "
+            + getSeriesSql( dataElements, categoryOptionCombos, parentPaths, from, "" )
+            + SERIES_GROUP_BY;
+
+        String medianJoin = "join (" + medianSql + ") as me on ( dv.dataelementid = me.dataelementid "
+            + "and dv.sourceid = me.sourceid and dv.categoryoptioncomboid = me.categoryoptioncomboid ) ";
+
+        String deviationSql = "select dv.dataelementid, dv.sourceid, dv.categoryoptioncomboid, me.median, "
+            + "percentile_cont( 0.5 ) within group ( order by abs( " + getValueSql() + " - me.median ) ) * "
+            + MAD_SCALE_FACTOR + " as deviation "
+            + getSeriesSql( dataElements, categoryOptionCombos, parentPaths, from, medianJoin )
+            + SERIES_GROUP_BY + ", me.median";
+
+        return "select md.dataelementid, md.sourceid, md.categoryoptioncomboid, "
+            + getRoundedSql( "md.median - md.deviation * " + factor ) + " as minimumvalue, "
+            + getRoundedSql( "md.median + md.deviation * " + factor ) + " as maximumvalue "
+            + "from (" + deviationSql + ") as md "
+            + "where md.deviation <> 0";
+    }
+
+    /**
+     * Returns SQL which calculates the min-max bounds of each data element,
+     * organisation unit and category option combo as the first quartile minus
+     * and the third quartile plus the given factor of the interquartile range.
+     * Data with an interquartile range of zero has no bounds.
+     */
+    private String getInterquartileRangeBoundsSql( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<String> parentPaths, Date from, double factor )
+    {
+        String quartileSql = "select dv.dataelementid, dv.sourceid, dv.categoryoptioncomboid, "
+            + "percentile_cont( 0.25 ) within group ( order by " + getValueSql() + " ) as q1, "
+            + "percentile_cont( 0.75 ) within group ( order by " + getValueSql() + " ) as q3 "
+            + getSeriesSql( dataElements, categoryOptionCombos, parentPaths, from, "" )
+            + SERIES_GROUP_BY;
+
+        return "select qu.dataelementid, qu.sourceid, qu.categoryoptioncomboid, "
+            + getRoundedSql( "qu.q1 - ( qu.q3 - qu.q1 ) * " + factor ) + " as minimumvalue, "
+            + getRoundedSql( "qu.q3 + ( qu.q3 - qu.q1 ) * " + factor ) + " as maximumvalue "
+            + "from (" + quartileSql + ") as qu "
+            + "where qu.q3 <> qu.q1";
+    }
+
+    /**
+     * Returns the from and where clauses selecting the data values of the
+     * given data elements, category option combos and organisation unit
+     * parents from the given date, aliased as dv.
+     *
+     * @param join additional join clauses.
+     */
+    private String getSeriesSql( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<String> parentPaths, Date from, String join )
+    {
+        String dataElementIds = getCommaDelimitedString( getIdentifiers( dataElements ) );
+        String catOptionComboIds = getCommaDelimitedString( getIdentifiers( categoryOptionCombos ) );
+
+        String matchPaths = "(";
+        for ( String path : parentPaths )
+        {
+            matchPaths += "ou.path like '" + path + "%' or ";
+        }
+        matchPaths = TextUtils.removeLastOr( matchPaths ) + ") ";
+
+        return "from datavalue dv "
+            + "join organisationunit ou on ou.organisationunitid = dv.sourceid "
+            + "join period pe on dv.periodid = pe.periodid "
+            + join
+            + "where dv.dataelementid in (" + dataElementIds + ") "
+            + "and dv.categoryoptioncomboid in (" + catOptionComboIds + ") "
+            + "and pe.startdate >= '" + DateUtils.getMediumDateString( from ) + "' "
+            + "and " + matchPaths + "and dv.deleted is false ";
+    }
+
+    /**
+     * Returns SQL which rounds the given expression half up to an integer, as
+     * done by Math.round.
+     */
+    private String getRoundedSql( String expression )
+    {
+        return "cast( floor( " + expression + " + 0.5 ) as integer )";
+    }
+
+    /**
+     * Returns SQL for the severity of a value outside of the min-max bounds
+     * aliased as mm, corresponding to
+     * {@link org.hisp.dhis.dataanalysis.DataAnalysisUtils#getSeverity}.
+     */
+    private String getSeveritySql()
+    {
+        return "abs( " + getValueSql() + " - ( mm.minimumvalue + mm.maximumvalue ) / 2.0 ) / "
+            + "greatest( mm.maximumvalue - mm.minimumvalue, 1 )";
+    }
+
+    private String getValueSql()
+    {
+        return "cast( dv.value as " + statementBuilder.getDoubleColumnType() + " )";
+    }
 }
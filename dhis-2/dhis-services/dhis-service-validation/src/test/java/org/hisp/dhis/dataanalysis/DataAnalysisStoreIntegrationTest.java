@@ -0,0 +1,152 @@
+package org.hisp.dhis.dataanalysis;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.hisp.dhis.IntegrationTestBase;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodService;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests of the outlier queries which depend on PostgreSQL percentile
+ * aggregates.
+ */
+public class DataAnalysisStoreIntegrationTest
+    extends IntegrationTestBase
+{
+    @Autowired
+    private DataAnalysisStore dataAnalysisStore;
+
+    @Autowired
+    private DataElementService dataElementService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private OrganisationUnitService organisationUnitService;
+
+    @Autowired
+    private PeriodService periodService;
+
+    @Autowired
+    private DataValueService dataValueService;
+
+    private DataElement dataElementA;
+
+    private CategoryOptionCombo categoryOptionCombo;
+
+    private OrganisationUnit organisationUnitA;
+
+    private List<Period> periods = new ArrayList<>();
+
+    private Date from = getDate( 1998, 1, 1 );
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    @Override
+    public void setUpTest()
+    {
+        categoryOptionCombo = categoryService.getDefaultCategoryOptionCombo();
+
+        dataElementA = createDataElement( 'A', categoryService.getDefaultCategoryCombo() );
+        dataElementService.addDataElement( dataElementA );
+
+        organisationUnitA = createOrganisationUnit( 'A' );
+        organisationUnitService.addOrganisationUnit( organisationUnitA );
+
+        // Values 1 to 9 and a single outlier of 50
+
+        for ( int month = 1; month <= 10; month++ )
+        {
+            Period period = createPeriod( new MonthlyPeriodType(), getDate( 2000, month, 1 ), getDate( 2000, month, 28 ) );
+            periodService.addPeriod( period );
+            periods.add( period );
+
+            String value = month == 10 ? "50" : String.valueOf( month );
+
+            dataValueService.addDataValue( createDataValue( dataElementA, period, organisationUnitA, value, categoryOptionCombo ) );
+        }
+    }
+
+    @Test
+    public void testGetMedianAbsoluteDeviationOutliers()
+    {
+        // Median 5.5, median absolute deviation 2.5 scaled to 3.7065
+
+        List<DeflatedDataValue> outliers = getRobustOutliers( RobustOutlierMethod.MEDIAN_ABSOLUTE_DEVIATION, 3 );
+
+        assertEquals( 1, outliers.size() );
+        assertEquals( "50", outliers.get( 0 ).getValue() );
+        assertEquals( -6, outliers.get( 0 ).getMin() );
+        assertEquals( 17, outliers.get( 0 ).getMax() );
+    }
+
+    @Test
+    public void testGetInterquartileRangeOutliers()
+    {
+        // First quartile 3.25, third quartile 7.75, interquartile range 4.5
+
+        List<DeflatedDataValue> outliers = getRobustOutliers( RobustOutlierMethod.INTERQUARTILE_RANGE, 1.5 );
+
+        assertEquals( 1, outliers.size() );
+        assertEquals( "50", outliers.get( 0 ).getValue() );
+        assertEquals( -3, outliers.get( 0 ).getMin() );
+        assertEquals( 15, outliers.get( 0 ).getMax() );
+    }
+
+    private List<DeflatedDataValue> getRobustOutliers( RobustOutlierMethod method, double factor )
+    {
+        return dataAnalysisStore.getRobustOutliers( Lists.newArrayList( dataElementA ),
+            Lists.newArrayList( categoryOptionCombo ), periods, Lists.newArrayList( organisationUnitA.getPath() ),
+            from, method, factor, 10 );
+    }
+}
@@ -35,6 +35,7 @@ import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.dataelement.*;
 import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.MonthlyPeriodType;
@@ -160,4 +161,75 @@ public class DataAnalysisStoreTest
         assertEquals( 12.78, measures.get( 0 ).getAverage(), DELTA );
         assertEquals( 15.26, measures.get( 0 ).getStandardDeviation(), DELTA );
     }
+
+    @Test
+    public void testGetDataAnalysisMeasuresForDataElements()
+    {
+        addOutlierData();
+
+        List<DataAnalysisMeasures> measures = dataAnalysisStore.getDataAnalysisMeasures(
+            Lists.newArrayList( dataElementA, dataElementB ), Lists.newArrayList( categoryOptionCombo ),
+            Lists.newArrayList( organisationUnitA.getPath() ), from );
+
+        assertEquals( 1, measures.size() );
+
+        DataAnalysisMeasures measure = measures.get( 0 );
+
+        assertEquals( dataElementA.getId(), measure.getDataElementId() );
+        assertEquals( organisationUnitA.getId(), measure.getOrgUnitId() );
+        assertEquals( 5.9, measure.getAverage(), DELTA );
+        assertEquals( 14.7, measure.getStandardDeviation(), DELTA );
+    }
+
+    @Test
+    public void testGetStdDevOutliers()
+    {
+        addOutlierData();
+
+        List<DeflatedDataValue> outliers = dataAnalysisStore.getStdDevOutliers(
+            Lists.newArrayList( dataElementA, dataElementB ), Lists.newArrayList( categoryOptionCombo ),
+            Lists.newArrayList( periodA, periodB, periodC, periodD, periodE, periodF, periodG, periodH, periodI, periodJ ),
+            Lists.newArrayList( organisationUnitA.getPath() ), from, 1.5, 10 );
+
+        assertEquals( 1, outliers.size() );
+
+        DeflatedDataValue outlier = outliers.get( 0 );
+
+        assertEquals( dataElementA.getId(), outlier.getDataElementId() );
+        assertEquals( periodJ.getId(), outlier.getPeriodId() );
+        assertEquals( "50", outlier.getValue() );
+        assertEquals( -16, outlier.getMin() );
+        assertEquals( 28, outlier.getMax() );
+    }
+
+    @Test
+    public void testGetRobustOutliersWithoutPercentileAggregates()
+    {
+        addOutlierData();
+
+        List<DeflatedDataValue> outliers = dataAnalysisStore.getRobustOutliers(
+            Lists.newArrayList( dataElementA, dataElementB ), Lists.newArrayList( categoryOptionCombo ),
+            Lists.newArrayList( periodA, periodB, periodC, periodD, periodE, periodF, periodG, periodH, periodI, periodJ ),
+            Lists.newArrayList( organisationUnitA.getPath() ), from, RobustOutlierMethod.INTERQUARTILE_RANGE, 1.5, 10 );
+
+        assertEquals( 0, outliers.size() );
+    }
+
+    /**
+     * Adds data for data element A with a single outlier, and data without
+     * deviation for data element B.
+     */
+    private void addOutlierData()
+    {
+        List<Period> periods = Lists.newArrayList( periodA, periodB, periodC, periodD, periodE, periodF, periodG,
+            periodH, periodI, periodJ );
+
+        for ( Period period : periods )
+        {
+            String value = period == periodJ ? "50" : "1";
+
+            dataValueService.addDataValue( createDataValue( dataElementA, period, organisationUnitA, value, categoryOptionCombo ) );
+            dataValueService.addDataValue( createDataValue( dataElementB, period, organisationUnitA, "5", categoryOptionCombo ) );
+        }
+    }
 }
@@ -0,0 +1,102 @@
+package org.hisp.dhis.dataanalysis;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Unit tests for {@link DataAnalysisUtils}.
+ */
+public class DataAnalysisUtilsTest
+{
+    @Test
+    public void testGetSeverity()
+    {
+        assertEquals( 1.0, DataAnalysisUtils.getSeverity( outlier( "30", 0, 20 ) ), 0.0 );
+        assertEquals( 1.5, DataAnalysisUtils.getSeverity( outlier( "-20", 0, 20 ) ), 0.0 );
+        assertEquals( 10.0, DataAnalysisUtils.getSeverity( outlier( "15", 5, 5 ) ), 0.0 );
+        assertEquals( 0.0, DataAnalysisUtils.getSeverity( outlier( "text", 0, 20 ) ), 0.0 );
+    }
+
+    @Test
+    public void testGetMostSevere()
+    {
+        DeflatedDataValue outlierA = outlier( "30", 0, 20 );
+        DeflatedDataValue outlierB = outlier( "-20", 0, 20 );
+        DeflatedDataValue outlierC = outlier( "22", 0, 20 );
+
+        outlierA.setPeriodId( 1 );
+        outlierB.setPeriodId( 2 );
+        outlierC.setPeriodId( 3 );
+
+        List<DeflatedDataValue> outliers = DataAnalysisUtils.getMostSevere(
+            Lists.newArrayList( outlierA, outlierB, outlierC ), 2 );
+
+        assertEquals( Lists.newArrayList( outlierB, outlierA ), outliers );
+    }
+
+    @Test
+    public void testQueryPartitioned()
+    {
+        List<DataElement> dataElements = new ArrayList<>();
+
+        for ( int i = 0; i < DataAnalysisUtils.DATA_ELEMENT_PARTITION_SIZE * 2 + 1; i++ )
+        {
+            DataElement dataElement = createDataElement( 'A' );
+            dataElement.setId( i );
+            dataElements.add( dataElement );
+        }
+
+        List<Long> ids = DataAnalysisUtils.queryPartitioned( dataElements,
+            partition -> partition.stream().map( DataElement::getId ).collect( Collectors.toList() ) );
+
+        assertEquals( dataElements.stream().map( DataElement::getId ).collect( Collectors.toList() ), ids );
+    }
+
+    private DeflatedDataValue outlier( String value, int min, int max )
+    {
+        DeflatedDataValue outlier = new DeflatedDataValue();
+        outlier.setValue( value );
+        outlier.setMin( min );
+        outlier.setMax( max );
+
+        return outlier;
+    }
+}
@@ -30,10 +30,13 @@ package org.hisp.dhis.artemis;
 
 import org.apache.qpid.jms.JmsQueue;
 import org.apache.qpid.jms.JmsTopic;
-import org.hisp.dhis.render.RenderService;
+import org.hisp.dhis.artemis.codec.MessageCodec;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.stereotype.Component;
 
+import javax.jms.JMSException;
+import java.io.IOException;
+
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
  */
@@ -42,27 +45,41 @@ public class MessageManager
 {
     private final JmsTemplate jmsTopicTemplate;
     private final JmsTemplate jmsQueueTemplate;
-    private final RenderService renderService;
+    private final MessageCodec messageCodec;
 
-    public MessageManager( JmsTemplate jmsTopicTemplate, JmsTemplate jmsQueueTemplate, RenderService renderService )
+    public MessageManager( JmsTemplate jmsTopicTemplate, JmsTemplate jmsQueueTemplate, MessageCodec messageCodec )
     {
         this.jmsTopicTemplate = jmsTopicTemplate;
         this.jmsQueueTemplate = jmsQueueTemplate;
-        this.renderService = renderService;
+        this.messageCodec = messageCodec;
     }
 
     public void send( String destinationName, Message message )
     {
-        jmsTopicTemplate.send( destinationName, session -> session.createTextMessage( renderService.toJsonAsString( message ) ) );
+        jmsTopicTemplate.send( destinationName, session -> messageCodec.encode( session, message ) );
     }
 
     public void sendTopic( String destinationName, Message message )
     {
-        jmsTopicTemplate.send( new JmsTopic( destinationName ), session -> session.createTextMessage( renderService.toJsonAsString( message ) ) );
+        jmsTopicTemplate.send( new JmsTopic( destinationName ), session -> messageCodec.encode( session, message ) );
     }
 
     public void sendQueue( String destinationName, Message message )
     {
-        jmsQueueTemplate.send( new JmsQueue( destinationName ), session -> session.createTextMessage( renderService.toJsonAsString( message ) ) );
+        jmsQueueTemplate.send( new JmsQueue( destinationName ), session -> messageCodec.encode( session, message ) );
+    }
+
+    /**
+     * Reads the message held by the given JMS message, in whichever format
+     * it was sent.
+     *
+     * @param message the JMS message.
+     * @param klass the class of the message.
+     * @return the message.
+     */
+    public <T> T decode( javax.jms.Message message, Class<T> klass )
+        throws JMSException, IOException
+    {
+        return messageCodec.decode( message, klass );
     }
 }
@@ -0,0 +1,92 @@
+package org.hisp.dhis.artemis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.hisp.dhis.artemis.MessageManager;
+import org.hisp.dhis.artemis.Topics;
+import org.hisp.dhis.cache.AbstractCacheInvalidationBus;
+import org.hisp.dhis.cache.CacheInvalidation;
+import org.hisp.dhis.cache.CacheInvalidationBus;
+import org.hisp.dhis.condition.ArtemisCacheInvalidationCondition;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link CacheInvalidationBus} which publishes invalidations on an Artemis
+ * topic. Only used when Artemis runs in native mode, as an embedded broker is
+ * not shared between nodes.
+ */
+@Slf4j
+@Component
+@Conditional( ArtemisCacheInvalidationCondition.class )
+public class ArtemisCacheInvalidationBus
+    extends AbstractCacheInvalidationBus
+{
+    private final MessageManager messageManager;
+
+    public ArtemisCacheInvalidationBus( MessageManager messageManager )
+    {
+        checkNotNull( messageManager );
+
+        this.messageManager = messageManager;
+    }
+
+    @Override
+    protected void send( CacheInvalidation invalidation )
+    {
+        messageManager.sendTopic( Topics.CACHE_INVALIDATION_TOPIC_NAME, CacheInvalidationMessage.of( invalidation ) );
+    }
+
+    @JmsListener( destination = Topics.CACHE_INVALIDATION_TOPIC_NAME, containerFactory = "jmsListenerContainerFactory" )
+    public void consume( Message message )
+        throws JMSException
+    {
+        try
+        {
+            CacheInvalidationMessage invalidationMessage = messageManager
+                .decode( message, CacheInvalidationMessage.class );
+
+            receive( invalidationMessage.toCacheInvalidation() );
+        }
+        catch ( IOException ex )
+        {
+            log.warn( "Cache invalidation message could not be read", ex );
+        }
+    }
+}
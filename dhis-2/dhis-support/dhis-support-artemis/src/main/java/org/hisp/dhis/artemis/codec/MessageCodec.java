@@ -0,0 +1,242 @@
+package org.hisp.dhis.artemis.codec;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Encodes and decodes the payloads of messages sent through Artemis.
+ * <p>
+ * Messages are encoded in the configured format. JSON messages are sent as
+ * text messages. Smile and CBOR messages are sent as bytes messages, which
+ * are compressed if larger than the configured threshold. The format and
+ * compression of bytes messages are given by message properties, so that
+ * messages are decoded as encoded regardless of the configuration of the
+ * consuming node. Binary formats should hence only be enabled when all nodes
+ * support them.
+ */
+@Component
+public class MessageCodec
+{
+    public static final String FORMAT_PROPERTY = "dhisMessageFormat";
+
+    public static final String COMPRESSION_PROPERTY = "dhisMessageCompression";
+
+    private final MessageFormat format;
+
+    private final MessageCompression compression;
+
+    private final int compressionThreshold;
+
+    @Autowired
+    public MessageCodec( DhisConfigurationProvider config )
+    {
+        this( MessageFormat.valueOf( config.getProperty( ConfigurationKey.ARTEMIS_MESSAGE_FORMAT ).toUpperCase() ),
+            MessageCompression.valueOf( config.getProperty( ConfigurationKey.ARTEMIS_MESSAGE_COMPRESSION ).toUpperCase() ),
+            Integer.parseInt( config.getProperty( ConfigurationKey.ARTEMIS_MESSAGE_COMPRESSION_THRESHOLD ) ) );
+    }
+
+    public MessageCodec( MessageFormat format, MessageCompression compression, int compressionThreshold )
+    {
+        checkNotNull( format );
+        checkNotNull( compression );
+
+        this.format = format;
+        this.compression = compression;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    // -------------------------------------------------------------------------
+    // JMS messages
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates a JMS message holding the given message.
+     *
+     * @param session the JMS session.
+     * @param message the message.
+     * @return a text message for JSON, otherwise a bytes message.
+     */
+    public Message encode( Session session, Object message )
+        throws JMSException
+    {
+        EncodedMessage encoded = encode( message );
+
+        if ( encoded.getFormat() == MessageFormat.JSON )
+        {
+            return session.createTextMessage( new String( encoded.getPayload(), StandardCharsets.UTF_8 ) );
+        }
+
+        BytesMessage bytesMessage = session.createBytesMessage();
+        bytesMessage.setStringProperty( FORMAT_PROPERTY, encoded.getFormat().name() );
+        bytesMessage.setStringProperty( COMPRESSION_PROPERTY, encoded.getCompression().name() );
+        bytesMessage.writeBytes( encoded.getPayload() );
+
+        return bytesMessage;
+    }
+
+    /**
+     * Reads the message held by the given JMS message. Text messages are read
+     * as JSON, bytes messages according to their format and compression
+     * properties.
+     *
+     * @param message the JMS message.
+     * @param klass the class of the message.
+     * @return the message.
+     */
+    public <T> T decode( Message message, Class<T> klass )
+        throws JMSException, IOException
+    {
+        if ( message instanceof TextMessage )
+        {
+            return MessageFormat.JSON.getObjectMapper().readValue( ((TextMessage) message).getText(), klass );
+        }
+
+        if ( message instanceof BytesMessage )
+        {
+            BytesMessage bytesMessage = (BytesMessage) message;
+
+            byte[] payload = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes( payload );
+
+            return decode( new EncodedMessage( payload,
+                getProperty( message, FORMAT_PROPERTY, MessageFormat.class, MessageFormat.JSON ),
+                getProperty( message, COMPRESSION_PROPERTY, MessageCompression.class, MessageCompression.NONE ) ),
+                klass );
+        }
+
+        throw new IllegalArgumentException( "Unsupported message type: " + message.getClass().getName() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Payloads
+    // -------------------------------------------------------------------------
+
+    /**
+     * Encodes the given message in the configured format. Binary payloads are
+     * compressed if larger than the compression threshold.
+     *
+     * @param message the message.
+     * @return the encoded message.
+     */
+    public EncodedMessage encode( Object message )
+    {
+        try
+        {
+            byte[] payload = format.getObjectMapper().writeValueAsBytes( message );
+
+            if ( format != MessageFormat.JSON && compression == MessageCompression.GZIP &&
+                payload.length > compressionThreshold )
+            {
+                return new EncodedMessage( gzip( payload ), format, MessageCompression.GZIP );
+            }
+
+            return new EncodedMessage( payload, format, MessageCompression.NONE );
+        }
+        catch ( IOException ex )
+        {
+            throw new IllegalArgumentException( "Message could not be encoded", ex );
+        }
+    }
+
+    /**
+     * Decodes the given encoded message.
+     *
+     * @param message the encoded message.
+     * @param klass the class of the message.
+     * @return the message.
+     */
+    public <T> T decode( EncodedMessage message, Class<T> klass )
+        throws IOException
+    {
+        ObjectMapper objectMapper = message.getFormat().getObjectMapper();
+
+        if ( message.getCompression() == MessageCompression.GZIP )
+        {
+            try ( InputStream in = new GZIPInputStream( new ByteArrayInputStream( message.getPayload() ) ) )
+            {
+                return objectMapper.readValue( in, klass );
+            }
+        }
+
+        return objectMapper.readValue( message.getPayload(), klass );
+    }
+
+    public MessageFormat getFormat()
+    {
+        return format;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static byte[] gzip( byte[] payload )
+        throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( payload.length / 2 );
+
+        try ( OutputStream out = new GZIPOutputStream( bytes ) )
+        {
+            out.write( payload );
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static <E extends Enum<E>> E getProperty( Message message, String name, Class<E> klass, E defaultValue )
+        throws JMSException
+    {
+        String value = message.getStringProperty( name );
+
+        return value != null ? Enum.valueOf( klass, value ) : defaultValue;
+    }
+}
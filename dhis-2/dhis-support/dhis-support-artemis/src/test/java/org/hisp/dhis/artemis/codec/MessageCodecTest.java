@@ -0,0 +1,122 @@
+package org.hisp.dhis.artemis.codec;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import javax.jms.JMSException;
+import javax.jms.TextMessage;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.artemis.audit.Audit;
+import org.hisp.dhis.audit.AuditScope;
+import org.hisp.dhis.audit.AuditType;
+import org.junit.Test;
+
+public class MessageCodecTest
+{
+    @Test
+    public void testEncodeDecode()
+        throws IOException
+    {
+        for ( MessageFormat format : MessageFormat.values() )
+        {
+            MessageCodec codec = new MessageCodec( format, MessageCompression.NONE, 0 );
+
+            EncodedMessage encoded = codec.encode( createAudit( "data" ) );
+
+            assertEquals( format, encoded.getFormat() );
+            assertEquals( MessageCompression.NONE, encoded.getCompression() );
+            assertAudit( "data", codec.decode( encoded, Audit.class ) );
+        }
+    }
+
+    @Test
+    public void testCompression()
+        throws IOException
+    {
+        MessageCodec codec = new MessageCodec( MessageFormat.SMILE, MessageCompression.GZIP, 1024 );
+
+        String data = StringUtils.repeat( "data", 1000 );
+
+        EncodedMessage small = codec.encode( createAudit( "data" ) );
+        EncodedMessage large = codec.encode( createAudit( data ) );
+
+        assertEquals( MessageCompression.NONE, small.getCompression() );
+        assertEquals( MessageCompression.GZIP, large.getCompression() );
+        assertTrue( large.getPayload().length < 1024 );
+        assertAudit( data, codec.decode( large, Audit.class ) );
+    }
+
+    @Test
+    public void testJsonIsNotCompressed()
+    {
+        MessageCodec codec = new MessageCodec( MessageFormat.JSON, MessageCompression.GZIP, 0 );
+
+        assertEquals( MessageCompression.NONE, codec.encode( createAudit( "data" ) ).getCompression() );
+    }
+
+    @Test
+    public void testDecodeTextMessage()
+        throws IOException, JMSException
+    {
+        MessageCodec jsonCodec = new MessageCodec( MessageFormat.JSON, MessageCompression.NONE, 0 );
+        MessageCodec smileCodec = new MessageCodec( MessageFormat.SMILE, MessageCompression.NONE, 0 );
+
+        TextMessage message = mock( TextMessage.class );
+        when( message.getText() ).thenReturn( new String( jsonCodec.encode( createAudit( "data" ) ).getPayload() ) );
+
+        assertAudit( "data", smileCodec.decode( message, Audit.class ) );
+    }
+
+    private Audit createAudit( String data )
+    {
+        return Audit.builder()
+            .auditType( AuditType.CREATE )
+            .auditScope( AuditScope.AGGREGATE )
+            .createdBy( "admin" )
+            .klass( "org.hisp.dhis.dataelement.DataElement" )
+            .uid( "abcdefghijk" )
+            .data( data )
+            .build();
+    }
+
+    private void assertAudit( String data, Audit audit )
+    {
+        assertEquals( AuditType.CREATE, audit.getAuditType() );
+        assertEquals( AuditScope.AGGREGATE, audit.getAuditScope() );
+        assertEquals( "abcdefghijk", audit.getUid() );
+        assertEquals( data, audit.getData() );
+    }
+}
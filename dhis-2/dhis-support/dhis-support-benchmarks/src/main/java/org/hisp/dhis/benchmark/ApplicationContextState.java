@@ -0,0 +1,88 @@
+package org.hisp.dhis.benchmark;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.benchmark.BenchmarkRunner.DATABASE_POSTGRES;
+import static org.hisp.dhis.benchmark.BenchmarkRunner.DATABASE_PROPERTY;
+
+import org.hisp.dhis.IntegrationTestConfig;
+import org.hisp.dhis.UnitTestConfig;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Benchmark state holding a Spring application context, for benchmarks of
+ * services which depend on other beans such as the schema service. The
+ * context is backed by an in-memory H2 database, or by a PostgreSQL test
+ * container when the benchmark.database system property is postgres.
+ */
+@State( Scope.Benchmark )
+public class ApplicationContextState
+{
+    private AnnotationConfigApplicationContext context;
+
+    @Setup( Level.Trial )
+    public void setUp()
+    {
+        context = new AnnotationConfigApplicationContext();
+
+        if ( isPostgres() )
+        {
+            context.getEnvironment().setActiveProfiles( "test-postgres" );
+            context.register( IntegrationTestConfig.class );
+        }
+        else
+        {
+            context.getEnvironment().setActiveProfiles( "test-h2" );
+            context.register( UnitTestConfig.class );
+        }
+
+        context.refresh();
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown()
+    {
+        context.close();
+    }
+
+    public <T> T getBean( Class<T> type )
+    {
+        return context.getBean( type );
+    }
+
+    public static boolean isPostgres()
+    {
+        return DATABASE_POSTGRES.equals( System.getProperty( DATABASE_PROPERTY ) );
+    }
+}
@@ -0,0 +1,162 @@
+package org.hisp.dhis.benchmark;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares two JMH JSON result files, typically the result of a run on a base
+ * branch and the result of a run on a feature branch. For every benchmark and
+ * parameter combination present in both files the scores and the relative
+ * change are printed. A change is flagged as a regression or improvement only
+ * when it is larger than the combined score error of both runs.
+ */
+public class BenchmarkComparison
+{
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main( String[] args )
+    {
+        if ( args.length != 2 )
+        {
+            System.err.println( "Usage: BenchmarkComparison <baseline.json> <current.json>" );
+            System.exit( 1 );
+        }
+
+        compare( new File( args[0] ), new File( args[1] ), System.out );
+    }
+
+    /**
+     * Prints a comparison of the given result files.
+     *
+     * @param baselineFile the baseline JMH JSON result file.
+     * @param currentFile the current JMH JSON result file.
+     * @param out the stream to print to.
+     */
+    public static void compare( File baselineFile, File currentFile, PrintStream out )
+    {
+        Map<String, JsonNode> baseline = read( baselineFile );
+        Map<String, JsonNode> current = read( currentFile );
+
+        out.println( String.format( "%-90s %6s %22s %22s %9s", "Benchmark", "Mode", "Baseline", "Current", "Change" ) );
+
+        for ( Map.Entry<String, JsonNode> entry : current.entrySet() )
+        {
+            JsonNode before = baseline.get( entry.getKey() );
+
+            if ( before == null )
+            {
+                continue;
+            }
+
+            JsonNode after = entry.getValue();
+            String mode = after.path( "mode" ).asText();
+
+            double beforeScore = before.path( "primaryMetric" ).path( "score" ).asDouble();
+            double beforeError = before.path( "primaryMetric" ).path( "scoreError" ).asDouble();
+            double afterScore = after.path( "primaryMetric" ).path( "score" ).asDouble();
+            double afterError = after.path( "primaryMetric" ).path( "scoreError" ).asDouble();
+            String unit = after.path( "primaryMetric" ).path( "scoreUnit" ).asText();
+
+            double change = beforeScore != 0 ? (afterScore - beforeScore) / beforeScore * 100 : 0;
+
+            out.println( String.format( "%-90s %6s %22s %22s %8.1f%% %s", entry.getKey(), mode,
+                format( beforeScore, beforeError, unit ), format( afterScore, afterError, unit ), change,
+                getVerdict( mode, beforeScore, beforeError, afterScore, afterError ) ) );
+        }
+    }
+
+    private static String getVerdict( String mode, double beforeScore, double beforeError, double afterScore, double afterError )
+    {
+        double difference = afterScore - beforeScore;
+
+        if ( Double.isNaN( beforeError ) || Double.isNaN( afterError ) || Math.abs( difference ) <= beforeError + afterError )
+        {
+            return "";
+        }
+
+        boolean higherIsBetter = "thrpt".equals( mode );
+
+        return (difference > 0) == higherIsBetter ? "improvement" : "REGRESSION";
+    }
+
+    private static String format( double score, double error, String unit )
+    {
+        return Double.isNaN( error ) ? String.format( "%.3f %s", score, unit ) : String.format( "%.3f ± %.3f %s", score, error, unit );
+    }
+
+    /**
+     * Reads the given result file into a map keyed on benchmark name and
+     * parameter values.
+     */
+    private static Map<String, JsonNode> read( File file )
+    {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+
+        try
+        {
+            for ( JsonNode result : MAPPER.readTree( file ) )
+            {
+                StringBuilder key = new StringBuilder( result.path( "benchmark" ).asText() );
+
+                Iterator<Map.Entry<String, JsonNode>> params = result.path( "params" ).fields();
+                String separator = "[";
+
+                while ( params.hasNext() )
+                {
+                    Map.Entry<String, JsonNode> param = params.next();
+                    key.append( separator ).append( param.getKey() ).append( "=" ).append( param.getValue().asText() );
+                    separator = ",";
+                }
+
+                if ( !"[".equals( separator ) )
+                {
+                    key.append( "]" );
+                }
+
+                results.put( key.toString(), result );
+            }
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+
+        return results;
+    }
+}
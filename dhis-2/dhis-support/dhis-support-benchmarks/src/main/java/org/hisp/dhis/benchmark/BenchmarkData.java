@@ -0,0 +1,159 @@
+package org.hisp.dhis.benchmark;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.hisp.dhis.common.CodeGenerator;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.system.grid.ListGrid;
+
+/**
+ * Generators of synthetic data for benchmarks, built on the object factories
+ * of {@link org.hisp.dhis.DhisConvenienceTest}. All generators use a fixed
+ * seed so that runs are comparable.
+ */
+public final class BenchmarkData
+{
+    private static final long SEED = 42L;
+
+    private BenchmarkData()
+    {
+    }
+
+    /**
+     * Creates data elements with unique identifiers, names and codes.
+     *
+     * @param count the number of data elements.
+     */
+    public static List<DataElement> createDataElements( int count )
+    {
+        List<DataElement> dataElements = new ArrayList<>( count );
+
+        for ( int i = 0; i < count; i++ )
+        {
+            DataElement dataElement = createDataElement( (char) ('A' + i % 26) );
+            dataElement.setUid( CodeGenerator.generateUid() );
+            dataElement.setName( "DataElement" + i );
+            dataElement.setShortName( "DataElementShort" + i );
+            dataElement.setCode( "DataElementCode" + i );
+
+            dataElements.add( dataElement );
+        }
+
+        return dataElements;
+    }
+
+    /**
+     * Creates an organisation unit hierarchy where each unit has the given
+     * number of children, breadth first, until the given count is reached.
+     *
+     * @param count the number of organisation units.
+     * @param children the number of children per organisation unit.
+     */
+    public static List<OrganisationUnit> createOrganisationUnits( int count, int children )
+    {
+        List<OrganisationUnit> organisationUnits = new ArrayList<>( count );
+
+        for ( int i = 0; i < count; i++ )
+        {
+            OrganisationUnit parent = i > 0 ? organisationUnits.get( (i - 1) / children ) : null;
+            OrganisationUnit organisationUnit = createOrganisationUnit( "OrganisationUnit" + i, parent );
+
+            if ( parent != null )
+            {
+                parent.getChildren().add( organisationUnit );
+            }
+
+            organisationUnits.add( organisationUnit );
+        }
+
+        return organisationUnits;
+    }
+
+    /**
+     * Creates a grid with a text column followed by numeric columns.
+     *
+     * @param rows the number of rows.
+     * @param columns the number of columns, at least one.
+     */
+    public static Grid createGrid( int rows, int columns )
+    {
+        Random random = new Random( SEED );
+
+        Grid grid = new ListGrid();
+        grid.addHeader( new GridHeader( "text", "Text", ValueType.TEXT, String.class.getName(), false, false ) );
+
+        for ( int i = 1; i < columns; i++ )
+        {
+            grid.addHeader( new GridHeader( "number" + i, "Number " + i, ValueType.NUMBER, Double.class.getName(), false, false ) );
+        }
+
+        for ( int row = 0; row < rows; row++ )
+        {
+            grid.addRow();
+            grid.addValue( CodeGenerator.generateUid() );
+
+            for ( int column = 1; column < columns; column++ )
+            {
+                grid.addValue( random.nextInt( 100_000 ) / 100d );
+            }
+        }
+
+        return grid;
+    }
+
+    /**
+     * Creates random values with two decimals.
+     *
+     * @param count the number of values.
+     */
+    public static double[] createValues( int count )
+    {
+        Random random = new Random( SEED );
+
+        double[] values = new double[count];
+
+        for ( int i = 0; i < count; i++ )
+        {
+            values[i] = random.nextInt( 100_000 ) / 100d;
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,98 @@
+package org.hisp.dhis.benchmark;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of this module and writes the results as JMH JSON to a
+ * time stamped file, so that results of different runs can be compared with
+ * {@link BenchmarkComparison}.
+ * <p>
+ * The first argument is an optional regular expression selecting the
+ * benchmarks to run. The following system properties are supported:
+ * <ul>
+ * <li>benchmark.database: set to postgres to include the JDBC benchmarks,
+ * which run against a PostgreSQL test container.</li>
+ * <li>benchmark.result: the directory to write results to.</li>
+ * <li>benchmark.baseline: a previous result file to compare the results
+ * of this run with.</li>
+ * </ul>
+ */
+public class BenchmarkRunner
+{
+    public static final String DATABASE_PROPERTY = "benchmark.database";
+
+    public static final String DATABASE_POSTGRES = "postgres";
+
+    private static final String JDBC_BENCHMARKS = "org\\.hisp\\.dhis\\.benchmark\\.jdbc\\..*";
+
+    public static void main( String[] args )
+        throws RunnerException
+    {
+        String include = args.length > 0 && StringUtils.isNotBlank( args[0] ) ? args[0] : ".*";
+        String database = System.getProperty( DATABASE_PROPERTY, "none" );
+
+        File resultDir = new File( StringUtils.defaultIfBlank( System.getProperty( "benchmark.result" ), "target/benchmarks" ) );
+        resultDir.mkdirs();
+
+        File result = new File( resultDir, "jmh-result-" + new SimpleDateFormat( "yyyyMMdd-HHmmss" ).format( new Date() ) + ".json" );
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+            .include( include )
+            .jvmArgsAppend( "-D" + DATABASE_PROPERTY + "=" + database )
+            .resultFormat( ResultFormatType.JSON )
+            .result( result.getAbsolutePath() );
+
+        if ( !DATABASE_POSTGRES.equals( database ) )
+        {
+            options.exclude( JDBC_BENCHMARKS );
+        }
+
+        new Runner( options.build() ).run();
+
+        System.out.println( "Benchmark results written to: " + result.getAbsolutePath() );
+
+        String baseline = System.getProperty( "benchmark.baseline" );
+
+        if ( StringUtils.isNotBlank( baseline ) )
+        {
+            BenchmarkComparison.compare( new File( baseline ), result, System.out );
+        }
+    }
+}
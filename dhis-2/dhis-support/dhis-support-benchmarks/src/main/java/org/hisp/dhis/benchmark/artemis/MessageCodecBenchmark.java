@@ -0,0 +1,129 @@
+package org.hisp.dhis.benchmark.artemis;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hisp.dhis.artemis.audit.Audit;
+import org.hisp.dhis.artemis.codec.EncodedMessage;
+import org.hisp.dhis.artemis.codec.MessageCodec;
+import org.hisp.dhis.artemis.codec.MessageCompression;
+import org.hisp.dhis.artemis.codec.MessageFormat;
+import org.hisp.dhis.audit.AuditScope;
+import org.hisp.dhis.audit.AuditType;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks encoding and decoding of Artemis messages with the
+ * {@link MessageCodec} formats and compressions. The encoded size of the
+ * message is reported as the payloadBytes secondary result.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class MessageCodecBenchmark
+{
+    @Param( { "JSON", "SMILE", "CBOR" } )
+    private MessageFormat format;
+
+    @Param( { "NONE", "GZIP" } )
+    private MessageCompression compression;
+
+    @Param( { "10", "1000" } )
+    private int properties;
+
+    private MessageCodec codec;
+
+    private Audit audit;
+
+    private EncodedMessage encoded;
+
+    @State( Scope.Thread )
+    @AuxCounters( AuxCounters.Type.EVENTS )
+    public static class EncodedSize
+    {
+        public long payloadBytes;
+    }
+
+    @Setup
+    public void setUp()
+    {
+        codec = new MessageCodec( format, compression, 1024 );
+
+        Map<String, Object> data = new HashMap<>();
+
+        for ( int i = 0; i < properties; i++ )
+        {
+            data.put( "property" + i, i % 2 == 0 ? "value" + i : (Object) (double) i );
+        }
+
+        audit = Audit.builder()
+            .auditType( AuditType.UPDATE )
+            .auditScope( AuditScope.TRACKER )
+            .createdBy( "admin" )
+            .klass( "org.hisp.dhis.program.ProgramStageInstance" )
+            .uid( "abcdefghijk" )
+            .data( data )
+            .build();
+
+        encoded = codec.encode( audit );
+    }
+
+    @Benchmark
+    public EncodedMessage encode( EncodedSize size )
+    {
+        EncodedMessage message = codec.encode( audit );
+        size.payloadBytes = message.getPayload().length;
+        return message;
+    }
+
+    @Benchmark
+    public Audit decode()
+        throws IOException
+    {
+        return codec.decode( encoded, Audit.class );
+    }
+}
@@ -0,0 +1,136 @@
+package org.hisp.dhis.benchmark.dxf2;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.hisp.dhis.benchmark.BenchmarkData;
+import org.hisp.dhis.common.CodeGenerator;
+import org.hisp.dhis.commons.config.JacksonObjectMapperConfig;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
+import org.hisp.dhis.dxf2.datavalueset.StreamingJsonDataValueSet;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks writing data value sets with {@link StreamingJsonDataValueSet}
+ * as done by data value set exports, and reading the resulting JSON back as
+ * done by data value set imports.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class StreamingJsonDataValueSetBenchmark
+{
+    private static final String[] PERIODS = { "202001", "202002", "202003", "202004", "202005", "202006",
+        "202007", "202008", "202009", "202010", "202011", "202012" };
+
+    @Param( { "1000", "100000" } )
+    private int dataValues;
+
+    private List<DataElement> dataElements;
+
+    private List<OrganisationUnit> organisationUnits;
+
+    private double[] values;
+
+    private String categoryOptionCombo;
+
+    private byte[] json;
+
+    @Setup
+    public void setUp()
+    {
+        dataElements = BenchmarkData.createDataElements( 100 );
+        organisationUnits = BenchmarkData.createOrganisationUnits( Math.max( 1, dataValues / (100 * PERIODS.length) ), 10 );
+        values = BenchmarkData.createValues( dataValues );
+        categoryOptionCombo = CodeGenerator.generateUid();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write( new StreamingJsonDataValueSet( out ) );
+        json = out.toByteArray();
+    }
+
+    @Benchmark
+    public DataValueSet writeDataValueSet()
+    {
+        return write( new StreamingJsonDataValueSet( NullOutputStream.NULL_OUTPUT_STREAM ) );
+    }
+
+    @Benchmark
+    public DataValueSet readDataValueSet()
+        throws IOException
+    {
+        return JacksonObjectMapperConfig.jsonMapper.readValue( json, DataValueSet.class );
+    }
+
+    private DataValueSet write( StreamingJsonDataValueSet dataValueSet )
+    {
+        for ( int i = 0; i < dataValues; i++ )
+        {
+            DataValue dataValue = dataValueSet.getDataValueInstance();
+
+            dataValue.setDataElement( dataElements.get( i % dataElements.size() ).getUid() );
+            dataValue.setPeriod( PERIODS[(i / dataElements.size()) % PERIODS.length] );
+            dataValue.setOrgUnit( organisationUnits.get( (i / (dataElements.size() * PERIODS.length)) % organisationUnits.size() ).getUid() );
+            dataValue.setCategoryOptionCombo( categoryOptionCombo );
+            dataValue.setAttributeOptionCombo( categoryOptionCombo );
+            dataValue.setValue( String.valueOf( values[i] ) );
+            dataValue.setStoredBy( "admin" );
+            dataValue.setCreated( "2020-07-15T10:00:00.000+0000" );
+            dataValue.setLastUpdated( "2020-07-15T10:00:00.000+0000" );
+            dataValue.setFollowup( false );
+
+            dataValue.close();
+        }
+
+        dataValueSet.close();
+
+        return dataValueSet;
+    }
+}
@@ -0,0 +1,122 @@
+package org.hisp.dhis.benchmark.expression;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createConstant;
+import static org.hisp.dhis.expression.MissingValueStrategy.NEVER_SKIP;
+import static org.hisp.dhis.expression.ParseType.INDICATOR_EXPRESSION;
+import static org.mockito.Mockito.mock;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hisp.dhis.benchmark.BenchmarkData;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.DimensionService;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.constant.Constant;
+import org.hisp.dhis.constant.ConstantService;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.expression.DefaultExpressionService;
+import org.hisp.dhis.expression.ExpressionService;
+import org.hisp.dhis.hibernate.HibernateGenericStore;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks evaluation of indicator expressions with
+ * {@link DefaultExpressionService#getExpressionValue}. Evaluation only uses the
+ * given value and constant maps, so the collaborating services are mocked.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ExpressionServiceBenchmark
+{
+    @Param( { "3", "30" } )
+    private int items;
+
+    private ExpressionService expressionService;
+
+    private String expression;
+
+    private Map<DimensionalItemObject, Double> valueMap;
+
+    private Map<String, Constant> constantMap;
+
+    @Setup
+    @SuppressWarnings( "unchecked" )
+    public void setUp()
+    {
+        expressionService = new DefaultExpressionService( mock( HibernateGenericStore.class ),
+            mock( DataElementService.class ), mock( ConstantService.class ), mock( CategoryService.class ),
+            mock( OrganisationUnitGroupService.class ), mock( DimensionService.class ) );
+
+        Constant constant = createConstant( 'A', 2.5 );
+        constantMap = new HashMap<>();
+        constantMap.put( constant.getUid(), constant );
+
+        List<DataElement> dataElements = BenchmarkData.createDataElements( items );
+        double[] values = BenchmarkData.createValues( items );
+
+        valueMap = new HashMap<>();
+        StringBuilder builder = new StringBuilder( "(" );
+
+        for ( int i = 0; i < items; i++ )
+        {
+            valueMap.put( dataElements.get( i ), values[i] );
+            builder.append( i > 0 ? " + " : "" ).append( "#{" ).append( dataElements.get( i ).getUid() ).append( "}" );
+        }
+
+        expression = builder.append( ") * C{" ).append( constant.getUid() ).append( "} / 100" ).toString();
+    }
+
+    @Benchmark
+    public Double getExpressionValue()
+    {
+        return expressionService.getExpressionValue( expression, INDICATOR_EXPRESSION, valueMap, constantMap,
+            null, null, NEVER_SKIP );
+    }
+}
@@ -0,0 +1,124 @@
+package org.hisp.dhis.benchmark.preheat;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.hisp.dhis.benchmark.ApplicationContextState;
+import org.hisp.dhis.benchmark.BenchmarkData;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.preheat.Preheat;
+import org.hisp.dhis.preheat.PreheatIdentifier;
+import org.hisp.dhis.preheat.PreheatMode;
+import org.hisp.dhis.preheat.PreheatParams;
+import org.hisp.dhis.preheat.PreheatService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Benchmarks reference preheating of metadata imports, the reference walk
+ * alone and the full preheat including the lookups of the referenced objects.
+ * The imported organisation units exist in the database, as for an update
+ * import, and reference their parents.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( 1 )
+public class PreheatServiceBenchmark
+{
+    @Param( { "1000", "10000" } )
+    private int organisationUnits;
+
+    @Param( { "UID", "AUTO" } )
+    private PreheatIdentifier identifier;
+
+    private PreheatService preheatService;
+
+    private TransactionTemplate transactionTemplate;
+
+    private List<IdentifiableObject> objects;
+
+    @Setup
+    public void setUp( ApplicationContextState context )
+    {
+        preheatService = context.getBean( PreheatService.class );
+        transactionTemplate = new TransactionTemplate( context.getBean( PlatformTransactionManager.class ) );
+
+        IdentifiableObjectManager manager = context.getBean( IdentifiableObjectManager.class );
+        List<OrganisationUnit> units = BenchmarkData.createOrganisationUnits( organisationUnits, 10 );
+
+        transactionTemplate.execute( status -> {
+            units.forEach( manager::save );
+            return null;
+        } );
+
+        objects = new ArrayList<>( units );
+
+        transactionTemplate.setReadOnly( true );
+    }
+
+    @Benchmark
+    public Map<PreheatIdentifier, Map<Class<? extends IdentifiableObject>, Set<String>>> collectReferences()
+    {
+        return preheatService.collectReferences( objects );
+    }
+
+    @Benchmark
+    public Preheat preheatReferences()
+    {
+        return transactionTemplate.execute( status -> {
+            PreheatParams params = new PreheatParams();
+            params.setPreheatMode( PreheatMode.REFERENCE );
+            params.setPreheatIdentifier( identifier );
+            params.getObjects().put( OrganisationUnit.class, objects );
+
+            return preheatService.preheat( params );
+        } );
+    }
+}
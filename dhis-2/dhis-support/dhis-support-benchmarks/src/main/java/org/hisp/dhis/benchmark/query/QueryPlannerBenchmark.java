@@ -0,0 +1,100 @@
+package org.hisp.dhis.benchmark.query;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.hisp.dhis.benchmark.ApplicationContextState;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.query.Disjunction;
+import org.hisp.dhis.query.Query;
+import org.hisp.dhis.query.Restrictions;
+import org.hisp.dhis.query.operators.MatchMode;
+import org.hisp.dhis.query.planner.QueryPlan;
+import org.hisp.dhis.query.planner.QueryPlanner;
+import org.hisp.dhis.schema.Schema;
+import org.hisp.dhis.schema.SchemaService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks splitting of metadata queries into persisted and non-persisted
+ * parts with {@link QueryPlanner#planQuery(Query)}.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class QueryPlannerBenchmark
+{
+    private QueryPlanner queryPlanner;
+
+    private Schema schema;
+
+    @Setup
+    public void setUp( ApplicationContextState context )
+    {
+        queryPlanner = context.getBean( QueryPlanner.class );
+        schema = context.getBean( SchemaService.class ).getDynamicSchema( DataElement.class );
+    }
+
+    @Benchmark
+    public QueryPlan planPersistedQuery()
+    {
+        Query query = Query.from( schema );
+        query.add( Restrictions.like( "name", "DataElement", MatchMode.ANYWHERE ) );
+        query.add( Restrictions.eq( "valueType", "NUMBER" ) );
+
+        return queryPlanner.planQuery( query );
+    }
+
+    @Benchmark
+    public QueryPlan planMixedQuery()
+    {
+        Query query = Query.from( schema );
+        query.add( Restrictions.eq( "domainType", "AGGREGATE" ) );
+        query.add( Restrictions.eq( "categoryCombo.id", "bjDvmb4bfuf" ) );
+
+        Disjunction disjunction = query.addDisjunction();
+        disjunction.add( Restrictions.like( "displayName", "DataElement", MatchMode.START ) );
+        disjunction.add( Restrictions.like( "code", "DataElement", MatchMode.START ) );
+
+        return queryPlanner.planQuery( query );
+    }
+}
@@ -35,6 +35,8 @@ import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
@@ -59,6 +61,8 @@ public class JacksonObjectMapperConfig
 {
     public static final ObjectMapper jsonMapper = new ObjectMapper();
     public static final ObjectMapper xmlMapper = new XmlMapper();
+    public static final ObjectMapper smileMapper = new ObjectMapper( new SmileFactory() );
+    public static final ObjectMapper cborMapper = new ObjectMapper( new CBORFactory() );
 
     @Primary
     @Bean( "jsonMapper" )
@@ -83,6 +87,16 @@ public class JacksonObjectMapperConfig
         return xmlMapper;
     }
 
+    public static ObjectMapper staticSmileMapper()
+    {
+        return smileMapper;
+    }
+
+    public static ObjectMapper staticCborMapper()
+    {
+        return cborMapper;
+    }
+
     static
     {
         SimpleModule module = new SimpleModule();
@@ -90,7 +104,7 @@ public class JacksonObjectMapperConfig
         module.addDeserializer( Date.class, new ParseDateStdDeserializer() );
         module.addSerializer( Date.class, new WriteDateStdSerializer() );
 
-        ObjectMapper[] objectMappers = new ObjectMapper[]{ jsonMapper, xmlMapper };
+        ObjectMapper[] objectMappers = new ObjectMapper[]{ jsonMapper, xmlMapper, smileMapper, cborMapper };
 
         for ( ObjectMapper objectMapper : objectMappers )
         {
@@ -118,6 +132,8 @@ public class JacksonObjectMapperConfig
         }
 
         jsonMapper.registerModule( new JtsModule( new GeometryFactory( new PrecisionModel(), 4326 ) ) );
+        smileMapper.registerModule( new JtsModule( new GeometryFactory( new PrecisionModel(), 4326 ) ) );
+        cborMapper.registerModule( new JtsModule( new GeometryFactory( new PrecisionModel(), 4326 ) ) );
         xmlMapper.registerModule( new JtsXmlModule() );
     }
 }
@@ -0,0 +1,12 @@
+
+-- Adds table holding the latest result of each data integrity check per database locale
+
+create table if not exists dataintegritycheckresult (
+  name character varying(255) not null,
+  locale character varying(50) not null,
+  version text,
+  starttime timestamp without time zone not null,
+  duration bigint not null,
+  result jsonb,
+  primary key (name, locale)
+);
@@ -0,0 +1,8 @@
+
+-- Adds table holding the source data fingerprint of the last generation of each resource table
+
+create table if not exists resourcetablefingerprint (
+  tablename character varying(255) not null primary key,
+  fingerprint character varying(64) not null,
+  lastupdated timestamp without time zone not null
+);
@@ -0,0 +1,9 @@
+
+-- Adds table holding the revision of each metadata type, shared by all nodes
+
+create sequence if not exists metadatarevision_sequence;
+
+create table if not exists metadatarevision (
+  type character varying(255) not null primary key,
+  revision bigint not null
+);
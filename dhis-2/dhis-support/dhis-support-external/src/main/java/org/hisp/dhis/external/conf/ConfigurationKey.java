@@ -62,6 +62,7 @@ public enum ConfigurationKey
     FILESTORE_LOCATION( "filestore.location", "", false ),
     FILESTORE_IDENTITY( "filestore.identity", "", false ),
     FILESTORE_SECRET( "filestore.secret", "", true ),
+    FILESTORE_CACHE_MAX_SIZE_MB( "filestore.cache.max_size_mb", "1024", false ),
     GOOGLE_SERVICE_ACCOUNT_CLIENT_ID( "google.service.account.client.id", "", false ),
     META_DATA_SYNC_RETRY( "metadata.sync.retry", "3", false ),
     META_DATA_SYNC_RETRY_TIME_FREQUENCY_MILLISEC( "metadata.sync.retry.time.frequency.millisec", "30000", false ),
@@ -74,10 +75,17 @@ public enum ConfigurationKey
     REDIS_PASSWORD( "redis.password", "", true ),
     REDIS_ENABLED( "redis.enabled", "false", false ),
     REDIS_USE_SSL( "redis.use.ssl", "false", false ),
+    CACHE_INVALIDATION_ENABLED( "cache.invalidation.enabled", "off", false ),
     FLYWAY_OUT_OF_ORDER_MIGRATION( "flyway.migrate_out_of_order", "false", false ),
     PROGRAM_TEMPORARY_OWNERSHIP_TIMEOUT( "tracker.temporary.ownership.timeout", "3", false ),
     LEADER_TIME_TO_LIVE( "leader.time.to.live.minutes", "2", false ),
     ANALYTICS_CACHE_EXPIRATION( "analytics.cache.expiration", "0" ),
+    VALIDATION_CACHE_MAX_VALUES( "validation.cache.max_values", "20000000", false ),
+    IMAGE_CACHE_MAX_SIZE_MB( "image.cache.max_size_mb", "50", false ),
+    IMAGE_CACHE_DISK_MAX_SIZE_MB( "image.cache.disk.max_size_mb", "0", false ),
+    EMAIL_SMTP_WORKERS( "email.smtp.workers", "4", false ),
+    EMAIL_SMTP_RATE_LIMIT( "email.smtp.rate_limit", "0", false ),
+    EMAIL_SMTP_MAX_ATTEMPTS( "email.smtp.max_attempts", "3", false ),
     ARTEMIS_MODE( "artemis.mode", "EMBEDDED" ),
     ARTEMIS_HOST( "artemis.host", "127.0.0.1" ),
     ARTEMIS_PORT( "artemis.port", "25672" ),
@@ -85,6 +93,9 @@ public enum ConfigurationKey
     ARTEMIS_PASSWORD( "artemis.password", "guest", true ),
     ARTEMIS_EMBEDDED_SECURITY( "artemis.embedded.security", "false" ),
     ARTEMIS_EMBEDDED_PERSISTENCE( "artemis.embedded.persistence", "false" ),
+    ARTEMIS_MESSAGE_FORMAT( "artemis.message.format", "json" ),
+    ARTEMIS_MESSAGE_COMPRESSION( "artemis.message.compression", "none" ),
+    ARTEMIS_MESSAGE_COMPRESSION_THRESHOLD( "artemis.message.compression.threshold", "8192" ),
     LOGGING_FILE_MAX_SIZE( "logging.file.max_size", "100MB" ),
     LOGGING_FILE_MAX_ARCHIVES( "logging.file.max_archives", "1" ),
     SERVER_BASE_URL( "server.base.url", "", false ),
@@ -96,6 +107,7 @@ public enum ConfigurationKey
     MONITORING_HIBERNATE_ENABLED( "monitoring.hibernate.enabled", "off", false ),
     MONITORING_UPTIME_ENABLED( "monitoring.uptime.enabled", "off", false ),
     MONITORING_CPU_ENABLED( "monitoring.cpu.enabled", "off", false ),
+    MONITORING_FILESTORE_ENABLED( "monitoring.filestore.enabled", "off", false ),
     MONITORING_LOG_REQUESTID_ENABLED( "monitoring.requestidlog.enabled", "off", false ),
     MONITORING_LOG_REQUESTID_HASHALGO( "monitoring.requestidlog.hash", "SHA-256", false ),
     MONITORING_LOG_REQUESTID_MAXSIZE( "monitoring.requestidlog.maxsize", "-1", false ),
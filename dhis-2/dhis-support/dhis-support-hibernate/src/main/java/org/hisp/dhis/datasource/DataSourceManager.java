@@ -52,4 +52,13 @@ public interface DataSourceManager
      * @return the number of explicitly defined read only database instances.
      */
     int getReadReplicaCount();
+
+    /**
+     * Returns the max number of connections of the read only data source,
+     * which is the sum of the max pool sizes of the read only replicas, or the
+     * max pool size of the main data source if no replicas are defined.
+     *
+     * @return the max number of connections of the read only data source.
+     */
+    int getReadOnlyMaxPoolSize();
 }
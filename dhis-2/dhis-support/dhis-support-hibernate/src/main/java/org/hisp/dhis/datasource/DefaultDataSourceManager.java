@@ -81,6 +81,11 @@ public class DefaultDataSourceManager
      */
     private List<DataSource> internalReadOnlyInstanceList;
 
+    /**
+     * State holder for the max pool size of the read only data source.
+     */
+    private int internalReadOnlyMaxPoolSize;
+
     @Override
     public void afterPropertiesSet()
     {
@@ -88,6 +93,8 @@ public class DefaultDataSourceManager
 
         this.internalReadOnlyInstanceList = ds;
         this.internalReadOnlyDataSource = !ds.isEmpty() ? new CircularRoutingDataSource( ds ) : mainDataSource;
+        this.internalReadOnlyMaxPoolSize = !ds.isEmpty() ? ds.stream().mapToInt( this::getMaxPoolSize ).sum()
+            : getMaxPoolSize( mainDataSource );
     }
 
     // -------------------------------------------------------------------------
@@ -124,6 +131,12 @@ public class DefaultDataSourceManager
         return internalReadOnlyInstanceList != null ? internalReadOnlyInstanceList.size() : 0;
     }
 
+    @Override
+    public int getReadOnlyMaxPoolSize()
+    {
+        return internalReadOnlyMaxPoolSize;
+    }
+
     // -------------------------------------------------------------------------
     // Supportive methods
     // -------------------------------------------------------------------------
@@ -180,6 +193,16 @@ public class DefaultDataSourceManager
         return dataSources;
     }
 
+    private int getMaxPoolSize( DataSource dataSource )
+    {
+        if ( dataSource instanceof ComboPooledDataSource )
+        {
+            return ((ComboPooledDataSource) dataSource).getMaxPoolSize();
+        }
+
+        return Integer.parseInt( config.getProperty( CONNECTION_POOL_MAX_SIZE ) );
+    }
+
     private void testConnection( ComboPooledDataSource dataSource )
     {
         try
@@ -270,6 +270,14 @@ public interface StatementBuilder
      * @return true if partial indexes aer supported.
      */
     boolean supportsPartialIndexes();
+
+    /**
+     * Indicates whether the DBMS supports the ordered set aggregate
+     * {@code percentile_cont(fraction) within group (order by expression)}.
+     *
+     * @return true if percentile aggregates are supported.
+     */
+    boolean supportsPercentileAggregates();
    
     /**
      * Get SQL where-condition for all analyticsPeriodBoundaries in a program indicator.
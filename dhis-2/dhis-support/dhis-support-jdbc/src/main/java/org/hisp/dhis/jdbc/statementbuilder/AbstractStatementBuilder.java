@@ -299,6 +299,12 @@ public abstract class AbstractStatementBuilder
     {
         return false;
     }
+
+    @Override
+    public boolean supportsPercentileAggregates()
+    {
+        return false;
+    }
     
     public String getProgramIndicatorDataValueSelectSql( String programStageUid, String dataElementUid, Date reportingStartDate,
         Date reportingEndDate, ProgramIndicator programIndicator )
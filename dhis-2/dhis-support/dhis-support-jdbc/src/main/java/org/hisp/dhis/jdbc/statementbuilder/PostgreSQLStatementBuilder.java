@@ -261,4 +261,10 @@ public class PostgreSQLStatementBuilder
     {
         return true;
     }
+
+    @Override
+    public boolean supportsPercentileAggregates()
+    {
+        return true;
+    }
 }
@@ -0,0 +1,122 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Base class for {@link CacheInvalidationBus} implementations, which only have
+ * to send invalidations to other nodes and pass received invalidations to
+ * {@link #receive(CacheInvalidation)}.
+ */
+@Slf4j
+public abstract class AbstractCacheInvalidationBus
+    implements CacheInvalidationBus
+{
+    /**
+     * Identifier of this node, used to ignore invalidations published by this
+     * node. Unique per application context.
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish( String region, String key )
+    {
+        CacheInvalidation invalidation = new CacheInvalidation( nodeId, region, key );
+
+        try
+        {
+            send( invalidation );
+        }
+        catch ( RuntimeException ex )
+        {
+            log.error( String.format( "Cache invalidation could not be published: %s", invalidation ), ex );
+        }
+    }
+
+    @Override
+    public void addListener( Consumer<CacheInvalidation> listener )
+    {
+        listeners.add( listener );
+    }
+
+    /**
+     * Passes the given invalidation received from the bus to the listeners,
+     * unless the invalidation was published by this node.
+     *
+     * @param invalidation the {@link CacheInvalidation}.
+     */
+    protected void receive( CacheInvalidation invalidation )
+    {
+        if ( nodeId.equals( invalidation.getNodeId() ) )
+        {
+            return;
+        }
+
+        log.debug( String.format( "Received cache invalidation: %s", invalidation ) );
+
+        for ( Consumer<CacheInvalidation> listener : listeners )
+        {
+            listener.accept( invalidation );
+        }
+    }
+
+    /**
+     * Passes an invalidation of all keys of all regions to the listeners. To be
+     * used when invalidations may have been missed.
+     */
+    protected void receiveInvalidateAll()
+    {
+        CacheInvalidation invalidation = new CacheInvalidation( nodeId, null, null );
+
+        for ( Consumer<CacheInvalidation> listener : listeners )
+        {
+            listener.accept( invalidation );
+        }
+    }
+
+    public String getNodeId()
+    {
+        return nodeId;
+    }
+
+    /**
+     * Sends the given invalidation to all nodes.
+     *
+     * @param invalidation the {@link CacheInvalidation}.
+     */
+    protected abstract void send( CacheInvalidation invalidation );
+}
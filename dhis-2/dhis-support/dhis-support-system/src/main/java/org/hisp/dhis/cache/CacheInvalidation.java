@@ -0,0 +1,109 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.Serializable;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+
+/**
+ * Invalidation of a key, or of all keys, of a cache region, published by a
+ * node of a cluster.
+ */
+public class CacheInvalidation
+    implements Serializable
+{
+    private final String nodeId;
+
+    /**
+     * The cache region, null if all regions should be invalidated.
+     */
+    private final String region;
+
+    /**
+     * The key to invalidate, null if all keys should be invalidated.
+     */
+    private final String key;
+
+    @JsonCreator
+    public CacheInvalidation(
+        @JsonProperty( "nodeId" ) String nodeId,
+        @JsonProperty( "region" ) String region,
+        @JsonProperty( "key" ) String key )
+    {
+        this.nodeId = nodeId;
+        this.region = region;
+        this.key = key;
+    }
+
+    /**
+     * Indicates whether the invalidation applies to the given region.
+     */
+    public boolean isForRegion( String region )
+    {
+        return this.region == null || this.region.equals( region );
+    }
+
+    @JsonIgnore
+    public boolean isInvalidateAll()
+    {
+        return key == null;
+    }
+
+    @JsonProperty
+    public String getNodeId()
+    {
+        return nodeId;
+    }
+
+    @JsonProperty
+    public String getRegion()
+    {
+        return region;
+    }
+
+    @JsonProperty
+    public String getKey()
+    {
+        return key;
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper( this )
+            .add( "nodeId", nodeId )
+            .add( "region", region )
+            .add( "key", key )
+            .toString();
+    }
+}
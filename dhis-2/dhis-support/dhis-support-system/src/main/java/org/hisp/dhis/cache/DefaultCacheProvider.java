@@ -47,16 +47,18 @@ public class DefaultCacheProvider implements CacheProvider
 
     private RedisTemplate<String, ?> redisTemplate;
 
+    private CacheInvalidationBus invalidationBus;
+
     @Override
     public <V> ExtendedCacheBuilder<V> newCacheBuilder( Class<V> valueType )
     {
-        return new ExtendedCacheBuilder<V>( redisTemplate, configurationProvider );
+        return new ExtendedCacheBuilder<V>( redisTemplate, configurationProvider, invalidationBus );
     }
 
     @Override
     public  <K,V> ExtendedCacheBuilder<Map<K,V>> newCacheBuilder( Class<K> keyType, Class<V> valueType )
     {
-        return new ExtendedCacheBuilder<Map<K,V>>( redisTemplate, configurationProvider );
+        return new ExtendedCacheBuilder<Map<K,V>>( redisTemplate, configurationProvider, invalidationBus );
     }
 
     @Autowired
@@ -71,4 +73,14 @@ public class DefaultCacheProvider implements CacheProvider
         this.redisTemplate = redisTemplate;
     }
 
+    /**
+     * Sets the bus used to keep in-memory caches coherent across the nodes of
+     * a cluster. Available when cache invalidation is enabled.
+     */
+    @Autowired( required = false )
+    public void setCacheInvalidationBus( CacheInvalidationBus invalidationBus )
+    {
+        this.invalidationBus = invalidationBus;
+    }
+
 }
\ No newline at end of file
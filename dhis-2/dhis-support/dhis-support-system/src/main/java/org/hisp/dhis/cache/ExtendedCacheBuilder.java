@@ -48,13 +48,22 @@ public class ExtendedCacheBuilder<V> extends SimpleCacheBuilder<V>
 
     private RedisTemplate<String, ?> redisTemplate;
 
+    private CacheInvalidationBus invalidationBus;
+
     private boolean forceInMemory;
     
     public ExtendedCacheBuilder( RedisTemplate<String, ?> redisTemplate, DhisConfigurationProvider configurationProvider )
+    {
+        this( redisTemplate, configurationProvider, null );
+    }
+
+    public ExtendedCacheBuilder( RedisTemplate<String, ?> redisTemplate, DhisConfigurationProvider configurationProvider,
+        CacheInvalidationBus invalidationBus )
     {
         super();
         this.configurationProvider = configurationProvider;
         this.redisTemplate = redisTemplate;
+        this.invalidationBus = invalidationBus;
         this.forceInMemory = false;
     }
 
@@ -97,19 +106,19 @@ public class ExtendedCacheBuilder<V> extends SimpleCacheBuilder<V>
             log.info( String.format( "NoOp Cache instance created for region:'%s'", getRegion() ) );
             return new NoOpCache<V>( this );
         }
-        else if ( forceInMemory )
-        {
-            log.info( String.format( "Local Cache (forced) instance created for region:'%s'", getRegion() ) );
-            return new LocalCache<V>( this );
-        }
-        else if ( configurationProvider.getProperty( ConfigurationKey.REDIS_ENABLED ).equalsIgnoreCase( "true" ) )
+        else if ( !forceInMemory && configurationProvider.getProperty( ConfigurationKey.REDIS_ENABLED ).equalsIgnoreCase( "true" ) )
         {
             log.info( String.format( "Redis Cache instance created for region:'%s'", getRegion() ) );
             return new RedisCache<V>( this );
         }
+        else if ( invalidationBus != null )
+        {
+            log.info( String.format( "Near Cache instance created for region:'%s'", getRegion() ) );
+            return new NearCache<V>( this, invalidationBus );
+        }
         else
         {
-            log.info( String.format( "Local Cache instance created for region:'%s'", getRegion() ) );
+            log.info( String.format( "Local Cache%s instance created for region:'%s'", forceInMemory ? " (forced)" : "", getRegion() ) );
             return new LocalCache<V>( this );
         }
     }
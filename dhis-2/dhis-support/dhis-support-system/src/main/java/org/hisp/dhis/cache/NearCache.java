@@ -0,0 +1,82 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+/**
+ * In-process {@link LocalCache} which is kept coherent with the caches of the
+ * same region on other nodes through a {@link CacheInvalidationBus}. Explicit
+ * invalidations are applied locally and published to the other nodes, and
+ * invalidations received from other nodes are applied locally.
+ * <p>
+ * Values added to the cache are not published, as values are loaded from the
+ * shared database and are equally valid on all nodes. Changes to the
+ * underlying data must hence be followed by an invalidation.
+ */
+public class NearCache<V>
+    extends LocalCache<V>
+{
+    private final String region;
+
+    private final CacheInvalidationBus invalidationBus;
+
+    public NearCache( CacheBuilder<V> cacheBuilder, CacheInvalidationBus invalidationBus )
+    {
+        super( cacheBuilder );
+        this.region = cacheBuilder.getRegion();
+        this.invalidationBus = invalidationBus;
+
+        invalidationBus.addListener( invalidation -> {
+            if ( invalidation.isForRegion( region ) )
+            {
+                if ( invalidation.isInvalidateAll() )
+                {
+                    super.invalidateAll();
+                }
+                else
+                {
+                    super.invalidate( invalidation.getKey() );
+                }
+            }
+        } );
+    }
+
+    @Override
+    public void invalidate( String key )
+    {
+        super.invalidate( key );
+        invalidationBus.publish( region, key );
+    }
+
+    @Override
+    public void invalidateAll()
+    {
+        super.invalidateAll();
+        invalidationBus.publish( region, null );
+    }
+}
@@ -0,0 +1,205 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.hisp.dhis.condition.PostgresCacheInvalidationCondition;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link CacheInvalidationBus} which uses PostgreSQL LISTEN/NOTIFY and hence
+ * works for all nodes connected to the same database.
+ * <p>
+ * Invalidations are published through the current transaction, if any, which
+ * means that they are delivered to other nodes when the transaction commits,
+ * and not delivered at all if it rolls back. Invalidations are received on a
+ * dedicated connection. If that connection is lost, all near caches are
+ * invalidated after reconnecting, as invalidations may have been missed.
+ */
+@Slf4j
+@Component
+@Conditional( PostgresCacheInvalidationCondition.class )
+public class PostgresCacheInvalidationBus
+    extends AbstractCacheInvalidationBus
+{
+    private static final String CHANNEL = "dhis2_cache_invalidation";
+
+    private static final String SEPARATOR = "|";
+
+    private static final int POLL_TIMEOUT_MILLIS = 5000;
+
+    private static final long RECONNECT_DELAY_MILLIS = 10000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DhisConfigurationProvider config;
+
+    private volatile boolean running;
+
+    private Thread listenerThread;
+
+    public PostgresCacheInvalidationBus( JdbcTemplate jdbcTemplate, DhisConfigurationProvider config )
+    {
+        checkNotNull( jdbcTemplate );
+        checkNotNull( config );
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.config = config;
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        running = true;
+
+        listenerThread = new Thread( this::listen, "cache-invalidation-listener" );
+        listenerThread.setDaemon( true );
+        listenerThread.start();
+
+        log.info( String.format( "Cache invalidation bus started on channel: '%s', node: '%s'", CHANNEL, getNodeId() ) );
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        running = false;
+
+        if ( listenerThread != null )
+        {
+            listenerThread.interrupt();
+        }
+    }
+
+    @Override
+    protected void send( CacheInvalidation invalidation )
+    {
+        jdbcTemplate.queryForRowSet( "select pg_notify(?, ?)", CHANNEL, encode( invalidation ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void listen()
+    {
+        boolean reconnect = false;
+
+        while ( running )
+        {
+            try ( Connection connection = DriverManager.getConnection(
+                config.getProperty( ConfigurationKey.CONNECTION_URL ),
+                config.getProperty( ConfigurationKey.CONNECTION_USERNAME ),
+                config.getProperty( ConfigurationKey.CONNECTION_PASSWORD ) ) )
+            {
+                try ( Statement statement = connection.createStatement() )
+                {
+                    statement.execute( "listen " + CHANNEL );
+                }
+
+                if ( reconnect )
+                {
+                    log.info( "Cache invalidation bus reconnected, invalidating all near caches" );
+
+                    receiveInvalidateAll();
+                }
+
+                PGConnection pgConnection = connection.unwrap( PGConnection.class );
+
+                while ( running )
+                {
+                    PGNotification[] notifications = pgConnection.getNotifications( POLL_TIMEOUT_MILLIS );
+
+                    if ( notifications != null )
+                    {
+                        for ( PGNotification notification : notifications )
+                        {
+                            receive( decode( notification.getParameter() ) );
+                        }
+                    }
+                }
+            }
+            catch ( SQLException | RuntimeException ex )
+            {
+                if ( running )
+                {
+                    log.warn( "Cache invalidation bus connection failed, reconnecting", ex );
+
+                    reconnect = true;
+
+                    sleep();
+                }
+            }
+        }
+    }
+
+    private void sleep()
+    {
+        try
+        {
+            Thread.sleep( RECONNECT_DELAY_MILLIS );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static String encode( CacheInvalidation invalidation )
+    {
+        String payload = invalidation.getNodeId() + SEPARATOR + invalidation.getRegion();
+
+        return invalidation.isInvalidateAll() ? payload : payload + SEPARATOR + invalidation.getKey();
+    }
+
+    private static CacheInvalidation decode( String payload )
+    {
+        String[] parts = payload.split( Pattern.quote( SEPARATOR ), 3 );
+
+        return new CacheInvalidation( parts[0], parts[1], parts.length == 3 ? parts[2] : null );
+    }
+}
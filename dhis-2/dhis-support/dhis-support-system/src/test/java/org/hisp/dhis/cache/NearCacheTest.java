@@ -0,0 +1,162 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Simulates two nodes of a cluster, each with its own bus and near caches,
+ * connected through an in-memory transport.
+ */
+public class NearCacheTest
+{
+    private List<TestBus> network;
+
+    private TestBus busA;
+
+    private TestBus busB;
+
+    @Before
+    public void setUp()
+    {
+        network = new CopyOnWriteArrayList<>();
+        busA = new TestBus( network );
+        busB = new TestBus( network );
+    }
+
+    @Test
+    public void testInvalidatePropagatesToOtherNode()
+    {
+        Cache<String> cacheA = newCache( "settings", busA );
+        Cache<String> cacheB = newCache( "settings", busB );
+
+        cacheA.put( "keyA", "valueA" );
+        cacheB.put( "keyA", "valueA" );
+        cacheB.put( "keyB", "valueB" );
+
+        cacheA.invalidate( "keyA" );
+
+        assertFalse( cacheA.getIfPresent( "keyA" ).isPresent() );
+        assertFalse( cacheB.getIfPresent( "keyA" ).isPresent() );
+        assertTrue( cacheB.getIfPresent( "keyB" ).isPresent() );
+        assertEquals( 1, busA.sent );
+        assertEquals( 0, busB.sent );
+    }
+
+    @Test
+    public void testInvalidateAllPropagatesToOtherNode()
+    {
+        Cache<String> cacheA = newCache( "settings", busA );
+        Cache<String> cacheB = newCache( "settings", busB );
+
+        cacheB.put( "keyA", "valueA" );
+        cacheB.put( "keyB", "valueB" );
+
+        cacheA.invalidateAll();
+
+        assertTrue( cacheB.getAll().isEmpty() );
+    }
+
+    @Test
+    public void testPutDoesNotPropagate()
+    {
+        Cache<String> cacheA = newCache( "settings", busA );
+        Cache<String> cacheB = newCache( "settings", busB );
+
+        cacheB.put( "keyA", "valueA" );
+        cacheA.put( "keyA", "valueB" );
+        cacheA.get( "keyC", key -> "valueC" );
+
+        assertEquals( "valueA", cacheB.getIfPresent( "keyA" ).get() );
+        assertEquals( 0, busA.sent );
+    }
+
+    @Test
+    public void testInvalidateOtherRegionUnaffected()
+    {
+        Cache<String> cacheA = newCache( "settings", busA );
+        Cache<String> cacheB = newCache( "periods", busB );
+
+        cacheB.put( "keyA", "valueA" );
+
+        cacheA.invalidate( "keyA" );
+        cacheA.invalidateAll();
+
+        assertTrue( cacheB.getIfPresent( "keyA" ).isPresent() );
+    }
+
+    @Test
+    public void testReceiveInvalidateAllRegions()
+    {
+        Cache<String> cacheA = newCache( "settings", busB );
+        Cache<String> cacheB = newCache( "periods", busB );
+
+        cacheA.put( "keyA", "valueA" );
+        cacheB.put( "keyB", "valueB" );
+
+        busB.receiveInvalidateAll();
+
+        assertTrue( cacheA.getAll().isEmpty() );
+        assertTrue( cacheB.getAll().isEmpty() );
+    }
+
+    private static Cache<String> newCache( String region, CacheInvalidationBus bus )
+    {
+        return new NearCache<>( new SimpleCacheBuilder<String>().forRegion( region ).withMaximumSize( 100 ), bus );
+    }
+
+    private static class TestBus
+        extends AbstractCacheInvalidationBus
+    {
+        private final List<TestBus> network;
+
+        private int sent = 0;
+
+        TestBus( List<TestBus> network )
+        {
+            this.network = network;
+            network.add( this );
+        }
+
+        @Override
+        protected void send( CacheInvalidation invalidation )
+        {
+            sent++;
+            network.forEach( bus -> bus.receive( invalidation ) );
+        }
+    }
+}
@@ -34,6 +34,7 @@ import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserAuthorityGroup;
 import org.hisp.dhis.user.UserCredentials;
 import org.hisp.dhis.user.UserInfo;
+import org.hisp.dhis.user.UserSecurityContext;
 
 import java.util.Arrays;
 import java.util.HashSet;
@@ -103,6 +104,18 @@ public class MockCurrentUserService
             currentUser.getUsername(), currentUser.getUserCredentials().getAllAuthorities() );
     }
 
+    @Override
+    public UserSecurityContext getCurrentUserSecurityContext()
+    {
+        return UserSecurityContext.fromUser( currentUser );
+    }
+
+    @Override
+    public UserSecurityContext getUserSecurityContext( User user )
+    {
+        return UserSecurityContext.fromUser( user );
+    }
+
     @Override
     public Set<OrganisationUnit> getCurrentUserOrganisationUnits()
     {
@@ -132,4 +145,19 @@ public class MockCurrentUserService
     {
         currentUser = null;
     }
+
+    @Override
+    public void invalidateUserIdCache( String username )
+    {
+    }
+
+    @Override
+    public void invalidateUserSecurityContext( String username )
+    {
+    }
+
+    @Override
+    public void invalidateUserSecurityContexts()
+    {
+    }
 }
@@ -32,6 +32,7 @@ import org.hisp.dhis.dxf2.metadata.MetadataExportService;
 import org.hisp.dhis.node.types.RootNode;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.UserSettingService;
+import org.hisp.dhis.webapi.controller.exception.BadRequestException;
 import org.hisp.dhis.webapi.service.ContextService;
 import org.junit.Assert;
 import org.junit.Rule;
@@ -69,17 +70,36 @@ public class MetadataExportControllerTest
     public MockitoRule rule = MockitoJUnit.rule();
 
     @Test
-    public void withoutDownload()
+    public void withoutDownload() throws Exception
     {
-        ResponseEntity<RootNode> responseEntity = controller.getMetadata( false, null, false );
+        ResponseEntity<RootNode> responseEntity = controller.getMetadata( false, null, false, null );
         Assert.assertNull( responseEntity.getHeaders().get( HttpHeaders.CONTENT_DISPOSITION ) );
     }
 
     @Test
-    public void withDownload()
+    public void withDownload() throws Exception
     {
-        ResponseEntity<RootNode> responseEntity = controller.getMetadata( false, null, true );
+        ResponseEntity<RootNode> responseEntity = controller.getMetadata( false, null, true, null );
         Assert.assertNotNull( responseEntity.getHeaders().get( HttpHeaders.CONTENT_DISPOSITION ) );
         Assert.assertEquals( "attachment; filename=metadata", responseEntity.getHeaders().get( HttpHeaders.CONTENT_DISPOSITION ).get( 0 ) );
     }
-}
\ No newline at end of file
+
+    @Test
+    public void withFetchSize() throws Exception
+    {
+        ResponseEntity<RootNode> responseEntity = controller.getMetadata( false, null, false, "500" );
+        Assert.assertNull( responseEntity.getHeaders().get( HttpHeaders.CONTENT_DISPOSITION ) );
+    }
+
+    @Test( expected = BadRequestException.class )
+    public void withInvalidFetchSize() throws Exception
+    {
+        controller.getMetadata( false, null, false, "abc" );
+    }
+
+    @Test( expected = BadRequestException.class )
+    public void withNegativeFetchSize() throws Exception
+    {
+        controller.getMetadata( false, null, false, "-1" );
+    }
+}
@@ -32,7 +32,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Enums;
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import org.cache2k.Cache;
 import org.cache2k.Cache2kBuilder;
 import org.hisp.dhis.attribute.AttributeService;
@@ -87,6 +90,7 @@ import org.hisp.dhis.query.QueryParserException;
 import org.hisp.dhis.query.QueryService;
 import org.hisp.dhis.render.RenderService;
 import org.hisp.dhis.schema.MergeService;
+import org.hisp.dhis.schema.MetadataRevisionService;
 import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
@@ -94,6 +98,7 @@ import org.hisp.dhis.security.acl.AclService;
 import org.hisp.dhis.translation.Translation;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserSecurityContext;
 import org.hisp.dhis.user.UserSettingKey;
 import org.hisp.dhis.user.UserSettingService;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
@@ -107,8 +112,11 @@ import org.hisp.dhis.webapi.webdomain.WebOptions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -116,19 +124,25 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -140,6 +154,12 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
 
     protected static final String DEFAULTS = "INCLUDE";
 
+    /**
+     * Number of objects read and rendered at a time when listing without
+     * paging.
+     */
+    private static final int STREAM_CHUNK_SIZE = 1000;
+
     private Cache<String, Integer> paginationCountCache = new Cache2kBuilder<String, Integer>()
     {
     }
@@ -192,6 +212,9 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
     @Autowired
     protected UserSettingService userSettingService;
 
+    @Autowired
+    protected MetadataRevisionService metadataRevisionService;
+
     @Autowired
     protected CollectionService collectionService;
 
@@ -218,7 +241,7 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
     @RequestMapping( method = RequestMethod.GET )
     public @ResponseBody RootNode getObjectList(
         @RequestParam Map<String, String> rpParameters, OrderParams orderParams,
-        HttpServletResponse response, User currentUser ) throws QueryParserException
+        HttpServletRequest request, HttpServletResponse response, User currentUser ) throws QueryParserException
     {
         List<String> fields = Lists.newArrayList( contextService.getParameterValues( "fields" ) );
         List<String> filters = Lists.newArrayList( contextService.getParameterValues( "filter" ) );
@@ -237,11 +260,31 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
             throw new ReadAccessDeniedException( "You don't have the proper permissions to read objects of this type." );
         }
 
+        response.setHeader( ContextUtils.HEADER_CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue() );
+
+        if ( isNotModified( request, response, options, fields, filters ) )
+        {
+            return null;
+        }
+
+        if ( isStreamable( options ) )
+        {
+            return getStreamedObjectList( rpParameters, options, fields, filters, orders );
+        }
+
         List<T> entities = getEntityList( metadata, options, filters, orders );
 
         Pager pager = metadata.getPager();
+        Node cursorPager = null;
 
-        if ( options.hasPaging() && pager == null )
+        if ( metadata.isCursorPaging() )
+        {
+            Long total = options.isTotalPages() ? Long.valueOf( paginationCountCache.computeIfAbsent(
+                calculatePaginationCountKey( currentUser, filters, options ), () -> count( options, filters, orders ) ) ) : null;
+
+            cursorPager = NodeUtils.createCursorPager( options.getPageSize(), metadata.getNextPageToken(), total );
+        }
+        else if ( options.hasPaging() && pager == null )
         {
             long count;
             if ( options.getOptions().containsKey( "query" ) )
@@ -272,12 +315,14 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
         {
             rootNode.addChild( NodeUtils.createPager( pager ) );
         }
+        else if ( cursorPager != null )
+        {
+            rootNode.addChild( cursorPager );
+        }
 
         rootNode.addChild( fieldFilterService.toCollectionNode( getEntityClass(),
             new FieldFilterParams( entities, fields, Defaults.valueOf( options.get( "defaults", DEFAULTS ) ) ) ) );
 
-        response.setHeader( ContextUtils.HEADER_CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue() );
-
         return rootNode;
     }
 
@@ -304,6 +349,11 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
 
         response.setHeader( ContextUtils.HEADER_CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue() );
 
+        if ( isNotModified( request, response, new WebOptions( rpParameters ), fields, filters ) )
+        {
+            return null;
+        }
+
         return getObjectInternal( pvUid, rpParameters, filters, fields, user );
     }
 
@@ -1169,7 +1219,9 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
         throws QueryParserException
     {
         List<T> entityList;
-        Query query = queryService.getQueryFromUrl( getEntityClass(), filters, orders, getPaginationData( options ), options.getRootJunction(),
+        boolean cursorPaging = options.hasCursorPaging() && !options.getOptions().containsKey( "query" );
+        Pagination pagination = cursorPaging ? PaginationUtils.getCursorPaginationData( options ) : getPaginationData( options );
+        Query query = queryService.getQueryFromUrl( getEntityClass(), filters, orders, pagination, options.getRootJunction(),
             options.isTrue( "restrictToCaptureScope" ) );
         query.setDefaultOrder();
         query.setDefaults( Defaults.valueOf( options.get( "defaults", DEFAULTS ) ) );
@@ -1183,9 +1235,80 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
             entityList = (List<T>) queryService.query( query );
         }
 
+        if ( cursorPaging )
+        {
+            metadata.setCursorPaging( true );
+            metadata.setNextPageToken( queryService.getNextPageToken( query ) );
+        }
+
         return entityList;
     }
 
+    /**
+     * Indicates whether the list for the given options can be streamed, which
+     * is the case when not paging and the list is read by the query service
+     * rather than by a controller specific {@link #getEntityList}.
+     */
+    private boolean isStreamable( WebOptions options )
+    {
+        if ( options.hasPaging() || options.getOptions().containsKey( "query" ) )
+        {
+            return false;
+        }
+
+        Method method = ReflectionUtils.findMethod( ClassUtils.getUserClass( getClass() ), "getEntityList",
+            WebMetadata.class, WebOptions.class, List.class, List.class );
+
+        return method != null && method.getDeclaringClass() == AbstractCrudController.class;
+    }
+
+    /**
+     * Lists all objects matching the given filters without paging. Objects
+     * are read, post processed and rendered in chunks, and the query service
+     * evicts the objects of a chunk from the session before reading the next,
+     * so that memory use for objects is bounded by the chunk size.
+     */
+    @SuppressWarnings( "unchecked" )
+    private RootNode getStreamedObjectList( Map<String, String> rpParameters, WebOptions options, List<String> fields,
+        List<String> filters, List<Order> orders )
+        throws QueryParserException
+    {
+        Query query = queryService.getQueryFromUrl( getEntityClass(), filters, orders, getPaginationData( options ),
+            options.getRootJunction(), options.isTrue( "restrictToCaptureScope" ) );
+        Defaults defaults = Defaults.valueOf( options.get( "defaults", DEFAULTS ) );
+
+        query.setDefaultOrder();
+        query.setDefaults( defaults );
+
+        CollectionNode collectionNode = fieldFilterService.toCollectionNode( getEntityClass(),
+            new FieldFilterParams( new ArrayList<>(), fields, defaults ) );
+
+        try ( Stream<T> stream = (Stream<T>) queryService.stream( query, STREAM_CHUNK_SIZE ) )
+        {
+            Iterator<List<T>> chunks = Iterators.partition( stream.iterator(), STREAM_CHUNK_SIZE );
+
+            while ( chunks.hasNext() )
+            {
+                List<T> entities = chunks.next();
+
+                postProcessResponseEntities( entities, options, rpParameters );
+
+                handleLinksAndAccess( entities, fields, false );
+
+                handleAttributeValues( entities, fields );
+
+                collectionNode.addChildren( fieldFilterService.toCollectionNode( getEntityClass(),
+                    new FieldFilterParams( entities, fields, defaults ) ).getUnorderedChildren() );
+            }
+        }
+
+        RootNode rootNode = NodeUtils.createMetadata();
+        rootNode.getConfig().setInclusionStrategy( getInclusionStrategy( rpParameters.get( "inclusionStrategy" ) ) );
+        rootNode.addChild( collectionNode );
+
+        return rootNode;
+    }
+
     private int count( WebOptions options, List<String> filters, List<Order> orders )
     {
         Query query = queryService.getQueryFromUrl( getEntityClass(), filters, orders, new Pagination(),
@@ -1225,6 +1348,87 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
         return schemaService.getDynamicSchema( klass );
     }
 
+    /**
+     * Indicates whether responses for the given options are derived from the
+     * metadata of this type as seen by the current user only, so that weak
+     * entity tags can be based on metadata revisions. Controllers which
+     * include other state in responses, such as data, counts, or periods
+     * relative to the current date, should override this method.
+     *
+     * @param options the web options.
+     * @return true if metadata entity tags are enabled.
+     */
+    protected boolean isMetadataEtagEnabled( WebOptions options )
+    {
+        return getSchema() != null && getSchema().isMetadata() && metadataRevisionService.isEnabled();
+    }
+
+    /**
+     * Sets a weak entity tag on the response if enabled, and checks it against
+     * the If-None-Match header of the request. The tag is derived from the
+     * metadata revision of this type, the sharing related state of the current
+     * user and the request, hence the check only looks up the revision.
+     * Referenced types are included in the revision unless only simple
+     * properties are requested and filtered on.
+     *
+     * @return true if the response has been set to not modified.
+     */
+    private boolean isNotModified( HttpServletRequest request, HttpServletResponse response, WebOptions options,
+        List<String> fields, List<String> filters )
+    {
+        if ( !isMetadataEtagEnabled( options ) )
+        {
+            return false;
+        }
+
+        boolean includeReferences = !isSimpleFields( fields ) ||
+            filters.stream().anyMatch( filter -> filter.split( ":", 2 )[0].contains( "." ) );
+
+        long revision = metadataRevisionService.getRevision( getEntityClass(), includeReferences );
+
+        UserSecurityContext context = currentUserService.getCurrentUserSecurityContext();
+
+        Hasher hasher = Hashing.md5().newHasher()
+            .putLong( revision )
+            .putString( request.getRequestURL(), StandardCharsets.UTF_8 )
+            .putString( String.valueOf( request.getQueryString() ), StandardCharsets.UTF_8 )
+            .putString( String.valueOf( request.getHeader( HttpHeaders.ACCEPT ) ), StandardCharsets.UTF_8 )
+            .putString( String.valueOf( userSettingService.getUserSetting( UserSettingKey.DB_LOCALE ) ), StandardCharsets.UTF_8 );
+
+        if ( context != null )
+        {
+            hasher.putString( context.getUsername(), StandardCharsets.UTF_8 )
+                .putString( String.valueOf( new TreeSet<>( context.getAuthorities() ) ), StandardCharsets.UTF_8 )
+                .putString( String.valueOf( new TreeSet<>( context.getUserGroupUids() ) ), StandardCharsets.UTF_8 )
+                .putString( String.valueOf( new TreeSet<>( context.getOrganisationUnitPaths() ) ), StandardCharsets.UTF_8 )
+                .putString( String.valueOf( new TreeSet<>( context.getDataViewOrganisationUnitPaths() ) ), StandardCharsets.UTF_8 )
+                .putString( String.valueOf( new TreeSet<>( context.getTeiSearchOrganisationUnitPaths() ) ), StandardCharsets.UTF_8 );
+        }
+
+        return new ServletWebRequest( request, response ).checkNotModified( "W/\"" + hasher.hash() + "\"" );
+    }
+
+    /**
+     * Indicates whether the given fields are all simple properties of this type.
+     */
+    private boolean isSimpleFields( List<String> fields )
+    {
+        for ( String field : fields )
+        {
+            for ( String name : field.split( "," ) )
+            {
+                Property property = getSchema().getProperty( name.trim() );
+
+                if ( property == null || !property.isSimple() )
+                {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
     private boolean fieldsContains( String match, List<String> fields )
     {
         for ( String field : fields )
@@ -42,8 +42,10 @@ import org.hisp.dhis.dxf2.webmessage.WebMessageException;
 import org.hisp.dhis.dxf2.webmessage.WebMessageUtils;
 import org.hisp.dhis.i18n.I18nFormat;
 import org.hisp.dhis.i18n.I18nManager;
+import org.hisp.dhis.i18n.locale.LocaleManager;
 import org.hisp.dhis.indicator.Indicator;
 import org.hisp.dhis.indicator.IndicatorService;
+import org.hisp.dhis.legend.LegendSet;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.Period;
@@ -51,6 +53,8 @@ import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.schema.descriptors.ChartSchemaDescriptor;
 import org.hisp.dhis.system.util.CodecUtils;
 import org.hisp.dhis.visualization.Axis;
+import org.hisp.dhis.visualization.CachedImage;
+import org.hisp.dhis.visualization.RenderedImageCache;
 import org.hisp.dhis.visualization.Visualization;
 import org.hisp.dhis.visualization.VisualizationService;
 import org.hisp.dhis.webapi.utils.ContextUtils;
@@ -58,15 +62,19 @@ import org.hisp.dhis.webapi.webdomain.WebOptions;
 import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -116,6 +124,12 @@ public class ChartController
     @Autowired
     private ContextUtils contextUtils;
 
+    @Autowired
+    private LocaleManager localeManager;
+
+    @Autowired
+    private RenderedImageCache imageCache;
+
     //--------------------------------------------------------------------------
     // CRUD
     //--------------------------------------------------------------------------
@@ -141,7 +155,7 @@ public class ChartController
         @RequestParam( value = "width", defaultValue = "800", required = false ) int width,
         @RequestParam( value = "height", defaultValue = "500", required = false ) int height,
         @RequestParam( value = "attachment", required = false ) boolean attachment,
-        HttpServletResponse response ) throws IOException, WebMessageException
+        HttpServletRequest request, HttpServletResponse response ) throws IOException, WebMessageException
     {
         final Visualization visualization = visualizationService.getVisualizationNoAcl( uid );
         final Chart chart = convertToChart( visualization );
@@ -153,13 +167,36 @@ public class ChartController
 
         OrganisationUnit unit = ou != null ? organisationUnitService.getOrganisationUnit( ou ) : null;
 
-        JFreeChart jFreeChart = chartService.getJFreeChart( chart, date, unit, i18nManager.getI18nFormat() );
+        // Relative periods are based on the current date if no date is given
+
+        LegendSet legendSet = visualization.getLegendSet();
+
+        String key = RenderedImageCache.getKey( "chart", uid, visualization.getLastUpdated(),
+            legendSet != null ? legendSet.getLastUpdated() : null,
+            RenderedImageCache.getReferencedLastUpdated( visualization ), date != null ? date : LocalDate.now(), ou,
+            width, height, localeManager.getCurrentLocale(),
+            RenderedImageCache.getUserKey( currentUserService.getCurrentUser() ) );
+
+        CachedImage image = imageCache.get( key, () -> {
+            JFreeChart jFreeChart = chartService.getJFreeChart( chart, date, unit, i18nManager.getI18nFormat() );
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ChartUtils.writeChartAsPNG( out, jFreeChart, width, height );
+            return out.toByteArray();
+        } );
 
         String filename = CodecUtils.filenameEncode( chart.getName() ) + ".png";
 
         contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_PNG, CacheStrategy.RESPECT_SYSTEM_SETTING, filename, attachment );
 
-        ChartUtils.writeChartAsPNG( response.getOutputStream(), jFreeChart, width, height );
+        response.setHeader( HttpHeaders.ETAG, image.getEtag() );
+
+        if ( new ServletWebRequest( request, response ).checkNotModified( image.getEtag() ) )
+        {
+            return;
+        }
+
+        response.getOutputStream().write( image.getContent() );
     }
 
     @RequestMapping( value = { "/data", "/data.png" }, method = RequestMethod.GET )
@@ -111,6 +111,14 @@ public class DashboardController
         return MetadataExportControllerUtils.getWithDependencies( contextService, exportService, dashboard, download );
     }
 
+    @Override
+    protected boolean isMetadataEtagEnabled( WebOptions options )
+    {
+        // Items include interpretation and like counts
+
+        return false;
+    }
+
     /**
      * Logic required to keep the backward compatibility with Chart and ReporTable.
      * Otherwise it would always return VISUALIZATION type for any Chart or ReportTable.
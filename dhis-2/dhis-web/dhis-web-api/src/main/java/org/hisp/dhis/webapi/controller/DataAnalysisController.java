@@ -40,7 +40,10 @@ import org.hisp.dhis.dataanalysis.DataAnalysisParams;
 import org.hisp.dhis.dataanalysis.DataAnalysisService;
 import org.hisp.dhis.dataanalysis.FollowupAnalysisService;
 import org.hisp.dhis.dataanalysis.FollowupParams;
+import org.hisp.dhis.dataanalysis.InterquartileRangeOutlierAnalysisService;
+import org.hisp.dhis.dataanalysis.MedianAbsoluteDeviationOutlierAnalysisService;
 import org.hisp.dhis.dataanalysis.MinMaxOutlierAnalysisService;
+import org.hisp.dhis.dataanalysis.RobustOutlierAnalysisService;
 import org.hisp.dhis.dataanalysis.StdDevOutlierAnalysisService;
 import org.hisp.dhis.dataanalysis.UpdateFollowUpForDataValuesRequest;
 import org.hisp.dhis.dataanalysis.ValidationRuleExpressionDetails;
@@ -154,6 +157,12 @@ public class DataAnalysisController
     @Autowired
     private MinMaxOutlierAnalysisService minMaxOutlierAnalysisService;
 
+    @Autowired
+    private MedianAbsoluteDeviationOutlierAnalysisService medianAbsoluteDeviationOutlierAnalysisService;
+
+    @Autowired
+    private InterquartileRangeOutlierAnalysisService interquartileRangeOutlierAnalysisService;
+
     @Autowired
     private FollowupAnalysisService followupAnalysisService;
 
@@ -285,6 +294,34 @@ public class DataAnalysisController
         return deflatedValuesListToResponse( dataValues );
     }
 
+    /**
+     * Outlier analysis by the median absolute deviation. The standard deviation
+     * of the params is the factor of the scaled median absolute deviation.
+     */
+    @RequestMapping( value = "/madOutlier", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE )
+    @ResponseStatus( HttpStatus.OK )
+    public @ResponseBody
+    List<DeflatedDataValue> performMedianAbsoluteDeviationOutlierAnalysis(
+        @RequestBody DataAnalysisParams params, HttpSession session )
+        throws WebMessageException
+    {
+        return performRobustOutlierAnalysis( medianAbsoluteDeviationOutlierAnalysisService, params, session );
+    }
+
+    /**
+     * Outlier analysis by the interquartile range. The standard deviation of
+     * the params is the factor of the interquartile range.
+     */
+    @RequestMapping( value = "/iqrOutlier", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE )
+    @ResponseStatus( HttpStatus.OK )
+    public @ResponseBody
+    List<DeflatedDataValue> performInterquartileRangeOutlierAnalysis(
+        @RequestBody DataAnalysisParams params, HttpSession session )
+        throws WebMessageException
+    {
+        return performRobustOutlierAnalysis( interquartileRangeOutlierAnalysisService, params, session );
+    }
+
     @RequestMapping( value = "/minMaxOutlier", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE )
     @ResponseStatus( HttpStatus.OK )
     public @ResponseBody
@@ -507,6 +544,43 @@ public class DataAnalysisController
         GridUtils.toCsv( grid, response.getWriter() );
     }
 
+    private List<DeflatedDataValue> performRobustOutlierAnalysis( RobustOutlierAnalysisService analysisService,
+        DataAnalysisParams params, HttpSession session )
+        throws WebMessageException
+    {
+        I18nFormat format = i18nManager.getI18nFormat();
+
+        OrganisationUnit organisationUnit = organisationUnitService.getOrganisationUnit( params.getOu() );
+        if ( organisationUnit == null )
+        {
+            throw new WebMessageException( WebMessageUtils.badRequest( "No organisation unit defined" ) );
+        }
+
+        Collection<Period> periods = periodService
+            .getPeriodsBetweenDates( format.parseDate( params.getStartDate() ),
+                format.parseDate( params.getEndDate() ) );
+
+        Set<DataElement> dataElements = new HashSet<>();
+
+        if ( params.getDs() != null )
+        {
+            for ( String uid : params.getDs() )
+            {
+                dataElements.addAll( dataSetService.getDataSet( uid ).getDataElements() );
+            }
+        }
+
+        Date from = new DateTime( format.parseDate( params.getStartDate() ) ).minusYears( 2 ).toDate();
+
+        List<DeflatedDataValue> dataValues = new ArrayList<>( analysisService
+            .analyse( Sets.newHashSet( organisationUnit ), dataElements, periods, params.getStandardDeviation(), from ) );
+
+        session.setAttribute( KEY_ANALYSIS_DATA_VALUES, dataValues );
+        session.setAttribute( KEY_ORG_UNIT, organisationUnit );
+
+        return deflatedValuesListToResponse( dataValues );
+    }
+
     private void processLeftSideDetails( ValidationRuleExpressionDetails validationRuleExpressionDetails,
         ValidationRule validationRule, OrganisationUnit organisationUnit, Period period )
     {
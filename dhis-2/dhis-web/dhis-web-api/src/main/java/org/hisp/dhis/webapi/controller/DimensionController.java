@@ -97,6 +97,14 @@ public class DimensionController
     // Controller
     // -------------------------------------------------------------------------
 
+    @Override
+    protected boolean isMetadataEtagEnabled( WebOptions options )
+    {
+        // Dimensions are composed of objects of many types
+
+        return false;
+    }
+
     @Override
     @SuppressWarnings( "unchecked" )
     protected @ResponseBody List<DimensionalObject> getEntityList( WebMetadata metadata, WebOptions options, List<String> filters, List<Order> orders )
@@ -36,17 +36,16 @@ import org.hisp.dhis.document.DocumentService;
 import org.hisp.dhis.dxf2.webmessage.WebMessageException;
 import org.hisp.dhis.dxf2.webmessage.WebMessageUtils;
 import org.hisp.dhis.external.location.LocationManager;
-import org.hisp.dhis.fileresource.FileResource;
-import org.hisp.dhis.fileresource.FileResourceService;
 import org.hisp.dhis.schema.descriptors.DocumentSchemaDescriptor;
 import org.hisp.dhis.webapi.utils.ContextUtils;
+import org.hisp.dhis.webapi.utils.FileResourceUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
@@ -69,13 +68,13 @@ public class DocumentController
     private LocationManager locationManager;
 
     @Autowired
-    private FileResourceService fileResourceService;
+    private FileResourceUtils fileResourceUtils;
 
     @Autowired
     private ContextUtils contextUtils;
 
     @RequestMapping( value = "/{uid}/data", method = RequestMethod.GET )
-    public void getDocumentContent( @PathVariable( "uid" ) String uid, HttpServletResponse response )
+    public void getDocumentContent( @PathVariable( "uid" ) String uid, HttpServletRequest request, HttpServletResponse response )
         throws Exception
     {
         Document document = documentService.getDocument( uid );
@@ -91,21 +90,7 @@ public class DocumentController
         }
         else if ( document.getFileResource() != null )
         {
-            FileResource fileResource = document.getFileResource();
-
-            response.setContentType( fileResource.getContentType() );
-            response.setContentLength( new Long( fileResource.getContentLength() ).intValue() );
-            response.setHeader( HttpHeaders.CONTENT_DISPOSITION, "filename=" + fileResource.getName() );
-
-            try
-            {
-                fileResourceService.copyFileResourceContent( fileResource, response.getOutputStream() );
-            }
-            catch ( IOException e )
-            {
-                throw new WebMessageException( WebMessageUtils.error( "Failed fetching the file from storage",
-                    "There was an exception when trying to fetch the file from the storage backend, could be network or filesystem related" ) );
-            }
+            fileResourceUtils.configureFileResourceResponse( request, response, document.getFileResource() );
         }
         else
         {
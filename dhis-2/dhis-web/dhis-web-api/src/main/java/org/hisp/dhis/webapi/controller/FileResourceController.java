@@ -51,7 +51,6 @@ import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.webapi.utils.FileResourceUtils;
 import org.hisp.dhis.common.DhisApiVersion;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -62,6 +61,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
@@ -90,6 +90,9 @@ public class FileResourceController
     @Autowired
     private FileResourceService fileResourceService;
 
+    @Autowired
+    private FileResourceUtils fileResourceUtils;
+
     // -------------------------------------------------------------------------
     // Controller methods
     // -------------------------------------------------------------------------
@@ -111,7 +114,7 @@ public class FileResourceController
     }
 
     @GetMapping( value = "/{uid}/data" )
-    public void getFileResourceData( @PathVariable String uid, HttpServletResponse response, @RequestParam ( required = false ) ImageFileDimension dimension )
+    public void getFileResourceData( @PathVariable String uid, HttpServletRequest request, HttpServletResponse response, @RequestParam ( required = false ) ImageFileDimension dimension )
         throws WebMessageException
     {
         FileResource fileResource = fileResourceService.getFileResource( uid );
@@ -129,21 +132,7 @@ public class FileResourceController
                 WebMessageUtils.unathorized( "You don't have access to fileResource '" + uid + "' or this fileResource is not available from this endpoint" ) );
         }
 
-        response.setContentType( fileResource.getContentType() );
-        response.setHeader( HttpHeaders.CONTENT_LENGTH, String.valueOf( fileResourceService.getFileResourceContentLength( fileResource ) ) );
-        response.setHeader( HttpHeaders.CONTENT_DISPOSITION, "filename=" + fileResource.getName() );
-
-        try
-        {
-            fileResourceService.copyFileResourceContent( fileResource, response.getOutputStream() );
-        }
-        catch ( IOException e )
-        {
-            log.error( "Could not retrieve file.", e );
-            throw new WebMessageException( WebMessageUtils.error( "Failed fetching the file from storage",
-                "There was an exception when trying to fetch the file from the storage backend. " +
-                    "Depending on the provider the root cause could be network or file system related." ) );
-        }
+        fileResourceUtils.configureFileResourceResponse( request, response, fileResource );
     }
 
     @PostMapping
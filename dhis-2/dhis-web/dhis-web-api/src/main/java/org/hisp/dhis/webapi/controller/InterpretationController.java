@@ -93,6 +93,14 @@ public class InterpretationController extends AbstractCrudController<Interpretat
     @Autowired
     private IdentifiableObjectManager idObjectManager;
     
+    @Override
+    protected boolean isMetadataEtagEnabled( WebOptions options )
+    {
+        // Comments and likes are not tracked as metadata
+
+        return false;
+    }
+
     @Override
     @SuppressWarnings( "unchecked" )
     protected List<Interpretation> getEntityList( WebMetadata metadata, WebOptions options, List<String> filters,
@@ -28,6 +28,8 @@ package org.hisp.dhis.webapi.controller;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.apache.commons.beanutils.BeanUtils;
 import org.hisp.dhis.appmanager.App;
 import org.hisp.dhis.appmanager.AppManager;
@@ -35,6 +37,7 @@ import org.hisp.dhis.common.DhisApiVersion;
 import org.hisp.dhis.dxf2.webmessage.WebMessageException;
 import org.hisp.dhis.dxf2.webmessage.WebMessageUtils;
 import org.hisp.dhis.keyjsonvalue.KeyJsonValue;
+import org.hisp.dhis.keyjsonvalue.KeyJsonValueQuery;
 import org.hisp.dhis.keyjsonvalue.KeyJsonValueService;
 import org.hisp.dhis.render.RenderService;
 import org.hisp.dhis.security.acl.AclService;
@@ -42,6 +45,7 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.webapi.service.WebMessageService;
+import org.hisp.dhis.webapi.utils.ContextUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -55,7 +59,9 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.hisp.dhis.webapi.utils.ContextUtils.setNoStore;
@@ -118,6 +124,77 @@ public class KeyJsonValueController
         return keyJsonValueService.getKeysInNamespace( namespace, lastUpdated, currentUserIsAdmin() );
     }
 
+    /**
+     * Returns a page of entries in the given namespace, ordered by key, when
+     * requested with entries=true. The value of each entry is projected to the
+     * given comma separated property paths, where "." refers to the full value.
+     * Entries can be filtered on properties with filters on the format
+     * "path:operator:value". The next page is requested by passing the
+     * "nextAfter" key of the pager as the "after" parameter.
+     */
+    @RequestMapping( value = "/{namespace}", method = RequestMethod.GET, params = "entries=true", produces = "application/json" )
+    public void getKeyJsonValues( @PathVariable String namespace, @RequestParam( defaultValue = "." ) String fields,
+        @RequestParam( required = false ) List<String> filter, @RequestParam( required = false ) String after,
+        @RequestParam( required = false ) Date lastUpdated,
+        @RequestParam( defaultValue = "" + KeyJsonValueQuery.DEFAULT_PAGE_SIZE ) int pageSize,
+        HttpServletResponse response )
+        throws IOException, WebMessageException
+    {
+        validateAccess( namespace );
+
+        getNameS( namespace );
+
+        KeyJsonValueQuery query = new KeyJsonValueQuery()
+            .setNamespace( namespace )
+            .setFields( KeyJsonValueQuery.parseFields( fields ) )
+            .setAfter( after )
+            .setLastUpdated( lastUpdated )
+            .setPageSize( pageSize );
+
+        if ( filter != null )
+        {
+            query.setFilters( filter.stream().map( KeyJsonValueQuery::parseFilter ).collect( Collectors.toList() ) );
+        }
+
+        // Read the page before writing, so that a failing query results in an
+        // error response rather than truncated JSON, pages are bounded in size
+
+        Map<String, String> entries = new LinkedHashMap<>();
+
+        keyJsonValueService.getKeyJsonValues( query, currentUserIsAdmin(), entries::put );
+
+        String lastKey = null;
+
+        setNoStore( response );
+        response.setContentType( ContextUtils.CONTENT_TYPE_JSON );
+
+        try ( JsonGenerator generator = new JsonFactory().createGenerator( response.getOutputStream() ) )
+        {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart( "entries" );
+
+            for ( Map.Entry<String, String> entry : entries.entrySet() )
+            {
+                generator.writeStartObject();
+                generator.writeStringField( "key", entry.getKey() );
+                generator.writeFieldName( "value" );
+                generator.writeRawValue( entry.getValue() != null ? entry.getValue() : "null" );
+                generator.writeEndObject();
+
+                lastKey = entry.getKey();
+            }
+
+            generator.writeEndArray();
+
+            generator.writeObjectFieldStart( "pager" );
+            generator.writeNumberField( "pageSize", query.getPageSize() );
+            generator.writeStringField( "nextAfter", entries.size() == query.getPageSize() ? lastKey : null );
+            generator.writeEndObject();
+
+            generator.writeEndObject();
+        }
+    }
+
     /**
      * Deletes all keys with the given namespace.
      */
@@ -120,6 +120,14 @@ public class MessageConversationController
     @Autowired
     private FileResourceService fileResourceService;
 
+    @Override
+    protected boolean isMetadataEtagEnabled( WebOptions options )
+    {
+        // Read and follow up state changes without metadata changes
+
+        return false;
+    }
+
     @Override
     protected void postProcessResponseEntity( org.hisp.dhis.message.MessageConversation entity, WebOptions options, Map<String, String> parameters )
         throws Exception
@@ -70,6 +70,14 @@ public class VisualizationController
         this.i18nManager = i18nManager;
     }
 
+    @Override
+    protected boolean isMetadataEtagEnabled( WebOptions options )
+    {
+        // Relative periods are resolved against the current date
+
+        return false;
+    }
+
     @Override
     protected Visualization deserializeJsonEntity( final HttpServletRequest request,
         final HttpServletResponse response )
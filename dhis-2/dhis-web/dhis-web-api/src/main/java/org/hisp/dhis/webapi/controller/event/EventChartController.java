@@ -93,6 +93,14 @@ public class EventChartController
     // CRUD
     //--------------------------------------------------------------------------
 
+    @Override
+    protected boolean isMetadataEtagEnabled( WebOptions options )
+    {
+        // Relative periods are resolved against the current date
+
+        return false;
+    }
+
     @Override
     protected EventChart deserializeJsonEntity( HttpServletRequest request, HttpServletResponse response ) throws IOException
     {
@@ -67,6 +67,14 @@ public class EventReportController
     // CRUD
     //--------------------------------------------------------------------------
 
+    @Override
+    protected boolean isMetadataEtagEnabled( WebOptions options )
+    {
+        // Relative periods are resolved against the current date
+
+        return false;
+    }
+
     @Override
     protected EventReport deserializeJsonEntity( HttpServletRequest request, HttpServletResponse response ) throws IOException
     {
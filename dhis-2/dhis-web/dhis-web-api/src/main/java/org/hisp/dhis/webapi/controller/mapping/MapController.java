@@ -37,6 +37,7 @@ import org.hisp.dhis.dxf2.webmessage.WebMessageException;
 import org.hisp.dhis.dxf2.webmessage.WebMessageUtils;
 import org.hisp.dhis.i18n.I18nFormat;
 import org.hisp.dhis.i18n.I18nManager;
+import org.hisp.dhis.i18n.locale.LocaleManager;
 import org.hisp.dhis.legend.LegendSet;
 import org.hisp.dhis.mapgeneration.MapGenerationService;
 import org.hisp.dhis.mapping.Map;
@@ -51,10 +52,13 @@ import org.hisp.dhis.program.ProgramStageService;
 import org.hisp.dhis.schema.descriptors.MapSchemaDescriptor;
 import org.hisp.dhis.trackedentity.TrackedEntityType;
 import org.hisp.dhis.user.UserService;
+import org.hisp.dhis.visualization.CachedImage;
+import org.hisp.dhis.visualization.RenderedImageCache;
 import org.hisp.dhis.webapi.controller.AbstractCrudController;
 import org.hisp.dhis.webapi.utils.ContextUtils;
 import org.hisp.dhis.webapi.webdomain.WebOptions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -62,14 +66,18 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import javax.imageio.ImageIO;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.time.LocalDate;
 import java.util.Date;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.hisp.dhis.common.DimensionalObjectUtils.getDimensions;
 
@@ -115,10 +123,24 @@ public class MapController
     @Autowired
     private ContextUtils contextUtils;
 
+    @Autowired
+    private LocaleManager localeManager;
+
+    @Autowired
+    private RenderedImageCache imageCache;
+
     //--------------------------------------------------------------------------
     // CRUD
     //--------------------------------------------------------------------------
 
+    @Override
+    protected boolean isMetadataEtagEnabled( WebOptions options )
+    {
+        // Relative periods are resolved against the current date
+
+        return false;
+    }
+
     @Override
     @RequestMapping( value = "/{uid}", method = RequestMethod.PUT, consumes = "application/json" )
     @ResponseStatus( HttpStatus.NO_CONTENT )
@@ -171,7 +193,7 @@ public class MapController
         @RequestParam( required = false ) Integer width,
         @RequestParam( required = false ) Integer height,
         @RequestParam( value = "attachment", required = false ) boolean attachment,
-        HttpServletResponse response ) throws Exception
+        HttpServletRequest request, HttpServletResponse response ) throws Exception
     {
         Map map = mappingService.getMapNoAcl( uid );
 
@@ -192,7 +214,7 @@ public class MapController
 
         OrganisationUnit unit = ou != null ? organisationUnitService.getOrganisationUnit( ou ) : null;
 
-        renderMapViewPng( map, date, unit, width, height, attachment, response );
+        renderMapViewPng( map, date, unit, width, height, attachment, request, response );
     }
 
     //--------------------------------------------------------------------------
@@ -283,16 +305,52 @@ public class MapController
         }
     }
 
-    private void renderMapViewPng( Map map, Date date, OrganisationUnit unit, Integer width, Integer height, boolean attachment, HttpServletResponse response )
+    private void renderMapViewPng( Map map, Date date, OrganisationUnit unit, Integer width, Integer height, boolean attachment,
+        HttpServletRequest request, HttpServletResponse response )
         throws Exception
     {
-        BufferedImage image = mapGenerationService.generateMapImage( map, date, unit, width, height );
+        // Map views, their legend sets and the metadata they reference can be
+        // updated on their own, and the geometry of organisation units is read
+        // when rendering
+
+        String mapViews = map.getMapViews().stream()
+            .map( view -> RenderedImageCache.getKey( view.getUid(), view.getLastUpdated(),
+                view.getLegendSet() != null ? view.getLegendSet().getLastUpdated() : null,
+                RenderedImageCache.getReferencedLastUpdated( view ) ) )
+            .collect( Collectors.joining( "," ) );
+
+        // Relative periods are based on the current date if no date is given
+
+        String key = RenderedImageCache.getKey( "map", map.getUid(), map.getLastUpdated(), mapViews,
+            manager.getLastUpdated( OrganisationUnit.class ), date != null ? date : LocalDate.now(),
+            unit != null ? unit.getUid() : null, width, height, localeManager.getCurrentLocale(),
+            RenderedImageCache.getUserKey( currentUserService.getCurrentUser() ) );
+
+        CachedImage image = imageCache.get( key, () -> {
+            BufferedImage mapImage = mapGenerationService.generateMapImage( map, date, unit, width, height );
+
+            if ( mapImage == null )
+            {
+                return null;
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write( mapImage, "PNG", out );
+            return out.toByteArray();
+        } );
 
         if ( image != null )
         {
             contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_PNG, CacheStrategy.RESPECT_SYSTEM_SETTING, "map.png", attachment );
 
-            ImageIO.write( image, "PNG", response.getOutputStream() );
+            response.setHeader( HttpHeaders.ETAG, image.getEtag() );
+
+            if ( new ServletWebRequest( request, response ).checkNotModified( image.getEtag() ) )
+            {
+                return;
+            }
+
+            response.getOutputStream().write( image.getContent() );
         }
         else
         {
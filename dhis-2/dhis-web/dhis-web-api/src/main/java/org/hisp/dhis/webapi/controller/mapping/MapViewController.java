@@ -119,6 +119,14 @@ public class MapViewController
     // Hooks
     //--------------------------------------------------------------------------
 
+    @Override
+    protected boolean isMetadataEtagEnabled( WebOptions options )
+    {
+        // Relative periods are resolved against the current date
+
+        return false;
+    }
+
     @Override
     @SuppressWarnings( "unchecked" )
     protected List<MapView> getEntityList( WebMetadata metadata, WebOptions options, List<String> filters, List<Order> orders )
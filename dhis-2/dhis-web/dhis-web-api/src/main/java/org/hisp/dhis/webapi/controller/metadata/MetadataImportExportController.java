@@ -50,6 +50,7 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserSettingKey;
 import org.hisp.dhis.user.UserSettingService;
+import org.hisp.dhis.webapi.controller.exception.BadRequestException;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.webapi.service.ContextService;
 import org.hisp.dhis.webapi.service.WebMessageService;
@@ -61,6 +62,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import com.google.common.primitives.Ints;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
@@ -239,8 +242,14 @@ public class MetadataImportExportController
     @GetMapping
     public ResponseEntity<RootNode> getMetadata(
         @RequestParam( required = false, defaultValue = "false" ) boolean translate, @RequestParam( required = false ) String locale,
-        @RequestParam( required = false, defaultValue = "false" ) boolean download )
+        @RequestParam( required = false, defaultValue = "false" ) boolean download,
+        @RequestParam( required = false ) String fetchSize ) throws BadRequestException
     {
+        if ( fetchSize != null && !isPositiveInteger( fetchSize ) )
+        {
+            throw new BadRequestException( "fetchSize must be a positive integer: " + fetchSize );
+        }
+
         if ( translate )
         {
             TranslateParams translateParams = new TranslateParams( true, locale );
@@ -253,6 +262,13 @@ public class MetadataImportExportController
         return MetadataExportControllerUtils.createResponseEntity( rootNode, download );
     }
 
+    private boolean isPositiveInteger( String value )
+    {
+        Integer integer = Ints.tryParse( value.trim() );
+
+        return integer != null && integer > 0;
+    }
+
     private void setUserContext(User user, TranslateParams translateParams )
     {
         Locale dbLocale = getLocaleWithDefault( translateParams );
@@ -79,6 +79,14 @@ public class OrganisationUnitController
     @Autowired
     private VersionService versionService;
 
+    @Override
+    protected boolean isMetadataEtagEnabled( WebOptions options )
+    {
+        // Member counts depend on other types than organisation units
+
+        return super.isMetadataEtagEnabled( options ) && !options.contains( "memberCollection" );
+    }
+
     @Override
     @SuppressWarnings( "unchecked" )
     protected List<OrganisationUnit> getEntityList( WebMetadata metadata, WebOptions options, List<String> filters, List<Order> orders )
@@ -123,6 +123,14 @@ public class UserController
     // GET
     // -------------------------------------------------------------------------
 
+    @Override
+    protected boolean isMetadataEtagEnabled( WebOptions options )
+    {
+        // Lists depend on login and invitation times relative to now
+
+        return false;
+    }
+
     @Override
     @SuppressWarnings( "unchecked" )
     protected List<User> getEntityList( WebMetadata metadata, WebOptions options, List<String> filters,
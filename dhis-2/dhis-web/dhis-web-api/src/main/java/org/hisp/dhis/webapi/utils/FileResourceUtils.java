@@ -31,9 +31,12 @@ package org.hisp.dhis.webapi.utils;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Date;
+import java.util.List;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.io.FilenameUtils;
@@ -48,9 +51,11 @@ import org.hisp.dhis.fileresource.ImageFileDimension;
 import org.hisp.dhis.user.CurrentUserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.stereotype.Component;
 import org.springframework.util.InvalidMimeTypeException;
 import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.google.common.hash.Hashing;
@@ -155,6 +160,111 @@ public class FileResourceUtils
         }
     }
 
+    /**
+     * Writes the content of the given file resource to the response, with
+     * support for conditional and range requests. The strong ETag of the
+     * content is set, and requests with a matching If-None-Match header get a
+     * 304 response. A single byte range given by the Range header is served
+     * with a 206 response, unless an If-Range header does not match the ETag,
+     * in which case the full content is served.
+     *
+     * @param request the request.
+     * @param response the response.
+     * @param fileResource the file resource.
+     * @throws WebMessageException if the content could not be read.
+     */
+    public void configureFileResourceResponse( HttpServletRequest request, HttpServletResponse response,
+        FileResource fileResource )
+        throws WebMessageException
+    {
+        String etag = getETag( fileResource );
+
+        response.setHeader( HttpHeaders.ETAG, etag );
+        response.setHeader( HttpHeaders.ACCEPT_RANGES, "bytes" );
+
+        if ( new ServletWebRequest( request, response ).checkNotModified( etag ) )
+        {
+            return;
+        }
+
+        long contentLength = fileResourceService.getFileResourceContentLength( fileResource );
+        long offset = 0;
+        long length = contentLength;
+
+        HttpRange range = getRange( request, etag );
+
+        if ( range != null )
+        {
+            offset = range.getRangeStart( contentLength );
+
+            if ( offset >= contentLength )
+            {
+                response.setStatus( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE );
+                response.setHeader( HttpHeaders.CONTENT_RANGE, "bytes */" + contentLength );
+                return;
+            }
+
+            long end = range.getRangeEnd( contentLength );
+            length = end - offset + 1;
+
+            response.setStatus( HttpServletResponse.SC_PARTIAL_CONTENT );
+            response.setHeader( HttpHeaders.CONTENT_RANGE, "bytes " + offset + "-" + end + "/" + contentLength );
+        }
+
+        response.setContentType( fileResource.getContentType() );
+        response.setContentLengthLong( length );
+        response.setHeader( HttpHeaders.CONTENT_DISPOSITION, "filename=" + fileResource.getName() );
+
+        try
+        {
+            fileResourceService.copyFileResourceContent( fileResource, response.getOutputStream(), offset, length );
+        }
+        catch ( IOException e )
+        {
+            throw new WebMessageException( WebMessageUtils.error( "Failed fetching the file from storage",
+                "There was an exception when trying to fetch the file from the storage backend. "
+                    + "Depending on the provider the root cause could be network or file system related." ) );
+        }
+    }
+
+    /**
+     * Returns a strong ETag for the content of the given file resource. The
+     * content stored under a storage key never changes, and the storage key
+     * differs between image dimensions.
+     */
+    public static String getETag( FileResource fileResource )
+    {
+        return "\"" + Hashing.md5().hashString( fileResource.getContentMd5() + fileResource.getStorageKey(),
+            StandardCharsets.UTF_8 ) + "\"";
+    }
+
+    /**
+     * Returns the single byte range requested by the given request, or null
+     * if no range, an invalid range or multiple ranges are requested, or if
+     * the If-Range header does not match the given ETag.
+     */
+    private static HttpRange getRange( HttpServletRequest request, String etag )
+    {
+        String rangeHeader = request.getHeader( HttpHeaders.RANGE );
+        String ifRange = request.getHeader( HttpHeaders.IF_RANGE );
+
+        if ( rangeHeader == null || ( ifRange != null && !ifRange.equals( etag ) ) )
+        {
+            return null;
+        }
+
+        try
+        {
+            List<HttpRange> ranges = HttpRange.parseRanges( rangeHeader );
+
+            return ranges.size() == 1 ? ranges.get( 0 ) : null;
+        }
+        catch ( IllegalArgumentException ex )
+        {
+            return null;
+        }
+    }
+
     public FileResource saveFile( MultipartFile file, FileResourceDomain domain )
         throws WebMessageException,
         IOException
@@ -28,6 +28,8 @@
 
 package org.hisp.dhis.webapi.utils;
 
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.query.PageToken;
 import org.hisp.dhis.query.Pagination;
 import org.hisp.dhis.webapi.webdomain.WebOptions;
 
@@ -59,4 +61,20 @@ public class PaginationUtils
 
         return NO_PAGINATION;
     }
+
+    /**
+     * Returns cursor pagination data from {@see WebOptions}, which continues
+     * after the position given by the page token, or at the first page if
+     * no page token is given.
+     *
+     * @param options a {@see WebOptions} object
+     * @return a {@see Pagination} object containing cursor pagination data
+     */
+    public static Pagination getCursorPaginationData( WebOptions options )
+    {
+        String pageToken = options.getPageToken();
+
+        return Pagination.cursor( StringUtils.isEmpty( pageToken ) ? null : PageToken.decode( pageToken ),
+            options.getPageSize() );
+    }
 }
@@ -28,6 +28,7 @@ package org.hisp.dhis.webapi.webdomain;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 import org.hisp.dhis.common.DxfNamespaces;
@@ -42,6 +43,10 @@ public class WebMetadata
 {
     private Pager pager;
 
+    private boolean cursorPaging;
+
+    private String nextPageToken;
+
     @JsonProperty
     @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
     public Pager getPager()
@@ -53,4 +58,27 @@ public class WebMetadata
     {
         this.pager = pager;
     }
+
+    @JsonIgnore
+    public boolean isCursorPaging()
+    {
+        return cursorPaging;
+    }
+
+    public void setCursorPaging( boolean cursorPaging )
+    {
+        this.cursorPaging = cursorPaging;
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public String getNextPageToken()
+    {
+        return nextPageToken;
+    }
+
+    public void setNextPageToken( String nextPageToken )
+    {
+        this.nextPageToken = nextPageToken;
+    }
 }
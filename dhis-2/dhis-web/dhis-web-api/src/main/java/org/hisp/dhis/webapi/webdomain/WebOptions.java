@@ -46,6 +46,9 @@ public class WebOptions
     public final static String ROOT_JUNCTION = "rootJunction";
     public final static String VIEW_CLASS = "viewClass";
     public final static String MANAGE = "manage";
+    public final static String CURSOR = "cursor";
+    public final static String PAGE_TOKEN = "pageToken";
+    public final static String TOTAL_PAGES = "totalPages";
 
     public WebOptions( Map<String, String> options )
     {
@@ -81,6 +84,25 @@ public class WebOptions
         return stringAsInt( options.get( PAGE_SIZE ), Pager.DEFAULT_PAGE_SIZE );
     }
 
+    /**
+     * Indicates whether to page with a cursor, which is the case when
+     * requested explicitly or when a page token is given.
+     */
+    public boolean hasCursorPaging()
+    {
+        return hasPaging() && (isTrue( CURSOR ) || containsValue( PAGE_TOKEN ));
+    }
+
+    public String getPageToken()
+    {
+        return stringAsString( options.get( PAGE_TOKEN ), null );
+    }
+
+    public boolean isTotalPages()
+    {
+        return stringAsBoolean( options.get( TOTAL_PAGES ), false );
+    }
+
     public boolean isManage()
     {
         return stringAsBoolean( options.get( MANAGE ), false );
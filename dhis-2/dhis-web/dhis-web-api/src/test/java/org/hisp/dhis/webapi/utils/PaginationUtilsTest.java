@@ -34,6 +34,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.hisp.dhis.query.PageToken;
 import org.hisp.dhis.query.Pagination;
 import org.hisp.dhis.webapi.webdomain.WebOptions;
 import org.junit.Test;
@@ -103,4 +104,36 @@ public class PaginationUtilsTest
         assertThat( paginationData.getSize(), is( 200 ) );
     }
 
-}
\ No newline at end of file
+    @Test
+    public void verifyCursorPagination()
+    {
+        Map<String, String> options = new HashMap<>();
+        options.put( WebOptions.PAGE_TOKEN, new PageToken( "name", "ANC", 12 ).encode() );
+        options.put( WebOptions.PAGE_SIZE, "100" );
+        WebOptions webOptions = new WebOptions( options );
+
+        assertThat( webOptions.hasCursorPaging(), is( true ) );
+
+        Pagination paginationData = PaginationUtils.getCursorPaginationData( webOptions );
+
+        assertThat( paginationData.isCursor(), is( true ) );
+        assertThat( paginationData.getSize(), is( 100 ) );
+        assertThat( paginationData.getPageToken().getValue(), is( "ANC" ) );
+        assertThat( paginationData.getPageToken().getId(), is( 12L ) );
+    }
+
+    @Test
+    public void verifyCursorPaginationFirstPage()
+    {
+        Map<String, String> options = new HashMap<>();
+        options.put( WebOptions.CURSOR, "true" );
+        WebOptions webOptions = new WebOptions( options );
+
+        assertThat( webOptions.hasCursorPaging(), is( true ) );
+
+        Pagination paginationData = PaginationUtils.getCursorPaginationData( webOptions );
+
+        assertThat( paginationData.isCursor(), is( true ) );
+        assertThat( paginationData.getPageToken() == null, is( true ) );
+    }
+}